@@ -19,25 +19,40 @@
 package org.wso2.carbon.device.mgt.extensions.push.notification.provider.fcm;
 
 import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSyntaxException;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.device.mgt.common.Device;
+import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
 import org.wso2.carbon.device.mgt.common.DeviceManagementException;
+import org.wso2.carbon.device.mgt.common.push.notification.BatchNotificationStrategy;
 import org.wso2.carbon.device.mgt.common.push.notification.NotificationContext;
-import org.wso2.carbon.device.mgt.common.push.notification.NotificationStrategy;
 import org.wso2.carbon.device.mgt.common.push.notification.PushNotificationConfig;
 import org.wso2.carbon.device.mgt.common.push.notification.PushNotificationExecutionFailedException;
 import org.wso2.carbon.device.mgt.extensions.push.notification.provider.fcm.internal.FCMDataHolder;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
-public class FCMNotificationStrategy implements NotificationStrategy {
+public class FCMNotificationStrategy implements BatchNotificationStrategy {
 
     private static final Log log = LogFactory.getLog(FCMNotificationStrategy.class);
 
@@ -45,12 +60,25 @@ public class FCMNotificationStrategy implements NotificationStrategy {
     private static final String FCM_TOKEN = "FCM_TOKEN";
     private static final String FCM_ENDPOINT = "https://fcm.googleapis.com/fcm/send";
     private static final String FCM_API_KEY = "fcmAPIKey";
+    private static final String FCM_ENDPOINT_PROPERTY = "fcmEndpoint";
     private static final int TIME_TO_LIVE = 5 * 60; //Set FCM TTL to 5 minutes
     private static final int HTTP_STATUS_CODE_OK = 200;
+    //FCM accepts at most 1000 registration ids in a single multicast request
+    private static final int MAX_REGISTRATION_IDS = 1000;
+    private static final int CONNECTION_TIMEOUT_MILLS = 10000;
+    private static final int READ_TIMEOUT_MILLS = 30000;
+    private static final long TOKEN_CACHE_VALIDITY_PERIOD = 15 * 60 * 1000;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
     private final PushNotificationConfig config;
+    private final String endpoint;
+    private final Map<String, CachedToken> tokenCache = new ConcurrentHashMap<>();
+    // Keys of the cached tokens against the tokens, so that a token rejected by FCM can be evicted directly
+    private final Map<String, String> tokenKeys = new ConcurrentHashMap<>();
 
     public FCMNotificationStrategy(PushNotificationConfig config) {
         this.config = config;
+        String endpoint = config.getProperties() != null ? config.getProperty(FCM_ENDPOINT_PROPERTY) : null;
+        this.endpoint = (endpoint == null || endpoint.isEmpty()) ? FCM_ENDPOINT : endpoint;
     }
 
     @Override
@@ -60,24 +88,79 @@ public class FCMNotificationStrategy implements NotificationStrategy {
 
     @Override
     public void execute(NotificationContext ctx) throws PushNotificationExecutionFailedException {
-        try {
-            if (NOTIFIER_TYPE_FCM.equals(config.getType())) {
-                Device device = FCMDataHolder.getInstance().getDeviceManagementProviderService()
-                        .getDeviceWithTypeProperties(ctx.getDeviceId());
-                if(getFCMToken(device.getProperties()) != null) {
-                    this.sendWakeUpCall(ctx.getOperation().getCode(), device);
+        List<NotificationContext> failedContexts = this.executeBatch(Collections.singletonList(ctx));
+        if (!failedContexts.isEmpty()) {
+            throw new PushNotificationExecutionFailedException("Push notification to device '" +
+                    ctx.getDeviceId().getId() + "' was not accepted by FCM");
+        }
+    }
+
+    @Override
+    public List<NotificationContext> executeBatch(List<NotificationContext> contexts)
+            throws PushNotificationExecutionFailedException {
+        if (!NOTIFIER_TYPE_FCM.equals(config.getType())) {
+            if (log.isDebugEnabled()) {
+                log.debug("Not using FCM notifier as notifier type is set to " + config.getType() +
+                          " in Platform Configurations.");
+            }
+            return Collections.emptyList();
+        }
+        List<NotificationContext> failedContexts = new ArrayList<>();
+        Exception lastError = null;
+        // Devices which receive the same message are notified with a single multicast request
+        Map<String, List<NotificationContext>> contextsByMessage = new LinkedHashMap<>();
+        Map<NotificationContext, String> tokens = new LinkedHashMap<>();
+        for (NotificationContext ctx : contexts) {
+            String fcmToken;
+            try {
+                fcmToken = this.getFCMToken(ctx.getDeviceId());
+            } catch (DeviceManagementException e) {
+                log.error("Error occurred while retrieving FCM token of device '" + ctx.getDeviceId().getId() + "'",
+                          e);
+                failedContexts.add(ctx);
+                lastError = e;
+                continue;
+            }
+            if (fcmToken != null) {
+                String message = ctx.getOperation().getCode();
+                List<NotificationContext> messageContexts = contextsByMessage.get(message);
+                if (messageContexts == null) {
+                    messageContexts = new ArrayList<>();
+                    contextsByMessage.put(message, messageContexts);
                 }
-            } else {
-                if (log.isDebugEnabled()) {
-                    log.debug("Not using FCM notifier as notifier type is set to " + config.getType() +
-                              " in Platform Configurations.");
+                messageContexts.add(ctx);
+                tokens.put(ctx, fcmToken);
+            }
+        }
+        for (Map.Entry<String, List<NotificationContext>> messageContexts : contextsByMessage.entrySet()) {
+            List<NotificationContext> allContexts = messageContexts.getValue();
+            for (int i = 0; i < allContexts.size(); i += MAX_REGISTRATION_IDS) {
+                List<NotificationContext> batch = allContexts.subList(i,
+                        Math.min(i + MAX_REGISTRATION_IDS, allContexts.size()));
+                List<String> registrationIds = new ArrayList<>(batch.size());
+                for (NotificationContext ctx : batch) {
+                    registrationIds.add(tokens.get(ctx));
+                }
+                Set<Integer> nonRetryableIndexes = new HashSet<>();
+                try {
+                    for (int failedIndex : this.sendWakeUpCall(messageContexts.getKey(), registrationIds,
+                            nonRetryableIndexes)) {
+                        NotificationContext failedContext = batch.get(failedIndex);
+                        failedContext.setRetryable(!nonRetryableIndexes.contains(failedIndex));
+                        failedContexts.add(failedContext);
+                    }
+                } catch (IOException | PushNotificationExecutionFailedException e) {
+                    log.error("Error occurred while sending push notification to " + batch.size() + " devices", e);
+                    failedContexts.addAll(batch);
+                    lastError = e;
                 }
             }
-        } catch (DeviceManagementException e) {
-            throw new PushNotificationExecutionFailedException("Error occurred while retrieving device information", e);
-        } catch (IOException e) {
-            throw new PushNotificationExecutionFailedException("Error occurred while sending push notification", e);
         }
+        if (lastError != null && failedContexts.size() == contexts.size()) {
+            throw new PushNotificationExecutionFailedException("Error occurred while sending push notification",
+                    lastError);
+        }
+        return failedContexts;
     }
 
     @Override
@@ -90,18 +173,30 @@ public class FCMNotificationStrategy implements NotificationStrategy {
 
     }
 
-    private void sendWakeUpCall(String message, Device device) throws IOException,
+    /**
+     * Sends a multicast request to FCM. The response is read fully so that the underlying connection is kept alive
+     * and reused by the subsequent requests to the same endpoint.
+     *
+     * @param nonRetryableIndexes set to which the indexes of the registration ids which FCM will never accept are
+     *                            added, e.g. tokens of devices which are no longer registered
+     * @return indexes of the registration ids which FCM did not accept
+     */
+    private List<Integer> sendWakeUpCall(String message, List<String> registrationIds,
+                                         Set<Integer> nonRetryableIndexes) throws IOException,
                                                                       PushNotificationExecutionFailedException {
         OutputStream os = null;
-        byte[] bytes = getFCMRequest(message, getFCMToken(device.getProperties())).getBytes();
+        byte[] bytes = getFCMRequest(message, registrationIds).getBytes(UTF_8);
 
         HttpURLConnection conn;
         try {
-            conn = (HttpURLConnection) new URL(FCM_ENDPOINT).openConnection();
+            conn = (HttpURLConnection) new URL(endpoint).openConnection();
+            conn.setConnectTimeout(CONNECTION_TIMEOUT_MILLS);
+            conn.setReadTimeout(READ_TIMEOUT_MILLS);
             conn.setRequestProperty("Content-Type", "application/json");
             conn.setRequestProperty("Authorization", "key=" + config.getProperty(FCM_API_KEY));
             conn.setRequestMethod("POST");
             conn.setDoOutput(true);
+            conn.setFixedLengthStreamingMode(bytes.length);
             os = conn.getOutputStream();
             os.write(bytes);
         } finally {
@@ -114,12 +209,68 @@ public class FCMNotificationStrategy implements NotificationStrategy {
             log.debug("Result code: " + status + ", Message: " + conn.getResponseMessage());
         }
         if (status != HTTP_STATUS_CODE_OK) {
+            readFully(conn.getErrorStream());
             throw new PushNotificationExecutionFailedException("Push notification sending failed with the HTTP " +
                     "error code '" + status + "'");
         }
+        return this.getFailedIndexes(readFully(conn.getInputStream()), registrationIds, nonRetryableIndexes);
     }
 
-    private static String getFCMRequest(String message, String registrationId) {
+    private List<Integer> getFailedIndexes(String response, List<String> registrationIds,
+                                           Set<Integer> nonRetryableIndexes) {
+        List<Integer> failedIndexes = new ArrayList<>();
+        JsonObject fcmResponse;
+        try {
+            JsonElement element = new JsonParser().parse(response);
+            if (element == null || !element.isJsonObject()) {
+                return failedIndexes;
+            }
+            fcmResponse = element.getAsJsonObject();
+        } catch (JsonSyntaxException e) {
+            log.warn("Unable to parse the response of FCM, considering all the notifications as sent.", e);
+            return failedIndexes;
+        }
+        if (!fcmResponse.has("failure") || fcmResponse.get("failure").getAsInt() == 0 ||
+                !fcmResponse.has("results")) {
+            return failedIndexes;
+        }
+        JsonArray results = fcmResponse.getAsJsonArray("results");
+        for (int i = 0; i < results.size() && i < registrationIds.size(); i++) {
+            JsonObject result = results.get(i).getAsJsonObject();
+            if (result.has("error")) {
+                String error = result.get("error").getAsString();
+                if (log.isDebugEnabled()) {
+                    log.debug("FCM rejected the notification to registration id at index " + i + " : " + error);
+                }
+                failedIndexes.add(i);
+                if ("NotRegistered".equals(error) || "InvalidRegistration".equals(error)) {
+                    // Device has to register again, do not keep using the stale token
+                    this.invalidateToken(registrationIds.get(i));
+                    nonRetryableIndexes.add(i);
+                }
+            }
+        }
+        return failedIndexes;
+    }
+
+    private static String readFully(InputStream inputStream) throws IOException {
+        if (inputStream == null) {
+            return "";
+        }
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        try {
+            byte[] buffer = new byte[4096];
+            int length;
+            while ((length = inputStream.read(buffer)) != -1) {
+                content.write(buffer, 0, length);
+            }
+        } finally {
+            inputStream.close();
+        }
+        return new String(content.toByteArray(), UTF_8);
+    }
+
+    private static String getFCMRequest(String message, List<String> registrationIds) {
         JsonObject fcmRequest = new JsonObject();
         fcmRequest.addProperty("delay_while_idle", false);
         fcmRequest.addProperty("time_to_live", TIME_TO_LIVE);
@@ -131,16 +282,59 @@ public class FCMNotificationStrategy implements NotificationStrategy {
             fcmRequest.add("data", data);
         }
 
-        //Set device reg-id
+        //Set device reg-ids
         JsonArray regIds = new JsonArray();
-        regIds.add(new JsonPrimitive(registrationId));
+        for (String registrationId : registrationIds) {
+            regIds.add(new JsonPrimitive(registrationId));
+        }
 
         fcmRequest.add("registration_ids", regIds);
         return fcmRequest.toString();
     }
 
+    /**
+     * Token of a device only changes when the device registers with FCM again, therefore tokens are kept for a while
+     * instead of loading the device with its type specific properties for each notification.
+     */
+    private String getFCMToken(DeviceIdentifier deviceIdentifier) throws DeviceManagementException {
+        int tenantId = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId();
+        String key = tenantId + ":" + deviceIdentifier.getType() + ":" + deviceIdentifier.getId();
+        CachedToken cachedToken = tokenCache.get(key);
+        if (cachedToken != null && cachedToken.expiryTime > System.currentTimeMillis()) {
+            return cachedToken.token;
+        }
+        Device device = FCMDataHolder.getInstance().getDeviceManagementProviderService()
+                .getDeviceWithTypeProperties(deviceIdentifier);
+        if (device == null) {
+            return null;
+        }
+        String fcmToken = getFCMToken(device.getProperties());
+        if (fcmToken != null) {
+            CachedToken previousToken = tokenCache.put(key, new CachedToken(fcmToken,
+                    System.currentTimeMillis() + TOKEN_CACHE_VALIDITY_PERIOD));
+            if (previousToken != null && !previousToken.token.equals(fcmToken)) {
+                tokenKeys.remove(previousToken.token, key);
+            }
+            tokenKeys.put(fcmToken, key);
+        }
+        return fcmToken;
+    }
+
+    private void invalidateToken(String fcmToken) {
+        String key = tokenKeys.remove(fcmToken);
+        if (key != null) {
+            CachedToken cachedToken = tokenCache.get(key);
+            if (cachedToken != null && fcmToken.equals(cachedToken.token)) {
+                tokenCache.remove(key, cachedToken);
+            }
+        }
+    }
+
     private static String getFCMToken(List<Device.Property> properties) {
         String fcmToken = null;
+        if (properties == null) {
+            return null;
+        }
         for (Device.Property property : properties) {
             if (FCM_TOKEN.equals(property.getName())) {
                 fcmToken = property.getValue();
@@ -155,4 +349,15 @@ public class FCMNotificationStrategy implements NotificationStrategy {
         return config;
     }
 
+    private static class CachedToken {
+
+        private final String token;
+        private final long expiryTime;
+
+        CachedToken(String token, long expiryTime) {
+            this.token = token;
+            this.expiryTime = expiryTime;
+        }
+    }
+
 }
@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * you may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.device.mgt.extensions.push.notification.provider.fcm;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.device.mgt.common.Device;
+import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
+import org.wso2.carbon.device.mgt.common.DeviceManagementException;
+import org.wso2.carbon.device.mgt.common.operation.mgt.Operation;
+import org.wso2.carbon.device.mgt.common.push.notification.NotificationContext;
+import org.wso2.carbon.device.mgt.common.push.notification.PushNotificationConfig;
+import org.wso2.carbon.device.mgt.common.push.notification.PushNotificationExecutionFailedException;
+import org.wso2.carbon.device.mgt.core.service.DeviceManagementProviderService;
+import org.wso2.carbon.device.mgt.extensions.push.notification.provider.fcm.internal.FCMDataHolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for {@link FCMNotificationStrategy} which run against a local mock of the FCM endpoint.
+ */
+public class FCMNotificationStrategyTest {
+
+    private static final String DEVICE_TYPE = "android";
+    private static final String INVALID_DEVICE_PREFIX = "invalid-";
+    private HttpServer fcmServer;
+    private FCMNotificationStrategy fcmNotificationStrategy;
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final AtomicInteger deviceLookupCount = new AtomicInteger();
+    private volatile int responseCode = 200;
+
+    @BeforeClass
+    public void init() throws IOException, DeviceManagementException {
+        fcmServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        fcmServer.createContext("/fcm/send", new MockFCMHandler());
+        fcmServer.start();
+
+        DeviceManagementProviderService deviceManagementProviderService =
+                Mockito.mock(DeviceManagementProviderService.class);
+        Mockito.doAnswer(new Answer<Device>() {
+            @Override
+            public Device answer(InvocationOnMock invocation) {
+                deviceLookupCount.incrementAndGet();
+                DeviceIdentifier deviceIdentifier = (DeviceIdentifier) invocation.getArguments()[0];
+                Device.Property fcmToken = new Device.Property();
+                fcmToken.setName("FCM_TOKEN");
+                fcmToken.setValue(deviceIdentifier.getId());
+                List<Device.Property> properties = new ArrayList<>();
+                properties.add(fcmToken);
+                Device device = new Device();
+                device.setDeviceIdentifier(deviceIdentifier.getId());
+                device.setProperties(properties);
+                return device;
+            }
+        }).when(deviceManagementProviderService).getDeviceWithTypeProperties(Mockito.any(DeviceIdentifier.class));
+        FCMDataHolder.getInstance().setDeviceManagementProviderService(deviceManagementProviderService);
+
+        Map<String, String> properties = new HashMap<>();
+        properties.put("fcmAPIKey", "SampleAPIKey");
+        properties.put("fcmEndpoint", "http://localhost:" + fcmServer.getAddress().getPort() + "/fcm/send");
+        fcmNotificationStrategy = new FCMNotificationStrategy(new PushNotificationConfig("FCM", false, properties));
+    }
+
+    @AfterClass
+    public void cleanup() {
+        fcmServer.stop(0);
+    }
+
+    @Test(description = "Testing whether notifications of the same operation are sent with multicast requests")
+    public void testExecuteBatch() throws PushNotificationExecutionFailedException {
+        requestCount.set(0);
+        List<NotificationContext> failedContexts = fcmNotificationStrategy.executeBatch(getContexts("device-", 2500,
+                "WIPE_DATA"));
+        Assert.assertTrue(failedContexts.isEmpty(), "Notifications have failed with a healthy FCM endpoint");
+        Assert.assertEquals(requestCount.get(), 3, "2500 devices should be notified with three FCM requests");
+    }
+
+    @Test(dependsOnMethods = "testExecuteBatch", description = "Testing whether FCM tokens are not loaded again")
+    public void testTokenCache() throws PushNotificationExecutionFailedException {
+        int lookups = deviceLookupCount.get();
+        fcmNotificationStrategy.executeBatch(getContexts("device-", 10, "DEVICE_LOCK"));
+        Assert.assertEquals(deviceLookupCount.get(), lookups, "Cached FCM tokens have been loaded again");
+    }
+
+    @Test(description = "Testing whether the tokens rejected by FCM are reported individually")
+    public void testExecuteBatchWithRejectedTokens() throws PushNotificationExecutionFailedException {
+        List<NotificationContext> contexts = getContexts("valid-", 5, "DEVICE_RING");
+        contexts.addAll(getContexts(INVALID_DEVICE_PREFIX, 2, "DEVICE_RING"));
+        List<NotificationContext> failedContexts = fcmNotificationStrategy.executeBatch(contexts);
+        Assert.assertEquals(failedContexts.size(), 2);
+        for (NotificationContext failedContext : failedContexts) {
+            Assert.assertTrue(failedContext.getDeviceId().getId().startsWith(INVALID_DEVICE_PREFIX));
+            Assert.assertFalse(failedContext.isRetryable(), "Unregistered tokens should not be retried");
+        }
+        int lookups = deviceLookupCount.get();
+        fcmNotificationStrategy.executeBatch(getContexts(INVALID_DEVICE_PREFIX, 2, "DEVICE_RING"));
+        Assert.assertEquals(deviceLookupCount.get(), lookups + 2, "Tokens rejected by FCM have not been evicted");
+    }
+
+    @Test(description = "Testing execute method with a token which is rejected by FCM",
+            expectedExceptions = PushNotificationExecutionFailedException.class)
+    public void testExecuteWithRejectedToken() throws PushNotificationExecutionFailedException {
+        fcmNotificationStrategy.execute(getContexts(INVALID_DEVICE_PREFIX, 1, "DEVICE_RING").get(0));
+    }
+
+    @Test(dependsOnMethods = {"testTokenCache", "testExecuteBatchWithRejectedTokens", "testExecuteWithRejectedToken"},
+            description = "Testing execute method when FCM responds with an error",
+            expectedExceptions = PushNotificationExecutionFailedException.class)
+    public void testExecuteWithServerError() throws PushNotificationExecutionFailedException {
+        responseCode = 500;
+        try {
+            fcmNotificationStrategy.execute(getContexts("device-", 1, "DEVICE_RING").get(0));
+        } finally {
+            responseCode = 200;
+        }
+    }
+
+    private static List<NotificationContext> getContexts(String prefix, int count, String operationCode) {
+        List<NotificationContext> contexts = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Operation operation = new Operation();
+            operation.setId(1);
+            operation.setCode(operationCode);
+            contexts.add(new NotificationContext(new DeviceIdentifier(prefix + i, DEVICE_TYPE), operation));
+        }
+        return contexts;
+    }
+
+    private class MockFCMHandler implements HttpHandler {
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            requestCount.incrementAndGet();
+            JsonObject request = new JsonParser().parse(read(exchange.getRequestBody())).getAsJsonObject();
+            JsonArray registrationIds = request.getAsJsonArray("registration_ids");
+            JsonArray results = new JsonArray();
+            int failure = 0;
+            for (int i = 0; i < registrationIds.size(); i++) {
+                JsonObject result = new JsonObject();
+                if (registrationIds.get(i).getAsString().startsWith(INVALID_DEVICE_PREFIX)) {
+                    result.addProperty("error", "NotRegistered");
+                    failure++;
+                } else {
+                    result.addProperty("message_id", "0:" + i);
+                }
+                results.add(result);
+            }
+            JsonObject response = new JsonObject();
+            response.addProperty("success", registrationIds.size() - failure);
+            response.addProperty("failure", failure);
+            response.add("results", results);
+            byte[] bytes = response.toString().getBytes("UTF-8");
+            exchange.sendResponseHeaders(responseCode, bytes.length);
+            OutputStream os = exchange.getResponseBody();
+            try {
+                os.write(bytes);
+            } finally {
+                os.close();
+            }
+        }
+
+        private String read(InputStream inputStream) throws IOException {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int length;
+            while ((length = inputStream.read(buffer)) != -1) {
+                content.write(buffer, 0, length);
+            }
+            return new String(content.toByteArray(), "UTF-8");
+        }
+    }
+}
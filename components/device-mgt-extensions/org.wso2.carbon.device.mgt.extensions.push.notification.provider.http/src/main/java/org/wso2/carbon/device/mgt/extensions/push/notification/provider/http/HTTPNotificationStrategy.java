@@ -41,7 +41,7 @@ public class HTTPNotificationStrategy implements NotificationStrategy {
     private static final String URL_PROPERTY = "url";
     private static final String AUTHORIZATION_HEADER_PROPERTY = "authorization";
     private String endpoint;
-    private static ExecutorService executorService;
+    private final ExecutorService executorService;
     private HttpClient httpClient = null;
     private HostConfiguration hostConfiguration;
     private String authorizationHeaderValue;
@@ -62,8 +62,9 @@ public class HTTPNotificationStrategy implements NotificationStrategy {
             hostConfiguration = new HostConfiguration();
             hostConfiguration.setHost(url.getHost(), url.getPort(), url.getProtocol());
             this.authorizationHeaderValue = config.getProperties().get(AUTHORIZATION_HEADER_PROPERTY);
-            executorService = Executors.newFixedThreadPool(1);
             httpClient = new HttpClient();
+            // Executor is owned by this instance so that undeploying a strategy does not affect the others
+            executorService = Executors.newFixedThreadPool(1);
         } catch (MalformedURLException e) {
             throw new InvalidConfigurationException("Property - 'url' is malformed.", e);
         }
@@ -23,8 +23,8 @@ import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.device.mgt.common.InvalidConfigurationException;
 import org.wso2.carbon.device.mgt.common.operation.mgt.Operation;
+import org.wso2.carbon.device.mgt.common.push.notification.BatchNotificationStrategy;
 import org.wso2.carbon.device.mgt.common.push.notification.NotificationContext;
-import org.wso2.carbon.device.mgt.common.push.notification.NotificationStrategy;
 import org.wso2.carbon.device.mgt.common.push.notification.PushNotificationConfig;
 import org.wso2.carbon.device.mgt.common.push.notification.PushNotificationExecutionFailedException;
 import org.wso2.carbon.device.mgt.core.operation.mgt.ProfileOperation;
@@ -32,22 +32,30 @@ import org.wso2.carbon.device.mgt.extensions.push.notification.provider.mqtt.int
 import org.wso2.carbon.device.mgt.extensions.push.notification.provider.mqtt.internal.util.MQTTAdapterConstants;
 import org.wso2.carbon.event.output.adapter.core.MessageType;
 import org.wso2.carbon.event.output.adapter.core.OutputEventAdapterConfiguration;
+import org.wso2.carbon.event.output.adapter.core.OutputEventAdapterService;
 import org.wso2.carbon.event.output.adapter.core.exception.OutputEventAdapterException;
 import org.wso2.carbon.device.mgt.core.operation.mgt.PolicyOperation;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
-public class MQTTNotificationStrategy implements NotificationStrategy {
+public class MQTTNotificationStrategy implements BatchNotificationStrategy {
 
     private static final String MQTT_ADAPTER_TOPIC = "mqtt.adapter.topic";
+    private static final String TOPIC_PROPERTY = "topic";
+    private static final String OPERATION_TOPIC_SEGMENT = "/operation/";
     private String mqttAdapterName;
     private static final Log log = LogFactory.getLog(MQTTNotificationStrategy.class);
     private final PushNotificationConfig config;
     private final String providerTenantDomain;
     private static final Object lockObj = new Object();
+    private final ConcurrentMap<String, String> sharedTenantAdapters = new ConcurrentHashMap<>();
 
     public MQTTNotificationStrategy(PushNotificationConfig config) {
         this.config = config;
@@ -101,18 +109,106 @@ public class MQTTNotificationStrategy implements NotificationStrategy {
 
     @Override
     public void execute(NotificationContext ctx) throws PushNotificationExecutionFailedException {
-        String adapterName = mqttAdapterName;
+        List<NotificationContext> failedContexts = this.executeBatch(Collections.singletonList(ctx));
+        if (!failedContexts.isEmpty()) {
+            throw new PushNotificationExecutionFailedException("Push notification to device '" +
+                    ctx.getDeviceId().getId() + "' could not be published to the MQTT broker");
+        }
+    }
+
+    @Override
+    public List<NotificationContext> executeBatch(List<NotificationContext> contexts)
+            throws PushNotificationExecutionFailedException {
         String tenantDomain = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantDomain(true);
-        if (!providerTenantDomain.equals(tenantDomain)) {
-            //this is to handle the device type shared with all tenant mode.
+        String adapterName = this.getAdapterName(tenantDomain);
+        OutputEventAdapterService adapterService = MQTTDataHolder.getInstance().getOutputEventAdapterService();
+        List<NotificationContext> failedContexts = new ArrayList<>();
+        Operation lastOperation = null;
+        List<String> topicSuffixes = null;
+        List<Object> payloads = null;
+        for (NotificationContext ctx : contexts) {
+            Operation operation = ctx.getOperation();
+            Properties properties = operation.getProperties();
+            if (properties != null && properties.get(MQTT_ADAPTER_TOPIC) != null) {
+                if (!this.publish(adapterService, adapterName, (String) properties.get(MQTT_ADAPTER_TOPIC),
+                        operation.getPayLoad())) {
+                    failedContexts.add(ctx);
+                }
+                continue;
+            }
+            if (operation != lastOperation) {
+                // topics and payloads only depend on the operation, so they are resolved once for all the devices
+                // the same operation is sent to
+                lastOperation = operation;
+                topicSuffixes = new ArrayList<>();
+                payloads = new ArrayList<>();
+                if (PolicyOperation.POLICY_OPERATION_CODE.equals(operation.getCode())) {
+                    for (ProfileOperation profileOperation : ((PolicyOperation) operation).getProfileOperations()) {
+                        topicSuffixes.add(OPERATION_TOPIC_SEGMENT + profileOperation.getType().toString().toLowerCase()
+                                + "/" + profileOperation.getCode().toLowerCase());
+                        payloads.add(profileOperation.getPayLoad());
+                    }
+                } else {
+                    String type = operation.getType().toString().toLowerCase();
+                    topicSuffixes.add(OPERATION_TOPIC_SEGMENT + type + "/" + operation.getCode() + "/"
+                            + operation.getId());
+                    payloads.add("command".equals(type) ? operation.getCode() : operation.getPayLoad());
+                }
+            }
+            String topicPrefix = tenantDomain + "/" + ctx.getDeviceId().getType() + "/" + ctx.getDeviceId().getId();
+            boolean published = true;
+            for (int i = 0; i < topicSuffixes.size(); i++) {
+                published &= this.publish(adapterService, adapterName, topicPrefix + topicSuffixes.get(i),
+                        payloads.get(i));
+            }
+            if (!published) {
+                failedContexts.add(ctx);
+            }
+        }
+        if (!failedContexts.isEmpty()) {
+            log.warn("Push notifications to " + failedContexts.size() + " out of " + contexts.size() +
+                    " devices could not be published through MQTT adapter '" + adapterName + "'");
+            if (!providerTenantDomain.equals(tenantDomain)) {
+                // the adapter may have been destroyed or re-created with a different configuration, hence it is
+                // looked up again for the next batch
+                sharedTenantAdapters.remove(tenantDomain);
+            }
+        }
+        return failedContexts;
+    }
 
-            adapterName = "mqtt.adapter." + PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantDomain()
-                    .toLowerCase();
-            try {
-                MQTTDataHolder.getInstance().getOutputEventAdapterService().isPolled(adapterName);
-            } catch (OutputEventAdapterException e) {
-                //event adapter not created
-                synchronized (lockObj) {
+    private boolean publish(OutputEventAdapterService adapterService, String adapterName, String topic,
+                            Object payload) {
+        try {
+            adapterService.publish(adapterName, Collections.singletonMap(TOPIC_PROPERTY, topic), payload);
+            return true;
+        } catch (RuntimeException e) {
+            log.error("Error occurred while publishing the push notification to topic '" + topic + "'", e);
+            return false;
+        }
+    }
+
+    /**
+     * Resolves the output event adapter used to publish the notifications of the given tenant. Device types shared
+     * with all tenants publish through an adapter of the tenant the device belongs to, which is created on first use.
+     * Adapters of other tenants are remembered until a notification published through them fails.
+     */
+    private String getAdapterName(String tenantDomain) throws PushNotificationExecutionFailedException {
+        if (providerTenantDomain.equals(tenantDomain)) {
+            return mqttAdapterName;
+        }
+        //this is to handle the device type shared with all tenant mode.
+        String adapterName = sharedTenantAdapters.get(tenantDomain);
+        if (adapterName != null) {
+            return adapterName;
+        }
+        adapterName = "mqtt.adapter." + tenantDomain.toLowerCase();
+        synchronized (lockObj) {
+            if (!sharedTenantAdapters.containsKey(tenantDomain)) {
+                try {
+                    MQTTDataHolder.getInstance().getOutputEventAdapterService().isPolled(adapterName);
+                } catch (OutputEventAdapterException e) {
+                    //event adapter not created
                     OutputEventAdapterConfiguration adapterConfig = new OutputEventAdapterConfiguration();
                     adapterConfig.setType(MQTTAdapterConstants.MQTT_ADAPTER_TYPE);
                     adapterConfig.setMessageFormat(MessageType.TEXT);
@@ -124,56 +220,13 @@ public class MQTTNotificationStrategy implements NotificationStrategy {
                     } catch (OutputEventAdapterException e1) {
                         throw new PushNotificationExecutionFailedException
                                 ("Error occurred while initializing MQTT output event adapter for shared tenant: "
-                                         + tenantDomain, e);
+                                         + tenantDomain, e1);
                     }
                 }
+                sharedTenantAdapters.put(tenantDomain, adapterName);
             }
-
         }
-
-        Operation operation = ctx.getOperation();
-        Properties properties = operation.getProperties();
-        if (properties != null && properties.get(MQTT_ADAPTER_TOPIC) != null) {
-            Map<String, String> dynamicProperties = new HashMap<>();
-            dynamicProperties.put("topic", (String) properties.get(MQTT_ADAPTER_TOPIC));
-            MQTTDataHolder.getInstance().getOutputEventAdapterService().publish(adapterName, dynamicProperties,
-                    operation.getPayLoad());
-        } else {
-            if (PolicyOperation.POLICY_OPERATION_CODE.equals(operation.getCode())) {
-                PolicyOperation policyOperation = (PolicyOperation) operation;
-                List<ProfileOperation> profileOperations = policyOperation.getProfileOperations();
-                String deviceType = ctx.getDeviceId().getType();
-                String deviceId = ctx.getDeviceId().getId();
-                for (ProfileOperation profileOperation : profileOperations) {
-                    Map<String, String> dynamicProperties = new HashMap<>();
-                    String topic = tenantDomain + "/"
-                            + deviceType + "/" + deviceId + "/operation/" + profileOperation.getType()
-                            .toString().toLowerCase() + "/" + profileOperation.getCode().toLowerCase();
-                    dynamicProperties.put("topic", topic);
-                    MQTTDataHolder.getInstance().getOutputEventAdapterService().publish(adapterName, dynamicProperties,
-                            profileOperation.getPayLoad());
-                }
-
-            } else {
-                Map<String, String> dynamicProperties = new HashMap<>();
-                String topic = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantDomain(true) + "/"
-                        + ctx.getDeviceId().getType() + "/" + ctx.getDeviceId().getId() + "/operation/"
-                        + operation.getType().toString().toLowerCase() + "/" + operation.getCode() + "/" + operation.getId();
-                dynamicProperties.put("topic", topic);
-                Object payload;
-                if ("command".equals(operation.getType().toString().toLowerCase())) {
-                    payload = operation.getCode();
-                } else {
-                    payload = operation.getPayLoad();
-                }
-                MQTTDataHolder.getInstance().getOutputEventAdapterService().publish(adapterName, dynamicProperties,
-                                                                                    payload);
-
-            }
-
-        }
-
-
+        return adapterName;
     }
 
     @Override
@@ -184,6 +237,7 @@ public class MQTTNotificationStrategy implements NotificationStrategy {
     @Override
     public void undeploy() {
         MQTTDataHolder.getInstance().getOutputEventAdapterService().destroy(mqttAdapterName);
+        sharedTenantAdapters.clear();
     }
 
     @Override
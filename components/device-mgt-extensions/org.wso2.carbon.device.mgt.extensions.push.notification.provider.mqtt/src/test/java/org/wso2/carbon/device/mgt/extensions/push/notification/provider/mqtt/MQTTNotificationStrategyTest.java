@@ -31,6 +31,7 @@ import org.wso2.carbon.device.mgt.core.operation.mgt.PolicyOperation;
 import org.wso2.carbon.device.mgt.core.operation.mgt.ProfileOperation;
 import org.wso2.carbon.device.mgt.extensions.push.notification.provider.mqtt.internal.MQTTDataHolder;
 import org.wso2.carbon.device.mgt.extensions.push.notification.provider.mqtt.internal.util.MQTTAdapterConstants;
+import org.wso2.carbon.event.output.adapter.core.OutputEventAdapterService;
 import org.wso2.carbon.event.output.adapter.core.exception.OutputEventAdapterException;
 import org.wso2.carbon.event.output.adapter.core.internal.CarbonOutputEventAdapterService;
 import org.wso2.carbon.registry.core.exceptions.RegistryException;
@@ -40,6 +41,7 @@ import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -160,4 +162,83 @@ public class MQTTNotificationStrategyTest {
         providerTenantDomain.set(mqttNotificationStrategy, "SampleTenantDomain");
         mqttNotificationStrategy.execute(notificationContext);
     }
+
+    @Test(dependsOnMethods = {"getNotificationStrategy"}, description = "testing batch execution of a policy "
+            + "operation for a device type shared with all tenants")
+    public void testExecuteBatch() throws NoSuchFieldException, IllegalAccessException,
+            PushNotificationExecutionFailedException, OutputEventAdapterException {
+        OutputEventAdapterService adapterService = Mockito.mock(OutputEventAdapterService.class);
+        MQTTDataHolder.getInstance().setOutputEventAdapterService(adapterService);
+        try {
+            MQTTNotificationStrategy strategy = new MQTTNotificationStrategy(pushNotificationConfig);
+            Field providerTenantDomain = MQTTNotificationStrategy.class.getDeclaredField("providerTenantDomain");
+            providerTenantDomain.setAccessible(true);
+            providerTenantDomain.set(strategy, "SampleTenantDomain");
+
+            PolicyOperation policyOperation = new PolicyOperation();
+            policyOperation.setCode(POLICY_OPERATION_CODE);
+            List<ProfileOperation> profileOperations = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                ProfileOperation profileOperation = new ProfileOperation();
+                profileOperation.setCode("SampleCode" + i);
+                profileOperations.add(profileOperation);
+            }
+            policyOperation.setProfileOperations(profileOperations);
+            List<NotificationContext> contexts = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                contexts.add(new NotificationContext(new DeviceIdentifier(String.valueOf(i), "SampleDeviceType"),
+                        policyOperation));
+            }
+            Assert.assertTrue(strategy.executeBatch(contexts).isEmpty(), "Notifications are reported as failed");
+            Assert.assertTrue(strategy.executeBatch(contexts).isEmpty(), "Notifications are reported as failed");
+
+            String tenantDomain = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantDomain(true);
+            String adapterName = "mqtt.adapter." + tenantDomain.toLowerCase();
+            Mockito.verify(adapterService, Mockito.times(1)).isPolled(adapterName);
+            Mockito.verify(adapterService, Mockito.times(12)).publish(Mockito.eq(adapterName), Mockito.anyMap(),
+                    Mockito.any());
+            Mockito.verify(adapterService, Mockito.times(2)).publish(adapterName, Collections.singletonMap("topic",
+                    tenantDomain + "/SampleDeviceType/2/operation/profile/samplecode1"), null);
+        } finally {
+            MQTTDataHolder.getInstance().setOutputEventAdapterService(carbonOutputEventAdapterService);
+        }
+    }
+
+    @Test(dependsOnMethods = {"getNotificationStrategy"}, description = "testing whether the devices of which the "
+            + "notifications could not be published are reported")
+    public void testExecuteBatchWithFailures() throws NoSuchFieldException, IllegalAccessException,
+            PushNotificationExecutionFailedException, OutputEventAdapterException {
+        OutputEventAdapterService adapterService = Mockito.mock(OutputEventAdapterService.class);
+        MQTTDataHolder.getInstance().setOutputEventAdapterService(adapterService);
+        try {
+            MQTTNotificationStrategy strategy = new MQTTNotificationStrategy(pushNotificationConfig);
+            Field providerTenantDomain = MQTTNotificationStrategy.class.getDeclaredField("providerTenantDomain");
+            providerTenantDomain.setAccessible(true);
+            providerTenantDomain.set(strategy, "SampleTenantDomain");
+
+            String tenantDomain = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantDomain(true);
+            String adapterName = "mqtt.adapter." + tenantDomain.toLowerCase();
+            Operation commandOperation = new Operation();
+            commandOperation.setType(Operation.Type.COMMAND);
+            commandOperation.setCode("SampleCode");
+            commandOperation.setId(5);
+            Mockito.doThrow(new RuntimeException("Broker is not reachable")).when(adapterService)
+                    .publish(adapterName, Collections.singletonMap("topic",
+                            tenantDomain + "/SampleDeviceType/1/operation/command/SampleCode/5"), "SampleCode");
+            List<NotificationContext> contexts = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                contexts.add(new NotificationContext(new DeviceIdentifier(String.valueOf(i), "SampleDeviceType"),
+                        commandOperation));
+            }
+            List<NotificationContext> failedContexts = strategy.executeBatch(contexts);
+            Assert.assertEquals(failedContexts.size(), 1, "Failed notifications are not reported");
+            Assert.assertEquals(failedContexts.get(0).getDeviceId().getId(), "1");
+
+            // the shared tenant adapter is looked up again after a failure
+            Assert.assertEquals(strategy.executeBatch(contexts.subList(0, 1)).size(), 0);
+            Mockito.verify(adapterService, Mockito.times(2)).isPolled(adapterName);
+        } finally {
+            MQTTDataHolder.getInstance().setOutputEventAdapterService(carbonOutputEventAdapterService);
+        }
+    }
 }
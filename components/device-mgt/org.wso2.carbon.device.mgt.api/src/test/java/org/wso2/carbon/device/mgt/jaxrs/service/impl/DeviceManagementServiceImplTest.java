@@ -476,7 +476,8 @@ public class DeviceManagementServiceImplTest {
         SearchManagerService searchManagerService = Mockito.mock(SearchManagerServiceImpl.class, Mockito.RETURNS_MOCKS);
         PowerMockito.stub(PowerMockito.method(DeviceMgtAPIUtils.class, "getSearchManagerService"))
                 .toReturn(searchManagerService);
-        Mockito.when(searchManagerService.search(Mockito.any(SearchContext.class))).thenThrow(new SearchMgtException());
+        Mockito.when(searchManagerService.search(Mockito.any(SearchContext.class), Mockito.anyInt(), Mockito.anyInt()))
+                .thenThrow(new SearchMgtException());
         Response response = this.deviceManagementService
                 .searchDevices(10, 5, new SearchContext());
         Assert.assertEquals(response.getStatus(), Response.Status.INTERNAL_SERVER_ERROR.getStatusCode(),
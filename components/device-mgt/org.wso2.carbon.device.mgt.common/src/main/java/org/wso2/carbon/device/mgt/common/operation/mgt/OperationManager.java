@@ -24,6 +24,7 @@ import org.wso2.carbon.device.mgt.common.PaginationRequest;
 import org.wso2.carbon.device.mgt.common.PaginationResult;
 import org.wso2.carbon.device.mgt.common.push.notification.NotificationStrategy;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -44,6 +45,43 @@ public interface OperationManager {
     Activity addOperation(Operation operation, List<DeviceIdentifier> devices) throws OperationManagementException,
             InvalidDeviceException;
 
+    /**
+     * Method to add an operation of the device monitoring task to the given devices, skipping the devices which
+     * already have a pending operation of the same code. The default implementation checks the pending operations
+     * of the devices one by one, and implementations are expected to override it with set based lookups.
+     *
+     * @param operation    Monitoring operation to be added
+     * @param devices      List of DeviceIdentifiers of the devices to be monitored
+     * @param fanOutWindow Time in milliseconds over which the push notifications of the operation may be spread
+     * @return Number of devices the operation has been added to
+     * @throws OperationManagementException If some unusual behaviour is observed while adding the operation
+     */
+    default int addMonitoringOperation(Operation operation, List<DeviceIdentifier> devices, long fanOutWindow)
+            throws OperationManagementException {
+        List<DeviceIdentifier> monitoredDevices = new ArrayList<>();
+        for (DeviceIdentifier device : devices) {
+            boolean isPending = false;
+            for (Operation pendingOperation : this.getPendingOperations(device)) {
+                if (operation.getCode().equals(pendingOperation.getCode())) {
+                    isPending = true;
+                    break;
+                }
+            }
+            if (!isPending) {
+                monitoredDevices.add(device);
+            }
+        }
+        if (!monitoredDevices.isEmpty()) {
+            try {
+                this.addOperation(operation, monitoredDevices);
+            } catch (InvalidDeviceException e) {
+                throw new OperationManagementException("Invalid devices found while adding monitoring operation '" +
+                        operation.getCode() + "'", e);
+            }
+        }
+        return monitoredDevices.size();
+    }
+
     /**
      * Method to retrieve the list of all operations to a device.
      *
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.common.push.notification;
+
+import java.util.List;
+
+/**
+ * Notification strategy which is able to deliver the notifications of a set of devices together, e.g. with a
+ * single request to the push notification service, instead of one request per device.
+ */
+public interface BatchNotificationStrategy extends NotificationStrategy {
+
+    /**
+     * Sends the notifications of the given contexts.
+     *
+     * @param contexts notification contexts of the devices
+     * @return contexts of the notifications which were not accepted by the push notification service, or an empty
+     * list if all of them were sent. Contexts which should not be sent again right away are marked with
+     * {@link NotificationContext#setRetryable(boolean)}
+     * @throws PushNotificationExecutionFailedException if the notifications could not be sent at all
+     */
+    List<NotificationContext> executeBatch(List<NotificationContext> contexts)
+            throws PushNotificationExecutionFailedException;
+
+}
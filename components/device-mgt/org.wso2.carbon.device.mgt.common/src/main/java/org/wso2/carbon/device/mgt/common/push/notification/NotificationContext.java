@@ -31,6 +31,8 @@ public class NotificationContext {
 
     private Map<String, String> properties;
 
+    private boolean retryable = true;
+
     public NotificationContext(DeviceIdentifier deviceId) {
         this.deviceId = deviceId;
     }
@@ -56,4 +58,16 @@ public class NotificationContext {
         return operation;
     }
 
+    /**
+     * @return false if the push notification service has rejected the notification in a way which sending it again
+     * would not change, e.g. the device is no longer registered with the service
+     */
+    public boolean isRetryable() {
+        return retryable;
+    }
+
+    public void setRetryable(boolean retryable) {
+        this.retryable = retryable;
+    }
+
 }
@@ -0,0 +1,318 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.device.mgt.core.benchmark;
+
+import org.apache.axis2.context.ConfigurationContext;
+import org.apache.axis2.context.ConfigurationContextFactory;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.tomcat.jdbc.pool.PoolProperties;
+import org.wso2.carbon.base.MultitenantConstants;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
+import org.wso2.carbon.device.mgt.common.DeviceManagementException;
+import org.wso2.carbon.device.mgt.common.EnrolmentInfo;
+import org.wso2.carbon.device.mgt.core.TestDeviceManagementService;
+import org.wso2.carbon.device.mgt.core.authorization.DeviceAccessAuthorizationServiceImpl;
+import org.wso2.carbon.device.mgt.core.common.TestEmailSenderService;
+import org.wso2.carbon.device.mgt.core.config.DeviceConfigurationManager;
+import org.wso2.carbon.device.mgt.core.dao.DeviceManagementDAOFactory;
+import org.wso2.carbon.device.mgt.core.dao.GroupManagementDAOFactory;
+import org.wso2.carbon.device.mgt.core.internal.DeviceManagementDataHolder;
+import org.wso2.carbon.device.mgt.core.internal.DeviceManagementServiceComponent;
+import org.wso2.carbon.device.mgt.core.notification.mgt.dao.NotificationManagementDAOFactory;
+import org.wso2.carbon.device.mgt.core.operation.mgt.OperationManagerImpl;
+import org.wso2.carbon.device.mgt.core.operation.mgt.dao.OperationManagementDAOFactory;
+import org.wso2.carbon.device.mgt.core.service.DeviceManagementProviderService;
+import org.wso2.carbon.device.mgt.core.service.DeviceManagementProviderServiceImpl;
+import org.wso2.carbon.device.mgt.core.service.GroupManagementProviderServiceImpl;
+import org.wso2.carbon.registry.core.config.RegistryContext;
+import org.wso2.carbon.registry.core.internal.RegistryDataHolder;
+import org.wso2.carbon.registry.core.jdbc.realm.InMemoryRealmService;
+import org.wso2.carbon.user.core.service.RealmService;
+import org.wso2.carbon.utils.ConfigurationContextService;
+
+import javax.sql.DataSource;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bootstraps the device management core once per benchmark JVM, the same way the core unit tests do, and seeds
+ * devices directly through JDBC so that large fleets can be created quickly.
+ * <p>
+ * The {@code h2} dialect runs against an in-memory H2 database created from the core test schema. Any other dialect
+ * connects to the database given by the {@code benchmark.jdbc.url}, {@code benchmark.jdbc.driver},
+ * {@code benchmark.jdbc.user} and {@code benchmark.jdbc.password} system properties, which must already contain the
+ * schema from the product dbscripts. The DAO implementations are picked by the core for the connected database, so
+ * results are reported per dialect through the {@code dialect} benchmark parameter.
+ * <p>
+ * Core test resources are looked up in the directory given by {@code benchmark.resources}, which defaults to the
+ * test resources of the core module when the benchmarks are run from this module.
+ */
+public final class BenchmarkEnvironment {
+
+    public static final String DIALECT_H2 = "h2";
+    public static final String OWNER = "admin";
+
+    private static final Log log = LogFactory.getLog(BenchmarkEnvironment.class);
+    private static final String RESOURCES_PROPERTY = "benchmark.resources";
+    private static final String DEFAULT_RESOURCES = "../org.wso2.carbon.device.mgt.core/src/test/resources";
+    private static final String H2_URL = "jdbc:h2:mem:cdm-benchmark-db;DB_CLOSE_ON_EXIT=FALSE;MVCC=true";
+    private static final int SEED_BATCH_SIZE = 1000;
+
+    private static String dialect;
+    private static DataSource dataSource;
+
+    private BenchmarkEnvironment() {
+    }
+
+    /**
+     * Initializes the data source and the core services for the given dialect, and the carbon context of the calling
+     * thread. Benchmarks of different dialects must run in different forks.
+     *
+     * @param dialect database dialect the benchmark runs against
+     * @throws Exception if the environment could not be initialized
+     */
+    public static synchronized void init(String dialect) throws Exception {
+        initializeCarbonContext();
+        if (BenchmarkEnvironment.dialect != null) {
+            if (!BenchmarkEnvironment.dialect.equals(dialect)) {
+                throw new IllegalStateException("Benchmark environment is already initialized for dialect '" +
+                        BenchmarkEnvironment.dialect + "'");
+            }
+            return;
+        }
+        File resources = new File(System.getProperty(RESOURCES_PROPERTY, DEFAULT_RESOURCES));
+        if (!resources.isDirectory()) {
+            throw new IllegalStateException("Core test resources are not found at '" + resources.getAbsolutePath() +
+                    "'. Set the '" + RESOURCES_PROPERTY + "' system property.");
+        }
+        if (System.getProperty("carbon.home") == null) {
+            System.setProperty("carbon.home", new File(resources, "carbon-home").getAbsolutePath());
+        }
+        dataSource = createDataSource(dialect);
+        if (DIALECT_H2.equals(dialect)) {
+            executeScript(new File(resources, "sql/h2.sql"));
+        }
+        DeviceManagementDAOFactory.init(dataSource);
+        GroupManagementDAOFactory.init(dataSource);
+        OperationManagementDAOFactory.init(dataSource);
+        NotificationManagementDAOFactory.init(dataSource);
+        log.info("Benchmarking dialect '" + dialect + "' with " +
+                OperationManagementDAOFactory.getOperationDAO().getClass().getName());
+
+        DeviceConfigurationManager.getInstance().initConfig(
+                new File(resources, "carbon-home/repository/conf/cdm-config.xml").getAbsolutePath());
+        DeviceManagementDataHolder dataHolder = DeviceManagementDataHolder.getInstance();
+        DeviceManagementProviderService deviceMgtService = new DeviceManagementProviderServiceImpl();
+        DeviceManagementServiceComponent.notifyStartupListeners();
+        dataHolder.setDeviceManagementProvider(deviceMgtService);
+        RealmService realmService = new InMemoryRealmService();
+        RegistryDataHolder.getInstance().setRealmService(realmService);
+        dataHolder.setRealmService(realmService);
+        InputStream registryConfig = new FileInputStream(
+                new File(resources, "carbon-home/repository/conf/registry.xml"));
+        try {
+            RegistryContext context = RegistryContext.getBaseInstance(registryConfig, realmService);
+            context.setSetup(true);
+            dataHolder.setRegistryService(context.getEmbeddedRegistryService());
+        } finally {
+            registryConfig.close();
+        }
+        dataHolder.setDeviceAccessAuthorizationService(new DeviceAccessAuthorizationServiceImpl());
+        dataHolder.setGroupManagementProviderService(new GroupManagementProviderServiceImpl());
+        dataHolder.setDeviceTaskManagerService(null);
+        dataHolder.setEmailSenderService(new TestEmailSenderService());
+        ConfigurationContext configContext = ConfigurationContextFactory.createConfigurationContextFromFileSystem(
+                new File(resources, "carbon-home/repository/conf/axis2/axis2.xml").getAbsolutePath());
+        dataHolder.setConfigurationContextService(new ConfigurationContextService(configContext, null));
+        BenchmarkEnvironment.dialect = dialect;
+    }
+
+    /**
+     * Sets the super tenant in the carbon context of the calling thread. JMH runs benchmark methods on its own
+     * threads, hence this has to be called from a thread scoped setup.
+     */
+    public static void initializeCarbonContext() {
+        PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantDomain(
+                MultitenantConstants.SUPER_TENANT_DOMAIN_NAME);
+        PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantId(MultitenantConstants.SUPER_TENANT_ID);
+    }
+
+    public static DeviceManagementProviderService getDeviceManagementProviderService() {
+        return DeviceManagementDataHolder.getInstance().getDeviceManagementProvider();
+    }
+
+    public static OperationManagerImpl getOperationManager(String deviceType) {
+        return new OperationManagerImpl(deviceType, new TestDeviceManagementService(deviceType,
+                MultitenantConstants.SUPER_TENANT_DOMAIN_NAME));
+    }
+
+    public static DataSource getDataSource() {
+        return dataSource;
+    }
+
+    /**
+     * Registers the given device type and enrolls the given number of active devices of it.
+     *
+     * @param deviceType type of the devices
+     * @param count      number of devices to be enrolled
+     * @return identifiers of the enrolled devices
+     * @throws Exception if the devices could not be enrolled
+     */
+    public static List<DeviceIdentifier> enrollDevices(String deviceType, int count) throws Exception {
+        getDeviceManagementProviderService().registerDeviceType(
+                new TestDeviceManagementService(deviceType, MultitenantConstants.SUPER_TENANT_DOMAIN_NAME));
+        List<DeviceIdentifier> deviceIds = new ArrayList<>(count);
+        Connection conn = dataSource.getConnection();
+        try {
+            conn.setAutoCommit(false);
+            int deviceTypeId = getDeviceTypeId(conn, deviceType);
+            Timestamp now = new Timestamp(System.currentTimeMillis());
+            PreparedStatement stmt = conn.prepareStatement("INSERT INTO DM_DEVICE (DESCRIPTION, NAME, " +
+                    "DEVICE_TYPE_ID, DEVICE_IDENTIFICATION, LAST_UPDATED_TIMESTAMP, TENANT_ID) " +
+                    "VALUES (?, ?, ?, ?, ?, ?)");
+            try {
+                for (int i = 0; i < count; i++) {
+                    String deviceId = deviceType + "-" + i;
+                    stmt.setString(1, "Benchmark device");
+                    stmt.setString(2, deviceId);
+                    stmt.setInt(3, deviceTypeId);
+                    stmt.setString(4, deviceId);
+                    stmt.setTimestamp(5, now);
+                    stmt.setInt(6, MultitenantConstants.SUPER_TENANT_ID);
+                    stmt.addBatch();
+                    if ((i + 1) % SEED_BATCH_SIZE == 0) {
+                        stmt.executeBatch();
+                    }
+                    deviceIds.add(new DeviceIdentifier(deviceId, deviceType));
+                }
+                stmt.executeBatch();
+            } finally {
+                stmt.close();
+            }
+            List<Integer> ids = new ArrayList<>(count);
+            stmt = conn.prepareStatement("SELECT ID FROM DM_DEVICE WHERE DEVICE_TYPE_ID = ? AND TENANT_ID = ?");
+            try {
+                stmt.setInt(1, deviceTypeId);
+                stmt.setInt(2, MultitenantConstants.SUPER_TENANT_ID);
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) {
+                    ids.add(rs.getInt("ID"));
+                }
+            } finally {
+                stmt.close();
+            }
+            stmt = conn.prepareStatement("INSERT INTO DM_ENROLMENT (DEVICE_ID, OWNER, OWNERSHIP, STATUS, " +
+                    "DATE_OF_ENROLMENT, DATE_OF_LAST_UPDATE, TENANT_ID) VALUES (?, ?, ?, ?, ?, ?, ?)");
+            try {
+                for (int i = 0; i < ids.size(); i++) {
+                    stmt.setInt(1, ids.get(i));
+                    stmt.setString(2, OWNER);
+                    stmt.setString(3, EnrolmentInfo.OwnerShip.BYOD.toString());
+                    stmt.setString(4, EnrolmentInfo.Status.ACTIVE.toString());
+                    stmt.setTimestamp(5, now);
+                    stmt.setTimestamp(6, now);
+                    stmt.setInt(7, MultitenantConstants.SUPER_TENANT_ID);
+                    stmt.addBatch();
+                    if ((i + 1) % SEED_BATCH_SIZE == 0) {
+                        stmt.executeBatch();
+                    }
+                }
+                stmt.executeBatch();
+            } finally {
+                stmt.close();
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.close();
+        }
+        return deviceIds;
+    }
+
+    /**
+     * Executes an update statement, e.g. to bring seeded data into the state a benchmark needs.
+     */
+    public static int executeUpdate(String sql) throws SQLException {
+        Connection conn = dataSource.getConnection();
+        try {
+            Statement stmt = conn.createStatement();
+            try {
+                return stmt.executeUpdate(sql);
+            } finally {
+                stmt.close();
+            }
+        } finally {
+            conn.close();
+        }
+    }
+
+    private static int getDeviceTypeId(Connection conn, String deviceType) throws SQLException,
+            DeviceManagementException {
+        PreparedStatement stmt = conn.prepareStatement("SELECT ID FROM DM_DEVICE_TYPE WHERE NAME = ?");
+        try {
+            stmt.setString(1, deviceType);
+            ResultSet rs = stmt.executeQuery();
+            if (!rs.next()) {
+                throw new DeviceManagementException("Device type '" + deviceType + "' has not been registered");
+            }
+            return rs.getInt("ID");
+        } finally {
+            stmt.close();
+        }
+    }
+
+    private static DataSource createDataSource(String dialect) {
+        PoolProperties properties = new PoolProperties();
+        if (DIALECT_H2.equals(dialect)) {
+            properties.setUrl(H2_URL);
+            properties.setDriverClassName("org.h2.Driver");
+            properties.setUsername("wso2carbon");
+            properties.setPassword("wso2carbon");
+        } else {
+            String url = System.getProperty("benchmark.jdbc.url");
+            if (url == null) {
+                throw new IllegalStateException("'benchmark.jdbc.url' system property is required to benchmark " +
+                        "dialect '" + dialect + "'");
+            }
+            properties.setUrl(url);
+            properties.setDriverClassName(System.getProperty("benchmark.jdbc.driver"));
+            properties.setUsername(System.getProperty("benchmark.jdbc.user"));
+            properties.setPassword(System.getProperty("benchmark.jdbc.password"));
+        }
+        properties.setMaxActive(50);
+        return new org.apache.tomcat.jdbc.pool.DataSource(properties);
+    }
+
+    private static void executeScript(File script) throws SQLException {
+        executeUpdate("RUNSCRIPT FROM '" + script.getAbsolutePath().replace("'", "''") + "'");
+    }
+
+}
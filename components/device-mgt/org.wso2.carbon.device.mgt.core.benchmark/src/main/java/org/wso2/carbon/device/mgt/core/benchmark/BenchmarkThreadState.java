@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.device.mgt.core.benchmark;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Per thread state of the benchmarks. It sets up the carbon context of the benchmark thread and hands out a
+ * cursor, which benchmarks use to spread their calls over the seeded devices or pages.
+ */
+@State(Scope.Thread)
+public class BenchmarkThreadState {
+
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        BenchmarkEnvironment.initializeCarbonContext();
+        cursor = (int) (Thread.currentThread().getId() * 7919);
+    }
+
+    /**
+     * @param bound exclusive upper bound of the returned index
+     * @return next index in round robin order
+     */
+    public int next(int bound) {
+        cursor = (cursor + 1) & Integer.MAX_VALUE;
+        return cursor % bound;
+    }
+
+}
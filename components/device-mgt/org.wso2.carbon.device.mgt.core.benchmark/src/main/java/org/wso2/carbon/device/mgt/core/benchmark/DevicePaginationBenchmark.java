@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.device.mgt.core.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.device.mgt.common.PaginationRequest;
+import org.wso2.carbon.device.mgt.common.PaginationResult;
+import org.wso2.carbon.device.mgt.core.service.DeviceManagementProviderService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures paginated device listing through
+ * {@link DeviceManagementProviderService#getAllDevices(PaginationRequest, boolean)}, walking over all the pages of
+ * the seeded devices.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DevicePaginationBenchmark {
+
+    private static final String DEVICE_TYPE = "PAGINATION_BENCHMARK";
+
+    @Param({BenchmarkEnvironment.DIALECT_H2})
+    public String dialect;
+
+    @Param({"10000"})
+    public int deviceCount;
+
+    @Param({"10", "100"})
+    public int pageSize;
+
+    @Param({"false", "true"})
+    public boolean requireDeviceInfo;
+
+    private DeviceManagementProviderService deviceManagementProviderService;
+    private int pageCount;
+
+    @Setup
+    public void setup() throws Exception {
+        BenchmarkEnvironment.init(dialect);
+        BenchmarkEnvironment.enrollDevices(DEVICE_TYPE, deviceCount);
+        deviceManagementProviderService = BenchmarkEnvironment.getDeviceManagementProviderService();
+        pageCount = Math.max(1, deviceCount / pageSize);
+    }
+
+    @Benchmark
+    public PaginationResult getAllDevices(BenchmarkThreadState threadState) throws Exception {
+        PaginationRequest request = new PaginationRequest(threadState.next(pageCount) * pageSize, pageSize);
+        return deviceManagementProviderService.getAllDevices(request, requireDeviceInfo);
+    }
+
+}
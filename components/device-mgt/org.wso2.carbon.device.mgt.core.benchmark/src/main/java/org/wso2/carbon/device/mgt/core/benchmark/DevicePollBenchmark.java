@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.device.mgt.core.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
+import org.wso2.carbon.device.mgt.common.operation.mgt.Operation;
+import org.wso2.carbon.device.mgt.core.operation.mgt.CommandOperation;
+import org.wso2.carbon.device.mgt.core.operation.mgt.OperationManagerImpl;
+import org.wso2.carbon.device.mgt.core.operation.mgt.OperationMapping;
+import org.wso2.carbon.device.mgt.core.operation.mgt.dao.OperationDAO;
+import org.wso2.carbon.device.mgt.core.operation.mgt.dao.OperationManagementDAOFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the paths hit when devices poll for operations and report their results, and the lookup of scheduled
+ * operation mappings done by the push notification scheduler task.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DevicePollBenchmark {
+
+    private static final String DEVICE_TYPE = "POLL_BENCHMARK";
+    private static final String OPERATION_CODE = "BENCHMARK_COMMAND";
+
+    @Param({BenchmarkEnvironment.DIALECT_H2})
+    public String dialect;
+
+    @Param({"1000"})
+    public int deviceCount;
+
+    @Param({"10"})
+    public int operationsPerDevice;
+
+    @Param({"1000"})
+    public int mappingBatchSize;
+
+    private OperationManagerImpl operationManager;
+    private OperationDAO operationDAO;
+    private List<DeviceIdentifier> deviceIds;
+    private int updatedOperationId;
+
+    @Setup
+    public void setup() throws Exception {
+        BenchmarkEnvironment.init(dialect);
+        deviceIds = BenchmarkEnvironment.enrollDevices(DEVICE_TYPE, deviceCount);
+        operationManager = BenchmarkEnvironment.getOperationManager(DEVICE_TYPE);
+        operationDAO = OperationManagementDAOFactory.getOperationDAO();
+        for (int i = 0; i < operationsPerDevice; i++) {
+            CommandOperation operation = new CommandOperation();
+            operation.setType(Operation.Type.COMMAND);
+            operation.setCode(OPERATION_CODE + "_" + i);
+            operationManager.addOperation(operation, deviceIds);
+        }
+        updatedOperationId = operationManager.getPendingOperations(deviceIds.get(0)).get(0).getId();
+        BenchmarkEnvironment.executeUpdate("UPDATE DM_ENROLMENT_OP_MAPPING SET PUSH_NOTIFICATION_STATUS = '" +
+                org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation.PushNotificationStatus.SCHEDULED + "'");
+    }
+
+    @Benchmark
+    public Operation getNextPendingOperation(BenchmarkThreadState threadState) throws Exception {
+        return operationManager.getNextPendingOperation(deviceIds.get(threadState.next(deviceIds.size())));
+    }
+
+    @Benchmark
+    public void updateOperation(BenchmarkThreadState threadState) throws Exception {
+        CommandOperation operation = new CommandOperation();
+        operation.setId(updatedOperationId);
+        operation.setCode(OPERATION_CODE);
+        operation.setStatus(Operation.Status.COMPLETED);
+        operation.setOperationResponse("OK");
+        operationManager.updateOperation(deviceIds.get(threadState.next(deviceIds.size())), operation);
+    }
+
+    @Benchmark
+    public Map<Integer, List<OperationMapping>> getOperationMappingsByStatus(BenchmarkThreadState threadState)
+            throws Exception {
+        OperationManagementDAOFactory.openConnection();
+        try {
+            return operationDAO.getOperationMappingsByStatus(
+                    org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation.Status.PENDING,
+                    org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation.PushNotificationStatus.SCHEDULED,
+                    mappingBatchSize);
+        } finally {
+            OperationManagementDAOFactory.closeConnection();
+        }
+    }
+
+}
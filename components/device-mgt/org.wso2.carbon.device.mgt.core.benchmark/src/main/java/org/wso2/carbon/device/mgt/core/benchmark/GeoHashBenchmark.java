@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.wso2.carbon.device.mgt.core.geo.geoHash.GeoHashGenerator;
+import org.wso2.carbon.device.mgt.core.geo.geoHash.LongGeoHash;
+
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the long encoded geohashes with the string geohashes previously computed by GeoHashGenerator, for
+ * encoding and decoding locations and for covering a map with the geohash prefixes of a length. The previous
+ * implementation is reproduced in {@link LegacyGeoHashGenerator}. This does not need a database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GeoHashBenchmark {
+
+    private static final String IMPLEMENTATION_LEGACY = "legacy";
+    private static final String IMPLEMENTATION_STRING = "string";
+    private static final String IMPLEMENTATION_LONG = "long";
+    private static final int LOCATION_COUNT = 1024;
+    private static final int PREFIX_LENGTH = 6;
+
+    @Param({IMPLEMENTATION_LEGACY, IMPLEMENTATION_STRING, IMPLEMENTATION_LONG})
+    public String implementation;
+
+    private final double[] latitudes = new double[LOCATION_COUNT];
+    private final double[] longitudes = new double[LOCATION_COUNT];
+    private final String[] geohashes = new String[LOCATION_COUNT];
+    private final long[] longGeohashes = new long[LOCATION_COUNT];
+    private int index;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(LOCATION_COUNT);
+        for (int i = 0; i < LOCATION_COUNT; i++) {
+            latitudes[i] = random.nextDouble() * 180.0 - 90.0;
+            longitudes[i] = random.nextDouble() * 360.0 - 180.0;
+            geohashes[i] = GeoHashGenerator.encodeGeohash(latitudes[i], longitudes[i]);
+            longGeohashes[i] = LongGeoHash.encode(latitudes[i], longitudes[i], LongGeoHash.MAX_LENGTH);
+        }
+    }
+
+    @Benchmark
+    public void encode(Blackhole blackhole) {
+        int i = this.nextIndex();
+        if (IMPLEMENTATION_LEGACY.equals(implementation)) {
+            blackhole.consume(LegacyGeoHashGenerator.encodeGeohash(latitudes[i], longitudes[i]));
+        } else if (IMPLEMENTATION_STRING.equals(implementation)) {
+            blackhole.consume(GeoHashGenerator.encodeGeohash(latitudes[i], longitudes[i]));
+        } else {
+            blackhole.consume(LongGeoHash.encode(latitudes[i], longitudes[i], LongGeoHash.MAX_LENGTH));
+        }
+    }
+
+    @Benchmark
+    public void decode(Blackhole blackhole) {
+        int i = this.nextIndex();
+        if (IMPLEMENTATION_LEGACY.equals(implementation)) {
+            double[] coordinates = LegacyGeoHashGenerator.decodeGeohash(geohashes[i]);
+            blackhole.consume(coordinates[0]);
+            blackhole.consume(coordinates[1]);
+        } else if (IMPLEMENTATION_STRING.equals(implementation)) {
+            blackhole.consume(GeoHashGenerator.decodeGeohash(geohashes[i]));
+        } else {
+            blackhole.consume(LongGeoHash.decodeLatitude(longGeohashes[i], LongGeoHash.MAX_LENGTH));
+            blackhole.consume(LongGeoHash.decodeLongitude(longGeohashes[i], LongGeoHash.MAX_LENGTH));
+        }
+    }
+
+    /**
+     * Covers a map of about 10 x 20 km around a location with the geohash prefixes of length 6, the way map tiles are
+     * looked up for geo clusters.
+     */
+    @Benchmark
+    public void cover(Blackhole blackhole) {
+        int i = this.nextIndex();
+        double minLatitude = Math.max(latitudes[i] - 0.05, -90.0);
+        double maxLatitude = Math.min(latitudes[i] + 0.05, 90.0);
+        double minLongitude = Math.max(longitudes[i] - 0.1, -180.0);
+        double maxLongitude = Math.min(longitudes[i] + 0.1, 180.0);
+        if (IMPLEMENTATION_LONG.equals(implementation)) {
+            blackhole.consume(LongGeoHash.cover(minLatitude, minLongitude, maxLatitude, maxLongitude,
+                    PREFIX_LENGTH));
+            return;
+        }
+        // String geohashes are covered by encoding a location in every cell of the map
+        double cellHeight = LongGeoHash.getCellHeight(PREFIX_LENGTH);
+        double cellWidth = LongGeoHash.getCellWidth(PREFIX_LENGTH);
+        Set<String> prefixes = new LinkedHashSet<>();
+        for (double latitude = minLatitude; latitude < maxLatitude + cellHeight; latitude += cellHeight) {
+            for (double longitude = minLongitude; longitude < maxLongitude + cellWidth; longitude += cellWidth) {
+                String geohash;
+                if (IMPLEMENTATION_LEGACY.equals(implementation)) {
+                    geohash = LegacyGeoHashGenerator.encodeGeohash(Math.min(latitude, maxLatitude),
+                            Math.min(longitude, maxLongitude));
+                } else {
+                    geohash = GeoHashGenerator.encodeGeohash(Math.min(latitude, maxLatitude),
+                            Math.min(longitude, maxLongitude));
+                }
+                prefixes.add(geohash.substring(0, PREFIX_LENGTH));
+            }
+        }
+        blackhole.consume(prefixes);
+    }
+
+    private int nextIndex() {
+        index = (index + 1) & (LOCATION_COUNT - 1);
+        return index;
+    }
+
+    /**
+     * GeoHashGenerator as it was before geohashes were encoded as longs.
+     */
+    private static final class LegacyGeoHashGenerator {
+
+        private static final String BASE_32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+        private static final int GEOHASH_LENGTH = 16;
+
+        private static int divideRangeByValue(double value, double[] range) {
+            double mid = middle(range);
+            if (value >= mid) {
+                range[0] = mid;
+                return 1;
+            } else {
+                range[1] = mid;
+                return 0;
+            }
+        }
+
+        private static void divideRangeByBit(int bit, double[] range) {
+            double mid = middle(range);
+            if (bit > 0) {
+                range[0] = mid;
+            } else {
+                range[1] = mid;
+            }
+        }
+
+        private static double middle(double[] range) {
+            return (range[0] + range[1]) / 2;
+        }
+
+        private static String encodeGeohash(double latitude, double longitude) {
+            double[] latRange = new double[]{-90.0, 90.0};
+            double[] lonRange = new double[]{-180.0, 180.0};
+            boolean isEven = true;
+            int bit = 0;
+            int base32CharIndex = 0;
+            StringBuilder geohash = new StringBuilder();
+            while (geohash.length() < GEOHASH_LENGTH) {
+                if (isEven) {
+                    base32CharIndex = (base32CharIndex << 1) | divideRangeByValue(longitude, lonRange);
+                } else {
+                    base32CharIndex = (base32CharIndex << 1) | divideRangeByValue(latitude, latRange);
+                }
+                isEven = !isEven;
+                if (bit < 4) {
+                    bit++;
+                } else {
+                    geohash.append(BASE_32.charAt(base32CharIndex));
+                    bit = 0;
+                    base32CharIndex = 0;
+                }
+            }
+            return geohash.toString();
+        }
+
+        private static double[] decodeGeohash(String geohash) {
+            double[] latRange = new double[]{-90.0, 90.0};
+            double[] lonRange = new double[]{-180.0, 180.0};
+            boolean isEvenBit = true;
+            for (int i = 0; i < geohash.length(); i++) {
+                int base32CharIndex = BASE_32.indexOf(geohash.charAt(i));
+                for (int j = 4; j >= 0; j--) {
+                    if (isEvenBit) {
+                        divideRangeByBit((base32CharIndex >> j) & 1, lonRange);
+                    } else {
+                        divideRangeByBit((base32CharIndex >> j) & 1, latRange);
+                    }
+                    isEvenBit = !isEvenBit;
+                }
+            }
+            return new double[]{middle(latRange), middle(lonRange)};
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.device.mgt.core.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
+import org.wso2.carbon.device.mgt.common.operation.mgt.Activity;
+import org.wso2.carbon.device.mgt.common.operation.mgt.Operation;
+import org.wso2.carbon.device.mgt.core.operation.mgt.CommandOperation;
+import org.wso2.carbon.device.mgt.core.operation.mgt.OperationManagerImpl;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link OperationManagerImpl#addOperation(Operation, List)}, which fans an operation out to the
+ * enrolment operation mappings of all the target devices.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OperationFanOutBenchmark {
+
+    private static final String DEVICE_TYPE = "FAN_OUT_BENCHMARK";
+    private static final String OPERATION_CODE = "BENCHMARK_COMMAND";
+
+    @Param({BenchmarkEnvironment.DIALECT_H2})
+    public String dialect;
+
+    @Param({"1", "1000", "50000"})
+    public int deviceCount;
+
+    private OperationManagerImpl operationManager;
+    private List<DeviceIdentifier> deviceIds;
+
+    @Setup
+    public void setup() throws Exception {
+        BenchmarkEnvironment.init(dialect);
+        deviceIds = BenchmarkEnvironment.enrollDevices(DEVICE_TYPE, deviceCount);
+        operationManager = BenchmarkEnvironment.getOperationManager(DEVICE_TYPE);
+    }
+
+    @Benchmark
+    public Activity addOperation(BenchmarkThreadState threadState) throws Exception {
+        CommandOperation operation = new CommandOperation();
+        operation.setType(Operation.Type.COMMAND);
+        operation.setCode(OPERATION_CODE);
+        return operationManager.addOperation(operation, deviceIds);
+    }
+
+}
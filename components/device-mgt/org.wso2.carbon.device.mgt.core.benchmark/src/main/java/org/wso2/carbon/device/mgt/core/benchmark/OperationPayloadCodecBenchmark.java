@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.device.mgt.core.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation;
+import org.wso2.carbon.device.mgt.core.dto.operation.mgt.PolicyOperation;
+import org.wso2.carbon.device.mgt.core.dto.operation.mgt.ProfileOperation;
+import org.wso2.carbon.device.mgt.core.operation.mgt.dao.util.CompactOperationPayloadCodec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the compact operation payload codec with the plain Java serialization previously used to store policy
+ * operations. This does not need a database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OperationPayloadCodecBenchmark {
+
+    private static final String CODEC_COMPACT = "compact";
+    private static final String CODEC_SERIALIZED = "serialized";
+
+    @Param({CODEC_COMPACT, CODEC_SERIALIZED})
+    public String codec;
+
+    @Param({"1", "10"})
+    public int profileCount;
+
+    private final CompactOperationPayloadCodec compactCodec = new CompactOperationPayloadCodec();
+    private PolicyOperation policyOperation;
+    private byte[] encodedPolicyOperation;
+
+    @Setup
+    public void setup() throws IOException {
+        policyOperation = new PolicyOperation();
+        this.populate(policyOperation, "POLICY_BUNDLE");
+        List<ProfileOperation> profileOperations = new ArrayList<>();
+        for (int i = 0; i < profileCount; i++) {
+            ProfileOperation profileOperation = new ProfileOperation();
+            this.populate(profileOperation, "PROFILE_" + i);
+            profileOperations.add(profileOperation);
+        }
+        policyOperation.setProfileOperations(profileOperations);
+        encodedPolicyOperation = this.encode(policyOperation);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return this.encode(policyOperation);
+    }
+
+    @Benchmark
+    public Object decode() throws IOException, ClassNotFoundException {
+        if (CODEC_COMPACT.equals(codec)) {
+            return compactCodec.decode(encodedPolicyOperation);
+        }
+        ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(encodedPolicyOperation));
+        try {
+            return ois.readObject();
+        } finally {
+            ois.close();
+        }
+    }
+
+    private byte[] encode(Object payload) throws IOException {
+        if (CODEC_COMPACT.equals(codec)) {
+            return compactCodec.encode(payload);
+        }
+        ByteArrayOutputStream bao = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(bao);
+        try {
+            oos.writeObject(payload);
+        } finally {
+            oos.close();
+        }
+        return bao.toByteArray();
+    }
+
+    private void populate(Operation operation, String code) {
+        operation.setCode(code);
+        operation.setId(10);
+        operation.setType(operation.getType() == null ? Operation.Type.POLICY : operation.getType());
+        operation.setStatus(Operation.Status.PENDING);
+        operation.setControl(Operation.Control.REPEAT);
+        operation.setCreatedTimeStamp("2018-01-01 00:00:00.0");
+        operation.setEnabled(true);
+        operation.setPayLoad("{\"passcodePolicy\":{\"allowSimple\":false,\"requireAlphanumeric\":true," +
+                "\"minLength\":8,\"maxFailedAttempts\":5,\"maxPINAgeInDays\":90,\"pinHistory\":5}}");
+        operation.setActivityId("ACTIVITY_10");
+        operation.setInitiatedBy("admin");
+    }
+
+}
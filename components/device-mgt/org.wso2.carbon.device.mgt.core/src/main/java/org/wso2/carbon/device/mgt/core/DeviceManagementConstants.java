@@ -25,6 +25,7 @@ public final class DeviceManagementConstants {
 
     public static final String DM_CACHE_MANAGER = "DM_CACHE_MANAGER";
     public static final String DEVICE_CACHE = "DEVICE_CACHE";
+    public static final String PENDING_OPERATION_CACHE = "PENDING_OPERATION_CACHE";
 
     public static final class Common {
         private Common() {
@@ -98,6 +99,7 @@ public final class DeviceManagementConstants {
         public static final int DEFAULT_SCHEDULER_TASK_INITIAL_DELAY = 60000;
         public static final int DEFAULT_BATCH_DELAY_MILLS = 60000;
         public static final int DEFAULT_BATCH_SIZE = 1000;
+        public static final int DEFAULT_SCHEDULER_CLAIM_TIMEOUT_MILLS = 300000;
     }
 
     public static final class User {
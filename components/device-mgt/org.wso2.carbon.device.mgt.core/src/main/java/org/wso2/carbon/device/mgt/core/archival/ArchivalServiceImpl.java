@@ -22,15 +22,12 @@ package org.wso2.carbon.device.mgt.core.archival;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.device.mgt.common.TransactionManagementException;
-import org.wso2.carbon.device.mgt.core.archival.beans.*;
 import org.wso2.carbon.device.mgt.core.archival.dao.*;
 import org.wso2.carbon.device.mgt.core.config.DeviceConfigurationManager;
 
 import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
 
 public class ArchivalServiceImpl implements ArchivalService {
     private static Log log = LogFactory.getLog(ArchivalServiceImpl.class);
@@ -46,9 +43,9 @@ public class ArchivalServiceImpl implements ArchivalService {
             DeviceConfigurationManager.getInstance().getDeviceManagementConfig().getArchivalConfiguration()
                     .getArchivalTaskConfiguration().isArchivePendingOperations();
 
-    private String[] NOT_IN_PROGRESS_OPS = new String[]{"COMPLETED", "ERROR", "REPEATED"};
-    private String[] NOT_PENDING_OPS = new String[]{"COMPLETED", "ERROR", "REPEATED", "IN_PROGRESS"};
-    private String[] NOT_PENDING_IN_PROGRESS_OPS = new String[]{"COMPLETED", "ERROR", "REPEATED"};
+    private static final int RETENTION_PERIOD =
+            DeviceConfigurationManager.getInstance().getDeviceManagementConfig().getArchivalConfiguration()
+                    .getArchivalTaskConfiguration().getRetentionPeriod();
 
     public ArchivalServiceImpl() {
         this.archivalDAO = ArchivalSourceDAOFactory.getDataPurgingDAO();
@@ -57,201 +54,58 @@ public class ArchivalServiceImpl implements ArchivalService {
 
     @Override
     public void archiveTransactionalRecords() throws ArchivalException {
-        List<Integer> allOperations;
-
-        try {
-            ArchivalSourceDAOFactory.openConnection();
-            ArchivalDestinationDAOFactory.openConnection();
-
-            if (log.isDebugEnabled()) {
-                log.debug("Fetching All Operations");
-            }
-            allOperations = archivalDAO.getAllOperations();
-
-            if (log.isDebugEnabled()) {
-                log.debug("Fetching All Pending Operations");
-            }
-
-
-        } catch (ArchivalDAOException e) {
-//            rollbackTransactions();
-            String msg = "Rollback the get all operations and get all pending operations";
-            log.error(msg, e);
-            throw new ArchivalException(msg, e);
-        } catch (SQLException e) {
-            String msg = "An error occurred while connecting to the archival database";
-            log.error(msg, e);
-            throw new ArchivalException(msg, e);
-        } finally {
-            ArchivalSourceDAOFactory.closeConnection();
-            ArchivalDestinationDAOFactory.closeConnection();
-        }
-
-        List<Integer> candidates = allOperations;
-        log.info(allOperations.size() + " All Operations.");
-
-        if (!ARCHIVE_PENDING_OPERATIONS) {
-            try {
-                ArchivalSourceDAOFactory.openConnection();
-                ArchivalDestinationDAOFactory.openConnection();
-                List<Integer> pendingAndIPOperations = archivalDAO.getPendingAndInProgressOperations();
-                log.info(pendingAndIPOperations.size() +" P&IP Operations");
-//              Get the diff of operations
-                candidates.removeAll(pendingAndIPOperations);
-            } catch (ArchivalDAOException e) {
-                String msg = "Error occurred while retrieving the pending operations";
-                log.error(msg, e);
-                throw new ArchivalException(msg, e);
-            } catch (SQLException e) {
-                String msg = "An error occurred while connecting to the archival database";
-                log.error(msg, e);
-                throw new ArchivalException(msg, e);
-            } finally {
-                ArchivalSourceDAOFactory.closeConnection();
-                ArchivalDestinationDAOFactory.closeConnection();
-            }
-        }
-
-        int total = candidates.size();
-        int batches = calculateNumberOfBatches(total);
-        log.info(total + " Operations ready for archiving. " + batches + " iterations to be done.");
-        int batchSize = EXECUTION_BATCH_SIZE;
+        Timestamp createdBefore = new Timestamp(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(RETENTION_PERIOD));
         if (log.isDebugEnabled()) {
-            log.debug(total + " Operations ready for archiving. " + batches + " iterations to be done.");
-            log.debug(batchSize + " is the batch size");
+            log.debug("Archiving operations created before " + createdBefore + " in batches of " +
+                    EXECUTION_BATCH_SIZE);
         }
-
-        for (int i = 1; i <= batches; i++) {
-            int startIdx = batchSize * (i - 1);
-            int endIdx = batchSize * i;
-            if (i == batches) {
-                endIdx = startIdx + (total % batchSize);
-            }
-            if (log.isDebugEnabled()) {
-                log.debug("\n\n############ Iterating over batch " + i + "[" +
-                        startIdx + "," + endIdx + "] #######");
-            }
-            List<Integer> subList = candidates.subList(startIdx, endIdx);
-
-            if (log.isDebugEnabled()) {
-                log.debug("SubList size is: " + subList.size());
-                if (subList.size() > 0) {
-                    log.debug("First Element is: " + subList.get(0));
-                    log.debug("Last Element is: " + subList.get(subList.size() - 1));
-                }
-            }
-
-            if (log.isDebugEnabled()) {
-                for (Integer val : subList) {
-                    if (log.isDebugEnabled()) {
-                        log.debug("Sub List Element: " + val);
-                    }
-                }
-            }
-
-            try {
-                beginTransactions();
-                prepareTempTable(subList);
-                commitTransactions();
-            } catch (Exception e) {
-                rollbackTransactions();
-                String msg = "Error occurred while preparing the operations.";
-                log.error(msg, e);
-                throw new ArchivalException(msg, e);
-            } finally {
-                ArchivalSourceDAOFactory.closeConnection();
-                ArchivalDestinationDAOFactory.closeConnection();
-            }
-
-            List<ArchiveOperationResponse> operationResponses = null;
-            List<ArchiveNotification> notification = null;
-            List<ArchiveCommandOperation> commandOperations = null;
-            List<ArchiveProfileOperation> profileOperations = null;
-            List<ArchiveEnrolmentOperationMap> enrollmentMapping = null;
-            List<ArchiveOperation> operations = null;
-
-            try {
-                openConnection();
-                operationResponses = archivalDAO.selectOperationResponses();
-                notification = archivalDAO.selectNotifications();
-                commandOperations = archivalDAO.selectCommandOperations();
-                profileOperations = archivalDAO.selectProfileOperations();
-                enrollmentMapping = archivalDAO.selectEnrolmentMappings();
-                operations = archivalDAO.selectOperations();
-
-            } catch (Exception e) {
-                String msg = "Error occurred while retrieving data.";
-                log.error(msg, e);
-                throw new ArchivalException(msg, e);
-            } finally {
-                closeConnection();
-            }
-
+        long startTime = System.currentTimeMillis();
+        int lastOperationId = 0;
+        int batches = 0;
+        long operationCount = 0;
+        long rowCount = 0;
+        while (true) {
             try {
                 beginTransactions();
-
-                //Purge the largest table, DM_DEVICE_OPERATION_RESPONSE
-                if (log.isDebugEnabled()) {
-                    log.debug("## Archiving operation responses");
-                }
-                archivalDAO.moveOperationResponses(operationResponses);
-
-                //Purge the notifications table, DM_NOTIFICATION
-                if (log.isDebugEnabled()) {
-                    log.debug("## Archiving notifications");
+                archivalDAO.truncateOperationIDsForArchival();
+                int lastClaimedId = archivalDAO.claimOperationsForArchival(lastOperationId, createdBefore,
+                        ARCHIVE_PENDING_OPERATIONS);
+                if (lastClaimedId < 0) {
+                    commitTransactions();
+                    break;
                 }
-                archivalDAO.moveNotifications(notification);
-
-                //Purge the command operations table, DM_COMMAND_OPERATION
-                if (log.isDebugEnabled()) {
-                    log.debug("## Archiving command operations");
-                }
-                archivalDAO.moveCommandOperations(commandOperations);
-
-                //Purge the profile operation table, DM_PROFILE_OPERATION
-                if (log.isDebugEnabled()) {
-                    log.debug("## Archiving profile operations");
-                }
-                archivalDAO.moveProfileOperations(profileOperations);
-
-                //Purge the enrolment mappings table, DM_ENROLMENT_OP_MAPPING
-                if (log.isDebugEnabled()) {
-                    log.debug("## Archiving enrolment mappings");
-                }
-                archivalDAO.moveEnrolmentMappings(enrollmentMapping);
-
-                //Finally, purge the operations table, DM_OPERATION
-                if (log.isDebugEnabled()) {
-                    log.debug("## Archiving operations");
-                }
-                archivalDAO.moveOperations(operations);
+                rowCount += archivalDAO.moveOperationResponses();
+                rowCount += archivalDAO.moveNotifications();
+                rowCount += archivalDAO.moveCommandOperations();
+                rowCount += archivalDAO.moveConfigOperations();
+                rowCount += archivalDAO.moveProfileOperations();
+                rowCount += archivalDAO.movePolicyOperations();
+                rowCount += archivalDAO.moveEnrolmentMappings();
+                int operations = archivalDAO.moveOperations();
+                archivalDAO.truncateOperationIDsForArchival();
                 commitTransactions();
+
+                operationCount += operations;
+                rowCount += operations;
+                lastOperationId = lastClaimedId;
+                batches++;
                 if (log.isDebugEnabled()) {
-                    log.debug("End of Iteration : " + i);
+                    log.debug("Archived batch " + batches + " of " + operations + " operations ending at operation " +
+                            lastOperationId);
                 }
             } catch (ArchivalDAOException e) {
                 rollbackTransactions();
-                String msg = "Error occurred while trying to archive data to the six tables";
+                String msg = "Error occurred while archiving the operations after operation " + lastOperationId;
                 log.error(msg, e);
                 throw new ArchivalException(msg, e);
             } finally {
                 ArchivalSourceDAOFactory.closeConnection();
                 ArchivalDestinationDAOFactory.closeConnection();
             }
-
         }
-    }
-
-    private void prepareTempTable(List<Integer> subList) throws ArchivalDAOException {
-        //Clean up the DM_ARCHIVED_OPERATIONS table
-        if (log.isDebugEnabled()) {
-            log.debug("## Truncating the temporary table");
-        }
-        archivalDAO.truncateOperationIDsForArchival();
-        if (log.isDebugEnabled()) {
-            log.debug("## Inserting into the temporary table");
-        }
-        archivalDAO.copyOperationIDsForArchival(subList);
+        long elapsedTime = Math.max(1, System.currentTimeMillis() - startTime);
+        log.info("Archived " + operationCount + " operations (" + rowCount + " rows) in " + batches + " batches in " +
+                elapsedTime + " ms, " + (rowCount * 1000 / elapsedTime) + " rows/sec.");
     }
 
     private void beginTransactions() throws ArchivalException {
@@ -264,28 +118,6 @@ public class ArchivalServiceImpl implements ArchivalService {
         }
     }
 
-    private void openConnection() throws ArchivalException {
-        try {
-            ArchivalSourceDAOFactory.openConnection();
-        } catch (SQLException e) {
-            String msg = "An error occurred during opening connection";
-            log.error(msg, e);
-            throw new ArchivalException(msg, e);
-        }
-
-    }
-
-    private void closeConnection() throws ArchivalException {
-        try {
-            ArchivalSourceDAOFactory.closeConnection();
-        } catch (Exception e) {
-            String msg = "An error occurred during opening connection";
-            log.error(msg, e);
-            throw new ArchivalException(msg, e);
-        }
-
-    }
-
     private void commitTransactions() {
         ArchivalSourceDAOFactory.commitTransaction();
         ArchivalDestinationDAOFactory.commitTransaction();
@@ -296,17 +128,6 @@ public class ArchivalServiceImpl implements ArchivalService {
         ArchivalDestinationDAOFactory.rollbackTransaction();
     }
 
-    private int calculateNumberOfBatches(int total) {
-        int batches = 0;
-        int batchSize = EXECUTION_BATCH_SIZE;
-        if ((total % batchSize) > 0) {
-            batches = (total / batchSize) + 1;
-        } else {
-            batches = total / batchSize;
-        }
-        return batches;
-    }
-
     @Override
     public void deleteArchivedRecords() throws ArchivalException {
         try {
@@ -327,11 +148,21 @@ public class ArchivalServiceImpl implements ArchivalService {
             }
             dataDeletionDAO.deleteCommandOperations();
 
+            if (log.isDebugEnabled()) {
+                log.debug("## Deleting config operations");
+            }
+            dataDeletionDAO.deleteConfigOperations();
+
             if (log.isDebugEnabled()) {
                 log.debug("## Deleting profile operations ");
             }
             dataDeletionDAO.deleteProfileOperations();
 
+            if (log.isDebugEnabled()) {
+                log.debug("## Deleting policy operations");
+            }
+            dataDeletionDAO.deletePolicyOperations();
+
             if (log.isDebugEnabled()) {
                 log.debug("## Deleting enrolment mappings ");
             }
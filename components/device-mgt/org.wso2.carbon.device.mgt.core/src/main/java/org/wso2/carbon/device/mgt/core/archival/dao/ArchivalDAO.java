@@ -18,47 +18,45 @@
 
 package org.wso2.carbon.device.mgt.core.archival.dao;
 
-import org.wso2.carbon.device.mgt.core.archival.beans.*;
-
-import java.sql.ResultSet;
-import java.util.List;
+import java.sql.Timestamp;
 
 /**
- * Operations to move data from DM database to archival database
+ * Operations to move data from DM database to archival database. Operations are archived batch by batch: a batch is
+ * claimed by copying the IDs of its operations to DM_ARCHIVED_OPERATIONS, after which the rows of each table that
+ * belong to the claimed operations are moved without loading them into memory.
  */
 public interface ArchivalDAO {
 
     int DEFAULT_BATCH_SIZE = 1000;
 
-    List<Integer> getAllOperations() throws ArchivalDAOException;
-
-    List<Integer> getPendingAndInProgressOperations() throws ArchivalDAOException;
-
-    void copyOperationIDsForArchival(List<Integer> operationIds) throws ArchivalDAOException;
-
-    List<ArchiveOperationResponse> selectOperationResponses() throws ArchivalDAOException;
-
-    void moveOperationResponses(List<ArchiveOperationResponse> rs) throws ArchivalDAOException;
-
-    List<ArchiveNotification> selectNotifications() throws ArchivalDAOException;
-
-    void moveNotifications(List<ArchiveNotification> rs) throws ArchivalDAOException;
+    /**
+     * Claims the next batch of operations to be archived, in the order of their IDs.
+     *
+     * @param lastOperationId          highest operation ID claimed by the previous batch, or 0 for the first batch
+     * @param createdBefore            only operations created before this time are claimed
+     * @param includePendingOperations whether operations which are still pending or in progress on some device are
+     *                                 claimed as well
+     * @return highest claimed operation ID, or -1 if there are no more operations to be archived
+     * @throws ArchivalDAOException if the operations could not be claimed
+     */
+    int claimOperationsForArchival(int lastOperationId, Timestamp createdBefore, boolean includePendingOperations)
+            throws ArchivalDAOException;
 
-    List<ArchiveCommandOperation> selectCommandOperations() throws ArchivalDAOException;
+    int moveOperationResponses() throws ArchivalDAOException;
 
-    void moveCommandOperations(List<ArchiveCommandOperation> rs) throws ArchivalDAOException;
+    int moveNotifications() throws ArchivalDAOException;
 
-    List<ArchiveProfileOperation> selectProfileOperations() throws ArchivalDAOException;
+    int moveCommandOperations() throws ArchivalDAOException;
 
-    void moveProfileOperations(List<ArchiveProfileOperation> rs) throws ArchivalDAOException;
+    int moveConfigOperations() throws ArchivalDAOException;
 
-    List<ArchiveEnrolmentOperationMap> selectEnrolmentMappings() throws ArchivalDAOException;
+    int moveProfileOperations() throws ArchivalDAOException;
 
-    void moveEnrolmentMappings(List<ArchiveEnrolmentOperationMap> rs) throws ArchivalDAOException;
+    int movePolicyOperations() throws ArchivalDAOException;
 
-    List<ArchiveOperation> selectOperations() throws ArchivalDAOException;
+    int moveEnrolmentMappings() throws ArchivalDAOException;
 
-    void moveOperations(List<ArchiveOperation> rs) throws ArchivalDAOException;
+    int moveOperations() throws ArchivalDAOException;
 
     void truncateOperationIDsForArchival() throws ArchivalDAOException;
 
@@ -21,9 +21,15 @@ package org.wso2.carbon.device.mgt.core.archival.dao;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.device.mgt.common.DeviceManagementConstants;
 import org.wso2.carbon.device.mgt.common.IllegalTransactionStateException;
 import org.wso2.carbon.device.mgt.common.TransactionManagementException;
+import org.wso2.carbon.device.mgt.common.UnsupportedDatabaseEngineException;
 import org.wso2.carbon.device.mgt.core.archival.dao.impl.ArchivalDAOImpl;
+import org.wso2.carbon.device.mgt.core.archival.dao.impl.MySQLArchivalDAOImpl;
+import org.wso2.carbon.device.mgt.core.archival.dao.impl.OracleArchivalDAOImpl;
+import org.wso2.carbon.device.mgt.core.archival.dao.impl.PostgreSQLArchivalDAOImpl;
+import org.wso2.carbon.device.mgt.core.archival.dao.impl.SQLServerArchivalDAOImpl;
 import org.wso2.carbon.device.mgt.core.config.DeviceConfigurationManager;
 import org.wso2.carbon.device.mgt.core.config.archival.ArchivalTaskConfiguration;
 import org.wso2.carbon.device.mgt.core.config.datasource.DataSourceConfig;
@@ -48,7 +54,24 @@ public class ArchivalSourceDAOFactory {
                 .getDeviceManagementConfig()
                 .getArchivalConfiguration()
                 .getArchivalTaskConfiguration();
-        return new ArchivalDAOImpl(configuration.getRetentionPeriod(), configuration.getBatchSize());
+        int batchSize = configuration.getBatchSize();
+        if (databaseEngine != null) {
+            switch (databaseEngine) {
+                case DeviceManagementConstants.DataBaseTypes.DB_TYPE_ORACLE:
+                    return new OracleArchivalDAOImpl(batchSize);
+                case DeviceManagementConstants.DataBaseTypes.DB_TYPE_MSSQL:
+                    return new SQLServerArchivalDAOImpl(batchSize);
+                case DeviceManagementConstants.DataBaseTypes.DB_TYPE_POSTGRESQL:
+                    return new PostgreSQLArchivalDAOImpl(batchSize);
+                case DeviceManagementConstants.DataBaseTypes.DB_TYPE_H2:
+                    return new ArchivalDAOImpl(batchSize);
+                case DeviceManagementConstants.DataBaseTypes.DB_TYPE_MYSQL:
+                    return new MySQLArchivalDAOImpl(batchSize);
+                default:
+                    throw new UnsupportedDatabaseEngineException("Unsupported database engine : " + databaseEngine);
+            }
+        }
+        throw new RuntimeException("Database engine has not initialized properly.");
     }
 
     public static void init(DataSource dtSource) {
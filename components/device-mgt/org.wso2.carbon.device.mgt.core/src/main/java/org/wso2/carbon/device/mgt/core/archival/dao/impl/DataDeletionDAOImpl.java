@@ -25,11 +25,12 @@ import org.wso2.carbon.device.mgt.core.archival.dao.DataDeletionDAO;
 import org.wso2.carbon.device.mgt.core.archival.dao.ArchivalDAOException;
 import org.wso2.carbon.device.mgt.core.archival.dao.ArchivalDAOUtil;
 import org.wso2.carbon.device.mgt.core.archival.dao.ArchivalDestinationDAOFactory;
-import org.wso2.carbon.device.mgt.core.task.impl.ArchivedDataDeletionTask;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
 
 public class DataDeletionDAOImpl implements DataDeletionDAO {
     private static Log log = LogFactory.getLog(DataDeletionDAOImpl.class);
@@ -50,9 +51,9 @@ public class DataDeletionDAOImpl implements DataDeletionDAO {
             Connection conn = ArchivalDestinationDAOFactory.getConnection();
             conn.setAutoCommit(false);
             String sql = "DELETE FROM DM_DEVICE_OPERATION_RESPONSE_ARCH " +
-                    "WHERE ARCHIVED_AT < DATE_SUB(NOW(), INTERVAL ? DAY)";
+                    "WHERE ARCHIVED_AT < ?";
             stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, this.retentionPeriod);
+            stmt.setTimestamp(1, this.getArchivedBefore());
             stmt.executeUpdate();
             conn.commit();
         } catch (SQLException e) {
@@ -69,9 +70,9 @@ public class DataDeletionDAOImpl implements DataDeletionDAO {
             Connection conn = ArchivalDestinationDAOFactory.getConnection();
             conn.setAutoCommit(false);
             String sql = "DELETE FROM DM_NOTIFICATION_ARCH" +
-                    "  WHERE ARCHIVED_AT < DATE_SUB(NOW(), INTERVAL ? DAY)";
+                    "  WHERE ARCHIVED_AT < ?";
             stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, this.retentionPeriod);
+            stmt.setTimestamp(1, this.getArchivedBefore());
             stmt.executeUpdate();
             conn.commit();
         } catch (SQLException e) {
@@ -88,9 +89,9 @@ public class DataDeletionDAOImpl implements DataDeletionDAO {
             Connection conn = ArchivalDestinationDAOFactory.getConnection();
             conn.setAutoCommit(false);
             String sql = "DELETE FROM DM_COMMAND_OPERATION_ARCH" +
-                    "  WHERE ARCHIVED_AT < DATE_SUB(NOW(), INTERVAL ? DAY)";
+                    "  WHERE ARCHIVED_AT < ?";
             stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, this.retentionPeriod);
+            stmt.setTimestamp(1, this.getArchivedBefore());
             stmt.executeUpdate();
             conn.commit();
         } catch (SQLException e) {
@@ -100,6 +101,24 @@ public class DataDeletionDAOImpl implements DataDeletionDAO {
         }
     }
 
+    @Override
+    public void deleteConfigOperations() throws ArchivalDAOException {
+        PreparedStatement stmt = null;
+        try {
+            Connection conn = ArchivalDestinationDAOFactory.getConnection();
+            conn.setAutoCommit(false);
+            String sql = "DELETE FROM DM_CONFIG_OPERATION_ARCH WHERE ARCHIVED_AT < ?";
+            stmt = conn.prepareStatement(sql);
+            stmt.setTimestamp(1, this.getArchivedBefore());
+            stmt.executeUpdate();
+            conn.commit();
+        } catch (SQLException e) {
+            throw new ArchivalDAOException("Error occurred while deleting config operations", e);
+        } finally {
+            ArchivalDAOUtil.cleanupResources(stmt);
+        }
+    }
+
     @Override
     public void deleteProfileOperations() throws ArchivalDAOException {
         PreparedStatement stmt = null;
@@ -107,9 +126,9 @@ public class DataDeletionDAOImpl implements DataDeletionDAO {
             Connection conn = ArchivalDestinationDAOFactory.getConnection();
             conn.setAutoCommit(false);
             String sql = "DELETE FROM DM_PROFILE_OPERATION_ARCH" +
-                    "  WHERE ARCHIVED_AT < DATE_SUB(NOW(), INTERVAL ? DAY)";
+                    "  WHERE ARCHIVED_AT < ?";
             stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, this.retentionPeriod);
+            stmt.setTimestamp(1, this.getArchivedBefore());
             stmt.executeUpdate();
             conn.commit();
         } catch (SQLException e) {
@@ -119,15 +138,33 @@ public class DataDeletionDAOImpl implements DataDeletionDAO {
         }
     }
 
+    @Override
+    public void deletePolicyOperations() throws ArchivalDAOException {
+        PreparedStatement stmt = null;
+        try {
+            Connection conn = ArchivalDestinationDAOFactory.getConnection();
+            conn.setAutoCommit(false);
+            String sql = "DELETE FROM DM_POLICY_OPERATION_ARCH WHERE ARCHIVED_AT < ?";
+            stmt = conn.prepareStatement(sql);
+            stmt.setTimestamp(1, this.getArchivedBefore());
+            stmt.executeUpdate();
+            conn.commit();
+        } catch (SQLException e) {
+            throw new ArchivalDAOException("Error occurred while deleting policy operations", e);
+        } finally {
+            ArchivalDAOUtil.cleanupResources(stmt);
+        }
+    }
+
     @Override
     public void deleteEnrolmentMappings() throws ArchivalDAOException {
         PreparedStatement stmt = null;
         try {
             Connection conn = ArchivalDestinationDAOFactory.getConnection();
             conn.setAutoCommit(false);
-            String sql = "DELETE FROM DM_ENROLMENT_OP_MAPPING_ARCH WHERE ARCHIVED_AT < DATE_SUB(NOW(), INTERVAL ? DAY)";
+            String sql = "DELETE FROM DM_ENROLMENT_OP_MAPPING_ARCH WHERE ARCHIVED_AT < ?";
             stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, this.retentionPeriod);
+            stmt.setTimestamp(1, this.getArchivedBefore());
             stmt.executeUpdate();
             conn.commit();
         } catch (SQLException e) {
@@ -143,9 +180,9 @@ public class DataDeletionDAOImpl implements DataDeletionDAO {
         try {
             Connection conn = ArchivalDestinationDAOFactory.getConnection();
             conn.setAutoCommit(false);
-            String sql = "DELETE FROM DM_OPERATION_ARCH WHERE ARCHIVED_AT < DATE_SUB(NOW(), INTERVAL ? DAY)";
+            String sql = "DELETE FROM DM_OPERATION_ARCH WHERE ARCHIVED_AT < ?";
             stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, this.retentionPeriod);
+            stmt.setTimestamp(1, this.getArchivedBefore());
             stmt.executeUpdate();
             conn.commit();
         } catch (SQLException e) {
@@ -155,4 +192,8 @@ public class DataDeletionDAOImpl implements DataDeletionDAO {
         }
     }
 
+    private Timestamp getArchivedBefore() {
+        return new Timestamp(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(this.retentionPeriod));
+    }
+
 }
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.archival.dao.impl;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * MySQL specific archival DAO, which deletes with multi table deletes and streams result sets row by row.
+ */
+public class MySQLArchivalDAOImpl extends ArchivalDAOImpl {
+
+    public MySQLArchivalDAOImpl(int batchSize) {
+        super(batchSize);
+    }
+
+    @Override
+    protected String getDeleteArchivedRowsSQL(String table, String keyColumn) {
+        return "DELETE o FROM " + table + " o INNER JOIN " + ARCHIVED_OPERATIONS_TABLE + " da ON o." + keyColumn +
+                " = da.ID";
+    }
+
+    @Override
+    protected Statement createStreamingStatement(Connection conn) throws SQLException {
+        Statement stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        // MySQL Connector/J only streams the result set when the fetch size is Integer.MIN_VALUE
+        stmt.setFetchSize(Integer.MIN_VALUE);
+        return stmt;
+    }
+
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.archival.dao.impl;
+
+/**
+ * SQL Server specific archival DAO.
+ */
+public class SQLServerArchivalDAOImpl extends ArchivalDAOImpl {
+
+    public SQLServerArchivalDAOImpl(int batchSize) {
+        super(batchSize);
+    }
+
+    @Override
+    protected String getClaimOperationsSQL(String condition) {
+        return "INSERT INTO " + ARCHIVED_OPERATIONS_TABLE + " (ID, CREATED_TIMESTAMP) SELECT o.ID, ? " +
+                "FROM DM_OPERATION o WHERE " + condition + " ORDER BY o.ID OFFSET 0 ROWS FETCH NEXT ? ROWS ONLY";
+    }
+
+    @Override
+    protected String getDeleteArchivedRowsSQL(String table, String keyColumn) {
+        return "DELETE o FROM " + table + " o INNER JOIN " + ARCHIVED_OPERATIONS_TABLE + " da ON o." + keyColumn +
+                " = da.ID";
+    }
+
+}
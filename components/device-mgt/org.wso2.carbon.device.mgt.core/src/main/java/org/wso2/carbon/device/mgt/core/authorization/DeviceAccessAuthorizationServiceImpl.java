@@ -22,6 +22,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.CarbonConstants;
 import org.wso2.carbon.context.CarbonContext;
+import org.wso2.carbon.device.mgt.common.Device;
 import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
 import org.wso2.carbon.device.mgt.common.DeviceManagementException;
 import org.wso2.carbon.device.mgt.common.authorization.DeviceAccessAuthorizationException;
@@ -35,8 +36,15 @@ import org.wso2.carbon.device.mgt.core.internal.DeviceManagementDataHolder;
 import org.wso2.carbon.device.mgt.core.permission.mgt.PermissionUtils;
 import org.wso2.carbon.user.api.UserRealm;
 import org.wso2.carbon.user.api.UserStoreException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 
 /**
@@ -128,36 +136,66 @@ public class DeviceAccessAuthorizationServiceImpl implements DeviceAccessAuthori
             deviceAuthorizationResult.setAuthorizedDevices(deviceIdentifiers);
             return deviceAuthorizationResult;
         }
-        for (DeviceIdentifier deviceIdentifier : deviceIdentifiers) {
-            //check for admin and ownership permissions
-            if (isDeviceOwner(deviceIdentifier, username)) {
-                deviceAuthorizationResult.addAuthorizedDevice(deviceIdentifier);
-            } else {
-                try {
-                    if (groupPermissions == null || groupPermissions.length == 0) {
-                        deviceAuthorizationResult.setUnauthorizedDevices(deviceIdentifiers);
-                        return deviceAuthorizationResult;
-                    }
-                    //check for group permissions
-                    boolean isAuthorized = true;
-                    for (String groupPermission : groupPermissions) {
-                        if (!isAuthorizedViaGroup(username, deviceIdentifier, groupPermission)) {
-                            //if at least one failed, authorizations fails and break the loop
-                            isAuthorized = false;
-                            break;
-                        }
-                    }
-                    if (isAuthorized) {
-                        deviceAuthorizationResult.addAuthorizedDevice(deviceIdentifier);
-                    } else {
-                        deviceAuthorizationResult.addUnauthorizedDevice(deviceIdentifier);
+        try {
+            //check for ownership permissions of all the devices at once
+            Map<String, Device> devices = new HashMap<>();
+            for (Device device : DeviceManagementDataHolder.getInstance().getDeviceManagementProvider().
+                    getDevices(deviceIdentifiers)) {
+                devices.put(this.getDeviceKey(device.getType(), device.getDeviceIdentifier()), device);
+            }
+            List<DeviceIdentifier> notOwnedDeviceIdentifiers = new ArrayList<>();
+            for (DeviceIdentifier deviceIdentifier : deviceIdentifiers) {
+                Device device = devices.get(this.getDeviceKey(deviceIdentifier.getType(), deviceIdentifier.getId()));
+                if (device != null && device.getEnrolmentInfo() != null &&
+                        device.getEnrolmentInfo().getOwner().equals(username)) {
+                    deviceAuthorizationResult.addAuthorizedDevice(deviceIdentifier);
+                } else {
+                    notOwnedDeviceIdentifiers.add(deviceIdentifier);
+                }
+            }
+            if (notOwnedDeviceIdentifiers.isEmpty()) {
+                return deviceAuthorizationResult;
+            }
+            if (groupPermissions == null || groupPermissions.length == 0) {
+                for (DeviceIdentifier deviceIdentifier : notOwnedDeviceIdentifiers) {
+                    deviceAuthorizationResult.addUnauthorizedDevice(deviceIdentifier);
+                }
+                return deviceAuthorizationResult;
+            }
+            //check for group permissions, the groups of the user are resolved only once per permission
+            List<Set<Integer>> authorizedGroupIds = new ArrayList<>();
+            for (String groupPermission : groupPermissions) {
+                authorizedGroupIds.add(this.getAuthorizedGroupIds(username, groupPermission));
+            }
+            List<Integer> deviceIds = new ArrayList<>();
+            for (DeviceIdentifier deviceIdentifier : notOwnedDeviceIdentifiers) {
+                Device device = devices.get(this.getDeviceKey(deviceIdentifier.getType(), deviceIdentifier.getId()));
+                if (device != null) {
+                    deviceIds.add(device.getId());
+                }
+            }
+            Map<Integer, List<Integer>> groupIdsOfDevices = DeviceManagementDataHolder.getInstance().
+                    getGroupManagementProviderService().getGroupIdsOfDevices(deviceIds);
+            for (DeviceIdentifier deviceIdentifier : notOwnedDeviceIdentifiers) {
+                Device device = devices.get(this.getDeviceKey(deviceIdentifier.getType(), deviceIdentifier.getId()));
+                List<Integer> groupIdsOfDevice = (device == null) ? null : groupIdsOfDevices.get(device.getId());
+                boolean isAuthorized = groupIdsOfDevice != null;
+                for (Set<Integer> groupIds : authorizedGroupIds) {
+                    if (!isAuthorized) {
+                        break;
                     }
-                } catch (GroupManagementException | UserStoreException e) {
-                    throw new DeviceAccessAuthorizationException("Unable to authorize the access to device : " +
-                                                                 deviceIdentifier.getId() + " for the user : " +
-                                                                 username, e);
+                    //if at least one failed, authorization fails
+                    isAuthorized = !Collections.disjoint(groupIds, groupIdsOfDevice);
+                }
+                if (isAuthorized) {
+                    deviceAuthorizationResult.addAuthorizedDevice(deviceIdentifier);
+                } else {
+                    deviceAuthorizationResult.addUnauthorizedDevice(deviceIdentifier);
                 }
             }
+        } catch (DeviceManagementException | GroupManagementException e) {
+            throw new DeviceAccessAuthorizationException("Unable to authorize the access to devices for the user : " +
+                                                         username, e);
         }
         return deviceAuthorizationResult;
     }
@@ -211,6 +249,20 @@ public class DeviceAccessAuthorizationServiceImpl implements DeviceAccessAuthori
         return false;
     }
 
+    private Set<Integer> getAuthorizedGroupIds(String username, String groupPermission)
+            throws GroupManagementException {
+        Set<Integer> groupIds = new HashSet<>();
+        for (DeviceGroup group : DeviceManagementDataHolder.getInstance().getGroupManagementProviderService()
+                .getGroups(username, groupPermission)) {
+            groupIds.add(group.getGroupId());
+        }
+        return groupIds;
+    }
+
+    private String getDeviceKey(String deviceType, String deviceId) {
+        return deviceType + ":" + deviceId;
+    }
+
     private boolean isDeviceOwner(DeviceIdentifier deviceIdentifier, String username)
             throws DeviceAccessAuthorizationException {
         //Check for device ownership. If the user is the owner of the device we allow the access.
@@ -30,12 +30,22 @@ public class DeviceCacheKey {
     private int tenantId;
     private volatile int hashCode;
 
+    public DeviceCacheKey() {
+    }
+
+    public DeviceCacheKey(String deviceId, String deviceType, int tenantId) {
+        this.deviceId = deviceId;
+        this.deviceType = deviceType;
+        this.tenantId = tenantId;
+    }
+
     public String getDeviceId() {
         return deviceId;
     }
 
     public void setDeviceId(String deviceId) {
         this.deviceId = deviceId;
+        this.hashCode = 0;
     }
 
     public String getDeviceType() {
@@ -44,6 +54,7 @@ public class DeviceCacheKey {
 
     public void setDeviceType(String deviceType) {
         this.deviceType = deviceType;
+        this.hashCode = 0;
     }
 
     public int getTenantId() {
@@ -52,10 +63,14 @@ public class DeviceCacheKey {
 
     public void setTenantId(int tenantId) {
         this.tenantId = tenantId;
+        this.hashCode = 0;
     }
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj == null) {
             return false;
         }
@@ -63,12 +78,8 @@ public class DeviceCacheKey {
             return false;
         }
         final DeviceCacheKey other = (DeviceCacheKey) obj;
-        String thisId = this.deviceId + "-" + this.deviceType + "_" + this.tenantId;
-        String otherId = other.deviceId + "-" + other.deviceType + "_" + other.tenantId;
-        if (!thisId.equals(otherId)) {
-            return false;
-        }
-        return true;
+        return tenantId == other.tenantId && Objects.equals(deviceId, other.deviceId) &&
+                Objects.equals(deviceType, other.deviceType);
     }
 
     @Override
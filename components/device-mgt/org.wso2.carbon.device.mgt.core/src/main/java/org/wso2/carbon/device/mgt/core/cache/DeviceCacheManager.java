@@ -53,6 +53,14 @@ public interface DeviceCacheManager {
      */
     void removeDevicesFromCache(List<DeviceCacheKey> deviceList);
 
+    /**
+     * Removes all the devices of a tenant, optionally restricted to a device type, from device-cache.
+     * @param deviceType - Device type of the devices to be removed, or null to remove all the devices of the tenant.
+     * @param tenantId - Owning tenant of the devices.
+     *
+     */
+    void removeDevicesFromCache(String deviceType, int tenantId);
+
     /**
      * Updates a given device object in the device-cache.
      * @param deviceIdentifier - DeviceIdentifier of the device to be updated.
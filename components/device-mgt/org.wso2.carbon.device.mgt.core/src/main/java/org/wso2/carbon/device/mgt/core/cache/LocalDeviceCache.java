@@ -0,0 +1,365 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.cache;
+
+import org.wso2.carbon.device.mgt.common.Device;
+import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
+import org.wso2.carbon.device.mgt.common.EnrolmentInfo;
+import org.wso2.carbon.device.mgt.common.Feature;
+import org.wso2.carbon.device.mgt.common.app.mgt.Application;
+import org.wso2.carbon.device.mgt.common.device.details.DeviceInfo;
+import org.wso2.carbon.device.mgt.common.device.details.DeviceLocation;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded local tier of the device cache which sits in front of the cluster wide device cache. Entries are kept in
+ * lock striped LRU segments and expire after the configured time, which bounds the staleness of devices updated by
+ * other nodes of the cluster. Devices are deep copied when they are added and fetched, since callers modify the
+ * devices they receive, including their features, properties, applications and device info.
+ */
+public class LocalDeviceCache implements LocalDeviceCacheMBean {
+
+    private static final int SEGMENT_COUNT = 16;
+
+    private final Segment[] segments;
+    private final int capacity;
+    private final long expiryTimeMillis;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong expirationCount = new AtomicLong();
+
+    /**
+     * @param capacity         maximum number of devices held by the cache
+     * @param expiryTimeMillis time after which a device is evicted from the cache
+     */
+    public LocalDeviceCache(int capacity, long expiryTimeMillis) {
+        this.capacity = capacity;
+        this.expiryTimeMillis = expiryTimeMillis;
+        this.segments = new Segment[SEGMENT_COUNT];
+        int segmentCapacity = Math.max(1, (capacity + SEGMENT_COUNT - 1) / SEGMENT_COUNT);
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment(segmentCapacity);
+        }
+    }
+
+    public Device get(DeviceCacheKey key) {
+        Segment segment = this.getSegment(key);
+        Entry entry;
+        synchronized (segment) {
+            entry = segment.get(key);
+            if (entry != null && entry.expiryTime <= System.currentTimeMillis()) {
+                segment.remove(key);
+                expirationCount.incrementAndGet();
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return copy(entry.device);
+    }
+
+    public void put(DeviceCacheKey key, Device device) {
+        Entry entry = new Entry(copy(device), System.currentTimeMillis() + expiryTimeMillis);
+        Segment segment = this.getSegment(key);
+        synchronized (segment) {
+            segment.put(key, entry);
+        }
+    }
+
+    public void remove(DeviceCacheKey key) {
+        Segment segment = this.getSegment(key);
+        synchronized (segment) {
+            segment.remove(key);
+        }
+    }
+
+    /**
+     * Removes all the devices of a tenant, optionally restricted to a device type.
+     *
+     * @param deviceType device type of the devices to be removed, or null to remove all devices of the tenant
+     * @param tenantId   owning tenant of the devices
+     */
+    public void removeAll(String deviceType, int tenantId) {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                Iterator<DeviceCacheKey> keys = segment.keySet().iterator();
+                while (keys.hasNext()) {
+                    DeviceCacheKey key = keys.next();
+                    if (key.getTenantId() == tenantId &&
+                            (deviceType == null || deviceType.equals(key.getDeviceType()))) {
+                        keys.remove();
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    @Override
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    @Override
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    @Override
+    public long getExpirationCount() {
+        return expirationCount.get();
+    }
+
+    @Override
+    public double getHitRatio() {
+        long hits = hitCount.get();
+        long requests = hits + missCount.get();
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+
+    @Override
+    public int getSize() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public void resetStatistics() {
+        hitCount.set(0);
+        missCount.set(0);
+        evictionCount.set(0);
+        expirationCount.set(0);
+    }
+
+    private Segment getSegment(DeviceCacheKey key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return segments[(hash & 0x7fffffff) % SEGMENT_COUNT];
+    }
+
+    private static Device copy(Device device) {
+        Device copy = new Device(device.getName(), device.getType(), device.getDescription(),
+                device.getDeviceIdentifier(), null, null, null);
+        copy.setId(device.getId());
+        EnrolmentInfo enrolmentInfo = device.getEnrolmentInfo();
+        if (enrolmentInfo != null) {
+            EnrolmentInfo enrolmentInfoCopy = new EnrolmentInfo(enrolmentInfo.getOwner(), enrolmentInfo.getOwnership(),
+                    enrolmentInfo.getStatus());
+            enrolmentInfoCopy.setId(enrolmentInfo.getId());
+            enrolmentInfoCopy.setDateOfEnrolment(enrolmentInfo.getDateOfEnrolment());
+            enrolmentInfoCopy.setDateOfLastUpdate(enrolmentInfo.getDateOfLastUpdate());
+            copy.setEnrolmentInfo(enrolmentInfoCopy);
+        }
+        if (device.getFeatures() != null) {
+            List<Feature> features = new ArrayList<>(device.getFeatures().size());
+            for (Feature feature : device.getFeatures()) {
+                features.add(feature == null ? null : copy(feature));
+            }
+            copy.setFeatures(features);
+        }
+        if (device.getProperties() != null) {
+            List<Device.Property> properties = new ArrayList<>(device.getProperties().size());
+            for (Device.Property property : device.getProperties()) {
+                properties.add(property == null ? null : copy(property));
+            }
+            copy.setProperties(properties);
+        }
+        if (device.getApplications() != null) {
+            List<Application> applications = new ArrayList<>(device.getApplications().size());
+            for (Application application : device.getApplications()) {
+                applications.add(application == null ? null : copy(application));
+            }
+            copy.setApplications(applications);
+        }
+        if (device.getDeviceInfo() != null) {
+            copy.setDeviceInfo(copy(device.getDeviceInfo()));
+        }
+        return copy;
+    }
+
+    /**
+     * The values of the metadata entries are arbitrary objects which cannot be copied in general, hence they are
+     * shared with the copy.
+     */
+    private static Feature copy(Feature feature) {
+        Feature copy = new Feature();
+        copy.setId(feature.getId());
+        copy.setCode(feature.getCode());
+        copy.setName(feature.getName());
+        copy.setDescription(feature.getDescription());
+        copy.setDeviceType(feature.getDeviceType());
+        if (feature.getMetadataEntries() != null) {
+            List<Feature.MetadataEntry> metadataEntries = new ArrayList<>(feature.getMetadataEntries().size());
+            for (Feature.MetadataEntry metadataEntry : feature.getMetadataEntries()) {
+                Feature.MetadataEntry metadataEntryCopy = null;
+                if (metadataEntry != null) {
+                    metadataEntryCopy = new Feature.MetadataEntry();
+                    metadataEntryCopy.setId(metadataEntry.getId());
+                    metadataEntryCopy.setValue(metadataEntry.getValue());
+                }
+                metadataEntries.add(metadataEntryCopy);
+            }
+            copy.setMetadataEntries(metadataEntries);
+        }
+        return copy;
+    }
+
+    private static Device.Property copy(Device.Property property) {
+        Device.Property copy = new Device.Property();
+        copy.setName(property.getName());
+        copy.setValue(property.getValue());
+        return copy;
+    }
+
+    private static Application copy(Application application) {
+        Application copy = new Application();
+        copy.setId(application.getId());
+        copy.setPlatform(application.getPlatform());
+        copy.setCategory(application.getCategory());
+        copy.setName(application.getName());
+        copy.setLocationUrl(application.getLocationUrl());
+        copy.setImageUrl(application.getImageUrl());
+        copy.setVersion(application.getVersion());
+        copy.setType(application.getType());
+        copy.setApplicationIdentifier(application.getApplicationIdentifier());
+        copy.setMemoryUsage(application.getMemoryUsage());
+        copy.setActive(application.isActive());
+        if (application.getAppProperties() != null) {
+            Properties appProperties = new Properties();
+            appProperties.putAll(application.getAppProperties());
+            copy.setAppProperties(appProperties);
+        }
+        return copy;
+    }
+
+    private static DeviceInfo copy(DeviceInfo deviceInfo) {
+        DeviceInfo copy = new DeviceInfo();
+        copy.setDeviceModel(deviceInfo.getDeviceModel());
+        copy.setVendor(deviceInfo.getVendor());
+        copy.setOsVersion(deviceInfo.getOsVersion());
+        copy.setOsBuildDate(deviceInfo.getOsBuildDate());
+        copy.setBatteryLevel(deviceInfo.getBatteryLevel());
+        copy.setInternalTotalMemory(deviceInfo.getInternalTotalMemory());
+        copy.setInternalAvailableMemory(deviceInfo.getInternalAvailableMemory());
+        copy.setExternalTotalMemory(deviceInfo.getExternalTotalMemory());
+        copy.setExternalAvailableMemory(deviceInfo.getExternalAvailableMemory());
+        copy.setOperator(deviceInfo.getOperator());
+        copy.setConnectionType(deviceInfo.getConnectionType());
+        copy.setMobileSignalStrength(deviceInfo.getMobileSignalStrength());
+        copy.setSsid(deviceInfo.getSsid());
+        copy.setCpuUsage(deviceInfo.getCpuUsage());
+        copy.setTotalRAMMemory(deviceInfo.getTotalRAMMemory());
+        copy.setAvailableRAMMemory(deviceInfo.getAvailableRAMMemory());
+        copy.setPluggedIn(deviceInfo.isPluggedIn());
+        copy.setUpdatedTime(new Date(deviceInfo.getUpdatedTime().getTime()));
+        if (deviceInfo.getDeviceDetailsMap() != null) {
+            copy.setDeviceDetailsMap(new HashMap<>(deviceInfo.getDeviceDetailsMap()));
+        }
+        if (deviceInfo.getLocation() != null) {
+            copy.setLocation(copy(deviceInfo.getLocation()));
+        }
+        return copy;
+    }
+
+    private static DeviceLocation copy(DeviceLocation location) {
+        DeviceLocation copy = new DeviceLocation();
+        copy.setDeviceId(location.getDeviceId());
+        DeviceIdentifier deviceIdentifier = location.getDeviceIdentifier();
+        if (deviceIdentifier != null) {
+            copy.setDeviceIdentifier(new DeviceIdentifier(deviceIdentifier.getId(), deviceIdentifier.getType()));
+        }
+        copy.setLatitude(location.getLatitude());
+        copy.setLongitude(location.getLongitude());
+        copy.setStreet1(location.getStreet1());
+        copy.setStreet2(location.getStreet2());
+        copy.setCity(location.getCity());
+        copy.setState(location.getState());
+        copy.setZip(location.getZip());
+        copy.setCountry(location.getCountry());
+        copy.setUpdatedTime(new Date(location.getUpdatedTime().getTime()));
+        return copy;
+    }
+
+    private static class Entry {
+
+        private final Device device;
+        private final long expiryTime;
+
+        private Entry(Device device, long expiryTime) {
+            this.device = device;
+            this.expiryTime = expiryTime;
+        }
+    }
+
+    private class Segment extends LinkedHashMap<DeviceCacheKey, Entry> {
+
+        private static final long serialVersionUID = -6182630934925405462L;
+        private final int segmentCapacity;
+
+        private Segment(int segmentCapacity) {
+            super(16, 0.75f, true);
+            this.segmentCapacity = segmentCapacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<DeviceCacheKey, Entry> eldest) {
+            if (size() > segmentCapacity) {
+                evictionCount.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -6,7 +6,7 @@
  * in compliance with the License.
  * You may obtain a copy of the License at
  *
- *   http://www.apache.org/licenses/LICENSE-2.0
+ * http://www.apache.org/licenses/LICENSE-2.0
  *
  * Unless required by applicable law or agreed to in writing,
  * software distributed under the License is distributed on an
@@ -16,29 +16,29 @@
  * under the License.
  */
 
+package org.wso2.carbon.device.mgt.core.cache;
 
-package org.wso2.carbon.device.mgt.core.archival.beans;
+/**
+ * JMX view of the local device cache, used to size the local tier of the device cache.
+ */
+public interface LocalDeviceCacheMBean {
 
-public class ArchiveCommandOperation {
+    long getHitCount();
 
+    long getMissCount();
 
-    private int operationId;
-    private int enabled;
+    long getEvictionCount();
 
-    public int getOperationId() {
-        return operationId;
-    }
+    long getExpirationCount();
 
-    public void setOperationId(int operationId) {
-        this.operationId = operationId;
-    }
+    double getHitRatio();
 
-    public int getEnabled() {
-        return enabled;
-    }
+    int getSize();
 
-    public void setEnabled(int enabled) {
-        this.enabled = enabled;
-    }
-}
+    int getCapacity();
+
+    void resetStatistics();
 
+    void clear();
+
+}
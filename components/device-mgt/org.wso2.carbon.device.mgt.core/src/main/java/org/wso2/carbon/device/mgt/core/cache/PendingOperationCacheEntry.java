@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.cache;
+
+import java.io.Serializable;
+
+/**
+ * State of the operation inbox of an enrolment held in the pending operation cache. An entry either records that the
+ * inbox was found to be empty, or carries a unique version written whenever operations of the enrolment change, so
+ * that an empty result read before the change can not be recorded after it.
+ */
+public class PendingOperationCacheEntry implements Serializable {
+
+    private static final long serialVersionUID = -2139502613380151043L;
+
+    private final long version;
+    private final boolean pendingEmpty;
+    private final boolean notNowEmpty;
+
+    public PendingOperationCacheEntry(long version, boolean pendingEmpty, boolean notNowEmpty) {
+        this.version = version;
+        this.pendingEmpty = pendingEmpty;
+        this.notNowEmpty = notNowEmpty;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @param includeNotNow whether operations marked as NOTNOW by the device should be considered as well
+     * @return true if the enrolment is known to have no operation to be delivered
+     */
+    public boolean isEmpty(boolean includeNotNow) {
+        return pendingEmpty && (!includeNotNow || notNowEmpty);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof PendingOperationCacheEntry)) {
+            return false;
+        }
+        PendingOperationCacheEntry other = (PendingOperationCacheEntry) obj;
+        return version == other.version && pendingEmpty == other.pendingEmpty && notNowEmpty == other.notNowEmpty;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (int) (version ^ (version >>> 32));
+        result = 31 * result + (pendingEmpty ? 1 : 0);
+        return 31 * result + (notNowEmpty ? 1 : 0);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.cache;
+
+import java.util.Collection;
+
+/**
+ * This defines the contract to be implemented by PendingOperationCacheManager which keeps track of enrolments that
+ * have no operations to be delivered, so that device polls of such enrolments can be answered without querying the
+ * operation tables. Entries are invalidated across the cluster through the distributed cache.
+ */
+public interface PendingOperationCacheManager {
+
+    /**
+     * Fetches the cached inbox state of an enrolment.
+     * @param enrolmentId - Enrolment of the device.
+     * @param tenantId - Owning tenant of the device.
+     * @return cached state or null if the state is not known.
+     */
+    PendingOperationCacheEntry getEntry(int enrolmentId, int tenantId);
+
+    /**
+     * Fetches the cached inbox state of an enrolment, and starts tracking the enrolment with a fresh version if its
+     * state is not known yet, so that the entry can be passed to markEmpty after querying the operations.
+     * @param enrolmentId - Enrolment of the device.
+     * @param tenantId - Owning tenant of the device.
+     * @return cached state or null if the cache is disabled.
+     */
+    PendingOperationCacheEntry getOrAddEntry(int enrolmentId, int tenantId);
+
+    /**
+     * Records that an enrolment has no operations to be delivered, unless the cached state has changed or has been
+     * removed since it was read before querying the operations.
+     * @param enrolmentId - Enrolment of the device.
+     * @param tenantId - Owning tenant of the device.
+     * @param observedEntry - Entry read before querying the operations, nothing is recorded if it is null.
+     * @param notNowEmpty - Whether the enrolment has no operations marked as NOTNOW either.
+     */
+    void markEmpty(int enrolmentId, int tenantId, PendingOperationCacheEntry observedEntry, boolean notNowEmpty);
+
+    /**
+     * Invalidates the cached state of the given enrolments when operations are added to them or their status changes.
+     * @param enrolmentIds - Enrolments of the devices.
+     * @param tenantId - Owning tenant of the devices.
+     */
+    void invalidate(Collection<Integer> enrolmentIds, int tenantId);
+
+}
@@ -24,19 +24,33 @@ import org.wso2.carbon.device.mgt.common.Device;
 import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
 import org.wso2.carbon.device.mgt.core.cache.DeviceCacheKey;
 import org.wso2.carbon.device.mgt.core.cache.DeviceCacheManager;
+import org.wso2.carbon.device.mgt.core.cache.LocalDeviceCache;
+import org.wso2.carbon.device.mgt.core.config.DeviceConfigurationManager;
+import org.wso2.carbon.device.mgt.core.config.DeviceManagementConfig;
+import org.wso2.carbon.device.mgt.core.config.cache.DeviceCacheConfiguration;
 import org.wso2.carbon.device.mgt.core.util.DeviceManagerUtil;
 
 import javax.cache.Cache;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Implementation of DeviceCacheManager.
+ * Implementation of DeviceCacheManager. Devices are cached in two tiers, a bounded local cache which is consulted
+ * first and the cluster wide device cache behind it.
  */
 public class DeviceCacheManagerImpl implements DeviceCacheManager {
 
     private static final Log log = LogFactory.getLog(DeviceCacheManagerImpl.class);
+    private static final String LOCAL_CACHE_MBEAN_NAME = "org.wso2.carbon.device.mgt:type=LocalDeviceCache";
 
     private static DeviceCacheManagerImpl deviceCacheManager;
+    private static volatile LocalDeviceCache localDeviceCache;
+    private static volatile boolean isLocalCacheInitialized;
 
     private DeviceCacheManagerImpl() {
     }
@@ -57,10 +71,10 @@ public class DeviceCacheManagerImpl implements DeviceCacheManager {
         Cache<DeviceCacheKey, Device> lCache = DeviceManagerUtil.getDeviceCache();
         if (lCache != null) {
             DeviceCacheKey cacheKey = getCacheKey(deviceIdentifier, tenantId);
-            if (lCache.containsKey(cacheKey)) {
-                this.updateDeviceInCache(deviceIdentifier, device, tenantId);
-            } else {
-                lCache.put(cacheKey, device);
+            lCache.put(cacheKey, device);
+            LocalDeviceCache localCache = getLocalCache();
+            if (localCache != null) {
+                localCache.put(cacheKey, device);
             }
         }
     }
@@ -70,9 +84,11 @@ public class DeviceCacheManagerImpl implements DeviceCacheManager {
         Cache<DeviceCacheKey, Device> lCache = DeviceManagerUtil.getDeviceCache();
         if (lCache != null) {
             DeviceCacheKey cacheKey = getCacheKey(deviceIdentifier, tenantId);
-            if (lCache.containsKey(cacheKey)) {
-                lCache.remove(cacheKey);
+            LocalDeviceCache localCache = getLocalCache();
+            if (localCache != null) {
+                localCache.remove(cacheKey);
             }
+            lCache.remove(cacheKey);
         }
     }
 
@@ -80,11 +96,35 @@ public class DeviceCacheManagerImpl implements DeviceCacheManager {
     public void removeDevicesFromCache(List<DeviceCacheKey> deviceList) {
         Cache<DeviceCacheKey, Device> lCache = DeviceManagerUtil.getDeviceCache();
         if (lCache != null) {
+            LocalDeviceCache localCache = getLocalCache();
             for (DeviceCacheKey cacheKey : deviceList) {
-                if (lCache.containsKey(cacheKey)) {
-                    lCache.remove(cacheKey);
+                if (localCache != null) {
+                    localCache.remove(cacheKey);
+                }
+                lCache.remove(cacheKey);
+            }
+        }
+    }
+
+    @Override
+    public void removeDevicesFromCache(String deviceType, int tenantId) {
+        Cache<DeviceCacheKey, Device> lCache = DeviceManagerUtil.getDeviceCache();
+        if (lCache != null) {
+            LocalDeviceCache localCache = getLocalCache();
+            if (localCache != null) {
+                localCache.removeAll(deviceType, tenantId);
+            }
+            List<DeviceCacheKey> cacheKeys = new ArrayList<>();
+            for (Cache.Entry<DeviceCacheKey, Device> entry : lCache) {
+                DeviceCacheKey cacheKey = entry.getKey();
+                if (cacheKey.getTenantId() == tenantId &&
+                        (deviceType == null || deviceType.equals(cacheKey.getDeviceType()))) {
+                    cacheKeys.add(cacheKey);
                 }
             }
+            for (DeviceCacheKey cacheKey : cacheKeys) {
+                lCache.remove(cacheKey);
+            }
         }
     }
 
@@ -93,27 +133,80 @@ public class DeviceCacheManagerImpl implements DeviceCacheManager {
         Cache<DeviceCacheKey, Device> lCache = DeviceManagerUtil.getDeviceCache();
         if (lCache != null) {
             DeviceCacheKey cacheKey = getCacheKey(deviceIdentifier, tenantId);
-            if (lCache.containsKey(cacheKey)) {
-                lCache.replace(cacheKey, device);
+            LocalDeviceCache localCache = getLocalCache();
+            if (lCache.replace(cacheKey, device)) {
+                if (localCache != null) {
+                    localCache.put(cacheKey, device);
+                }
+            } else if (localCache != null) {
+                localCache.remove(cacheKey);
             }
         }
     }
 
     @Override
     public Device getDeviceFromCache(DeviceIdentifier deviceIdentifier, int tenantId) {
+        DeviceCacheKey cacheKey = getCacheKey(deviceIdentifier, tenantId);
+        LocalDeviceCache localCache = getLocalCache();
+        if (localCache != null) {
+            Device device = localCache.get(cacheKey);
+            if (device != null) {
+                return device;
+            }
+        }
         Cache<DeviceCacheKey, Device> lCache = DeviceManagerUtil.getDeviceCache();
         if (lCache != null) {
-            return lCache.get(getCacheKey(deviceIdentifier, tenantId));
+            Device device = lCache.get(cacheKey);
+            if (device != null && localCache != null) {
+                localCache.put(cacheKey, device);
+            }
+            return device;
         }
         return null;
     }
 
+    /**
+     * @return local tier of the device cache, or null if the device cache or its local tier is disabled
+     */
+    public LocalDeviceCache getLocalCache() {
+        if (!isLocalCacheInitialized) {
+            synchronized (DeviceCacheManagerImpl.class) {
+                if (!isLocalCacheInitialized) {
+                    localDeviceCache = createLocalCache();
+                    isLocalCacheInitialized = true;
+                }
+            }
+        }
+        return localDeviceCache;
+    }
+
+    private static LocalDeviceCache createLocalCache() {
+        DeviceManagementConfig config = DeviceConfigurationManager.getInstance().getDeviceManagementConfig();
+        if (config == null || config.getDeviceCacheConfiguration() == null) {
+            return null;
+        }
+        DeviceCacheConfiguration cacheConfig = config.getDeviceCacheConfiguration();
+        if (!cacheConfig.isEnabled() || cacheConfig.getLocalCacheCapacity() <= 0) {
+            return null;
+        }
+        LocalDeviceCache localCache = new LocalDeviceCache(cacheConfig.getLocalCacheCapacity(),
+                cacheConfig.getLocalCacheExpiryTime() * 1000L);
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(LOCAL_CACHE_MBEAN_NAME);
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+            mBeanServer.registerMBean(localCache, objectName);
+        } catch (InstanceNotFoundException e) {
+            log.warn("Local device cache MBean has been unregistered concurrently", e);
+        } catch (JMException e) {
+            log.error("Error occurred while registering the local device cache MBean", e);
+        }
+        return localCache;
+    }
 
     private DeviceCacheKey getCacheKey(DeviceIdentifier deviceIdentifier, int tenantId) {
-        DeviceCacheKey deviceCacheKey = new DeviceCacheKey();
-        deviceCacheKey.setDeviceId(deviceIdentifier.getId());
-        deviceCacheKey.setDeviceType(deviceIdentifier.getType());
-        deviceCacheKey.setTenantId(tenantId);
-        return deviceCacheKey;
+        return new DeviceCacheKey(deviceIdentifier.getId(), deviceIdentifier.getType(), tenantId);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.cache.impl;
+
+import org.wso2.carbon.device.mgt.core.cache.PendingOperationCacheEntry;
+import org.wso2.carbon.device.mgt.core.cache.PendingOperationCacheKey;
+import org.wso2.carbon.device.mgt.core.cache.PendingOperationCacheManager;
+import org.wso2.carbon.device.mgt.core.util.DeviceManagerUtil;
+
+import javax.cache.Cache;
+import java.security.SecureRandom;
+import java.util.Collection;
+import java.util.Random;
+
+/**
+ * Implementation of PendingOperationCacheManager.
+ */
+public class PendingOperationCacheManagerImpl implements PendingOperationCacheManager {
+
+    private static final Random VERSION_GENERATOR = new SecureRandom();
+
+    private static PendingOperationCacheManagerImpl pendingOperationCacheManager;
+
+    private PendingOperationCacheManagerImpl() {
+    }
+
+    public static PendingOperationCacheManagerImpl getInstance() {
+        if (pendingOperationCacheManager == null) {
+            synchronized (PendingOperationCacheManagerImpl.class) {
+                if (pendingOperationCacheManager == null) {
+                    pendingOperationCacheManager = new PendingOperationCacheManagerImpl();
+                }
+            }
+        }
+        return pendingOperationCacheManager;
+    }
+
+    @Override
+    public PendingOperationCacheEntry getEntry(int enrolmentId, int tenantId) {
+        Cache<PendingOperationCacheKey, PendingOperationCacheEntry> lCache =
+                DeviceManagerUtil.getPendingOperationCache();
+        if (lCache != null) {
+            return lCache.get(new PendingOperationCacheKey(enrolmentId, tenantId));
+        }
+        return null;
+    }
+
+    @Override
+    public PendingOperationCacheEntry getOrAddEntry(int enrolmentId, int tenantId) {
+        Cache<PendingOperationCacheKey, PendingOperationCacheEntry> lCache =
+                DeviceManagerUtil.getPendingOperationCache();
+        if (lCache == null) {
+            return null;
+        }
+        PendingOperationCacheKey cacheKey = new PendingOperationCacheKey(enrolmentId, tenantId);
+        PendingOperationCacheEntry entry = lCache.get(cacheKey);
+        if (entry == null) {
+            lCache.putIfAbsent(cacheKey, new PendingOperationCacheEntry(VERSION_GENERATOR.nextLong(), false, false));
+            entry = lCache.get(cacheKey);
+        }
+        return entry;
+    }
+
+    @Override
+    public void markEmpty(int enrolmentId, int tenantId, PendingOperationCacheEntry observedEntry,
+                          boolean notNowEmpty) {
+        Cache<PendingOperationCacheKey, PendingOperationCacheEntry> lCache =
+                DeviceManagerUtil.getPendingOperationCache();
+        if (lCache != null && observedEntry != null) {
+            // Replacing fails if the entry has been invalidated, evicted or expired since it was read
+            lCache.replace(new PendingOperationCacheKey(enrolmentId, tenantId), observedEntry,
+                    new PendingOperationCacheEntry(observedEntry.getVersion(), true, notNowEmpty));
+        }
+    }
+
+    @Override
+    public void invalidate(Collection<Integer> enrolmentIds, int tenantId) {
+        Cache<PendingOperationCacheKey, PendingOperationCacheEntry> lCache =
+                DeviceManagerUtil.getPendingOperationCache();
+        if (lCache != null) {
+            for (Integer enrolmentId : enrolmentIds) {
+                // A fresh version rather than a removal makes any concurrent markEmpty based on an older read fail
+                lCache.put(new PendingOperationCacheKey(enrolmentId, tenantId),
+                        new PendingOperationCacheEntry(VERSION_GENERATOR.nextLong(), false, false));
+            }
+        }
+    }
+}
@@ -21,16 +21,22 @@ import org.wso2.carbon.device.mgt.core.config.analytics.OperationAnalyticsConfig
 import org.wso2.carbon.device.mgt.core.config.archival.ArchivalConfiguration;
 import org.wso2.carbon.device.mgt.core.config.cache.CertificateCacheConfiguration;
 import org.wso2.carbon.device.mgt.core.config.cache.DeviceCacheConfiguration;
+import org.wso2.carbon.device.mgt.core.config.cache.PendingOperationCacheConfiguration;
+import org.wso2.carbon.device.mgt.core.config.details.DeviceDetailsIngestionConfiguration;
+import org.wso2.carbon.device.mgt.core.config.geo.cluster.GeoClusterConfiguration;
 import org.wso2.carbon.device.mgt.core.config.geo.location.GeoLocationConfiguration;
 import org.wso2.carbon.device.mgt.core.config.identity.IdentityConfigurations;
 import org.wso2.carbon.device.mgt.core.config.keymanager.KeyManagerConfigurations;
+import org.wso2.carbon.device.mgt.core.config.operation.OperationConfiguration;
 import org.wso2.carbon.device.mgt.core.config.pagination.PaginationConfiguration;
 import org.wso2.carbon.device.mgt.core.config.policy.PolicyConfiguration;
 import org.wso2.carbon.device.mgt.core.config.pull.notification.PullNotificationConfiguration;
 import org.wso2.carbon.device.mgt.core.config.push.notification.PushNotificationConfiguration;
 import org.wso2.carbon.device.mgt.core.config.remote.session.RemoteSessionConfiguration;
+import org.wso2.carbon.device.mgt.core.config.search.DevicePropertyIndexConfiguration;
 import org.wso2.carbon.device.mgt.core.config.status.task.DeviceStatusTaskConfig;
 import org.wso2.carbon.device.mgt.core.config.task.TaskConfiguration;
+import org.wso2.carbon.device.mgt.core.config.task.TaskPartitionConfiguration;
 
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
@@ -58,6 +64,12 @@ public final class DeviceManagementConfig {
     private String defaultGroupsConfiguration;
     private RemoteSessionConfiguration remoteSessionConfiguration;
     private ArchivalConfiguration archivalConfiguration;
+    private OperationConfiguration operationConfiguration;
+    private PendingOperationCacheConfiguration pendingOperationCacheConfiguration;
+    private DeviceDetailsIngestionConfiguration deviceDetailsIngestionConfiguration;
+    private DevicePropertyIndexConfiguration devicePropertyIndexConfiguration;
+    private GeoClusterConfiguration geoClusterConfiguration;
+    private TaskPartitionConfiguration taskPartitionConfiguration;
 
 
     @XmlElement(name = "ManagementRepository", required = true)
@@ -203,5 +215,79 @@ public final class DeviceManagementConfig {
     public void setRemoteSessionConfiguration(RemoteSessionConfiguration remoteSessionConfiguration) {
         this.remoteSessionConfiguration = remoteSessionConfiguration;
     }
-}
 
+    @XmlElement(name = "OperationConfiguration")
+    public OperationConfiguration getOperationConfiguration() {
+        if (operationConfiguration == null) {
+            operationConfiguration = new OperationConfiguration();
+        }
+        return operationConfiguration;
+    }
+
+    public void setOperationConfiguration(OperationConfiguration operationConfiguration) {
+        this.operationConfiguration = operationConfiguration;
+    }
+
+    @XmlElement(name = "PendingOperationCacheConfiguration")
+    public PendingOperationCacheConfiguration getPendingOperationCacheConfiguration() {
+        if (pendingOperationCacheConfiguration == null) {
+            pendingOperationCacheConfiguration = new PendingOperationCacheConfiguration();
+        }
+        return pendingOperationCacheConfiguration;
+    }
+
+    public void setPendingOperationCacheConfiguration(
+            PendingOperationCacheConfiguration pendingOperationCacheConfiguration) {
+        this.pendingOperationCacheConfiguration = pendingOperationCacheConfiguration;
+    }
+
+    @XmlElement(name = "DeviceDetailsIngestionConfiguration")
+    public DeviceDetailsIngestionConfiguration getDeviceDetailsIngestionConfiguration() {
+        if (deviceDetailsIngestionConfiguration == null) {
+            deviceDetailsIngestionConfiguration = new DeviceDetailsIngestionConfiguration();
+        }
+        return deviceDetailsIngestionConfiguration;
+    }
+
+    public void setDeviceDetailsIngestionConfiguration(
+            DeviceDetailsIngestionConfiguration deviceDetailsIngestionConfiguration) {
+        this.deviceDetailsIngestionConfiguration = deviceDetailsIngestionConfiguration;
+    }
+
+    @XmlElement(name = "DevicePropertyIndexConfiguration")
+    public DevicePropertyIndexConfiguration getDevicePropertyIndexConfiguration() {
+        if (devicePropertyIndexConfiguration == null) {
+            devicePropertyIndexConfiguration = new DevicePropertyIndexConfiguration();
+        }
+        return devicePropertyIndexConfiguration;
+    }
+
+    public void setDevicePropertyIndexConfiguration(
+            DevicePropertyIndexConfiguration devicePropertyIndexConfiguration) {
+        this.devicePropertyIndexConfiguration = devicePropertyIndexConfiguration;
+    }
+
+    @XmlElement(name = "GeoClusterConfiguration")
+    public GeoClusterConfiguration getGeoClusterConfiguration() {
+        if (geoClusterConfiguration == null) {
+            geoClusterConfiguration = new GeoClusterConfiguration();
+        }
+        return geoClusterConfiguration;
+    }
+
+    public void setGeoClusterConfiguration(GeoClusterConfiguration geoClusterConfiguration) {
+        this.geoClusterConfiguration = geoClusterConfiguration;
+    }
+
+    @XmlElement(name = "TaskPartitionConfiguration")
+    public TaskPartitionConfiguration getTaskPartitionConfiguration() {
+        if (taskPartitionConfiguration == null) {
+            taskPartitionConfiguration = new TaskPartitionConfiguration();
+        }
+        return taskPartitionConfiguration;
+    }
+
+    public void setTaskPartitionConfiguration(TaskPartitionConfiguration taskPartitionConfiguration) {
+        this.taskPartitionConfiguration = taskPartitionConfiguration;
+    }
+}
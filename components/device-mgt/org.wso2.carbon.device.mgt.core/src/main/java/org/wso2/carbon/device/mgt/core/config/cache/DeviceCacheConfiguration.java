@@ -24,9 +24,13 @@ import javax.xml.bind.annotation.XmlRootElement;
 @XmlRootElement(name = "DeviceCacheConfiguration")
 public class DeviceCacheConfiguration {
 
+    private static final int DEFAULT_LOCAL_CACHE_EXPIRY_TIME = 60;
+
     private boolean isEnabled;
     private int expiryTime;
     private long capacity;
+    private int localCacheCapacity;
+    private int localCacheExpiryTime;
 
     @XmlElement(name = "Enable", required = true)
     public boolean isEnabled() {
@@ -54,4 +58,31 @@ public class DeviceCacheConfiguration {
     public void setCapacity(long capacity) {
         this.capacity = capacity;
     }
+
+    /**
+     * Number of devices held in the local tier of the device cache. The local tier is not used when this is not set.
+     */
+    @XmlElement(name = "LocalCacheCapacity")
+    public int getLocalCacheCapacity() {
+        return localCacheCapacity;
+    }
+
+    public void setLocalCacheCapacity(int localCacheCapacity) {
+        this.localCacheCapacity = localCacheCapacity;
+    }
+
+    /**
+     * Time in seconds after which devices are evicted from the local tier of the device cache.
+     */
+    @XmlElement(name = "LocalCacheExpiryTime")
+    public int getLocalCacheExpiryTime() {
+        if (localCacheExpiryTime <= 0) {
+            return DEFAULT_LOCAL_CACHE_EXPIRY_TIME;
+        }
+        return localCacheExpiryTime;
+    }
+
+    public void setLocalCacheExpiryTime(int localCacheExpiryTime) {
+        this.localCacheExpiryTime = localCacheExpiryTime;
+    }
 }
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.config.details;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * This class is for the configurations of the device information and location ingestion pipeline.
+ */
+@XmlRootElement(name = "DeviceDetailsIngestionConfiguration")
+public class DeviceDetailsIngestionConfiguration {
+
+    private static final int DEFAULT_FLUSH_INTERVAL_MILLS = 2000;
+    private static final int DEFAULT_BATCH_SIZE = 500;
+    private static final int DEFAULT_MAX_PENDING_ENROLMENTS = 10000;
+    private static final int DEFAULT_PUBLISHER_QUEUE_CAPACITY = 100;
+
+    private boolean enabled;
+    private int flushIntervalMills;
+    private int batchSize;
+    private int maxPendingEnrolments;
+    private int publisherQueueCapacity;
+
+    /**
+     * When disabled, device information and locations are written synchronously by the thread which reports them.
+     */
+    @XmlElement(name = "Enabled")
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Maximum time a reported update waits before it is written. Updates of the same enrolment which are reported
+     * within this window are coalesced and only the latest one is written.
+     */
+    @XmlElement(name = "FlushIntervalMills")
+    public int getFlushIntervalMills() {
+        if (flushIntervalMills <= 0) {
+            return DEFAULT_FLUSH_INTERVAL_MILLS;
+        }
+        return flushIntervalMills;
+    }
+
+    public void setFlushIntervalMills(int flushIntervalMills) {
+        this.flushIntervalMills = flushIntervalMills;
+    }
+
+    /**
+     * Number of enrolments written in a single transaction. A flush is also triggered as soon as this many
+     * enrolments have pending updates.
+     */
+    @XmlElement(name = "BatchSize")
+    public int getBatchSize() {
+        if (batchSize <= 0) {
+            return DEFAULT_BATCH_SIZE;
+        }
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Maximum number of enrolments with pending updates. Updates of further enrolments are written synchronously by
+     * the thread which reports them until the pending updates are flushed.
+     */
+    @XmlElement(name = "MaxPendingEnrolments")
+    public int getMaxPendingEnrolments() {
+        if (maxPendingEnrolments <= 0) {
+            return DEFAULT_MAX_PENDING_ENROLMENTS;
+        }
+        return maxPendingEnrolments;
+    }
+
+    public void setMaxPendingEnrolments(int maxPendingEnrolments) {
+        this.maxPendingEnrolments = maxPendingEnrolments;
+    }
+
+    /**
+     * Maximum number of written batches waiting to be published to analytics. Batches written while the queue is
+     * full are not published.
+     */
+    @XmlElement(name = "PublisherQueueCapacity")
+    public int getPublisherQueueCapacity() {
+        if (publisherQueueCapacity <= 0) {
+            return DEFAULT_PUBLISHER_QUEUE_CAPACITY;
+        }
+        return publisherQueueCapacity;
+    }
+
+    public void setPublisherQueueCapacity(int publisherQueueCapacity) {
+        this.publisherQueueCapacity = publisherQueueCapacity;
+    }
+}
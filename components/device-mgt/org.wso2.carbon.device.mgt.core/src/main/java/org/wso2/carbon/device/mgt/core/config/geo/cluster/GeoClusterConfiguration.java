@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.config.geo.cluster;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * This class is for the configurations of the in memory geo cluster engine used to cluster the device locations
+ * shown on maps.
+ */
+@XmlRootElement(name = "GeoClusterConfiguration")
+public class GeoClusterConfiguration {
+
+    private static final int DEFAULT_REFRESH_INTERVAL = 60;
+    private static final int DEFAULT_BUILD_BATCH_SIZE = 10000;
+    private static final int DEFAULT_MAX_ROLLUP_GEOHASH_LENGTH = 6;
+    private static final int DEFAULT_TILE_CACHE_CAPACITY = 1000;
+
+    private boolean enabled;
+    private int refreshInterval;
+    private int buildBatchSize;
+    private int maxRollupGeohashLength;
+    private int tileCacheCapacity;
+
+    /**
+     * When disabled, geo clusters are always computed by the database.
+     */
+    @XmlElement(name = "Enabled")
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Time in seconds between two reloads of the device locations updated since the previous reload. Locations
+     * reported to the other nodes of the cluster are reflected in the geo clusters of this node after at most this
+     * time.
+     */
+    @XmlElement(name = "RefreshInterval")
+    public int getRefreshInterval() {
+        if (refreshInterval <= 0) {
+            return DEFAULT_REFRESH_INTERVAL;
+        }
+        return refreshInterval;
+    }
+
+    public void setRefreshInterval(int refreshInterval) {
+        this.refreshInterval = refreshInterval;
+    }
+
+    /**
+     * Number of consecutive device ids of which the locations are read by a single query while the engine is built
+     * at startup.
+     */
+    @XmlElement(name = "BuildBatchSize")
+    public int getBuildBatchSize() {
+        if (buildBatchSize <= 0) {
+            return DEFAULT_BUILD_BATCH_SIZE;
+        }
+        return buildBatchSize;
+    }
+
+    public void setBuildBatchSize(int buildBatchSize) {
+        this.buildBatchSize = buildBatchSize;
+    }
+
+    /**
+     * Longest geohash prefix for which the clusters are kept precomputed. Clusters of longer prefixes, which are
+     * requested for maps zoomed into small areas, are computed from the locations within the map.
+     */
+    @XmlElement(name = "MaxRollupGeohashLength")
+    public int getMaxRollupGeohashLength() {
+        if (maxRollupGeohashLength <= 0) {
+            return DEFAULT_MAX_ROLLUP_GEOHASH_LENGTH;
+        }
+        return maxRollupGeohashLength;
+    }
+
+    public void setMaxRollupGeohashLength(int maxRollupGeohashLength) {
+        this.maxRollupGeohashLength = maxRollupGeohashLength;
+    }
+
+    /**
+     * Number of map tiles of which the geo clusters are cached, per tenant.
+     */
+    @XmlElement(name = "TileCacheCapacity")
+    public int getTileCacheCapacity() {
+        if (tileCacheCapacity <= 0) {
+            return DEFAULT_TILE_CACHE_CAPACITY;
+        }
+        return tileCacheCapacity;
+    }
+
+    public void setTileCacheCapacity(int tileCacheCapacity) {
+        this.tileCacheCapacity = tileCacheCapacity;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.config.operation;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * This class is for operation management related configurations.
+ */
+@XmlRootElement(name = "OperationConfiguration")
+public class OperationConfiguration {
+
+    private static final int DEFAULT_MAPPING_BATCH_SIZE = 500;
+    private static final int DEFAULT_PAYLOAD_COMPRESSION_THRESHOLD = 1024;
+    private static final int DEFAULT_MONITORING_FAN_OUT_BATCH_SIZE = 1000;
+
+    private int mappingBatchSize;
+    private String payloadCodec;
+    private Integer payloadCompressionThreshold;
+    private int monitoringFanOutWindow;
+    private int monitoringFanOutBatchSize;
+
+    /**
+     * Number of enrolment-operation mappings which are written to the database in a single JDBC batch when an
+     * operation is added to a set of devices.
+     */
+    @XmlElement(name = "MappingBatchSize", required = true)
+    public int getMappingBatchSize() {
+        if (mappingBatchSize <= 0) {
+            return DEFAULT_MAPPING_BATCH_SIZE;
+        }
+        return mappingBatchSize;
+    }
+
+    public void setMappingBatchSize(int mappingBatchSize) {
+        this.mappingBatchSize = mappingBatchSize;
+    }
+
+    /**
+     * Fully qualified class name of the OperationPayloadCodec used to store operation payloads and responses. The
+     * Java serialization codec, which earlier versions can read, is used when this is not set. The compact codec
+     * should only be enabled once no node of the cluster is expected to run or be rolled back to such a version.
+     */
+    @XmlElement(name = "PayloadCodec")
+    public String getPayloadCodec() {
+        return payloadCodec;
+    }
+
+    public void setPayloadCodec(String payloadCodec) {
+        this.payloadCodec = payloadCodec;
+    }
+
+    /**
+     * Size in bytes above which operation payloads stored by the compact codec are compressed. A negative value
+     * disables compression.
+     */
+    @XmlElement(name = "PayloadCompressionThreshold")
+    public Integer getPayloadCompressionThreshold() {
+        if (payloadCompressionThreshold == null) {
+            return DEFAULT_PAYLOAD_COMPRESSION_THRESHOLD;
+        }
+        return payloadCompressionThreshold;
+    }
+
+    public void setPayloadCompressionThreshold(Integer payloadCompressionThreshold) {
+        this.payloadCompressionThreshold = payloadCompressionThreshold;
+    }
+
+    /**
+     * Time in seconds over which the push notifications of a monitoring operation added to the devices of a device
+     * type are spread, so that the devices do not call back all at once. The window is capped at the frequency of
+     * the monitoring task, and notifications are sent right away when this is not set.
+     */
+    @XmlElement(name = "MonitoringFanOutWindow")
+    public int getMonitoringFanOutWindow() {
+        return monitoringFanOutWindow;
+    }
+
+    public void setMonitoringFanOutWindow(int monitoringFanOutWindow) {
+        this.monitoringFanOutWindow = monitoringFanOutWindow;
+    }
+
+    /**
+     * Number of devices notified together within the fan-out window of a monitoring operation.
+     */
+    @XmlElement(name = "MonitoringFanOutBatchSize")
+    public int getMonitoringFanOutBatchSize() {
+        if (monitoringFanOutBatchSize <= 0) {
+            return DEFAULT_MONITORING_FAN_OUT_BATCH_SIZE;
+        }
+        return monitoringFanOutBatchSize;
+    }
+
+    public void setMonitoringFanOutBatchSize(int monitoringFanOutBatchSize) {
+        this.monitoringFanOutBatchSize = monitoringFanOutBatchSize;
+    }
+}
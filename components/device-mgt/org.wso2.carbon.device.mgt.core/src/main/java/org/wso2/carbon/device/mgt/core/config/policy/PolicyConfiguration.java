@@ -26,6 +26,9 @@ import java.util.List;
 @XmlRootElement(name = "PolicyConfiguration")
 public class PolicyConfiguration {
 
+    private static final int DEFAULT_MONITORING_BATCH_SIZE = 500;
+    private static final int DEFAULT_MONITORING_THREAD_POOL_SIZE = 4;
+
     private String monitoringClass;
     private boolean monitoringEnable;
     private int monitoringFrequency;
@@ -35,6 +38,8 @@ public class PolicyConfiguration {
     private List<String> platforms;
     private String policyEvaluationPoint;
     private boolean cacheEnable;
+    private int monitoringBatchSize;
+    private int monitoringThreadPoolSize;
 
     @XmlElement(name = "MonitoringClass", required = true)
     public String getMonitoringClass() {
@@ -118,4 +123,34 @@ public class PolicyConfiguration {
         this.cacheEnable = cacheEnable;
     }
 
+    /**
+     * Number of enrolments read and given the monitoring operation at a time by the policy monitoring task.
+     */
+    @XmlElement(name = "MonitoringBatchSize")
+    public int getMonitoringBatchSize() {
+        if (monitoringBatchSize <= 0) {
+            return DEFAULT_MONITORING_BATCH_SIZE;
+        }
+        return monitoringBatchSize;
+    }
+
+    public void setMonitoringBatchSize(int monitoringBatchSize) {
+        this.monitoringBatchSize = monitoringBatchSize;
+    }
+
+    /**
+     * Number of tenant and device type pairs the policy monitoring task processes in parallel.
+     */
+    @XmlElement(name = "MonitoringThreadPoolSize")
+    public int getMonitoringThreadPoolSize() {
+        if (monitoringThreadPoolSize <= 0) {
+            return DEFAULT_MONITORING_THREAD_POOL_SIZE;
+        }
+        return monitoringThreadPoolSize;
+    }
+
+    public void setMonitoringThreadPoolSize(int monitoringThreadPoolSize) {
+        this.monitoringThreadPoolSize = monitoringThreadPoolSize;
+    }
+
 }
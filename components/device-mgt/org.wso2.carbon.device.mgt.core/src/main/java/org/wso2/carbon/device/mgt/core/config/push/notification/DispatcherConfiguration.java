@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.config.push.notification;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * This class is for the configurations of the asynchronous push notification dispatcher.
+ */
+@XmlRootElement(name = "DispatcherConfiguration")
+public class DispatcherConfiguration {
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 10000;
+    private static final int DEFAULT_WORKER_POOL_SIZE = 4;
+    private static final int DEFAULT_MAX_RETRIES = 3;
+    private static final int DEFAULT_RETRY_INITIAL_DELAY_MILLS = 1000;
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final int DEFAULT_RESCHEDULE_BATCH_SIZE = 500;
+    private static final int DEFAULT_RESCHEDULE_INTERVAL_MILLS = 5000;
+
+    private boolean enabled = true;
+    private int queueCapacity;
+    private int workerPoolSize;
+    private int maxRetries = -1;
+    private int retryInitialDelayMills;
+    private int batchSize;
+    private int rescheduleBatchSize;
+    private int rescheduleIntervalMills;
+
+    @XmlElement(name = "Enabled")
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Maximum number of notifications which can wait in the queue of a single device type. Notifications which
+     * do not fit are not sent inline, they are rescheduled to the scheduler task instead.
+     */
+    @XmlElement(name = "QueueCapacity")
+    public int getQueueCapacity() {
+        if (queueCapacity <= 0) {
+            return DEFAULT_QUEUE_CAPACITY;
+        }
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Number of worker threads which send the notifications of a single device type.
+     */
+    @XmlElement(name = "WorkerPoolSize")
+    public int getWorkerPoolSize() {
+        if (workerPoolSize <= 0) {
+            return DEFAULT_WORKER_POOL_SIZE;
+        }
+        return workerPoolSize;
+    }
+
+    public void setWorkerPoolSize(int workerPoolSize) {
+        this.workerPoolSize = workerPoolSize;
+    }
+
+    @XmlElement(name = "MaxRetries")
+    public int getMaxRetries() {
+        if (maxRetries < 0) {
+            return DEFAULT_MAX_RETRIES;
+        }
+        return maxRetries;
+    }
+
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * Delay before the first retry of a failed notification. The delay is doubled on each subsequent retry.
+     */
+    @XmlElement(name = "RetryInitialDelayMills")
+    public int getRetryInitialDelayMills() {
+        if (retryInitialDelayMills <= 0) {
+            return DEFAULT_RETRY_INITIAL_DELAY_MILLS;
+        }
+        return retryInitialDelayMills;
+    }
+
+    public void setRetryInitialDelayMills(int retryInitialDelayMills) {
+        this.retryInitialDelayMills = retryInitialDelayMills;
+    }
+
+    /**
+     * Maximum number of notifications which are handed over together to a strategy that can send notifications in
+     * bulk.
+     */
+    @XmlElement(name = "BatchSize")
+    public int getBatchSize() {
+        if (batchSize <= 0) {
+            return DEFAULT_BATCH_SIZE;
+        }
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Number of operation mappings which are marked as SCHEDULED in a single database update.
+     */
+    @XmlElement(name = "RescheduleBatchSize")
+    public int getRescheduleBatchSize() {
+        if (rescheduleBatchSize <= 0) {
+            return DEFAULT_RESCHEDULE_BATCH_SIZE;
+        }
+        return rescheduleBatchSize;
+    }
+
+    public void setRescheduleBatchSize(int rescheduleBatchSize) {
+        this.rescheduleBatchSize = rescheduleBatchSize;
+    }
+
+    @XmlElement(name = "RescheduleIntervalMills")
+    public int getRescheduleIntervalMills() {
+        if (rescheduleIntervalMills <= 0) {
+            return DEFAULT_RESCHEDULE_INTERVAL_MILLS;
+        }
+        return rescheduleIntervalMills;
+    }
+
+    public void setRescheduleIntervalMills(int rescheduleIntervalMills) {
+        this.rescheduleIntervalMills = rescheduleIntervalMills;
+    }
+}
@@ -17,6 +17,8 @@
 */
 package org.wso2.carbon.device.mgt.core.config.push.notification;
 
+import org.wso2.carbon.device.mgt.core.DeviceManagementConstants;
+
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlElementWrapper;
 import javax.xml.bind.annotation.XmlRootElement;
@@ -32,7 +34,10 @@ public class PushNotificationConfiguration {
     private int schedulerBatchDelayMills;
     private int schedulerTaskInitialDelay;
     private boolean schedulerTaskEnabled;
+    private int schedulerPoolSize;
+    private int schedulerClaimTimeoutMills;
     private List<String> pushNotificationProviders;
+    private DispatcherConfiguration dispatcherConfiguration;
 
     @XmlElement(name = "SchedulerBatchSize", required = true)
     public int getSchedulerBatchSize() {
@@ -70,6 +75,38 @@ public class PushNotificationConfiguration {
         this.schedulerTaskEnabled = schedulerTaskEnabled;
     }
 
+    /**
+     * Number of threads the scheduler task uses to send the notifications of different tenants and device types in
+     * parallel. Defaults to the number of available processors.
+     */
+    @XmlElement(name = "SchedulerPoolSize")
+    public int getSchedulerPoolSize() {
+        if (schedulerPoolSize <= 0) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        return schedulerPoolSize;
+    }
+
+    public void setSchedulerPoolSize(int schedulerPoolSize) {
+        this.schedulerPoolSize = schedulerPoolSize;
+    }
+
+    /**
+     * Time after which the notifications claimed by a scheduler task that did not complete them are released to be
+     * claimed again, e.g. by another node of the cluster.
+     */
+    @XmlElement(name = "SchedulerClaimTimeoutMills")
+    public int getSchedulerClaimTimeoutMills() {
+        if (schedulerClaimTimeoutMills <= 0) {
+            return DeviceManagementConstants.PushNotifications.DEFAULT_SCHEDULER_CLAIM_TIMEOUT_MILLS;
+        }
+        return schedulerClaimTimeoutMills;
+    }
+
+    public void setSchedulerClaimTimeoutMills(int schedulerClaimTimeoutMills) {
+        this.schedulerClaimTimeoutMills = schedulerClaimTimeoutMills;
+    }
+
     @XmlElementWrapper(name = "PushNotificationProviders", required = true)
     @XmlElement(name = "Provider", required = true)
     public List<String> getPushNotificationProviders() {
@@ -79,4 +116,16 @@ public class PushNotificationConfiguration {
     public void setPushNotificationProviders(List<String> pushNotificationProviders) {
         this.pushNotificationProviders = pushNotificationProviders;
     }
+
+    @XmlElement(name = "DispatcherConfiguration")
+    public DispatcherConfiguration getDispatcherConfiguration() {
+        if (dispatcherConfiguration == null) {
+            dispatcherConfiguration = new DispatcherConfiguration();
+        }
+        return dispatcherConfiguration;
+    }
+
+    public void setDispatcherConfiguration(DispatcherConfiguration dispatcherConfiguration) {
+        this.dispatcherConfiguration = dispatcherConfiguration;
+    }
 }
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.config.search;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * This class is for the configurations of the in memory index of the device properties used by device searches.
+ */
+@XmlRootElement(name = "DevicePropertyIndexConfiguration")
+public class DevicePropertyIndexConfiguration {
+
+    private static final int DEFAULT_REFRESH_INTERVAL = 60;
+    private static final int DEFAULT_BUILD_BATCH_SIZE = 10000;
+
+    private boolean enabled;
+    private int refreshInterval;
+    private int buildBatchSize;
+
+    /**
+     * When disabled, property conditions of device searches are always evaluated by the database.
+     */
+    @XmlElement(name = "Enabled")
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Time in seconds between two reloads of the properties updated since the previous reload. Properties reported
+     * to the other nodes of the cluster are visible to the searches of this node after at most this time.
+     */
+    @XmlElement(name = "RefreshInterval")
+    public int getRefreshInterval() {
+        if (refreshInterval <= 0) {
+            return DEFAULT_REFRESH_INTERVAL;
+        }
+        return refreshInterval;
+    }
+
+    public void setRefreshInterval(int refreshInterval) {
+        this.refreshInterval = refreshInterval;
+    }
+
+    /**
+     * Number of consecutive enrolment ids of which the properties are read by a single query while the index is
+     * built at startup.
+     */
+    @XmlElement(name = "BuildBatchSize")
+    public int getBuildBatchSize() {
+        if (buildBatchSize <= 0) {
+            return DEFAULT_BUILD_BATCH_SIZE;
+        }
+        return buildBatchSize;
+    }
+
+    public void setBuildBatchSize(int buildBatchSize) {
+        this.buildBatchSize = buildBatchSize;
+    }
+}
@@ -24,7 +24,13 @@ import javax.xml.bind.annotation.XmlRootElement;
 @XmlRootElement(name = "DeviceStatusTaskConfig")
 public class DeviceStatusTaskConfig {
 
+    private static final int DEFAULT_RESYNC_INTERVAL = 3600;
+    private static final int DEFAULT_UPDATE_BATCH_SIZE = 1000;
+
     private boolean enabled;
+    private boolean incrementalMonitoringEnabled;
+    private int resyncInterval;
+    private int updateBatchSize;
 
     @XmlElement(name = "Enable", required = true)
     public boolean isEnabled() {
@@ -35,4 +41,48 @@ public class DeviceStatusTaskConfig {
         this.enabled = enabled;
     }
 
-}
\ No newline at end of file
+    /**
+     * When enabled, the monitoring tasks look only at the enrolments of which the idle time has expired according to
+     * the operations added and the devices seen since the last synchronization with the database, instead of scanning
+     * the operations of all the active enrolments on every run.
+     */
+    @XmlElement(name = "IncrementalMonitoringEnabled")
+    public boolean isIncrementalMonitoringEnabled() {
+        return incrementalMonitoringEnabled;
+    }
+
+    public void setIncrementalMonitoringEnabled(boolean incrementalMonitoringEnabled) {
+        this.incrementalMonitoringEnabled = incrementalMonitoringEnabled;
+    }
+
+    /**
+     * Time in seconds between two synchronizations of the incremental monitor with the database. Operations added
+     * and devices seen by the other nodes of the cluster are taken into account after at most this time.
+     */
+    @XmlElement(name = "ResyncInterval")
+    public int getResyncInterval() {
+        if (resyncInterval <= 0) {
+            return DEFAULT_RESYNC_INTERVAL;
+        }
+        return resyncInterval;
+    }
+
+    public void setResyncInterval(int resyncInterval) {
+        this.resyncInterval = resyncInterval;
+    }
+
+    /**
+     * Maximum number of enrolments of which the status is updated by a single batch.
+     */
+    @XmlElement(name = "UpdateBatchSize")
+    public int getUpdateBatchSize() {
+        if (updateBatchSize <= 0) {
+            return DEFAULT_UPDATE_BATCH_SIZE;
+        }
+        return updateBatchSize;
+    }
+
+    public void setUpdateBatchSize(int updateBatchSize) {
+        this.updateBatchSize = updateBatchSize;
+    }
+}
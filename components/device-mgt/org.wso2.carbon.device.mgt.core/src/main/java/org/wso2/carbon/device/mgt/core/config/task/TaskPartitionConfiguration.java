@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.config.task;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * This class is for the configurations of the sharded mode of the device monitoring and device status monitoring
+ * tasks, in which the devices of each task are split into partitions shared among the nodes of the cluster.
+ */
+@XmlRootElement(name = "TaskPartitionConfiguration")
+public class TaskPartitionConfiguration {
+
+    private static final int DEFAULT_PARTITION_COUNT = 16;
+    private static final int DEFAULT_LEASE_DURATION = 300;
+
+    private boolean enabled;
+    private int partitionCount;
+    private int leaseDuration;
+
+    /**
+     * When disabled, each task runs on a single node of the cluster through the task service. When enabled, the
+     * tasks run on every node which has them enabled, each node handling the partitions it holds the lease of.
+     */
+    @XmlElement(name = "Enabled")
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Number of partitions the enrolments of each task are split into, by their ids. This has to be the same in all
+     * the nodes of the cluster, and bounds the number of nodes sharing a task.
+     */
+    @XmlElement(name = "PartitionCount")
+    public int getPartitionCount() {
+        if (partitionCount <= 0) {
+            return DEFAULT_PARTITION_COUNT;
+        }
+        return partitionCount;
+    }
+
+    public void setPartitionCount(int partitionCount) {
+        this.partitionCount = partitionCount;
+    }
+
+    /**
+     * Time in seconds for which a node holds the partitions of a task without renewing them. The partitions of a
+     * node which went down are taken over by the other nodes after this time. Leases are extended to twice the
+     * frequency of the task when that is longer.
+     */
+    @XmlElement(name = "LeaseDuration")
+    public int getLeaseDuration() {
+        if (leaseDuration <= 0) {
+            return DEFAULT_LEASE_DURATION;
+        }
+        return leaseDuration;
+    }
+
+    public void setLeaseDuration(int leaseDuration) {
+        this.leaseDuration = leaseDuration;
+    }
+}
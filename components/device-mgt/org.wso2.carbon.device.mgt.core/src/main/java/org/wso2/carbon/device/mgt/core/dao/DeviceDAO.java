@@ -25,6 +25,7 @@ import org.wso2.carbon.device.mgt.common.EnrolmentInfo.Status;
 import org.wso2.carbon.device.mgt.common.PaginationRequest;
 import org.wso2.carbon.device.mgt.core.dto.DeviceType;
 import org.wso2.carbon.device.mgt.core.geo.GeoCluster;
+import org.wso2.carbon.device.mgt.core.geo.cluster.DeviceGeoPoint;
 import org.wso2.carbon.device.mgt.core.geo.geoHash.GeoCoordinate;
 
 import java.util.Date;
@@ -107,6 +108,14 @@ public interface DeviceDAO {
      */
     boolean updateDevice(Device device, int tenantId) throws DeviceManagementDAOException;
 
+    /**
+     * This method is used to set the last updated timestamp of a set of devices to the current time.
+     *
+     * @param deviceIds ids of the devices.
+     * @throws DeviceManagementDAOException
+     */
+    void updateLastUpdatedTimestamps(List<Integer> deviceIds) throws DeviceManagementDAOException;
+
     /**
      * This method is used to retrieve a device of a given device-identifier and tenant-id.
      *
@@ -216,6 +225,20 @@ public interface DeviceDAO {
 
     List<Device> getDevices(long timestamp, int tenantId) throws DeviceManagementDAOException;
 
+    /**
+     * This method is used to retrieve the devices of a given device type which carry the given identifiers using set
+     * queries. The latest enrolment of each device is loaded, the same way {@link #getDevice(DeviceIdentifier, int)}
+     * does for a single device.
+     *
+     * @param type device type.
+     * @param deviceIdentifiers identifiers of the devices.
+     * @param tenantId tenant id.
+     * @return returns list of devices which were found. Identifiers which do not match a device are ignored.
+     * @throws DeviceManagementDAOException
+     */
+    List<Device> getDevices(String type, List<String> deviceIdentifiers, int tenantId)
+            throws DeviceManagementDAOException;
+
     /**
      * This method is used to retrieve devices of a given user.
      *
@@ -410,5 +433,32 @@ public interface DeviceDAO {
      */
     List<GeoCluster> findGeoClusters(String deviceType, GeoCoordinate southWest, GeoCoordinate northEast,
                                      int geohashLength,int tenantId) throws DeviceManagementDAOException;
-}
 
+    /**
+     * This method is used to retrieve the largest device id.
+     *
+     * @return largest device id, or 0 if there are no devices.
+     * @throws DeviceManagementDAOException
+     */
+    int getMaxDeviceId() throws DeviceManagementDAOException;
+
+    /**
+     * This method is used to retrieve the locations of the devices of all tenants within a range of device ids.
+     *
+     * @param fromDeviceId device ids greater than this are retrieved.
+     * @param toDeviceId   device ids up to and including this are retrieved.
+     * @return returns the locations of the devices.
+     * @throws DeviceManagementDAOException
+     */
+    List<DeviceGeoPoint> getDeviceGeoPoints(int fromDeviceId, int toDeviceId) throws DeviceManagementDAOException;
+
+    /**
+     * This method is used to retrieve the locations of the devices of all tenants which have been updated after a
+     * given time.
+     *
+     * @param since time in milliseconds.
+     * @return returns the locations of the devices.
+     * @throws DeviceManagementDAOException
+     */
+    List<DeviceGeoPoint> getUpdatedDeviceGeoPoints(long since) throws DeviceManagementDAOException;
+}
@@ -32,6 +32,7 @@ import org.wso2.carbon.device.mgt.core.dao.impl.DeviceTypeDAOImpl;
 import org.wso2.carbon.device.mgt.core.dao.impl.EnrollmentDAOImpl;
 import org.wso2.carbon.device.mgt.core.dao.impl.GenericApplicationDAOImpl;
 import org.wso2.carbon.device.mgt.core.dao.impl.PostgreSQLApplicationDAOImpl;
+import org.wso2.carbon.device.mgt.core.dao.impl.TaskPartitionDAOImpl;
 import org.wso2.carbon.device.mgt.core.dao.impl.device.GenericDeviceDAOImpl;
 import org.wso2.carbon.device.mgt.core.dao.impl.device.OracleDeviceDAOImpl;
 import org.wso2.carbon.device.mgt.core.dao.impl.device.PostgreSQLDeviceDAOImpl;
@@ -41,6 +42,11 @@ import org.wso2.carbon.device.mgt.core.device.details.mgt.dao.DeviceDetailsDAO;
 import org.wso2.carbon.device.mgt.core.device.details.mgt.dao.impl.DeviceDetailsDAOImpl;
 import org.wso2.carbon.device.mgt.core.privacy.dao.PrivacyComplianceDAO;
 import org.wso2.carbon.device.mgt.core.privacy.dao.impl.PrivacyComplianceDAOImpl;
+import org.wso2.carbon.device.mgt.core.search.mgt.dao.SearchDAO;
+import org.wso2.carbon.device.mgt.core.search.mgt.dao.impl.GenericSearchDAOImpl;
+import org.wso2.carbon.device.mgt.core.search.mgt.dao.impl.OracleSearchDAOImpl;
+import org.wso2.carbon.device.mgt.core.search.mgt.dao.impl.PostgreSQLSearchDAOImpl;
+import org.wso2.carbon.device.mgt.core.search.mgt.dao.impl.SQLServerSearchDAOImpl;
 
 import javax.sql.DataSource;
 import java.sql.Connection;
@@ -157,6 +163,29 @@ public class DeviceManagementDAOFactory {
         return new PrivacyComplianceDAOImpl();
     }
 
+    public static TaskPartitionDAO getTaskPartitionDAO() {
+        return new TaskPartitionDAOImpl();
+    }
+
+    public static SearchDAO getSearchDAO() {
+        if (databaseEngine != null) {
+            switch (databaseEngine) {
+                case DeviceManagementConstants.DataBaseTypes.DB_TYPE_ORACLE:
+                    return new OracleSearchDAOImpl();
+                case DeviceManagementConstants.DataBaseTypes.DB_TYPE_MSSQL:
+                    return new SQLServerSearchDAOImpl();
+                case DeviceManagementConstants.DataBaseTypes.DB_TYPE_POSTGRESQL:
+                    return new PostgreSQLSearchDAOImpl();
+                case DeviceManagementConstants.DataBaseTypes.DB_TYPE_H2:
+                case DeviceManagementConstants.DataBaseTypes.DB_TYPE_MYSQL:
+                    return new GenericSearchDAOImpl();
+                default:
+                    throw new UnsupportedDatabaseEngineException("Unsupported database engine : " + databaseEngine);
+            }
+        }
+        throw new IllegalStateException("Database engine has not initialized properly.");
+    }
+
     public static void init(DataSourceConfig config) {
         dataSource = resolveDataSource(config);
         try {
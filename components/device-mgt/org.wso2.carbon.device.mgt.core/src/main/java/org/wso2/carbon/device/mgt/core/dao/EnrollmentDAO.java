@@ -32,6 +32,10 @@ public interface EnrollmentDAO {
 
     int updateEnrollment(EnrolmentInfo enrolmentInfo) throws DeviceManagementDAOException;
 
+    /**
+     * Updates the status of the given enrolments, which are monitored by the device status monitoring task. Only the
+     * enrolments which are still active or unreachable are updated.
+     */
     boolean updateEnrollmentStatus(List<EnrolmentInfo> enrolmentInfos) throws DeviceManagementDAOException;
 
     int removeEnrollment(int deviceId, String currentOwner, int tenantId) throws DeviceManagementDAOException;
@@ -23,6 +23,7 @@ import org.wso2.carbon.device.mgt.common.GroupPaginationRequest;
 import org.wso2.carbon.device.mgt.common.group.mgt.DeviceGroup;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * This interface represents the key operations associated with persisting group related information.
@@ -76,6 +77,26 @@ public interface GroupDAO {
      */
     List<DeviceGroup> getGroups(int deviceId, int tenantId) throws GroupManagementDAOException;
 
+    /**
+     * Get the ids of the groups of each of the devices with device ids provided.
+     * @param deviceIds of the devices.
+     * @param tenantId of the devices.
+     * @return map of device id to the ids of the groups which have the device. Devices without groups are not included.
+     * @throws GroupManagementDAOException
+     */
+    Map<Integer, List<Integer>> getGroupIdsOfDevices(List<Integer> deviceIds, int tenantId)
+            throws GroupManagementDAOException;
+
+    /**
+     * Get the groups of each of the devices with device ids provided.
+     * @param deviceIds of the devices.
+     * @param tenantId of the devices.
+     * @return map of device id to the groups which have the device. Devices without groups are not included.
+     * @throws GroupManagementDAOException
+     */
+    Map<Integer, List<DeviceGroup>> getGroupsOfDevices(List<Integer> deviceIds, int tenantId)
+            throws GroupManagementDAOException;
+
     /**
      * Get paginated list of Device Groups in tenant.
      *
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.dao;
+
+import org.wso2.carbon.device.mgt.core.dto.TaskPartitionLease;
+
+import java.util.List;
+
+/**
+ * This class represents the key operations associated with persisting the partition leases and the member nodes of
+ * the sharded device tasks. All the times are in milliseconds.
+ */
+public interface TaskPartitionDAO {
+
+    /**
+     * Records that the given node is running the given task.
+     */
+    void updateMember(String taskName, String nodeId, long time) throws DeviceManagementDAOException;
+
+    /**
+     * Removes the members of a task which have not run it since the given time.
+     *
+     * @return number of members removed
+     */
+    int removeStaleMembers(String taskName, long seenBefore) throws DeviceManagementDAOException;
+
+    /**
+     * Removes the given node from the members of all the tasks.
+     */
+    void removeMember(String nodeId) throws DeviceManagementDAOException;
+
+    /**
+     * @return number of members of a task which have run it since the given time
+     */
+    int getMemberCount(String taskName, long seenAfter) throws DeviceManagementDAOException;
+
+    /**
+     * Adds the given partitions of a task, which are not leased to any node.
+     */
+    void addPartitions(String taskName, List<Integer> partitionIds) throws DeviceManagementDAOException;
+
+    List<TaskPartitionLease> getLeases(String taskName) throws DeviceManagementDAOException;
+
+    /**
+     * Leases a partition to a node, given that it is not leased or its lease has expired by the given time.
+     *
+     * @return true if the partition has been leased to the node
+     */
+    boolean acquireLease(String taskName, int partitionId, String nodeId, long time, long leaseExpiry)
+            throws DeviceManagementDAOException;
+
+    /**
+     * Extends the lease of a partition, given that it is still leased to the node.
+     *
+     * @return true if the lease has been extended
+     */
+    boolean renewLease(String taskName, int partitionId, String nodeId, long leaseExpiry)
+            throws DeviceManagementDAOException;
+
+    /**
+     * Releases the lease of a partition, given that it is leased to the node.
+     */
+    void releaseLease(String taskName, int partitionId, String nodeId) throws DeviceManagementDAOException;
+
+    /**
+     * Releases all the leases held by a node.
+     */
+    void releaseLeases(String nodeId) throws DeviceManagementDAOException;
+}
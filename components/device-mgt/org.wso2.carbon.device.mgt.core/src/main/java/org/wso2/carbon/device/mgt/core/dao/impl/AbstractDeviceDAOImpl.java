@@ -29,7 +29,10 @@ import org.wso2.carbon.device.mgt.core.dao.DeviceManagementDAOFactory;
 import org.wso2.carbon.device.mgt.core.dao.util.DeviceManagementDAOUtil;
 import org.wso2.carbon.device.mgt.core.dto.DeviceType;
 import org.wso2.carbon.device.mgt.core.geo.GeoCluster;
+import org.wso2.carbon.device.mgt.core.geo.cluster.DeviceGeoPoint;
 import org.wso2.carbon.device.mgt.core.geo.geoHash.GeoCoordinate;
+import org.wso2.carbon.device.mgt.core.geo.geoHash.GeoHashGenerator;
+import org.wso2.carbon.device.mgt.core.geo.geoHash.LongGeoHash;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -40,10 +43,19 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public abstract class AbstractDeviceDAOImpl implements DeviceDAO {
 
+    private static final int MAX_GEOHASH_COVER_SIZE = 16;
+    private static final String DEVICE_GEO_POINTS_QUERY = "SELECT DL.DEVICE_ID, D.TENANT_ID, " +
+            "D.DEVICE_IDENTIFICATION, DT.NAME AS DEVICE_TYPE, DL.LATITUDE, DL.LONGITUDE, DL.GEO_HASH, " +
+            "D.LAST_UPDATED_TIMESTAMP FROM DM_DEVICE_LOCATION DL, DM_DEVICE D, DM_DEVICE_TYPE DT " +
+            "WHERE D.ID = DL.DEVICE_ID AND D.DEVICE_TYPE_ID = DT.ID AND DL.LATITUDE IS NOT NULL " +
+            "AND DL.LONGITUDE IS NOT NULL";
+
     @Override
     public int addDevice(int typeId, Device device, int tenantId) throws DeviceManagementDAOException {
         Connection conn;
@@ -106,6 +118,33 @@ public abstract class AbstractDeviceDAOImpl implements DeviceDAO {
         }
     }
 
+    @Override
+    public void updateLastUpdatedTimestamps(List<Integer> deviceIds) throws DeviceManagementDAOException {
+        Connection conn;
+        PreparedStatement stmt = null;
+        try {
+            conn = this.getConnection();
+            Timestamp timestamp = new Timestamp(new Date().getTime());
+            for (List<Integer> chunk : DeviceManagementDAOUtil.partition(deviceIds,
+                    DeviceManagementDAOUtil.MAX_IN_CLAUSE_SIZE)) {
+                stmt = conn.prepareStatement("UPDATE DM_DEVICE SET LAST_UPDATED_TIMESTAMP = ? WHERE ID IN (" +
+                        DeviceManagementDAOUtil.getInClausePlaceholders(chunk.size()) + ")");
+                stmt.setTimestamp(1, timestamp);
+                int paramIndex = 2;
+                for (Integer deviceId : chunk) {
+                    stmt.setInt(paramIndex++, deviceId);
+                }
+                stmt.executeUpdate();
+                DeviceManagementDAOUtil.cleanupResources(stmt, null);
+            }
+        } catch (SQLException e) {
+            throw new DeviceManagementDAOException("Error occurred while updating the last updated timestamp of " +
+                    deviceIds.size() + " devices", e);
+        } finally {
+            DeviceManagementDAOUtil.cleanupResources(stmt, null);
+        }
+    }
+
     @Override
     public Device getDevice(DeviceIdentifier deviceIdentifier, int tenantId) throws DeviceManagementDAOException {
         Connection conn;
@@ -145,6 +184,57 @@ public abstract class AbstractDeviceDAOImpl implements DeviceDAO {
         return device;
     }
 
+    @Override
+    public List<Device> getDevices(String type, List<String> deviceIdentifiers, int tenantId)
+            throws DeviceManagementDAOException {
+        List<Device> devices = new ArrayList<>();
+        if (deviceIdentifiers.isEmpty()) {
+            return devices;
+        }
+        Connection conn;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            conn = this.getConnection();
+            for (List<String> chunk : DeviceManagementDAOUtil.partition(deviceIdentifiers,
+                    DeviceManagementDAOUtil.MAX_IN_CLAUSE_SIZE)) {
+                String sql = "SELECT d1.ID AS DEVICE_ID, d1.DESCRIPTION, d1.NAME AS DEVICE_NAME, d1.DEVICE_TYPE, " +
+                        "d1.DEVICE_IDENTIFICATION, e.OWNER, e.OWNERSHIP, e.STATUS, e.DATE_OF_LAST_UPDATE, " +
+                        "e.DATE_OF_ENROLMENT, e.ID AS ENROLMENT_ID FROM DM_ENROLMENT e, (SELECT d.ID, d.DESCRIPTION, " +
+                        "d.NAME, t.NAME AS DEVICE_TYPE, d.DEVICE_IDENTIFICATION FROM DM_DEVICE d, DM_DEVICE_TYPE t " +
+                        "WHERE t.NAME = ? AND t.ID = d.DEVICE_TYPE_ID AND d.TENANT_ID = ? AND " +
+                        "d.DEVICE_IDENTIFICATION IN (" + DeviceManagementDAOUtil.getInClausePlaceholders(chunk.size()) +
+                        ")) d1 WHERE d1.ID = e.DEVICE_ID AND TENANT_ID = ? ORDER BY e.DATE_OF_LAST_UPDATE DESC, " +
+                        "e.STATUS ASC";
+                stmt = conn.prepareStatement(sql);
+                int paramIndex = 1;
+                stmt.setString(paramIndex++, type);
+                stmt.setInt(paramIndex++, tenantId);
+                for (String deviceIdentifier : chunk) {
+                    stmt.setString(paramIndex++, deviceIdentifier);
+                }
+                stmt.setInt(paramIndex, tenantId);
+                rs = stmt.executeQuery();
+                // Rows are ordered the same way as in getDevice, hence the first row of a device carries its
+                // latest enrolment.
+                Map<String, Device> deviceMap = new LinkedHashMap<>();
+                while (rs.next()) {
+                    String deviceIdentifier = rs.getString("DEVICE_IDENTIFICATION");
+                    if (!deviceMap.containsKey(deviceIdentifier)) {
+                        deviceMap.put(deviceIdentifier, DeviceManagementDAOUtil.loadMatchingDevice(rs, false));
+                    }
+                }
+                devices.addAll(deviceMap.values());
+                DeviceManagementDAOUtil.cleanupResources(stmt, rs);
+            }
+        } catch (SQLException e) {
+            throw new DeviceManagementDAOException("Error occurred while listing devices for type '" + type + "'", e);
+        } finally {
+            DeviceManagementDAOUtil.cleanupResources(stmt, rs);
+        }
+        return devices;
+    }
+
     @Override
     public Device getDevice(DeviceIdentifier deviceIdentifier, String owner, int tenantId)
             throws DeviceManagementDAOException {
@@ -1070,6 +1160,7 @@ public abstract class AbstractDeviceDAOImpl implements DeviceDAO {
         List<GeoCluster> geoClusters = new ArrayList<>();
         try {
             conn = this.getConnection();
+            String[] geohashRanges = getGeohashRanges(southWest, northEast);
             String sql ="SELECT AVG(DEVICE_LOCATION.LATITUDE) AS LATITUDE,AVG(DEVICE_LOCATION.LONGITUDE) AS LONGITUDE," +
                     " MIN(DEVICE_LOCATION.LATITUDE) AS MIN_LATITUDE, MAX(DEVICE_LOCATION.LATITUDE) AS MAX_LATITUDE," +
                     " MIN(DEVICE_LOCATION.LONGITUDE) AS MIN_LONGITUDE," +
@@ -1083,19 +1174,40 @@ public abstract class AbstractDeviceDAOImpl implements DeviceDAO {
                     "DEVICE_LOCATION.LONGITUDE BETWEEN ? AND ? AND " +
                     "DEVICE.TENANT_ID=? AND " +
                     "DEVICE.ID=DEVICE_LOCATION.DEVICE_ID  AND DEVICE.DEVICE_TYPE_ID=DEVICE_TYPE.ID";
+            if (geohashRanges.length > 0) {
+                // Geohash prefix ranges covering the map let the geohash index narrow down the locations
+                StringBuilder rangeConditions = new StringBuilder();
+                for (int i = 0; i < geohashRanges.length; i += 2) {
+                    if (i > 0) {
+                        rangeConditions.append(" OR ");
+                    }
+                    rangeConditions.append("(DEVICE_LOCATION.GEO_HASH >= ?");
+                    if (geohashRanges[i + 1] != null) {
+                        rangeConditions.append(" AND DEVICE_LOCATION.GEO_HASH < ?");
+                    }
+                    rangeConditions.append(")");
+                }
+                sql += " AND (" + rangeConditions + ")";
+            }
             if (deviceType != null && !deviceType.isEmpty()) {
                 sql += " AND DEVICE_TYPE.NAME=?";
             }
             sql += " GROUP BY GEOHASH_PREFIX";
             stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, geohashLength);
-            stmt.setDouble(2, southWest.getLatitude());
-            stmt.setDouble(3, northEast.getLatitude());
-            stmt.setDouble(4, southWest.getLongitude());
-            stmt.setDouble(5, northEast.getLongitude());
-            stmt.setDouble(6,tenantId);
+            int paramIndex = 1;
+            stmt.setInt(paramIndex++, geohashLength);
+            stmt.setDouble(paramIndex++, southWest.getLatitude());
+            stmt.setDouble(paramIndex++, northEast.getLatitude());
+            stmt.setDouble(paramIndex++, southWest.getLongitude());
+            stmt.setDouble(paramIndex++, northEast.getLongitude());
+            stmt.setInt(paramIndex++, tenantId);
+            for (String geohashRangeBound : geohashRanges) {
+                if (geohashRangeBound != null) {
+                    stmt.setString(paramIndex++, geohashRangeBound);
+                }
+            }
             if (deviceType != null && !deviceType.isEmpty()) {
-                stmt.setString(7, deviceType);
+                stmt.setString(paramIndex, deviceType);
             }
             rs = stmt.executeQuery();
             while (rs.next()) {
@@ -1122,4 +1234,103 @@ public abstract class AbstractDeviceDAOImpl implements DeviceDAO {
         }
         return geoClusters;
     }
+
+    @Override
+    public int getMaxDeviceId() throws DeviceManagementDAOException {
+        Connection conn;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            conn = this.getConnection();
+            stmt = conn.prepareStatement("SELECT MAX(ID) AS MAX_ID FROM DM_DEVICE");
+            rs = stmt.executeQuery();
+            if (rs.next()) {
+                return rs.getInt("MAX_ID");
+            }
+            return 0;
+        } catch (SQLException e) {
+            throw new DeviceManagementDAOException("Error occurred while retrieving the largest device id", e);
+        } finally {
+            DeviceManagementDAOUtil.cleanupResources(stmt, rs);
+        }
+    }
+
+    @Override
+    public List<DeviceGeoPoint> getDeviceGeoPoints(int fromDeviceId, int toDeviceId)
+            throws DeviceManagementDAOException {
+        Connection conn;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            conn = this.getConnection();
+            stmt = conn.prepareStatement(DEVICE_GEO_POINTS_QUERY + " AND DL.DEVICE_ID > ? AND DL.DEVICE_ID <= ?");
+            stmt.setInt(1, fromDeviceId);
+            stmt.setInt(2, toDeviceId);
+            rs = stmt.executeQuery();
+            return this.loadDeviceGeoPoints(rs);
+        } catch (SQLException e) {
+            throw new DeviceManagementDAOException("Error occurred while retrieving the locations of the devices " +
+                    "with ids from " + fromDeviceId + " to " + toDeviceId, e);
+        } finally {
+            DeviceManagementDAOUtil.cleanupResources(stmt, rs);
+        }
+    }
+
+    @Override
+    public List<DeviceGeoPoint> getUpdatedDeviceGeoPoints(long since) throws DeviceManagementDAOException {
+        Connection conn;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            conn = this.getConnection();
+            stmt = conn.prepareStatement(DEVICE_GEO_POINTS_QUERY + " AND D.LAST_UPDATED_TIMESTAMP > ?");
+            stmt.setTimestamp(1, new Timestamp(since));
+            rs = stmt.executeQuery();
+            return this.loadDeviceGeoPoints(rs);
+        } catch (SQLException e) {
+            throw new DeviceManagementDAOException("Error occurred while retrieving the locations of the devices " +
+                    "updated since " + since, e);
+        } finally {
+            DeviceManagementDAOUtil.cleanupResources(stmt, rs);
+        }
+    }
+
+    /**
+     * Returns the geohash prefix ranges covering the area within the given corners, as the inclusive start and the
+     * exclusive end of each range, one after the other. The end of a range running to the last geohash is null.
+     */
+    private static String[] getGeohashRanges(GeoCoordinate southWest, GeoCoordinate northEast) {
+        int length = LongGeoHash.getCoverLength(southWest.getLatitude(), southWest.getLongitude(),
+                northEast.getLatitude(), northEast.getLongitude(), MAX_GEOHASH_COVER_SIZE);
+        if (length == 0) {
+            return new String[0];
+        }
+        long[] ranges = LongGeoHash.toRanges(LongGeoHash.cover(southWest.getLatitude(), southWest.getLongitude(),
+                northEast.getLatitude(), northEast.getLongitude(), length));
+        long geohashCount = 1L << (5 * length);
+        String[] geohashRanges = new String[ranges.length];
+        for (int i = 0; i < ranges.length; i++) {
+            if (ranges[i] < geohashCount) {
+                geohashRanges[i] = LongGeoHash.toString(ranges[i], length);
+            }
+        }
+        return geohashRanges;
+    }
+
+    private List<DeviceGeoPoint> loadDeviceGeoPoints(ResultSet rs) throws SQLException {
+        List<DeviceGeoPoint> points = new ArrayList<>();
+        while (rs.next()) {
+            double latitude = rs.getDouble("LATITUDE");
+            double longitude = rs.getDouble("LONGITUDE");
+            String geohash = rs.getString("GEO_HASH");
+            if (geohash == null || geohash.isEmpty()) {
+                geohash = GeoHashGenerator.encodeGeohash(latitude, longitude);
+            }
+            Timestamp lastUpdatedTimestamp = rs.getTimestamp("LAST_UPDATED_TIMESTAMP");
+            points.add(new DeviceGeoPoint(rs.getInt("DEVICE_ID"), rs.getInt("TENANT_ID"),
+                    rs.getString("DEVICE_IDENTIFICATION"), rs.getString("DEVICE_TYPE"), latitude, longitude, geohash,
+                    lastUpdatedTimestamp == null ? 0 : lastUpdatedTimestamp.getTime()));
+        }
+        return points;
+    }
 }
@@ -23,6 +23,7 @@ import org.wso2.carbon.device.mgt.common.group.mgt.DeviceGroup;
 import org.wso2.carbon.device.mgt.core.dao.GroupDAO;
 import org.wso2.carbon.device.mgt.core.dao.GroupManagementDAOException;
 import org.wso2.carbon.device.mgt.core.dao.GroupManagementDAOFactory;
+import org.wso2.carbon.device.mgt.core.dao.util.DeviceManagementDAOUtil;
 import org.wso2.carbon.device.mgt.core.dao.util.GroupManagementDAOUtil;
 
 import java.sql.Connection;
@@ -30,7 +31,9 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * This class represents implementation of GroupDAO
@@ -177,6 +180,89 @@ public abstract class AbstractGroupDAOImpl implements GroupDAO {
         return deviceGroupBuilders;
     }
 
+    @Override
+    public Map<Integer, List<Integer>> getGroupIdsOfDevices(List<Integer> deviceIds, int tenantId)
+            throws GroupManagementDAOException {
+        Map<Integer, List<Integer>> groupIdsOfDevices = new HashMap<>();
+        if (deviceIds.isEmpty()) {
+            return groupIdsOfDevices;
+        }
+        PreparedStatement stmt = null;
+        ResultSet resultSet = null;
+        try {
+            Connection conn = GroupManagementDAOFactory.getConnection();
+            for (List<Integer> chunk : DeviceManagementDAOUtil.partition(deviceIds,
+                    DeviceManagementDAOUtil.MAX_IN_CLAUSE_SIZE)) {
+                String sql = "SELECT DEVICE_ID, GROUP_ID FROM DM_DEVICE_GROUP_MAP WHERE TENANT_ID = ? AND " +
+                        "DEVICE_ID IN (" + DeviceManagementDAOUtil.getInClausePlaceholders(chunk.size()) + ")";
+                stmt = conn.prepareStatement(sql);
+                int paramIndex = 1;
+                stmt.setInt(paramIndex++, tenantId);
+                for (Integer deviceId : chunk) {
+                    stmt.setInt(paramIndex++, deviceId);
+                }
+                resultSet = stmt.executeQuery();
+                while (resultSet.next()) {
+                    int deviceId = resultSet.getInt("DEVICE_ID");
+                    List<Integer> groupIds = groupIdsOfDevices.get(deviceId);
+                    if (groupIds == null) {
+                        groupIds = new ArrayList<>();
+                        groupIdsOfDevices.put(deviceId, groupIds);
+                    }
+                    groupIds.add(resultSet.getInt("GROUP_ID"));
+                }
+                GroupManagementDAOUtil.cleanupResources(stmt, resultSet);
+            }
+        } catch (SQLException e) {
+            throw new GroupManagementDAOException("Error occurred while obtaining group ids of devices", e);
+        } finally {
+            GroupManagementDAOUtil.cleanupResources(stmt, resultSet);
+        }
+        return groupIdsOfDevices;
+    }
+
+    @Override
+    public Map<Integer, List<DeviceGroup>> getGroupsOfDevices(List<Integer> deviceIds, int tenantId)
+            throws GroupManagementDAOException {
+        Map<Integer, List<DeviceGroup>> groupsOfDevices = new HashMap<>();
+        if (deviceIds.isEmpty()) {
+            return groupsOfDevices;
+        }
+        PreparedStatement stmt = null;
+        ResultSet resultSet = null;
+        try {
+            Connection conn = GroupManagementDAOFactory.getConnection();
+            for (List<Integer> chunk : DeviceManagementDAOUtil.partition(deviceIds,
+                    DeviceManagementDAOUtil.MAX_IN_CLAUSE_SIZE)) {
+                String sql = "SELECT GM.DEVICE_ID, G.ID, G.GROUP_NAME, G.DESCRIPTION, G.OWNER FROM DM_GROUP G " +
+                        "INNER JOIN DM_DEVICE_GROUP_MAP GM ON G.ID = GM.GROUP_ID WHERE GM.TENANT_ID = ? AND " +
+                        "GM.DEVICE_ID IN (" + DeviceManagementDAOUtil.getInClausePlaceholders(chunk.size()) + ")";
+                stmt = conn.prepareStatement(sql);
+                int paramIndex = 1;
+                stmt.setInt(paramIndex++, tenantId);
+                for (Integer deviceId : chunk) {
+                    stmt.setInt(paramIndex++, deviceId);
+                }
+                resultSet = stmt.executeQuery();
+                while (resultSet.next()) {
+                    int deviceId = resultSet.getInt("DEVICE_ID");
+                    List<DeviceGroup> groups = groupsOfDevices.get(deviceId);
+                    if (groups == null) {
+                        groups = new ArrayList<>();
+                        groupsOfDevices.put(deviceId, groups);
+                    }
+                    groups.add(GroupManagementDAOUtil.loadGroup(resultSet));
+                }
+                GroupManagementDAOUtil.cleanupResources(stmt, resultSet);
+            }
+        } catch (SQLException e) {
+            throw new GroupManagementDAOException("Error occurred while obtaining groups of devices", e);
+        } finally {
+            GroupManagementDAOUtil.cleanupResources(stmt, resultSet);
+        }
+        return groupsOfDevices;
+    }
+
     @Override
     public List<DeviceGroup> getGroups(int tenantId) throws GroupManagementDAOException {
         PreparedStatement stmt = null;
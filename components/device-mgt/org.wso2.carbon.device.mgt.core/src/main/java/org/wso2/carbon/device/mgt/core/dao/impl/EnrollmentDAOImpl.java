@@ -126,7 +126,9 @@ public class EnrollmentDAOImpl implements EnrollmentDAO {
         int updateStatus = -1;
         try {
             conn = this.getConnection();
-            String sql = "UPDATE DM_ENROLMENT SET STATUS = ? WHERE ID = ?";
+            //Devices which have been removed, disenrolled or marked inactive in the meantime are left untouched
+            String sql = "UPDATE DM_ENROLMENT SET STATUS = ? WHERE ID = ? AND STATUS IN ('" +
+                    EnrolmentInfo.Status.ACTIVE.name() + "','" + EnrolmentInfo.Status.UNREACHABLE.name() + "')";
             stmt = conn.prepareStatement(sql);
             if (conn.getMetaData().supportsBatchUpdates()) {
                 for (EnrolmentInfo enrolmentInfo : enrolmentInfos) {
@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.dao.impl;
+
+import org.wso2.carbon.device.mgt.core.dao.DeviceManagementDAOException;
+import org.wso2.carbon.device.mgt.core.dao.DeviceManagementDAOFactory;
+import org.wso2.carbon.device.mgt.core.dao.TaskPartitionDAO;
+import org.wso2.carbon.device.mgt.core.dao.util.DeviceManagementDAOUtil;
+import org.wso2.carbon.device.mgt.core.dto.TaskPartitionLease;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TaskPartitionDAOImpl implements TaskPartitionDAO {
+
+    @Override
+    public void updateMember(String taskName, String nodeId, long time) throws DeviceManagementDAOException {
+        PreparedStatement stmt = null;
+        try {
+            Connection conn = this.getConnection();
+            String sql = "UPDATE DM_TASK_MEMBER SET LAST_SEEN = ? WHERE TASK_NAME = ? AND NODE_ID = ?";
+            stmt = conn.prepareStatement(sql);
+            stmt.setLong(1, time);
+            stmt.setString(2, taskName);
+            stmt.setString(3, nodeId);
+            if (stmt.executeUpdate() == 0) {
+                DeviceManagementDAOUtil.cleanupResources(stmt, null);
+                sql = "INSERT INTO DM_TASK_MEMBER (TASK_NAME, NODE_ID, LAST_SEEN) VALUES (?, ?, ?)";
+                stmt = conn.prepareStatement(sql);
+                stmt.setString(1, taskName);
+                stmt.setString(2, nodeId);
+                stmt.setLong(3, time);
+                stmt.executeUpdate();
+            }
+        } catch (SQLException e) {
+            throw new DeviceManagementDAOException("Error occurred while updating the member '" + nodeId +
+                    "' of task '" + taskName + "'", e);
+        } finally {
+            DeviceManagementDAOUtil.cleanupResources(stmt, null);
+        }
+    }
+
+    @Override
+    public int removeStaleMembers(String taskName, long seenBefore) throws DeviceManagementDAOException {
+        PreparedStatement stmt = null;
+        try {
+            Connection conn = this.getConnection();
+            String sql = "DELETE FROM DM_TASK_MEMBER WHERE TASK_NAME = ? AND LAST_SEEN < ?";
+            stmt = conn.prepareStatement(sql);
+            stmt.setString(1, taskName);
+            stmt.setLong(2, seenBefore);
+            return stmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new DeviceManagementDAOException("Error occurred while removing the stale members of task '" +
+                    taskName + "'", e);
+        } finally {
+            DeviceManagementDAOUtil.cleanupResources(stmt, null);
+        }
+    }
+
+    @Override
+    public void removeMember(String nodeId) throws DeviceManagementDAOException {
+        PreparedStatement stmt = null;
+        try {
+            Connection conn = this.getConnection();
+            String sql = "DELETE FROM DM_TASK_MEMBER WHERE NODE_ID = ?";
+            stmt = conn.prepareStatement(sql);
+            stmt.setString(1, nodeId);
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new DeviceManagementDAOException("Error occurred while removing the task member '" + nodeId + "'",
+                    e);
+        } finally {
+            DeviceManagementDAOUtil.cleanupResources(stmt, null);
+        }
+    }
+
+    @Override
+    public int getMemberCount(String taskName, long seenAfter) throws DeviceManagementDAOException {
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            Connection conn = this.getConnection();
+            String sql = "SELECT COUNT(NODE_ID) AS MEMBER_COUNT FROM DM_TASK_MEMBER WHERE TASK_NAME = ? AND " +
+                    "LAST_SEEN >= ?";
+            stmt = conn.prepareStatement(sql);
+            stmt.setString(1, taskName);
+            stmt.setLong(2, seenAfter);
+            rs = stmt.executeQuery();
+            if (rs.next()) {
+                return rs.getInt("MEMBER_COUNT");
+            }
+            return 0;
+        } catch (SQLException e) {
+            throw new DeviceManagementDAOException("Error occurred while counting the members of task '" +
+                    taskName + "'", e);
+        } finally {
+            DeviceManagementDAOUtil.cleanupResources(stmt, rs);
+        }
+    }
+
+    @Override
+    public void addPartitions(String taskName, List<Integer> partitionIds) throws DeviceManagementDAOException {
+        PreparedStatement stmt = null;
+        try {
+            Connection conn = this.getConnection();
+            String sql = "INSERT INTO DM_TASK_PARTITION_LEASE (TASK_NAME, PARTITION_ID, LEASE_EXPIRY) VALUES (?, ?, 0)";
+            stmt = conn.prepareStatement(sql);
+            for (Integer partitionId : partitionIds) {
+                stmt.setString(1, taskName);
+                stmt.setInt(2, partitionId);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        } catch (SQLException e) {
+            throw new DeviceManagementDAOException("Error occurred while adding the partitions of task '" +
+                    taskName + "'", e);
+        } finally {
+            DeviceManagementDAOUtil.cleanupResources(stmt, null);
+        }
+    }
+
+    @Override
+    public List<TaskPartitionLease> getLeases(String taskName) throws DeviceManagementDAOException {
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        List<TaskPartitionLease> leases = new ArrayList<>();
+        try {
+            Connection conn = this.getConnection();
+            String sql = "SELECT PARTITION_ID, OWNER_ID, LEASE_EXPIRY FROM DM_TASK_PARTITION_LEASE WHERE " +
+                    "TASK_NAME = ? ORDER BY PARTITION_ID";
+            stmt = conn.prepareStatement(sql);
+            stmt.setString(1, taskName);
+            rs = stmt.executeQuery();
+            while (rs.next()) {
+                TaskPartitionLease lease = new TaskPartitionLease();
+                lease.setPartitionId(rs.getInt("PARTITION_ID"));
+                lease.setOwnerId(rs.getString("OWNER_ID"));
+                lease.setLeaseExpiry(rs.getLong("LEASE_EXPIRY"));
+                leases.add(lease);
+            }
+        } catch (SQLException e) {
+            throw new DeviceManagementDAOException("Error occurred while retrieving the partition leases of task '" +
+                    taskName + "'", e);
+        } finally {
+            DeviceManagementDAOUtil.cleanupResources(stmt, rs);
+        }
+        return leases;
+    }
+
+    @Override
+    public boolean acquireLease(String taskName, int partitionId, String nodeId, long time, long leaseExpiry)
+            throws DeviceManagementDAOException {
+        PreparedStatement stmt = null;
+        try {
+            Connection conn = this.getConnection();
+            String sql = "UPDATE DM_TASK_PARTITION_LEASE SET OWNER_ID = ?, LEASE_EXPIRY = ? WHERE TASK_NAME = ? AND " +
+                    "PARTITION_ID = ? AND (OWNER_ID IS NULL OR LEASE_EXPIRY <= ?)";
+            stmt = conn.prepareStatement(sql);
+            stmt.setString(1, nodeId);
+            stmt.setLong(2, leaseExpiry);
+            stmt.setString(3, taskName);
+            stmt.setInt(4, partitionId);
+            stmt.setLong(5, time);
+            return stmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            throw new DeviceManagementDAOException("Error occurred while leasing the partition " + partitionId +
+                    " of task '" + taskName + "'", e);
+        } finally {
+            DeviceManagementDAOUtil.cleanupResources(stmt, null);
+        }
+    }
+
+    @Override
+    public boolean renewLease(String taskName, int partitionId, String nodeId, long leaseExpiry)
+            throws DeviceManagementDAOException {
+        PreparedStatement stmt = null;
+        try {
+            Connection conn = this.getConnection();
+            String sql = "UPDATE DM_TASK_PARTITION_LEASE SET LEASE_EXPIRY = ? WHERE TASK_NAME = ? AND " +
+                    "PARTITION_ID = ? AND OWNER_ID = ?";
+            stmt = conn.prepareStatement(sql);
+            stmt.setLong(1, leaseExpiry);
+            stmt.setString(2, taskName);
+            stmt.setInt(3, partitionId);
+            stmt.setString(4, nodeId);
+            return stmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            throw new DeviceManagementDAOException("Error occurred while renewing the lease of partition " +
+                    partitionId + " of task '" + taskName + "'", e);
+        } finally {
+            DeviceManagementDAOUtil.cleanupResources(stmt, null);
+        }
+    }
+
+    @Override
+    public void releaseLease(String taskName, int partitionId, String nodeId) throws DeviceManagementDAOException {
+        PreparedStatement stmt = null;
+        try {
+            Connection conn = this.getConnection();
+            String sql = "UPDATE DM_TASK_PARTITION_LEASE SET OWNER_ID = NULL, LEASE_EXPIRY = 0 WHERE TASK_NAME = ? " +
+                    "AND PARTITION_ID = ? AND OWNER_ID = ?";
+            stmt = conn.prepareStatement(sql);
+            stmt.setString(1, taskName);
+            stmt.setInt(2, partitionId);
+            stmt.setString(3, nodeId);
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new DeviceManagementDAOException("Error occurred while releasing the lease of partition " +
+                    partitionId + " of task '" + taskName + "'", e);
+        } finally {
+            DeviceManagementDAOUtil.cleanupResources(stmt, null);
+        }
+    }
+
+    @Override
+    public void releaseLeases(String nodeId) throws DeviceManagementDAOException {
+        PreparedStatement stmt = null;
+        try {
+            Connection conn = this.getConnection();
+            String sql = "UPDATE DM_TASK_PARTITION_LEASE SET OWNER_ID = NULL, LEASE_EXPIRY = 0 WHERE OWNER_ID = ?";
+            stmt = conn.prepareStatement(sql);
+            stmt.setString(1, nodeId);
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new DeviceManagementDAOException("Error occurred while releasing the partition leases of node '" +
+                    nodeId + "'", e);
+        } finally {
+            DeviceManagementDAOUtil.cleanupResources(stmt, null);
+        }
+    }
+
+    private Connection getConnection() throws SQLException {
+        return DeviceManagementDAOFactory.getConnection();
+    }
+}
@@ -36,14 +36,22 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.List;
 import java.util.Map;
 
 public final class DeviceManagementDAOUtil {
 
     private static final Log log = LogFactory.getLog(DeviceManagementDAOUtil.class);
 
+    /**
+     * Maximum number of parameters bound into a single IN clause. Oracle rejects IN lists longer than 1000
+     * elements, hence set queries are split into chunks of this size.
+     */
+    public static final int MAX_IN_CLAUSE_SIZE = 1000;
+
     public static void cleanupResources(Connection conn, PreparedStatement stmt, ResultSet rs) {
         if (rs != null) {
             try {
@@ -246,4 +254,34 @@ public final class DeviceManagementDAOUtil {
         return deviceInfo;
     }
 
+
+    /**
+     * Builds a comma separated list of JDBC parameter placeholders to be used inside an IN clause.
+     *
+     * @param count number of placeholders
+     * @return placeholder list such as "?,?,?"
+     */
+    public static String getInClausePlaceholders(int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(i == 0 ? "?" : ",?");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Splits the given list into consecutive sub lists which contain at most chunkSize elements.
+     *
+     * @param list      list to be split
+     * @param chunkSize maximum size of a chunk
+     * @param <T>       element type
+     * @return list of chunks backed by the given list
+     */
+    public static <T> List<List<T>> partition(List<T> list, int chunkSize) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int i = 0; i < list.size(); i += chunkSize) {
+            chunks.add(list.subList(i, Math.min(i + chunkSize, list.size())));
+        }
+        return chunks;
+    }
 }
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.device.details.mgt;
+
+import org.wso2.carbon.device.mgt.analytics.data.publisher.exception.DataPublisherConfigurationException;
+import org.wso2.carbon.device.mgt.common.Device;
+import org.wso2.carbon.device.mgt.common.device.details.DeviceInfo;
+import org.wso2.carbon.device.mgt.common.device.details.DeviceLocation;
+import org.wso2.carbon.device.mgt.core.util.DeviceManagerUtil;
+
+import java.util.Calendar;
+import java.util.Map;
+
+/**
+ * Publishes the device information and locations reported by the devices to the analytics server. Events are
+ * published in the tenant of the carbon context of the calling thread.
+ */
+public final class DeviceDetailsEventPublisher {
+
+    private static final String LOCATION_EVENT_STREAM_DEFINITION = "org.wso2.iot.LocationStream";
+    private static final String DEVICE_INFO_EVENT_STREAM_DEFINITION = "org.wso2.iot.DeviceInfoStream";
+    private static final String STREAM_VERSION = "1.0.0";
+
+    private DeviceDetailsEventPublisher() {
+    }
+
+    public static void publishDeviceInfo(Device device, DeviceInfo deviceInfo)
+            throws DataPublisherConfigurationException {
+        //TODO :: This has to be fixed by adding the enrollment ID.
+        Map<String, String> deviceDetailsMap = deviceInfo.getDeviceDetailsMap();
+        Object[] metaData = {device.getDeviceIdentifier(), device.getType()};
+        Object[] payload = new Object[]{
+                Calendar.getInstance().getTimeInMillis(),
+                deviceDetailsMap.get("IMEI"),
+                deviceDetailsMap.get("IMSI"),
+                deviceInfo.getDeviceModel(),
+                deviceInfo.getVendor(),
+                deviceInfo.getOsVersion(),
+                deviceInfo.getOsBuildDate(),
+                deviceInfo.getBatteryLevel(),
+                deviceInfo.getInternalTotalMemory(),
+                deviceInfo.getInternalAvailableMemory(),
+                deviceInfo.getExternalTotalMemory(),
+                deviceInfo.getExternalAvailableMemory(),
+                deviceInfo.getOperator(),
+                deviceInfo.getConnectionType(),
+                deviceInfo.getMobileSignalStrength(),
+                deviceInfo.getSsid(),
+                deviceInfo.getCpuUsage(),
+                deviceInfo.getTotalRAMMemory(),
+                deviceInfo.getAvailableRAMMemory(),
+                deviceInfo.isPluggedIn()
+        };
+        DeviceManagerUtil.getEventPublisherService().publishEvent(
+                DEVICE_INFO_EVENT_STREAM_DEFINITION, STREAM_VERSION, metaData, new Object[0], payload
+        );
+    }
+
+    public static void publishDeviceLocation(Device device, DeviceLocation deviceLocation)
+            throws DataPublisherConfigurationException {
+        Object[] metaData = {device.getDeviceIdentifier(), device.getEnrolmentInfo().getOwner(), device.getType()};
+        Object[] payload = new Object[]{
+                deviceLocation.getUpdatedTime().getTime(),
+                deviceLocation.getLatitude(),
+                deviceLocation.getLongitude()
+        };
+        DeviceManagerUtil.getEventPublisherService().publishEvent(
+                LOCATION_EVENT_STREAM_DEFINITION, STREAM_VERSION, metaData, new Object[0], payload
+        );
+    }
+}
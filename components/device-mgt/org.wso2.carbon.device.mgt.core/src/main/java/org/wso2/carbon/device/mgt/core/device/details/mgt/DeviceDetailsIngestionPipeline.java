@@ -0,0 +1,566 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.device.details.mgt;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.device.mgt.analytics.data.publisher.exception.DataPublisherConfigurationException;
+import org.wso2.carbon.device.mgt.common.Device;
+import org.wso2.carbon.device.mgt.common.DeviceManagementException;
+import org.wso2.carbon.device.mgt.common.TransactionManagementException;
+import org.wso2.carbon.device.mgt.common.device.details.DeviceInfo;
+import org.wso2.carbon.device.mgt.common.device.details.DeviceLocation;
+import org.wso2.carbon.device.mgt.core.config.details.DeviceDetailsIngestionConfiguration;
+import org.wso2.carbon.device.mgt.core.dao.DeviceDAO;
+import org.wso2.carbon.device.mgt.core.dao.DeviceManagementDAOException;
+import org.wso2.carbon.device.mgt.core.dao.DeviceManagementDAOFactory;
+import org.wso2.carbon.device.mgt.core.device.details.mgt.dao.DeviceDetailsDAO;
+import org.wso2.carbon.device.mgt.core.device.details.mgt.dao.DeviceDetailsMgtDAOException;
+import org.wso2.carbon.device.mgt.core.device.details.mgt.dao.DeviceDetailsSnapshot;
+import org.wso2.carbon.device.mgt.core.geo.cluster.GeoClusterEngine;
+import org.wso2.carbon.device.mgt.core.internal.DeviceManagementDataHolder;
+import org.wso2.carbon.device.mgt.core.search.mgt.index.DevicePropertyIndex;
+import org.wso2.carbon.device.mgt.core.util.DeviceManagerUtil;
+
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes the device information and locations reported by the devices in batches, instead of one transaction per
+ * report. Reports are held for at most the configured flush interval and reports of the same enrolment which arrive
+ * within that window are coalesced, so that only the latest device information and location of the enrolment are
+ * written. The pending updates of many enrolments are then written together using JDBC batches and the analytics
+ * events of the written updates are published after the transaction is committed, by a separate thread.
+ * <p>
+ * Both stages are bounded. Once the configured number of enrolments have pending updates, updates of further
+ * enrolments are handed back to be written synchronously by the reporting thread, and written batches which do not
+ * fit in the publisher queue are dropped from publishing. The counters of the pipeline are exposed through JMX.
+ */
+public class DeviceDetailsIngestionPipeline implements DeviceDetailsIngestionPipelineMBean {
+
+    private static final Log log = LogFactory.getLog(DeviceDetailsIngestionPipeline.class);
+    private static final String MBEAN_NAME = "org.wso2.carbon.device.mgt:type=DeviceDetailsIngestionPipeline";
+    private static final int MAX_WRITE_ATTEMPTS = 2;
+    private static final long SHUTDOWN_TIMEOUT_MILLS = 10000;
+
+    private final DeviceDetailsIngestionConfiguration config;
+    private final DeviceDAO deviceDAO;
+    private final DeviceDetailsDAO deviceDetailsDAO;
+    private final ScheduledExecutorService scheduler;
+    private final ThreadPoolExecutor publisher;
+    private final Object flushLock = new Object();
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+    private Map<Integer, PendingUpdate> pendingUpdates = new LinkedHashMap<>();
+    private boolean flushRequested;
+    private volatile boolean shutdown;
+
+    private final AtomicLong submittedCount = new AtomicLong();
+    private final AtomicLong overflowCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong writtenCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong publishedCount = new AtomicLong();
+    private final AtomicLong publishFailedCount = new AtomicLong();
+    private final AtomicLong publishDroppedCount = new AtomicLong();
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong lastFlushDurationMills = new AtomicLong();
+    private final AtomicLong totalLagMills = new AtomicLong();
+    private final AtomicLong maxLagMills = new AtomicLong();
+
+    public DeviceDetailsIngestionPipeline(DeviceDetailsIngestionConfiguration config) {
+        this.config = config;
+        this.deviceDAO = DeviceManagementDAOFactory.getDeviceDAO();
+        this.deviceDetailsDAO = DeviceManagementDAOFactory.getDeviceDetailsDAO();
+        this.publisher = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(config.getPublisherQueueCapacity()),
+                new IngestionThreadFactory("device-details-ingestion-publisher"));
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                new IngestionThreadFactory("device-details-ingestion-flusher"));
+        this.scheduler.scheduleWithFixedDelay(flushTask, config.getFlushIntervalMills(),
+                config.getFlushIntervalMills(), TimeUnit.MILLISECONDS);
+        this.registerMBean();
+    }
+
+    /**
+     * Queues the device information reported by a device.
+     *
+     * @param device     device which reported the information, with its active enrolment
+     * @param deviceInfo reported device information
+     * @param tenantId   tenant of the device
+     * @return true if the information was queued, false if the pipeline has been shut down or is full and the
+     * information has to be written by the caller
+     */
+    public boolean submitDeviceInfo(Device device, DeviceInfo deviceInfo, int tenantId) {
+        return this.submit(device, deviceInfo, null, tenantId);
+    }
+
+    /**
+     * Queues the location reported by a device.
+     *
+     * @param device         device which reported the location, with its active enrolment
+     * @param deviceLocation reported location
+     * @param tenantId       tenant of the device
+     * @return true if the location was queued, false if the pipeline has been shut down or is full and the location
+     * has to be written by the caller
+     */
+    public boolean submitDeviceLocation(Device device, DeviceLocation deviceLocation, int tenantId) {
+        return this.submit(device, null, deviceLocation, tenantId);
+    }
+
+    private boolean submit(Device device, DeviceInfo deviceInfo, DeviceLocation deviceLocation, int tenantId) {
+        if (shutdown) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        int enrolmentId = device.getEnrolmentInfo().getId();
+        boolean requestFlush = false;
+        synchronized (this) {
+            PendingUpdate pendingUpdate = pendingUpdates.get(enrolmentId);
+            if (pendingUpdate == null) {
+                if (pendingUpdates.size() >= config.getMaxPendingEnrolments()) {
+                    overflowCount.incrementAndGet();
+                    return false;
+                }
+                pendingUpdate = new PendingUpdate(device, tenantId, now);
+                pendingUpdates.put(enrolmentId, pendingUpdate);
+            }
+            DeviceDetailsSnapshot snapshot = pendingUpdate.snapshot;
+            if (deviceInfo != null) {
+                if (snapshot.getDeviceInfo() != null) {
+                    coalescedCount.incrementAndGet();
+                }
+                snapshot.setDeviceInfo(deviceInfo, now);
+            } else {
+                if (snapshot.getLocation() != null) {
+                    coalescedCount.incrementAndGet();
+                }
+                snapshot.setLocation(deviceLocation, now);
+            }
+            if (!flushRequested && pendingUpdates.size() >= config.getBatchSize()) {
+                flushRequested = true;
+                requestFlush = true;
+            }
+        }
+        submittedCount.incrementAndGet();
+        if (requestFlush) {
+            try {
+                scheduler.execute(flushTask);
+            } catch (RejectedExecutionException e) {
+                // The pending updates are written by the shutdown
+                if (log.isDebugEnabled()) {
+                    log.debug("Device details ingestion pipeline is shutting down, skipping the early flush.");
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes all the pending updates, in transactions of the configured batch size.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            Map<Integer, PendingUpdate> updates;
+            synchronized (this) {
+                updates = pendingUpdates;
+                pendingUpdates = new LinkedHashMap<>();
+                flushRequested = false;
+            }
+            if (updates.isEmpty()) {
+                return;
+            }
+            long startTime = System.currentTimeMillis();
+            List<PendingUpdate> batch = new ArrayList<>();
+            for (PendingUpdate pendingUpdate : updates.values()) {
+                batch.add(pendingUpdate);
+                if (batch.size() >= config.getBatchSize()) {
+                    this.write(batch);
+                    batch = new ArrayList<>();
+                }
+            }
+            if (!batch.isEmpty()) {
+                this.write(batch);
+            }
+            long duration = System.currentTimeMillis() - startTime;
+            lastFlushDurationMills.set(duration);
+            flushCount.incrementAndGet();
+            if (log.isDebugEnabled()) {
+                log.debug("Wrote the device details of " + updates.size() + " enrolments in " + duration + " ms.");
+            }
+        }
+    }
+
+    private void write(List<PendingUpdate> batch) {
+        Set<Integer> deviceIds = new LinkedHashSet<>();
+        List<DeviceDetailsSnapshot> snapshots = new ArrayList<>(batch.size());
+        for (PendingUpdate pendingUpdate : batch) {
+            deviceIds.add(pendingUpdate.snapshot.getDeviceId());
+            snapshots.add(pendingUpdate.snapshot);
+        }
+        try {
+            DeviceManagementDAOFactory.beginTransaction();
+            deviceDAO.updateLastUpdatedTimestamps(new ArrayList<>(deviceIds));
+            deviceDetailsDAO.saveDeviceInformation(snapshots);
+            deviceDetailsDAO.saveDeviceLocations(snapshots);
+            DeviceManagementDAOFactory.commitTransaction();
+        } catch (DeviceManagementDAOException | DeviceDetailsMgtDAOException e) {
+            DeviceManagementDAOFactory.rollbackTransaction();
+            log.error("Error occurred while writing the device details of " + batch.size() + " enrolments.", e);
+            this.requeue(batch);
+            return;
+        } catch (TransactionManagementException e) {
+            log.error("Error occurred while initiating the transaction to write the device details of " +
+                    batch.size() + " enrolments.", e);
+            this.requeue(batch);
+            return;
+        } catch (Throwable e) {
+            // Catching everything since an exception would stop the periodic execution of the flush
+            log.error("Unexpected error occurred while writing the device details of " + batch.size() +
+                    " enrolments.", e);
+            failedCount.addAndGet(batch.size());
+            return;
+        } finally {
+            DeviceManagementDAOFactory.closeConnection();
+        }
+        long commitTime = System.currentTimeMillis();
+        for (PendingUpdate pendingUpdate : batch) {
+            this.recordLag(commitTime - pendingUpdate.queuedTime);
+        }
+        writtenCount.addAndGet(batch.size());
+        this.index(batch);
+        this.publish(batch);
+    }
+
+    /**
+     * Queues the updates of a failed batch to be written with the next flush, unless they have already been retried.
+     * Reports of the failed batch which have been superseded by a newer report of the same enrolment are dropped.
+     */
+    private void requeue(List<PendingUpdate> batch) {
+        int dropped = 0;
+        synchronized (this) {
+            for (PendingUpdate pendingUpdate : batch) {
+                int enrolmentId = pendingUpdate.snapshot.getEnrolmentId();
+                if (shutdown || ++pendingUpdate.attempt >= MAX_WRITE_ATTEMPTS) {
+                    dropped++;
+                    continue;
+                }
+                PendingUpdate newerUpdate = pendingUpdates.get(enrolmentId);
+                if (newerUpdate == null) {
+                    pendingUpdates.put(enrolmentId, pendingUpdate);
+                } else {
+                    DeviceDetailsSnapshot failed = pendingUpdate.snapshot;
+                    DeviceDetailsSnapshot newer = newerUpdate.snapshot;
+                    if (newer.getDeviceInfo() == null && failed.getDeviceInfo() != null) {
+                        newer.setDeviceInfo(failed.getDeviceInfo(), failed.getDeviceInfoTimestamp());
+                    }
+                    if (newer.getLocation() == null && failed.getLocation() != null) {
+                        newer.setLocation(failed.getLocation(), failed.getLocationTimestamp());
+                    }
+                }
+            }
+        }
+        failedCount.addAndGet(dropped);
+    }
+
+    private void index(List<PendingUpdate> batch) {
+        DevicePropertyIndex devicePropertyIndex = DeviceManagementDataHolder.getInstance().getDevicePropertyIndex();
+        GeoClusterEngine geoClusterEngine = DeviceManagementDataHolder.getInstance().getGeoClusterEngine();
+        if (devicePropertyIndex == null && geoClusterEngine == null) {
+            return;
+        }
+        for (PendingUpdate pendingUpdate : batch) {
+            DeviceInfo deviceInfo = pendingUpdate.snapshot.getDeviceInfo();
+            if (devicePropertyIndex != null && deviceInfo != null) {
+                devicePropertyIndex.update(pendingUpdate.tenantId, pendingUpdate.snapshot.getEnrolmentId(),
+                        deviceInfo.getDeviceDetailsMap());
+            }
+            DeviceLocation deviceLocation = pendingUpdate.snapshot.getLocation();
+            if (geoClusterEngine != null && deviceLocation != null) {
+                geoClusterEngine.update(pendingUpdate.tenantId, pendingUpdate.device, deviceLocation);
+            }
+        }
+    }
+
+    private void publish(final List<PendingUpdate> batch) {
+        boolean publishDeviceInfo;
+        boolean publishLocation;
+        try {
+            publishDeviceInfo = DeviceManagerUtil.isPublishDeviceInfoResponseEnabled();
+            publishLocation = DeviceManagerUtil.isPublishLocationResponseEnabled();
+        } catch (DeviceManagementException e) {
+            log.error("Error occurred while reading the analytics configuration, device details of " + batch.size() +
+                    " enrolments are not published.", e);
+            return;
+        }
+        if (!publishDeviceInfo && !publishLocation) {
+            return;
+        }
+        final boolean isDeviceInfoPublished = publishDeviceInfo;
+        final boolean isLocationPublished = publishLocation;
+        try {
+            publisher.execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (PendingUpdate pendingUpdate : batch) {
+                        publish(pendingUpdate, isDeviceInfoPublished, isLocationPublished);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            if (shutdown) {
+                publishFailedCount.addAndGet(batch.size());
+                log.warn("Device details ingestion pipeline has been shut down, device details of " + batch.size() +
+                        " enrolments are not published.");
+            } else {
+                publishDroppedCount.addAndGet(batch.size());
+                if (log.isDebugEnabled()) {
+                    log.debug("Device details publisher queue is full, device details of " + batch.size() +
+                            " enrolments are not published.");
+                }
+            }
+        }
+    }
+
+    private void publish(PendingUpdate pendingUpdate, boolean publishDeviceInfo, boolean publishLocation) {
+        DeviceDetailsSnapshot snapshot = pendingUpdate.snapshot;
+        try {
+            PrivilegedCarbonContext.startTenantFlow();
+            PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantId(pendingUpdate.tenantId, true);
+            if (publishDeviceInfo && snapshot.getDeviceInfo() != null) {
+                DeviceDetailsEventPublisher.publishDeviceInfo(pendingUpdate.device, snapshot.getDeviceInfo());
+                publishedCount.incrementAndGet();
+            }
+            if (publishLocation && snapshot.getLocation() != null) {
+                DeviceDetailsEventPublisher.publishDeviceLocation(pendingUpdate.device, snapshot.getLocation());
+                publishedCount.incrementAndGet();
+            }
+        } catch (DataPublisherConfigurationException | RuntimeException e) {
+            publishFailedCount.incrementAndGet();
+            log.error("Error occurred while publishing the device details of enrolment " +
+                    snapshot.getEnrolmentId() + ".", e);
+        } finally {
+            PrivilegedCarbonContext.endTenantFlow();
+        }
+    }
+
+    /**
+     * Stops accepting updates and writes the pending updates.
+     */
+    public void shutdown() {
+        shutdown = true;
+        this.unregisterMBean();
+        scheduler.shutdownNow();
+        this.flush();
+        publisher.shutdown();
+        try {
+            if (!publisher.awaitTermination(SHUTDOWN_TIMEOUT_MILLS, TimeUnit.MILLISECONDS)) {
+                log.warn("Device details ingestion pipeline did not finish publishing the device details in time.");
+                publisher.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            publisher.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public synchronized int getPendingCount() {
+        return pendingUpdates.size();
+    }
+
+    @Override
+    public int getPublisherQueueDepth() {
+        return publisher.getQueue().size();
+    }
+
+    @Override
+    public long getSubmittedCount() {
+        return submittedCount.get();
+    }
+
+    /**
+     * @return number of reports which were handed back to be written synchronously since too many enrolments had
+     * pending updates
+     */
+    @Override
+    public long getOverflowCount() {
+        return overflowCount.get();
+    }
+
+    /**
+     * @return number of reports which were replaced by a newer report of the same enrolment before being written
+     */
+    @Override
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * @return number of enrolments whose pending updates have been written
+     */
+    @Override
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    @Override
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    @Override
+    public long getPublishedCount() {
+        return publishedCount.get();
+    }
+
+    @Override
+    public long getPublishFailedCount() {
+        return publishFailedCount.get();
+    }
+
+    /**
+     * @return number of enrolments whose written updates were not published since the publisher queue was full
+     */
+    @Override
+    public long getPublishDroppedCount() {
+        return publishDroppedCount.get();
+    }
+
+    @Override
+    public long getFlushCount() {
+        return flushCount.get();
+    }
+
+    @Override
+    public long getLastFlushDurationMills() {
+        return lastFlushDurationMills.get();
+    }
+
+    /**
+     * @return average time in milliseconds between the first pending report of an enrolment and the commit which
+     * wrote it
+     */
+    @Override
+    public long getAverageIngestionLagMills() {
+        long written = writtenCount.get();
+        if (written == 0) {
+            return 0;
+        }
+        return totalLagMills.get() / written;
+    }
+
+    @Override
+    public long getMaxIngestionLagMills() {
+        return maxLagMills.get();
+    }
+
+    private void registerMBean() {
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(MBEAN_NAME);
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+            mBeanServer.registerMBean(this, objectName);
+        } catch (InstanceNotFoundException e) {
+            log.warn("Device details ingestion pipeline MBean has been unregistered concurrently", e);
+        } catch (JMException e) {
+            log.error("Error occurred while registering the device details ingestion pipeline MBean", e);
+        }
+    }
+
+    private void unregisterMBean() {
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(MBEAN_NAME);
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+        } catch (InstanceNotFoundException e) {
+            log.warn("Device details ingestion pipeline MBean has been unregistered concurrently", e);
+        } catch (JMException e) {
+            log.error("Error occurred while unregistering the device details ingestion pipeline MBean", e);
+        }
+    }
+
+    private void recordLag(long lag) {
+        totalLagMills.addAndGet(lag);
+        long max = maxLagMills.get();
+        while (lag > max && !maxLagMills.compareAndSet(max, lag)) {
+            max = maxLagMills.get();
+        }
+    }
+
+    private static class PendingUpdate {
+
+        private final Device device;
+        private final int tenantId;
+        private final long queuedTime;
+        private final DeviceDetailsSnapshot snapshot;
+        private int attempt;
+
+        PendingUpdate(Device device, int tenantId, long queuedTime) {
+            this.device = device;
+            this.tenantId = tenantId;
+            this.queuedTime = queuedTime;
+            this.snapshot = new DeviceDetailsSnapshot(device.getId(), device.getEnrolmentInfo().getId());
+        }
+    }
+
+    private static class IngestionThreadFactory implements ThreadFactory {
+
+        private final String namePrefix;
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        IngestionThreadFactory(String namePrefix) {
+            this.namePrefix = namePrefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, namePrefix + "-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
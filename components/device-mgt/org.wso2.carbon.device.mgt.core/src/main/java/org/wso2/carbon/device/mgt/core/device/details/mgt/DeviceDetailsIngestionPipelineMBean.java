@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.device.mgt.core.device.details.mgt;
+
+/**
+ * JMX view of the device details ingestion pipeline, used to watch the pending updates, the publisher queue and the
+ * device detail updates which could not be queued, written or published.
+ */
+public interface DeviceDetailsIngestionPipelineMBean {
+
+    int getPendingCount();
+
+    /**
+     * @return number of written batches waiting to be published to analytics
+     */
+    int getPublisherQueueDepth();
+
+    long getSubmittedCount();
+
+    long getOverflowCount();
+
+    long getCoalescedCount();
+
+    long getWrittenCount();
+
+    long getFailedCount();
+
+    long getPublishedCount();
+
+    long getPublishFailedCount();
+
+    long getPublishDroppedCount();
+
+    long getFlushCount();
+
+    long getLastFlushDurationMills();
+
+    long getAverageIngestionLagMills();
+
+    long getMaxIngestionLagMills();
+
+}
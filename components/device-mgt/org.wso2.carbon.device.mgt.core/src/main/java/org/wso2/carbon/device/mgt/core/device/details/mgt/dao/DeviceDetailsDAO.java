@@ -22,6 +22,7 @@ package org.wso2.carbon.device.mgt.core.device.details.mgt.dao;
 import org.wso2.carbon.device.mgt.common.device.details.DeviceInfo;
 import org.wso2.carbon.device.mgt.common.device.details.DeviceLocation;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -48,6 +49,14 @@ public interface DeviceDetailsDAO {
     void addDeviceProperties(Map<String, String> propertyMap, int deviceId, int enrolmentId)
             throws DeviceDetailsMgtDAOException;
 
+    /**
+     * This method will replace the device information and the device properties of a set of enrolments in JDBC
+     * batches. Snapshots without device information are skipped.
+     * @param snapshots - snapshots of the enrolments
+     * @throws DeviceDetailsMgtDAOException
+     */
+    void saveDeviceInformation(List<DeviceDetailsSnapshot> snapshots) throws DeviceDetailsMgtDAOException;
+
     /**
      * This method will return the device information when device id is provided.
      * @param deviceId - device Id
@@ -56,6 +65,18 @@ public interface DeviceDetailsDAO {
      */
     DeviceInfo getDeviceInformation(int deviceId, int enrolmentId) throws DeviceDetailsMgtDAOException;
 
+    /**
+     * This method will return the device information, including the device properties, of the given devices of a
+     * device type in a single pass. Devices without device information are left out.
+     * @param type - device type
+     * @param deviceIdentifiers - identifiers of the devices
+     * @param tenantId - tenant id of the devices
+     * @return list of device information
+     * @throws DeviceDetailsMgtDAOException
+     */
+    List<DeviceInfo> getDevicesInformation(String type, List<String> deviceIdentifiers, int tenantId)
+            throws DeviceDetailsMgtDAOException;
+
     /**
      * This method will return the device properties from database.
      * @param deviceId
@@ -85,6 +106,14 @@ public interface DeviceDetailsDAO {
      */
     void addDeviceLocation(DeviceLocation deviceLocation, int enrollmentId) throws DeviceDetailsMgtDAOException;
 
+    /**
+     * This method will replace the locations of a set of enrolments in JDBC batches. Snapshots without a location
+     * are skipped.
+     * @param snapshots - snapshots of the enrolments
+     * @throws DeviceDetailsMgtDAOException
+     */
+    void saveDeviceLocations(List<DeviceDetailsSnapshot> snapshots) throws DeviceDetailsMgtDAOException;
+
     /**
      * This method will return the device location object when the device id is provided.
      * @param deviceId - id of the device.
@@ -100,6 +129,18 @@ public interface DeviceDetailsDAO {
      */
     void deleteDeviceLocation(int deviceId, int enrollmentId) throws DeviceDetailsMgtDAOException;
 
+    /**
+     * This method will return the locations of the given devices of a device type. Devices without a location get
+     * an empty location.
+     * @param type - device type
+     * @param deviceIdentifiers - identifiers of the devices
+     * @param tenantId - tenant id of the devices
+     * @return list of device locations
+     * @throws DeviceDetailsMgtDAOException
+     */
+    List<DeviceLocation> getDeviceLocations(String type, List<String> deviceIdentifiers, int tenantId)
+            throws DeviceDetailsMgtDAOException;
+
 //    /**
 //     * This method will add device application to database.
 //     * @param deviceApplication - Device application
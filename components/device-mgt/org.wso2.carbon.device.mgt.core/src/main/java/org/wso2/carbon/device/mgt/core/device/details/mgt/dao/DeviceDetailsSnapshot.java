@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.device.details.mgt.dao;
+
+import org.wso2.carbon.device.mgt.common.device.details.DeviceInfo;
+import org.wso2.carbon.device.mgt.common.device.details.DeviceLocation;
+
+/**
+ * Latest device information and location reported by an enrolment, which are written to the database together with
+ * the snapshots of other enrolments.
+ */
+public class DeviceDetailsSnapshot {
+
+    private final int deviceId;
+    private final int enrolmentId;
+    private DeviceInfo deviceInfo;
+    private long deviceInfoTimestamp;
+    private DeviceLocation location;
+    private long locationTimestamp;
+
+    public DeviceDetailsSnapshot(int deviceId, int enrolmentId) {
+        this.deviceId = deviceId;
+        this.enrolmentId = enrolmentId;
+    }
+
+    public int getDeviceId() {
+        return deviceId;
+    }
+
+    public int getEnrolmentId() {
+        return enrolmentId;
+    }
+
+    public DeviceInfo getDeviceInfo() {
+        return deviceInfo;
+    }
+
+    /**
+     * @param deviceInfo device information reported by the device
+     * @param timestamp  time at which the device information was reported
+     */
+    public void setDeviceInfo(DeviceInfo deviceInfo, long timestamp) {
+        this.deviceInfo = deviceInfo;
+        this.deviceInfoTimestamp = timestamp;
+    }
+
+    public long getDeviceInfoTimestamp() {
+        return deviceInfoTimestamp;
+    }
+
+    public DeviceLocation getLocation() {
+        return location;
+    }
+
+    /**
+     * @param location  location reported by the device
+     * @param timestamp time at which the location was reported
+     */
+    public void setLocation(DeviceLocation location, long timestamp) {
+        this.location = location;
+        this.locationTimestamp = timestamp;
+    }
+
+    public long getLocationTimestamp() {
+        return locationTimestamp;
+    }
+}
@@ -21,11 +21,13 @@ package org.wso2.carbon.device.mgt.core.device.details.mgt.dao.impl;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
 import org.wso2.carbon.device.mgt.common.device.details.DeviceInfo;
 import org.wso2.carbon.device.mgt.common.device.details.DeviceLocation;
 import org.wso2.carbon.device.mgt.core.dao.DeviceManagementDAOFactory;
 import org.wso2.carbon.device.mgt.core.dao.util.DeviceManagementDAOUtil;
 import org.wso2.carbon.device.mgt.core.device.details.mgt.dao.DeviceDetailsDAO;
+import org.wso2.carbon.device.mgt.core.device.details.mgt.dao.DeviceDetailsSnapshot;
 import org.wso2.carbon.device.mgt.core.device.details.mgt.dao.DeviceDetailsMgtDAOException;
 import org.wso2.carbon.device.mgt.core.geo.geoHash.GeoHashGenerator;
 
@@ -33,13 +35,27 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 public class DeviceDetailsDAOImpl implements DeviceDetailsDAO {
 
     private static Log log = LogFactory.getLog(DeviceDetailsDAOImpl.class);
 
+    private static final String INSERT_DEVICE_DETAIL_SQL = "INSERT INTO DM_DEVICE_DETAIL (DEVICE_ID, DEVICE_MODEL, " +
+            "VENDOR, OS_VERSION, OS_BUILD_DATE, BATTERY_LEVEL, INTERNAL_TOTAL_MEMORY, INTERNAL_AVAILABLE_MEMORY, " +
+            "EXTERNAL_TOTAL_MEMORY, EXTERNAL_AVAILABLE_MEMORY,  CONNECTION_TYPE, " +
+            "SSID, CPU_USAGE, TOTAL_RAM_MEMORY, AVAILABLE_RAM_MEMORY, PLUGGED_IN, UPDATE_TIMESTAMP, ENROLMENT_ID) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_DEVICE_PROPERTY_SQL = "INSERT INTO DM_DEVICE_INFO (DEVICE_ID, KEY_FIELD, " +
+            "VALUE_FIELD, ENROLMENT_ID) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_DEVICE_LOCATION_SQL = "INSERT INTO DM_DEVICE_LOCATION (DEVICE_ID, LATITUDE, " +
+            "LONGITUDE, STREET1, STREET2, CITY, ZIP, STATE, COUNTRY, GEO_HASH, UPDATE_TIMESTAMP, ENROLMENT_ID) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
     @Override
     public void addDeviceInformation(int deviceId, int enrolmentId, DeviceInfo deviceInfo)
             throws DeviceDetailsMgtDAOException {
@@ -49,30 +65,8 @@ public class DeviceDetailsDAOImpl implements DeviceDetailsDAO {
         try {
             conn = this.getConnection();
 
-            stmt = conn.prepareStatement("INSERT INTO DM_DEVICE_DETAIL (DEVICE_ID, DEVICE_MODEL, " +
-                    "VENDOR, OS_VERSION, OS_BUILD_DATE, BATTERY_LEVEL, INTERNAL_TOTAL_MEMORY, INTERNAL_AVAILABLE_MEMORY, " +
-                    "EXTERNAL_TOTAL_MEMORY, EXTERNAL_AVAILABLE_MEMORY,  CONNECTION_TYPE, " +
-                    "SSID, CPU_USAGE, TOTAL_RAM_MEMORY, AVAILABLE_RAM_MEMORY, PLUGGED_IN, UPDATE_TIMESTAMP, ENROLMENT_ID) " +
-                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
-
-            stmt.setInt(1, deviceId);
-            stmt.setString(2, deviceInfo.getDeviceModel());
-            stmt.setString(3, deviceInfo.getVendor());
-            stmt.setString(4, deviceInfo.getOsVersion());
-            stmt.setString(5, deviceInfo.getOsBuildDate());
-            stmt.setDouble(6, deviceInfo.getBatteryLevel());
-            stmt.setDouble(7, deviceInfo.getInternalTotalMemory());
-            stmt.setDouble(8, deviceInfo.getInternalAvailableMemory());
-            stmt.setDouble(9, deviceInfo.getExternalTotalMemory());
-            stmt.setDouble(10, deviceInfo.getExternalAvailableMemory());
-            stmt.setString(11, deviceInfo.getConnectionType());
-            stmt.setString(12, deviceInfo.getSsid());
-            stmt.setDouble(13, deviceInfo.getCpuUsage());
-            stmt.setDouble(14, deviceInfo.getTotalRAMMemory());
-            stmt.setDouble(15, deviceInfo.getAvailableRAMMemory());
-            stmt.setBoolean(16, deviceInfo.isPluggedIn());
-            stmt.setLong(17, System.currentTimeMillis());
-            stmt.setInt(18, enrolmentId);
+            stmt = conn.prepareStatement(INSERT_DEVICE_DETAIL_SQL);
+            this.setDeviceInformation(stmt, deviceId, enrolmentId, deviceInfo, System.currentTimeMillis());
 
             stmt.execute();
 
@@ -98,8 +92,7 @@ public class DeviceDetailsDAOImpl implements DeviceDetailsDAO {
         PreparedStatement stmt = null;
         try {
             conn = this.getConnection();
-            stmt = conn.prepareStatement("INSERT INTO DM_DEVICE_INFO (DEVICE_ID, KEY_FIELD, VALUE_FIELD, ENROLMENT_ID) " +
-                    "VALUES (?, ?, ?, ?)");
+            stmt = conn.prepareStatement(INSERT_DEVICE_PROPERTY_SQL);
 
             for (Map.Entry<String, String> entry : propertyMap.entrySet()) {
                 stmt.setInt(1, deviceId);
@@ -117,6 +110,62 @@ public class DeviceDetailsDAOImpl implements DeviceDetailsDAO {
 
     }
 
+    @Override
+    public void saveDeviceInformation(List<DeviceDetailsSnapshot> snapshots) throws DeviceDetailsMgtDAOException {
+        List<DeviceDetailsSnapshot> infoSnapshots = new ArrayList<>();
+        List<Integer> enrolmentIds = new ArrayList<>();
+        for (DeviceDetailsSnapshot snapshot : snapshots) {
+            if (snapshot.getDeviceInfo() != null) {
+                infoSnapshots.add(snapshot);
+                enrolmentIds.add(snapshot.getEnrolmentId());
+            }
+        }
+        if (infoSnapshots.isEmpty()) {
+            return;
+        }
+        Connection conn;
+        PreparedStatement stmt = null;
+        try {
+            conn = this.getConnection();
+            this.deleteByEnrolments(conn, "DM_DEVICE_DETAIL", enrolmentIds);
+            this.deleteByEnrolments(conn, "DM_DEVICE_INFO", enrolmentIds);
+
+            stmt = conn.prepareStatement(INSERT_DEVICE_DETAIL_SQL);
+            for (DeviceDetailsSnapshot snapshot : infoSnapshots) {
+                this.setDeviceInformation(stmt, snapshot.getDeviceId(), snapshot.getEnrolmentId(),
+                        snapshot.getDeviceInfo(), snapshot.getDeviceInfoTimestamp());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            DeviceManagementDAOUtil.cleanupResources(stmt, null);
+
+            stmt = conn.prepareStatement(INSERT_DEVICE_PROPERTY_SQL);
+            boolean hasProperties = false;
+            for (DeviceDetailsSnapshot snapshot : infoSnapshots) {
+                Map<String, String> properties = snapshot.getDeviceInfo().getDeviceDetailsMap();
+                if (properties == null) {
+                    continue;
+                }
+                for (Map.Entry<String, String> entry : properties.entrySet()) {
+                    stmt.setInt(1, snapshot.getDeviceId());
+                    stmt.setString(2, entry.getKey());
+                    stmt.setString(3, entry.getValue());
+                    stmt.setInt(4, snapshot.getEnrolmentId());
+                    stmt.addBatch();
+                    hasProperties = true;
+                }
+            }
+            if (hasProperties) {
+                stmt.executeBatch();
+            }
+        } catch (SQLException e) {
+            throw new DeviceDetailsMgtDAOException("Error occurred while saving the details of " +
+                    infoSnapshots.size() + " devices.", e);
+        } finally {
+            DeviceManagementDAOUtil.cleanupResources(stmt, null);
+        }
+    }
+
     @Override
     public DeviceInfo getDeviceInformation(int deviceId, int enrolmentId) throws DeviceDetailsMgtDAOException {
         Connection conn;
@@ -133,27 +182,7 @@ public class DeviceDetailsDAOImpl implements DeviceDetailsDAO {
             rs = stmt.executeQuery();
 
             if (rs.next()) {
-                deviceInfo = new DeviceInfo();
-//                deviceInfo.setIMEI(rs.getString("IMEI"));
-//                deviceInfo.setIMSI(rs.getString("IMSI"));
-                deviceInfo.setDeviceModel(rs.getString("DEVICE_MODEL"));
-                deviceInfo.setVendor(rs.getString("VENDOR"));
-                deviceInfo.setOsVersion(rs.getString("OS_VERSION"));
-                deviceInfo.setOsBuildDate(rs.getString("OS_BUILD_DATE"));
-                deviceInfo.setBatteryLevel(rs.getDouble("BATTERY_LEVEL"));
-                deviceInfo.setInternalTotalMemory(rs.getDouble("INTERNAL_TOTAL_MEMORY"));
-                deviceInfo.setInternalAvailableMemory(rs.getDouble("INTERNAL_AVAILABLE_MEMORY"));
-                deviceInfo.setExternalTotalMemory(rs.getDouble("EXTERNAL_TOTAL_MEMORY"));
-                deviceInfo.setExternalAvailableMemory(rs.getDouble("EXTERNAL_AVAILABLE_MEMORY"));
-//                deviceInfo.setOperator(rs.getString("OPERATOR"));
-                deviceInfo.setConnectionType(rs.getString("CONNECTION_TYPE"));
-//                deviceInfo.setMobileSignalStrength(rs.getDouble("MOBILE_SIGNAL_STRENGTH"));
-                deviceInfo.setSsid(rs.getString("SSID"));
-                deviceInfo.setCpuUsage(rs.getDouble("CPU_USAGE"));
-                deviceInfo.setTotalRAMMemory(rs.getDouble("TOTAL_RAM_MEMORY"));
-                deviceInfo.setAvailableRAMMemory(rs.getDouble("AVAILABLE_RAM_MEMORY"));
-                deviceInfo.setPluggedIn(rs.getBoolean("PLUGGED_IN"));
-                deviceInfo.setUpdatedTime(new java.util.Date(rs.getLong("UPDATE_TIMESTAMP")));
+                deviceInfo = this.loadDeviceInfo(rs);
             }
 
             return deviceInfo;
@@ -190,6 +219,71 @@ public class DeviceDetailsDAOImpl implements DeviceDetailsDAO {
         return map;
     }
 
+    @Override
+    public List<DeviceInfo> getDevicesInformation(String type, List<String> deviceIdentifiers, int tenantId)
+            throws DeviceDetailsMgtDAOException {
+        List<DeviceInfo> deviceInfos = new ArrayList<>();
+        if (deviceIdentifiers.isEmpty()) {
+            return deviceInfos;
+        }
+        Connection conn;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            conn = this.getConnection();
+            for (List<String> chunk : DeviceManagementDAOUtil.partition(deviceIdentifiers,
+                    DeviceManagementDAOUtil.MAX_IN_CLAUSE_SIZE)) {
+                String sql = "SELECT d.ID AS DEVICE_ID, e.ID AS ENROLMENT_ID, dd.DEVICE_MODEL, dd.VENDOR, dd.OS_VERSION, " +
+                        "dd.OS_BUILD_DATE, dd.BATTERY_LEVEL, dd.INTERNAL_TOTAL_MEMORY, dd.INTERNAL_AVAILABLE_MEMORY, " +
+                        "dd.EXTERNAL_TOTAL_MEMORY, dd.EXTERNAL_AVAILABLE_MEMORY, dd.CONNECTION_TYPE, dd.SSID, " +
+                        "dd.CPU_USAGE, dd.TOTAL_RAM_MEMORY, dd.AVAILABLE_RAM_MEMORY, dd.PLUGGED_IN, " +
+                        "dd.UPDATE_TIMESTAMP, di.KEY_FIELD, di.VALUE_FIELD " +
+                        "FROM DM_DEVICE d INNER JOIN DM_DEVICE_TYPE t ON t.ID = d.DEVICE_TYPE_ID " +
+                        "INNER JOIN DM_ENROLMENT e ON e.DEVICE_ID = d.ID AND e.TENANT_ID = d.TENANT_ID " +
+                        "INNER JOIN DM_DEVICE_DETAIL dd ON dd.DEVICE_ID = d.ID AND dd.ENROLMENT_ID = e.ID " +
+                        "LEFT OUTER JOIN DM_DEVICE_INFO di ON di.DEVICE_ID = d.ID AND di.ENROLMENT_ID = e.ID " +
+                        "WHERE t.NAME = ? AND d.TENANT_ID = ? AND d.DEVICE_IDENTIFICATION IN (" +
+                        DeviceManagementDAOUtil.getInClausePlaceholders(chunk.size()) + ") " +
+                        "ORDER BY e.DATE_OF_LAST_UPDATE DESC, e.STATUS ASC, e.ID DESC";
+                stmt = conn.prepareStatement(sql);
+                int paramIndex = 1;
+                stmt.setString(paramIndex++, type);
+                stmt.setInt(paramIndex++, tenantId);
+                for (String deviceIdentifier : chunk) {
+                    stmt.setString(paramIndex++, deviceIdentifier);
+                }
+                rs = stmt.executeQuery();
+                // The rows of the latest enrolment of a device come first, and only that enrolment is considered.
+                Map<Integer, Integer> enrolmentIds = new HashMap<>();
+                Map<Integer, DeviceInfo> deviceInfoMap = new LinkedHashMap<>();
+                while (rs.next()) {
+                    int deviceId = rs.getInt("DEVICE_ID");
+                    int enrolmentId = rs.getInt("ENROLMENT_ID");
+                    DeviceInfo deviceInfo = deviceInfoMap.get(deviceId);
+                    if (deviceInfo == null) {
+                        deviceInfo = this.loadDeviceInfo(rs);
+                        deviceInfoMap.put(deviceId, deviceInfo);
+                        enrolmentIds.put(deviceId, enrolmentId);
+                    } else if (enrolmentIds.get(deviceId) != enrolmentId) {
+                        continue;
+                    }
+                    String key = rs.getString("KEY_FIELD");
+                    if (key != null) {
+                        deviceInfo.getDeviceDetailsMap().put(key, rs.getString("VALUE_FIELD"));
+                    }
+                }
+                deviceInfos.addAll(deviceInfoMap.values());
+                DeviceManagementDAOUtil.cleanupResources(stmt, rs);
+            }
+        } catch (SQLException e) {
+            throw new DeviceDetailsMgtDAOException("Error occurred while fetching the details of the devices of " +
+                    "type '" + type + "'", e);
+        } finally {
+            DeviceManagementDAOUtil.cleanupResources(stmt, rs);
+        }
+        return deviceInfos;
+    }
+
     @Override
     public void deleteDeviceInformation(int deviceId, int enrollmentId) throws DeviceDetailsMgtDAOException {
 
@@ -237,21 +331,9 @@ public class DeviceDetailsDAOImpl implements DeviceDetailsDAO {
         PreparedStatement stmt = null;
         try {
             conn = this.getConnection();
-            stmt = conn.prepareStatement("INSERT INTO DM_DEVICE_LOCATION (DEVICE_ID, LATITUDE, LONGITUDE, STREET1, " +
-                    "STREET2, CITY, ZIP, STATE, COUNTRY, GEO_HASH, UPDATE_TIMESTAMP, ENROLMENT_ID) " +
-                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
-            stmt.setInt(1, deviceLocation.getDeviceId());
-            stmt.setDouble(2, deviceLocation.getLatitude());
-            stmt.setDouble(3, deviceLocation.getLongitude());
-            stmt.setString(4, deviceLocation.getStreet1());
-            stmt.setString(5, deviceLocation.getStreet2());
-            stmt.setString(6, deviceLocation.getCity());
-            stmt.setString(7, deviceLocation.getZip());
-            stmt.setString(8, deviceLocation.getState());
-            stmt.setString(9, deviceLocation.getCountry());
-            stmt.setString(10, GeoHashGenerator.encodeGeohash(deviceLocation));
-            stmt.setLong(11, System.currentTimeMillis());
-            stmt.setInt(12, enrollmentId);
+            stmt = conn.prepareStatement(INSERT_DEVICE_LOCATION_SQL);
+            this.setDeviceLocation(stmt, deviceLocation.getDeviceId(), enrollmentId, deviceLocation,
+                    System.currentTimeMillis());
             stmt.execute();
         } catch (SQLException e) {
             throw new DeviceDetailsMgtDAOException("Error occurred while adding the device location to database.", e);
@@ -260,6 +342,40 @@ public class DeviceDetailsDAOImpl implements DeviceDetailsDAO {
         }
     }
 
+    @Override
+    public void saveDeviceLocations(List<DeviceDetailsSnapshot> snapshots) throws DeviceDetailsMgtDAOException {
+        List<DeviceDetailsSnapshot> locationSnapshots = new ArrayList<>();
+        List<Integer> enrolmentIds = new ArrayList<>();
+        for (DeviceDetailsSnapshot snapshot : snapshots) {
+            if (snapshot.getLocation() != null) {
+                locationSnapshots.add(snapshot);
+                enrolmentIds.add(snapshot.getEnrolmentId());
+            }
+        }
+        if (locationSnapshots.isEmpty()) {
+            return;
+        }
+        Connection conn;
+        PreparedStatement stmt = null;
+        try {
+            conn = this.getConnection();
+            this.deleteByEnrolments(conn, "DM_DEVICE_LOCATION", enrolmentIds);
+
+            stmt = conn.prepareStatement(INSERT_DEVICE_LOCATION_SQL);
+            for (DeviceDetailsSnapshot snapshot : locationSnapshots) {
+                this.setDeviceLocation(stmt, snapshot.getDeviceId(), snapshot.getEnrolmentId(),
+                        snapshot.getLocation(), snapshot.getLocationTimestamp());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        } catch (SQLException e) {
+            throw new DeviceDetailsMgtDAOException("Error occurred while saving the locations of " +
+                    locationSnapshots.size() + " devices.", e);
+        } finally {
+            DeviceManagementDAOUtil.cleanupResources(stmt, null);
+        }
+    }
+
     @Override
     public DeviceLocation getDeviceLocation(int deviceId, int enrollmentId) throws DeviceDetailsMgtDAOException {
 
@@ -277,15 +393,7 @@ public class DeviceDetailsDAOImpl implements DeviceDetailsDAO {
 
             while (rs.next()) {
                 location.setDeviceId(deviceId);
-                location.setLatitude(rs.getDouble("LATITUDE"));
-                location.setLongitude(rs.getDouble("LONGITUDE"));
-                location.setStreet1(rs.getString("STREET1"));
-                location.setStreet2(rs.getString("STREET2"));
-                location.setCity(rs.getString("CITY"));
-                location.setZip(rs.getString("ZIP"));
-                location.setState(rs.getString("STATE"));
-                location.setCountry(rs.getString("COUNTRY"));
-                location.setUpdatedTime(new java.util.Date(rs.getLong("UPDATE_TIMESTAMP")));
+                this.loadDeviceLocation(rs, location);
             }
             location.setDeviceId(deviceId);
 
@@ -317,6 +425,157 @@ public class DeviceDetailsDAOImpl implements DeviceDetailsDAO {
         }
     }
 
+    @Override
+    public List<DeviceLocation> getDeviceLocations(String type, List<String> deviceIdentifiers, int tenantId)
+            throws DeviceDetailsMgtDAOException {
+        List<DeviceLocation> locations = new ArrayList<>();
+        if (deviceIdentifiers.isEmpty()) {
+            return locations;
+        }
+        Connection conn;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            conn = this.getConnection();
+            for (List<String> chunk : DeviceManagementDAOUtil.partition(deviceIdentifiers,
+                    DeviceManagementDAOUtil.MAX_IN_CLAUSE_SIZE)) {
+                String sql = "SELECT d.ID AS DEVICE_ID, d.DEVICE_IDENTIFICATION, l.LATITUDE, l.LONGITUDE, l.STREET1, " +
+                        "l.STREET2, l.CITY, l.ZIP, l.STATE, l.COUNTRY, l.UPDATE_TIMESTAMP " +
+                        "FROM DM_DEVICE d INNER JOIN DM_DEVICE_TYPE t ON t.ID = d.DEVICE_TYPE_ID " +
+                        "INNER JOIN DM_ENROLMENT e ON e.DEVICE_ID = d.ID AND e.TENANT_ID = d.TENANT_ID " +
+                        "LEFT OUTER JOIN DM_DEVICE_LOCATION l ON l.DEVICE_ID = d.ID AND l.ENROLMENT_ID = e.ID " +
+                        "WHERE t.NAME = ? AND d.TENANT_ID = ? AND d.DEVICE_IDENTIFICATION IN (" +
+                        DeviceManagementDAOUtil.getInClausePlaceholders(chunk.size()) + ") " +
+                        "ORDER BY e.DATE_OF_LAST_UPDATE DESC, e.STATUS ASC, e.ID DESC";
+                stmt = conn.prepareStatement(sql);
+                int paramIndex = 1;
+                stmt.setString(paramIndex++, type);
+                stmt.setInt(paramIndex++, tenantId);
+                for (String deviceIdentifier : chunk) {
+                    stmt.setString(paramIndex++, deviceIdentifier);
+                }
+                rs = stmt.executeQuery();
+                // The row of the latest enrolment of a device comes first
+                Map<Integer, DeviceLocation> locationMap = new LinkedHashMap<>();
+                while (rs.next()) {
+                    int deviceId = rs.getInt("DEVICE_ID");
+                    if (locationMap.containsKey(deviceId)) {
+                        continue;
+                    }
+                    DeviceLocation location = new DeviceLocation();
+                    location.setDeviceId(deviceId);
+                    location.setDeviceIdentifier(new DeviceIdentifier(rs.getString("DEVICE_IDENTIFICATION"), type));
+                    if (rs.getObject("LATITUDE") != null) {
+                        this.loadDeviceLocation(rs, location);
+                    }
+                    locationMap.put(deviceId, location);
+                }
+                locations.addAll(locationMap.values());
+                DeviceManagementDAOUtil.cleanupResources(stmt, rs);
+            }
+        } catch (SQLException e) {
+            throw new DeviceDetailsMgtDAOException("Error occurred while fetching the locations of the devices of " +
+                    "type '" + type + "'", e);
+        } finally {
+            DeviceManagementDAOUtil.cleanupResources(stmt, rs);
+        }
+        return locations;
+    }
+
+    private void setDeviceInformation(PreparedStatement stmt, int deviceId, int enrolmentId, DeviceInfo deviceInfo,
+                                      long timestamp) throws SQLException {
+        stmt.setInt(1, deviceId);
+        stmt.setString(2, deviceInfo.getDeviceModel());
+        stmt.setString(3, deviceInfo.getVendor());
+        stmt.setString(4, deviceInfo.getOsVersion());
+        stmt.setString(5, deviceInfo.getOsBuildDate());
+        stmt.setDouble(6, deviceInfo.getBatteryLevel());
+        stmt.setDouble(7, deviceInfo.getInternalTotalMemory());
+        stmt.setDouble(8, deviceInfo.getInternalAvailableMemory());
+        stmt.setDouble(9, deviceInfo.getExternalTotalMemory());
+        stmt.setDouble(10, deviceInfo.getExternalAvailableMemory());
+        stmt.setString(11, deviceInfo.getConnectionType());
+        stmt.setString(12, deviceInfo.getSsid());
+        stmt.setDouble(13, deviceInfo.getCpuUsage());
+        stmt.setDouble(14, deviceInfo.getTotalRAMMemory());
+        stmt.setDouble(15, deviceInfo.getAvailableRAMMemory());
+        stmt.setBoolean(16, deviceInfo.isPluggedIn());
+        stmt.setLong(17, timestamp);
+        stmt.setInt(18, enrolmentId);
+    }
+
+    private void setDeviceLocation(PreparedStatement stmt, int deviceId, int enrolmentId,
+                                   DeviceLocation deviceLocation, long timestamp) throws SQLException {
+        stmt.setInt(1, deviceId);
+        stmt.setDouble(2, deviceLocation.getLatitude());
+        stmt.setDouble(3, deviceLocation.getLongitude());
+        stmt.setString(4, deviceLocation.getStreet1());
+        stmt.setString(5, deviceLocation.getStreet2());
+        stmt.setString(6, deviceLocation.getCity());
+        stmt.setString(7, deviceLocation.getZip());
+        stmt.setString(8, deviceLocation.getState());
+        stmt.setString(9, deviceLocation.getCountry());
+        stmt.setString(10, GeoHashGenerator.encodeGeohash(deviceLocation));
+        stmt.setLong(11, timestamp);
+        stmt.setInt(12, enrolmentId);
+    }
+
+    private void deleteByEnrolments(Connection conn, String table, List<Integer> enrolmentIds) throws SQLException {
+        PreparedStatement stmt = null;
+        try {
+            for (List<Integer> chunk : DeviceManagementDAOUtil.partition(enrolmentIds,
+                    DeviceManagementDAOUtil.MAX_IN_CLAUSE_SIZE)) {
+                stmt = conn.prepareStatement("DELETE FROM " + table + " WHERE ENROLMENT_ID IN (" +
+                        DeviceManagementDAOUtil.getInClausePlaceholders(chunk.size()) + ")");
+                int paramIndex = 1;
+                for (Integer enrolmentId : chunk) {
+                    stmt.setInt(paramIndex++, enrolmentId);
+                }
+                stmt.executeUpdate();
+                DeviceManagementDAOUtil.cleanupResources(stmt, null);
+            }
+        } finally {
+            DeviceManagementDAOUtil.cleanupResources(stmt, null);
+        }
+    }
+
+    private DeviceInfo loadDeviceInfo(ResultSet rs) throws SQLException {
+        DeviceInfo deviceInfo = new DeviceInfo();
+//        deviceInfo.setIMEI(rs.getString("IMEI"));
+//        deviceInfo.setIMSI(rs.getString("IMSI"));
+        deviceInfo.setDeviceModel(rs.getString("DEVICE_MODEL"));
+        deviceInfo.setVendor(rs.getString("VENDOR"));
+        deviceInfo.setOsVersion(rs.getString("OS_VERSION"));
+        deviceInfo.setOsBuildDate(rs.getString("OS_BUILD_DATE"));
+        deviceInfo.setBatteryLevel(rs.getDouble("BATTERY_LEVEL"));
+        deviceInfo.setInternalTotalMemory(rs.getDouble("INTERNAL_TOTAL_MEMORY"));
+        deviceInfo.setInternalAvailableMemory(rs.getDouble("INTERNAL_AVAILABLE_MEMORY"));
+        deviceInfo.setExternalTotalMemory(rs.getDouble("EXTERNAL_TOTAL_MEMORY"));
+        deviceInfo.setExternalAvailableMemory(rs.getDouble("EXTERNAL_AVAILABLE_MEMORY"));
+//        deviceInfo.setOperator(rs.getString("OPERATOR"));
+        deviceInfo.setConnectionType(rs.getString("CONNECTION_TYPE"));
+//        deviceInfo.setMobileSignalStrength(rs.getDouble("MOBILE_SIGNAL_STRENGTH"));
+        deviceInfo.setSsid(rs.getString("SSID"));
+        deviceInfo.setCpuUsage(rs.getDouble("CPU_USAGE"));
+        deviceInfo.setTotalRAMMemory(rs.getDouble("TOTAL_RAM_MEMORY"));
+        deviceInfo.setAvailableRAMMemory(rs.getDouble("AVAILABLE_RAM_MEMORY"));
+        deviceInfo.setPluggedIn(rs.getBoolean("PLUGGED_IN"));
+        deviceInfo.setUpdatedTime(new java.util.Date(rs.getLong("UPDATE_TIMESTAMP")));
+        return deviceInfo;
+    }
+
+    private void loadDeviceLocation(ResultSet rs, DeviceLocation location) throws SQLException {
+        location.setLatitude(rs.getDouble("LATITUDE"));
+        location.setLongitude(rs.getDouble("LONGITUDE"));
+        location.setStreet1(rs.getString("STREET1"));
+        location.setStreet2(rs.getString("STREET2"));
+        location.setCity(rs.getString("CITY"));
+        location.setZip(rs.getString("ZIP"));
+        location.setState(rs.getString("STATE"));
+        location.setCountry(rs.getString("COUNTRY"));
+        location.setUpdatedTime(new java.util.Date(rs.getLong("UPDATE_TIMESTAMP")));
+    }
+
     private Connection getConnection() throws SQLException {
         return DeviceManagementDAOFactory.getConnection();
     }
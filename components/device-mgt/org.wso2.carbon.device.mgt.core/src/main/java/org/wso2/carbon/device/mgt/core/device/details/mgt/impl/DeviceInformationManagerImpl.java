@@ -32,17 +32,20 @@ import org.wso2.carbon.device.mgt.common.device.details.DeviceLocation;
 import org.wso2.carbon.device.mgt.core.dao.DeviceDAO;
 import org.wso2.carbon.device.mgt.core.dao.DeviceManagementDAOException;
 import org.wso2.carbon.device.mgt.core.dao.DeviceManagementDAOFactory;
+import org.wso2.carbon.device.mgt.core.device.details.mgt.DeviceDetailsEventPublisher;
+import org.wso2.carbon.device.mgt.core.device.details.mgt.DeviceDetailsIngestionPipeline;
 import org.wso2.carbon.device.mgt.core.device.details.mgt.DeviceDetailsMgtException;
 import org.wso2.carbon.device.mgt.core.device.details.mgt.DeviceInformationManager;
 import org.wso2.carbon.device.mgt.core.device.details.mgt.dao.DeviceDetailsDAO;
 import org.wso2.carbon.device.mgt.core.device.details.mgt.dao.DeviceDetailsMgtDAOException;
+import org.wso2.carbon.device.mgt.core.geo.cluster.GeoClusterEngine;
 import org.wso2.carbon.device.mgt.core.internal.DeviceManagementDataHolder;
+import org.wso2.carbon.device.mgt.core.search.mgt.index.DevicePropertyIndex;
 import org.wso2.carbon.device.mgt.core.util.DeviceManagerUtil;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -51,8 +54,6 @@ public class DeviceInformationManagerImpl implements DeviceInformationManager {
     private DeviceDetailsDAO deviceDetailsDAO;
     private DeviceDAO deviceDAO;
     private static final Log log = LogFactory.getLog(DeviceInformationManagerImpl.class);
-    private static final String LOCATION_EVENT_STREAM_DEFINITION = "org.wso2.iot.LocationStream";
-    private static final String DEVICE_INFO_EVENT_STREAM_DEFINITION = "org.wso2.iot.DeviceInfoStream";
 
 
     public DeviceInformationManagerImpl() {
@@ -62,12 +63,21 @@ public class DeviceInformationManagerImpl implements DeviceInformationManager {
 
     @Override
     public void addDeviceInfo(DeviceIdentifier deviceId, DeviceInfo deviceInfo) throws DeviceDetailsMgtException {
+        Device device;
+        try {
+            device = DeviceManagementDataHolder.getInstance().getDeviceManagementProvider().getDevice(deviceId, false);
+        } catch (DeviceManagementException e) {
+            throw new DeviceDetailsMgtException("Error occurred while retrieving the device information.", e);
+        }
+        int tenantId = CarbonContext.getThreadLocalCarbonContext().getTenantId();
+        DeviceDetailsIngestionPipeline ingestionPipeline = DeviceManagementDataHolder.getInstance()
+                .getDeviceDetailsIngestionPipeline();
+        if (ingestionPipeline != null && ingestionPipeline.submitDeviceInfo(device, deviceInfo, tenantId)) {
+            return;
+        }
         try {
-            Device device = DeviceManagementDataHolder.getInstance().
-                    getDeviceManagementProvider().getDevice(deviceId, false);
-
             DeviceManagementDAOFactory.beginTransaction();
-            deviceDAO.updateDevice(device, CarbonContext.getThreadLocalCarbonContext().getTenantId());
+            deviceDAO.updateDevice(device, tenantId);
             deviceDetailsDAO.deleteDeviceInformation(device.getId(), device.getEnrolmentInfo().getId());
             deviceDetailsDAO.deleteDeviceProperties(device.getId(), device.getEnrolmentInfo().getId());
             deviceDetailsDAO.addDeviceInformation(device.getId(), device.getEnrolmentInfo().getId(), deviceInfo);
@@ -75,34 +85,14 @@ public class DeviceInformationManagerImpl implements DeviceInformationManager {
                     device.getEnrolmentInfo().getId());
             DeviceManagementDAOFactory.commitTransaction();
 
-            //TODO :: This has to be fixed by adding the enrollment ID.
+            DevicePropertyIndex devicePropertyIndex = DeviceManagementDataHolder.getInstance()
+                    .getDevicePropertyIndex();
+            if (devicePropertyIndex != null) {
+                devicePropertyIndex.update(tenantId, device.getEnrolmentInfo().getId(),
+                        deviceInfo.getDeviceDetailsMap());
+            }
             if (DeviceManagerUtil.isPublishDeviceInfoResponseEnabled()) {
-                Object[] metaData = {device.getDeviceIdentifier(), device.getType()};
-                Object[] payload = new Object[]{
-                        Calendar.getInstance().getTimeInMillis(),
-                        deviceInfo.getDeviceDetailsMap().get("IMEI"),
-                        deviceInfo.getDeviceDetailsMap().get("IMSI"),
-                        deviceInfo.getDeviceModel(),
-                        deviceInfo.getVendor(),
-                        deviceInfo.getOsVersion(),
-                        deviceInfo.getOsBuildDate(),
-                        deviceInfo.getBatteryLevel(),
-                        deviceInfo.getInternalTotalMemory(),
-                        deviceInfo.getInternalAvailableMemory(),
-                        deviceInfo.getExternalTotalMemory(),
-                        deviceInfo.getExternalAvailableMemory(),
-                        deviceInfo.getOperator(),
-                        deviceInfo.getConnectionType(),
-                        deviceInfo.getMobileSignalStrength(),
-                        deviceInfo.getSsid(),
-                        deviceInfo.getCpuUsage(),
-                        deviceInfo.getTotalRAMMemory(),
-                        deviceInfo.getAvailableRAMMemory(),
-                        deviceInfo.isPluggedIn()
-                };
-                DeviceManagerUtil.getEventPublisherService().publishEvent(
-                        DEVICE_INFO_EVENT_STREAM_DEFINITION, "1.0.0", metaData, new Object[0], payload
-                );
+                DeviceDetailsEventPublisher.publishDeviceInfo(device, deviceInfo);
             }
         } catch (TransactionManagementException e) {
             DeviceManagementDAOFactory.rollbackTransaction();
@@ -112,7 +102,7 @@ public class DeviceInformationManagerImpl implements DeviceInformationManager {
             throw new DeviceDetailsMgtException("Error occurred while adding the device information.", e);
         } catch (DeviceManagementException e) {
             DeviceManagementDAOFactory.rollbackTransaction();
-            throw new DeviceDetailsMgtException("Error occurred while retrieving the device information.", e);
+            throw new DeviceDetailsMgtException("Error occurred while reading the analytics configuration.", e);
         } catch (DeviceManagementDAOException e) {
             DeviceManagementDAOFactory.rollbackTransaction();
             throw new DeviceDetailsMgtException("Error occurred while updating the last update timestamp of the " +
@@ -152,33 +142,15 @@ public class DeviceInformationManagerImpl implements DeviceInformationManager {
     @Override
     public List<DeviceInfo> getDevicesInfo(List<DeviceIdentifier> deviceIdentifiers) throws DeviceDetailsMgtException {
         List<DeviceInfo> deviceInfos = new ArrayList<>();
-
-        Map<String, DeviceIdentifier> identifierMap = new HashMap<>();
-        for (DeviceIdentifier identifier : deviceIdentifiers) {
-            identifierMap.put(identifier.getId(), identifier);
-        }
+        int tenantId = CarbonContext.getThreadLocalCarbonContext().getTenantId();
         try {
-            List<Device> deviceIds = new ArrayList<>();
-            List<Device> devices = DeviceManagementDataHolder.getInstance().getDeviceManagementProvider().
-                    getAllDevices(false);
-            for (Device device : devices) {
-                if (identifierMap.containsKey(device.getDeviceIdentifier()) &&
-                        device.getType().equals(identifierMap.get(device.getDeviceIdentifier()).getType())) {
-                    deviceIds.add(device);
-                }
-            }
             DeviceManagementDAOFactory.openConnection();
-            for (Device device : deviceIds) {
-                DeviceInfo deviceInfo = deviceDetailsDAO.getDeviceInformation(device.getId(),
-                        device.getEnrolmentInfo().getId());
-                deviceInfo.setDeviceDetailsMap(deviceDetailsDAO.getDeviceProperties(device.getId(),
-                        device.getEnrolmentInfo().getId()));
-                deviceInfos.add(deviceInfo);
+            for (Map.Entry<String, List<String>> entry : this.groupByType(deviceIdentifiers).entrySet()) {
+                deviceInfos.addAll(deviceDetailsDAO.getDevicesInformation(entry.getKey(), entry.getValue(),
+                        tenantId));
             }
         } catch (SQLException e) {
             throw new DeviceDetailsMgtException("SQL error occurred while retrieving devices from database.", e);
-        } catch (DeviceManagementException e) {
-            throw new DeviceDetailsMgtException("Exception occurred while retrieving the devices.", e);
         } catch (DeviceDetailsMgtDAOException e) {
             throw new DeviceDetailsMgtException("Exception occurred while retrieving devices details.", e);
         } finally {
@@ -189,27 +161,34 @@ public class DeviceInformationManagerImpl implements DeviceInformationManager {
 
     @Override
     public void addDeviceLocation(DeviceLocation deviceLocation) throws DeviceDetailsMgtException {
-
+        Device device;
         try {
-            Device device = DeviceManagementDataHolder.getInstance().
+            device = DeviceManagementDataHolder.getInstance().
                     getDeviceManagementProvider().getDevice(deviceLocation.getDeviceIdentifier(), false);
-            deviceLocation.setDeviceId(device.getId());
+        } catch (DeviceManagementException e) {
+            throw new DeviceDetailsMgtException("Error occurred while getting the device information.", e);
+        }
+        deviceLocation.setDeviceId(device.getId());
+        int tenantId = CarbonContext.getThreadLocalCarbonContext().getTenantId();
+        DeviceDetailsIngestionPipeline ingestionPipeline = DeviceManagementDataHolder.getInstance()
+                .getDeviceDetailsIngestionPipeline();
+        if (ingestionPipeline != null && ingestionPipeline.submitDeviceLocation(device, deviceLocation, tenantId)) {
+            return;
+        }
+        try {
             DeviceManagementDAOFactory.beginTransaction();
-            deviceDAO.updateDevice(device, CarbonContext.getThreadLocalCarbonContext().getTenantId());
+            deviceDAO.updateDevice(device, tenantId);
             deviceDetailsDAO.deleteDeviceLocation(deviceLocation.getDeviceId(), device.getEnrolmentInfo().getId());
             deviceDetailsDAO.addDeviceLocation(deviceLocation, device.getEnrolmentInfo().getId());
             if (DeviceManagerUtil.isPublishLocationResponseEnabled()) {
-                Object[] metaData = {device.getDeviceIdentifier(), device.getEnrolmentInfo().getOwner(), device.getType()};
-                Object[] payload = new Object[]{
-                        deviceLocation.getUpdatedTime().getTime(),
-                        deviceLocation.getLatitude(),
-                        deviceLocation.getLongitude()
-                };
-                DeviceManagerUtil.getEventPublisherService().publishEvent(
-                        LOCATION_EVENT_STREAM_DEFINITION, "1.0.0", metaData, new Object[0], payload
-                );
+                DeviceDetailsEventPublisher.publishDeviceLocation(device, deviceLocation);
             }
             DeviceManagementDAOFactory.commitTransaction();
+
+            GeoClusterEngine geoClusterEngine = DeviceManagementDataHolder.getInstance().getGeoClusterEngine();
+            if (geoClusterEngine != null) {
+                geoClusterEngine.update(tenantId, device, deviceLocation);
+            }
         } catch (TransactionManagementException e) {
             throw new DeviceDetailsMgtException("Transactional error occurred while adding the device location " +
                     "information.", e);
@@ -218,7 +197,7 @@ public class DeviceInformationManagerImpl implements DeviceInformationManager {
             throw new DeviceDetailsMgtException("Error occurred while adding the device location information.", e);
         } catch (DeviceManagementException e) {
             DeviceManagementDAOFactory.rollbackTransaction();
-            throw new DeviceDetailsMgtException("Error occurred while getting the device information.", e);
+            throw new DeviceDetailsMgtException("Error occurred while reading the analytics configuration.", e);
         } catch (DeviceManagementDAOException e) {
             DeviceManagementDAOFactory.rollbackTransaction();
             throw new DeviceDetailsMgtException("Error occurred while updating the last updated timestamp of " +
@@ -269,19 +248,15 @@ public class DeviceInformationManagerImpl implements DeviceInformationManager {
     @Override
     public List<DeviceLocation> getDeviceLocations(
             List<DeviceIdentifier> deviceIdentifiers) throws DeviceDetailsMgtException {
-
+        List<DeviceLocation> deviceLocations = new ArrayList<>();
+        int tenantId = CarbonContext.getThreadLocalCarbonContext().getTenantId();
         try {
-            List<Device> devices = DeviceManagementDataHolder.getInstance().
-                    getDeviceManagementProvider().getAllDevices(deviceIdentifiers.get(0).getType(), false);
-            List<DeviceLocation> deviceLocations = new ArrayList<>();
             DeviceManagementDAOFactory.openConnection();
-            for (Device device : devices) {
-                deviceLocations.add(deviceDetailsDAO.getDeviceLocation(device.getId(),
-                        device.getEnrolmentInfo().getId()));
+            for (Map.Entry<String, List<String>> entry : this.groupByType(deviceIdentifiers).entrySet()) {
+                deviceLocations.addAll(deviceDetailsDAO.getDeviceLocations(entry.getKey(), entry.getValue(),
+                        tenantId));
             }
             return deviceLocations;
-        } catch (DeviceManagementException e) {
-            throw new DeviceDetailsMgtException("Exception occurred while retrieving the devices.", e);
         } catch (SQLException e) {
             throw new DeviceDetailsMgtException("SQL error occurred while retrieving device from database.", e);
         } catch (DeviceDetailsMgtDAOException e) {
@@ -291,5 +266,18 @@ public class DeviceInformationManagerImpl implements DeviceInformationManager {
         }
     }
 
+    private Map<String, List<String>> groupByType(List<DeviceIdentifier> deviceIdentifiers) {
+        Map<String, List<String>> identifiersByType = new LinkedHashMap<>();
+        for (DeviceIdentifier identifier : deviceIdentifiers) {
+            List<String> identifiers = identifiersByType.get(identifier.getType());
+            if (identifiers == null) {
+                identifiers = new ArrayList<>();
+                identifiersByType.put(identifier.getType(), identifiers);
+            }
+            identifiers.add(identifier.getId());
+        }
+        return identifiersByType;
+    }
+
 }
 
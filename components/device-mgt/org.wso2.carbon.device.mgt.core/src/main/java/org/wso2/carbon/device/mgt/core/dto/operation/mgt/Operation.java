@@ -38,7 +38,7 @@ public class Operation implements Serializable {
     }
 
     public enum PushNotificationStatus {
-        SCHEDULED, COMPLETED
+        SCHEDULED, IN_PROGRESS, COMPLETED
     }
 
     private String code;
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.geo.cluster;
+
+/**
+ * Last known location of a device, as held by the geo cluster engine.
+ */
+public class DeviceGeoPoint {
+
+    private final int deviceId;
+    private final int tenantId;
+    private final String deviceIdentification;
+    private final String deviceType;
+    private final double latitude;
+    private final double longitude;
+    private final String geohash;
+    private final long lastUpdatedTime;
+
+    public DeviceGeoPoint(int deviceId, int tenantId, String deviceIdentification, String deviceType,
+                          double latitude, double longitude, String geohash, long lastUpdatedTime) {
+        this.deviceId = deviceId;
+        this.tenantId = tenantId;
+        this.deviceIdentification = deviceIdentification;
+        this.deviceType = deviceType;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.geohash = geohash;
+        this.lastUpdatedTime = lastUpdatedTime;
+    }
+
+    public int getDeviceId() {
+        return deviceId;
+    }
+
+    public int getTenantId() {
+        return tenantId;
+    }
+
+    public String getDeviceIdentification() {
+        return deviceIdentification;
+    }
+
+    public String getDeviceType() {
+        return deviceType;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public String getGeohash() {
+        return geohash;
+    }
+
+    /**
+     * @return last updated time of the device in milliseconds
+     */
+    public long getLastUpdatedTime() {
+        return lastUpdatedTime;
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.geo.cluster;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.device.mgt.common.Device;
+import org.wso2.carbon.device.mgt.common.device.details.DeviceLocation;
+import org.wso2.carbon.device.mgt.core.config.geo.cluster.GeoClusterConfiguration;
+import org.wso2.carbon.device.mgt.core.dao.DeviceDAO;
+import org.wso2.carbon.device.mgt.core.dao.DeviceManagementDAOException;
+import org.wso2.carbon.device.mgt.core.dao.DeviceManagementDAOFactory;
+import org.wso2.carbon.device.mgt.core.geo.GeoCluster;
+import org.wso2.carbon.device.mgt.core.geo.geoHash.GeoCoordinate;
+import org.wso2.carbon.device.mgt.core.geo.geoHash.GeoHashGenerator;
+import org.wso2.carbon.device.mgt.core.geo.geoHash.geoHashStrategy.ZoomGeoHashLengthStrategy;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In memory engine which serves the geo clusters of the device locations shown on maps, without grouping the device
+ * locations table by geohash prefix on every pan and zoom of a map. Clusters of the geohash lengths used by the zoom
+ * levels of {@link ZoomGeoHashLengthStrategy} are kept precomputed per tenant, up to the configured length. The
+ * engine is built from the database in the background at startup and is kept up to date with the locations written
+ * by this node. The locations written by the other nodes of the cluster are reloaded periodically, based on the last
+ * updated time of the devices. Until the engine is built, geo clusters are computed by the database.
+ */
+public class GeoClusterEngine {
+
+    private static final Log log = LogFactory.getLog(GeoClusterEngine.class);
+
+    private final GeoClusterConfiguration config;
+    private final DeviceDAO deviceDAO;
+    private final boolean[] rollupLengths;
+    private final ConcurrentMap<Integer, TenantGeoClusterIndex> tenantIndices = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private final Runnable refreshTask = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                if (ready) {
+                    refresh();
+                } else {
+                    build();
+                }
+            } catch (DeviceManagementDAOException | SQLException e) {
+                log.error("Error occurred while loading the device locations to the geo cluster engine.", e);
+            } catch (Throwable e) {
+                // Catching everything since an exception would stop the periodic execution of the refresh
+                log.error("Unexpected error occurred while loading the device locations to the geo cluster engine.",
+                        e);
+            }
+        }
+    };
+    private volatile boolean ready;
+    private long lastRefreshTime;
+
+    private final AtomicLong refreshCount = new AtomicLong();
+    private final AtomicLong buildDurationMills = new AtomicLong();
+    private final AtomicLong lastRefreshDurationMills = new AtomicLong();
+    private final AtomicLong tileCacheHitCount = new AtomicLong();
+    private final AtomicLong tileCacheMissCount = new AtomicLong();
+
+    public GeoClusterEngine(GeoClusterConfiguration config) {
+        this.config = config;
+        this.deviceDAO = DeviceManagementDAOFactory.getDeviceDAO();
+        this.rollupLengths = getRollupLengths(config.getMaxRollupGeohashLength());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "geo-cluster-engine-loader");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.scheduler.scheduleWithFixedDelay(refreshTask, 0, config.getRefreshInterval(), TimeUnit.SECONDS);
+    }
+
+    /**
+     * Replaces the location of a device with the location which has been written for it.
+     *
+     * @param tenantId       tenant of the device
+     * @param device         device of which the location was written
+     * @param deviceLocation location of the device
+     */
+    public void update(int tenantId, Device device, DeviceLocation deviceLocation) {
+        this.update(new DeviceGeoPoint(device.getId(), tenantId, device.getDeviceIdentifier(), device.getType(),
+                deviceLocation.getLatitude(), deviceLocation.getLongitude(),
+                GeoHashGenerator.encodeGeohash(deviceLocation), System.currentTimeMillis()));
+    }
+
+    public void update(DeviceGeoPoint point) {
+        this.getTenantIndex(point.getTenantId()).update(point);
+    }
+
+    /**
+     * Returns the geo clusters formed of the device locations within the boundaries of a map.
+     *
+     * @param tenantId      tenant of the devices
+     * @param deviceType    device type of the devices, or null for devices of all types
+     * @param southWest     south west corner of the map
+     * @param northEast     north east corner of the map
+     * @param geohashLength length of the geohash prefix clusters are formed of
+     * @return geo clusters, or null if the engine has not been built yet
+     */
+    public List<GeoCluster> getGeoClusters(int tenantId, String deviceType, GeoCoordinate southWest,
+                                           GeoCoordinate northEast, int geohashLength) {
+        if (!ready || geohashLength < 1 || geohashLength > TenantGeoClusterIndex.MAX_GEOHASH_LENGTH) {
+            return null;
+        }
+        return this.getTenantIndex(tenantId).getGeoClusters(deviceType, southWest, northEast, geohashLength);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void shutdown() {
+        ready = false;
+        scheduler.shutdownNow();
+        tenantIndices.clear();
+    }
+
+    public int getIndexedDeviceCount() {
+        int count = 0;
+        for (TenantGeoClusterIndex tenantIndex : tenantIndices.values()) {
+            count += tenantIndex.getDeviceCount();
+        }
+        return count;
+    }
+
+    public long getRefreshCount() {
+        return refreshCount.get();
+    }
+
+    public long getBuildDurationMills() {
+        return buildDurationMills.get();
+    }
+
+    public long getLastRefreshDurationMills() {
+        return lastRefreshDurationMills.get();
+    }
+
+    public long getTileCacheHitCount() {
+        return tileCacheHitCount.get();
+    }
+
+    public long getTileCacheMissCount() {
+        return tileCacheMissCount.get();
+    }
+
+    /**
+     * Loads the locations of all the devices, reading a range of device ids at a time. Devices of which the location
+     * is updated while the engine is built keep their updated location.
+     */
+    private void build() throws DeviceManagementDAOException, SQLException {
+        long startTime = System.currentTimeMillis();
+        int maxDeviceId;
+        try {
+            DeviceManagementDAOFactory.openConnection();
+            maxDeviceId = deviceDAO.getMaxDeviceId();
+        } finally {
+            DeviceManagementDAOFactory.closeConnection();
+        }
+        int loadedCount = 0;
+        for (int fromDeviceId = 0; fromDeviceId < maxDeviceId; fromDeviceId += config.getBuildBatchSize()) {
+            List<DeviceGeoPoint> points;
+            try {
+                DeviceManagementDAOFactory.openConnection();
+                points = deviceDAO.getDeviceGeoPoints(fromDeviceId, fromDeviceId + config.getBuildBatchSize());
+            } finally {
+                DeviceManagementDAOFactory.closeConnection();
+            }
+            for (DeviceGeoPoint point : points) {
+                if (this.getTenantIndex(point.getTenantId()).load(point)) {
+                    loadedCount++;
+                }
+            }
+        }
+        lastRefreshTime = startTime;
+        ready = true;
+        long duration = System.currentTimeMillis() - startTime;
+        buildDurationMills.set(duration);
+        log.info("Geo cluster engine was built with the locations of " + loadedCount + " devices in " + duration +
+                " ms.");
+    }
+
+    /**
+     * Reloads the locations of the devices which were updated since the previous reload. The reload looks back one
+     * more refresh interval, to cover the clock differences of the nodes.
+     */
+    private void refresh() throws DeviceManagementDAOException, SQLException {
+        long startTime = System.currentTimeMillis();
+        List<DeviceGeoPoint> points;
+        try {
+            DeviceManagementDAOFactory.openConnection();
+            points = deviceDAO.getUpdatedDeviceGeoPoints(
+                    lastRefreshTime - TimeUnit.SECONDS.toMillis(config.getRefreshInterval()));
+        } finally {
+            DeviceManagementDAOFactory.closeConnection();
+        }
+        for (DeviceGeoPoint point : points) {
+            this.update(point);
+        }
+        lastRefreshTime = startTime;
+        refreshCount.incrementAndGet();
+        lastRefreshDurationMills.set(System.currentTimeMillis() - startTime);
+        if (log.isDebugEnabled()) {
+            log.debug("Reloaded the locations of " + points.size() + " devices to the geo cluster engine.");
+        }
+    }
+
+    private TenantGeoClusterIndex getTenantIndex(int tenantId) {
+        TenantGeoClusterIndex tenantIndex = tenantIndices.get(tenantId);
+        if (tenantIndex == null) {
+            TenantGeoClusterIndex newIndex = new TenantGeoClusterIndex(rollupLengths, config.getTileCacheCapacity(),
+                    tileCacheHitCount, tileCacheMissCount);
+            tenantIndex = tenantIndices.putIfAbsent(tenantId, newIndex);
+            if (tenantIndex == null) {
+                tenantIndex = newIndex;
+            }
+        }
+        return tenantIndex;
+    }
+
+    /**
+     * @return geohash lengths used by the zoom levels, up to the given length, indexed by the length
+     */
+    private static boolean[] getRollupLengths(int maxRollupGeohashLength) {
+        boolean[] rollupLengths = new boolean[TenantGeoClusterIndex.MAX_GEOHASH_LENGTH + 1];
+        ZoomGeoHashLengthStrategy lengthStrategy = new ZoomGeoHashLengthStrategy();
+        for (int zoom = lengthStrategy.getMinZoom(); zoom <= lengthStrategy.getMaxZoom(); zoom++) {
+            int length = lengthStrategy.getGeohashLength(null, null, zoom);
+            if (length <= maxRollupGeohashLength && length <= TenantGeoClusterIndex.MAX_GEOHASH_LENGTH) {
+                rollupLengths[length] = true;
+            }
+        }
+        return rollupLengths;
+    }
+}
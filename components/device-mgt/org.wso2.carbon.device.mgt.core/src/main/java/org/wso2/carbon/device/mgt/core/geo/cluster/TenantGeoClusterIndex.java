@@ -0,0 +1,466 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.geo.cluster;
+
+import org.wso2.carbon.device.mgt.core.geo.GeoCluster;
+import org.wso2.carbon.device.mgt.core.geo.geoHash.GeoCoordinate;
+import org.wso2.carbon.device.mgt.core.geo.geoHash.LongGeoHash;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Geo clusters of the device locations of a tenant.
+ * <p>
+ * Locations are kept sorted by geohash per device type, so the locations of a geohash prefix are a range of them.
+ * For the rollup lengths, the cluster of every geohash prefix is kept up to date as locations are added and removed.
+ * Clusters of which a bound or representative device may have been removed are recomputed from their locations when
+ * they are read. Clusters of the other lengths are computed from the locations when they are read.
+ * <p>
+ * Clusters are read a map tile at a time. A tile is the area of a geohash prefix shorter than the one clusters are
+ * formed of, and the clusters of the tiles read are cached until a location within them changes. Clusters which
+ * cross the boundaries of the map are recomputed from the locations within the map.
+ */
+class TenantGeoClusterIndex {
+
+    static final int MAX_GEOHASH_LENGTH = 16;
+    private static final int MAX_TILE_GEOHASH_LENGTH = 6;
+    private static final int MAX_TILES_PER_QUERY = 1024;
+    private static final String ALL_DEVICE_TYPES = "";
+
+    private final boolean[] rollupLengths;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, DeviceGeoPoint> points = new HashMap<>();
+    private final Map<String, DeviceTypeIndex> deviceTypeIndices = new HashMap<>();
+    private final Map<String, List<GeoCluster>> tileCache;
+    private final AtomicLong tileCacheHitCount;
+    private final AtomicLong tileCacheMissCount;
+
+    /**
+     * @param rollupLengths      geohash lengths of which the clusters are kept precomputed, indexed by the length
+     * @param tileCacheCapacity  number of tiles of which the clusters are cached
+     * @param tileCacheHitCount  counter of the tiles read from the cache
+     * @param tileCacheMissCount counter of the tiles computed
+     */
+    TenantGeoClusterIndex(boolean[] rollupLengths, final int tileCacheCapacity, AtomicLong tileCacheHitCount,
+                          AtomicLong tileCacheMissCount) {
+        this.rollupLengths = rollupLengths;
+        this.tileCacheHitCount = tileCacheHitCount;
+        this.tileCacheMissCount = tileCacheMissCount;
+        this.tileCache = Collections.synchronizedMap(new LinkedHashMap<String, List<GeoCluster>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 3541985532479466207L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<GeoCluster>> eldest) {
+                return size() > tileCacheCapacity;
+            }
+        });
+    }
+
+    /**
+     * Replaces the location of a device.
+     */
+    void update(DeviceGeoPoint point) {
+        lock.writeLock().lock();
+        try {
+            DeviceGeoPoint previous = points.put(point.getDeviceId(), point);
+            if (previous != null) {
+                this.removePoint(previous);
+            }
+            this.addPoint(point);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the location of a device unless a location has already been added for it.
+     *
+     * @return true if the location was added
+     */
+    boolean load(DeviceGeoPoint point) {
+        lock.writeLock().lock();
+        try {
+            if (points.containsKey(point.getDeviceId())) {
+                return false;
+            }
+            points.put(point.getDeviceId(), point);
+            this.addPoint(point);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int getDeviceCount() {
+        lock.readLock().lock();
+        try {
+            return points.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the clusters formed of the locations within the boundaries of a map, the same way as they are
+     * computed by the database.
+     *
+     * @param deviceType    device type of the devices, or null for devices of all types
+     * @param southWest     south west corner of the map
+     * @param northEast     north east corner of the map
+     * @param geohashLength length of the geohash prefix clusters are formed of
+     */
+    List<GeoCluster> getGeoClusters(String deviceType, GeoCoordinate southWest, GeoCoordinate northEast,
+                                    int geohashLength) {
+        List<GeoCluster> geoClusters = new ArrayList<>();
+        if (southWest.getLatitude() > northEast.getLatitude() || southWest.getLongitude() > northEast.getLongitude()) {
+            return geoClusters;
+        }
+        int tileLength = Math.min(geohashLength / 2, MAX_TILE_GEOHASH_LENGTH);
+        List<String> tiles = getCoveringPrefixes(southWest, northEast, tileLength);
+        boolean isCached = tiles != null;
+        while (tiles == null) {
+            tiles = getCoveringPrefixes(southWest, northEast, --tileLength);
+        }
+        if (deviceType != null && deviceType.isEmpty()) {
+            deviceType = null;
+        }
+        lock.readLock().lock();
+        try {
+            for (String tile : tiles) {
+                List<GeoCluster> tileClusters;
+                if (isCached) {
+                    tileClusters = this.getCachedTileClusters(deviceType, geohashLength, tile);
+                } else {
+                    tileClusters = this.computeTileClusters(deviceType, geohashLength, tile);
+                }
+                for (GeoCluster geoCluster : tileClusters) {
+                    if (isWithin(geoCluster, southWest, northEast)) {
+                        geoClusters.add(geoCluster);
+                    } else if (!isDisjoint(geoCluster, southWest, northEast)) {
+                        GeoCluster clippedCluster = this.computeClippedCluster(deviceType,
+                                geoCluster.getGeohashPrefix(), southWest, northEast);
+                        if (clippedCluster != null) {
+                            geoClusters.add(clippedCluster);
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return geoClusters;
+    }
+
+    /**
+     * Returns the prefixes of the given length of the geohashes of the area within the given corners, or null if
+     * there are too many of them.
+     */
+    static List<String> getCoveringPrefixes(GeoCoordinate southWest, GeoCoordinate northEast, int length) {
+        if (LongGeoHash.getCoverSize(southWest.getLatitude(), southWest.getLongitude(), northEast.getLatitude(),
+                northEast.getLongitude(), length) > MAX_TILES_PER_QUERY) {
+            return null;
+        }
+        long[] cells = LongGeoHash.cover(southWest.getLatitude(), southWest.getLongitude(), northEast.getLatitude(),
+                northEast.getLongitude(), length);
+        List<String> prefixes = new ArrayList<>(cells.length);
+        for (long cell : cells) {
+            prefixes.add(LongGeoHash.toString(cell, length));
+        }
+        return prefixes;
+    }
+
+    private List<GeoCluster> getCachedTileClusters(String deviceType, int geohashLength, String tile) {
+        String tileKey = getTileKey(deviceType, geohashLength, tile);
+        List<GeoCluster> tileClusters = tileCache.get(tileKey);
+        if (tileClusters != null) {
+            tileCacheHitCount.incrementAndGet();
+            return tileClusters;
+        }
+        tileCacheMissCount.incrementAndGet();
+        tileClusters = this.computeTileClusters(deviceType, geohashLength, tile);
+        // Cached while holding the read lock, so the tile cannot be invalidated before it is cached
+        tileCache.put(tileKey, tileClusters);
+        return tileClusters;
+    }
+
+    private List<GeoCluster> computeTileClusters(String deviceType, int geohashLength, String tile) {
+        Map<String, Cluster> clusters = new TreeMap<>();
+        for (DeviceTypeIndex deviceTypeIndex : this.getDeviceTypeIndices(deviceType)) {
+            if (rollupLengths[geohashLength]) {
+                for (Map.Entry<String, Cluster> entry :
+                        getPrefixRange(deviceTypeIndex.rollups.get(geohashLength), tile).entrySet()) {
+                    Cluster cluster = entry.getValue();
+                    synchronized (cluster) {
+                        if (cluster.isDirty) {
+                            cluster.reset();
+                            for (DeviceGeoPoint point :
+                                    getPrefixRange(deviceTypeIndex.points, entry.getKey()).values()) {
+                                cluster.add(point);
+                            }
+                        }
+                        getCluster(clusters, entry.getKey()).merge(cluster);
+                    }
+                }
+            } else {
+                for (DeviceGeoPoint point : getPrefixRange(deviceTypeIndex.points, tile).values()) {
+                    getCluster(clusters, getPrefix(point.getGeohash(), geohashLength)).add(point);
+                }
+            }
+        }
+        List<GeoCluster> tileClusters = new ArrayList<>(clusters.size());
+        for (Map.Entry<String, Cluster> entry : clusters.entrySet()) {
+            tileClusters.add(entry.getValue().toGeoCluster(entry.getKey()));
+        }
+        return tileClusters;
+    }
+
+    private GeoCluster computeClippedCluster(String deviceType, String prefix, GeoCoordinate southWest,
+                                             GeoCoordinate northEast) {
+        Cluster cluster = new Cluster();
+        for (DeviceTypeIndex deviceTypeIndex : this.getDeviceTypeIndices(deviceType)) {
+            for (DeviceGeoPoint point : getPrefixRange(deviceTypeIndex.points, prefix).values()) {
+                if (point.getLatitude() >= southWest.getLatitude() && point.getLatitude() <= northEast.getLatitude()
+                        && point.getLongitude() >= southWest.getLongitude()
+                        && point.getLongitude() <= northEast.getLongitude()) {
+                    cluster.add(point);
+                }
+            }
+        }
+        return cluster.count == 0 ? null : cluster.toGeoCluster(prefix);
+    }
+
+    private Collection<DeviceTypeIndex> getDeviceTypeIndices(String deviceType) {
+        if (deviceType == null) {
+            return deviceTypeIndices.values();
+        }
+        DeviceTypeIndex deviceTypeIndex = deviceTypeIndices.get(deviceType);
+        if (deviceTypeIndex == null) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(deviceTypeIndex);
+    }
+
+    private void addPoint(DeviceGeoPoint point) {
+        DeviceTypeIndex deviceTypeIndex = deviceTypeIndices.get(point.getDeviceType());
+        if (deviceTypeIndex == null) {
+            deviceTypeIndex = new DeviceTypeIndex(rollupLengths);
+            deviceTypeIndices.put(point.getDeviceType(), deviceTypeIndex);
+        }
+        deviceTypeIndex.points.put(getPointKey(point), point);
+        for (int length = 1; length <= MAX_GEOHASH_LENGTH; length++) {
+            if (rollupLengths[length]) {
+                getCluster(deviceTypeIndex.rollups.get(length), getPrefix(point.getGeohash(), length)).add(point);
+            }
+        }
+        this.invalidateTiles(point);
+    }
+
+    private void removePoint(DeviceGeoPoint point) {
+        DeviceTypeIndex deviceTypeIndex = deviceTypeIndices.get(point.getDeviceType());
+        if (deviceTypeIndex == null) {
+            return;
+        }
+        deviceTypeIndex.points.remove(getPointKey(point));
+        for (int length = 1; length <= MAX_GEOHASH_LENGTH; length++) {
+            if (rollupLengths[length]) {
+                Map<String, Cluster> rollup = deviceTypeIndex.rollups.get(length);
+                String prefix = getPrefix(point.getGeohash(), length);
+                Cluster cluster = rollup.get(prefix);
+                if (cluster != null && cluster.remove(point)) {
+                    rollup.remove(prefix);
+                }
+            }
+        }
+        this.invalidateTiles(point);
+    }
+
+    private void invalidateTiles(DeviceGeoPoint point) {
+        for (int length = 1; length <= MAX_GEOHASH_LENGTH; length++) {
+            String tile = getPrefix(point.getGeohash(), Math.min(length / 2, MAX_TILE_GEOHASH_LENGTH));
+            tileCache.remove(getTileKey(point.getDeviceType(), length, tile));
+            tileCache.remove(getTileKey(null, length, tile));
+        }
+    }
+
+    private static boolean isWithin(GeoCluster geoCluster, GeoCoordinate southWest, GeoCoordinate northEast) {
+        return geoCluster.getSouthWestBound().getLatitude() >= southWest.getLatitude()
+                && geoCluster.getSouthWestBound().getLongitude() >= southWest.getLongitude()
+                && geoCluster.getNorthEastBound().getLatitude() <= northEast.getLatitude()
+                && geoCluster.getNorthEastBound().getLongitude() <= northEast.getLongitude();
+    }
+
+    private static boolean isDisjoint(GeoCluster geoCluster, GeoCoordinate southWest, GeoCoordinate northEast) {
+        return geoCluster.getNorthEastBound().getLatitude() < southWest.getLatitude()
+                || geoCluster.getNorthEastBound().getLongitude() < southWest.getLongitude()
+                || geoCluster.getSouthWestBound().getLatitude() > northEast.getLatitude()
+                || geoCluster.getSouthWestBound().getLongitude() > northEast.getLongitude();
+    }
+
+    private static <V> NavigableMap<String, V> getPrefixRange(NavigableMap<String, V> map, String prefix) {
+        // '~' sorts after the geohash characters and the separator of the device id
+        return map.subMap(prefix, true, prefix + '~', false);
+    }
+
+    private static Cluster getCluster(Map<String, Cluster> clusters, String prefix) {
+        Cluster cluster = clusters.get(prefix);
+        if (cluster == null) {
+            cluster = new Cluster();
+            clusters.put(prefix, cluster);
+        }
+        return cluster;
+    }
+
+    private static String getPrefix(String geohash, int length) {
+        return geohash.length() > length ? geohash.substring(0, length) : geohash;
+    }
+
+    private static String getPointKey(DeviceGeoPoint point) {
+        return point.getGeohash() + '#' + point.getDeviceId();
+    }
+
+    private static String getTileKey(String deviceType, int geohashLength, String tile) {
+        return (deviceType == null ? ALL_DEVICE_TYPES : deviceType) + '|' + geohashLength + '|' + tile;
+    }
+
+    /**
+     * Locations of the devices of a device type and the precomputed clusters of them.
+     */
+    private static class DeviceTypeIndex {
+
+        private final NavigableMap<String, DeviceGeoPoint> points = new TreeMap<>();
+        private final List<NavigableMap<String, Cluster>> rollups = new ArrayList<>(MAX_GEOHASH_LENGTH + 1);
+
+        private DeviceTypeIndex(boolean[] rollupLengths) {
+            for (int length = 0; length <= MAX_GEOHASH_LENGTH; length++) {
+                rollups.add(rollupLengths[length] ? new TreeMap<String, Cluster>() : null);
+            }
+        }
+    }
+
+    /**
+     * Aggregates of the locations of a cluster, equivalent to the aggregate functions used by the database.
+     */
+    private static class Cluster {
+
+        private long count;
+        private double latitudeSum;
+        private double longitudeSum;
+        private double minLatitude;
+        private double maxLatitude;
+        private double minLongitude;
+        private double maxLongitude;
+        private String minDeviceIdentification;
+        private String minDeviceType;
+        private long minLastUpdatedTime;
+        private boolean isDirty;
+
+        private Cluster() {
+            this.reset();
+        }
+
+        private void reset() {
+            count = 0;
+            latitudeSum = 0;
+            longitudeSum = 0;
+            minLatitude = Double.MAX_VALUE;
+            maxLatitude = -Double.MAX_VALUE;
+            minLongitude = Double.MAX_VALUE;
+            maxLongitude = -Double.MAX_VALUE;
+            minDeviceIdentification = null;
+            minDeviceType = null;
+            minLastUpdatedTime = Long.MAX_VALUE;
+            isDirty = false;
+        }
+
+        private void add(DeviceGeoPoint point) {
+            count++;
+            latitudeSum += point.getLatitude();
+            longitudeSum += point.getLongitude();
+            minLatitude = Math.min(minLatitude, point.getLatitude());
+            maxLatitude = Math.max(maxLatitude, point.getLatitude());
+            minLongitude = Math.min(minLongitude, point.getLongitude());
+            maxLongitude = Math.max(maxLongitude, point.getLongitude());
+            minDeviceIdentification = min(minDeviceIdentification, point.getDeviceIdentification());
+            minDeviceType = min(minDeviceType, point.getDeviceType());
+            minLastUpdatedTime = Math.min(minLastUpdatedTime, point.getLastUpdatedTime());
+        }
+
+        private void merge(Cluster cluster) {
+            count += cluster.count;
+            latitudeSum += cluster.latitudeSum;
+            longitudeSum += cluster.longitudeSum;
+            minLatitude = Math.min(minLatitude, cluster.minLatitude);
+            maxLatitude = Math.max(maxLatitude, cluster.maxLatitude);
+            minLongitude = Math.min(minLongitude, cluster.minLongitude);
+            maxLongitude = Math.max(maxLongitude, cluster.maxLongitude);
+            minDeviceIdentification = min(minDeviceIdentification, cluster.minDeviceIdentification);
+            minDeviceType = min(minDeviceType, cluster.minDeviceType);
+            minLastUpdatedTime = Math.min(minLastUpdatedTime, cluster.minLastUpdatedTime);
+        }
+
+        /**
+         * Removes a location from the aggregates. The cluster is marked dirty if the location was one of its bounds
+         * or representative values, which cannot be derived from the remaining aggregates.
+         *
+         * @return true if the cluster is empty
+         */
+        private boolean remove(DeviceGeoPoint point) {
+            count--;
+            latitudeSum -= point.getLatitude();
+            longitudeSum -= point.getLongitude();
+            if (point.getLatitude() <= minLatitude || point.getLatitude() >= maxLatitude
+                    || point.getLongitude() <= minLongitude || point.getLongitude() >= maxLongitude
+                    || point.getDeviceIdentification().equals(minDeviceIdentification)
+                    || point.getLastUpdatedTime() <= minLastUpdatedTime) {
+                isDirty = true;
+            }
+            return count == 0;
+        }
+
+        private GeoCluster toGeoCluster(String prefix) {
+            String lastSeen = minLastUpdatedTime > 0 && minLastUpdatedTime < Long.MAX_VALUE ?
+                    new Timestamp(minLastUpdatedTime).toString() : null;
+            return new GeoCluster(new GeoCoordinate(latitudeSum / count, longitudeSum / count),
+                    new GeoCoordinate(minLatitude, minLongitude), new GeoCoordinate(maxLatitude, maxLongitude),
+                    count, prefix, minDeviceIdentification, minDeviceType, lastSeen);
+        }
+
+        private static String min(String value, String other) {
+            if (value == null) {
+                return other;
+            }
+            if (other == null) {
+                return value;
+            }
+            return value.compareTo(other) <= 0 ? value : other;
+        }
+    }
+}
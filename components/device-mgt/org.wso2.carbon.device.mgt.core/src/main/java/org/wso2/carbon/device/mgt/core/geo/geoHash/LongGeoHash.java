@@ -0,0 +1,404 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.geo.geoHash;
+
+import java.util.Arrays;
+
+/**
+ * Geohashes encoded as the bits of a long, which lets them be computed and compared without allocating strings.
+ * A geohash of length n is held in the lowest 5 * n bits of a long, the first character in the highest of them, so
+ * geohashes of the same length sort the same way as their strings. Up to 12 characters fit in a long. Encoding
+ * divides the ranges the same way as {@link GeoHashGenerator}, so the results are the prefixes of the stored
+ * geohashes.
+ */
+public final class LongGeoHash {
+
+    public static final int MAX_LENGTH = 12;
+
+    private static final int BITS_PER_CHAR = 5;
+    private static final char[] BASE_32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+    private static final int[] BASE_32_INDICES = new int[128];
+
+    static {
+        Arrays.fill(BASE_32_INDICES, -1);
+        for (int i = 0; i < BASE_32.length; i++) {
+            BASE_32_INDICES[BASE_32[i]] = i;
+        }
+    }
+
+    private LongGeoHash() {
+    }
+
+    /**
+     * @param latitude  latitude of the location
+     * @param longitude longitude of the location
+     * @param length    number of characters of the geohash, from 0 to {@link #MAX_LENGTH}
+     * @return geohash of the location
+     */
+    public static long encode(double latitude, double longitude, int length) {
+        checkLength(length);
+        double minLatitude = -90.0;
+        double maxLatitude = 90.0;
+        double minLongitude = -180.0;
+        double maxLongitude = 180.0;
+        long hash = 0;
+        for (int i = 0, bitCount = BITS_PER_CHAR * length; i < bitCount; i++) {
+            double mid;
+            if ((i & 1) == 0) {
+                mid = (minLongitude + maxLongitude) / 2;
+                if (longitude >= mid) {
+                    hash = (hash << 1) | 1;
+                    minLongitude = mid;
+                } else {
+                    hash = hash << 1;
+                    maxLongitude = mid;
+                }
+            } else {
+                mid = (minLatitude + maxLatitude) / 2;
+                if (latitude >= mid) {
+                    hash = (hash << 1) | 1;
+                    minLatitude = mid;
+                } else {
+                    hash = hash << 1;
+                    maxLatitude = mid;
+                }
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Encodes a location directly to a geohash string, which may be longer than {@link #MAX_LENGTH}.
+     */
+    public static String encodeToString(double latitude, double longitude, int length) {
+        double minLatitude = -90.0;
+        double maxLatitude = 90.0;
+        double minLongitude = -180.0;
+        double maxLongitude = 180.0;
+        boolean isLongitudeBit = true;
+        char[] geohash = new char[length];
+        for (int i = 0; i < length; i++) {
+            int charIndex = 0;
+            for (int bit = 0; bit < BITS_PER_CHAR; bit++) {
+                double mid;
+                if (isLongitudeBit) {
+                    mid = (minLongitude + maxLongitude) / 2;
+                    if (longitude >= mid) {
+                        charIndex = (charIndex << 1) | 1;
+                        minLongitude = mid;
+                    } else {
+                        charIndex = charIndex << 1;
+                        maxLongitude = mid;
+                    }
+                } else {
+                    mid = (minLatitude + maxLatitude) / 2;
+                    if (latitude >= mid) {
+                        charIndex = (charIndex << 1) | 1;
+                        minLatitude = mid;
+                    } else {
+                        charIndex = charIndex << 1;
+                        maxLatitude = mid;
+                    }
+                }
+                isLongitudeBit = !isLongitudeBit;
+            }
+            geohash[i] = BASE_32[charIndex];
+        }
+        return new String(geohash);
+    }
+
+    public static String toString(long hash, int length) {
+        checkLength(length);
+        char[] geohash = new char[length];
+        for (int i = length - 1; i >= 0; i--) {
+            geohash[i] = BASE_32[(int) (hash & 31)];
+            hash >>>= BITS_PER_CHAR;
+        }
+        return new String(geohash);
+    }
+
+    /**
+     * @param geohash geohash string of at most {@link #MAX_LENGTH} characters
+     * @return geohash encoded as a long, of the length of the string
+     */
+    public static long fromString(String geohash) {
+        checkLength(geohash.length());
+        long hash = 0;
+        for (int i = 0; i < geohash.length(); i++) {
+            hash = (hash << BITS_PER_CHAR) | getCharIndex(geohash.charAt(i));
+        }
+        return hash;
+    }
+
+    /**
+     * @return index of a geohash character in the base 32 alphabet of geohashes
+     * @throws IllegalArgumentException if the character is not a geohash character
+     */
+    public static int getCharIndex(char c) {
+        int index = c < BASE_32_INDICES.length ? BASE_32_INDICES[c] : -1;
+        if (index < 0) {
+            throw new IllegalArgumentException("Invalid geohash character '" + c + "'");
+        }
+        return index;
+    }
+
+    /**
+     * @return prefix of the given length of a geohash
+     */
+    public static long getPrefix(long hash, int length, int prefixLength) {
+        return hash >>> (BITS_PER_CHAR * (length - prefixLength));
+    }
+
+    public static double getSouthLatitude(long hash, int length) {
+        return -90.0 + getLatitudeIndex(hash, length) * getCellHeight(length);
+    }
+
+    public static double getNorthLatitude(long hash, int length) {
+        return getSouthLatitude(hash, length) + getCellHeight(length);
+    }
+
+    public static double getWestLongitude(long hash, int length) {
+        return -180.0 + getLongitudeIndex(hash, length) * getCellWidth(length);
+    }
+
+    public static double getEastLongitude(long hash, int length) {
+        return getWestLongitude(hash, length) + getCellWidth(length);
+    }
+
+    /**
+     * @return latitude of the center of a geohash cell
+     */
+    public static double decodeLatitude(long hash, int length) {
+        return getSouthLatitude(hash, length) + getCellHeight(length) / 2;
+    }
+
+    /**
+     * @return longitude of the center of a geohash cell
+     */
+    public static double decodeLongitude(long hash, int length) {
+        return getWestLongitude(hash, length) + getCellWidth(length) / 2;
+    }
+
+    /**
+     * @return height in degrees of the geohash cells of a length
+     */
+    public static double getCellHeight(int length) {
+        return 180.0 / (1L << getLatitudeBitCount(length));
+    }
+
+    /**
+     * @return width in degrees of the geohash cells of a length
+     */
+    public static double getCellWidth(int length) {
+        return 360.0 / (1L << getLongitudeBitCount(length));
+    }
+
+    /**
+     * Returns the geohash of a cell a number of cells away from a cell. Longitudes wrap around the antimeridian.
+     *
+     * @param hash           geohash of the cell
+     * @param length         length of the geohash
+     * @param latitudeSteps  number of cells to the north, or to the south if negative
+     * @param longitudeSteps number of cells to the east, or to the west if negative
+     * @return geohash of the cell, or -1 if the cell would be beyond a pole
+     */
+    public static long getNeighbor(long hash, int length, int latitudeSteps, int longitudeSteps) {
+        long latitudeIndex = getLatitudeIndex(hash, length) + latitudeSteps;
+        if (latitudeIndex < 0 || latitudeIndex >= 1L << getLatitudeBitCount(length)) {
+            return -1;
+        }
+        long longitudeMask = (1L << getLongitudeBitCount(length)) - 1;
+        long longitudeIndex = (getLongitudeIndex(hash, length) + longitudeSteps) & longitudeMask;
+        return interleave(latitudeIndex, longitudeIndex, length);
+    }
+
+    /**
+     * Writes the geohashes of the cells adjacent to a cell, clockwise from the north. Cells beyond the poles are
+     * skipped.
+     *
+     * @param neighbors array of at least 8 elements the neighbors are written to
+     * @return number of neighbors written
+     */
+    public static int getNeighbors(long hash, int length, long[] neighbors) {
+        int count = 0;
+        count = addNeighbor(hash, length, 1, 0, neighbors, count);
+        count = addNeighbor(hash, length, 1, 1, neighbors, count);
+        count = addNeighbor(hash, length, 0, 1, neighbors, count);
+        count = addNeighbor(hash, length, -1, 1, neighbors, count);
+        count = addNeighbor(hash, length, -1, 0, neighbors, count);
+        count = addNeighbor(hash, length, -1, -1, neighbors, count);
+        count = addNeighbor(hash, length, 0, -1, neighbors, count);
+        count = addNeighbor(hash, length, 1, -1, neighbors, count);
+        return count;
+    }
+
+    /**
+     * @return number of geohash cells of a length which intersect a bounding box
+     */
+    public static long getCoverSize(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude,
+                                    int length) {
+        if (length == 0) {
+            return 1;
+        }
+        minLatitude = Math.max(minLatitude, -90.0);
+        maxLatitude = Math.min(maxLatitude, 90.0);
+        minLongitude = Math.max(minLongitude, -180.0);
+        maxLongitude = Math.min(maxLongitude, 180.0);
+        if (minLatitude > maxLatitude || minLongitude > maxLongitude) {
+            return 0;
+        }
+        long southWest = encode(minLatitude, minLongitude, length);
+        long northEast = encode(maxLatitude, maxLongitude, length);
+        return (getLatitudeIndex(northEast, length) - getLatitudeIndex(southWest, length) + 1) *
+                (getLongitudeIndex(northEast, length) - getLongitudeIndex(southWest, length) + 1);
+    }
+
+    /**
+     * @return longest geohash length of which at most the given number of cells intersect a bounding box
+     */
+    public static int getCoverLength(double minLatitude, double minLongitude, double maxLatitude,
+                                     double maxLongitude, int maxCells) {
+        int length = 0;
+        while (length < MAX_LENGTH
+                && getCoverSize(minLatitude, minLongitude, maxLatitude, maxLongitude, length + 1) <= maxCells) {
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * @return sorted geohashes of the cells of a length which intersect a bounding box
+     */
+    public static long[] cover(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude,
+                               int length) {
+        if (length == 0) {
+            return new long[]{0};
+        }
+        long size = getCoverSize(minLatitude, minLongitude, maxLatitude, maxLongitude, length);
+        if (size == 0) {
+            return new long[0];
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Bounding box is covered by too many geohashes of length " + length);
+        }
+        long southWest = encode(Math.max(minLatitude, -90.0), Math.max(minLongitude, -180.0), length);
+        long northEast = encode(Math.min(maxLatitude, 90.0), Math.min(maxLongitude, 180.0), length);
+        long minLatitudeIndex = getLatitudeIndex(southWest, length);
+        long maxLatitudeIndex = getLatitudeIndex(northEast, length);
+        long minLongitudeIndex = getLongitudeIndex(southWest, length);
+        long maxLongitudeIndex = getLongitudeIndex(northEast, length);
+        long[] cells = new long[(int) size];
+        int count = 0;
+        for (long latitudeIndex = minLatitudeIndex; latitudeIndex <= maxLatitudeIndex; latitudeIndex++) {
+            for (long longitudeIndex = minLongitudeIndex; longitudeIndex <= maxLongitudeIndex; longitudeIndex++) {
+                cells[count++] = interleave(latitudeIndex, longitudeIndex, length);
+            }
+        }
+        Arrays.sort(cells);
+        return cells;
+    }
+
+    /**
+     * Merges sorted geohashes of a length into ranges of consecutive geohashes, which is the fewest prefix ranges
+     * covering them. Cells of which all the siblings are present merge into the range of their parent.
+     *
+     * @return start (inclusive) and end (exclusive) of each range, one after the other
+     */
+    public static long[] toRanges(long[] cells) {
+        if (cells.length == 0) {
+            return new long[0];
+        }
+        int rangeCount = 1;
+        for (int i = 1; i < cells.length; i++) {
+            if (cells[i] != cells[i - 1] + 1) {
+                rangeCount++;
+            }
+        }
+        long[] ranges = new long[rangeCount * 2];
+        int index = 0;
+        ranges[index++] = cells[0];
+        for (int i = 1; i < cells.length; i++) {
+            if (cells[i] != cells[i - 1] + 1) {
+                ranges[index++] = cells[i - 1] + 1;
+                ranges[index++] = cells[i];
+            }
+        }
+        ranges[index] = cells[cells.length - 1] + 1;
+        return ranges;
+    }
+
+    private static int addNeighbor(long hash, int length, int latitudeSteps, int longitudeSteps, long[] neighbors,
+                                   int count) {
+        long neighbor = getNeighbor(hash, length, latitudeSteps, longitudeSteps);
+        if (neighbor >= 0) {
+            neighbors[count++] = neighbor;
+        }
+        return count;
+    }
+
+    private static int getLongitudeBitCount(int length) {
+        return (BITS_PER_CHAR * length + 1) / 2;
+    }
+
+    private static int getLatitudeBitCount(int length) {
+        return BITS_PER_CHAR * length / 2;
+    }
+
+    // The first bit of a geohash is a longitude bit, and longitude and latitude bits alternate
+
+    private static long getLongitudeIndex(long hash, int length) {
+        int bitCount = BITS_PER_CHAR * length;
+        long index = 0;
+        for (int bit = bitCount - 1; bit >= 0; bit -= 2) {
+            index = (index << 1) | ((hash >>> bit) & 1);
+        }
+        return index;
+    }
+
+    private static long getLatitudeIndex(long hash, int length) {
+        int bitCount = BITS_PER_CHAR * length;
+        long index = 0;
+        for (int bit = bitCount - 2; bit >= 0; bit -= 2) {
+            index = (index << 1) | ((hash >>> bit) & 1);
+        }
+        return index;
+    }
+
+    private static long interleave(long latitudeIndex, long longitudeIndex, int length) {
+        int bitCount = BITS_PER_CHAR * length;
+        int longitudeBit = getLongitudeBitCount(length) - 1;
+        int latitudeBit = getLatitudeBitCount(length) - 1;
+        long hash = 0;
+        for (int i = 0; i < bitCount; i++) {
+            if ((i & 1) == 0) {
+                hash = (hash << 1) | ((longitudeIndex >>> longitudeBit--) & 1);
+            } else {
+                hash = (hash << 1) | ((latitudeIndex >>> latitudeBit--) & 1);
+            }
+        }
+        return hash;
+    }
+
+    private static void checkLength(int length) {
+        if (length < 0 || length > MAX_LENGTH) {
+            throw new IllegalArgumentException("Geohash length should be between 0 and " + MAX_LENGTH + ": " +
+                    length);
+        }
+    }
+}
@@ -86,7 +86,7 @@ public class ActivityDataPurgingServiceComponent {
                 log.info("Data archival task has been scheduled.");
             } else {
                 log.warn("Data archival task has been disabled. It is recommended to enable archival task to " +
-                         "prune the transactional databases tables time to time if you are using MySQL.");
+                         "prune the transactional databases tables time to time.");
             }
             
             // This will start the data deletion task.
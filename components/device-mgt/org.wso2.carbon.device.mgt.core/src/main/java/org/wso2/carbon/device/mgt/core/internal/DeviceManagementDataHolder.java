@@ -27,14 +27,21 @@ import org.wso2.carbon.device.mgt.common.operation.mgt.OperationManager;
 import org.wso2.carbon.device.mgt.common.spi.DeviceTypeGeneratorService;
 import org.wso2.carbon.device.mgt.core.app.mgt.config.AppManagementConfig;
 import org.wso2.carbon.device.mgt.core.config.license.LicenseConfig;
+import org.wso2.carbon.device.mgt.core.device.details.mgt.DeviceDetailsIngestionPipeline;
 import org.wso2.carbon.device.mgt.core.dto.DeviceType;
 import org.wso2.carbon.device.mgt.core.dto.DeviceTypeServiceIdentifier;
+import org.wso2.carbon.device.mgt.core.geo.cluster.GeoClusterEngine;
 import org.wso2.carbon.device.mgt.core.privacy.PrivacyComplianceProvider;
+import org.wso2.carbon.device.mgt.core.push.notification.mgt.PushNotificationDispatcher;
+import org.wso2.carbon.device.mgt.core.push.notification.mgt.task.PushNotificationSchedulerTask;
 import org.wso2.carbon.device.mgt.core.push.notification.mgt.PushNotificationProviderRepository;
+import org.wso2.carbon.device.mgt.core.search.mgt.index.DevicePropertyIndex;
 import org.wso2.carbon.device.mgt.core.service.DeviceManagementProviderService;
 import org.wso2.carbon.device.mgt.core.service.GroupManagementProviderService;
 import org.wso2.carbon.device.mgt.core.status.task.DeviceStatusTaskManagerService;
+import org.wso2.carbon.device.mgt.core.status.task.impl.DeviceActivityMonitor;
 import org.wso2.carbon.device.mgt.core.task.DeviceTaskManagerService;
+import org.wso2.carbon.device.mgt.core.task.partition.TaskPartitionManager;
 import org.wso2.carbon.email.sender.core.service.EmailSenderService;
 import org.wso2.carbon.ntask.core.service.TaskService;
 import org.wso2.carbon.registry.core.service.RegistryService;
@@ -42,8 +49,10 @@ import org.wso2.carbon.user.core.service.RealmService;
 import org.wso2.carbon.user.core.tenant.TenantManager;
 import org.wso2.carbon.utils.ConfigurationContextService;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class DeviceManagementDataHolder {
@@ -65,8 +74,15 @@ public class DeviceManagementDataHolder {
     private TaskService taskService;
     private EmailSenderService emailSenderService;
     private PushNotificationProviderRepository pushNotificationProviderRepository;
+    private PushNotificationDispatcher pushNotificationDispatcher;
+    private PushNotificationSchedulerTask pushNotificationSchedulerTask;
+    private DeviceDetailsIngestionPipeline deviceDetailsIngestionPipeline;
+    private DevicePropertyIndex devicePropertyIndex;
+    private GeoClusterEngine geoClusterEngine;
     private DeviceTaskManagerService deviceTaskManagerService;
     private DeviceStatusTaskManagerService deviceStatusTaskManagerService;
+    private DeviceActivityMonitor deviceActivityMonitor;
+    private TaskPartitionManager taskPartitionManager;
     private DeviceTypeGeneratorService deviceTypeGeneratorService;
     private PrivacyComplianceProvider privacyComplianceProvider;
     private Map<DeviceType, DeviceStatusTaskPluginConfig> deviceStatusTaskPluginConfigs = Collections.synchronizedMap(
@@ -194,6 +210,19 @@ public class DeviceManagementDataHolder {
         return requireDeviceAuthorization.get(pluginType);
     }
 
+    /**
+     * @return device types of which the devices can be accessed without a user in the context
+     */
+    public List<String> getDeviceTypesNotRequiringAuthorization() {
+        List<String> deviceTypes = new ArrayList<>();
+        for (Map.Entry<String, Boolean> entry : requireDeviceAuthorization.entrySet()) {
+            if (!entry.getValue()) {
+                deviceTypes.add(entry.getKey());
+            }
+        }
+        return deviceTypes;
+    }
+
     public DeviceAccessAuthorizationService getDeviceAccessAuthorizationService() {
         return deviceAccessAuthorizationService;
     }
@@ -228,6 +257,46 @@ public class DeviceManagementDataHolder {
         return pushNotificationProviderRepository;
     }
 
+    public PushNotificationDispatcher getPushNotificationDispatcher() {
+        return pushNotificationDispatcher;
+    }
+
+    public void setPushNotificationDispatcher(PushNotificationDispatcher pushNotificationDispatcher) {
+        this.pushNotificationDispatcher = pushNotificationDispatcher;
+    }
+
+    public PushNotificationSchedulerTask getPushNotificationSchedulerTask() {
+        return pushNotificationSchedulerTask;
+    }
+
+    public void setPushNotificationSchedulerTask(PushNotificationSchedulerTask pushNotificationSchedulerTask) {
+        this.pushNotificationSchedulerTask = pushNotificationSchedulerTask;
+    }
+
+    public DeviceDetailsIngestionPipeline getDeviceDetailsIngestionPipeline() {
+        return deviceDetailsIngestionPipeline;
+    }
+
+    public void setDeviceDetailsIngestionPipeline(DeviceDetailsIngestionPipeline deviceDetailsIngestionPipeline) {
+        this.deviceDetailsIngestionPipeline = deviceDetailsIngestionPipeline;
+    }
+
+    public DevicePropertyIndex getDevicePropertyIndex() {
+        return devicePropertyIndex;
+    }
+
+    public void setDevicePropertyIndex(DevicePropertyIndex devicePropertyIndex) {
+        this.devicePropertyIndex = devicePropertyIndex;
+    }
+
+    public GeoClusterEngine getGeoClusterEngine() {
+        return geoClusterEngine;
+    }
+
+    public void setGeoClusterEngine(GeoClusterEngine geoClusterEngine) {
+        this.geoClusterEngine = geoClusterEngine;
+    }
+
     public DeviceTaskManagerService getDeviceTaskManagerService() {
         return deviceTaskManagerService;
     }
@@ -244,6 +313,22 @@ public class DeviceManagementDataHolder {
         this.deviceStatusTaskManagerService = deviceStatusTaskManagerService;
     }
 
+    public DeviceActivityMonitor getDeviceActivityMonitor() {
+        return deviceActivityMonitor;
+    }
+
+    public void setDeviceActivityMonitor(DeviceActivityMonitor deviceActivityMonitor) {
+        this.deviceActivityMonitor = deviceActivityMonitor;
+    }
+
+    public TaskPartitionManager getTaskPartitionManager() {
+        return taskPartitionManager;
+    }
+
+    public void setTaskPartitionManager(TaskPartitionManager taskPartitionManager) {
+        this.taskPartitionManager = taskPartitionManager;
+    }
+
     public void addDeviceStatusTaskPluginConfig(DeviceType deviceType, DeviceStatusTaskPluginConfig deviceStatusTaskPluginConfig) {
         this.deviceStatusTaskPluginConfigs.put(deviceType, deviceStatusTaskPluginConfig);
     }
@@ -42,9 +42,17 @@ import org.wso2.carbon.device.mgt.core.authorization.DeviceAccessAuthorizationSe
 import org.wso2.carbon.device.mgt.core.config.DeviceConfigurationManager;
 import org.wso2.carbon.device.mgt.core.config.DeviceManagementConfig;
 import org.wso2.carbon.device.mgt.core.config.datasource.DataSourceConfig;
+import org.wso2.carbon.device.mgt.core.config.details.DeviceDetailsIngestionConfiguration;
+import org.wso2.carbon.device.mgt.core.config.push.notification.DispatcherConfiguration;
+import org.wso2.carbon.device.mgt.core.config.geo.cluster.GeoClusterConfiguration;
+import org.wso2.carbon.device.mgt.core.config.search.DevicePropertyIndexConfiguration;
+import org.wso2.carbon.device.mgt.core.config.status.task.DeviceStatusTaskConfig;
+import org.wso2.carbon.device.mgt.core.config.task.TaskPartitionConfiguration;
 import org.wso2.carbon.device.mgt.core.config.tenant.PlatformConfigurationManagementServiceImpl;
 import org.wso2.carbon.device.mgt.core.dao.DeviceManagementDAOFactory;
 import org.wso2.carbon.device.mgt.core.dao.GroupManagementDAOFactory;
+import org.wso2.carbon.device.mgt.core.device.details.mgt.DeviceDetailsIngestionPipeline;
+import org.wso2.carbon.device.mgt.core.geo.cluster.GeoClusterEngine;
 import org.wso2.carbon.device.mgt.core.geo.service.GeoLocationProviderServiceImpl;
 import org.wso2.carbon.device.mgt.core.notification.mgt.NotificationManagementServiceImpl;
 import org.wso2.carbon.device.mgt.core.notification.mgt.dao.NotificationManagementDAOFactory;
@@ -53,13 +61,17 @@ import org.wso2.carbon.device.mgt.core.operation.mgt.dao.OperationManagementDAOF
 import org.wso2.carbon.device.mgt.core.permission.mgt.PermissionManagerServiceImpl;
 import org.wso2.carbon.device.mgt.core.privacy.PrivacyComplianceProvider;
 import org.wso2.carbon.device.mgt.core.privacy.impl.PrivacyComplianceProviderImpl;
+import org.wso2.carbon.device.mgt.core.push.notification.mgt.PushNotificationDispatcher;
 import org.wso2.carbon.device.mgt.core.push.notification.mgt.PushNotificationProviderRepository;
 import org.wso2.carbon.device.mgt.core.push.notification.mgt.task.PushNotificationSchedulerTask;
+import org.wso2.carbon.device.mgt.core.search.mgt.index.DevicePropertyIndex;
 import org.wso2.carbon.device.mgt.core.service.DeviceManagementProviderService;
 import org.wso2.carbon.device.mgt.core.service.DeviceManagementProviderServiceImpl;
 import org.wso2.carbon.device.mgt.core.service.GroupManagementProviderService;
 import org.wso2.carbon.device.mgt.core.service.GroupManagementProviderServiceImpl;
+import org.wso2.carbon.device.mgt.core.status.task.impl.DeviceActivityMonitor;
 import org.wso2.carbon.device.mgt.core.task.DeviceTaskManagerService;
+import org.wso2.carbon.device.mgt.core.task.partition.TaskPartitionManager;
 import org.wso2.carbon.device.mgt.core.util.DeviceManagementSchemaInitializer;
 import org.wso2.carbon.device.mgt.core.util.DeviceManagerUtil;
 import org.wso2.carbon.email.sender.core.service.EmailSenderService;
@@ -71,9 +83,6 @@ import org.wso2.carbon.utils.ConfigurationContextService;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 
 /**
  * @scr.component name="org.wso2.carbon.device.manager" immediate="true"
@@ -166,6 +175,7 @@ public class DeviceManagementServiceComponent {
             OperationManagementDAOFactory.init(dsConfig);
             /*Initialize the device cache*/
             DeviceManagerUtil.initializeDeviceCache();
+            DeviceManagerUtil.initializePendingOperationCache();
 
             /* Initialize Operation Manager */
             this.initOperationsManager();
@@ -179,6 +189,36 @@ public class DeviceManagementServiceComponent {
                 }
             }
             DeviceManagementDataHolder.getInstance().setPushNotificationProviderRepository(pushNotificationRepo);
+            DispatcherConfiguration dispatcherConfig = config.getPushNotificationConfiguration()
+                    .getDispatcherConfiguration();
+            if (dispatcherConfig.isEnabled()) {
+                DeviceManagementDataHolder.getInstance().setPushNotificationDispatcher(
+                        new PushNotificationDispatcher(dispatcherConfig));
+            }
+            DeviceDetailsIngestionConfiguration ingestionConfig = config.getDeviceDetailsIngestionConfiguration();
+            if (ingestionConfig.isEnabled()) {
+                DeviceManagementDataHolder.getInstance().setDeviceDetailsIngestionPipeline(
+                        new DeviceDetailsIngestionPipeline(ingestionConfig));
+            }
+            DevicePropertyIndexConfiguration propertyIndexConfig = config.getDevicePropertyIndexConfiguration();
+            if (propertyIndexConfig.isEnabled()) {
+                DeviceManagementDataHolder.getInstance().setDevicePropertyIndex(
+                        new DevicePropertyIndex(propertyIndexConfig));
+            }
+            GeoClusterConfiguration geoClusterConfig = config.getGeoClusterConfiguration();
+            if (geoClusterConfig.isEnabled()) {
+                DeviceManagementDataHolder.getInstance().setGeoClusterEngine(new GeoClusterEngine(geoClusterConfig));
+            }
+            DeviceStatusTaskConfig deviceStatusTaskConfig = config.getDeviceStatusTaskConfig();
+            if (deviceStatusTaskConfig != null && deviceStatusTaskConfig.isEnabled() &&
+                    deviceStatusTaskConfig.isIncrementalMonitoringEnabled()) {
+                DeviceManagementDataHolder.getInstance().setDeviceActivityMonitor(new DeviceActivityMonitor());
+            }
+            TaskPartitionConfiguration taskPartitionConfig = config.getTaskPartitionConfiguration();
+            if (taskPartitionConfig.isEnabled()) {
+                DeviceManagementDataHolder.getInstance().setTaskPartitionManager(
+                        new TaskPartitionManager(taskPartitionConfig));
+            }
 
             /* If -Dsetup option enabled then create device management database schema */
             String setupOption =
@@ -222,10 +262,12 @@ public class DeviceManagementServiceComponent {
                     config.getPushNotificationConfiguration().setSchedulerTaskInitialDelay(DeviceManagementConstants
                             .PushNotifications.DEFAULT_SCHEDULER_TASK_INITIAL_DELAY);
                 }
-                ScheduledExecutorService pushNotificationExecutor = Executors.newSingleThreadScheduledExecutor();
-                pushNotificationExecutor.scheduleWithFixedDelay(new PushNotificationSchedulerTask(), config
-                        .getPushNotificationConfiguration().getSchedulerTaskInitialDelay(), config
-                        .getPushNotificationConfiguration().getSchedulerBatchDelayMills(), TimeUnit.MILLISECONDS);
+                PushNotificationSchedulerTask pushNotificationSchedulerTask = new PushNotificationSchedulerTask();
+                pushNotificationSchedulerTask.start(config.getPushNotificationConfiguration()
+                        .getSchedulerTaskInitialDelay(), config.getPushNotificationConfiguration()
+                        .getSchedulerBatchDelayMills());
+                DeviceManagementDataHolder.getInstance().setPushNotificationSchedulerTask(
+                        pushNotificationSchedulerTask);
             }
 
             PrivacyComplianceProvider privacyComplianceProvider = new PrivacyComplianceProviderImpl();
@@ -243,7 +285,41 @@ public class DeviceManagementServiceComponent {
 
     @SuppressWarnings("unused")
     protected void deactivate(ComponentContext componentContext) {
-        //do nothing
+        PushNotificationSchedulerTask pushNotificationSchedulerTask = DeviceManagementDataHolder.getInstance()
+                .getPushNotificationSchedulerTask();
+        if (pushNotificationSchedulerTask != null) {
+            DeviceManagementDataHolder.getInstance().setPushNotificationSchedulerTask(null);
+            pushNotificationSchedulerTask.shutdown();
+        }
+        PushNotificationDispatcher pushNotificationDispatcher = DeviceManagementDataHolder.getInstance()
+                .getPushNotificationDispatcher();
+        if (pushNotificationDispatcher != null) {
+            pushNotificationDispatcher.shutdown();
+            DeviceManagementDataHolder.getInstance().setPushNotificationDispatcher(null);
+        }
+        DeviceDetailsIngestionPipeline deviceDetailsIngestionPipeline = DeviceManagementDataHolder.getInstance()
+                .getDeviceDetailsIngestionPipeline();
+        if (deviceDetailsIngestionPipeline != null) {
+            DeviceManagementDataHolder.getInstance().setDeviceDetailsIngestionPipeline(null);
+            deviceDetailsIngestionPipeline.shutdown();
+        }
+        DevicePropertyIndex devicePropertyIndex = DeviceManagementDataHolder.getInstance().getDevicePropertyIndex();
+        if (devicePropertyIndex != null) {
+            DeviceManagementDataHolder.getInstance().setDevicePropertyIndex(null);
+            devicePropertyIndex.shutdown();
+        }
+        GeoClusterEngine geoClusterEngine = DeviceManagementDataHolder.getInstance().getGeoClusterEngine();
+        if (geoClusterEngine != null) {
+            DeviceManagementDataHolder.getInstance().setGeoClusterEngine(null);
+            geoClusterEngine.shutdown();
+        }
+        DeviceManagementDataHolder.getInstance().setDeviceActivityMonitor(null);
+        TaskPartitionManager taskPartitionManager = DeviceManagementDataHolder.getInstance()
+                .getTaskPartitionManager();
+        if (taskPartitionManager != null) {
+            DeviceManagementDataHolder.getInstance().setTaskPartitionManager(null);
+            taskPartitionManager.shutdown();
+        }
     }
 
     private void initOperationsManager() throws OperationManagementException {
@@ -32,6 +32,7 @@ import org.wso2.carbon.device.mgt.common.PaginationRequest;
 import org.wso2.carbon.device.mgt.common.PaginationResult;
 import org.wso2.carbon.device.mgt.common.TransactionManagementException;
 import org.wso2.carbon.device.mgt.common.authorization.DeviceAccessAuthorizationException;
+import org.wso2.carbon.device.mgt.common.authorization.DeviceAuthorizationResult;
 import org.wso2.carbon.device.mgt.common.group.mgt.DeviceGroupConstants;
 import org.wso2.carbon.device.mgt.common.operation.mgt.Activity;
 import org.wso2.carbon.device.mgt.common.operation.mgt.ActivityStatus;
@@ -45,6 +46,9 @@ import org.wso2.carbon.device.mgt.common.push.notification.PushNotificationExecu
 import org.wso2.carbon.device.mgt.common.push.notification.PushNotificationProvider;
 import org.wso2.carbon.device.mgt.common.spi.DeviceManagementService;
 import org.wso2.carbon.device.mgt.core.DeviceManagementConstants;
+import org.wso2.carbon.device.mgt.core.cache.PendingOperationCacheEntry;
+import org.wso2.carbon.device.mgt.core.cache.PendingOperationCacheManager;
+import org.wso2.carbon.device.mgt.core.cache.impl.PendingOperationCacheManagerImpl;
 import org.wso2.carbon.device.mgt.core.config.DeviceConfigurationManager;
 import org.wso2.carbon.device.mgt.core.dao.DeviceDAO;
 import org.wso2.carbon.device.mgt.core.dao.DeviceManagementDAOException;
@@ -58,7 +62,9 @@ import org.wso2.carbon.device.mgt.core.operation.mgt.dao.OperationMappingDAO;
 import org.wso2.carbon.device.mgt.core.operation.mgt.dao.util.OperationDAOUtil;
 import org.wso2.carbon.device.mgt.core.operation.mgt.util.DeviceIDHolder;
 import org.wso2.carbon.device.mgt.core.operation.mgt.util.OperationIdComparator;
+import org.wso2.carbon.device.mgt.core.push.notification.mgt.PushNotificationDispatcher;
 import org.wso2.carbon.device.mgt.core.service.DeviceManagementProviderService;
+import org.wso2.carbon.device.mgt.core.status.task.impl.DeviceActivityMonitor;
 import org.wso2.carbon.device.mgt.core.task.DeviceTaskManager;
 import org.wso2.carbon.device.mgt.core.task.impl.DeviceTaskManagerImpl;
 import org.wso2.carbon.device.mgt.core.util.DeviceManagerUtil;
@@ -70,6 +76,7 @@ import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -97,6 +104,7 @@ public class OperationManagerImpl implements OperationManager {
     private DeviceManagementService deviceManagementService;
     private Map<Integer, NotificationStrategy> notificationStrategies;
     private Map<Integer, Long> lastUpdatedTimeStamps;
+    private PendingOperationCacheManager pendingOperationCacheManager;
 
     public OperationManagerImpl() {
         commandOperationDAO = OperationManagementDAOFactory.getCommandOperationDAO();
@@ -109,6 +117,7 @@ public class OperationManagerImpl implements OperationManager {
         enrollmentDAO = DeviceManagementDAOFactory.getEnrollmentDAO();
         notificationStrategies = new HashMap<>();
         lastUpdatedTimeStamps = new HashMap<>();
+        pendingOperationCacheManager = PendingOperationCacheManagerImpl.getInstance();
     }
 
     public OperationManagerImpl(String deviceType, DeviceManagementService deviceManagementService) {
@@ -190,48 +199,39 @@ public class OperationManagerImpl implements OperationManager {
                 OperationManagementDAOFactory.beginTransaction();
                 org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation operationDto =
                         OperationDAOUtil.convertOperation(operation);
-                int enrolmentId;
                 String operationCode = operationDto.getCode();
+                int tenantId = CarbonContext.getThreadLocalCarbonContext().getTenantId();
 
-                List<Device> authorizedDevices = new ArrayList<>();
-                List<Device> ignoredDevices = new ArrayList<>();
-                for (DeviceIdentifier deviceId : authorizedDeviceIds) {
-                    Device device = getDevice(deviceId);
-                    authorizedDevices.add(device);
-                }
+                Map<Integer, DeviceIdentifier> enrolments = this.getEnrolments(authorizedDeviceIds, tenantId);
 
                 if (operationDto.getControl() ==
                     org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation.Control.NO_REPEAT) {
-                    int existingOperationID;
-                    for (Device device : authorizedDevices) {
-                        enrolmentId = device.getEnrolmentInfo().getId();
-                        existingOperationID = operationDAO.getExistingOperationID(enrolmentId, operationCode);
-                        if (existingOperationID > 0) {
-                            ignoredDevices.add(device);
-                            operation.setId(existingOperationID);
-                            this.sendNotification(operation, device);
-                        }
+                    Map<Integer, Integer> existingOperationIds = operationDAO.getExistingOperationIDs(
+                            new ArrayList<>(enrolments.keySet()), operationCode);
+                    for (Map.Entry<Integer, Integer> existingOperation : existingOperationIds.entrySet()) {
+                        this.sendNotification(this.getExistingOperation(operation, existingOperation.getValue()),
+                                enrolments.get(existingOperation.getKey()), existingOperation.getKey());
                     }
-                }
-
-                if (ignoredDevices.size() > 0) {
-                    if (authorizedDevices.size() == ignoredDevices.size()) {
-                        if (log.isDebugEnabled()) {
-                            log.debug("All the devices contain a pending operation for the Operation Code: "
-                                    + operationCode);
+                    if (existingOperationIds.size() > 0) {
+                        if (enrolments.size() == existingOperationIds.size()) {
+                            if (log.isDebugEnabled()) {
+                                log.debug("All the devices contain a pending operation for the Operation Code: "
+                                        + operationCode);
+                            }
+                            Activity activity = new Activity();
+                            //Send the operation statuses only for admin triggered operations
+                            String deviceType = validDeviceIds.get(0).getType();
+                            activity.setActivityStatus(this.getActivityStatus(deviceValidationResult,
+                                    deviceAuthorizationResult, deviceType));
+                            return activity;
+                        } else {
+                            enrolments.keySet().removeAll(existingOperationIds.keySet());
                         }
-                        Activity activity = new Activity();
-                        //Send the operation statuses only for admin triggered operations
-                        String deviceType = validDeviceIds.get(0).getType();
-                        activity.setActivityStatus(this.getActivityStatus(deviceValidationResult, deviceAuthorizationResult,
-                                deviceType));
-                        return activity;
-                    } else {
-                        authorizedDevices.removeAll(ignoredDevices);
                     }
                 }
 
                 int operationId = this.lookupOperationDAO(operation).addOperation(operationDto);
+                operation.setId(operationId);
 
                 boolean isScheduled = false;
                 NotificationStrategy notificationStrategy = getNotificationStrategy();
@@ -244,18 +244,20 @@ public class OperationManagerImpl implements OperationManager {
                     isScheduled = notificationStrategy.getConfig().isScheduled();
                 }
 
-                //TODO have to create a sql to load device details from deviceDAO using single query.
-                for (Device device : authorizedDevices) {
-                    enrolmentId = device.getEnrolmentInfo().getId();
-                    //Do not repeat the task operations
-                    operationMappingDAO.addOperationMapping(operationId, enrolmentId, isScheduled);
-                }
+                int mappingBatchSize = DeviceConfigurationManager.getInstance().getDeviceManagementConfig().
+                        getOperationConfiguration().getMappingBatchSize();
+                operationMappingDAO.addOperationMappings(operationId, new ArrayList<>(enrolments.keySet()),
+                        isScheduled, mappingBatchSize);
                 OperationManagementDAOFactory.commitTransaction();
+                pendingOperationCacheManager.invalidate(enrolments.keySet(), tenantId);
+                DeviceActivityMonitor deviceActivityMonitor = DeviceManagementDataHolder.getInstance()
+                        .getDeviceActivityMonitor();
+                if (deviceActivityMonitor != null) {
+                    deviceActivityMonitor.operationsAdded(enrolments, tenantId);
+                }
 
                 if (!isScheduled) {
-                    for (Device device : authorizedDevices) {
-                        this.sendNotification(operation, device);
-                    }
+                    this.sendNotifications(operation, enrolments);
                 }
 
                 Activity activity = new Activity();
@@ -284,7 +286,112 @@ public class OperationManagerImpl implements OperationManager {
         }
     }
 
-    private void sendNotification(Operation operation, Device device) {
+    /**
+     * Adds an operation of the device monitoring task to the given devices at once. The enrolments of the devices and
+     * their pending operations of the same code are looked up with set queries, and the operation is stored once
+     * and mapped to all the enrolments which do not already have it pending.
+     */
+    @Override
+    public int addMonitoringOperation(Operation operation, List<DeviceIdentifier> devices, long fanOutWindow)
+            throws OperationManagementException {
+        if (devices.isEmpty()) {
+            return 0;
+        }
+        operation.setInitiatedBy(SYSTEM);
+        int tenantId = CarbonContext.getThreadLocalCarbonContext().getTenantId();
+        Map<Integer, DeviceIdentifier> enrolments;
+        boolean isScheduled = false;
+        try {
+            OperationManagementDAOFactory.beginTransaction();
+            enrolments = this.getEnrolments(devices, tenantId);
+            Map<Integer, Integer> existingOperationIds = operationDAO.getExistingOperationIDs(
+                    new ArrayList<>(enrolments.keySet()), operation.getCode());
+            enrolments.keySet().removeAll(existingOperationIds.keySet());
+            if (enrolments.isEmpty()) {
+                OperationManagementDAOFactory.commitTransaction();
+                if (log.isDebugEnabled()) {
+                    log.debug("All the given " + deviceType + " devices contain a pending operation for the " +
+                            "Operation Code: " + operation.getCode());
+                }
+                return 0;
+            }
+            org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation operationDto =
+                    OperationDAOUtil.convertOperation(operation);
+            int operationId = this.lookupOperationDAO(operation).addOperation(operationDto);
+            operation.setId(operationId);
+
+            NotificationStrategy notificationStrategy = getNotificationStrategy();
+            if (DeviceConfigurationManager.getInstance().getDeviceManagementConfig().
+                    getPushNotificationConfiguration().getSchedulerBatchSize() <= enrolments.size() &&
+                    notificationStrategy != null) {
+                isScheduled = notificationStrategy.getConfig().isScheduled();
+            }
+            int mappingBatchSize = DeviceConfigurationManager.getInstance().getDeviceManagementConfig().
+                    getOperationConfiguration().getMappingBatchSize();
+            operationMappingDAO.addOperationMappings(operationId, new ArrayList<>(enrolments.keySet()),
+                    isScheduled, mappingBatchSize);
+            OperationManagementDAOFactory.commitTransaction();
+        } catch (OperationManagementDAOException e) {
+            OperationManagementDAOFactory.rollbackTransaction();
+            throw new OperationManagementException("Error occurred while adding monitoring operation '" +
+                    operation.getCode() + "' to " + deviceType + " devices", e);
+        } catch (TransactionManagementException e) {
+            throw new OperationManagementException("Error occurred while initiating the transaction", e);
+        } finally {
+            OperationManagementDAOFactory.closeConnection();
+        }
+        pendingOperationCacheManager.invalidate(enrolments.keySet(), tenantId);
+        DeviceActivityMonitor deviceActivityMonitor = DeviceManagementDataHolder.getInstance()
+                .getDeviceActivityMonitor();
+        if (deviceActivityMonitor != null) {
+            deviceActivityMonitor.operationsAdded(enrolments, tenantId);
+        }
+        if (!isScheduled) {
+            this.sendNotifications(operation, enrolments, fanOutWindow);
+        }
+        return enrolments.size();
+    }
+
+    /**
+     * Spreads the push notifications of the given devices over the fan-out window, in batches of the configured
+     * size. Devices are assigned to the batches by their enrolment ids, so that each device is notified at the same
+     * offset within the window every time the monitoring task runs.
+     */
+    private void sendNotifications(Operation operation, Map<Integer, DeviceIdentifier> enrolments,
+                                   long fanOutWindow) {
+        int batchSize = DeviceConfigurationManager.getInstance().getDeviceManagementConfig().
+                getOperationConfiguration().getMonitoringFanOutBatchSize();
+        NotificationStrategy notificationStrategy = getNotificationStrategy();
+        PushNotificationDispatcher pushNotificationDispatcher = DeviceManagementDataHolder.getInstance()
+                .getPushNotificationDispatcher();
+        if (fanOutWindow <= 0 || enrolments.size() <= batchSize || notificationStrategy == null ||
+                pushNotificationDispatcher == null) {
+            this.sendNotifications(operation, enrolments);
+            return;
+        }
+        int batchCount = (enrolments.size() + batchSize - 1) / batchSize;
+        List<Map<Integer, NotificationContext>> batches = new ArrayList<>(batchCount);
+        for (int i = 0; i < batchCount; i++) {
+            batches.add(new LinkedHashMap<Integer, NotificationContext>());
+        }
+        for (Map.Entry<Integer, DeviceIdentifier> enrolment : enrolments.entrySet()) {
+            batches.get((enrolment.getKey() & 0x7fffffff) % batchCount).put(enrolment.getKey(),
+                    new NotificationContext(enrolment.getValue(), operation));
+        }
+        int tenantId = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId();
+        long batchInterval = fanOutWindow / batchCount;
+        for (int i = 0; i < batchCount; i++) {
+            if (!batches.get(i).isEmpty()) {
+                pushNotificationDispatcher.dispatch(notificationStrategy, batches.get(i), tenantId, i * batchInterval);
+            }
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Push notifications of operation '" + operation.getCode() + "' to " + enrolments.size() + " " +
+                    deviceType + " devices are spread over " + fanOutWindow + " ms in " + batchCount + " batches");
+        }
+    }
+
+    private void sendNotification(Operation operation, DeviceIdentifier deviceIdentifier, int enrolmentId) {
         NotificationStrategy notificationStrategy = getNotificationStrategy();
         /*
          * If notification strategy has not enable to send push notification using scheduler task we will send
@@ -294,20 +401,28 @@ public class OperationManagerImpl implements OperationManager {
          */
         if (notificationStrategy != null) {
             if (log.isDebugEnabled()) {
-                log.debug("Sending push notification to " + device.getDeviceIdentifier() + " from add operation method.");
+                log.debug("Sending push notification to " + deviceIdentifier.getId() + " from add operation method.");
+            }
+            PushNotificationDispatcher pushNotificationDispatcher = DeviceManagementDataHolder.getInstance()
+                    .getPushNotificationDispatcher();
+            if (pushNotificationDispatcher != null) {
+                // Dispatcher retries failed notifications and falls back to the scheduler task by itself
+                pushNotificationDispatcher.dispatch(notificationStrategy,
+                        new NotificationContext(deviceIdentifier, operation), enrolmentId,
+                        PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId());
+                return;
             }
-            DeviceIdentifier deviceIdentifier = new DeviceIdentifier(device.getDeviceIdentifier(), device.getType());
             try {
                 notificationStrategy.execute(new NotificationContext(deviceIdentifier, operation));
             } catch (PushNotificationExecutionFailedException e) {
-                log.error("Error occurred while sending push notifications to " + device.getType() +
-                          " device carrying id '" + device.getDeviceIdentifier() + "'", e);
+                log.error("Error occurred while sending push notifications to " + deviceIdentifier.getType() +
+                          " device carrying id '" + deviceIdentifier.getId() + "'", e);
                 /*
                  * Reschedule if push notification failed. Doing db transactions in atomic way to prevent
                  * deadlocks.
                  */
                 try {
-                    operationMappingDAO.updateOperationMapping(operation.getId(), device.getEnrolmentInfo().getId(), org.wso2.carbon
+                    operationMappingDAO.updateOperationMapping(operation.getId(), enrolmentId, org.wso2.carbon
                             .device.mgt.core.dto.operation.mgt.Operation.PushNotificationStatus.SCHEDULED);
                     OperationManagementDAOFactory.commitTransaction();
                 } catch (OperationManagementDAOException ex) {
@@ -319,6 +434,79 @@ public class OperationManagerImpl implements OperationManager {
         }
     }
 
+    private void sendNotifications(Operation operation, Map<Integer, DeviceIdentifier> enrolments) {
+        NotificationStrategy notificationStrategy = getNotificationStrategy();
+        PushNotificationDispatcher pushNotificationDispatcher = DeviceManagementDataHolder.getInstance()
+                .getPushNotificationDispatcher();
+        if (notificationStrategy != null && pushNotificationDispatcher != null) {
+            // Handing over all the notifications at once lets strategies which support it send them in bulk
+            Map<Integer, NotificationContext> contexts = new LinkedHashMap<>();
+            for (Map.Entry<Integer, DeviceIdentifier> enrolment : enrolments.entrySet()) {
+                contexts.put(enrolment.getKey(), new NotificationContext(enrolment.getValue(), operation));
+            }
+            pushNotificationDispatcher.dispatch(notificationStrategy, contexts,
+                    PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId());
+        } else {
+            for (Map.Entry<Integer, DeviceIdentifier> enrolment : enrolments.entrySet()) {
+                this.sendNotification(operation, enrolment.getValue(), enrolment.getKey());
+            }
+        }
+    }
+
+    /**
+     * Builds a copy of the given operation which carries the id of an already pending operation, so that the
+     * notification of the pending operation does not change the operation being added while it is dispatched.
+     */
+    private Operation getExistingOperation(Operation operation, int existingOperationId) {
+        Operation existingOperation = new Operation();
+        existingOperation.setId(existingOperationId);
+        existingOperation.setCode(operation.getCode());
+        existingOperation.setType(operation.getType());
+        existingOperation.setControl(operation.getControl());
+        existingOperation.setProperties(operation.getProperties());
+        existingOperation.setPayLoad(operation.getPayLoad());
+        existingOperation.setEnabled(operation.isEnabled());
+        existingOperation.setInitiatedBy(operation.getInitiatedBy());
+        return existingOperation;
+    }
+
+    /**
+     * Resolves the enrolments of the given devices with one set query per device type instead of loading the
+     * devices one by one.
+     *
+     * @param deviceIds identifiers of the devices
+     * @param tenantId  tenant of the devices
+     * @return enrolment id to device identifier map which preserves the order of the given devices
+     * @throws OperationManagementDAOException if the enrolments cannot be retrieved
+     */
+    private Map<Integer, DeviceIdentifier> getEnrolments(List<DeviceIdentifier> deviceIds, int tenantId)
+            throws OperationManagementDAOException {
+        Map<String, List<String>> deviceIdentifiersByType = new LinkedHashMap<>();
+        for (DeviceIdentifier deviceId : deviceIds) {
+            List<String> deviceIdentifiers = deviceIdentifiersByType.get(deviceId.getType());
+            if (deviceIdentifiers == null) {
+                deviceIdentifiers = new ArrayList<>();
+                deviceIdentifiersByType.put(deviceId.getType(), deviceIdentifiers);
+            }
+            deviceIdentifiers.add(deviceId.getId());
+        }
+        Map<Integer, DeviceIdentifier> enrolments = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> entry : deviceIdentifiersByType.entrySet()) {
+            Map<String, Integer> enrolmentIds = operationMappingDAO.getEnrolmentIds(entry.getKey(),
+                    entry.getValue(), tenantId);
+            for (String deviceIdentifier : entry.getValue()) {
+                Integer enrolmentId = enrolmentIds.get(deviceIdentifier);
+                if (enrolmentId == null) {
+                    log.warn("No enrolment found for " + entry.getKey() + " device carrying id '" +
+                             deviceIdentifier + "', hence the operation is not added to it.");
+                    continue;
+                }
+                enrolments.put(enrolmentId, new DeviceIdentifier(deviceIdentifier, entry.getKey()));
+            }
+        }
+        return enrolments;
+    }
+
     private List<ActivityStatus> getActivityStatus(DeviceIDHolder deviceIdValidationResult, DeviceIDHolder deviceAuthResult,
                                                    String deviceType) {
         List<ActivityStatus> activityStatuses = new ArrayList<>();
@@ -358,16 +546,26 @@ public class OperationManagerImpl implements OperationManager {
             if (operation != null && isAuthenticationSkippedOperation(operation)) {
                 authorizedDeviceList = deviceIds;
             } else {
-                boolean isAuthorized;
-                authorizedDeviceList = new ArrayList<>();
-                for (DeviceIdentifier devId : deviceIds) {
-                    isAuthorized = DeviceManagementDataHolder.getInstance().getDeviceAccessAuthorizationService().
-                            isUserAuthorized(devId);
-                    if (isAuthorized) {
-                        authorizedDeviceList.add(devId);
-                    } else {
+                DeviceAuthorizationResult authorizationResult = DeviceManagementDataHolder.getInstance().
+                        getDeviceAccessAuthorizationService().isUserAuthorized(deviceIds);
+                if (authorizationResult != null) {
+                    authorizedDeviceList = authorizationResult.getAuthorizedDevices();
+                    for (DeviceIdentifier devId : authorizationResult.getUnauthorizedDevices()) {
                         unAuthorizedDeviceList.add(devId.getId());
                     }
+                } else {
+                    // There is no user in the context, hence authorization depends only on the device type.
+                    boolean isAuthorized;
+                    authorizedDeviceList = new ArrayList<>();
+                    for (DeviceIdentifier devId : deviceIds) {
+                        isAuthorized = DeviceManagementDataHolder.getInstance().
+                                getDeviceAccessAuthorizationService().isUserAuthorized(devId);
+                        if (isAuthorized) {
+                            authorizedDeviceList.add(devId);
+                        } else {
+                            unAuthorizedDeviceList.add(devId.getId());
+                        }
+                    }
                 }
             }
         } catch (DeviceAccessAuthorizationException e) {
@@ -506,6 +704,7 @@ public class OperationManagerImpl implements OperationManager {
                 this.setEnrolmentStatus(enrolmentId, EnrolmentInfo.Status.ACTIVE);
                 break;
         }
+        this.recordDeviceSeen(deviceId, enrolmentId);
 
         try {
             OperationManagementDAOFactory.openConnection();
@@ -570,19 +769,32 @@ public class OperationManagerImpl implements OperationManager {
                 this.setEnrolmentStatus(enrolmentId, EnrolmentInfo.Status.ACTIVE);
                 break;
         }
+        this.recordDeviceSeen(deviceId, enrolmentId);
+
+        int tenantId = CarbonContext.getThreadLocalCarbonContext().getTenantId();
+        boolean includeNotNow = notNowOperationFrequency > 0;
+        PendingOperationCacheEntry cacheEntry = pendingOperationCacheManager.getOrAddEntry(enrolmentId, tenantId);
+        if (cacheEntry != null && cacheEntry.isEmpty(includeNotNow)) {
+            if (log.isDebugEnabled()) {
+                log.debug("No pending operations found in the cache for enrolment " + enrolmentId);
+            }
+            return null;
+        }
 
         try {
             OperationManagementDAOFactory.openConnection();
             org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation dtoOperation = null;
+            boolean notNowEmpty = true;
 
             // check whether notnow is set
-            if (notNowOperationFrequency > 0) {
+            if (includeNotNow) {
                 // retrieve Notnow operations
                 dtoOperation = operationDAO.getNextOperation(enrolmentInfo.getId(),
                         org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation.Status.NOTNOW);
             }
 
             if (dtoOperation != null) {
+                notNowEmpty = false;
                 long currentTime = Calendar.getInstance().getTime().getTime();
                 log.info("Current timestamp:" + currentTime);
                 long updatedTime = Timestamp.valueOf(dtoOperation.getReceivedTimeStamp()).getTime();
@@ -591,33 +803,21 @@ public class OperationManagerImpl implements OperationManager {
                 // check if notnow frequency is met and set next pending operation if not, otherwise let notnow
                 // operation to proceed
                 if ((currentTime - updatedTime) < notNowOperationFrequency) {
-                    dtoOperation = operationDAO.getNextOperation(enrolmentInfo.getId(),
+                    dtoOperation = operationDAO.getNextOperationWithDetails(enrolmentInfo.getId(),
                             org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation.Status.PENDING);
+                } else {
+                    dtoOperation = this.getOperationDetails(dtoOperation);
                 }
             } else {
-                dtoOperation = operationDAO.getNextOperation(enrolmentInfo.getId(),
+                dtoOperation = operationDAO.getNextOperationWithDetails(enrolmentInfo.getId(),
                         org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation.Status.PENDING);
             }
 
             if (dtoOperation != null) {
-                if (org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation.Type.COMMAND.equals(dtoOperation.getType()
-                )) {
-                    org.wso2.carbon.device.mgt.core.dto.operation.mgt.CommandOperation commandOperation;
-                    commandOperation =
-                            (org.wso2.carbon.device.mgt.core.dto.operation.mgt.CommandOperation) commandOperationDAO.
-                                    getOperation(dtoOperation.getId());
-                    dtoOperation.setEnabled(commandOperation.isEnabled());
-                } else if (org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation.Type.CONFIG.equals(dtoOperation.
-                        getType())) {
-                    dtoOperation = configOperationDAO.getOperation(dtoOperation.getId());
-                } else if (org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation.Type.PROFILE.equals(dtoOperation.
-                        getType())) {
-                    dtoOperation = profileOperationDAO.getOperation(dtoOperation.getId());
-                } else if (org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation.Type.POLICY.equals(dtoOperation.
-                        getType())) {
-                    dtoOperation = policyOperationDAO.getOperation(dtoOperation.getId());
-                }
                 operation = OperationDAOUtil.convertOperation(dtoOperation);
+            } else {
+                pendingOperationCacheManager.markEmpty(enrolmentId, tenantId, cacheEntry,
+                        includeNotNow && notNowEmpty);
             }
         } catch (OperationManagementDAOException e) {
             throw new OperationManagementException("Error occurred while retrieving next pending operation", e);
@@ -630,6 +830,28 @@ public class OperationManagerImpl implements OperationManager {
         return operation;
     }
 
+    private org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation getOperationDetails(
+            org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation dtoOperation)
+            throws OperationManagementDAOException {
+        if (org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation.Type.COMMAND.equals(dtoOperation.getType())) {
+            org.wso2.carbon.device.mgt.core.dto.operation.mgt.CommandOperation commandOperation;
+            commandOperation =
+                    (org.wso2.carbon.device.mgt.core.dto.operation.mgt.CommandOperation) commandOperationDAO.
+                            getOperation(dtoOperation.getId());
+            dtoOperation.setEnabled(commandOperation.isEnabled());
+        } else if (org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation.Type.CONFIG.equals(dtoOperation.
+                getType())) {
+            dtoOperation = configOperationDAO.getOperation(dtoOperation.getId());
+        } else if (org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation.Type.PROFILE.equals(dtoOperation.
+                getType())) {
+            dtoOperation = profileOperationDAO.getOperation(dtoOperation.getId());
+        } else if (org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation.Type.POLICY.equals(dtoOperation.
+                getType())) {
+            dtoOperation = policyOperationDAO.getOperation(dtoOperation.getId());
+        }
+        return dtoOperation;
+    }
+
     @Override
     public void updateOperation(DeviceIdentifier deviceId, Operation operation) throws OperationManagementException {
         int operationId = operation.getId();
@@ -663,6 +885,9 @@ public class OperationManagerImpl implements OperationManager {
                 operationDAO.addOperationResponse(enrolmentId, operationId, operation.getOperationResponse());
             }
             OperationManagementDAOFactory.commitTransaction();
+            pendingOperationCacheManager.invalidate(Collections.singletonList(enrolmentId),
+                    CarbonContext.getThreadLocalCarbonContext().getTenantId());
+            this.recordDeviceSeen(deviceId, enrolmentId);
         } catch (OperationManagementDAOException e) {
             OperationManagementDAOFactory.rollbackTransaction();
             throw new OperationManagementException(
@@ -1113,6 +1338,14 @@ public class OperationManagerImpl implements OperationManager {
         return enrolmentInfo;
     }
 
+    private void recordDeviceSeen(DeviceIdentifier deviceId, int enrolmentId) {
+        DeviceActivityMonitor deviceActivityMonitor = DeviceManagementDataHolder.getInstance()
+                .getDeviceActivityMonitor();
+        if (deviceActivityMonitor != null) {
+            deviceActivityMonitor.deviceSeen(deviceId, enrolmentId);
+        }
+    }
+
     private boolean setEnrolmentStatus(int enrolmentId, EnrolmentInfo.Status status) throws OperationManagementException {
         boolean updateStatus;
         try {
@@ -48,6 +48,18 @@ public interface OperationDAO {
 
     Operation getNextOperation(int enrolmentId, Operation.Status status) throws OperationManagementDAOException;
 
+    /**
+     * This method returns the next operation of the given status along with its type specific details, such as the
+     * profile payload of a profile operation, by joining the operation detail tables in a single query.
+     *
+     * @param enrolmentId Enrolment of the device.
+     * @param status      Status of the operation.
+     * @return Next operation or null if there is no operation in the given status.
+     * @throws OperationManagementDAOException If an error occurs while retrieving or decoding the operation.
+     */
+    Operation getNextOperationWithDetails(int enrolmentId, Operation.Status status)
+            throws OperationManagementDAOException;
+
     boolean updateOperationStatus(int enrolmentId, int operationId,Operation.Status status)
             throws OperationManagementDAOException;
 
@@ -56,6 +68,18 @@ public interface OperationDAO {
 
     int getExistingOperationID(int enrolmentId, String operationCode) throws OperationManagementDAOException;
 
+    /**
+     * This method returns the pending operation carrying the given operation code for each of the given enrolments.
+     *
+     * @param enrolmentIds Enrolment ids to be checked
+     * @param operationCode Operation code
+     * @return Map of enrolment id to the id of its pending operation. Enrolments without such an operation are not
+     * included.
+     * @throws OperationManagementDAOException
+     */
+    Map<Integer, Integer> getExistingOperationIDs(List<Integer> enrolmentIds, String operationCode)
+            throws OperationManagementDAOException;
+
     void addOperationResponse(int enrolmentId, int operationId, Object operationResponse)
             throws OperationManagementDAOException;
 
@@ -88,4 +112,22 @@ public interface OperationDAO {
     Map<Integer, List<OperationMapping>> getOperationMappingsByStatus(Operation.Status opStatus, Operation.PushNotificationStatus pushNotificationStatus,
                                                                      int limit) throws OperationManagementDAOException;
 
+    /**
+     * This method provides operation mappings for given status, of the enrolments in the given partition only. The
+     * enrolments are split into partitions by the remainder of their ids, so that concurrent callers looking at
+     * different partitions do not read the same mappings.
+     * @param opStatus Operation status
+     * @param pushNotificationStatus Push notification Status
+     * @param limit Limit for no devices
+     * @param partitionCount Number of partitions the enrolments are split into
+     * @param partition Partition of which the mappings are returned, from 0 to partitionCount - 1
+     * @return Tenant based operation mappings list
+     * @throws OperationManagementDAOException
+     */
+    Map<Integer, List<OperationMapping>> getOperationMappingsByStatus(Operation.Status opStatus,
+                                                                     Operation.PushNotificationStatus
+                                                                             pushNotificationStatus, int limit,
+                                                                     int partitionCount, int partition)
+            throws OperationManagementDAOException;
+
 }
\ No newline at end of file
@@ -63,6 +63,9 @@ public class OperationManagementDAOFactory {
     }
 
     public static OperationMappingDAO getOperationMappingDAO() {
+        if (DeviceManagementConstants.DataBaseTypes.DB_TYPE_MSSQL.equals(databaseEngine)) {
+            return new SQLServerOperationMappingDAOImpl();
+        }
         return new OperationMappingDAOImpl();
     }
 
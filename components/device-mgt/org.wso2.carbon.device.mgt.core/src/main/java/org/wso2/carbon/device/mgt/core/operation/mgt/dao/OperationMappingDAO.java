@@ -25,11 +25,54 @@ import org.wso2.carbon.device.mgt.core.operation.mgt.OperationMapping;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public interface OperationMappingDAO {
 
     void addOperationMapping(int operationId, Integer deviceId, boolean isScheduled) throws OperationManagementDAOException;
 
+    /**
+     * This method maps the given operation to all the given enrolments. Mappings are written using JDBC batches
+     * which carry at most batchSize rows.
+     *
+     * @param operationId - Id of the operation
+     * @param enrolmentIds - Enrolment ids which the operation should be mapped to
+     * @param isScheduled - Whether the push notification is scheduled
+     * @param batchSize - Maximum number of rows written in a single batch
+     * @throws OperationManagementDAOException
+     */
+    void addOperationMappings(int operationId, List<Integer> enrolmentIds, boolean isScheduled, int batchSize)
+            throws OperationManagementDAOException;
+
+    /**
+     * This method resolves the latest enrolment of each of the given devices of a device-type using set queries
+     * instead of looking up devices one by one.
+     *
+     * @param deviceType - Device type of the devices
+     * @param deviceIdentifiers - Device identifiers of the devices
+     * @param tenantId - Tenant id of the devices
+     * @return Map of device identifier to enrolment id. Devices which are not found are not included.
+     * @throws OperationManagementDAOException
+     */
+    Map<String, Integer> getEnrolmentIds(String deviceType, List<String> deviceIdentifiers, int tenantId)
+            throws OperationManagementDAOException;
+
+    /**
+     * This method retrieves the enrolments of a device-type which monitoring operations can be added to, that is the
+     * enrolments which are not blocked, suspended or removed.
+     *
+     * @param deviceType - Device type of the enrolments
+     * @param tenantId - Tenant id of the enrolments
+     * @param partitionCount - Number of partitions the enrolments are split into by their ids
+     * @param partitionIds - Non empty set of partitions of which the enrolments are retrieved, or null to retrieve
+     *                     the enrolments of all partitions
+     * @return Map of enrolment id to device identifier, ordered by the enrolment id.
+     * @throws OperationManagementDAOException
+     */
+    Map<Integer, DeviceIdentifier> getMonitoringEnrolments(String deviceType, int tenantId, int partitionCount,
+                                                           Set<Integer> partitionIds)
+            throws OperationManagementDAOException;
+
     void removeOperationMapping(int operationId, Integer deviceId) throws OperationManagementDAOException;
 
     void updateOperationMapping(int operationId, Integer deviceId, Operation.PushNotificationStatus pushNotificationStatus) throws
@@ -37,6 +80,37 @@ public interface OperationMappingDAO {
     void updateOperationMapping(List<OperationMapping> operationMappingList) throws
             OperationManagementDAOException;
 
+    /**
+     * This method moves the given operation mappings to a new push notification status, but only the mappings which
+     * are still in the expected status. Since the status is checked and changed by the same statement, concurrent
+     * callers (e.g. the scheduler tasks of different nodes) can never claim the same mapping.
+     *
+     * @param operationMappings - Operation mappings to be claimed
+     * @param expectedStatus - Push notification status the mappings should currently be in
+     * @param newStatus - Push notification status to be set
+     * @return Operation mappings which were moved to the new status by this call
+     * @throws OperationManagementDAOException
+     */
+    List<OperationMapping> claimOperationMappings(List<OperationMapping> operationMappings,
+                                                  Operation.PushNotificationStatus expectedStatus,
+                                                  Operation.PushNotificationStatus newStatus)
+            throws OperationManagementDAOException;
+
+    /**
+     * This method moves the operation mappings which have been in the given push notification status since before
+     * the given time to a new status. It is used to release the mappings claimed by a node which went down before
+     * completing them.
+     *
+     * @param currentStatus - Push notification status of the mappings to be released
+     * @param newStatus - Push notification status to be set
+     * @param updatedBefore - Unix timestamp in seconds, mappings updated before this are released
+     * @return Number of released operation mappings
+     * @throws OperationManagementDAOException
+     */
+    int updateStaleOperationMappings(Operation.PushNotificationStatus currentStatus,
+                                     Operation.PushNotificationStatus newStatus, long updatedBefore)
+            throws OperationManagementDAOException;
+
     /**
      * This method returns first pending/repeated operation available for each active enrolment of given device-type
      * where the operation was created after the given timestamp.
@@ -51,6 +125,25 @@ public interface OperationMappingDAO {
                                                                                         long maxDuration, int deviceTypeId)
             throws OperationManagementDAOException;
 
+    /**
+     * This method returns first pending/repeated operation available for each active enrolment of given device-type
+     * in the given partitions, where the operation was created after the given timestamp.
+     *
+     * @param minDuration - Upper limit of Operation created time
+     * @param maxDuration - Lower limit of Operation created time
+     * @param deviceTypeId - Device Type Id of required devices
+     * @param partitionCount - Number of partitions the enrolments are split into by their ids
+     * @param partitionIds - Non empty set of partitions of the required enrolments, or null for all partitions
+     * @return List<OperationEnrolmentMapping> - List of OperationEnrolmentMapping objects containing required data
+     * @throws OperationManagementDAOException
+     */
+    List<OperationEnrolmentMapping> getFirstPendingOperationMappingsForActiveEnrolments(long minDuration,
+                                                                                        long maxDuration,
+                                                                                        int deviceTypeId,
+                                                                                        int partitionCount,
+                                                                                        Set<Integer> partitionIds)
+            throws OperationManagementDAOException;
+
     /**
      * This method returns the timestamp of last completed Operation for each active enrolment of given device-type
      * where the operation was completed after the given timestamp.
@@ -63,4 +156,31 @@ public interface OperationMappingDAO {
     Map<Integer, Long> getLastConnectedTimeForActiveEnrolments(long timeStamp, int deviceTypeId)
             throws OperationManagementDAOException;
 
+    /**
+     * This method returns the timestamp of last completed Operation for each active enrolment of given device-type
+     * in the given partitions, where the operation was completed after the given timestamp.
+     *
+     * @param timeStamp - Timestamp of considered time-interval
+     * @param deviceTypeId - Device Type of required devices
+     * @param partitionCount - Number of partitions the enrolments are split into by their ids
+     * @param partitionIds - Non empty set of partitions of the required enrolments, or null for all partitions
+     * @return Map of enrolment id to the timestamp of its last completed operation
+     * @throws OperationManagementDAOException
+     */
+    Map<Integer, Long> getLastConnectedTimeForActiveEnrolments(long timeStamp, int deviceTypeId, int partitionCount,
+                                                               Set<Integer> partitionIds)
+            throws OperationManagementDAOException;
+
+    /**
+     * This method returns the time the devices of the given enrolments last acted on an operation, that is the last
+     * time one of their operations moved out of the pending and repeated states. It is used to find the devices which
+     * have contacted another node of the cluster.
+     *
+     * @param enrolmentIds - Ids of the enrolments, queried in chunks of IN clause size
+     * @return Map of enrolment id to the timestamp of the last activity. Enrolments of which the devices have never
+     * acted on an operation are not included.
+     * @throws OperationManagementDAOException
+     */
+    Map<Integer, Long> getLastActivityTimes(List<Integer> enrolmentIds) throws OperationManagementDAOException;
+
 }
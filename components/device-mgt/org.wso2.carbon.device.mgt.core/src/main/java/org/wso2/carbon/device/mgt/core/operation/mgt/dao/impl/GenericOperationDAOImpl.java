@@ -25,7 +25,11 @@ import org.wso2.carbon.device.mgt.common.PaginationRequest;
 import org.wso2.carbon.device.mgt.common.operation.mgt.Activity;
 import org.wso2.carbon.device.mgt.common.operation.mgt.ActivityStatus;
 import org.wso2.carbon.device.mgt.common.operation.mgt.OperationResponse;
+import org.wso2.carbon.device.mgt.core.dao.util.DeviceManagementDAOUtil;
+import org.wso2.carbon.device.mgt.core.dto.operation.mgt.ConfigOperation;
 import org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation;
+import org.wso2.carbon.device.mgt.core.dto.operation.mgt.PolicyOperation;
+import org.wso2.carbon.device.mgt.core.dto.operation.mgt.ProfileOperation;
 import org.wso2.carbon.device.mgt.core.operation.mgt.OperationMapping;
 import org.wso2.carbon.device.mgt.core.operation.mgt.dao.OperationDAO;
 import org.wso2.carbon.device.mgt.core.operation.mgt.dao.OperationManagementDAOException;
@@ -33,11 +37,7 @@ import org.wso2.carbon.device.mgt.core.operation.mgt.dao.OperationManagementDAOF
 import org.wso2.carbon.device.mgt.core.operation.mgt.dao.OperationManagementDAOUtil;
 import org.wso2.carbon.device.mgt.core.operation.mgt.dao.util.OperationDAOUtil;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -178,12 +178,49 @@ public class GenericOperationDAOImpl implements OperationDAO {
         return result;
     }
 
+    @Override
+    public Map<Integer, Integer> getExistingOperationIDs(List<Integer> enrolmentIds, String operationCode)
+            throws OperationManagementDAOException {
+        Map<Integer, Integer> existingOperationIds = new HashMap<>();
+        if (enrolmentIds.isEmpty()) {
+            return existingOperationIds;
+        }
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            Connection connection = OperationManagementDAOFactory.getConnection();
+            for (List<Integer> chunk : DeviceManagementDAOUtil.partition(enrolmentIds,
+                    DeviceManagementDAOUtil.MAX_IN_CLAUSE_SIZE)) {
+                String query = "SELECT EOM.ENROLMENT_ID, DM.ID FROM DM_ENROLMENT_OP_MAPPING EOM INNER JOIN " +
+                        "DM_OPERATION DM ON DM.ID = EOM.OPERATION_ID WHERE DM.OPERATION_CODE = ? AND " +
+                        "EOM.STATUS = ? AND EOM.ENROLMENT_ID IN (" +
+                        DeviceManagementDAOUtil.getInClausePlaceholders(chunk.size()) + ")";
+                stmt = connection.prepareStatement(query);
+                int paramIndex = 1;
+                stmt.setString(paramIndex++, operationCode);
+                stmt.setString(paramIndex++, Operation.Status.PENDING.toString());
+                for (Integer enrolmentId : chunk) {
+                    stmt.setInt(paramIndex++, enrolmentId);
+                }
+                rs = stmt.executeQuery();
+                while (rs.next()) {
+                    existingOperationIds.put(rs.getInt("ENROLMENT_ID"), rs.getInt("ID"));
+                }
+                OperationManagementDAOUtil.cleanupResources(stmt, rs);
+            }
+        } catch (SQLException e) {
+            throw new OperationManagementDAOException("Error occurred while retrieving existing pending '" +
+                    operationCode + "' operations of enrolments", e);
+        } finally {
+            OperationManagementDAOUtil.cleanupResources(stmt, rs);
+        }
+        return existingOperationIds;
+    }
+
     @Override
     public void addOperationResponse(int enrolmentId, int operationId, Object operationResponse)
             throws OperationManagementDAOException {
         PreparedStatement stmt = null;
-        ByteArrayOutputStream bao = null;
-        ObjectOutputStream oos = null;
         ResultSet rs = null;
         try {
             Connection connection = OperationManagementDAOFactory.getConnection();
@@ -200,35 +237,18 @@ public class GenericOperationDAOImpl implements OperationDAO {
             }
             stmt = connection.prepareStatement("INSERT INTO DM_DEVICE_OPERATION_RESPONSE(OPERATION_ID, ENROLMENT_ID, " +
                     "EN_OP_MAP_ID, OPERATION_RESPONSE, RECEIVED_TIMESTAMP) VALUES(?, ?, ?, ?, ?)");
-            bao = new ByteArrayOutputStream();
-            oos = new ObjectOutputStream(bao);
-            oos.writeObject(operationResponse);
 
             stmt.setInt(1, operationId);
             stmt.setInt(2, enrolmentId);
             stmt.setInt(3, enPrimaryId);
-            stmt.setBytes(4, bao.toByteArray());
+            stmt.setBytes(4, OperationDAOUtil.encodePayload(operationResponse));
             stmt.setTimestamp(5, new Timestamp(new Date().getTime()));
             stmt.executeUpdate();
         } catch (SQLException e) {
             throw new OperationManagementDAOException("Error occurred while inserting operation response", e);
         } catch (IOException e) {
-            throw new OperationManagementDAOException("Error occurred while serializing policy operation object", e);
+            throw new OperationManagementDAOException("Error occurred while encoding operation response", e);
         } finally {
-            if (bao != null) {
-                try {
-                    bao.close();
-                } catch (IOException e) {
-                    log.warn("Error occurred while closing ByteArrayOutputStream", e);
-                }
-            }
-            if (oos != null) {
-                try {
-                    oos.close();
-                } catch (IOException e) {
-                    log.warn("Error occurred while closing ObjectOutputStream", e);
-                }
-            }
             OperationManagementDAOUtil.cleanupResources(stmt, rs);
         }
     }
@@ -1412,6 +1432,83 @@ public class GenericOperationDAOImpl implements OperationDAO {
     }
 
 
+    @Override
+    public Operation getNextOperationWithDetails(int enrolmentId, Operation.Status status)
+            throws OperationManagementDAOException {
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            Connection connection = OperationManagementDAOFactory.getConnection();
+            stmt = connection.prepareStatement("SELECT o.ID, o.TYPE, o.CREATED_TIMESTAMP, o.OPERATION_CODE, " +
+                    "om.UPDATED_TIMESTAMP, co.ENABLED AS COMMAND_ENABLED, cf.ENABLED AS CONFIG_ENABLED, " +
+                    "cf.OPERATION_CONFIG, pf.OPERATION_DETAILS AS PROFILE_DETAILS, " +
+                    "pl.OPERATION_DETAILS AS POLICY_DETAILS FROM DM_OPERATION o " +
+                    "INNER JOIN (SELECT * FROM DM_ENROLMENT_OP_MAPPING dm " +
+                    "WHERE dm.ENROLMENT_ID = ? AND dm.STATUS = ?) om ON o.ID = om.OPERATION_ID " +
+                    "LEFT JOIN DM_COMMAND_OPERATION co ON co.OPERATION_ID = o.ID " +
+                    "LEFT JOIN DM_CONFIG_OPERATION cf ON cf.OPERATION_ID = o.ID " +
+                    "LEFT JOIN DM_PROFILE_OPERATION pf ON pf.OPERATION_ID = o.ID " +
+                    "LEFT JOIN DM_POLICY_OPERATION pl ON pl.OPERATION_ID = o.ID " +
+                    "ORDER BY om.UPDATED_TIMESTAMP ASC, om.ID ASC LIMIT 1");
+            stmt.setInt(1, enrolmentId);
+            stmt.setString(2, status.toString());
+            rs = stmt.executeQuery();
+
+            Operation operation = null;
+            if (rs.next()) {
+                int operationId = rs.getInt("ID");
+                Operation.Type type = OperationDAOUtil.getType(rs.getString("TYPE"));
+                if (Operation.Type.CONFIG.equals(type)) {
+                    operation = (ConfigOperation) OperationDAOUtil.decodePayload(rs.getBytes("OPERATION_CONFIG"));
+                    operation.setId(operationId);
+                    operation.setEnabled(rs.getBoolean("CONFIG_ENABLED"));
+                } else if (Operation.Type.PROFILE.equals(type)) {
+                    Object details = OperationDAOUtil.decodePayload(rs.getBytes("PROFILE_DETAILS"));
+                    if (details instanceof String) {
+                        operation = new ProfileOperation();
+                        operation.setCode(rs.getString("OPERATION_CODE"));
+                        operation.setId(operationId);
+                        operation.setCreatedTimeStamp(rs.getString("CREATED_TIMESTAMP"));
+                        operation.setPayLoad(details);
+                    } else {
+                        operation = (ProfileOperation) details;
+                    }
+                } else if (Operation.Type.POLICY.equals(type)) {
+                    operation = (PolicyOperation) OperationDAOUtil.decodePayload(rs.getBytes("POLICY_DETAILS"));
+                } else {
+                    operation = new Operation();
+                    operation.setType(type);
+                    operation.setId(operationId);
+                    operation.setCreatedTimeStamp(rs.getTimestamp("CREATED_TIMESTAMP").toString());
+                    if (rs.getLong("UPDATED_TIMESTAMP") == 0) {
+                        operation.setReceivedTimeStamp("");
+                    } else {
+                        operation.setReceivedTimeStamp(
+                                new java.sql.Timestamp((rs.getLong("UPDATED_TIMESTAMP") * 1000)).toString());
+                    }
+                    operation.setCode(rs.getString("OPERATION_CODE"));
+                    operation.setStatus(Operation.Status.PENDING);
+                    OperationDAOUtil.setActivityId(operation, operationId);
+                    if (Operation.Type.COMMAND.equals(type)) {
+                        operation.setEnabled(rs.getBoolean("COMMAND_ENABLED"));
+                    }
+                }
+            }
+            return operation;
+        } catch (SQLException e) {
+            throw new OperationManagementDAOException("Error occurred while retrieving the next operation of " +
+                    "enrolment '" + enrolmentId + "' with status '" + status + "'", e);
+        } catch (IOException e) {
+            throw new OperationManagementDAOException("IO Error occurred while decoding the next operation of " +
+                    "enrolment '" + enrolmentId + "'", e);
+        } catch (ClassNotFoundException e) {
+            throw new OperationManagementDAOException("Class not found error occurred while decoding the next " +
+                    "operation of enrolment '" + enrolmentId + "'", e);
+        } finally {
+            OperationManagementDAOUtil.cleanupResources(stmt, rs);
+        }
+    }
+
     public List<? extends Operation> getOperationsByDeviceStatusAndType(
             int enrolmentId, Operation.Status status, Operation.Type type) throws OperationManagementDAOException {
         PreparedStatement stmt = null;
@@ -1464,6 +1561,16 @@ public class GenericOperationDAOImpl implements OperationDAO {
     @Override
     public Map<Integer, List<OperationMapping>> getOperationMappingsByStatus(Operation.Status opStatus, Operation.PushNotificationStatus pushNotificationStatus,
                                                                              int limit) throws OperationManagementDAOException {
+        return this.getOperationMappingsByStatus(opStatus, pushNotificationStatus, limit, 1, 0);
+    }
+
+    @Override
+    public Map<Integer, List<OperationMapping>> getOperationMappingsByStatus(Operation.Status opStatus,
+                                                                             Operation.PushNotificationStatus
+                                                                                     pushNotificationStatus,
+                                                                             int limit, int partitionCount,
+                                                                             int partition)
+            throws OperationManagementDAOException {
         PreparedStatement stmt = null;
         ResultSet rs = null;
         Connection conn;
@@ -1473,12 +1580,20 @@ public class GenericOperationDAOImpl implements OperationDAO {
             conn = OperationManagementDAOFactory.getConnection();
             String sql = "SELECT op.ENROLMENT_ID, op.OPERATION_ID, d.DEVICE_IDENTIFICATION, dt.NAME as DEVICE_TYPE, " +
                     "d.TENANT_ID FROM DM_DEVICE d, DM_ENROLMENT_OP_MAPPING op, DM_DEVICE_TYPE dt  WHERE op.STATUS = ?" +
-                    " AND op.PUSH_NOTIFICATION_STATUS = ? AND d.DEVICE_TYPE_ID = dt.ID AND d.ID=op.ENROLMENT_ID ORDER" +
-                    " BY op.OPERATION_ID LIMIT ?";
+                    " AND op.PUSH_NOTIFICATION_STATUS = ? AND d.DEVICE_TYPE_ID = dt.ID AND d.ID=op.ENROLMENT_ID";
+            if (partitionCount > 1) {
+                sql += " AND MOD(op.ENROLMENT_ID, ?) = ?";
+            }
+            sql += " ORDER BY op.OPERATION_ID LIMIT ?";
             stmt = conn.prepareStatement(sql);
-            stmt.setString(1, opStatus.toString());
-            stmt.setString(2, pushNotificationStatus.toString());
-            stmt.setInt(3, limit);
+            int index = 1;
+            stmt.setString(index++, opStatus.toString());
+            stmt.setString(index++, pushNotificationStatus.toString());
+            if (partitionCount > 1) {
+                stmt.setInt(index++, partitionCount);
+                stmt.setInt(index++, partition);
+            }
+            stmt.setInt(index, limit);
             rs = stmt.executeQuery();
             while (rs.next()) {
                 int tenantID = rs.getInt("TENANT_ID");
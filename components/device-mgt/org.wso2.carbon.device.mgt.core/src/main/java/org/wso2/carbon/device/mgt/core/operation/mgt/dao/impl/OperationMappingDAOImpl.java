@@ -18,7 +18,9 @@
  */
 package org.wso2.carbon.device.mgt.core.operation.mgt.dao.impl;
 
+import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
 import org.wso2.carbon.device.mgt.common.EnrolmentInfo;
+import org.wso2.carbon.device.mgt.core.dao.util.DeviceManagementDAOUtil;
 import org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation;
 import org.wso2.carbon.device.mgt.core.operation.mgt.OperationEnrolmentMapping;
 import org.wso2.carbon.device.mgt.core.operation.mgt.OperationMapping;
@@ -33,8 +35,10 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class OperationMappingDAOImpl implements OperationMappingDAO {
 
@@ -66,6 +70,136 @@ public class OperationMappingDAOImpl implements OperationMappingDAO {
         }
     }
 
+    @Override
+    public void addOperationMappings(int operationId, List<Integer> enrolmentIds, boolean isScheduled, int batchSize)
+            throws OperationManagementDAOException {
+        PreparedStatement stmt = null;
+        try {
+            long time = System.currentTimeMillis() / 1000;
+            String pushNotificationStatus = isScheduled ? Operation.PushNotificationStatus.SCHEDULED.toString() :
+                    Operation.PushNotificationStatus.COMPLETED.toString();
+            Connection conn = OperationManagementDAOFactory.getConnection();
+            String sql = "INSERT INTO DM_ENROLMENT_OP_MAPPING(ENROLMENT_ID, OPERATION_ID, STATUS, " +
+                    "PUSH_NOTIFICATION_STATUS, CREATED_TIMESTAMP, UPDATED_TIMESTAMP) VALUES (?, ?, ?, ?, ?, ?)";
+            stmt = conn.prepareStatement(sql);
+            boolean isBatchSupported = conn.getMetaData().supportsBatchUpdates();
+            int pendingRows = 0;
+            for (Integer enrolmentId : enrolmentIds) {
+                stmt.setInt(1, enrolmentId);
+                stmt.setInt(2, operationId);
+                stmt.setString(3, Operation.Status.PENDING.toString());
+                stmt.setString(4, pushNotificationStatus);
+                stmt.setLong(5, time);
+                stmt.setLong(6, time);
+                if (isBatchSupported) {
+                    stmt.addBatch();
+                    if (++pendingRows >= batchSize) {
+                        stmt.executeBatch();
+                        pendingRows = 0;
+                    }
+                } else {
+                    stmt.executeUpdate();
+                }
+            }
+            if (pendingRows > 0) {
+                stmt.executeBatch();
+            }
+        } catch (SQLException e) {
+            throw new OperationManagementDAOException("Error occurred while persisting device operation mappings of " +
+                    "operation '" + operationId + "' as batch", e);
+        } finally {
+            OperationManagementDAOUtil.cleanupResources(stmt, null);
+        }
+    }
+
+    @Override
+    public Map<String, Integer> getEnrolmentIds(String deviceType, List<String> deviceIdentifiers, int tenantId)
+            throws OperationManagementDAOException {
+        Map<String, Integer> enrolmentIds = new HashMap<>();
+        if (deviceIdentifiers.isEmpty()) {
+            return enrolmentIds;
+        }
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            Connection conn = OperationManagementDAOFactory.getConnection();
+            for (List<String> chunk : DeviceManagementDAOUtil.partition(deviceIdentifiers,
+                    DeviceManagementDAOUtil.MAX_IN_CLAUSE_SIZE)) {
+                // Ordering is the same as the one used when a single device is loaded, so that the latest enrolment
+                // of a re-enrolled device is the first row returned for its identifier.
+                String sql = "SELECT d.DEVICE_IDENTIFICATION, e.ID AS ENROLMENT_ID FROM DM_ENROLMENT e " +
+                        "INNER JOIN DM_DEVICE d ON d.ID = e.DEVICE_ID INNER JOIN DM_DEVICE_TYPE t " +
+                        "ON t.ID = d.DEVICE_TYPE_ID WHERE t.NAME = ? AND d.TENANT_ID = ? AND e.TENANT_ID = ? " +
+                        "AND d.DEVICE_IDENTIFICATION IN (" +
+                        DeviceManagementDAOUtil.getInClausePlaceholders(chunk.size()) + ") " +
+                        "ORDER BY e.DATE_OF_LAST_UPDATE DESC, e.STATUS ASC";
+                stmt = conn.prepareStatement(sql);
+                int paramIndex = 1;
+                stmt.setString(paramIndex++, deviceType);
+                stmt.setInt(paramIndex++, tenantId);
+                stmt.setInt(paramIndex++, tenantId);
+                for (String deviceIdentifier : chunk) {
+                    stmt.setString(paramIndex++, deviceIdentifier);
+                }
+                rs = stmt.executeQuery();
+                while (rs.next()) {
+                    String deviceIdentifier = rs.getString("DEVICE_IDENTIFICATION");
+                    if (!enrolmentIds.containsKey(deviceIdentifier)) {
+                        enrolmentIds.put(deviceIdentifier, rs.getInt("ENROLMENT_ID"));
+                    }
+                }
+                OperationManagementDAOUtil.cleanupResources(stmt, rs);
+            }
+        } catch (SQLException e) {
+            throw new OperationManagementDAOException("Error occurred while retrieving enrolments of '" + deviceType +
+                    "' devices", e);
+        } finally {
+            OperationManagementDAOUtil.cleanupResources(stmt, rs);
+        }
+        return enrolmentIds;
+    }
+
+    @Override
+    public Map<Integer, DeviceIdentifier> getMonitoringEnrolments(String deviceType, int tenantId,
+                                                                  int partitionCount, Set<Integer> partitionIds)
+            throws OperationManagementDAOException {
+        Map<Integer, DeviceIdentifier> enrolments = new LinkedHashMap<>();
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            Connection conn = OperationManagementDAOFactory.getConnection();
+            String sql = "SELECT e.ID AS ENROLMENT_ID, d.DEVICE_IDENTIFICATION FROM DM_ENROLMENT e " +
+                    "INNER JOIN DM_DEVICE d ON d.ID = e.DEVICE_ID INNER JOIN DM_DEVICE_TYPE t " +
+                    "ON t.ID = d.DEVICE_TYPE_ID WHERE t.NAME = ? AND d.TENANT_ID = ? AND e.TENANT_ID = ? " +
+                    "AND e.STATUS NOT IN (?, ?, ?)";
+            if (partitionIds != null) {
+                sql += " AND " + this.getPartitionCondition("e.ID", partitionIds.size());
+            }
+            sql += " ORDER BY e.ID";
+            stmt = conn.prepareStatement(sql);
+            stmt.setString(1, deviceType);
+            stmt.setInt(2, tenantId);
+            stmt.setInt(3, tenantId);
+            stmt.setString(4, EnrolmentInfo.Status.BLOCKED.toString());
+            stmt.setString(5, EnrolmentInfo.Status.SUSPENDED.toString());
+            stmt.setString(6, EnrolmentInfo.Status.REMOVED.toString());
+            if (partitionIds != null) {
+                this.setPartitionParameters(stmt, 7, partitionCount, partitionIds);
+            }
+            rs = stmt.executeQuery();
+            while (rs.next()) {
+                enrolments.put(rs.getInt("ENROLMENT_ID"),
+                        new DeviceIdentifier(rs.getString("DEVICE_IDENTIFICATION"), deviceType));
+            }
+        } catch (SQLException e) {
+            throw new OperationManagementDAOException("Error occurred while retrieving the enrolments of '" +
+                    deviceType + "' devices to be monitored", e);
+        } finally {
+            OperationManagementDAOUtil.cleanupResources(stmt, rs);
+        }
+        return enrolments;
+    }
+
     @Override
     public void removeOperationMapping(int operationId,
                                        Integer deviceId) throws OperationManagementDAOException {
@@ -136,9 +270,85 @@ public class OperationMappingDAOImpl implements OperationMappingDAO {
         }
     }
 
+    @Override
+    public List<OperationMapping> claimOperationMappings(List<OperationMapping> operationMappings,
+                                                         Operation.PushNotificationStatus expectedStatus,
+                                                         Operation.PushNotificationStatus newStatus)
+            throws OperationManagementDAOException {
+        PreparedStatement stmt = null;
+        List<OperationMapping> claimedOperationMappings = new ArrayList<>();
+        if (operationMappings.isEmpty()) {
+            return claimedOperationMappings;
+        }
+        try {
+            Connection conn = OperationManagementDAOFactory.getConnection();
+            long time = System.currentTimeMillis() / 1000;
+            String sql = "UPDATE DM_ENROLMENT_OP_MAPPING SET PUSH_NOTIFICATION_STATUS = ?, UPDATED_TIMESTAMP = ? " +
+                    "WHERE ENROLMENT_ID = ? AND OPERATION_ID = ? AND PUSH_NOTIFICATION_STATUS = ?";
+            stmt = conn.prepareStatement(sql);
+            // Statements are not batched since some drivers do not report the update count of each statement of a
+            // batch, and without the count a mapping claimed by another node cannot be told apart
+            for (OperationMapping operationMapping : operationMappings) {
+                this.setClaimParameters(stmt, operationMapping, expectedStatus, newStatus, time);
+                if (stmt.executeUpdate() == 1) {
+                    claimedOperationMappings.add(operationMapping);
+                }
+            }
+        } catch (SQLException e) {
+            throw new OperationManagementDAOException("Error occurred while claiming operation mappings with push " +
+                    "notification status '" + expectedStatus + "'", e);
+        } finally {
+            OperationManagementDAOUtil.cleanupResources(stmt, null);
+        }
+        for (OperationMapping operationMapping : claimedOperationMappings) {
+            operationMapping.setPushNotificationStatus(newStatus);
+        }
+        return claimedOperationMappings;
+    }
+
+    private void setClaimParameters(PreparedStatement stmt, OperationMapping operationMapping,
+                                    Operation.PushNotificationStatus expectedStatus,
+                                    Operation.PushNotificationStatus newStatus, long time) throws SQLException {
+        stmt.setString(1, newStatus.toString());
+        stmt.setLong(2, time);
+        stmt.setInt(3, operationMapping.getEnrollmentId());
+        stmt.setInt(4, operationMapping.getOperationId());
+        stmt.setString(5, expectedStatus.toString());
+    }
+
+    @Override
+    public int updateStaleOperationMappings(Operation.PushNotificationStatus currentStatus,
+                                            Operation.PushNotificationStatus newStatus, long updatedBefore)
+            throws OperationManagementDAOException {
+        PreparedStatement stmt = null;
+        try {
+            Connection conn = OperationManagementDAOFactory.getConnection();
+            String sql = "UPDATE DM_ENROLMENT_OP_MAPPING SET PUSH_NOTIFICATION_STATUS = ? WHERE " +
+                    "PUSH_NOTIFICATION_STATUS = ? AND UPDATED_TIMESTAMP < ?";
+            stmt = conn.prepareStatement(sql);
+            stmt.setString(1, newStatus.toString());
+            stmt.setString(2, currentStatus.toString());
+            stmt.setLong(3, updatedBefore);
+            return stmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new OperationManagementDAOException("Error occurred while releasing operation mappings with push " +
+                    "notification status '" + currentStatus + "'", e);
+        } finally {
+            OperationManagementDAOUtil.cleanupResources(stmt, null);
+        }
+    }
+
     @Override
     public List<OperationEnrolmentMapping> getFirstPendingOperationMappingsForActiveEnrolments(long minDuration,
                                    long maxDuration, int deviceTypeId) throws OperationManagementDAOException {
+        return this.getFirstPendingOperationMappingsForActiveEnrolments(minDuration, maxDuration, deviceTypeId, 0,
+                null);
+    }
+
+    @Override
+    public List<OperationEnrolmentMapping> getFirstPendingOperationMappingsForActiveEnrolments(
+            long minDuration, long maxDuration, int deviceTypeId, int partitionCount, Set<Integer> partitionIds)
+            throws OperationManagementDAOException {
         PreparedStatement stmt = null;
         ResultSet rs = null;
         List<OperationEnrolmentMapping> enrolmentOperationMappingList = null;
@@ -152,12 +362,18 @@ public class OperationMappingDAOImpl implements OperationMappingDAO {
                     "DM_DEVICE D ON E.DEVICE_ID = D.ID WHERE " +
                     "OP.STATUS IN ('"+ Operation.Status.PENDING.name() + "','" + Operation.Status.REPEATED.name() + "') " +
                     "AND OP.CREATED_TIMESTAMP BETWEEN ? AND ? AND E.STATUS IN ('" + EnrolmentInfo.Status.ACTIVE.name() +
-                    "','" + EnrolmentInfo.Status.UNREACHABLE.name() + "') AND D.DEVICE_TYPE_ID = ? GROUP BY ENROLMENT_ID," +
-                    " D.DEVICE_IDENTIFICATION, E.STATUS, E.TENANT_ID";
+                    "','" + EnrolmentInfo.Status.UNREACHABLE.name() + "') AND D.DEVICE_TYPE_ID = ?";
+            if (partitionIds != null) {
+                sql += " AND " + this.getPartitionCondition("E.ID", partitionIds.size());
+            }
+            sql += " GROUP BY ENROLMENT_ID, D.DEVICE_IDENTIFICATION, E.STATUS, E.TENANT_ID";
             stmt = conn.prepareStatement(sql);
             stmt.setLong(1, maxDuration);
             stmt.setLong(2, minDuration);
             stmt.setInt(3, deviceTypeId);
+            if (partitionIds != null) {
+                this.setPartitionParameters(stmt, 4, partitionCount, partitionIds);
+            }
             rs = stmt.executeQuery();
             enrolmentOperationMappingList = new ArrayList<>();
             while (rs.next()) {
@@ -175,6 +391,13 @@ public class OperationMappingDAOImpl implements OperationMappingDAO {
 
     @Override
     public Map<Integer, Long> getLastConnectedTimeForActiveEnrolments(long timeStamp, int deviceTypeId) throws OperationManagementDAOException {
+        return this.getLastConnectedTimeForActiveEnrolments(timeStamp, deviceTypeId, 0, null);
+    }
+
+    @Override
+    public Map<Integer, Long> getLastConnectedTimeForActiveEnrolments(long timeStamp, int deviceTypeId,
+                                                                      int partitionCount, Set<Integer> partitionIds)
+            throws OperationManagementDAOException {
         PreparedStatement stmt = null;
         ResultSet rs = null;
         Map<Integer, Long> lastConnectedTimeMap = null;
@@ -187,10 +410,17 @@ public class OperationMappingDAOImpl implements OperationMappingDAO {
                     "DM_DEVICE D ON E.DEVICE_ID = D.ID WHERE " +
                     "OP.STATUS = '" + Operation.Status.COMPLETED.name() + "'" +
                     "AND OP.UPDATED_TIMESTAMP >= ? AND E.STATUS IN ('" + EnrolmentInfo.Status.ACTIVE.name() +
-                    "','" + EnrolmentInfo.Status.UNREACHABLE.name() + "') AND D.DEVICE_TYPE_ID = ? GROUP BY ENROLMENT_ID";
+                    "','" + EnrolmentInfo.Status.UNREACHABLE.name() + "') AND D.DEVICE_TYPE_ID = ?";
+            if (partitionIds != null) {
+                sql += " AND " + this.getPartitionCondition("E.ID", partitionIds.size());
+            }
+            sql += " GROUP BY ENROLMENT_ID";
             stmt = conn.prepareStatement(sql);
             stmt.setLong(1, timeStamp);
             stmt.setInt(2, deviceTypeId);
+            if (partitionIds != null) {
+                this.setPartitionParameters(stmt, 3, partitionCount, partitionIds);
+            }
             rs = stmt.executeQuery();
             lastConnectedTimeMap = new HashMap<>();
             while (rs.next()) {
@@ -205,6 +435,60 @@ public class OperationMappingDAOImpl implements OperationMappingDAO {
         return lastConnectedTimeMap;
     }
 
+    @Override
+    public Map<Integer, Long> getLastActivityTimes(List<Integer> enrolmentIds)
+            throws OperationManagementDAOException {
+        Map<Integer, Long> lastActivityTimes = new HashMap<>();
+        if (enrolmentIds.isEmpty()) {
+            return lastActivityTimes;
+        }
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            Connection conn = OperationManagementDAOFactory.getConnection();
+            for (List<Integer> chunk : DeviceManagementDAOUtil.partition(enrolmentIds,
+                    DeviceManagementDAOUtil.MAX_IN_CLAUSE_SIZE)) {
+                String sql = "SELECT ENROLMENT_ID, MAX(UPDATED_TIMESTAMP) AS LAST_ACTIVITY_TIME FROM " +
+                        "DM_ENROLMENT_OP_MAPPING WHERE STATUS NOT IN ('" + Operation.Status.PENDING.name() + "', '" +
+                        Operation.Status.REPEATED.name() + "') AND ENROLMENT_ID IN (" +
+                        DeviceManagementDAOUtil.getInClausePlaceholders(chunk.size()) + ") GROUP BY ENROLMENT_ID";
+                stmt = conn.prepareStatement(sql);
+                int paramIndex = 1;
+                for (Integer enrolmentId : chunk) {
+                    stmt.setInt(paramIndex++, enrolmentId);
+                }
+                rs = stmt.executeQuery();
+                while (rs.next()) {
+                    lastActivityTimes.put(rs.getInt("ENROLMENT_ID"), rs.getLong("LAST_ACTIVITY_TIME"));
+                }
+                OperationManagementDAOUtil.cleanupResources(stmt, rs);
+            }
+        } catch (SQLException e) {
+            throw new OperationManagementDAOException("Error occurred while fetching the last activity time of " +
+                    enrolmentIds.size() + " enrolments", e);
+        } finally {
+            OperationManagementDAOUtil.cleanupResources(stmt, rs);
+        }
+        return lastActivityTimes;
+    }
+
+    /**
+     * Returns the condition which selects the rows of which the given id column falls into one of the given number of
+     * partitions. The parameters of the condition are set by {@link #setPartitionParameters}.
+     */
+    protected String getPartitionCondition(String idColumn, int partitionIdCount) {
+        return "MOD(" + idColumn + ", ?) IN (" + DeviceManagementDAOUtil.getInClausePlaceholders(partitionIdCount) +
+                ")";
+    }
+
+    private void setPartitionParameters(PreparedStatement stmt, int index, int partitionCount,
+                                        Set<Integer> partitionIds) throws SQLException {
+        stmt.setInt(index++, partitionCount);
+        for (Integer partitionId : partitionIds) {
+            stmt.setInt(index++, partitionId);
+        }
+    }
+
     private OperationEnrolmentMapping getEnrolmentOpMapping(ResultSet rs) throws SQLException {
         OperationEnrolmentMapping enrolmentOperationMapping = new OperationEnrolmentMapping();
         enrolmentOperationMapping.setEnrolmentId(rs.getInt("ENROLMENT_ID"));
@@ -321,6 +321,16 @@ public class SQLServerOperationDAOImpl extends GenericOperationDAOImpl {
     @Override
     public Map<Integer, List<OperationMapping>> getOperationMappingsByStatus(Operation.Status opStatus, Operation.PushNotificationStatus pushNotificationStatus,
                                                                              int limit) throws OperationManagementDAOException {
+        return this.getOperationMappingsByStatus(opStatus, pushNotificationStatus, limit, 1, 0);
+    }
+
+    @Override
+    public Map<Integer, List<OperationMapping>> getOperationMappingsByStatus(Operation.Status opStatus,
+                                                                             Operation.PushNotificationStatus
+                                                                                     pushNotificationStatus,
+                                                                             int limit, int partitionCount,
+                                                                             int partition)
+            throws OperationManagementDAOException {
         PreparedStatement stmt = null;
         ResultSet rs = null;
         OperationMapping operationMapping;
@@ -330,12 +340,21 @@ public class SQLServerOperationDAOImpl extends GenericOperationDAOImpl {
             String sql = "SELECT op.ENROLMENT_ID, op.OPERATION_ID, d.DEVICE_IDENTIFICATION, dt.NAME as DEVICE_TYPE, d" +
                     ".TENANT_ID FROM DM_DEVICE d, DM_ENROLMENT_OP_MAPPING op, DM_DEVICE_TYPE dt  WHERE op.STATUS = ? " +
                     "AND op.PUSH_NOTIFICATION_STATUS = ? AND d.DEVICE_TYPE_ID = dt.ID " +
-                    "AND d.ID=op.ENROLMENT_ID ORDER BY op.OPERATION_ID OFFSET ? ROWS FETCH NEXT ? ROWS ONLY";
+                    "AND d.ID=op.ENROLMENT_ID";
+            if (partitionCount > 1) {
+                sql += " AND op.ENROLMENT_ID % ? = ?";
+            }
+            sql += " ORDER BY op.OPERATION_ID OFFSET ? ROWS FETCH NEXT ? ROWS ONLY";
             stmt = conn.prepareStatement(sql);
-            stmt.setString(1, opStatus.toString());
-            stmt.setString(2, pushNotificationStatus.toString());
-            stmt.setInt(3, 0);
-            stmt.setInt(4, limit);
+            int index = 1;
+            stmt.setString(index++, opStatus.toString());
+            stmt.setString(index++, pushNotificationStatus.toString());
+            if (partitionCount > 1) {
+                stmt.setInt(index++, partitionCount);
+                stmt.setInt(index++, partition);
+            }
+            stmt.setInt(index++, 0);
+            stmt.setInt(index, limit);
             rs = stmt.executeQuery();
             while (rs.next()) {
                 int tenantID = rs.getInt("TENANT_ID");
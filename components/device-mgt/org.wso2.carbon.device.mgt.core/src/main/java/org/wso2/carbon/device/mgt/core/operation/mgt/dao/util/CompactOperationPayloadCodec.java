@@ -0,0 +1,352 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.operation.mgt.dao.util;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import org.wso2.carbon.device.mgt.core.dto.operation.mgt.CommandOperation;
+import org.wso2.carbon.device.mgt.core.dto.operation.mgt.ConfigOperation;
+import org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation;
+import org.wso2.carbon.device.mgt.core.dto.operation.mgt.PolicyOperation;
+import org.wso2.carbon.device.mgt.core.dto.operation.mgt.ProfileOperation;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compact {@link OperationPayloadCodec}. Content starts with a four byte header: the magic bytes 'O' 'P', the format
+ * version and a format byte whose high bit tells whether the body is GZIP compressed. Bodies larger than the
+ * compression threshold are compressed.
+ * <p>
+ * String payloads are stored as UTF-8 and operations whose payloads are plain strings are stored as JSON, so the
+ * pending operation polls do not pay for reflective deserialization. Any other payload falls back to Java
+ * serialization.
+ */
+public class CompactOperationPayloadCodec implements OperationPayloadCodec {
+
+    static final byte MAGIC_0 = 'O';
+    static final byte MAGIC_1 = 'P';
+    static final byte VERSION = 1;
+    static final int HEADER_LENGTH = 4;
+
+    private static final byte FORMAT_NULL = 0;
+    private static final byte FORMAT_STRING = 1;
+    private static final byte FORMAT_OPERATION_JSON = 2;
+    private static final byte FORMAT_SERIALIZED = 3;
+    private static final byte FLAG_COMPRESSED = (byte) 0x80;
+    private static final int DEFAULT_COMPRESSION_THRESHOLD = 1024;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String KIND = "k";
+    private static final String KIND_OPERATION = "O";
+    private static final String KIND_COMMAND = "C";
+    private static final String KIND_CONFIG = "G";
+    private static final String KIND_PROFILE = "F";
+    private static final String KIND_POLICY = "P";
+    private static final String CODE = "c";
+    private static final String TYPE = "t";
+    private static final String ID = "i";
+    private static final String STATUS = "s";
+    private static final String CONTROL = "o";
+    private static final String RECEIVED_TIMESTAMP = "r";
+    private static final String CREATED_TIMESTAMP = "d";
+    private static final String ENABLED = "e";
+    private static final String PAYLOAD = "p";
+    private static final String OPERATION_RESPONSE = "x";
+    private static final String ACTIVITY_ID = "a";
+    private static final String INITIATED_BY = "b";
+    private static final String PROPERTIES = "q";
+    private static final String PROFILE_OPERATIONS = "f";
+
+    private final int compressionThreshold;
+
+    public CompactOperationPayloadCodec() {
+        this(DEFAULT_COMPRESSION_THRESHOLD);
+    }
+
+    /**
+     * @param compressionThreshold size in bytes above which the body is compressed, a negative value disables
+     *                             compression
+     */
+    public CompactOperationPayloadCodec(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    @Override
+    public byte[] encode(Object payload) throws IOException {
+        byte format;
+        byte[] body;
+        if (payload == null) {
+            format = FORMAT_NULL;
+            body = new byte[0];
+        } else if (payload instanceof String) {
+            format = FORMAT_STRING;
+            body = ((String) payload).getBytes(UTF_8);
+        } else if (payload instanceof Operation && isJsonCompatible((Operation) payload)) {
+            format = FORMAT_OPERATION_JSON;
+            body = toJson((Operation) payload).toString().getBytes(UTF_8);
+        } else {
+            format = FORMAT_SERIALIZED;
+            body = serialize(payload);
+        }
+        if (compressionThreshold >= 0 && body.length > compressionThreshold) {
+            format |= FLAG_COMPRESSED;
+            body = compress(body);
+        }
+        byte[] content = new byte[HEADER_LENGTH + body.length];
+        content[0] = MAGIC_0;
+        content[1] = MAGIC_1;
+        content[2] = VERSION;
+        content[3] = format;
+        System.arraycopy(body, 0, content, HEADER_LENGTH, body.length);
+        return content;
+    }
+
+    @Override
+    public Object decode(byte[] content) throws IOException, ClassNotFoundException {
+        if (!isEncoded(content)) {
+            throw new IOException("Content is not in the compact operation payload format");
+        }
+        if (content[2] != VERSION) {
+            throw new IOException("Unsupported compact operation payload version '" + content[2] + "'");
+        }
+        byte format = content[3];
+        InputStream body = new ByteArrayInputStream(content, HEADER_LENGTH, content.length - HEADER_LENGTH);
+        if ((format & FLAG_COMPRESSED) != 0) {
+            body = new GZIPInputStream(body);
+        }
+        try {
+            switch (format & ~FLAG_COMPRESSED) {
+                case FORMAT_NULL:
+                    return null;
+                case FORMAT_STRING:
+                    return new String(readFully(body), UTF_8);
+                case FORMAT_OPERATION_JSON:
+                    return fromJson(new JsonParser().parse(new String(readFully(body), UTF_8)).getAsJsonObject());
+                case FORMAT_SERIALIZED:
+                    return new ObjectInputStream(body).readObject();
+                default:
+                    throw new IOException("Unsupported compact operation payload format '" + format + "'");
+            }
+        } catch (JsonParseException | IllegalStateException e) {
+            throw new IOException("Operation payload carries malformed JSON", e);
+        } finally {
+            body.close();
+        }
+    }
+
+    static boolean isEncoded(byte[] content) {
+        return content != null && content.length >= HEADER_LENGTH && content[0] == MAGIC_0 && content[1] == MAGIC_1;
+    }
+
+    private static boolean isJsonCompatible(Operation operation) {
+        Class<?> operationClass = operation.getClass();
+        if (operationClass != Operation.class && operationClass != CommandOperation.class &&
+                operationClass != ConfigOperation.class && operationClass != ProfileOperation.class &&
+                operationClass != PolicyOperation.class) {
+            return false;
+        }
+        if (!isStringOrNull(operation.getPayLoad()) || !isStringOrNull(operation.getOperationResponse())) {
+            return false;
+        }
+        if (operation.getProperties() != null) {
+            for (Map.Entry<Object, Object> property : operation.getProperties().entrySet()) {
+                if (!(property.getKey() instanceof String) || !(property.getValue() instanceof String)) {
+                    return false;
+                }
+            }
+        }
+        if (operation instanceof ConfigOperation) {
+            // Config properties carry arbitrary values along with their classes
+            List<ConfigOperation.Property> configProperties = ((ConfigOperation) operation).getConfigProperties();
+            if (configProperties != null && !configProperties.isEmpty()) {
+                return false;
+            }
+        }
+        if (operation instanceof PolicyOperation && ((PolicyOperation) operation).getProfileOperations() != null) {
+            for (ProfileOperation profileOperation : ((PolicyOperation) operation).getProfileOperations()) {
+                if (profileOperation == null || !isJsonCompatible(profileOperation)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean isStringOrNull(Object value) {
+        return value == null || value instanceof String;
+    }
+
+    private static JsonObject toJson(Operation operation) {
+        JsonObject json = new JsonObject();
+        json.addProperty(KIND, getKind(operation));
+        json.addProperty(CODE, operation.getCode());
+        if (operation.getType() != null) {
+            json.addProperty(TYPE, operation.getType().name());
+        }
+        json.addProperty(ID, operation.getId());
+        if (operation.getStatus() != null) {
+            json.addProperty(STATUS, operation.getStatus().name());
+        }
+        if (operation.getControl() != null) {
+            json.addProperty(CONTROL, operation.getControl().name());
+        }
+        json.addProperty(RECEIVED_TIMESTAMP, operation.getReceivedTimeStamp());
+        json.addProperty(CREATED_TIMESTAMP, operation.getCreatedTimeStamp());
+        json.addProperty(ENABLED, operation.isEnabled());
+        json.addProperty(PAYLOAD, (String) operation.getPayLoad());
+        json.addProperty(OPERATION_RESPONSE, (String) operation.getOperationResponse());
+        json.addProperty(ACTIVITY_ID, operation.getActivityId());
+        json.addProperty(INITIATED_BY, operation.getInitiatedBy());
+        if (operation.getProperties() != null) {
+            JsonObject properties = new JsonObject();
+            for (Map.Entry<Object, Object> property : operation.getProperties().entrySet()) {
+                properties.addProperty((String) property.getKey(), (String) property.getValue());
+            }
+            json.add(PROPERTIES, properties);
+        }
+        if (operation instanceof PolicyOperation && ((PolicyOperation) operation).getProfileOperations() != null) {
+            JsonArray profileOperations = new JsonArray();
+            for (ProfileOperation profileOperation : ((PolicyOperation) operation).getProfileOperations()) {
+                profileOperations.add(toJson(profileOperation));
+            }
+            json.add(PROFILE_OPERATIONS, profileOperations);
+        }
+        return json;
+    }
+
+    private static Operation fromJson(JsonObject json) {
+        String kind = getString(json, KIND);
+        Operation operation;
+        if (KIND_COMMAND.equals(kind)) {
+            operation = new CommandOperation();
+        } else if (KIND_CONFIG.equals(kind)) {
+            operation = new ConfigOperation();
+        } else if (KIND_PROFILE.equals(kind)) {
+            operation = new ProfileOperation();
+        } else if (KIND_POLICY.equals(kind)) {
+            operation = new PolicyOperation();
+        } else {
+            operation = new Operation();
+        }
+        operation.setCode(getString(json, CODE));
+        String type = getString(json, TYPE);
+        if (type != null) {
+            operation.setType(Operation.Type.valueOf(type));
+        }
+        operation.setId(json.get(ID).getAsInt());
+        String status = getString(json, STATUS);
+        if (status != null) {
+            operation.setStatus(Operation.Status.valueOf(status));
+        }
+        String control = getString(json, CONTROL);
+        if (control != null) {
+            operation.setControl(Operation.Control.valueOf(control));
+        }
+        operation.setReceivedTimeStamp(getString(json, RECEIVED_TIMESTAMP));
+        operation.setCreatedTimeStamp(getString(json, CREATED_TIMESTAMP));
+        operation.setEnabled(json.get(ENABLED).getAsBoolean());
+        operation.setPayLoad(getString(json, PAYLOAD));
+        operation.setOperationResponse(getString(json, OPERATION_RESPONSE));
+        operation.setActivityId(getString(json, ACTIVITY_ID));
+        operation.setInitiatedBy(getString(json, INITIATED_BY));
+        if (json.has(PROPERTIES)) {
+            Properties properties = new Properties();
+            for (Map.Entry<String, JsonElement> property : json.getAsJsonObject(PROPERTIES).entrySet()) {
+                properties.setProperty(property.getKey(), property.getValue().getAsString());
+            }
+            operation.setProperties(properties);
+        }
+        if (operation instanceof PolicyOperation && json.has(PROFILE_OPERATIONS)) {
+            List<ProfileOperation> profileOperations = new ArrayList<>();
+            for (JsonElement profileOperation : json.getAsJsonArray(PROFILE_OPERATIONS)) {
+                profileOperations.add((ProfileOperation) fromJson(profileOperation.getAsJsonObject()));
+            }
+            ((PolicyOperation) operation).setProfileOperations(profileOperations);
+        }
+        return operation;
+    }
+
+    private static String getKind(Operation operation) {
+        if (operation instanceof PolicyOperation) {
+            return KIND_POLICY;
+        } else if (operation instanceof ProfileOperation) {
+            return KIND_PROFILE;
+        } else if (operation instanceof ConfigOperation) {
+            return KIND_CONFIG;
+        } else if (operation instanceof CommandOperation) {
+            return KIND_COMMAND;
+        }
+        return KIND_OPERATION;
+    }
+
+    private static String getString(JsonObject json, String name) {
+        JsonElement element = json.get(name);
+        if (element == null || element.isJsonNull()) {
+            return null;
+        }
+        return element.getAsString();
+    }
+
+    private static byte[] serialize(Object payload) throws IOException {
+        ByteArrayOutputStream bao = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(bao);
+        try {
+            oos.writeObject(payload);
+        } finally {
+            oos.close();
+        }
+        return bao.toByteArray();
+    }
+
+    private static byte[] compress(byte[] body) throws IOException {
+        ByteArrayOutputStream bao = new ByteArrayOutputStream(body.length / 2);
+        GZIPOutputStream gzip = new GZIPOutputStream(bao);
+        try {
+            gzip.write(body);
+        } finally {
+            gzip.close();
+        }
+        return bao.toByteArray();
+    }
+
+    private static byte[] readFully(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int length;
+        while ((length = inputStream.read(buffer)) != -1) {
+            content.write(buffer, 0, length);
+        }
+        return content.toByteArray();
+    }
+}
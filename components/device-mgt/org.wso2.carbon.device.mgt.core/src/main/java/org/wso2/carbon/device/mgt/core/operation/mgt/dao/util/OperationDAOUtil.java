@@ -22,6 +22,9 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.device.mgt.common.operation.mgt.OperationResponse;
 import org.wso2.carbon.device.mgt.core.DeviceManagementConstants;
+import org.wso2.carbon.device.mgt.core.config.DeviceConfigurationManager;
+import org.wso2.carbon.device.mgt.core.config.DeviceManagementConfig;
+import org.wso2.carbon.device.mgt.core.config.operation.OperationConfiguration;
 import org.wso2.carbon.device.mgt.core.dto.operation.mgt.CommandOperation;
 import org.wso2.carbon.device.mgt.core.dto.operation.mgt.ConfigOperation;
 import org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation;
@@ -36,6 +39,9 @@ import java.sql.SQLException;
 
 public class OperationDAOUtil {
     private static final Log log = LogFactory.getLog(OperationDAOUtil.class);
+    private static final byte SERIALIZATION_MAGIC_0 = (byte) 0xAC;
+    private static final byte SERIALIZATION_MAGIC_1 = (byte) 0xED;
+    private static volatile OperationPayloadCodec payloadCodec;
 
     public static Operation convertOperation(org.wso2.carbon.device.mgt.common.operation.mgt.Operation operation) {
 
@@ -125,30 +131,11 @@ public class OperationDAOUtil {
         if (rs.getTimestamp("RECEIVED_TIMESTAMP") != (null)) {
             response.setReceivedTimeStamp(rs.getTimestamp("RECEIVED_TIMESTAMP").toString());
         }
-        ByteArrayInputStream bais = null;
-        ObjectInputStream ois = null;
-        byte[] contentBytes;
-        try {
-            if (rs.getBytes("OPERATION_RESPONSE") != null) {
-                contentBytes = (byte[]) rs.getBytes("OPERATION_RESPONSE");
-                bais = new ByteArrayInputStream(contentBytes);
-                ois = new ObjectInputStream(bais);
-                response.setResponse(ois.readObject().toString());
-            }
-        } finally {
-            if (bais != null) {
-                try {
-                    bais.close();
-                } catch (IOException e) {
-                    log.warn("Error occurred while closing ByteArrayOutputStream", e);
-                }
-            }
-            if (ois != null) {
-                try {
-                    ois.close();
-                } catch (IOException e) {
-                    log.warn("Error occurred while closing ObjectOutputStream", e);
-                }
+        byte[] contentBytes = rs.getBytes("OPERATION_RESPONSE");
+        if (contentBytes != null) {
+            Object content = decodePayload(contentBytes);
+            if (content != null) {
+                response.setResponse(content.toString());
             }
         }
         return response;
@@ -166,4 +153,82 @@ public class OperationDAOUtil {
     public static String getActivityId(int operationId) {
         return DeviceManagementConstants.OperationAttributes.ACTIVITY + operationId;
     }
+
+    /**
+     * Encodes an operation payload to be stored in the operation tables using the configured codec.
+     *
+     * @param payload operation, profile payload or operation response to be stored
+     * @return encoded content
+     * @throws IOException if the payload cannot be encoded
+     */
+    public static byte[] encodePayload(Object payload) throws IOException {
+        return getPayloadCodec().encode(payload);
+    }
+
+    /**
+     * Decodes content read from the operation tables. Content written with Java serialization before the codec was
+     * introduced is still read as such, so existing records need not be migrated. Content written with the compact
+     * codec is read regardless of the configured codec, so switching back to the default codec does not make the
+     * operations stored in the meantime unreadable.
+     *
+     * @param content stored content
+     * @return decoded payload
+     * @throws IOException            if the content cannot be decoded
+     * @throws ClassNotFoundException if the content refers to a class which is not available
+     */
+    public static Object decodePayload(byte[] content) throws IOException, ClassNotFoundException {
+        if (content == null) {
+            return null;
+        }
+        if (content.length > 1 && content[0] == SERIALIZATION_MAGIC_0 && content[1] == SERIALIZATION_MAGIC_1) {
+            ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(content));
+            try {
+                return ois.readObject();
+            } finally {
+                ois.close();
+            }
+        }
+        if (CompactOperationPayloadCodec.isEncoded(content)) {
+            OperationPayloadCodec codec = getPayloadCodec();
+            if (!(codec instanceof CompactOperationPayloadCodec)) {
+                codec = new CompactOperationPayloadCodec();
+            }
+            return codec.decode(content);
+        }
+        return getPayloadCodec().decode(content);
+    }
+
+    static OperationPayloadCodec getPayloadCodec() {
+        if (payloadCodec == null) {
+            synchronized (OperationDAOUtil.class) {
+                if (payloadCodec == null) {
+                    payloadCodec = createPayloadCodec();
+                }
+            }
+        }
+        return payloadCodec;
+    }
+
+    private static OperationPayloadCodec createPayloadCodec() {
+        DeviceManagementConfig config = DeviceConfigurationManager.getInstance().getDeviceManagementConfig();
+        if (config == null) {
+            return new SerializedOperationPayloadCodec();
+        }
+        OperationConfiguration operationConfig = config.getOperationConfiguration();
+        String codecClass = operationConfig.getPayloadCodec();
+        if (codecClass == null || codecClass.trim().isEmpty() ||
+                SerializedOperationPayloadCodec.class.getName().equals(codecClass.trim())) {
+            return new SerializedOperationPayloadCodec();
+        }
+        if (CompactOperationPayloadCodec.class.getName().equals(codecClass.trim())) {
+            return new CompactOperationPayloadCodec(operationConfig.getPayloadCompressionThreshold());
+        }
+        try {
+            return (OperationPayloadCodec) Class.forName(codecClass.trim()).newInstance();
+        } catch (ClassNotFoundException | InstantiationException | IllegalAccessException | ClassCastException e) {
+            log.error("Unable to initialize operation payload codec '" + codecClass + "', hence falling back to " +
+                    "the default codec", e);
+            return new SerializedOperationPayloadCodec();
+        }
+    }
 }
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.operation.mgt.dao.util;
+
+import java.io.IOException;
+
+/**
+ * Converts operation payloads (operation details, profile payloads and operation responses) to the bytes stored in
+ * the BLOB columns of the operation tables and back. The codec to be used is configured with the PayloadCodec
+ * element of the OperationConfiguration. Content written with Java serialization by earlier versions is decoded by
+ * {@link OperationDAOUtil#decodePayload(byte[])} itself, hence codecs only need to read what they write.
+ */
+public interface OperationPayloadCodec {
+
+    /**
+     * @param payload payload to be stored, may be null
+     * @return encoded content
+     * @throws IOException if the payload cannot be encoded
+     */
+    byte[] encode(Object payload) throws IOException;
+
+    /**
+     * @param content content written by {@link #encode(Object)}
+     * @return decoded payload
+     * @throws IOException            if the content is not in a format understood by this codec
+     * @throws ClassNotFoundException if the content refers to a class which is not available
+     */
+    Object decode(byte[] content) throws IOException, ClassNotFoundException;
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.device.mgt.core.operation.mgt.dao.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * {@link OperationPayloadCodec} which stores payloads with plain Java serialization, which is the format written by
+ * the versions before the codec was introduced. This is the default codec, as content written by it can be read by
+ * the nodes of a cluster which are not upgraded yet and by nodes which are rolled back.
+ */
+public class SerializedOperationPayloadCodec implements OperationPayloadCodec {
+
+    @Override
+    public byte[] encode(Object payload) throws IOException {
+        ByteArrayOutputStream bao = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(bao);
+        try {
+            oos.writeObject(payload);
+        } finally {
+            oos.close();
+        }
+        return bao.toByteArray();
+    }
+
+    @Override
+    public Object decode(byte[] content) throws IOException, ClassNotFoundException {
+        ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(content));
+        try {
+            return ois.readObject();
+        } finally {
+            ois.close();
+        }
+    }
+
+}
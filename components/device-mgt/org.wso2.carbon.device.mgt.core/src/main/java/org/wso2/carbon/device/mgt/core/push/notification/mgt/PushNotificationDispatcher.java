@@ -0,0 +1,573 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.push.notification.mgt;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
+import org.wso2.carbon.device.mgt.common.TransactionManagementException;
+import org.wso2.carbon.device.mgt.common.push.notification.BatchNotificationStrategy;
+import org.wso2.carbon.device.mgt.common.push.notification.NotificationContext;
+import org.wso2.carbon.device.mgt.common.push.notification.NotificationStrategy;
+import org.wso2.carbon.device.mgt.common.push.notification.PushNotificationExecutionFailedException;
+import org.wso2.carbon.device.mgt.core.config.push.notification.DispatcherConfiguration;
+import org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation;
+import org.wso2.carbon.device.mgt.core.operation.mgt.OperationMapping;
+import org.wso2.carbon.device.mgt.core.operation.mgt.dao.OperationManagementDAOException;
+import org.wso2.carbon.device.mgt.core.operation.mgt.dao.OperationManagementDAOFactory;
+import org.wso2.carbon.device.mgt.core.operation.mgt.dao.OperationMappingDAO;
+
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends push notifications asynchronously so that a slow push notification provider does not hold the thread which
+ * added the operation. Each device type gets its own bounded queue and worker pool. Failed notifications are retried
+ * with an exponential backoff and, when the retries are exhausted or the queue of the device type is full, the
+ * operation mapping is marked as SCHEDULED so that the {@link
+ * org.wso2.carbon.device.mgt.core.push.notification.mgt.task.PushNotificationSchedulerTask} picks it up later.
+ */
+public class PushNotificationDispatcher implements PushNotificationDispatcherMBean {
+
+    private static final Log log = LogFactory.getLog(PushNotificationDispatcher.class);
+    private static final String MBEAN_NAME = "org.wso2.carbon.device.mgt:type=PushNotificationDispatcher";
+    private static final long WORKER_KEEP_ALIVE_MILLS = 60000;
+
+    private final DispatcherConfiguration config;
+    private final OperationMappingDAO operationMappingDAO;
+    private final Map<String, ThreadPoolExecutor> executors = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private final Queue<OperationMapping> rescheduleQueue = new ConcurrentLinkedQueue<>();
+    private final Set<DispatchTask> awaitingRetry =
+            Collections.newSetFromMap(new ConcurrentHashMap<DispatchTask, Boolean>());
+    private volatile boolean shutdown;
+
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong retryCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong rescheduledCount = new AtomicLong();
+    private final AtomicLong totalLatencyMills = new AtomicLong();
+    private final AtomicLong maxLatencyMills = new AtomicLong();
+    private final AtomicLong dispatchCount = new AtomicLong();
+    private final AtomicLong totalDispatchLatencyMills = new AtomicLong();
+    private final AtomicLong maxDispatchLatencyMills = new AtomicLong();
+
+    public PushNotificationDispatcher(DispatcherConfiguration config) {
+        this.config = config;
+        this.operationMappingDAO = OperationManagementDAOFactory.getOperationMappingDAO();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                new DispatcherThreadFactory("push-notification-dispatcher-scheduler"));
+        this.scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                flushRescheduledMappings();
+            }
+        }, config.getRescheduleIntervalMills(), config.getRescheduleIntervalMills(), TimeUnit.MILLISECONDS);
+        this.registerMBean();
+    }
+
+    /**
+     * Queues a push notification to be sent by the worker pool of the device type.
+     *
+     * @param notificationStrategy strategy of the tenant which sends the notification
+     * @param context              notification context of the device
+     * @param enrolmentId          enrolment of the device which the operation is mapped to
+     * @param tenantId             tenant of the device
+     * @return true if the notification was queued, false if the queue of the device type is full and the
+     * notification has been rescheduled to the scheduler task instead
+     */
+    public boolean dispatch(NotificationStrategy notificationStrategy, NotificationContext context, int enrolmentId,
+                            int tenantId) {
+        Map<NotificationContext, Integer> enrolmentIds = new IdentityHashMap<>();
+        enrolmentIds.put(context, enrolmentId);
+        DispatchTask task = new DispatchTask(notificationStrategy, Collections.singletonList(context), enrolmentIds,
+                tenantId, 0);
+        return this.submit(task);
+    }
+
+    /**
+     * Queues the push notifications of a set of devices. If the strategy is a {@link BatchNotificationStrategy} the
+     * notifications are sent in batches of the configured size, otherwise they are sent one by one.
+     *
+     * @param notificationStrategy strategy of the tenant which sends the notifications
+     * @param contexts             notification contexts of the devices against the enrolments of the devices
+     * @param tenantId             tenant of the devices
+     * @return number of notifications which were queued, the rest have been rescheduled to the scheduler task
+     */
+    public int dispatch(NotificationStrategy notificationStrategy, Map<Integer, NotificationContext> contexts,
+                        int tenantId) {
+        int queued = 0;
+        for (DispatchTask task : this.createTasks(notificationStrategy, contexts, tenantId)) {
+            if (this.submit(task)) {
+                queued += task.contexts.size();
+            }
+        }
+        return queued;
+    }
+
+    /**
+     * Queues the push notifications of a set of devices after the given delay, so that the notifications of large
+     * sets of devices can be spread over time. Notifications still waiting when the dispatcher is shut down are
+     * rescheduled to the scheduler task.
+     *
+     * @param notificationStrategy strategy of the tenant which sends the notifications
+     * @param contexts             notification contexts of the devices against the enrolments of the devices
+     * @param tenantId             tenant of the devices
+     * @param delayMills           time after which the notifications are queued
+     */
+    public void dispatch(NotificationStrategy notificationStrategy, Map<Integer, NotificationContext> contexts,
+                         int tenantId, long delayMills) {
+        if (delayMills <= 0) {
+            this.dispatch(notificationStrategy, contexts, tenantId);
+            return;
+        }
+        for (DispatchTask task : this.createTasks(notificationStrategy, contexts, tenantId)) {
+            this.submitLater(task, delayMills);
+        }
+    }
+
+    private List<DispatchTask> createTasks(NotificationStrategy notificationStrategy,
+                                           Map<Integer, NotificationContext> contexts, int tenantId) {
+        int batchSize = notificationStrategy instanceof BatchNotificationStrategy ? config.getBatchSize() : 1;
+        Map<NotificationContext, Integer> enrolmentIds = new IdentityHashMap<>();
+        List<DispatchTask> tasks = new ArrayList<>();
+        List<NotificationContext> batch = new ArrayList<>();
+        for (Map.Entry<Integer, NotificationContext> context : contexts.entrySet()) {
+            enrolmentIds.put(context.getValue(), context.getKey());
+            batch.add(context.getValue());
+            if (batch.size() >= batchSize) {
+                tasks.add(new DispatchTask(notificationStrategy, batch, enrolmentIds, tenantId, 0));
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            tasks.add(new DispatchTask(notificationStrategy, batch, enrolmentIds, tenantId, 0));
+        }
+        return tasks;
+    }
+
+    private boolean submit(DispatchTask task) {
+        String deviceType = task.contexts.get(0).getDeviceId().getType();
+        if (!shutdown) {
+            try {
+                this.getExecutor(deviceType).execute(task);
+                return true;
+            } catch (RejectedExecutionException e) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Push notification queue of device type '" + deviceType + "' is full. Rescheduling " +
+                            task.contexts.size() + " notifications.");
+                }
+            }
+        }
+        rejectedCount.addAndGet(task.contexts.size());
+        this.reschedule(task);
+        return false;
+    }
+
+    private ThreadPoolExecutor getExecutor(String deviceType) {
+        ThreadPoolExecutor executor = executors.get(deviceType);
+        if (executor == null) {
+            synchronized (executors) {
+                executor = executors.get(deviceType);
+                if (executor == null) {
+                    executor = new ThreadPoolExecutor(config.getWorkerPoolSize(), config.getWorkerPoolSize(),
+                            WORKER_KEEP_ALIVE_MILLS, TimeUnit.MILLISECONDS,
+                            new ArrayBlockingQueue<Runnable>(config.getQueueCapacity()),
+                            new DispatcherThreadFactory("push-notification-dispatcher-" + deviceType));
+                    executor.allowCoreThreadTimeOut(true);
+                    executors.put(deviceType, executor);
+                }
+            }
+        }
+        return executor;
+    }
+
+    private void retry(DispatchTask task) {
+        if (shutdown || task.attempt >= config.getMaxRetries()) {
+            failedCount.addAndGet(task.contexts.size());
+            this.reschedule(task);
+            return;
+        }
+        long delay = ((long) config.getRetryInitialDelayMills()) << task.attempt;
+        task.attempt++;
+        retryCount.addAndGet(task.contexts.size());
+        this.submitLater(task, delay);
+    }
+
+    private void submitLater(final DispatchTask task, long delayMills) {
+        awaitingRetry.add(task);
+        try {
+            scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    if (awaitingRetry.remove(task)) {
+                        submit(task);
+                    }
+                }
+            }, delayMills, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            if (awaitingRetry.remove(task)) {
+                failedCount.addAndGet(task.contexts.size());
+                this.reschedule(task);
+            }
+        }
+    }
+
+    private void reschedule(DispatchTask task) {
+        for (NotificationContext context : task.contexts) {
+            OperationMapping operationMapping = new OperationMapping();
+            operationMapping.setOperationId(context.getOperation().getId());
+            operationMapping.setEnrollmentId(task.enrolmentIds.get(context));
+            operationMapping.setTenantId(task.tenantId);
+            operationMapping.setDeviceIdentifier(context.getDeviceId());
+            operationMapping.setPushNotificationStatus(Operation.PushNotificationStatus.SCHEDULED);
+            rescheduleQueue.add(operationMapping);
+        }
+    }
+
+    /**
+     * Marks the operation mappings of the notifications which could not be sent as SCHEDULED, in batches of the
+     * configured size.
+     */
+    void flushRescheduledMappings() {
+        List<OperationMapping> operationMappings = new ArrayList<>();
+        OperationMapping operationMapping;
+        while ((operationMapping = rescheduleQueue.poll()) != null) {
+            operationMappings.add(operationMapping);
+            if (operationMappings.size() >= config.getRescheduleBatchSize()) {
+                this.updateOperationMappings(operationMappings);
+                operationMappings = new ArrayList<>();
+            }
+        }
+        if (!operationMappings.isEmpty()) {
+            this.updateOperationMappings(operationMappings);
+        }
+    }
+
+    private void updateOperationMappings(List<OperationMapping> operationMappings) {
+        try {
+            OperationManagementDAOFactory.beginTransaction();
+            operationMappingDAO.updateOperationMapping(operationMappings);
+            OperationManagementDAOFactory.commitTransaction();
+            rescheduledCount.addAndGet(operationMappings.size());
+            if (log.isDebugEnabled()) {
+                log.debug(operationMappings.size() + " push notifications have been rescheduled.");
+            }
+        } catch (OperationManagementDAOException e) {
+            OperationManagementDAOFactory.rollbackTransaction();
+            log.error("Error occurred while setting push notification status of " + operationMappings.size() +
+                    " operation mappings to SCHEDULED.", e);
+        } catch (TransactionManagementException e) {
+            log.error("Error occurred while initiating the transaction to reschedule push notifications.", e);
+        } catch (Throwable e) {
+            // Catching everything since an exception would stop the periodic execution of the flush
+            log.error("Unexpected error occurred while rescheduling push notifications.", e);
+        } finally {
+            OperationManagementDAOFactory.closeConnection();
+        }
+    }
+
+    /**
+     * Stops the worker pools. Notifications which have not been sent yet are rescheduled to the scheduler task.
+     */
+    public void shutdown() {
+        shutdown = true;
+        for (ThreadPoolExecutor executor : executors.values()) {
+            for (Runnable runnable : executor.shutdownNow()) {
+                this.reschedule((DispatchTask) runnable);
+            }
+        }
+        scheduler.shutdownNow();
+        this.unregisterMBean();
+        for (DispatchTask task : awaitingRetry) {
+            if (awaitingRetry.remove(task)) {
+                this.reschedule(task);
+            }
+        }
+        this.flushRescheduledMappings();
+    }
+
+    /**
+     * @return number of notifications waiting in the queue of each device type
+     */
+    public Map<String, Integer> getQueueDepths() {
+        Map<String, Integer> queueDepths = new HashMap<>();
+        for (Map.Entry<String, ThreadPoolExecutor> executor : executors.entrySet()) {
+            queueDepths.put(executor.getKey(), executor.getValue().getQueue().size());
+        }
+        return queueDepths;
+    }
+
+    @Override
+    public int getTotalQueueDepth() {
+        int queueDepth = 0;
+        for (ThreadPoolExecutor executor : executors.values()) {
+            queueDepth += executor.getQueue().size();
+        }
+        return queueDepth;
+    }
+
+    @Override
+    public int getQueueDepth(String deviceType) {
+        ThreadPoolExecutor executor = executors.get(deviceType);
+        if (executor == null) {
+            return 0;
+        }
+        return executor.getQueue().size();
+    }
+
+    @Override
+    public long getSentCount() {
+        return sentCount.get();
+    }
+
+    @Override
+    public long getRetryCount() {
+        return retryCount.get();
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    @Override
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    @Override
+    public long getRescheduledCount() {
+        return rescheduledCount.get();
+    }
+
+    @Override
+    public int getPendingRescheduleCount() {
+        return rescheduleQueue.size();
+    }
+
+    /**
+     * @return average time in milliseconds between queueing and successfully sending a notification
+     */
+    @Override
+    public long getAverageLatencyMills() {
+        long sent = sentCount.get();
+        if (sent == 0) {
+            return 0;
+        }
+        return totalLatencyMills.get() / sent;
+    }
+
+    @Override
+    public long getMaxLatencyMills() {
+        return maxLatencyMills.get();
+    }
+
+    /**
+     * @return average time in milliseconds the push notification providers took to accept a request
+     */
+    @Override
+    public long getAverageDispatchLatencyMills() {
+        long dispatched = dispatchCount.get();
+        if (dispatched == 0) {
+            return 0;
+        }
+        return totalDispatchLatencyMills.get() / dispatched;
+    }
+
+    @Override
+    public long getMaxDispatchLatencyMills() {
+        return maxDispatchLatencyMills.get();
+    }
+
+    private void recordDispatchLatency(long latency) {
+        dispatchCount.incrementAndGet();
+        totalDispatchLatencyMills.addAndGet(latency);
+        long max = maxDispatchLatencyMills.get();
+        while (latency > max && !maxDispatchLatencyMills.compareAndSet(max, latency)) {
+            max = maxDispatchLatencyMills.get();
+        }
+    }
+
+    private void registerMBean() {
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(MBEAN_NAME);
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+            mBeanServer.registerMBean(this, objectName);
+        } catch (InstanceNotFoundException e) {
+            log.warn("Push notification dispatcher MBean has been unregistered concurrently", e);
+        } catch (JMException e) {
+            log.error("Error occurred while registering the push notification dispatcher MBean", e);
+        }
+    }
+
+    private void unregisterMBean() {
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(MBEAN_NAME);
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+        } catch (InstanceNotFoundException e) {
+            log.warn("Push notification dispatcher MBean has been unregistered concurrently", e);
+        } catch (JMException e) {
+            log.error("Error occurred while unregistering the push notification dispatcher MBean", e);
+        }
+    }
+
+    private void recordLatency(long latency, int notificationCount) {
+        if (notificationCount == 0) {
+            return;
+        }
+        totalLatencyMills.addAndGet(latency * notificationCount);
+        long max = maxLatencyMills.get();
+        while (latency > max && !maxLatencyMills.compareAndSet(max, latency)) {
+            max = maxLatencyMills.get();
+        }
+    }
+
+    private class DispatchTask implements Runnable {
+
+        private final NotificationStrategy notificationStrategy;
+        private final List<NotificationContext> contexts;
+        private final Map<NotificationContext, Integer> enrolmentIds;
+        private final int tenantId;
+        private final long queuedTime;
+        private int attempt;
+
+        DispatchTask(NotificationStrategy notificationStrategy, List<NotificationContext> contexts,
+                     Map<NotificationContext, Integer> enrolmentIds, int tenantId, int attempt) {
+            this.notificationStrategy = notificationStrategy;
+            this.contexts = contexts;
+            this.enrolmentIds = enrolmentIds;
+            this.tenantId = tenantId;
+            this.attempt = attempt;
+            this.queuedTime = System.currentTimeMillis();
+        }
+
+        @Override
+        public void run() {
+            DeviceIdentifier deviceIdentifier = contexts.get(0).getDeviceId();
+            try {
+                PrivilegedCarbonContext.startTenantFlow();
+                PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantId(tenantId, true);
+                List<NotificationContext> failedContexts;
+                long dispatchStartTime = System.currentTimeMillis();
+                try {
+                    if (notificationStrategy instanceof BatchNotificationStrategy) {
+                        failedContexts = ((BatchNotificationStrategy) notificationStrategy).executeBatch(contexts);
+                    } else {
+                        notificationStrategy.execute(contexts.get(0));
+                        failedContexts = Collections.emptyList();
+                    }
+                } finally {
+                    recordDispatchLatency(System.currentTimeMillis() - dispatchStartTime);
+                }
+                int sent = contexts.size() - failedContexts.size();
+                sentCount.addAndGet(sent);
+                recordLatency(System.currentTimeMillis() - queuedTime, sent);
+                if (!failedContexts.isEmpty()) {
+                    if (log.isDebugEnabled()) {
+                        log.debug(failedContexts.size() + " of " + contexts.size() + " push notifications to " +
+                                deviceIdentifier.getType() + " devices were not accepted, attempt " + (attempt + 1));
+                    }
+                    List<NotificationContext> retryableContexts = new ArrayList<>(failedContexts.size());
+                    List<NotificationContext> rejectedContexts = new ArrayList<>();
+                    for (NotificationContext failedContext : failedContexts) {
+                        if (failedContext.isRetryable()) {
+                            retryableContexts.add(failedContext);
+                        } else {
+                            rejectedContexts.add(failedContext);
+                        }
+                    }
+                    if (!rejectedContexts.isEmpty()) {
+                        // Leave these to the scheduler task instead of retrying, e.g. until the device registers again
+                        failedCount.addAndGet(rejectedContexts.size());
+                        reschedule(new DispatchTask(notificationStrategy, rejectedContexts, enrolmentIds, tenantId,
+                                attempt));
+                    }
+                    if (!retryableContexts.isEmpty()) {
+                        retry(new DispatchTask(notificationStrategy, retryableContexts, enrolmentIds, tenantId,
+                                attempt));
+                    }
+                }
+            } catch (PushNotificationExecutionFailedException e) {
+                if (contexts.size() == 1) {
+                    log.error("Error occurred while sending push notification to " + deviceIdentifier.getType() +
+                            " device carrying id '" + deviceIdentifier.getId() + "', attempt " + (attempt + 1), e);
+                } else {
+                    log.error("Error occurred while sending push notifications to " + contexts.size() + " " +
+                            deviceIdentifier.getType() + " devices, attempt " + (attempt + 1), e);
+                }
+                retry(this);
+            } catch (RuntimeException e) {
+                log.error("Unexpected error occurred while sending push notifications to " +
+                        deviceIdentifier.getType() + " devices", e);
+                failedCount.addAndGet(contexts.size());
+                reschedule(this);
+            } finally {
+                PrivilegedCarbonContext.endTenantFlow();
+            }
+        }
+    }
+
+    private static class DispatcherThreadFactory implements ThreadFactory {
+
+        private final String namePrefix;
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        DispatcherThreadFactory(String namePrefix) {
+            this.namePrefix = namePrefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, namePrefix + "-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -23,10 +23,12 @@ import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.device.mgt.common.DeviceManagementException;
 import org.wso2.carbon.device.mgt.common.TransactionManagementException;
 import org.wso2.carbon.device.mgt.common.operation.mgt.OperationManagementException;
+import org.wso2.carbon.device.mgt.common.push.notification.BatchNotificationStrategy;
 import org.wso2.carbon.device.mgt.common.push.notification.NotificationContext;
 import org.wso2.carbon.device.mgt.common.push.notification.NotificationStrategy;
 import org.wso2.carbon.device.mgt.common.push.notification.PushNotificationExecutionFailedException;
 import org.wso2.carbon.device.mgt.core.config.DeviceConfigurationManager;
+import org.wso2.carbon.device.mgt.core.config.push.notification.PushNotificationConfiguration;
 import org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation;
 import org.wso2.carbon.device.mgt.core.internal.DeviceManagementDataHolder;
 import org.wso2.carbon.device.mgt.core.operation.mgt.OperationMapping;
@@ -36,92 +38,107 @@ import org.wso2.carbon.device.mgt.core.operation.mgt.dao.OperationManagementDAOF
 import org.wso2.carbon.device.mgt.core.operation.mgt.dao.OperationMappingDAO;
 import org.wso2.carbon.device.mgt.core.service.DeviceManagementProviderService;
 
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * ${{@link PushNotificationSchedulerTask}} is for sending push notifications for given device batch.
+ * <p>
+ * Each run claims a batch of scheduled notifications by moving them to IN_PROGRESS, so the task can run on every
+ * node of a cluster without sending the same notification twice. Notifications of different tenants and device
+ * types are sent in parallel and their statuses are committed chunk by chunk. Claims which were not completed within
+ * the claim timeout, e.g. because the node went down, are released to be claimed again.
+ * <p>
+ * Scheduled notifications are read partition by partition of the enrolments, starting from a partition which moves on
+ * with each run and differs between the nodes, so that the nodes of a cluster do not all read and try to claim the
+ * same notifications.
  */
 public class PushNotificationSchedulerTask implements Runnable {
 
     private static Log log = LogFactory.getLog(PushNotificationSchedulerTask.class);
+    private static final long WORKER_KEEP_ALIVE_MILLS = 60000;
+    private static final int PARTITION_COUNT = 16;
     private final OperationDAO operationDAO = OperationManagementDAOFactory.getOperationDAO();
     private final OperationMappingDAO operationMappingDAO = OperationManagementDAOFactory.getOperationMappingDAO();
     private final DeviceManagementProviderService provider = DeviceManagementDataHolder.getInstance()
             .getDeviceManagementProvider();
+    private final ThreadPoolExecutor executor;
+    private ScheduledExecutorService scheduler;
+    private int nextPartition = new Random().nextInt(PARTITION_COUNT);
+
+    public PushNotificationSchedulerTask() {
+        int poolSize = this.getConfig().getSchedulerPoolSize();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, WORKER_KEEP_ALIVE_MILLS, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Schedules the task to run periodically on this node.
+     *
+     * @param initialDelayMills time before the first run
+     * @param delayMills        time between the end of a run and the start of the next one
+     */
+    public synchronized void start(long initialDelayMills, long delayMills) {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor();
+            scheduler.scheduleWithFixedDelay(this, initialDelayMills, delayMills, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops the task and its worker pool. Notifications claimed by a run which is interrupted are released to be
+     * claimed again once the claim timeout is over.
+     */
+    public synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        executor.shutdownNow();
+    }
 
     @Override
     public void run() {
         try {
-            Map<Integer, List<OperationMapping>> operationMappingsTenantMap = new HashMap<>();
-            List<OperationMapping> operationsCompletedList = new LinkedList<>();
             if (log.isDebugEnabled()) {
                 log.debug("Push notification job started");
             }
-            try {
-                //Get next available operation list per device batch
-                OperationManagementDAOFactory.openConnection();
-                operationMappingsTenantMap = operationDAO.getOperationMappingsByStatus(Operation.Status
-                        .PENDING, Operation.PushNotificationStatus.SCHEDULED, DeviceConfigurationManager.getInstance()
-                        .getDeviceManagementConfig().getPushNotificationConfiguration().getSchedulerBatchSize());
-            } catch (OperationManagementDAOException e) {
-                log.error("Unable to retrieve scheduled pending operations for task.", e);
-            } finally {
-                OperationManagementDAOFactory.closeConnection();
-            }
-            // Sending push notification to each device
-            for (List<OperationMapping> operationMappings : operationMappingsTenantMap.values()) {
-                for (OperationMapping operationMapping : operationMappings) {
-                    try {
-                        if (log.isDebugEnabled()) {
-                            log.debug("Sending push notification for operationId :" + operationMapping.getOperationId() +
-                                    " to deviceId : " + operationMapping.getDeviceIdentifier().getId());
-                        }
-                        // Set tenant id and domain
-                        PrivilegedCarbonContext.startTenantFlow();
-                        PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantId(operationMapping.getTenantId(), true);
-                        // Get notification strategy for given device type
-                        NotificationStrategy notificationStrategy = provider.getNotificationStrategyByDeviceType
-                                (operationMapping.getDeviceIdentifier().getType());
-                        // Send the push notification on given strategy
-                        if (notificationStrategy != null) {
-                            notificationStrategy.execute(new NotificationContext(operationMapping.getDeviceIdentifier(),
-                                    provider.getOperation(operationMapping.getDeviceIdentifier().getType(), operationMapping
-                                            .getOperationId())));
-                            operationMapping.setPushNotificationStatus(Operation.PushNotificationStatus.COMPLETED);
-                            operationsCompletedList.add(operationMapping);
-                        } else {
-                            if (log.isDebugEnabled()) {
-                                log.debug("Tenant '" + PrivilegedCarbonContext.getThreadLocalCarbonContext()
-                                        .getTenantDomain() + "' does not have push notification strategy.");
-                            }
-                        }
-                    } catch (DeviceManagementException e) {
-                        log.error("Error occurred while getting notification strategy for operation mapping " +
-                                operationMapping.getDeviceIdentifier().getType(), e);
-                    } catch (OperationManagementException e) {
-                        log.error("Unable to get the operation for operation " + operationMapping.getOperationId(), e);
-                    } catch (PushNotificationExecutionFailedException e) {
-                        log.error("Error occurred while sending push notification to operation:  " + operationMapping
-                                .getOperationId(), e);
-                    } finally {
-                        PrivilegedCarbonContext.endTenantFlow();
-                    }
+            this.releaseStaleClaims();
+            List<OperationMapping> operationMappings = this.claimOperationMappings();
+            // Notifications of a tenant and device type share the notification strategy, hence sent together
+            Map<String, List<OperationMapping>> operationMappingGroups = new LinkedHashMap<>();
+            for (OperationMapping operationMapping : operationMappings) {
+                String groupKey = operationMapping.getTenantId() + ":" +
+                        operationMapping.getDeviceIdentifier().getType();
+                List<OperationMapping> operationMappingGroup = operationMappingGroups.get(groupKey);
+                if (operationMappingGroup == null) {
+                    operationMappingGroup = new ArrayList<>();
+                    operationMappingGroups.put(groupKey, operationMappingGroup);
                 }
+                operationMappingGroup.add(operationMapping);
             }
-            // Update push notification status to competed for operations which already sent
-            if (operationsCompletedList.size() > 0) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (List<OperationMapping> operationMappingGroup : operationMappingGroups.values()) {
+                futures.add(executor.submit(new NotificationSender(operationMappingGroup)));
+            }
+            for (Future<?> future : futures) {
                 try {
-                    OperationManagementDAOFactory.beginTransaction();
-                    operationMappingDAO.updateOperationMapping(operationsCompletedList);
-                    OperationManagementDAOFactory.commitTransaction();
-                } catch (TransactionManagementException | OperationManagementDAOException e) {
-                    OperationManagementDAOFactory.rollbackTransaction();
-                    log.error("Error occurred while updating operation mappings for sent notifications ", e);
-                } finally {
-                    OperationManagementDAOFactory.closeConnection();
+                    future.get();
+                } catch (ExecutionException e) {
+                    log.error("Error occurred while sending scheduled push notifications", e.getCause());
                 }
             }
             if (log.isDebugEnabled()) {
@@ -131,4 +148,212 @@ public class PushNotificationSchedulerTask implements Runnable {
             log.error("PushNotificationSchedulerTask failed due to " + cause.getMessage(), cause);
         }
     }
+
+    private PushNotificationConfiguration getConfig() {
+        return DeviceConfigurationManager.getInstance().getDeviceManagementConfig().getPushNotificationConfiguration();
+    }
+
+    private void releaseStaleClaims() {
+        long claimedBefore = (System.currentTimeMillis() - this.getConfig().getSchedulerClaimTimeoutMills()) / 1000;
+        try {
+            OperationManagementDAOFactory.beginTransaction();
+            int released = operationMappingDAO.updateStaleOperationMappings(Operation.PushNotificationStatus
+                    .IN_PROGRESS, Operation.PushNotificationStatus.SCHEDULED, claimedBefore);
+            OperationManagementDAOFactory.commitTransaction();
+            if (released > 0) {
+                log.warn(released + " push notifications which were not completed within the claim timeout have " +
+                        "been rescheduled.");
+            }
+        } catch (OperationManagementDAOException e) {
+            OperationManagementDAOFactory.rollbackTransaction();
+            log.error("Unable to release stale push notification claims.", e);
+        } catch (TransactionManagementException e) {
+            log.error("Error occurred while initiating the transaction to release push notification claims.", e);
+        } finally {
+            OperationManagementDAOFactory.closeConnection();
+        }
+    }
+
+    private List<OperationMapping> claimOperationMappings() {
+        List<OperationMapping> operationMappings = new ArrayList<>();
+        int batchSize = this.getConfig().getSchedulerBatchSize();
+        int firstPartition = nextPartition;
+        nextPartition = (nextPartition + 1) % PARTITION_COUNT;
+        try {
+            //Get next available operation list per device batch and claim it for this node
+            OperationManagementDAOFactory.beginTransaction();
+            for (int i = 0; i < PARTITION_COUNT && operationMappings.size() < batchSize; i++) {
+                Map<Integer, List<OperationMapping>> operationMappingsTenantMap = operationDAO
+                        .getOperationMappingsByStatus(Operation.Status.PENDING,
+                                Operation.PushNotificationStatus.SCHEDULED, batchSize - operationMappings.size(),
+                                PARTITION_COUNT, (firstPartition + i) % PARTITION_COUNT);
+                for (List<OperationMapping> tenantOperationMappings : operationMappingsTenantMap.values()) {
+                    operationMappings.addAll(tenantOperationMappings);
+                }
+            }
+            operationMappings = operationMappingDAO.claimOperationMappings(operationMappings,
+                    Operation.PushNotificationStatus.SCHEDULED, Operation.PushNotificationStatus.IN_PROGRESS);
+            OperationManagementDAOFactory.commitTransaction();
+        } catch (OperationManagementDAOException e) {
+            OperationManagementDAOFactory.rollbackTransaction();
+            log.error("Unable to retrieve scheduled pending operations for task.", e);
+            operationMappings.clear();
+        } catch (TransactionManagementException e) {
+            log.error("Error occurred while initiating the transaction to claim scheduled pending operations.", e);
+        } finally {
+            OperationManagementDAOFactory.closeConnection();
+        }
+        return operationMappings;
+    }
+
+    private void updateOperationMappings(List<OperationMapping> operationMappings) {
+        if (operationMappings.isEmpty()) {
+            return;
+        }
+        try {
+            OperationManagementDAOFactory.beginTransaction();
+            operationMappingDAO.updateOperationMapping(operationMappings);
+            OperationManagementDAOFactory.commitTransaction();
+        } catch (OperationManagementDAOException e) {
+            OperationManagementDAOFactory.rollbackTransaction();
+            log.error("Error occurred while updating operation mappings for sent notifications ", e);
+        } catch (TransactionManagementException e) {
+            log.error("Error occurred while initiating the transaction to update operation mappings.", e);
+        } finally {
+            OperationManagementDAOFactory.closeConnection();
+        }
+    }
+
+    /**
+     * Sends the claimed notifications of a single tenant and device type.
+     */
+    private class NotificationSender implements Runnable {
+
+        private final List<OperationMapping> operationMappings;
+
+        NotificationSender(List<OperationMapping> operationMappings) {
+            this.operationMappings = operationMappings;
+        }
+
+        @Override
+        public void run() {
+            OperationMapping firstOperationMapping = operationMappings.get(0);
+            String deviceType = firstOperationMapping.getDeviceIdentifier().getType();
+            try {
+                // Set tenant id and domain
+                PrivilegedCarbonContext.startTenantFlow();
+                PrivilegedCarbonContext.getThreadLocalCarbonContext()
+                        .setTenantId(firstOperationMapping.getTenantId(), true);
+                // Get notification strategy for given device type
+                NotificationStrategy notificationStrategy = provider.getNotificationStrategyByDeviceType(deviceType);
+                if (notificationStrategy == null) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("Tenant '" + PrivilegedCarbonContext.getThreadLocalCarbonContext()
+                                .getTenantDomain() + "' does not have push notification strategy.");
+                    }
+                    this.setStatus(operationMappings, Operation.PushNotificationStatus.SCHEDULED);
+                    updateOperationMappings(operationMappings);
+                    return;
+                }
+                // Thousands of mappings usually share a few operations, therefore each is loaded only once
+                Map<Integer, org.wso2.carbon.device.mgt.common.operation.mgt.Operation> operations = new HashMap<>();
+                int chunkSize = getConfig().getDispatcherConfiguration().getBatchSize();
+                for (int i = 0; i < operationMappings.size(); i += chunkSize) {
+                    List<OperationMapping> chunk = operationMappings.subList(i,
+                            Math.min(i + chunkSize, operationMappings.size()));
+                    this.send(notificationStrategy, chunk, operations);
+                    // Committing each chunk as it completes keeps the notifications already sent from being
+                    // released and sent again if the node goes down midway
+                    updateOperationMappings(chunk);
+                }
+            } catch (DeviceManagementException e) {
+                log.error("Error occurred while getting notification strategy for operation mapping " +
+                        deviceType, e);
+                this.setStatus(operationMappings, Operation.PushNotificationStatus.SCHEDULED);
+                updateOperationMappings(operationMappings);
+            } finally {
+                PrivilegedCarbonContext.endTenantFlow();
+            }
+        }
+
+        private void send(NotificationStrategy notificationStrategy, List<OperationMapping> chunk,
+                          Map<Integer, org.wso2.carbon.device.mgt.common.operation.mgt.Operation> operations) {
+            Map<NotificationContext, OperationMapping> contexts = new IdentityHashMap<>();
+            List<NotificationContext> contextList = new ArrayList<>();
+            for (OperationMapping operationMapping : chunk) {
+                // Mappings are left to be rescheduled unless the notification is sent
+                operationMapping.setPushNotificationStatus(Operation.PushNotificationStatus.SCHEDULED);
+                org.wso2.carbon.device.mgt.common.operation.mgt.Operation operation;
+                try {
+                    operation = this.getOperation(operationMapping, operations);
+                } catch (OperationManagementException e) {
+                    log.error("Unable to get the operation for operation " + operationMapping.getOperationId(), e);
+                    continue;
+                }
+                if (operation == null) {
+                    // Nothing to notify the device about anymore
+                    operationMapping.setPushNotificationStatus(Operation.PushNotificationStatus.COMPLETED);
+                    continue;
+                }
+                if (log.isDebugEnabled()) {
+                    log.debug("Sending push notification for operationId :" + operationMapping.getOperationId() +
+                            " to deviceId : " + operationMapping.getDeviceIdentifier().getId());
+                }
+                NotificationContext context = new NotificationContext(operationMapping.getDeviceIdentifier(),
+                        operation);
+                contexts.put(context, operationMapping);
+                contextList.add(context);
+            }
+            if (contextList.isEmpty()) {
+                return;
+            }
+            if (notificationStrategy instanceof BatchNotificationStrategy) {
+                try {
+                    List<NotificationContext> failedContexts = ((BatchNotificationStrategy) notificationStrategy)
+                            .executeBatch(contextList);
+                    this.setStatus(contextList, contexts, Operation.PushNotificationStatus.COMPLETED);
+                    this.setStatus(failedContexts, contexts, Operation.PushNotificationStatus.SCHEDULED);
+                } catch (PushNotificationExecutionFailedException e) {
+                    log.error("Error occurred while sending push notifications to " + contextList.size() +
+                            " devices", e);
+                }
+            } else {
+                for (NotificationContext context : contextList) {
+                    try {
+                        notificationStrategy.execute(context);
+                        contexts.get(context).setPushNotificationStatus(Operation.PushNotificationStatus.COMPLETED);
+                    } catch (PushNotificationExecutionFailedException e) {
+                        log.error("Error occurred while sending push notification to operation:  " +
+                                contexts.get(context).getOperationId(), e);
+                    }
+                }
+            }
+        }
+
+        private org.wso2.carbon.device.mgt.common.operation.mgt.Operation getOperation(
+                OperationMapping operationMapping,
+                Map<Integer, org.wso2.carbon.device.mgt.common.operation.mgt.Operation> operations)
+                throws OperationManagementException {
+            int operationId = operationMapping.getOperationId();
+            if (!operations.containsKey(operationId)) {
+                operations.put(operationId, provider.getOperation(operationMapping.getDeviceIdentifier().getType(),
+                        operationId));
+            }
+            return operations.get(operationId);
+        }
+
+        private void setStatus(List<NotificationContext> contextList,
+                               Map<NotificationContext, OperationMapping> contexts,
+                               Operation.PushNotificationStatus status) {
+            for (NotificationContext context : contextList) {
+                contexts.get(context).setPushNotificationStatus(status);
+            }
+        }
+
+        private void setStatus(List<OperationMapping> operationMappings, Operation.PushNotificationStatus status) {
+            for (OperationMapping operationMapping : operationMappings) {
+                operationMapping.setPushNotificationStatus(status);
+            }
+        }
+    }
 }
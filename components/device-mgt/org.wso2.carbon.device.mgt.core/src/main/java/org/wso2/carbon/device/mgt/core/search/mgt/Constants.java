@@ -21,8 +21,5 @@ package org.wso2.carbon.device.mgt.core.search.mgt;
 
 public class Constants {
 
-    public static final String GENERAL = "GENERAL";
-    public static final String PROP_AND = "PROP_AND";
-    public static final String PROP_OR = "PROP_OR";
     public static final String LOCATION = "LOCATION";
 }
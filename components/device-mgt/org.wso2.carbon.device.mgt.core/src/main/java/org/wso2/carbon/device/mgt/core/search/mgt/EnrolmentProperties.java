@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.search.mgt;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Properties reported by the device of an enrolment.
+ */
+public class EnrolmentProperties {
+
+    private final int tenantId;
+    private final int enrolmentId;
+    private final Map<String, String> properties = new HashMap<>();
+
+    public EnrolmentProperties(int tenantId, int enrolmentId) {
+        this.tenantId = tenantId;
+        this.enrolmentId = enrolmentId;
+    }
+
+    public int getTenantId() {
+        return tenantId;
+    }
+
+    public int getEnrolmentId() {
+        return enrolmentId;
+    }
+
+    public Map<String, String> getProperties() {
+        return properties;
+    }
+}
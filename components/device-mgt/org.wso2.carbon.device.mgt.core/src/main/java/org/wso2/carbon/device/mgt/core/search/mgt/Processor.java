@@ -28,6 +28,27 @@ public interface Processor {
 
     List<Device> execute(SearchContext searchContext) throws SearchMgtException;
 
+    /**
+     * Returns a page of the devices matching a search, which the user in the context is authorized to access.
+     *
+     * @param searchContext conditions of the search
+     * @param offset        number of matching devices to be skipped
+     * @param limit         maximum number of devices to be returned, or a non positive value to return all the
+     *                      matching devices
+     * @return matching devices in the order of the device ids
+     * @throws SearchMgtException if the search could not be run
+     */
+    List<Device> execute(SearchContext searchContext, int offset, int limit) throws SearchMgtException;
+
+    /**
+     * Returns the number of devices matching a search, which the user in the context is authorized to access.
+     *
+     * @param searchContext conditions of the search
+     * @return number of matching devices
+     * @throws SearchMgtException if the search could not be run
+     */
+    int count(SearchContext searchContext) throws SearchMgtException;
+
     List<Device> getUpdatedDevices(long epochTime) throws SearchMgtException;
 
 }
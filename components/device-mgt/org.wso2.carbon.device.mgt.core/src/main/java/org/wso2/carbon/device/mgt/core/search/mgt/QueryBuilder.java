@@ -22,21 +22,23 @@ package org.wso2.carbon.device.mgt.core.search.mgt;
 import org.wso2.carbon.device.mgt.common.search.Condition;
 
 import java.util.List;
-import java.util.Map;
 
 public interface QueryBuilder {
 
-    Map<String, List<QueryHolder>> buildQueries(List<Condition> conditions) throws InvalidOperatorException;
-
-    String processAND(List<Condition> conditions, ValueType[] valueType, Integer intArr[]) throws InvalidOperatorException;
-
-    String processOR(List<Condition> conditions, ValueType[] valueType, Integer intArr[]) throws InvalidOperatorException;
-
-    List<QueryHolder>  processLocation(Condition condition) throws InvalidOperatorException;
-
-    List<QueryHolder> processANDProperties(List<Condition> conditions) throws InvalidOperatorException;
-
-    List<QueryHolder> processORProperties(List<Condition> conditions) throws InvalidOperatorException;
+    /**
+     * Builds a single query which returns the devices matching all the conditions of a search. Conditions on the
+     * device detail and location columns and property conditions with AND state must all match, while property
+     * conditions with OR state and location conditions match on their own. The query returns at most one row per
+     * device and is not ordered.
+     *
+     * @param conditions  conditions of the search
+     * @param owner       owner the matching devices must be enrolled to, or null to match devices of any owner
+     * @param deviceTypes device types the matching devices must belong to, or null to match devices of any type
+     * @return query holder of the search query
+     * @throws InvalidOperatorException if a condition carries an invalid state or value
+     */
+    QueryHolder buildSearchQuery(List<Condition> conditions, String owner, List<String> deviceTypes)
+            throws InvalidOperatorException;
 
     QueryHolder processUpdatedDevices(long epochTime) throws InvalidOperatorException;
 
@@ -20,6 +20,7 @@
 package org.wso2.carbon.device.mgt.core.search.mgt;
 
 import org.wso2.carbon.device.mgt.common.Device;
+import org.wso2.carbon.device.mgt.common.PaginationResult;
 import org.wso2.carbon.device.mgt.common.search.SearchContext;
 
 import java.util.List;
@@ -28,6 +29,17 @@ public interface SearchManagerService {
 
     List<Device> search(SearchContext searchContext) throws SearchMgtException;
 
+    /**
+     * Returns a page of the devices matching a search along with the total number of matching devices.
+     *
+     * @param searchContext conditions of the search
+     * @param offset        number of matching devices to be skipped
+     * @param limit         maximum number of devices to be returned
+     * @return pagination result carrying the matching devices of the page
+     * @throws SearchMgtException if the search could not be run
+     */
+    PaginationResult search(SearchContext searchContext, int offset, int limit) throws SearchMgtException;
+
     List<Device> getUpdated(long epochTime) throws SearchMgtException;
 }
 
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.search.mgt.dao;
+
+import org.wso2.carbon.device.mgt.common.Device;
+import org.wso2.carbon.device.mgt.core.search.mgt.EnrolmentProperties;
+import org.wso2.carbon.device.mgt.core.search.mgt.QueryHolder;
+
+import java.util.List;
+
+/**
+ * DAO which runs the queries built for device searches.
+ */
+public interface SearchDAO {
+
+    /**
+     * Returns a page of the devices matched by a search query, in the order of the device ids. The device details,
+     * location and properties of the returned devices are filled.
+     *
+     * @param queryHolder search query built by the query builder
+     * @param offset      number of matching devices to be skipped
+     * @param limit       maximum number of devices to be returned, or a non positive value to return all the
+     *                    matching devices
+     * @return matching devices
+     * @throws SearchDAOException if the search query could not be run
+     */
+    List<Device> searchDevices(QueryHolder queryHolder, int offset, int limit) throws SearchDAOException;
+
+    /**
+     * Returns the number of devices matched by a search query.
+     *
+     * @param queryHolder search query built by the query builder
+     * @return number of matching devices
+     * @throws SearchDAOException if the search query could not be run
+     */
+    int getDeviceCount(QueryHolder queryHolder) throws SearchDAOException;
+
+    /**
+     * @return largest id of the enrolments, or zero if there is no enrolment
+     * @throws SearchDAOException if the enrolment ids could not be read
+     */
+    int getMaxEnrolmentId() throws SearchDAOException;
+
+    /**
+     * Returns the properties of the enrolments of all the tenants, of which the ids are within a range. Enrolments
+     * without properties are not returned.
+     *
+     * @param fromEnrolmentId exclusive lower bound of the enrolment ids
+     * @param toEnrolmentId   inclusive upper bound of the enrolment ids
+     * @return properties of the enrolments
+     * @throws SearchDAOException if the properties could not be read
+     */
+    List<EnrolmentProperties> getDeviceProperties(int fromEnrolmentId, int toEnrolmentId) throws SearchDAOException;
+
+    /**
+     * Returns the properties of the enrolments of all the tenants, of which the device details were updated after a
+     * given time. Enrolments without properties are returned with an empty set of properties.
+     *
+     * @param since time in milliseconds after which the device details were updated
+     * @return properties of the updated enrolments
+     * @throws SearchDAOException if the properties could not be read
+     */
+    List<EnrolmentProperties> getUpdatedDeviceProperties(long since) throws SearchDAOException;
+
+}
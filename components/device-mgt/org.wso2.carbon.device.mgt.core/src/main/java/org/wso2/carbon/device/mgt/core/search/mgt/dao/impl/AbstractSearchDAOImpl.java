@@ -0,0 +1,322 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.search.mgt.dao.impl;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.device.mgt.common.Device;
+import org.wso2.carbon.device.mgt.common.EnrolmentInfo;
+import org.wso2.carbon.device.mgt.common.device.details.DeviceInfo;
+import org.wso2.carbon.device.mgt.common.device.details.DeviceLocation;
+import org.wso2.carbon.device.mgt.core.dao.DeviceManagementDAOFactory;
+import org.wso2.carbon.device.mgt.core.dao.util.DeviceManagementDAOUtil;
+import org.wso2.carbon.device.mgt.core.search.mgt.EnrolmentProperties;
+import org.wso2.carbon.device.mgt.core.search.mgt.QueryHolder;
+import org.wso2.carbon.device.mgt.core.search.mgt.ValueType;
+import org.wso2.carbon.device.mgt.core.search.mgt.dao.SearchDAO;
+import org.wso2.carbon.device.mgt.core.search.mgt.dao.SearchDAOException;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the device search queries. Pagination is pushed down to the database, hence only the requested page of the
+ * matching devices is read and only the properties of those devices are fetched.
+ */
+public abstract class AbstractSearchDAOImpl implements SearchDAO {
+
+    private static final Log log = LogFactory.getLog(AbstractSearchDAOImpl.class);
+
+    @Override
+    public List<Device> searchDevices(QueryHolder queryHolder, int offset, int limit) throws SearchDAOException {
+        String query = queryHolder.getQuery() + " ORDER BY D.ID";
+        if (limit > 0) {
+            query = this.getPaginatedQuery(query);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Query : " + query);
+        }
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        Map<Integer, Device> devices = new LinkedHashMap<>();
+        try {
+            Connection conn = this.getConnection();
+            stmt = conn.prepareStatement(query);
+            int index = this.setParameters(stmt, queryHolder.getTypes());
+            if (limit > 0) {
+                this.setPaginationParameters(stmt, index, offset, limit);
+            }
+            rs = stmt.executeQuery();
+            while (rs.next()) {
+                if (!devices.containsKey(rs.getInt("ID"))) {
+                    Device device = this.loadDevice(rs);
+                    devices.put(device.getId(), device);
+                }
+            }
+        } catch (SQLException e) {
+            throw new SearchDAOException("Error occurred while aquiring the device details.", e);
+        } finally {
+            DeviceManagementDAOUtil.cleanupResources(stmt, rs);
+        }
+        List<Device> deviceList = new ArrayList<>(devices.values());
+        this.fillPropertiesOfDevices(deviceList);
+        if (log.isDebugEnabled()) {
+            log.debug("Number of the device returned from the query : " + deviceList.size());
+        }
+        return deviceList;
+    }
+
+    @Override
+    public int getDeviceCount(QueryHolder queryHolder) throws SearchDAOException {
+        String query = "SELECT COUNT(DISTINCT SEARCH_RESULT.ID) AS DEVICE_COUNT FROM (" + queryHolder.getQuery() +
+                ") SEARCH_RESULT";
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            Connection conn = this.getConnection();
+            stmt = conn.prepareStatement(query);
+            this.setParameters(stmt, queryHolder.getTypes());
+            rs = stmt.executeQuery();
+            if (rs.next()) {
+                return rs.getInt("DEVICE_COUNT");
+            }
+            return 0;
+        } catch (SQLException e) {
+            throw new SearchDAOException("Error occurred while counting the devices matching the search.", e);
+        } finally {
+            DeviceManagementDAOUtil.cleanupResources(stmt, rs);
+        }
+    }
+
+    @Override
+    public int getMaxEnrolmentId() throws SearchDAOException {
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            Connection conn = this.getConnection();
+            stmt = conn.prepareStatement("SELECT MAX(ID) AS MAX_ID FROM DM_ENROLMENT");
+            rs = stmt.executeQuery();
+            if (rs.next()) {
+                return rs.getInt("MAX_ID");
+            }
+            return 0;
+        } catch (SQLException e) {
+            throw new SearchDAOException("Error occurred while retrieving the largest enrolment id.", e);
+        } finally {
+            DeviceManagementDAOUtil.cleanupResources(stmt, rs);
+        }
+    }
+
+    @Override
+    public List<EnrolmentProperties> getDeviceProperties(int fromEnrolmentId, int toEnrolmentId)
+            throws SearchDAOException {
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            Connection conn = this.getConnection();
+            String query = "SELECT D.TENANT_ID, DI.ENROLMENT_ID, DI.KEY_FIELD, DI.VALUE_FIELD FROM DM_DEVICE_INFO DI " +
+                    "INNER JOIN DM_DEVICE D ON D.ID = DI.DEVICE_ID WHERE DI.ENROLMENT_ID > ? AND DI.ENROLMENT_ID <= ?";
+            stmt = conn.prepareStatement(query);
+            stmt.setInt(1, fromEnrolmentId);
+            stmt.setInt(2, toEnrolmentId);
+            rs = stmt.executeQuery();
+            return this.loadEnrolmentProperties(rs);
+        } catch (SQLException e) {
+            throw new SearchDAOException("Error occurred while retrieving the properties of the enrolments from " +
+                    fromEnrolmentId + " to " + toEnrolmentId + ".", e);
+        } finally {
+            DeviceManagementDAOUtil.cleanupResources(stmt, rs);
+        }
+    }
+
+    @Override
+    public List<EnrolmentProperties> getUpdatedDeviceProperties(long since) throws SearchDAOException {
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            Connection conn = this.getConnection();
+            String query = "SELECT D.TENANT_ID, DD.ENROLMENT_ID, DI.KEY_FIELD, DI.VALUE_FIELD FROM DM_DEVICE_DETAIL DD " +
+                    "INNER JOIN DM_DEVICE D ON D.ID = DD.DEVICE_ID " +
+                    "LEFT JOIN DM_DEVICE_INFO DI ON DI.ENROLMENT_ID = DD.ENROLMENT_ID WHERE DD.UPDATE_TIMESTAMP > ?";
+            stmt = conn.prepareStatement(query);
+            stmt.setLong(1, since);
+            rs = stmt.executeQuery();
+            return this.loadEnrolmentProperties(rs);
+        } catch (SQLException e) {
+            throw new SearchDAOException("Error occurred while retrieving the properties of the enrolments updated " +
+                    "after " + since + ".", e);
+        } finally {
+            DeviceManagementDAOUtil.cleanupResources(stmt, rs);
+        }
+    }
+
+    /**
+     * Appends the pagination clause to a search query ordered by the device ids.
+     *
+     * @param query search query
+     * @return query which returns only the requested page of the matching devices
+     */
+    protected abstract String getPaginatedQuery(String query);
+
+    /**
+     * Sets the parameters of the pagination clause appended by {@link #getPaginatedQuery(String)}.
+     *
+     * @param stmt   statement of the paginated query
+     * @param index  index of the first pagination parameter
+     * @param offset number of matching devices to be skipped
+     * @param limit  maximum number of devices to be returned
+     * @throws SQLException if the parameters could not be set
+     */
+    protected abstract void setPaginationParameters(PreparedStatement stmt, int index, int offset, int limit)
+            throws SQLException;
+
+    private int setParameters(PreparedStatement stmt, ValueType[] types) throws SQLException {
+        int x = 1;
+        for (ValueType type : types) {
+            if (type.getColumnType().equals(ValueType.columnType.STRING)) {
+                stmt.setString(x, type.getStringValue());
+            } else if (type.getColumnType().equals(ValueType.columnType.INTEGER)) {
+                stmt.setInt(x, type.getIntValue());
+            } else if (type.getColumnType().equals(ValueType.columnType.LONG)) {
+                stmt.setLong(x, type.getLongValue());
+            } else if (type.getColumnType().equals(ValueType.columnType.DOUBLE)) {
+                stmt.setDouble(x, type.getDoubleValue());
+            }
+            x++;
+        }
+        return x;
+    }
+
+    private List<EnrolmentProperties> loadEnrolmentProperties(ResultSet rs) throws SQLException {
+        Map<Integer, EnrolmentProperties> enrolments = new LinkedHashMap<>();
+        while (rs.next()) {
+            int enrolmentId = rs.getInt("ENROLMENT_ID");
+            EnrolmentProperties enrolmentProperties = enrolments.get(enrolmentId);
+            if (enrolmentProperties == null) {
+                enrolmentProperties = new EnrolmentProperties(rs.getInt("TENANT_ID"), enrolmentId);
+                enrolments.put(enrolmentId, enrolmentProperties);
+            }
+            String key = rs.getString("KEY_FIELD");
+            if (key != null) {
+                enrolmentProperties.getProperties().put(key, rs.getString("VALUE_FIELD"));
+            }
+        }
+        return new ArrayList<>(enrolments.values());
+    }
+
+    private Device loadDevice(ResultSet rs) throws SQLException {
+        Device device = new Device();
+        device.setId(rs.getInt("ID"));
+        device.setDescription(rs.getString("DESCRIPTION"));
+        device.setName(rs.getString("NAME"));
+        device.setType(rs.getString("DEVICE_TYPE_NAME"));
+        device.setDeviceIdentifier(rs.getString("DEVICE_IDENTIFICATION"));
+
+        EnrolmentInfo enrolmentInfo = new EnrolmentInfo();
+        enrolmentInfo.setId(rs.getInt("ENROLMENT_ID"));
+        enrolmentInfo.setStatus(EnrolmentInfo.Status.valueOf(rs.getString("DE_STATUS")));
+        enrolmentInfo.setOwner(rs.getString("OWNER"));
+        enrolmentInfo.setOwnership(EnrolmentInfo.OwnerShip.valueOf(rs.getString("OWNERSHIP")));
+        device.setEnrolmentInfo(enrolmentInfo);
+
+        DeviceInfo deviceInfo = new DeviceInfo();
+        deviceInfo.setAvailableRAMMemory(rs.getDouble("AVAILABLE_RAM_MEMORY"));
+        deviceInfo.setBatteryLevel(rs.getDouble("BATTERY_LEVEL"));
+        deviceInfo.setConnectionType(rs.getString("CONNECTION_TYPE"));
+        deviceInfo.setCpuUsage(rs.getDouble("CPU_USAGE"));
+        deviceInfo.setDeviceModel(rs.getString("DEVICE_MODEL"));
+        deviceInfo.setExternalAvailableMemory(rs.getDouble("EXTERNAL_AVAILABLE_MEMORY"));
+        deviceInfo.setExternalTotalMemory(rs.getDouble("EXTERNAL_TOTAL_MEMORY"));
+        deviceInfo.setInternalAvailableMemory(rs.getDouble("INTERNAL_AVAILABLE_MEMORY"));
+        deviceInfo.setInternalTotalMemory(rs.getDouble("INTERNAL_TOTAL_MEMORY"));
+        deviceInfo.setOsVersion(rs.getString("OS_VERSION"));
+        deviceInfo.setOsBuildDate(rs.getString("OS_BUILD_DATE"));
+        deviceInfo.setPluggedIn(rs.getBoolean("PLUGGED_IN"));
+        deviceInfo.setSsid(rs.getString("SSID"));
+        deviceInfo.setTotalRAMMemory(rs.getDouble("TOTAL_RAM_MEMORY"));
+        deviceInfo.setVendor(rs.getString("VENDOR"));
+        deviceInfo.setUpdatedTime(new java.util.Date(rs.getLong("UPDATE_TIMESTAMP")));
+
+        DeviceLocation deviceLocation = new DeviceLocation();
+        deviceLocation.setLatitude(rs.getDouble("LATITUDE"));
+        deviceLocation.setLongitude(rs.getDouble("LONGITUDE"));
+        deviceLocation.setStreet1(rs.getString("STREET1"));
+        deviceLocation.setStreet2(rs.getString("STREET2"));
+        deviceLocation.setCity(rs.getString("CITY"));
+        deviceLocation.setState(rs.getString("STATE"));
+        deviceLocation.setZip(rs.getString("ZIP"));
+        deviceLocation.setCountry(rs.getString("COUNTRY"));
+        deviceLocation.setDeviceId(rs.getInt("ID"));
+        deviceLocation.setUpdatedTime(new java.util.Date(rs.getLong("DL_UPDATED_TIMESTAMP")));
+
+        deviceInfo.setLocation(deviceLocation);
+        device.setDeviceInfo(deviceInfo);
+        return device;
+    }
+
+    private void fillPropertiesOfDevices(List<Device> devices) throws SearchDAOException {
+        if (devices.isEmpty()) {
+            return;
+        }
+        Map<Integer, DeviceInfo> deviceInfoMap = new HashMap<>();
+        List<Integer> enrolmentIds = new ArrayList<>();
+        for (Device device : devices) {
+            deviceInfoMap.put(device.getEnrolmentInfo().getId(), device.getDeviceInfo());
+            enrolmentIds.add(device.getEnrolmentInfo().getId());
+        }
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            Connection conn = this.getConnection();
+            for (List<Integer> chunk : DeviceManagementDAOUtil.partition(enrolmentIds,
+                    DeviceManagementDAOUtil.MAX_IN_CLAUSE_SIZE)) {
+                String query = "SELECT ENROLMENT_ID, KEY_FIELD, VALUE_FIELD FROM DM_DEVICE_INFO WHERE ENROLMENT_ID IN (" +
+                        DeviceManagementDAOUtil.getInClausePlaceholders(chunk.size()) + ")";
+                stmt = conn.prepareStatement(query);
+                int index = 1;
+                for (Integer enrolmentId : chunk) {
+                    stmt.setInt(index++, enrolmentId);
+                }
+                rs = stmt.executeQuery();
+                while (rs.next()) {
+                    deviceInfoMap.get(rs.getInt("ENROLMENT_ID")).getDeviceDetailsMap().put(rs.getString("KEY_FIELD"),
+                            rs.getString("VALUE_FIELD"));
+                }
+                DeviceManagementDAOUtil.cleanupResources(stmt, rs);
+                stmt = null;
+                rs = null;
+            }
+        } catch (SQLException e) {
+            throw new SearchDAOException("Error occurred while retrieving the device properties.", e);
+        } finally {
+            DeviceManagementDAOUtil.cleanupResources(stmt, rs);
+        }
+    }
+
+    private Connection getConnection() throws SQLException {
+        return DeviceManagementDAOFactory.getConnection();
+    }
+}
@@ -28,384 +28,318 @@ import org.wso2.carbon.device.mgt.core.search.mgt.InvalidOperatorException;
 import org.wso2.carbon.device.mgt.core.search.mgt.QueryBuilder;
 import org.wso2.carbon.device.mgt.core.search.mgt.QueryHolder;
 import org.wso2.carbon.device.mgt.core.search.mgt.ValueType;
+import org.wso2.carbon.device.mgt.core.search.mgt.index.DevicePropertyIndex;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Locale;
 
 public class QueryBuilderImpl implements QueryBuilder {
 
 
     private static final Log log = LogFactory.getLog(QueryBuilderImpl.class);
-    private final String WILDCARD_OPERATOR = "%";
-    private final String OR_OPERATOR = "OR";
-    private String current_username;
-    private boolean isDeviceAdminUser;
+    private static final String WILDCARD_OPERATOR = "%";
+    private static final String[] LOCATION_COLUMNS = {"STREET1", "STREET2", "CITY", "STATE", "COUNTRY", "ZIP"};
+    // Enrolments matched by the property index are bound as parameters, which are limited by some databases
+    private static final int MAX_INDEXED_ENROLMENTS = 500;
+
+    private DevicePropertyIndex devicePropertyIndex;
+
+    public QueryBuilderImpl() {
+    }
+
+    /**
+     * @param devicePropertyIndex index used to evaluate the property conditions, or null to evaluate them in the
+     *                            database
+     */
+    public QueryBuilderImpl(DevicePropertyIndex devicePropertyIndex) {
+        this.devicePropertyIndex = devicePropertyIndex;
+    }
 
     @Override
-    public Map<String, List<QueryHolder>> buildQueries(List<Condition> conditions) throws InvalidOperatorException {
+    public QueryHolder buildSearchQuery(List<Condition> conditions, String owner, List<String> deviceTypes)
+            throws InvalidOperatorException {
         List<Condition> andColumns = new ArrayList<>();
         List<Condition> orColumns = new ArrayList<>();
         List<Condition> otherANDColumns = new ArrayList<>();
         List<Condition> otherORColumns = new ArrayList<>();
-        Condition locCondition = new Condition();
-
-        if (conditions.size() == 1) {
-            if (Constants.LOCATION.equalsIgnoreCase(conditions.get(0).getKey())) {
-                locCondition = conditions.get(0);
-            } else if (Utils.checkDeviceDetailsColumns(conditions.get(0).getKey()) ||
-                    Utils.checkDeviceLocationColumns(conditions.get(0).getKey())) {
-                andColumns.add(conditions.get(0));
-            } else {
-                otherANDColumns.add(conditions.get(0));
-            }
-        } else {
-            for (Condition con : conditions) {
-                if (Constants.LOCATION.equalsIgnoreCase(con.getKey())) {
-                    locCondition = con;
-                } else if (Utils.checkDeviceDetailsColumns(con.getKey()) ||
-                        Utils.checkDeviceLocationColumns(con.getKey())) {
-                    if (con.getState().equals(Condition.State.AND)) {
-                        andColumns.add(con);
-                    } else if (con.getState().equals(Condition.State.OR)) {
-                        orColumns.add(con);
-                    } else {
-                        throw new InvalidOperatorException(con.getState() + " is not a valid operator.");
-                    }
+        List<Condition> locConditions = new ArrayList<>();
+
+        for (Condition con : conditions) {
+            // A single condition has nothing to be combined with, hence it is always taken as an AND condition.
+            Condition.State state = conditions.size() == 1 ? Condition.State.AND : con.getState();
+            if (Constants.LOCATION.equalsIgnoreCase(con.getKey())) {
+                if (con.getValue() != null) {
+                    locConditions.add(con);
+                }
+            } else if (Condition.State.AND.equals(state)) {
+                if (isColumnCondition(con)) {
+                    andColumns.add(con);
                 } else {
-                    if (con.getState().equals(Condition.State.AND)) {
-                        otherANDColumns.add(con);
-                    } else if (con.getState().equals(Condition.State.OR)) {
-                        otherORColumns.add(con);
-                    } else {
-                        throw new InvalidOperatorException(con.getState() + " is not a valid operator.");
-                    }
+                    otherANDColumns.add(con);
+                }
+            } else if (Condition.State.OR.equals(state)) {
+                if (isColumnCondition(con)) {
+                    orColumns.add(con);
+                } else {
+                    otherORColumns.add(con);
                 }
+            } else {
+                throw new InvalidOperatorException(con.getState() + " is not a valid operator.");
             }
         }
 
-        Map<String, List<QueryHolder>> queries = new HashMap<>();
-        if ((!andColumns.isEmpty()) || (!orColumns.isEmpty())) {
-            // Size is taken as the sum of both columns and for tenant id.
-            ValueType valueTypeArray[] = new ValueType[andColumns.size() + orColumns.size() + 1];
-
-//            String query =Utils.convertStringToList(
-
-            // passing the integer value to the x so that array is correctly passed.
-            Integer intArr[] = new Integer[1];
-            intArr[0] = 1;
-            //int x = 1;
-            String query = this.getGenericQueryPart(valueTypeArray) +
-                    this.processAND(andColumns, valueTypeArray, intArr) +
-                    this.processOR(orColumns, valueTypeArray, intArr);
-            List<QueryHolder> queryHolders = new ArrayList<>();
-            QueryHolder queryHolder = new QueryHolder();
-            queryHolder.setQuery(query);
-            queryHolder.setTypes(valueTypeArray);
-            queryHolders.add(queryHolder);
-
-            queries.put(Constants.GENERAL, queryHolders);
-        }
-        if (!otherANDColumns.isEmpty()) {
-            queries.put(Constants.PROP_AND, this.processANDProperties(otherANDColumns));
-        }
-        if (!otherORColumns.isEmpty()) {
-            queries.put(Constants.PROP_OR, this.processORProperties(otherORColumns));
-        }
-        if (locCondition != null && locCondition.getValue() != null) {
-            queries.put(Constants.LOCATION, this.processLocation(locCondition));
+        List<ValueType> valueTypes = new ArrayList<>();
+        StringBuilder query = new StringBuilder(this.getGenericQueryPart(valueTypes));
+        if (owner != null) {
+            query.append(" AND DE.OWNER = ?");
+            valueTypes.add(this.getStringValue(owner));
         }
-
-        if (log.isDebugEnabled()) {
-            log.debug("General Query : " + queries.get(Constants.GENERAL));
-            log.debug("Property with AND Query : " + queries.get(Constants.PROP_AND));
-            log.debug("Property with OR Query : " + queries.get(Constants.PROP_OR));
-            log.debug("Location related Query : " + queries.get(Constants.LOCATION));
+        if (deviceTypes != null) {
+            query.append(" AND DT.NAME IN (");
+            for (int i = 0; i < deviceTypes.size(); i++) {
+                query.append(i == 0 ? "?" : ", ?");
+                valueTypes.add(this.getStringValue(deviceTypes.get(i)));
+            }
+            query.append(")");
         }
-        return queries;
-    }
 
-    @Override
-    public String processAND(List<Condition> conditions, ValueType[] valueType, Integer intArr[]) throws InvalidOperatorException {
-        String querySuffix = "";
-        try {
-            // TODO: find upto what address location of the array has filled.
-            int x = intArr[0];
-            for (Condition con : conditions) {
-                if (Utils.checkDeviceDetailsColumns(con.getKey())) {
-                    if (con.operator.equals(WILDCARD_OPERATOR)) {
-                        querySuffix = querySuffix + " AND DD." + Utils.getDeviceDetailsColumnNames().get(con.getKey())
-                                + " LIKE  ? ";
-                        ValueType type = new ValueType();
-                        type.setColumnType(ValueType.columnType.STRING);
-                        type.setStringValue("%" + con.getValue() + "%");
-                        valueType[x] = type;
-                        x++;
-                    } else {
-                        querySuffix = querySuffix + " AND DD." + Utils.getDeviceDetailsColumnNames().get(con.getKey()) + con
-                                .getOperator() + " ? ";
-                        ValueType type = this.getValueType(con);
-                        valueType[x] = type;
-                        x++;
+        // Devices either satisfy all the column and AND property conditions, or one of the OR property and
+        // location conditions.
+        List<String> alternatives = new ArrayList<>();
+        if (!andColumns.isEmpty() || !orColumns.isEmpty() || !otherANDColumns.isEmpty()) {
+            List<String> conjuncts = new ArrayList<>();
+            for (Condition con : andColumns) {
+                conjuncts.add(this.processColumn(con, valueTypes));
+            }
+            if (!orColumns.isEmpty()) {
+                List<String> disjuncts = new ArrayList<>();
+                for (Condition con : orColumns) {
+                    disjuncts.add(this.processColumn(con, valueTypes));
+                }
+                conjuncts.add(this.join(disjuncts, " OR "));
+            }
+            if (!otherANDColumns.isEmpty()) {
+                String indexedProperties = this.processIndexedProperties(otherANDColumns, true, valueTypes);
+                if (indexedProperties != null) {
+                    conjuncts.add(indexedProperties);
+                } else {
+                    for (Condition con : otherANDColumns) {
+                        conjuncts.add(this.processProperty(con, valueTypes));
                     }
-                } else if (Utils.checkDeviceLocationColumns(con.getKey().toLowerCase())) {
-                    querySuffix = querySuffix + " AND DL." + Utils.getDeviceLocationColumnNames().get(con.getKey().toLowerCase()) +
-                            con.getOperator() + " ? ";
-                    ValueType type = new ValueType();
-                    type.setColumnType(ValueType.columnType.STRING);
-                    type.setStringValue(con.getValue());
-                    valueType[x] = type;
-                    x++;
                 }
             }
-            intArr[0] = x;
-        } catch (Exception e) {
-            throw new InvalidOperatorException("Error occurred while building the sql", e);
+            alternatives.add(this.join(conjuncts, " AND "));
         }
-        return querySuffix;
-    }
-
-    @Override
-    public String processOR(List<Condition> conditions, ValueType[] valueType, Integer intArr[]) throws InvalidOperatorException {
-        String querySuffix = "";
-        // TODO: find upto what address location of the array has filled.
-        try {
-            int x = intArr[0];
-            for (Condition con : conditions) {
-                if (Utils.checkDeviceDetailsColumns(con.getKey())) {
-                    if (con.operator.equals(WILDCARD_OPERATOR)) {
-                        querySuffix = querySuffix + " OR DD." + Utils.getDeviceDetailsColumnNames().get(con.getKey())
-                                + " LIKE  ? ";
-                        ValueType type = new ValueType();
-                        type.setColumnType(ValueType.columnType.STRING);
-                        type.setStringValue("%" + con.getValue() + "%");
-                        valueType[x] = type;
-                        x++;
-                    } else {
-                        querySuffix = querySuffix + " OR DD." + Utils.getDeviceDetailsColumnNames().get(con.getKey()) + con
-                                .getOperator() + " ? ";
-
-                        ValueType type = this.getValueType(con);
-
-                        valueType[x] = type;
-                        x++;
-                    }
-                } else if (Utils.checkDeviceLocationColumns(con.getKey().toLowerCase())) {
-                    querySuffix =
-                            querySuffix + " OR DL." + Utils.getDeviceLocationColumnNames().get(con.getKey().toLowerCase())
-                                    + con.getOperator() + " ? ";
-                    ValueType type = new ValueType();
-                    type.setColumnType(ValueType.columnType.STRING);
-                    type.setStringValue(con.getValue());
-                    valueType[x] = type;
-                    x++;
+        if (!otherORColumns.isEmpty()) {
+            String indexedProperties = this.processIndexedProperties(otherORColumns, false, valueTypes);
+            if (indexedProperties != null) {
+                alternatives.add(indexedProperties);
+            } else {
+                for (Condition con : otherORColumns) {
+                    alternatives.add(this.processProperty(con, valueTypes));
                 }
             }
-            intArr[0] = x;
-        } catch (Exception e) {
-            throw new InvalidOperatorException("Error occurred while building the sql", e);
         }
-        if (!querySuffix.isEmpty()) {
-            //Replacing the first OR operator as it's unnecessary
-            querySuffix = querySuffix.replaceFirst(OR_OPERATOR, "");
-            querySuffix = " AND (" + querySuffix + ")";
+        for (Condition con : locConditions) {
+            alternatives.add(this.processLocation(con, valueTypes));
+        }
+        if (!alternatives.isEmpty()) {
+            query.append(" AND ").append(this.join(alternatives, " OR "));
         }
-        return querySuffix;
-    }
 
-    @Override
-    public List<QueryHolder> processLocation(Condition condition) throws InvalidOperatorException {
-        List<QueryHolder> queryHolders = new ArrayList<>();
-        queryHolders.add(this.buildLocationQuery(condition.getValue()));
-        return queryHolders;
+        QueryHolder queryHolder = new QueryHolder();
+        queryHolder.setQuery(query.toString());
+        queryHolder.setTypes(valueTypes.toArray(new ValueType[valueTypes.size()]));
+        if (log.isDebugEnabled()) {
+            log.debug("Search Query : " + queryHolder.getQuery());
+        }
+        return queryHolder;
     }
 
     @Override
-    public List<QueryHolder> processANDProperties(List<Condition> conditions) throws InvalidOperatorException {
-        return this.getQueryList(conditions);
+    public QueryHolder processUpdatedDevices(long epochTime) throws InvalidOperatorException {
+        List<ValueType> valueTypes = new ArrayList<>();
+        String query = this.getGenericQueryPart(valueTypes) + " AND (DD.UPDATE_TIMESTAMP > ? " +
+                "OR DL.UPDATE_TIMESTAMP > ?)";
+
+        ValueType value = new ValueType();
+        value.setColumnType(ValueType.columnType.LONG);
+        value.setLongValue(epochTime);
+        valueTypes.add(value);
+        valueTypes.add(value);
+
+        QueryHolder queryHolder = new QueryHolder();
+        queryHolder.setQuery(query);
+        queryHolder.setTypes(valueTypes.toArray(new ValueType[valueTypes.size()]));
+        return queryHolder;
     }
 
-    @Override
-    public List<QueryHolder> processORProperties(List<Condition> conditions) throws InvalidOperatorException {
-        return this.getQueryList(conditions);
+    private boolean isColumnCondition(Condition con) {
+        return Utils.checkDeviceDetailsColumns(con.getKey()) ||
+                Utils.checkDeviceLocationColumns(con.getKey().toLowerCase());
     }
 
-    @Override
-    public QueryHolder processUpdatedDevices(long epochTime) throws InvalidOperatorException {
-        try {
-            ValueType valueTypeArray[] = new ValueType[3];
-            String query = this.getGenericQueryPart(valueTypeArray) + " AND ( DD.UPDATE_TIMESTAMP > ?  " +
-                    "OR DL.UPDATE_TIMESTAMP >  ? )";
-
-            ValueType val1 = new ValueType();
-            val1.setColumnType(ValueType.columnType.LONG);
-            val1.setLongValue(epochTime);
-            valueTypeArray[1] = val1;
-
-            ValueType val2 = new ValueType();
-            val2.setColumnType(ValueType.columnType.LONG);
-            val2.setLongValue(epochTime);
-            valueTypeArray[2] = val2;
-
-            QueryHolder queryHolder = new QueryHolder();
-            queryHolder.setQuery(query);
-            queryHolder.setTypes(valueTypeArray);
-
-            return queryHolder;
-        } catch (Exception e) {
-            throw new InvalidOperatorException("Error occurred while building the for the updated devices.", e);
+    private String processColumn(Condition con, List<ValueType> valueTypes) throws InvalidOperatorException {
+        if (Utils.checkDeviceDetailsColumns(con.getKey())) {
+            String column = "DD." + Utils.getDeviceDetailsColumnNames().get(con.getKey());
+            if (WILDCARD_OPERATOR.equals(con.getOperator())) {
+                valueTypes.add(this.getStringValue("%" + con.getValue() + "%"));
+                return column + " LIKE ?";
+            }
+            valueTypes.add(this.getValueType(con));
+            return column + " " + con.getOperator() + " ?";
         }
+        valueTypes.add(this.getStringValue(con.getValue()));
+        return "DL." + Utils.getDeviceLocationColumnNames().get(con.getKey().toLowerCase()) + " " +
+                con.getOperator() + " ?";
     }
 
-    private List<QueryHolder> getQueryList(List<Condition> conditions) throws InvalidOperatorException {
-        try {
-            List<QueryHolder> queryHolders = new ArrayList<>();
-            for (Condition con : conditions) {
-
-                QueryHolder query = new QueryHolder();
-                ValueType valueTypeArray[] = new ValueType[3];
-
-                String querySuffix = this.getPropertyQueryPart(valueTypeArray) + " AND DI.KEY_FIELD = " + " ? " +
-                        " AND DI.VALUE_FIELD " + con.getOperator() + " ? ";
-                ValueType key = new ValueType();
-                key.setColumnType(ValueType.columnType.STRING);
-                key.setStringValue(con.getKey());
-                valueTypeArray[1] = key;
-
-                ValueType value = new ValueType();
-                value.setColumnType(ValueType.columnType.STRING);
-                value.setStringValue(con.getValue());
-                valueTypeArray[2] = value;
-
-                query.setQuery(querySuffix);
-                query.setTypes(valueTypeArray);
+    private String processProperty(Condition con, List<ValueType> valueTypes) {
+        String operator = con.getOperator();
+        String value = con.getValue();
+        if (WILDCARD_OPERATOR.equals(operator)) {
+            operator = "LIKE";
+            value = "%" + value + "%";
+        }
+        // Properties are compared case insensitively on all databases, the same way the property index compares them
+        valueTypes.add(this.getStringValue(con.getKey() == null ? null : con.getKey().toLowerCase(Locale.ENGLISH)));
+        valueTypes.add(this.getStringValue(value == null ? null : value.toLowerCase(Locale.ENGLISH)));
+        return "EXISTS (SELECT DI.DEVICE_ID FROM DM_DEVICE_INFO DI WHERE DI.DEVICE_ID = D.ID " +
+                "AND DI.ENROLMENT_ID = DD.ENROLMENT_ID AND LOWER(DI.KEY_FIELD) = ? AND LOWER(DI.VALUE_FIELD) " +
+                operator + " ?)";
+    }
 
-                queryHolders.add(query);
+    /**
+     * Evaluates property conditions using the property index and restricts the search to the matching enrolments.
+     *
+     * @param conditions property conditions
+     * @param all        true if all the conditions have to be satisfied, false if any of them has to be satisfied
+     * @param valueTypes values of the parameters of the query
+     * @return clause restricting the search to the matching enrolments, or null if the conditions have to be
+     * evaluated by the database since the index cannot evaluate them or they match too many enrolments
+     */
+    private String processIndexedProperties(List<Condition> conditions, boolean all, List<ValueType> valueTypes) {
+        if (devicePropertyIndex == null) {
+            return null;
+        }
+        int tenantId = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId();
+        BitSet enrolments = null;
+        for (Condition con : conditions) {
+            BitSet matching = devicePropertyIndex.getEnrolments(tenantId, con.getKey(), con.getOperator(),
+                    con.getValue());
+            if (matching == null) {
+                return null;
             }
-            return queryHolders;
-        } catch (Exception e) {
-            throw new InvalidOperatorException("Error occurred while building the sql", e);
+            if (enrolments == null) {
+                enrolments = matching;
+            } else if (all) {
+                enrolments.and(matching);
+            } else {
+                enrolments.or(matching);
+            }
+        }
+        if (enrolments.cardinality() > MAX_INDEXED_ENROLMENTS) {
+            return null;
+        }
+        if (enrolments.isEmpty()) {
+            return "1 = 0";
+        }
+        StringBuilder clause = new StringBuilder("DD.ENROLMENT_ID IN (");
+        int first = enrolments.nextSetBit(0);
+        for (int id = first; id >= 0; id = enrolments.nextSetBit(id + 1)) {
+            clause.append(id == first ? "?" : ", ?");
+            ValueType type = new ValueType();
+            type.setColumnType(ValueType.columnType.INTEGER);
+            type.setIntValue(id);
+            valueTypes.add(type);
         }
+        return clause.append(")").toString();
     }
 
-    private QueryHolder buildLocationQuery(String location) throws InvalidOperatorException {
-        try {
-            ValueType valueTypeArray[] = new ValueType[7];
-            String query = this.getGenericQueryPart(valueTypeArray);
-            query = query + " AND (DL.STREET1 LIKE ? ";
-            query = query + " OR DL.STREET2 LIKE ? ";
-            query = query + " OR DL.CITY LIKE ? ";
-            query = query + " OR DL.STATE LIKE ? ";
-            query = query + " OR DL.COUNTRY LIKE ? ";
-            query = query + " OR DL.ZIP LIKE ? )";
-
-            ValueType value = new ValueType();
-            value.setColumnType(ValueType.columnType.STRING);
-            value.setStringValue("%" + location + "%");
-
-            // Same location is passed to each place
-            valueTypeArray[1] = value;
-            valueTypeArray[2] = value;
-            valueTypeArray[3] = value;
-            valueTypeArray[4] = value;
-            valueTypeArray[5] = value;
-            valueTypeArray[6] = value;
-
-            QueryHolder queryHolder = new QueryHolder();
-            queryHolder.setQuery(query);
-            queryHolder.setTypes(valueTypeArray);
-
-            return queryHolder;
-        } catch (Exception e) {
-            throw new InvalidOperatorException("Error occurred while building the sql for location.", e);
+    private String processLocation(Condition con, List<ValueType> valueTypes) {
+        // Same location is matched against each of the address columns
+        ValueType value = this.getStringValue("%" + con.getValue() + "%");
+        List<String> disjuncts = new ArrayList<>();
+        for (String column : LOCATION_COLUMNS) {
+            disjuncts.add("DL." + column + " LIKE ?");
+            valueTypes.add(value);
         }
+        return this.join(disjuncts, " OR ");
     }
 
-    private String getGenericQueryPart(ValueType[] valueTypeArray) throws InvalidOperatorException {
-        try {
-            String query = "SELECT D.ID, D.DESCRIPTION, D.NAME,  \n" +
-                    "D.DEVICE_TYPE_ID, D.DEVICE_IDENTIFICATION,  DT.ID AS DEVICE_TYPE_ID, \n" +
-                    "DT.NAME AS DEVICE_TYPE_NAME, DD.DEVICE_ID, DD.DEVICE_MODEL, DD.VENDOR, \n" +
-                    "DD.OS_VERSION, DD.OS_BUILD_DATE, DD.BATTERY_LEVEL, DD.INTERNAL_TOTAL_MEMORY, DD.INTERNAL_AVAILABLE_MEMORY,\n" +
-                    "DD.EXTERNAL_TOTAL_MEMORY, DD.EXTERNAL_AVAILABLE_MEMORY, DD.CONNECTION_TYPE, \n" +
-                    "DD.SSID, DD.CPU_USAGE, DD.TOTAL_RAM_MEMORY, DD.AVAILABLE_RAM_MEMORY, \n" +
-                    "DD.PLUGGED_IN, DD.UPDATE_TIMESTAMP, DL.LATITUDE, DL.LONGITUDE, DL.STREET1, DL.STREET2, DL.CITY, DL.ZIP, \n" +
-                    "DL.STATE, DL.COUNTRY, DL.UPDATE_TIMESTAMP AS DL_UPDATED_TIMESTAMP, DE.OWNER, DE.OWNERSHIP, DE.STATUS " +
-                    "AS DE_STATUS FROM DM_DEVICE_DETAIL DD INNER JOIN DM_DEVICE D ON D.ID=DD.DEVICE_ID\n" +
-                    "LEFT JOIN DM_DEVICE_LOCATION DL ON DL.DEVICE_ID=D.ID \n" +
-                    "INNER JOIN DM_DEVICE_TYPE DT ON DT.ID=D.DEVICE_TYPE_ID\n" +
-                    "INNER JOIN DM_ENROLMENT DE ON D.ID=DE.DEVICE_ID\n" +
-                    "WHERE D.TENANT_ID = ? ";
-
-            ValueType type = new ValueType();
-            type.setIntValue(PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId());
-            type.setColumnType(ValueType.columnType.INTEGER);
-            valueTypeArray[0] = type;
-            return query;
-
-        } catch (Exception e) {
-            throw new InvalidOperatorException("Error occurred while building the sql", e);
+    private String join(List<String> clauses, String operator) {
+        StringBuilder builder = new StringBuilder("(");
+        for (int i = 0; i < clauses.size(); i++) {
+            if (i > 0) {
+                builder.append(operator);
+            }
+            builder.append(clauses.get(i));
         }
+        return builder.append(")").toString();
     }
 
-    private String getPropertyQueryPart(ValueType[] valueTypeArray) throws InvalidOperatorException {
-        try {
-            String query = "SELECT D.ID, D.DESCRIPTION, D.NAME,  \n" +
-                    "D.DEVICE_TYPE_ID, D.DEVICE_IDENTIFICATION,  DT.ID AS DEVICE_TYPE_ID, \n" +
-                    "DT.NAME AS DEVICE_TYPE_NAME, DD.DEVICE_ID, DD.DEVICE_MODEL, DD.VENDOR, \n" +
-                    "DD.OS_VERSION, DD.OS_BUILD_DATE, DD.BATTERY_LEVEL, DD.INTERNAL_TOTAL_MEMORY, DD.INTERNAL_AVAILABLE_MEMORY,\n" +
-                    "DD.EXTERNAL_TOTAL_MEMORY, DD.EXTERNAL_AVAILABLE_MEMORY, DD.CONNECTION_TYPE, \n" +
-                    "DD.SSID, DD.CPU_USAGE, DD.TOTAL_RAM_MEMORY, DD.AVAILABLE_RAM_MEMORY, \n" +
-                    "DD.PLUGGED_IN, DD.UPDATE_TIMESTAMP, DL.LATITUDE, DL.LONGITUDE, DL.STREET1, DL.STREET2, DL.CITY, DL.ZIP, \n" +
-                    "DL.STATE, DL.COUNTRY, DL.UPDATE_TIMESTAMP AS DL_UPDATED_TIMESTAMP, DI.KEY_FIELD, DI.VALUE_FIELD, \n" +
-                    "DE.OWNER, DE.OWNERSHIP, DE.STATUS AS DE_STATUS " +
-                    "FROM DM_DEVICE_DETAIL DD INNER JOIN DM_DEVICE D ON  D.ID=DD.DEVICE_ID\n" +
-                    "LEFT JOIN DM_DEVICE_LOCATION DL ON DL.DEVICE_ID=D.ID  \n" +
-                    "INNER JOIN DM_DEVICE_TYPE DT ON DT.ID=D.DEVICE_TYPE_ID\n" +
-                    "INNER JOIN DM_ENROLMENT DE ON D.ID=DE.DEVICE_ID\n" +
-                    "LEFT JOIN DM_DEVICE_INFO DI ON DI.DEVICE_ID=D.ID\n" +
-                    "WHERE D.TENANT_ID = ? ";
+    private String getGenericQueryPart(List<ValueType> valueTypes) {
+        String query = "SELECT D.ID, D.DESCRIPTION, D.NAME, D.DEVICE_IDENTIFICATION, \n" +
+                "DT.NAME AS DEVICE_TYPE_NAME, DD.DEVICE_MODEL, DD.VENDOR, \n" +
+                "DD.OS_VERSION, DD.OS_BUILD_DATE, DD.BATTERY_LEVEL, DD.INTERNAL_TOTAL_MEMORY, DD.INTERNAL_AVAILABLE_MEMORY,\n" +
+                "DD.EXTERNAL_TOTAL_MEMORY, DD.EXTERNAL_AVAILABLE_MEMORY, DD.CONNECTION_TYPE, \n" +
+                "DD.SSID, DD.CPU_USAGE, DD.TOTAL_RAM_MEMORY, DD.AVAILABLE_RAM_MEMORY, \n" +
+                "DD.PLUGGED_IN, DD.UPDATE_TIMESTAMP, DL.LATITUDE, DL.LONGITUDE, DL.STREET1, DL.STREET2, DL.CITY, DL.ZIP, \n" +
+                "DL.STATE, DL.COUNTRY, DL.UPDATE_TIMESTAMP AS DL_UPDATED_TIMESTAMP, DE.ID AS ENROLMENT_ID, DE.OWNER, \n" +
+                "DE.OWNERSHIP, DE.STATUS AS DE_STATUS FROM DM_DEVICE_DETAIL DD INNER JOIN DM_DEVICE D ON D.ID=DD.DEVICE_ID\n" +
+                "INNER JOIN DM_ENROLMENT DE ON DE.ID=DD.ENROLMENT_ID\n" +
+                "LEFT JOIN DM_DEVICE_LOCATION DL ON DL.DEVICE_ID=D.ID AND DL.ENROLMENT_ID=DD.ENROLMENT_ID\n" +
+                "INNER JOIN DM_DEVICE_TYPE DT ON DT.ID=D.DEVICE_TYPE_ID\n" +
+                "WHERE D.TENANT_ID = ? ";
 
-            ValueType type = new ValueType();
-            type.setIntValue(PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId());
-            type.setColumnType(ValueType.columnType.INTEGER);
-            valueTypeArray[0] = type;
-            return query;
+        ValueType type = new ValueType();
+        type.setIntValue(PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId());
+        type.setColumnType(ValueType.columnType.INTEGER);
+        valueTypes.add(type);
+        return query;
+    }
 
-        } catch (Exception e) {
-            throw new InvalidOperatorException("Error occurred while building the sql", e);
-        }
+    private ValueType getStringValue(String value) {
+        ValueType type = new ValueType();
+        type.setColumnType(ValueType.columnType.STRING);
+        type.setStringValue(value);
+        return type;
     }
 
     /**
      * Returns a Value type based on the Condition data.
      *
      * @param con : The condition that passed.
-     * @re
+     * @return value type carrying the value of the condition in the type of the matching column
+     * @throws InvalidOperatorException if the value of the condition does not match the type of the column
      */
-    private ValueType getValueType(Condition con) {
+    private ValueType getValueType(Condition con) throws InvalidOperatorException {
         ValueType type = new ValueType();
         String colValue = Utils.checkColumnType(con.getKey());
 
-        switch (colValue) {
-            case "String":
-                type.setColumnType(ValueType.columnType.STRING);
-                type.setStringValue(con.getValue());
-                break;
-            case "Double":
-                type.setColumnType(ValueType.columnType.DOUBLE);
-                type.setDoubleValue(Double.parseDouble(con.getValue()));
-                break;
-            case "Integer":
-                type.setColumnType(ValueType.columnType.INTEGER);
-                type.setIntValue(Integer.parseInt(con.getValue()));
-                break;
-            case "Long":
-                type.setColumnType(ValueType.columnType.STRING);
-                type.setLongValue(Long.parseLong(con.getValue()));
+        try {
+            switch (colValue) {
+                case "String":
+                    type.setColumnType(ValueType.columnType.STRING);
+                    type.setStringValue(con.getValue());
+                    break;
+                case "Double":
+                    type.setColumnType(ValueType.columnType.DOUBLE);
+                    type.setDoubleValue(Double.parseDouble(con.getValue()));
+                    break;
+                case "Integer":
+                    type.setColumnType(ValueType.columnType.INTEGER);
+                    type.setIntValue(Integer.parseInt(con.getValue()));
+                    break;
+                case "Long":
+                    type.setColumnType(ValueType.columnType.LONG);
+                    type.setLongValue(Long.parseLong(con.getValue()));
+            }
+        } catch (NumberFormatException e) {
+            throw new InvalidOperatorException("Error occurred while building the sql", e);
         }
-
         return type;
     }
 }
\ No newline at end of file
@@ -20,6 +20,7 @@
 package org.wso2.carbon.device.mgt.core.search.mgt.impl;
 
 import org.wso2.carbon.device.mgt.common.Device;
+import org.wso2.carbon.device.mgt.common.PaginationResult;
 import org.wso2.carbon.device.mgt.common.search.SearchContext;
 import org.wso2.carbon.device.mgt.core.search.mgt.Processor;
 import org.wso2.carbon.device.mgt.core.search.mgt.SearchManagerService;
@@ -40,6 +41,16 @@ public class SearchManagerServiceImpl implements SearchManagerService {
         return processor.execute(searchContext);
     }
 
+    @Override
+    public PaginationResult search(SearchContext searchContext, int offset, int limit) throws SearchMgtException {
+        PaginationResult paginationResult = new PaginationResult();
+        paginationResult.setData(processor.execute(searchContext, offset, limit));
+        int count = processor.count(searchContext);
+        paginationResult.setRecordsTotal(count);
+        paginationResult.setRecordsFiltered(count);
+        return paginationResult;
+    }
+
     @Override
     public List<Device> getUpdated(long epochTime) throws SearchMgtException {
         return processor.getUpdatedDevices(epochTime);
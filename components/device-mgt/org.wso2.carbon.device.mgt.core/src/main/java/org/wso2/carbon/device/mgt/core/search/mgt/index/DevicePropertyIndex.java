@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.search.mgt.index;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.device.mgt.core.config.search.DevicePropertyIndexConfiguration;
+import org.wso2.carbon.device.mgt.core.dao.DeviceManagementDAOFactory;
+import org.wso2.carbon.device.mgt.core.search.mgt.EnrolmentProperties;
+import org.wso2.carbon.device.mgt.core.search.mgt.dao.SearchDAO;
+import org.wso2.carbon.device.mgt.core.search.mgt.dao.SearchDAOException;
+
+import java.sql.SQLException;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In memory index of the properties reported by the devices, which lets device searches evaluate property conditions
+ * without scanning the device properties table. The index is built from the database in the background at startup
+ * and is kept up to date with the properties written by this node. The properties written by the other nodes of the
+ * cluster are reloaded periodically, based on the update time of the device details. Until the index is built, the
+ * property conditions are evaluated by the database.
+ */
+public class DevicePropertyIndex {
+
+    private static final Log log = LogFactory.getLog(DevicePropertyIndex.class);
+
+    private final DevicePropertyIndexConfiguration config;
+    private final SearchDAO searchDAO;
+    private final ConcurrentMap<Integer, TenantPropertyIndex> tenantIndices = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private final Runnable refreshTask = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                if (ready) {
+                    refresh();
+                } else {
+                    build();
+                }
+            } catch (SearchDAOException | SQLException e) {
+                log.error("Error occurred while loading the device properties to the device property index.", e);
+            } catch (Throwable e) {
+                // Catching everything since an exception would stop the periodic execution of the refresh
+                log.error("Unexpected error occurred while loading the device properties to the device property " +
+                        "index.", e);
+            }
+        }
+    };
+    private volatile boolean ready;
+    private long lastRefreshTime;
+
+    private final AtomicLong refreshCount = new AtomicLong();
+    private final AtomicLong buildDurationMills = new AtomicLong();
+    private final AtomicLong lastRefreshDurationMills = new AtomicLong();
+
+    public DevicePropertyIndex(DevicePropertyIndexConfiguration config) {
+        this.config = config;
+        this.searchDAO = DeviceManagementDAOFactory.getSearchDAO();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "device-property-index-loader");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.scheduler.scheduleWithFixedDelay(refreshTask, 0, config.getRefreshInterval(), TimeUnit.SECONDS);
+    }
+
+    /**
+     * Replaces the indexed properties of an enrolment with the properties which have been written for it.
+     *
+     * @param tenantId    tenant of the enrolment
+     * @param enrolmentId id of the enrolment
+     * @param properties  properties of the enrolment
+     */
+    public void update(int tenantId, int enrolmentId, Map<String, String> properties) {
+        if (properties == null) {
+            properties = Collections.emptyMap();
+        }
+        this.getTenantIndex(tenantId).update(enrolmentId, properties);
+    }
+
+    /**
+     * Returns the enrolments of a tenant having a property which satisfies a search condition. Conditions are
+     * evaluated on the values as case insensitive strings, the same way the search queries compare the values of the
+     * properties.
+     *
+     * @param tenantId tenant of the enrolments
+     * @param key      name of the property
+     * @param operator operator of the condition
+     * @param value    value the property is compared with
+     * @return ids of the matching enrolments, or null if the index has not been built yet, the property is not
+     * indexed since almost every enrolment has a different value, or the condition cannot be evaluated by the index
+     */
+    public BitSet getEnrolments(int tenantId, String key, String operator, String value) {
+        if (!ready) {
+            return null;
+        }
+        TenantPropertyIndex tenantIndex = tenantIndices.get(tenantId);
+        if (tenantIndex == null) {
+            return new BitSet();
+        }
+        return tenantIndex.getEnrolments(key, operator, value);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void shutdown() {
+        ready = false;
+        scheduler.shutdownNow();
+        tenantIndices.clear();
+    }
+
+    public int getIndexedEnrolmentCount() {
+        int count = 0;
+        for (TenantPropertyIndex tenantIndex : tenantIndices.values()) {
+            count += tenantIndex.getEnrolmentCount();
+        }
+        return count;
+    }
+
+    public long getRefreshCount() {
+        return refreshCount.get();
+    }
+
+    public long getBuildDurationMills() {
+        return buildDurationMills.get();
+    }
+
+    public long getLastRefreshDurationMills() {
+        return lastRefreshDurationMills.get();
+    }
+
+    /**
+     * Loads the properties of all the enrolments, reading a range of enrolment ids at a time. Enrolments which are
+     * updated while the index is built keep their updated properties.
+     */
+    private void build() throws SearchDAOException, SQLException {
+        long startTime = System.currentTimeMillis();
+        int maxEnrolmentId;
+        try {
+            DeviceManagementDAOFactory.openConnection();
+            maxEnrolmentId = searchDAO.getMaxEnrolmentId();
+        } finally {
+            DeviceManagementDAOFactory.closeConnection();
+        }
+        int loadedCount = 0;
+        for (int fromEnrolmentId = 0; fromEnrolmentId < maxEnrolmentId;
+             fromEnrolmentId += config.getBuildBatchSize()) {
+            List<EnrolmentProperties> enrolments;
+            try {
+                DeviceManagementDAOFactory.openConnection();
+                enrolments = searchDAO.getDeviceProperties(fromEnrolmentId,
+                        fromEnrolmentId + config.getBuildBatchSize());
+            } finally {
+                DeviceManagementDAOFactory.closeConnection();
+            }
+            for (EnrolmentProperties enrolment : enrolments) {
+                if (this.getTenantIndex(enrolment.getTenantId()).load(enrolment.getEnrolmentId(),
+                        enrolment.getProperties())) {
+                    loadedCount++;
+                }
+            }
+        }
+        lastRefreshTime = startTime;
+        ready = true;
+        long duration = System.currentTimeMillis() - startTime;
+        buildDurationMills.set(duration);
+        log.info("Device property index was built with the properties of " + loadedCount + " enrolments in " +
+                duration + " ms.");
+    }
+
+    /**
+     * Reloads the properties of the enrolments of which the device details were updated since the previous reload.
+     * The reload looks back one more refresh interval, to cover the details written with the time they were reported
+     * at and the clock differences of the nodes.
+     */
+    private void refresh() throws SearchDAOException, SQLException {
+        long startTime = System.currentTimeMillis();
+        List<EnrolmentProperties> enrolments;
+        try {
+            DeviceManagementDAOFactory.openConnection();
+            enrolments = searchDAO.getUpdatedDeviceProperties(
+                    lastRefreshTime - TimeUnit.SECONDS.toMillis(config.getRefreshInterval()));
+        } finally {
+            DeviceManagementDAOFactory.closeConnection();
+        }
+        for (EnrolmentProperties enrolment : enrolments) {
+            this.getTenantIndex(enrolment.getTenantId()).update(enrolment.getEnrolmentId(),
+                    enrolment.getProperties());
+        }
+        lastRefreshTime = startTime;
+        refreshCount.incrementAndGet();
+        lastRefreshDurationMills.set(System.currentTimeMillis() - startTime);
+        if (log.isDebugEnabled()) {
+            log.debug("Reloaded the properties of " + enrolments.size() + " enrolments to the device property index.");
+        }
+    }
+
+    private TenantPropertyIndex getTenantIndex(int tenantId) {
+        TenantPropertyIndex tenantIndex = tenantIndices.get(tenantId);
+        if (tenantIndex == null) {
+            TenantPropertyIndex newIndex = new TenantPropertyIndex();
+            tenantIndex = tenantIndices.putIfAbsent(tenantId, newIndex);
+            if (tenantIndex == null) {
+                tenantIndex = newIndex;
+            }
+        }
+        return tenantIndex;
+    }
+}
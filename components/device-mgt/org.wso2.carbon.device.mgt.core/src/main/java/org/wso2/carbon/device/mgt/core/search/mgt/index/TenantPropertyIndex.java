@@ -0,0 +1,327 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.search.mgt.index;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index of the device properties of a single tenant. For each property name the index keeps the enrolments having
+ * each of the values of the property as a sorted array of the enrolment ids, with the values sorted to answer range
+ * conditions. The current properties of each enrolment are kept as well, so that the enrolment can be removed from the
+ * postings of its previous values when its properties are replaced.
+ * <p>
+ * Property names and values are compared case insensitively, the same way the search queries compare them when
+ * the conditions are evaluated by the database. Properties of which almost every enrolment has a different value,
+ * such as serial numbers, are not indexed since the index would hold an entry per enrolment without narrowing
+ * searches any better than the database does, and conditions on them are left to the database.
+ */
+class TenantPropertyIndex {
+
+    private static final String WILDCARD_OPERATOR = "%";
+    private static final int MIN_ENROLMENTS_TO_CHECK_CARDINALITY = 1000;
+    private static final double MAX_DISTINCT_VALUE_RATIO = 0.5;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, PropertyPostings> postings = new HashMap<>();
+    private final Set<String> unindexedKeys = new HashSet<>();
+    private final Map<Integer, Map<String, String>> enrolmentProperties = new HashMap<>();
+
+    /**
+     * Replaces the properties of an enrolment.
+     */
+    void update(int enrolmentId, Map<String, String> properties) {
+        this.put(enrolmentId, properties, true);
+    }
+
+    /**
+     * Adds the properties of an enrolment, unless the enrolment has already been indexed. Properties read while the
+     * index is built must not replace the newer properties indexed by concurrent updates.
+     *
+     * @return true if the properties were added
+     */
+    boolean load(int enrolmentId, Map<String, String> properties) {
+        return this.put(enrolmentId, properties, false);
+    }
+
+    /**
+     * Returns the enrolments having a property which satisfies a condition.
+     *
+     * @param key      name of the property
+     * @param operator operator of the condition
+     * @param value    value the property is compared with
+     * @return ids of the matching enrolments, or null if the condition cannot be evaluated by the index
+     */
+    BitSet getEnrolments(String key, String operator, String value) {
+        if (key == null || value == null) {
+            return null;
+        }
+        key = normalize(key);
+        value = normalize(value);
+        BitSet enrolments = new BitSet();
+        lock.readLock().lock();
+        try {
+            if (unindexedKeys.contains(key)) {
+                return null;
+            }
+            PropertyPostings propertyPostings = postings.get(key);
+            if (propertyPostings == null) {
+                return enrolments;
+            }
+            NavigableMap<String, EnrolmentIds> values = propertyPostings.values;
+            switch (operator) {
+                case "=":
+                    EnrolmentIds matching = values.get(value);
+                    if (matching != null) {
+                        matching.addTo(enrolments);
+                    }
+                    break;
+                case ">":
+                    this.union(enrolments, values.tailMap(value, false).values());
+                    break;
+                case ">=":
+                case "!<":
+                    this.union(enrolments, values.tailMap(value, true).values());
+                    break;
+                case "<":
+                    this.union(enrolments, values.headMap(value, false).values());
+                    break;
+                case "<=":
+                case "!>":
+                    this.union(enrolments, values.headMap(value, true).values());
+                    break;
+                case "<>":
+                case "!=":
+                    this.union(enrolments, values.headMap(value, false).values());
+                    this.union(enrolments, values.tailMap(value, false).values());
+                    break;
+                case WILDCARD_OPERATOR:
+                    // Values containing wildcards of their own are left to the database
+                    if (value.contains("%") || value.contains("_")) {
+                        return null;
+                    }
+                    for (Map.Entry<String, EnrolmentIds> entry : values.entrySet()) {
+                        if (entry.getKey().contains(value)) {
+                            entry.getValue().addTo(enrolments);
+                        }
+                    }
+                    break;
+                default:
+                    return null;
+            }
+            return enrolments;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int getEnrolmentCount() {
+        lock.readLock().lock();
+        try {
+            return enrolmentProperties.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of enrolment ids held by the postings of all the indexed properties
+     */
+    int getPostingCount() {
+        lock.readLock().lock();
+        try {
+            int count = 0;
+            for (PropertyPostings propertyPostings : postings.values()) {
+                count += propertyPostings.enrolmentCount;
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    boolean isIndexed(String key) {
+        lock.readLock().lock();
+        try {
+            return !unindexedKeys.contains(normalize(key));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean put(int enrolmentId, Map<String, String> properties, boolean replace) {
+        Map<String, String> current = new HashMap<>();
+        for (Map.Entry<String, String> property : properties.entrySet()) {
+            if (property.getKey() != null && property.getValue() != null) {
+                current.put(normalize(property.getKey()), normalize(property.getValue()));
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            Map<String, String> previous = enrolmentProperties.get(enrolmentId);
+            if (previous != null) {
+                if (!replace) {
+                    return false;
+                }
+                for (Map.Entry<String, String> property : previous.entrySet()) {
+                    this.removePosting(property.getKey(), property.getValue(), enrolmentId);
+                }
+            }
+            current.keySet().removeAll(unindexedKeys);
+            for (Map.Entry<String, String> property : current.entrySet()) {
+                this.addPosting(property.getKey(), property.getValue(), enrolmentId);
+            }
+            enrolmentProperties.put(enrolmentId, current);
+            for (String key : new HashSet<>(current.keySet())) {
+                PropertyPostings propertyPostings = postings.get(key);
+                if (propertyPostings.enrolmentCount >= MIN_ENROLMENTS_TO_CHECK_CARDINALITY &&
+                        propertyPostings.values.size() > propertyPostings.enrolmentCount * MAX_DISTINCT_VALUE_RATIO) {
+                    this.removeKey(key);
+                }
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addPosting(String key, String value, int enrolmentId) {
+        PropertyPostings propertyPostings = postings.get(key);
+        if (propertyPostings == null) {
+            propertyPostings = new PropertyPostings();
+            postings.put(key, propertyPostings);
+        }
+        EnrolmentIds enrolments = propertyPostings.values.get(value);
+        if (enrolments == null) {
+            enrolments = new EnrolmentIds();
+            propertyPostings.values.put(value, enrolments);
+        }
+        if (enrolments.add(enrolmentId)) {
+            propertyPostings.enrolmentCount++;
+        }
+    }
+
+    private void removePosting(String key, String value, int enrolmentId) {
+        PropertyPostings propertyPostings = postings.get(key);
+        if (propertyPostings == null) {
+            return;
+        }
+        EnrolmentIds enrolments = propertyPostings.values.get(value);
+        if (enrolments == null || !enrolments.remove(enrolmentId)) {
+            return;
+        }
+        propertyPostings.enrolmentCount--;
+        if (enrolments.isEmpty()) {
+            propertyPostings.values.remove(value);
+            if (propertyPostings.values.isEmpty()) {
+                postings.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Stops indexing a property of which almost every enrolment has a different value.
+     */
+    private void removeKey(String key) {
+        postings.remove(key);
+        unindexedKeys.add(key);
+        for (Map<String, String> properties : enrolmentProperties.values()) {
+            properties.remove(key);
+        }
+    }
+
+    private void union(BitSet enrolments, Collection<EnrolmentIds> matching) {
+        for (EnrolmentIds enrolmentIds : matching) {
+            enrolmentIds.addTo(enrolments);
+        }
+    }
+
+    private static String normalize(String text) {
+        return text.toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * Values of a property and the number of enrolments having the property.
+     */
+    private static class PropertyPostings {
+
+        private final NavigableMap<String, EnrolmentIds> values = new TreeMap<>();
+        private int enrolmentCount;
+    }
+
+    /**
+     * Sorted set of enrolment ids backed by an array, which takes four bytes per enrolment regardless of the range
+     * of the ids. Enrolment ids are mostly added in increasing order, which appends them to the array.
+     */
+    private static class EnrolmentIds {
+
+        private static final int INITIAL_CAPACITY = 2;
+
+        private int[] ids = new int[INITIAL_CAPACITY];
+        private int size;
+
+        private boolean add(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                return false;
+            }
+            index = -index - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            }
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            ids[index] = id;
+            size++;
+            return true;
+        }
+
+        private boolean remove(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+            if (size < ids.length / 4 && ids.length > INITIAL_CAPACITY) {
+                ids = Arrays.copyOf(ids, Math.max(INITIAL_CAPACITY, size * 2));
+            }
+            return true;
+        }
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        private void addTo(BitSet enrolments) {
+            for (int i = 0; i < size; i++) {
+                enrolments.set(ids[i]);
+            }
+        }
+    }
+}
@@ -114,6 +114,17 @@ public interface DeviceManagementProviderService {
      */
     List<Device> getDevices(Date since, boolean requireDeviceInfo) throws DeviceManagementException;
 
+    /**
+     * Method to retrieve the devices which carry the given identifiers. Devices are loaded with one set query per
+     * device type instead of one query per device. Device info is not included.
+     *
+     * @param deviceIdentifiers - Identifiers of the devices to be retrieved
+     * @return List of devices which were found. Identifiers which do not match an enrolled device are ignored.
+     * @throws DeviceManagementException If some unusual behaviour is observed while fetching the
+     *                                   devices.
+     */
+    List<Device> getDevices(List<DeviceIdentifier> deviceIdentifiers) throws DeviceManagementException;
+
     /**
      * Method to retrieve all the devices with pagination support.
      *
@@ -542,6 +553,20 @@ public interface DeviceManagementProviderService {
     Activity addOperation(String type, Operation operation,
                           List<DeviceIdentifier> devices) throws OperationManagementException, InvalidDeviceException;
 
+    /**
+     * Adds an operation of the device monitoring task to the given devices of a device type which do not already have
+     * a pending operation of the same code.
+     *
+     * @param type         device type of the devices
+     * @param operation    monitoring operation to be added
+     * @param devices      devices to be monitored
+     * @param fanOutWindow time in milliseconds over which the push notifications of the operation are spread
+     * @return number of devices the operation has been added to
+     * @throws OperationManagementException if the operation cannot be added
+     */
+    int addMonitoringOperation(String type, Operation operation, List<DeviceIdentifier> devices, long fanOutWindow)
+            throws OperationManagementException;
+
     List<? extends Operation> getOperations(DeviceIdentifier deviceId) throws OperationManagementException;
 
     PaginationResult getOperations(DeviceIdentifier deviceId,
@@ -74,6 +74,7 @@ import org.wso2.carbon.device.mgt.core.device.details.mgt.impl.DeviceInformation
 import org.wso2.carbon.device.mgt.core.dto.DeviceType;
 import org.wso2.carbon.device.mgt.core.dto.DeviceTypeServiceIdentifier;
 import org.wso2.carbon.device.mgt.core.geo.GeoCluster;
+import org.wso2.carbon.device.mgt.core.geo.cluster.GeoClusterEngine;
 import org.wso2.carbon.device.mgt.core.geo.geoHash.GeoCoordinate;
 import org.wso2.carbon.device.mgt.core.internal.DeviceManagementDataHolder;
 import org.wso2.carbon.device.mgt.core.internal.DeviceManagementServiceComponent;
@@ -534,6 +535,46 @@ public class DeviceManagementProviderServiceImpl implements DeviceManagementProv
         return allDevices;
     }
 
+    @Override
+    public List<Device> getDevices(List<DeviceIdentifier> deviceIdentifiers) throws DeviceManagementException {
+        if (deviceIdentifiers == null) {
+            String msg = "Received null device identifier list for method getDevices";
+            log.error(msg);
+            throw new DeviceManagementException(msg);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Getting " + deviceIdentifiers.size() + " devices by identifiers");
+        }
+        Map<String, List<String>> deviceIdsByType = new HashMap<>();
+        for (DeviceIdentifier deviceIdentifier : deviceIdentifiers) {
+            List<String> deviceIds = deviceIdsByType.get(deviceIdentifier.getType());
+            if (deviceIds == null) {
+                deviceIds = new ArrayList<>();
+                deviceIdsByType.put(deviceIdentifier.getType(), deviceIds);
+            }
+            deviceIds.add(deviceIdentifier.getId());
+        }
+        List<Device> devices = new ArrayList<>();
+        try {
+            DeviceManagementDAOFactory.openConnection();
+            int tenantId = this.getTenantId();
+            for (Map.Entry<String, List<String>> entry : deviceIdsByType.entrySet()) {
+                devices.addAll(deviceDAO.getDevices(entry.getKey(), entry.getValue(), tenantId));
+            }
+        } catch (DeviceManagementDAOException e) {
+            String msg = "Error occurred while retrieving devices by identifiers";
+            log.error(msg, e);
+            throw new DeviceManagementException(msg, e);
+        } catch (SQLException e) {
+            String msg = "Error occurred while opening a connection to the data source";
+            log.error(msg, e);
+            throw new DeviceManagementException(msg, e);
+        } finally {
+            DeviceManagementDAOFactory.closeConnection();
+        }
+        return devices;
+    }
+
     @Override
     public List<Device> getAllDevices() throws DeviceManagementException {
         return this.getAllDevices(true);
@@ -1423,6 +1464,13 @@ public class DeviceManagementProviderServiceImpl implements DeviceManagementProv
         return pluginRepository.getOperationManager(type, this.getTenantId()).addOperation(operation, devices);
     }
 
+    @Override
+    public int addMonitoringOperation(String type, Operation operation, List<DeviceIdentifier> devices,
+                                      long fanOutWindow) throws OperationManagementException {
+        return pluginRepository.getOperationManager(type, this.getTenantId()).addMonitoringOperation(operation,
+                devices, fanOutWindow);
+    }
+
     @Override
     public List<? extends Operation> getOperations(DeviceIdentifier deviceId) throws OperationManagementException {
         return pluginRepository.getOperationManager(deviceId.getType(), this.getTenantId()).getOperations(deviceId);
@@ -2651,6 +2699,14 @@ public class DeviceManagementProviderServiceImpl implements DeviceManagementProv
                 log.debug("get information about geo clusters for device type: " + deviceType);
             }
         }
+        GeoClusterEngine geoClusterEngine = DeviceManagementDataHolder.getInstance().getGeoClusterEngine();
+        if (geoClusterEngine != null) {
+            List<GeoCluster> geoClusters = geoClusterEngine.getGeoClusters(this.getTenantId(), deviceType, southWest,
+                    northEast, geohashLength);
+            if (geoClusters != null) {
+                return geoClusters;
+            }
+        }
         try {
             DeviceManagementDAOFactory.openConnection();
             return deviceDAO.findGeoClusters(deviceType, southWest, northEast, geohashLength, this.getTenantId());
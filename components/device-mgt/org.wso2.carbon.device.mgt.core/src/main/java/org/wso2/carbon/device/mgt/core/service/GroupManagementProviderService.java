@@ -30,6 +30,7 @@ import org.wso2.carbon.device.mgt.common.group.mgt.GroupNotExistException;
 import org.wso2.carbon.device.mgt.common.group.mgt.RoleDoesNotExistException;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Interface for Group Management Services
@@ -213,6 +214,24 @@ public interface GroupManagementProviderService {
      */
     List<DeviceGroup> getGroups(DeviceIdentifier deviceIdentifier) throws GroupManagementException;
 
+    /**
+     * Get ids of the groups which contain each of the given devices using set queries.
+     *
+     * @param deviceIds ids of the devices.
+     * @return map of device id to the ids of the groups which contain the device.
+     * @throws GroupManagementException
+     */
+    Map<Integer, List<Integer>> getGroupIdsOfDevices(List<Integer> deviceIds) throws GroupManagementException;
+
+    /**
+     * Get the groups which contain each of the given devices using set queries.
+     *
+     * @param deviceIds ids of the devices.
+     * @return map of device id to the groups which contain the device.
+     * @throws GroupManagementException
+     */
+    Map<Integer, List<DeviceGroup>> getGroupsOfDevices(List<Integer> deviceIds) throws GroupManagementException;
+
     /**
      * Checks for the default group existence and create group based on device ownership.
      * @param groupName of the group
@@ -797,6 +797,53 @@ public class GroupManagementProviderServiceImpl implements GroupManagementProvid
         }
     }
 
+    @Override
+    public Map<Integer, List<Integer>> getGroupIdsOfDevices(List<Integer> deviceIds) throws GroupManagementException {
+        if (deviceIds == null) {
+            String msg = "Received null device id list for getGroupIdsOfDevices";
+            log.error(msg);
+            throw new GroupManagementException(msg);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Get group ids of " + deviceIds.size() + " devices");
+        }
+        try {
+            GroupManagementDAOFactory.openConnection();
+            return groupDAO.getGroupIdsOfDevices(deviceIds,
+                    PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId());
+        } catch (GroupManagementDAOException | SQLException e) {
+            String msg = "Error occurred while retrieving group ids of devices.";
+            log.error(msg, e);
+            throw new GroupManagementException(msg, e);
+        } finally {
+            GroupManagementDAOFactory.closeConnection();
+        }
+    }
+
+    @Override
+    public Map<Integer, List<DeviceGroup>> getGroupsOfDevices(List<Integer> deviceIds)
+            throws GroupManagementException {
+        if (deviceIds == null) {
+            String msg = "Received null device id list for getGroupsOfDevices";
+            log.error(msg);
+            throw new GroupManagementException(msg);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Get groups of " + deviceIds.size() + " devices");
+        }
+        try {
+            GroupManagementDAOFactory.openConnection();
+            return groupDAO.getGroupsOfDevices(deviceIds,
+                    PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId());
+        } catch (GroupManagementDAOException | SQLException e) {
+            String msg = "Error occurred while retrieving groups of devices.";
+            log.error(msg, e);
+            throw new GroupManagementException(msg, e);
+        } finally {
+            GroupManagementDAOFactory.closeConnection();
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,381 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.status.task.impl;
+
+import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
+import org.wso2.carbon.device.mgt.common.EnrolmentInfo;
+import org.wso2.carbon.device.mgt.core.operation.mgt.OperationEnrolmentMapping;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of the enrolments which have operations pending since their devices were last seen, ordered by the
+ * time the oldest of those operations was added. This lets the device status monitoring task look only at the
+ * enrolments of which the idle time has expired, instead of scanning the operations of all the active enrolments of
+ * a device type on every run.
+ * <p>
+ * The monitor is fed with the operations added and the devices seen by the operation manager of this node, and is
+ * periodically resynchronized from the database by the monitoring task, which also picks up the operations added
+ * and the devices seen by the other nodes of the cluster. Since devices may contact other nodes between two
+ * synchronizations, the enrolments of which the idle time has expired have to be checked against the last activity
+ * of their devices in the database with {@link #excludeSeenEnrolments(String, List, Map)} before their status is
+ * changed. Device types are tracked only after they have been synchronized once. All the timestamps are in seconds,
+ * as stored in the operation mappings.
+ */
+public class DeviceActivityMonitor {
+
+    private static final Comparator<Entry> PENDING_SINCE_COMPARATOR = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry entry1, Entry entry2) {
+            if (entry1.pendingSince == entry2.pendingSince) {
+                return 0;
+            }
+            return entry1.pendingSince < entry2.pendingSince ? -1 : 1;
+        }
+    };
+
+    private final ConcurrentMap<String, DeviceTypeActivities> deviceTypeActivities = new ConcurrentHashMap<>();
+    private final AtomicLong resyncCount = new AtomicLong();
+    private final AtomicLong expiredEnrolmentCount = new AtomicLong();
+
+    /**
+     * Records the operations added to the given enrolments.
+     *
+     * @param enrolments identifiers of the devices keyed by their enrolment ids
+     * @param tenantId   owning tenant of the devices
+     */
+    public void operationsAdded(Map<Integer, DeviceIdentifier> enrolments, int tenantId) {
+        long now = currentTime();
+        for (Map.Entry<Integer, DeviceIdentifier> enrolment : enrolments.entrySet()) {
+            DeviceIdentifier deviceIdentifier = enrolment.getValue();
+            DeviceTypeActivities activities = deviceTypeActivities.get(deviceIdentifier.getType());
+            if (activities != null) {
+                activities.operationAdded(enrolment.getKey(), deviceIdentifier.getId(), tenantId, now);
+            }
+        }
+    }
+
+    /**
+     * Records that a device has contacted the server, after which the operations pending for it until then no
+     * longer count towards its idle time.
+     *
+     * @param deviceIdentifier identifier of the device
+     * @param enrolmentId      id of the active enrolment of the device
+     */
+    public void deviceSeen(DeviceIdentifier deviceIdentifier, int enrolmentId) {
+        DeviceTypeActivities activities = deviceTypeActivities.get(deviceIdentifier.getType());
+        if (activities != null) {
+            activities.deviceSeen(enrolmentId);
+        }
+    }
+
+    /**
+     * @param deviceType     name of the device type
+     * @param resyncInterval time in seconds after which the device type has to be resynchronized
+     * @return true if the device type has never been synchronized or the given time has passed since the last
+     * synchronization
+     */
+    public boolean isResyncDue(String deviceType, long resyncInterval) {
+        DeviceTypeActivities activities = deviceTypeActivities.get(deviceType);
+        return activities == null || activities.isResyncDue(currentTime(), resyncInterval);
+    }
+
+    /**
+     * Starts the synchronization of a device type. The devices seen from now on are remembered, so that their
+     * operations read from the database by the synchronization are not tracked.
+     *
+     * @param deviceType name of the device type
+     * @return the time at which the synchronization started, to be passed to
+     * {@link #completeResync(String, long, List, Map)}
+     */
+    public long beginResync(String deviceType) {
+        DeviceTypeActivities activities = deviceTypeActivities.get(deviceType);
+        if (activities == null) {
+            DeviceTypeActivities newActivities = new DeviceTypeActivities(deviceType);
+            activities = deviceTypeActivities.putIfAbsent(deviceType, newActivities);
+            if (activities == null) {
+                activities = newActivities;
+            }
+        }
+        long now = currentTime();
+        activities.beginResync();
+        return now;
+    }
+
+    /**
+     * Replaces the tracked enrolments of a device type with the ones read from the database, keeping the operations
+     * recorded by this node after the synchronization started.
+     *
+     * @param deviceType     name of the device type
+     * @param resyncTime     time returned by {@link #beginResync(String)}
+     * @param mappings       oldest pending operation of each active enrolment of the device type
+     * @param lastActivities time of the last completed operation of the active enrolments, keyed by enrolment id
+     */
+    public void completeResync(String deviceType, long resyncTime, List<OperationEnrolmentMapping> mappings,
+                               Map<Integer, Long> lastActivities) {
+        DeviceTypeActivities activities = deviceTypeActivities.get(deviceType);
+        if (activities != null) {
+            activities.completeResync(resyncTime, mappings, lastActivities);
+            resyncCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Moves the enrolments of a device type of which the idle time has expired to their next status.
+     *
+     * @param deviceType                name of the device type
+     * @param idleTimeToMarkUnreachable idle time in seconds after which a device is marked as unreachable
+     * @param idleTimeToMarkInactive    idle time in seconds after which a device is marked as inactive
+     * @return the enrolments of which the status has changed, carrying their new status
+     */
+    public List<OperationEnrolmentMapping> expire(String deviceType, long idleTimeToMarkUnreachable,
+                                                  long idleTimeToMarkInactive) {
+        DeviceTypeActivities activities = deviceTypeActivities.get(deviceType);
+        if (activities == null) {
+            return Collections.emptyList();
+        }
+        long now = currentTime();
+        List<OperationEnrolmentMapping> expiredEnrolments = activities.expire(now - idleTimeToMarkUnreachable,
+                now - idleTimeToMarkInactive);
+        expiredEnrolmentCount.addAndGet(expiredEnrolments.size());
+        return expiredEnrolments;
+    }
+
+    /**
+     * Drops the expired enrolments of which the devices have been active after their pending operations were added,
+     * which happens when the devices contact other nodes of the cluster, and stops tracking them.
+     *
+     * @param deviceType        name of the device type
+     * @param expiredEnrolments enrolments returned by {@link #expire(String, long, long)}
+     * @param lastActivities    time of the last activity of the devices read from the database, keyed by enrolment id
+     * @return the expired enrolments of which the devices have not been active since their operations were added
+     */
+    public List<OperationEnrolmentMapping> excludeSeenEnrolments(String deviceType,
+                                                                 List<OperationEnrolmentMapping> expiredEnrolments,
+                                                                 Map<Integer, Long> lastActivities) {
+        List<OperationEnrolmentMapping> idleEnrolments = new ArrayList<>();
+        List<OperationEnrolmentMapping> seenEnrolments = new ArrayList<>();
+        for (OperationEnrolmentMapping mapping : expiredEnrolments) {
+            Long lastActivity = lastActivities.get(mapping.getEnrolmentId());
+            if (lastActivity != null && lastActivity > mapping.getCreatedTime()) {
+                seenEnrolments.add(mapping);
+            } else {
+                idleEnrolments.add(mapping);
+            }
+        }
+        if (!seenEnrolments.isEmpty()) {
+            DeviceTypeActivities activities = deviceTypeActivities.get(deviceType);
+            if (activities != null) {
+                activities.enrolmentsSeen(seenEnrolments);
+            }
+            expiredEnrolmentCount.addAndGet(-seenEnrolments.size());
+        }
+        return idleEnrolments;
+    }
+
+    /**
+     * Stops tracking a device type, after its status monitoring task has been stopped.
+     */
+    public void remove(String deviceType) {
+        deviceTypeActivities.remove(deviceType);
+    }
+
+    public int getTrackedEnrolmentCount(String deviceType) {
+        DeviceTypeActivities activities = deviceTypeActivities.get(deviceType);
+        return activities == null ? 0 : activities.size();
+    }
+
+    public long getResyncCount() {
+        return resyncCount.get();
+    }
+
+    public long getExpiredEnrolmentCount() {
+        return expiredEnrolmentCount.get();
+    }
+
+    private static long currentTime() {
+        return System.currentTimeMillis() / 1000;
+    }
+
+    /**
+     * Tracked enrolments of a single device type. Each enrolment waits in the pending queue until it is marked as
+     * unreachable, and in the unreachable queue until it is marked as inactive. Entries which are replaced or removed
+     * are left in the queues and skipped when they reach the head.
+     */
+    private static class DeviceTypeActivities {
+
+        private final String deviceType;
+        private final Map<Integer, Entry> entries = new HashMap<>();
+        private final PriorityQueue<Entry> pendingQueue = new PriorityQueue<>(16, PENDING_SINCE_COMPARATOR);
+        private final PriorityQueue<Entry> unreachableQueue = new PriorityQueue<>(16, PENDING_SINCE_COMPARATOR);
+        private Set<Integer> seenDuringResync;
+        private long lastResyncTime = -1;
+
+        private DeviceTypeActivities(String deviceType) {
+            this.deviceType = deviceType;
+        }
+
+        private synchronized void operationAdded(int enrolmentId, String deviceIdentification, int tenantId,
+                                                 long time) {
+            if (!entries.containsKey(enrolmentId)) {
+                Entry entry = new Entry(enrolmentId, deviceIdentification, tenantId, time, null);
+                entries.put(enrolmentId, entry);
+                pendingQueue.add(entry);
+            }
+        }
+
+        private synchronized void deviceSeen(int enrolmentId) {
+            entries.remove(enrolmentId);
+            if (seenDuringResync != null) {
+                seenDuringResync.add(enrolmentId);
+            }
+        }
+
+        /**
+         * Removes the given expired enrolments, unless newer operations have been recorded for them since.
+         */
+        private synchronized void enrolmentsSeen(Collection<OperationEnrolmentMapping> mappings) {
+            for (OperationEnrolmentMapping mapping : mappings) {
+                Entry entry = entries.get(mapping.getEnrolmentId());
+                if (entry != null && entry.pendingSince == mapping.getCreatedTime()) {
+                    entries.remove(mapping.getEnrolmentId());
+                }
+            }
+        }
+
+        private synchronized boolean isResyncDue(long now, long resyncInterval) {
+            return lastResyncTime < 0 || now - lastResyncTime >= resyncInterval;
+        }
+
+        private synchronized void beginResync() {
+            seenDuringResync = new HashSet<>();
+        }
+
+        private synchronized void completeResync(long resyncTime, List<OperationEnrolmentMapping> mappings,
+                                                 Map<Integer, Long> lastActivities) {
+            Map<Integer, Entry> syncedEntries = new HashMap<>();
+            for (OperationEnrolmentMapping mapping : mappings) {
+                int enrolmentId = mapping.getEnrolmentId();
+                Long lastActivity = lastActivities == null ? null : lastActivities.get(enrolmentId);
+                if ((lastActivity != null && lastActivity > mapping.getCreatedTime()) ||
+                        (seenDuringResync != null && seenDuringResync.contains(enrolmentId))) {
+                    continue;
+                }
+                syncedEntries.put(enrolmentId, new Entry(enrolmentId, mapping.getDeviceId(), mapping.getTenantId(),
+                        mapping.getCreatedTime(), mapping.getDeviceStatus()));
+            }
+            // Operations added by this node after the database was read are not among the mappings
+            for (Entry entry : entries.values()) {
+                if (entry.pendingSince >= resyncTime && !syncedEntries.containsKey(entry.enrolmentId)) {
+                    syncedEntries.put(entry.enrolmentId, new Entry(entry.enrolmentId, entry.deviceIdentification,
+                            entry.tenantId, entry.pendingSince, entry.status));
+                }
+            }
+            entries.clear();
+            entries.putAll(syncedEntries);
+            pendingQueue.clear();
+            unreachableQueue.clear();
+            pendingQueue.addAll(syncedEntries.values());
+            seenDuringResync = null;
+            lastResyncTime = resyncTime;
+        }
+
+        private synchronized List<OperationEnrolmentMapping> expire(long unreachableBefore, long inactiveBefore) {
+            List<OperationEnrolmentMapping> expiredEnrolments = new ArrayList<>();
+            Entry entry;
+            while ((entry = pendingQueue.peek()) != null && entry.pendingSince <= unreachableBefore) {
+                pendingQueue.poll();
+                if (entries.get(entry.enrolmentId) != entry) {
+                    continue;
+                }
+                EnrolmentInfo.Status newStatus;
+                if (entry.pendingSince <= inactiveBefore) {
+                    newStatus = EnrolmentInfo.Status.INACTIVE;
+                    entries.remove(entry.enrolmentId);
+                } else {
+                    newStatus = EnrolmentInfo.Status.UNREACHABLE;
+                    unreachableQueue.add(entry);
+                }
+                this.changeStatus(entry, newStatus, expiredEnrolments);
+            }
+            while ((entry = unreachableQueue.peek()) != null && entry.pendingSince <= inactiveBefore) {
+                unreachableQueue.poll();
+                if (entries.get(entry.enrolmentId) != entry) {
+                    continue;
+                }
+                entries.remove(entry.enrolmentId);
+                this.changeStatus(entry, EnrolmentInfo.Status.INACTIVE, expiredEnrolments);
+            }
+            return expiredEnrolments;
+        }
+
+        private void changeStatus(Entry entry, EnrolmentInfo.Status newStatus,
+                                  Collection<OperationEnrolmentMapping> expiredEnrolments) {
+            if (newStatus == entry.status) {
+                return;
+            }
+            entry.status = newStatus;
+            OperationEnrolmentMapping mapping = new OperationEnrolmentMapping();
+            mapping.setEnrolmentId(entry.enrolmentId);
+            mapping.setDeviceId(entry.deviceIdentification);
+            mapping.setDeviceType(deviceType);
+            mapping.setTenantId(entry.tenantId);
+            mapping.setCreatedTime(entry.pendingSince);
+            mapping.setDeviceStatus(newStatus.name());
+            expiredEnrolments.add(mapping);
+        }
+
+        private synchronized int size() {
+            return entries.size();
+        }
+    }
+
+    /**
+     * An enrolment with operations pending since the given time. The status is null until it is known.
+     */
+    private static class Entry {
+
+        private final int enrolmentId;
+        private final String deviceIdentification;
+        private final int tenantId;
+        private final long pendingSince;
+        private EnrolmentInfo.Status status;
+
+        private Entry(int enrolmentId, String deviceIdentification, int tenantId, long pendingSince,
+                      EnrolmentInfo.Status status) {
+            this.enrolmentId = enrolmentId;
+            this.deviceIdentification = deviceIdentification;
+            this.tenantId = tenantId;
+            this.pendingSince = pendingSince;
+            this.status = status;
+        }
+    }
+}
@@ -21,16 +21,23 @@ package org.wso2.carbon.device.mgt.core.status.task.impl;
 import com.google.gson.Gson;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
 import org.wso2.carbon.device.mgt.common.DeviceStatusTaskPluginConfig;
 import org.wso2.carbon.device.mgt.common.EnrolmentInfo;
 import org.wso2.carbon.device.mgt.common.TransactionManagementException;
+import org.wso2.carbon.device.mgt.core.cache.DeviceCacheKey;
+import org.wso2.carbon.device.mgt.core.cache.impl.DeviceCacheManagerImpl;
+import org.wso2.carbon.device.mgt.core.config.DeviceConfigurationManager;
+import org.wso2.carbon.device.mgt.core.config.status.task.DeviceStatusTaskConfig;
 import org.wso2.carbon.device.mgt.core.dao.DeviceManagementDAOException;
 import org.wso2.carbon.device.mgt.core.dao.DeviceManagementDAOFactory;
+import org.wso2.carbon.device.mgt.core.dao.util.DeviceManagementDAOUtil;
+import org.wso2.carbon.device.mgt.core.internal.DeviceManagementDataHolder;
 import org.wso2.carbon.device.mgt.core.operation.mgt.OperationEnrolmentMapping;
 import org.wso2.carbon.device.mgt.core.operation.mgt.dao.OperationManagementDAOException;
 import org.wso2.carbon.device.mgt.core.operation.mgt.dao.OperationManagementDAOFactory;
 import org.wso2.carbon.device.mgt.core.status.task.DeviceStatusTaskException;
+import org.wso2.carbon.device.mgt.core.task.partition.TaskPartitionManager;
+import org.wso2.carbon.device.mgt.core.task.partition.TaskPartitions;
 import org.wso2.carbon.ntask.core.Task;
 
 import java.sql.SQLException;
@@ -40,7 +47,12 @@ import java.util.Map;
 
 /**
  * This implements the Task service which monitors the device activity periodically & update the device-status if
- * necessary.
+ * necessary. When the device activity monitor is enabled, the enrolments of which the idle time has expired are taken
+ * from it, and the operation tables are scanned only to resynchronize it. Before their status is changed, the last
+ * activity of those enrolments is read back from the database in batches, to skip the devices which have contacted
+ * other nodes since. When the task is sharded, only the
+ * enrolments in the partitions held by this node are read from the operation tables and updated, and the partitions
+ * are renewed before each batch of updates.
  */
 public class DeviceStatusMonitoringTask implements Task {
 
@@ -65,48 +77,154 @@ public class DeviceStatusMonitoringTask implements Task {
 
     @Override
     public void execute() {
-        List<OperationEnrolmentMapping> operationEnrolmentMappings = null;
-        List<EnrolmentInfo> enrolmentInfoTobeUpdated = new ArrayList<>();
-        List<DeviceIdentifier> identifiers = new ArrayList<>();
-        Map<Integer, Long> lastActivities = null;
-        EnrolmentInfo enrolmentInfo;
-        DeviceIdentifier deviceIdentifier;
+        TaskPartitions taskPartitions = null;
+        TaskPartitionManager taskPartitionManager = DeviceManagementDataHolder.getInstance()
+                .getTaskPartitionManager();
+        long taskInterval = this.deviceStatusTaskPluginConfig.getFrequency() * 1000L;
+        if (taskPartitionManager != null) {
+            taskPartitions = taskPartitionManager.acquirePartitions(
+                    DeviceStatusTaskManagerServiceImpl.DEVICE_STATUS_MONITORING_TASK_TYPE + "_" + deviceType + "_" +
+                            deviceTypeId, taskInterval);
+            if (taskPartitions.isEmpty()) {
+                if (log.isDebugEnabled()) {
+                    log.debug("No partitions of the Device Status monitoring task of deviceType '" + deviceType +
+                            "' are held by this node");
+                }
+                return;
+            }
+        }
+        List<OperationEnrolmentMapping> expiredEnrolments;
+        DeviceActivityMonitor deviceActivityMonitor = DeviceManagementDataHolder.getInstance()
+                .getDeviceActivityMonitor();
         try {
-            operationEnrolmentMappings = this.getOperationEnrolmentMappings();
-            if (operationEnrolmentMappings != null && operationEnrolmentMappings.size() > 0) {
-                lastActivities = this.getLastDeviceActivities();
+            if (deviceActivityMonitor == null) {
+                expiredEnrolments = this.getExpiredEnrolments(taskPartitions);
+            } else {
+                int resyncInterval = this.getDeviceStatusTaskConfig().getResyncInterval();
+                if (deviceActivityMonitor.isResyncDue(deviceType, resyncInterval)) {
+                    this.resync(deviceActivityMonitor);
+                }
+                expiredEnrolments = deviceActivityMonitor.expire(deviceType,
+                        this.deviceStatusTaskPluginConfig.getIdleTimeToMarkUnreachable(),
+                        this.deviceStatusTaskPluginConfig.getIdleTimeToMarkInactive());
+                if (taskPartitions != null) {
+                    // Activity monitor tracks the enrolments of all the partitions in memory
+                    expiredEnrolments = this.getPartitionEnrolments(expiredEnrolments, taskPartitions);
+                }
             }
         } catch (DeviceStatusTaskException e) {
             log.error("Error occurred while fetching OperationEnrolment mappings of deviceType '" + deviceType + "'", e);
+            return;
         }
-        for (OperationEnrolmentMapping mapping:operationEnrolmentMappings) {
-            long lastActivity = -1;
-            if (lastActivities != null && lastActivities.containsKey(mapping.getEnrolmentId())) {
-                lastActivity = lastActivities.get(mapping.getEnrolmentId());
+        if (log.isDebugEnabled()) {
+            log.debug("Status of " + expiredEnrolments.size() + " devices of type '" + deviceType + "' is to be " +
+                    "updated");
+        }
+        for (List<OperationEnrolmentMapping> batch : DeviceManagementDAOUtil.partition(expiredEnrolments,
+                this.getDeviceStatusTaskConfig().getUpdateBatchSize())) {
+            List<OperationEnrolmentMapping> mappings = batch;
+            if (taskPartitions != null) {
+                taskPartitions = taskPartitionManager.renewPartitions(taskPartitions, taskInterval);
+                if (taskPartitions.isEmpty()) {
+                    log.warn("Partitions of the Device Status monitoring task of deviceType '" + deviceType +
+                            "' are no longer held by this node, remaining status updates are skipped");
+                    return;
+                }
+                mappings = this.getPartitionEnrolments(batch, taskPartitions);
             }
-            EnrolmentInfo.Status newStatus = this.determineDeviceStatus(mapping, lastActivity);
-            if (newStatus != mapping.getDeviceStatus()) {
-                enrolmentInfo = new EnrolmentInfo();
+            if (deviceActivityMonitor != null && !mappings.isEmpty()) {
+                // Devices may have contacted other nodes of the cluster since the activity monitor last synchronized
+                try {
+                    mappings = deviceActivityMonitor.excludeSeenEnrolments(deviceType, mappings,
+                            this.getLastActivityTimes(mappings));
+                } catch (DeviceStatusTaskException e) {
+                    log.error("Error occurred while checking the last activity of devices of type '" + deviceType +
+                            "', their status is not updated", e);
+                    continue;
+                }
+            }
+            List<EnrolmentInfo> enrolmentInfoTobeUpdated = new ArrayList<>();
+            List<DeviceCacheKey> cacheKeys = new ArrayList<>();
+            for (OperationEnrolmentMapping mapping : mappings) {
+                EnrolmentInfo enrolmentInfo = new EnrolmentInfo();
                 enrolmentInfo.setId(mapping.getEnrolmentId());
-                enrolmentInfo.setStatus(newStatus);
+                enrolmentInfo.setStatus(mapping.getDeviceStatus());
                 enrolmentInfoTobeUpdated.add(enrolmentInfo);
-
-                deviceIdentifier = new DeviceIdentifier();
-                deviceIdentifier.setId(mapping.getDeviceId());
-                deviceIdentifier.setId(mapping.getDeviceType());
-                identifiers.add(deviceIdentifier);
+                cacheKeys.add(new DeviceCacheKey(mapping.getDeviceId(), deviceType, mapping.getTenantId()));
             }
-        }
-
-        if (enrolmentInfoTobeUpdated.size() > 0) {
             try {
                 this.updateDeviceStatus(enrolmentInfoTobeUpdated);
                 //Remove updated entries from cache
-                //DeviceCacheManagerImpl.getInstance().removeDevicesFromCache(identifiers);
+                DeviceCacheManagerImpl.getInstance().removeDevicesFromCache(cacheKeys);
             } catch (DeviceStatusTaskException e) {
-                log.error("Error occurred while updating non-responsive device-status of devices of type '" + deviceType + "'",e);
+                log.error("Error occurred while updating non-responsive device-status of devices of type '" +
+                        deviceType + "'", e);
+            }
+        }
+    }
+
+    private List<OperationEnrolmentMapping> getPartitionEnrolments(List<OperationEnrolmentMapping> mappings,
+                                                                   TaskPartitions taskPartitions) {
+        List<OperationEnrolmentMapping> partitionEnrolments = new ArrayList<>();
+        for (OperationEnrolmentMapping mapping : mappings) {
+            if (taskPartitions.contains(mapping.getEnrolmentId())) {
+                partitionEnrolments.add(mapping);
+            }
+        }
+        return partitionEnrolments;
+    }
+
+    /**
+     * Scans the pending operations of the active enrolments of the device type for the enrolments of which the
+     * status has to be changed.
+     *
+     * @param taskPartitions partitions of which the enrolments are scanned, or null to scan all the enrolments
+     */
+    private List<OperationEnrolmentMapping> getExpiredEnrolments(TaskPartitions taskPartitions)
+            throws DeviceStatusTaskException {
+        List<OperationEnrolmentMapping> expiredEnrolments = new ArrayList<>();
+        List<OperationEnrolmentMapping> operationEnrolmentMappings = this.getOperationEnrolmentMappings(
+                this.getMinTimeWindow(), taskPartitions);
+        if (operationEnrolmentMappings.isEmpty()) {
+            return expiredEnrolments;
+        }
+        Map<Integer, Long> lastActivities = this.getLastDeviceActivities(taskPartitions);
+        for (OperationEnrolmentMapping mapping : operationEnrolmentMappings) {
+            long lastActivity = -1;
+            if (lastActivities != null && lastActivities.containsKey(mapping.getEnrolmentId())) {
+                lastActivity = lastActivities.get(mapping.getEnrolmentId());
+            }
+            EnrolmentInfo.Status newStatus = this.determineDeviceStatus(mapping, lastActivity);
+            if (newStatus != null && newStatus != mapping.getDeviceStatus()) {
+                mapping.setDeviceStatus(newStatus.name());
+                mapping.setDeviceType(deviceType);
+                expiredEnrolments.add(mapping);
             }
         }
+        return expiredEnrolments;
+    }
+
+    /**
+     * Synchronizes the enrolments tracked by the activity monitor with all the pending operations of the active
+     * enrolments of the device type, including the ones which have not been idle long enough to change their status.
+     */
+    private void resync(DeviceActivityMonitor deviceActivityMonitor) throws DeviceStatusTaskException {
+        long resyncTime = deviceActivityMonitor.beginResync(deviceType);
+        List<OperationEnrolmentMapping> operationEnrolmentMappings = this.getOperationEnrolmentMappings(resyncTime,
+                null);
+        Map<Integer, Long> lastActivities = null;
+        if (!operationEnrolmentMappings.isEmpty()) {
+            lastActivities = this.getLastDeviceActivities(null);
+        }
+        deviceActivityMonitor.completeResync(deviceType, resyncTime, operationEnrolmentMappings, lastActivities);
+        if (log.isDebugEnabled()) {
+            log.debug("Device activity monitor is synchronized with " + operationEnrolmentMappings.size() +
+                    " enrolments of type '" + deviceType + "' having pending operations");
+        }
+    }
+
+    private DeviceStatusTaskConfig getDeviceStatusTaskConfig() {
+        return DeviceConfigurationManager.getInstance().getDeviceManagementConfig().getDeviceStatusTaskConfig();
     }
 
     private EnrolmentInfo.Status determineDeviceStatus(OperationEnrolmentMapping opMapping, long lastActivityTime) {
@@ -156,13 +274,22 @@ public class DeviceStatusMonitoringTask implements Task {
         return updateStatus;
     }
 
-    private List<OperationEnrolmentMapping> getOperationEnrolmentMappings() throws DeviceStatusTaskException {
+    private List<OperationEnrolmentMapping> getOperationEnrolmentMappings(long minTimeWindow,
+                                                                          TaskPartitions taskPartitions)
+            throws DeviceStatusTaskException {
         List<OperationEnrolmentMapping> operationEnrolmentMappings = null;
         try {
             OperationManagementDAOFactory.openConnection();
-            operationEnrolmentMappings = OperationManagementDAOFactory.
-                    getOperationMappingDAO().getFirstPendingOperationMappingsForActiveEnrolments(this.getMinTimeWindow(),
-                    this.getMaxTimeWindow(), this.deviceTypeId);
+            if (taskPartitions == null) {
+                operationEnrolmentMappings = OperationManagementDAOFactory.
+                        getOperationMappingDAO().getFirstPendingOperationMappingsForActiveEnrolments(minTimeWindow,
+                        this.getMaxTimeWindow(), this.deviceTypeId);
+            } else {
+                operationEnrolmentMappings = OperationManagementDAOFactory.
+                        getOperationMappingDAO().getFirstPendingOperationMappingsForActiveEnrolments(minTimeWindow,
+                        this.getMaxTimeWindow(), this.deviceTypeId, taskPartitions.getPartitionCount(),
+                        taskPartitions.getPartitionIds());
+            }
         } catch (SQLException e) {
             throw new DeviceStatusTaskException("Error occurred while getting Enrolment operation mappings for " +
                     "determining device status of deviceType '" + deviceType + "'", e);
@@ -175,13 +302,40 @@ public class DeviceStatusMonitoringTask implements Task {
         return operationEnrolmentMappings;
     }
 
-    private Map<Integer, Long> getLastDeviceActivities() throws DeviceStatusTaskException {
+    private Map<Integer, Long> getLastActivityTimes(List<OperationEnrolmentMapping> mappings)
+            throws DeviceStatusTaskException {
+        List<Integer> enrolmentIds = new ArrayList<>();
+        for (OperationEnrolmentMapping mapping : mappings) {
+            enrolmentIds.add(mapping.getEnrolmentId());
+        }
+        try {
+            OperationManagementDAOFactory.openConnection();
+            return OperationManagementDAOFactory.getOperationMappingDAO().getLastActivityTimes(enrolmentIds);
+        } catch (SQLException e) {
+            throw new DeviceStatusTaskException("Error occurred while opening a connection for fetching the last " +
+                    "activities of devices of type '" + deviceType + "'", e);
+        } catch (OperationManagementDAOException e) {
+            throw new DeviceStatusTaskException("Error occurred while fetching the last activities of devices of " +
+                    "type '" + deviceType + "'", e);
+        } finally {
+            OperationManagementDAOFactory.closeConnection();
+        }
+    }
+
+    private Map<Integer, Long> getLastDeviceActivities(TaskPartitions taskPartitions)
+            throws DeviceStatusTaskException {
         Map<Integer, Long> lastActivities = null;
         try {
             OperationManagementDAOFactory.openConnection();
-            lastActivities = OperationManagementDAOFactory.
-                    getOperationMappingDAO().getLastConnectedTimeForActiveEnrolments(this.getMaxTimeWindow(),
-                    this.deviceTypeId);
+            if (taskPartitions == null) {
+                lastActivities = OperationManagementDAOFactory.
+                        getOperationMappingDAO().getLastConnectedTimeForActiveEnrolments(this.getMaxTimeWindow(),
+                        this.deviceTypeId);
+            } else {
+                lastActivities = OperationManagementDAOFactory.
+                        getOperationMappingDAO().getLastConnectedTimeForActiveEnrolments(this.getMaxTimeWindow(),
+                        this.deviceTypeId, taskPartitions.getPartitionCount(), taskPartitions.getPartitionIds());
+            }
         } catch (SQLException e) {
             throw new DeviceStatusTaskException("Error occurred while getting last activities for " +
                     "determining device status of deviceType '" + deviceType + "'", e);
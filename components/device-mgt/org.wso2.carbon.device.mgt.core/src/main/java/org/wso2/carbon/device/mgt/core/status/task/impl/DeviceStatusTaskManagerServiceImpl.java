@@ -26,6 +26,7 @@ import org.wso2.carbon.device.mgt.core.dto.DeviceType;
 import org.wso2.carbon.device.mgt.core.internal.DeviceManagementDataHolder;
 import org.wso2.carbon.device.mgt.core.status.task.DeviceStatusTaskException;
 import org.wso2.carbon.device.mgt.core.status.task.DeviceStatusTaskManagerService;
+import org.wso2.carbon.device.mgt.core.task.partition.TaskPartitionManager;
 import org.wso2.carbon.ntask.common.TaskException;
 import org.wso2.carbon.ntask.core.TaskInfo;
 import org.wso2.carbon.ntask.core.TaskManager;
@@ -80,7 +81,16 @@ public class DeviceStatusTaskManagerServiceImpl implements DeviceStatusTaskManag
 
             String taskName = DEVICE_STATUS_MONITORING_TASK_TYPE + "_" + deviceType.getName() + "_" + deviceType.getId();
 
-            if (!taskManager.isTaskScheduled(taskName)) {
+            TaskPartitionManager taskPartitionManager = DeviceManagementDataHolder.getInstance()
+                    .getTaskPartitionManager();
+            if (taskPartitionManager != null) {
+                DeviceStatusMonitoringTask task = new DeviceStatusMonitoringTask();
+                task.setProperties(properties);
+                if (!taskPartitionManager.scheduleTask(taskName, task, deviceStatusTaskConfig.getFrequency() * 1000L)) {
+                    throw new DeviceStatusTaskException("Device Status monitoring task is already started for this " +
+                            "device-type : " + deviceType.getName());
+                }
+            } else if (!taskManager.isTaskScheduled(taskName)) {
                 TaskInfo taskInfo = new TaskInfo(taskName, TASK_CLASS, properties, triggerInfo);
                 taskManager.registerTask(taskInfo);
                 taskManager.rescheduleTask(taskInfo.getName());
@@ -100,10 +110,19 @@ public class DeviceStatusTaskManagerServiceImpl implements DeviceStatusTaskManag
         try {
             TaskService taskService = DeviceManagementDataHolder.getInstance().getTaskService();
             String taskName = DEVICE_STATUS_MONITORING_TASK_TYPE + "_" + deviceType.getName() + "_" + deviceType.getId();
-            if (taskService.isServerInit()) {
+            TaskPartitionManager taskPartitionManager = DeviceManagementDataHolder.getInstance()
+                    .getTaskPartitionManager();
+            if (taskPartitionManager != null) {
+                taskPartitionManager.cancelTask(taskName);
+            } else if (taskService.isServerInit()) {
                 TaskManager taskManager = taskService.getTaskManager(DEVICE_STATUS_MONITORING_TASK_TYPE);
                 taskManager.deleteTask(taskName);
             }
+            DeviceActivityMonitor deviceActivityMonitor = DeviceManagementDataHolder.getInstance()
+                    .getDeviceActivityMonitor();
+            if (deviceActivityMonitor != null) {
+                deviceActivityMonitor.remove(deviceType.getName());
+            }
         } catch (TaskException e) {
             throw new DeviceStatusTaskException("Error occurred while deleting the Device Status monitoring task " +
                     "for device-type : " + deviceType.getName(), e);
@@ -113,6 +132,24 @@ public class DeviceStatusTaskManagerServiceImpl implements DeviceStatusTaskManag
     @Override
     public void updateTask(DeviceType deviceType, DeviceStatusTaskPluginConfig deviceStatusTaskConfig)
             throws DeviceStatusTaskException {
+        TaskPartitionManager taskPartitionManager = DeviceManagementDataHolder.getInstance()
+                .getTaskPartitionManager();
+        if (taskPartitionManager != null) {
+            String taskName = DEVICE_STATUS_MONITORING_TASK_TYPE + "_" + deviceType.getName() + "_" +
+                    deviceType.getId();
+            if (!taskPartitionManager.cancelTask(taskName)) {
+                throw new DeviceStatusTaskException("Device Status monitoring task has not been started for this " +
+                        "device-type " + deviceType.getName() + ". Please start the task first.");
+            }
+            Map<String, String> properties = new HashMap<>();
+            properties.put(DEVICE_TYPE, deviceType.getName());
+            properties.put(DEVICE_TYPE_ID, deviceType.getId() + "");
+            properties.put(DEVICE_STATUS_TASK_CONFIG, new Gson().toJson(deviceStatusTaskConfig));
+            DeviceStatusMonitoringTask task = new DeviceStatusMonitoringTask();
+            task.setProperties(properties);
+            taskPartitionManager.scheduleTask(taskName, task, deviceStatusTaskConfig.getFrequency() * 1000L);
+            return;
+        }
         try {
             TaskService taskService = DeviceManagementDataHolder.getInstance().getTaskService();
             TaskManager taskManager = taskService.getTaskManager(DEVICE_STATUS_MONITORING_TASK_TYPE);
@@ -150,6 +187,11 @@ public class DeviceStatusTaskManagerServiceImpl implements DeviceStatusTaskManag
     @Override
     public boolean isTaskScheduled(DeviceType deviceType) throws DeviceStatusTaskException {
         String taskName = DEVICE_STATUS_MONITORING_TASK_TYPE + "_" + deviceType.getName() + "_" + deviceType.getId();
+        TaskPartitionManager taskPartitionManager = DeviceManagementDataHolder.getInstance()
+                .getTaskPartitionManager();
+        if (taskPartitionManager != null) {
+            return taskPartitionManager.isTaskScheduled(taskName);
+        }
         TaskService taskService = DeviceManagementDataHolder.getInstance().getTaskService();
         TaskManager taskManager;
         try {
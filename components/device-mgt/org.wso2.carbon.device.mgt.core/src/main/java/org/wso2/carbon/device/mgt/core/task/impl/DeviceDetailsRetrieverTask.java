@@ -27,6 +27,8 @@ import org.wso2.carbon.device.mgt.core.internal.DeviceManagementDataHolder;
 import org.wso2.carbon.device.mgt.core.service.DeviceManagementProviderService;
 import org.wso2.carbon.device.mgt.core.task.DeviceMgtTaskException;
 import org.wso2.carbon.device.mgt.core.task.DeviceTaskManager;
+import org.wso2.carbon.device.mgt.core.task.partition.TaskPartitionManager;
+import org.wso2.carbon.device.mgt.core.task.partition.TaskPartitions;
 import org.wso2.carbon.ntask.core.Task;
 import org.wso2.carbon.user.api.UserStoreException;
 
@@ -56,16 +58,33 @@ public class DeviceDetailsRetrieverTask implements Task {
         OperationMonitoringTaskConfig operationMonitoringTaskConfig = deviceManagementProviderService
                 .getDeviceMonitoringConfig(deviceType);
 
+        TaskPartitions taskPartitions = null;
+        TaskPartitionManager taskPartitionManager = DeviceManagementDataHolder.getInstance()
+                .getTaskPartitionManager();
+        if (taskPartitionManager != null) {
+            int tenantId = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId();
+            taskPartitions = taskPartitionManager.acquirePartitions(deviceType + String.valueOf(tenantId),
+                    operationMonitoringTaskConfig.getFrequency());
+            if (taskPartitions.isEmpty()) {
+                if (log.isDebugEnabled()) {
+                    log.debug("No partitions of the device details retrieving task of device type '" + deviceType +
+                            "' are held by this node.");
+                }
+                return;
+            }
+        }
+
         if (System.getProperty(IS_CLOUD) != null && Boolean.parseBoolean(System.getProperty(IS_CLOUD))) {
             executeForTenants = true;
         }
         if (executeForTenants) {
-            this.executeForAllTenants(operationMonitoringTaskConfig);
+            this.executeForAllTenants(operationMonitoringTaskConfig, taskPartitions);
         } else {
             if (log.isDebugEnabled()) {
                 log.debug("Device details retrieving task started to run.");
             }
-            DeviceTaskManager deviceTaskManager = new DeviceTaskManagerImpl(deviceType, operationMonitoringTaskConfig);
+            DeviceTaskManager deviceTaskManager = new DeviceTaskManagerImpl(deviceType, operationMonitoringTaskConfig,
+                    taskPartitions);
             //pass the configurations also from here, monitoring tasks
             try {
                 if (deviceManagementProviderService.isDeviceMonitoringEnabled(deviceType)) {
@@ -77,7 +96,8 @@ public class DeviceDetailsRetrieverTask implements Task {
         }
     }
 
-    private void executeForAllTenants(OperationMonitoringTaskConfig operationMonitoringTaskConfig) {
+    private void executeForAllTenants(OperationMonitoringTaskConfig operationMonitoringTaskConfig,
+                                      TaskPartitions taskPartitions) {
 
         if (log.isDebugEnabled()) {
             log.debug("Device details retrieving task started to run for all tenants.");
@@ -93,7 +113,7 @@ public class DeviceDetailsRetrieverTask implements Task {
                     PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantDomain(tenantDomain);
                     PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantId(tenant);
                     DeviceTaskManager deviceTaskManager = new DeviceTaskManagerImpl(deviceType,
-                            operationMonitoringTaskConfig);
+                            operationMonitoringTaskConfig, taskPartitions);
                     //pass the configurations also from here, monitoring tasks
                     try {
                         deviceTaskManager.addOperations();
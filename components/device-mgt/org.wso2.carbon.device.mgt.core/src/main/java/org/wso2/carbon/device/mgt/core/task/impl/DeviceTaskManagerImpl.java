@@ -21,21 +21,25 @@ package org.wso2.carbon.device.mgt.core.task.impl;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.wso2.carbon.device.mgt.common.Device;
-import org.wso2.carbon.device.mgt.common.DeviceManagementException;
-import org.wso2.carbon.device.mgt.common.InvalidDeviceException;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
 import org.wso2.carbon.device.mgt.common.MonitoringOperation;
 import org.wso2.carbon.device.mgt.common.OperationMonitoringTaskConfig;
 import org.wso2.carbon.device.mgt.common.operation.mgt.Operation;
 import org.wso2.carbon.device.mgt.common.operation.mgt.OperationManagementException;
+import org.wso2.carbon.device.mgt.core.config.DeviceConfigurationManager;
 import org.wso2.carbon.device.mgt.core.internal.DeviceManagementDataHolder;
 import org.wso2.carbon.device.mgt.core.operation.mgt.CommandOperation;
+import org.wso2.carbon.device.mgt.core.operation.mgt.dao.OperationManagementDAOException;
+import org.wso2.carbon.device.mgt.core.operation.mgt.dao.OperationManagementDAOFactory;
 import org.wso2.carbon.device.mgt.core.service.DeviceManagementProviderService;
 import org.wso2.carbon.device.mgt.core.task.DeviceMgtTaskException;
 import org.wso2.carbon.device.mgt.core.task.DeviceTaskManager;
 import org.wso2.carbon.device.mgt.core.task.Utils;
-import org.wso2.carbon.device.mgt.core.util.DeviceManagerUtil;
+import org.wso2.carbon.device.mgt.core.task.partition.TaskPartitionManager;
+import org.wso2.carbon.device.mgt.core.task.partition.TaskPartitions;
 
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -48,6 +52,7 @@ public class DeviceTaskManagerImpl implements DeviceTaskManager {
     private String deviceType;
     private static Map<Integer, Map<String, Long>> map = new HashMap<>();
     private OperationMonitoringTaskConfig operationMonitoringTaskConfig;
+    private TaskPartitions taskPartitions;
 
     public DeviceTaskManagerImpl(String deviceType,
                                  OperationMonitoringTaskConfig operationMonitoringTaskConfig) {
@@ -55,6 +60,16 @@ public class DeviceTaskManagerImpl implements DeviceTaskManager {
         this.deviceType = deviceType;
     }
 
+    /**
+     * @param taskPartitions partitions of the sharded task held by this node, to the devices of which the operations
+     *                       are added
+     */
+    public DeviceTaskManagerImpl(String deviceType, OperationMonitoringTaskConfig operationMonitoringTaskConfig,
+                                 TaskPartitions taskPartitions) {
+        this(deviceType, operationMonitoringTaskConfig);
+        this.taskPartitions = taskPartitions;
+    }
+
     public DeviceTaskManagerImpl(String deviceType) {
         this.deviceType = deviceType;
     }
@@ -85,41 +100,82 @@ public class DeviceTaskManagerImpl implements DeviceTaskManager {
     public void addOperations() throws DeviceMgtTaskException {
         DeviceManagementProviderService deviceManagementProviderService = DeviceManagementDataHolder.getInstance().
                 getDeviceManagementProvider();
+        List<String> operations = this.getValidOperationNames(); //list operations for each device type
+        if (operations.isEmpty()) {
+            if (log.isDebugEnabled()) {
+                log.debug("No operations are available.");
+            }
+            return;
+        }
+        // Notifications are spread over the fan-out window, which must not exceed the interval between the runs
+        long fanOutWindow = Math.min(DeviceConfigurationManager.getInstance().getDeviceManagementConfig()
+                .getOperationConfiguration().getMonitoringFanOutWindow() * 1000L, this.getTaskFrequency());
+        Map<Integer, DeviceIdentifier> enrolments = this.getMonitoringEnrolments();
+        if (enrolments.isEmpty()) {
+            if (log.isDebugEnabled()) {
+                log.debug("No " + deviceType + " devices are available to be monitored.");
+            }
+            return;
+        }
+        TaskPartitionManager taskPartitionManager = DeviceManagementDataHolder.getInstance().getTaskPartitionManager();
         try {
-            List<Device> devices;
-            List<String> operations;
-
-            operations = this.getValidOperationNames(); //list operations for each device type
-            devices = deviceManagementProviderService.getAllDevices(deviceType, false);//list devices for each type
-            if (!devices.isEmpty()) {
-                if (operations != null && DeviceManagerUtil.getValidDeviceIdentifiers(devices).size() != 0) {
-                    for (String str : operations) {
-                        CommandOperation operation = new CommandOperation();
-                        operation.setEnabled(true);
-                        operation.setType(Operation.Type.COMMAND);
-                        operation.setCode(str);
-                        deviceManagementProviderService.addOperation(deviceType, operation,
-                                DeviceManagerUtil.getValidDeviceIdentifiers(devices));
+            for (String str : operations) {
+                List<DeviceIdentifier> devices = new ArrayList<>();
+                if (taskPartitions != null && taskPartitionManager != null) {
+                    // Run may outlast the leases, so the operations are added only to the partitions still held
+                    taskPartitions = taskPartitionManager.renewPartitions(taskPartitions, this.getTaskFrequency());
+                    if (taskPartitions.isEmpty()) {
+                        log.warn("Partitions of the device monitoring task of " + deviceType + " devices are no " +
+                                "longer held by this node, remaining operations are skipped.");
+                        return;
                     }
-                } else {
-                    if (log.isDebugEnabled()) {
-                        log.debug("No operations are available.");
+                    for (Map.Entry<Integer, DeviceIdentifier> enrolment : enrolments.entrySet()) {
+                        if (taskPartitions.contains(enrolment.getKey())) {
+                            devices.add(enrolment.getValue());
+                        }
                     }
+                } else {
+                    devices.addAll(enrolments.values());
                 }
-            } else {
+                CommandOperation operation = new CommandOperation();
+                operation.setEnabled(true);
+                operation.setType(Operation.Type.COMMAND);
+                operation.setCode(str);
+                int deviceCount = deviceManagementProviderService.addMonitoringOperation(deviceType, operation,
+                        devices, fanOutWindow);
                 if (log.isDebugEnabled()) {
-                    log.debug("No devices are available to perform the operations.");
+                    log.debug("Operation '" + str + "' is added to " + deviceCount + " " + deviceType + " devices.");
                 }
             }
-        } catch (InvalidDeviceException e) {
-            throw new DeviceMgtTaskException("Invalid DeviceIdentifiers found.", e);
-        } catch (DeviceManagementException e) {
-            throw new DeviceMgtTaskException("Error occurred while retrieving the device list.", e);
         } catch (OperationManagementException e) {
             throw new DeviceMgtTaskException("Error occurred while adding the operations to devices", e);
         }
     }
 
+    /**
+     * Lists the enrolments of the devices to be monitored, only the ones in the partitions held by this node when the
+     * task is sharded.
+     */
+    private Map<Integer, DeviceIdentifier> getMonitoringEnrolments() throws DeviceMgtTaskException {
+        int tenantId = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId();
+        try {
+            OperationManagementDAOFactory.openConnection();
+            if (taskPartitions == null) {
+                return OperationManagementDAOFactory.getOperationMappingDAO().getMonitoringEnrolments(deviceType,
+                        tenantId, 0, null);
+            }
+            return OperationManagementDAOFactory.getOperationMappingDAO().getMonitoringEnrolments(deviceType,
+                    tenantId, taskPartitions.getPartitionCount(), taskPartitions.getPartitionIds());
+        } catch (SQLException e) {
+            throw new DeviceMgtTaskException("Error occurred while opening a connection to the data source", e);
+        } catch (OperationManagementDAOException e) {
+            throw new DeviceMgtTaskException("Error occurred while retrieving the " + deviceType + " devices to " +
+                    "be monitored", e);
+        } finally {
+            OperationManagementDAOFactory.closeConnection();
+        }
+    }
+
     private List<String> getValidOperationNames() throws DeviceMgtTaskException {
 
         List<MonitoringOperation> monitoringOperations = this.getOperationList();
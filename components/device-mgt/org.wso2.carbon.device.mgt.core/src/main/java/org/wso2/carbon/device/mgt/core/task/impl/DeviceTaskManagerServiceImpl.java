@@ -27,6 +27,7 @@ import org.wso2.carbon.device.mgt.common.OperationMonitoringTaskConfig;
 import org.wso2.carbon.device.mgt.core.internal.DeviceManagementDataHolder;
 import org.wso2.carbon.device.mgt.core.task.DeviceMgtTaskException;
 import org.wso2.carbon.device.mgt.core.task.DeviceTaskManagerService;
+import org.wso2.carbon.device.mgt.core.task.partition.TaskPartitionManager;
 import org.wso2.carbon.ntask.common.TaskException;
 import org.wso2.carbon.ntask.core.TaskInfo;
 import org.wso2.carbon.ntask.core.TaskManager;
@@ -84,7 +85,17 @@ public class DeviceTaskManagerServiceImpl implements DeviceTaskManagerService {
 
             String taskName = deviceType + String.valueOf(tenantId);
 
-            if (!taskManager.isTaskScheduled(deviceType)) {
+            TaskPartitionManager taskPartitionManager = DeviceManagementDataHolder.getInstance()
+                    .getTaskPartitionManager();
+            if (taskPartitionManager != null) {
+                DeviceDetailsRetrieverTask task = new DeviceDetailsRetrieverTask();
+                task.setProperties(properties);
+                if (!taskPartitionManager.scheduleTask(taskName, task,
+                        operationMonitoringTaskConfig.getFrequency())) {
+                    throw new DeviceMgtTaskException(
+                            "Device details retrieving task is already started for this tenant " + tenantId);
+                }
+            } else if (!taskManager.isTaskScheduled(deviceType)) {
 
                 TaskInfo taskInfo = new TaskInfo(taskName, TASK_CLASS, properties, triggerInfo);
 
@@ -108,6 +119,12 @@ public class DeviceTaskManagerServiceImpl implements DeviceTaskManagerService {
 
         try {
             int tenantId = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId();
+            TaskPartitionManager taskPartitionManager = DeviceManagementDataHolder.getInstance()
+                    .getTaskPartitionManager();
+            if (taskPartitionManager != null) {
+                taskPartitionManager.cancelTask(deviceType + String.valueOf(tenantId));
+                return;
+            }
             TaskService taskService = DeviceManagementDataHolder.getInstance().getTaskService();
             if (taskService.isServerInit()) {
                 TaskManager taskManager = taskService.getTaskManager(TASK_TYPE);
@@ -128,6 +145,24 @@ public class DeviceTaskManagerServiceImpl implements DeviceTaskManagerService {
 
         int tenantId = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId();
         //        deviceTaskManager = new DeviceTaskManagerImpl();
+        TaskPartitionManager taskPartitionManager = DeviceManagementDataHolder.getInstance()
+                .getTaskPartitionManager();
+        if (taskPartitionManager != null) {
+            String taskName = deviceType + String.valueOf(tenantId);
+            if (!taskPartitionManager.cancelTask(taskName)) {
+                throw new DeviceMgtTaskException(
+                        "Device details retrieving task has not been started for this tenant " +
+                                tenantId + ". Please start the task first.");
+            }
+            Map<String, String> properties = new HashMap<>();
+            properties.put(TENANT_ID, String.valueOf(tenantId));
+            properties.put("DEVICE_TYPE", deviceType);
+            properties.put("OPPCONFIG", new Gson().toJson(operationMonitoringTaskConfig));
+            DeviceDetailsRetrieverTask task = new DeviceDetailsRetrieverTask();
+            task.setProperties(properties);
+            taskPartitionManager.scheduleTask(taskName, task, operationMonitoringTaskConfig.getFrequency());
+            return;
+        }
         try {
             TaskService taskService = DeviceManagementDataHolder.getInstance().getTaskService();
             TaskManager taskManager = taskService.getTaskManager(TASK_TYPE);
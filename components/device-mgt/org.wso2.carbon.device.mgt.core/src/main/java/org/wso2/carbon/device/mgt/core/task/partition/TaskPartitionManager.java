@@ -0,0 +1,320 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.task.partition;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.device.mgt.common.TransactionManagementException;
+import org.wso2.carbon.device.mgt.core.config.task.TaskPartitionConfiguration;
+import org.wso2.carbon.device.mgt.core.dao.DeviceManagementDAOException;
+import org.wso2.carbon.device.mgt.core.dao.DeviceManagementDAOFactory;
+import org.wso2.carbon.device.mgt.core.dao.TaskPartitionDAO;
+import org.wso2.carbon.device.mgt.core.dto.TaskPartitionLease;
+import org.wso2.carbon.ntask.core.Task;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the sharded device tasks. Sharded tasks are scheduled locally on every node instead of on a single node of
+ * the cluster through the task service, and the enrolments of each task are split into a fixed number of partitions
+ * which are leased to the nodes running it through the device management database. On each run a node renews the
+ * leases it holds, up to its fair share of the partitions among the live nodes of the task, and leases the partitions
+ * which are free or of which the lease has expired, so that the partitions of a node which went down are taken over
+ * once their leases expire and the partitions are rebalanced when nodes join. Since a run may outlast the lease, the
+ * tasks renew their partitions before writing the changes of each batch and drop the partitions which have been
+ * taken over by other nodes in the meantime.
+ */
+public class TaskPartitionManager {
+
+    private static final Log log = LogFactory.getLog(TaskPartitionManager.class);
+    private static final int THREAD_POOL_SIZE = 4;
+
+    private final String nodeId;
+    private final int partitionCount;
+    private final long leaseDuration;
+    private final Set<String> initializedTasks = Collections.newSetFromMap(
+            new ConcurrentHashMap<String, Boolean>());
+    private final Map<String, ScheduledFuture<?>> scheduledTasks = new ConcurrentHashMap<>();
+    private volatile ScheduledExecutorService executor;
+
+    public TaskPartitionManager(TaskPartitionConfiguration config) {
+        this(config, UUID.randomUUID().toString());
+    }
+
+    public TaskPartitionManager(TaskPartitionConfiguration config, String nodeId) {
+        this.nodeId = nodeId;
+        this.partitionCount = config.getPartitionCount();
+        this.leaseDuration = config.getLeaseDuration() * 1000L;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Renews and acquires the partitions of a task to be handled by this node in the current run of the task. No
+     * partitions are returned when the leases cannot be updated, so that a node which has lost the database does not
+     * handle partitions leased to other nodes.
+     *
+     * @param taskName     name of the task, which is the same in all the nodes
+     * @param taskInterval time in milliseconds between the runs of the task
+     * @return partitions held by this node
+     */
+    public TaskPartitions acquirePartitions(String taskName, long taskInterval) {
+        long leaseTime = this.getLeaseTime(taskInterval);
+        long time = System.currentTimeMillis();
+        Set<Integer> partitionIds = new HashSet<>();
+        TaskPartitionDAO taskPartitionDAO = DeviceManagementDAOFactory.getTaskPartitionDAO();
+        try {
+            this.initPartitions(taskName);
+            DeviceManagementDAOFactory.beginTransaction();
+            taskPartitionDAO.updateMember(taskName, nodeId, time);
+            taskPartitionDAO.removeStaleMembers(taskName, time - leaseTime);
+            int memberCount = Math.max(1, taskPartitionDAO.getMemberCount(taskName, time - leaseTime));
+            int fairShare = (partitionCount + memberCount - 1) / memberCount;
+            List<TaskPartitionLease> leases = taskPartitionDAO.getLeases(taskName);
+            for (TaskPartitionLease lease : leases) {
+                if (nodeId.equals(lease.getOwnerId())) {
+                    if (lease.getPartitionId() < partitionCount && partitionIds.size() < fairShare &&
+                            taskPartitionDAO.renewLease(taskName, lease.getPartitionId(), nodeId, time + leaseTime)) {
+                        partitionIds.add(lease.getPartitionId());
+                    } else {
+                        taskPartitionDAO.releaseLease(taskName, lease.getPartitionId(), nodeId);
+                    }
+                }
+            }
+            for (TaskPartitionLease lease : leases) {
+                if (partitionIds.size() >= fairShare) {
+                    break;
+                }
+                if (lease.getPartitionId() < partitionCount && !nodeId.equals(lease.getOwnerId()) &&
+                        (lease.getOwnerId() == null || lease.getLeaseExpiry() <= time) &&
+                        taskPartitionDAO.acquireLease(taskName, lease.getPartitionId(), nodeId, time,
+                                time + leaseTime)) {
+                    partitionIds.add(lease.getPartitionId());
+                }
+            }
+            DeviceManagementDAOFactory.commitTransaction();
+        } catch (DeviceManagementDAOException e) {
+            DeviceManagementDAOFactory.rollbackTransaction();
+            log.error("Error occurred while leasing the partitions of task '" + taskName + "'", e);
+            partitionIds.clear();
+        } catch (TransactionManagementException e) {
+            log.error("Error occurred while initiating a transaction for leasing the partitions of task '" +
+                    taskName + "'", e);
+            partitionIds.clear();
+        } finally {
+            DeviceManagementDAOFactory.closeConnection();
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Node '" + nodeId + "' holds " + partitionIds.size() + " of " + partitionCount +
+                    " partitions of task '" + taskName + "'");
+        }
+        return new TaskPartitions(taskName, partitionCount, partitionIds);
+    }
+
+    /**
+     * Renews the leases of the partitions acquired for the current run of a task. Partitions of which the leases have
+     * expired and been taken over by other nodes are not returned, and no partitions are returned when the leases
+     * cannot be updated, so that the rest of the run does not write changes of partitions handled by other nodes.
+     *
+     * @param taskPartitions partitions acquired for the current run of the task
+     * @param taskInterval   time in milliseconds between the runs of the task
+     * @return partitions still held by this node
+     */
+    public TaskPartitions renewPartitions(TaskPartitions taskPartitions, long taskInterval) {
+        String taskName = taskPartitions.getTaskName();
+        long leaseExpiry = System.currentTimeMillis() + this.getLeaseTime(taskInterval);
+        Set<Integer> partitionIds = new HashSet<>();
+        TaskPartitionDAO taskPartitionDAO = DeviceManagementDAOFactory.getTaskPartitionDAO();
+        try {
+            DeviceManagementDAOFactory.beginTransaction();
+            for (Integer partitionId : taskPartitions.getPartitionIds()) {
+                if (taskPartitionDAO.renewLease(taskName, partitionId, nodeId, leaseExpiry)) {
+                    partitionIds.add(partitionId);
+                }
+            }
+            DeviceManagementDAOFactory.commitTransaction();
+        } catch (DeviceManagementDAOException e) {
+            DeviceManagementDAOFactory.rollbackTransaction();
+            log.error("Error occurred while renewing the partitions of task '" + taskName + "'", e);
+            partitionIds.clear();
+        } catch (TransactionManagementException e) {
+            log.error("Error occurred while initiating a transaction for renewing the partitions of task '" +
+                    taskName + "'", e);
+            partitionIds.clear();
+        } finally {
+            DeviceManagementDAOFactory.closeConnection();
+        }
+        if (partitionIds.size() < taskPartitions.getPartitionIds().size()) {
+            log.warn("Node '" + nodeId + "' lost " + (taskPartitions.getPartitionIds().size() - partitionIds.size()) +
+                    " partitions of task '" + taskName + "' during the run of the task");
+        }
+        return new TaskPartitions(taskName, partitionCount, partitionIds);
+    }
+
+    private long getLeaseTime(long taskInterval) {
+        return Math.max(leaseDuration, 2 * taskInterval);
+    }
+
+    /**
+     * Adds the partitions of a task which are not in the database yet. Partitions added concurrently by other nodes
+     * make the insert fail, which is ignored as the partitions are then read back on the next run.
+     */
+    private void initPartitions(String taskName) throws TransactionManagementException {
+        if (initializedTasks.contains(taskName)) {
+            return;
+        }
+        TaskPartitionDAO taskPartitionDAO = DeviceManagementDAOFactory.getTaskPartitionDAO();
+        try {
+            DeviceManagementDAOFactory.beginTransaction();
+            Set<Integer> existingPartitionIds = new HashSet<>();
+            for (TaskPartitionLease lease : taskPartitionDAO.getLeases(taskName)) {
+                existingPartitionIds.add(lease.getPartitionId());
+            }
+            List<Integer> missingPartitionIds = new ArrayList<>();
+            for (int partitionId = 0; partitionId < partitionCount; partitionId++) {
+                if (!existingPartitionIds.contains(partitionId)) {
+                    missingPartitionIds.add(partitionId);
+                }
+            }
+            if (!missingPartitionIds.isEmpty()) {
+                taskPartitionDAO.addPartitions(taskName, missingPartitionIds);
+            }
+            DeviceManagementDAOFactory.commitTransaction();
+            initializedTasks.add(taskName);
+        } catch (DeviceManagementDAOException e) {
+            DeviceManagementDAOFactory.rollbackTransaction();
+            if (log.isDebugEnabled()) {
+                log.debug("Partitions of task '" + taskName + "' could not be added, probably since they have " +
+                        "been added by another node", e);
+            }
+        } finally {
+            DeviceManagementDAOFactory.closeConnection();
+        }
+    }
+
+    /**
+     * Schedules a sharded task on this node, in the tenant flow of the calling thread.
+     *
+     * @param taskName     name of the task, which is the same in all the nodes
+     * @param task         task to be run, of which the properties have to be set
+     * @param taskInterval time in milliseconds between the runs of the task
+     * @return false if the task has already been scheduled
+     */
+    public synchronized boolean scheduleTask(String taskName, final Task task, long taskInterval) {
+        if (scheduledTasks.containsKey(taskName)) {
+            return false;
+        }
+        final int tenantId = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId();
+        final String tenantDomain = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantDomain();
+        final String name = taskName;
+        task.init();
+        ScheduledFuture<?> future = this.getExecutor().scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    PrivilegedCarbonContext.startTenantFlow();
+                    PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantId(tenantId);
+                    PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantDomain(tenantDomain);
+                    task.execute();
+                } catch (RuntimeException e) {
+                    log.error("Error occurred while running the task '" + name + "'", e);
+                } finally {
+                    PrivilegedCarbonContext.endTenantFlow();
+                }
+            }
+        }, taskInterval, taskInterval, TimeUnit.MILLISECONDS);
+        scheduledTasks.put(taskName, future);
+        return true;
+    }
+
+    /**
+     * @return false if the task has not been scheduled
+     */
+    public synchronized boolean cancelTask(String taskName) {
+        ScheduledFuture<?> future = scheduledTasks.remove(taskName);
+        if (future == null) {
+            return false;
+        }
+        future.cancel(false);
+        return true;
+    }
+
+    public boolean isTaskScheduled(String taskName) {
+        return scheduledTasks.containsKey(taskName);
+    }
+
+    /**
+     * Stops the sharded tasks of this node and releases the partitions it holds, so that the other nodes take them
+     * over without waiting for the leases to expire.
+     */
+    public synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        scheduledTasks.clear();
+        TaskPartitionDAO taskPartitionDAO = DeviceManagementDAOFactory.getTaskPartitionDAO();
+        try {
+            DeviceManagementDAOFactory.beginTransaction();
+            taskPartitionDAO.releaseLeases(nodeId);
+            taskPartitionDAO.removeMember(nodeId);
+            DeviceManagementDAOFactory.commitTransaction();
+        } catch (DeviceManagementDAOException e) {
+            DeviceManagementDAOFactory.rollbackTransaction();
+            log.error("Error occurred while releasing the task partitions of node '" + nodeId + "'", e);
+        } catch (TransactionManagementException e) {
+            log.error("Error occurred while initiating a transaction for releasing the task partitions of node '" +
+                    nodeId + "'", e);
+        } finally {
+            DeviceManagementDAOFactory.closeConnection();
+        }
+    }
+
+    private ScheduledExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newScheduledThreadPool(THREAD_POOL_SIZE, new ThreadFactory() {
+                private final AtomicInteger threadCount = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "DeviceTaskPartition-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return executor;
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.task.partition;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Partitions of a sharded task held by this node for one run of the task. Enrolments are assigned to the partitions
+ * by their ids.
+ */
+public class TaskPartitions {
+
+    private final String taskName;
+    private final int partitionCount;
+    private final Set<Integer> partitionIds;
+
+    public TaskPartitions(String taskName, int partitionCount, Set<Integer> partitionIds) {
+        this.taskName = taskName;
+        this.partitionCount = partitionCount;
+        this.partitionIds = Collections.unmodifiableSet(new HashSet<>(partitionIds));
+    }
+
+    /**
+     * @return true if the enrolment with the given id falls into one of the partitions held by this node
+     */
+    public boolean contains(int enrolmentId) {
+        return partitionIds.contains(getPartitionId(enrolmentId, partitionCount));
+    }
+
+    public boolean isEmpty() {
+        return partitionIds.isEmpty();
+    }
+
+    public String getTaskName() {
+        return taskName;
+    }
+
+    public int getPartitionCount() {
+        return partitionCount;
+    }
+
+    public Set<Integer> getPartitionIds() {
+        return partitionIds;
+    }
+
+    public static int getPartitionId(int enrolmentId, int partitionCount) {
+        return (enrolmentId & 0x7fffffff) % partitionCount;
+    }
+}
@@ -37,8 +37,12 @@ import org.wso2.carbon.device.mgt.common.operation.mgt.OperationManagementExcept
 import org.wso2.carbon.device.mgt.common.type.mgt.DeviceTypeMetaDefinition;
 import org.wso2.carbon.device.mgt.core.DeviceManagementConstants;
 import org.wso2.carbon.device.mgt.core.cache.DeviceCacheKey;
+import org.wso2.carbon.device.mgt.core.cache.PendingOperationCacheEntry;
+import org.wso2.carbon.device.mgt.core.cache.PendingOperationCacheKey;
+import org.wso2.carbon.device.mgt.core.cache.impl.DeviceCacheManagerImpl;
 import org.wso2.carbon.device.mgt.core.config.DeviceConfigurationManager;
 import org.wso2.carbon.device.mgt.core.config.DeviceManagementConfig;
+import org.wso2.carbon.device.mgt.core.config.cache.PendingOperationCacheConfiguration;
 import org.wso2.carbon.device.mgt.core.config.datasource.DataSourceConfig;
 import org.wso2.carbon.device.mgt.core.config.datasource.JNDILookupDefinition;
 import org.wso2.carbon.device.mgt.core.dao.DeviceManagementDAOException;
@@ -78,6 +82,7 @@ public final class DeviceManagerUtil {
     private static final Log log = LogFactory.getLog(DeviceManagerUtil.class);
 
     private  static boolean isDeviceCacheInitialized = false;
+    private static volatile boolean isPendingOperationCacheInitialized = false;
 
     public static Document convertToDocument(File file) throws DeviceManagementException {
         DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
@@ -208,6 +213,7 @@ public final class DeviceManagerUtil {
                 deviceTypeDAO.removeDeviceType(typeName, tenantId);
             }
             DeviceManagementDAOFactory.commitTransaction();
+            DeviceCacheManagerImpl.getInstance().removeDevicesFromCache(typeName, tenantId);
             return true;
         } catch (DeviceManagementDAOException e) {
             DeviceManagementDAOFactory.rollbackTransaction();
@@ -588,4 +594,47 @@ public final class DeviceManagerUtil {
         }
         return deviceCache;
     }
+
+    public static synchronized void initializePendingOperationCache() {
+        PendingOperationCacheConfiguration cacheConfig = DeviceConfigurationManager.getInstance().
+                getDeviceManagementConfig().getPendingOperationCacheConfiguration();
+        if (!cacheConfig.isEnabled() || isPendingOperationCacheInitialized) {
+            return;
+        }
+        CacheManager manager = getCacheManager();
+        if (manager == null) {
+            manager = Caching.getCacheManager(DeviceManagementConstants.DM_CACHE_MANAGER);
+        }
+        if (cacheConfig.getExpiryTime() > 0) {
+            CacheConfiguration.Duration expiry = new CacheConfiguration.Duration(TimeUnit.SECONDS,
+                    cacheConfig.getExpiryTime());
+            manager.<PendingOperationCacheKey, PendingOperationCacheEntry>createCacheBuilder(
+                    DeviceManagementConstants.PENDING_OPERATION_CACHE).
+                    setExpiry(CacheConfiguration.ExpiryType.MODIFIED, expiry).
+                    setExpiry(CacheConfiguration.ExpiryType.ACCESSED, expiry).setStoreByValue(true).build();
+            if (cacheConfig.getCapacity() > 0) {
+                ((CacheImpl) (manager.<PendingOperationCacheKey, PendingOperationCacheEntry>getCache(
+                        DeviceManagementConstants.PENDING_OPERATION_CACHE))).setCapacity(cacheConfig.getCapacity());
+            }
+        } else {
+            manager.<PendingOperationCacheKey, PendingOperationCacheEntry>getCache(
+                    DeviceManagementConstants.PENDING_OPERATION_CACHE);
+        }
+        isPendingOperationCacheInitialized = true;
+    }
+
+    public static Cache<PendingOperationCacheKey, PendingOperationCacheEntry> getPendingOperationCache() {
+        DeviceManagementConfig config = DeviceConfigurationManager.getInstance().getDeviceManagementConfig();
+        if (config == null || !config.getPendingOperationCacheConfiguration().isEnabled()) {
+            return null;
+        }
+        if (!isPendingOperationCacheInitialized) {
+            initializePendingOperationCache();
+        }
+        CacheManager manager = getCacheManager();
+        if (manager == null) {
+            manager = Caching.getCacheManager(DeviceManagementConstants.DM_CACHE_MANAGER);
+        }
+        return manager.getCache(DeviceManagementConstants.PENDING_OPERATION_CACHE);
+    }
 }
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.archival;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.device.mgt.core.archival.dao.ArchivalDestinationDAOFactory;
+import org.wso2.carbon.device.mgt.core.archival.dao.ArchivalSourceDAOFactory;
+import org.wso2.carbon.device.mgt.core.common.BaseDeviceManagementTest;
+import org.wso2.carbon.device.mgt.core.config.DeviceConfigurationManager;
+import org.wso2.carbon.device.mgt.core.config.archival.ArchivalTaskConfiguration;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class contains unit tests to test {@link ArchivalServiceImpl} class.
+ */
+public class ArchivalServiceImplTest extends BaseDeviceManagementTest {
+
+    private static final int OLD_OPERATION_COUNT = 5;
+    private static final int BATCH_SIZE = 2;
+
+    private DataSource dataSource;
+    private ArchivalTaskConfiguration configuration;
+    private int defaultBatchSize;
+    private List<Integer> oldOperationIds = new ArrayList<>();
+    private int recentOperationId;
+
+    @BeforeClass
+    @Override
+    public void init() throws Exception {
+        DeviceConfigurationManager.getInstance().initConfig();
+        configuration = DeviceConfigurationManager.getInstance().getDeviceManagementConfig()
+                .getArchivalConfiguration().getArchivalTaskConfiguration();
+        defaultBatchSize = configuration.getBatchSize();
+        configuration.setBatchSize(BATCH_SIZE);
+        dataSource = this.getDataSource(this.readDataSourceConfig(getDatasourceLocation() + DATASOURCE_EXT));
+        ArchivalSourceDAOFactory.init(dataSource);
+        ArchivalDestinationDAOFactory.init(dataSource);
+
+        long createdAt = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(configuration.getRetentionPeriod() * 2);
+        for (int i = 0; i < OLD_OPERATION_COUNT; i++) {
+            oldOperationIds.add(this.addCommandOperation(new Timestamp(createdAt)));
+        }
+        recentOperationId = this.addCommandOperation(new Timestamp(System.currentTimeMillis()));
+    }
+
+    @AfterClass
+    public void cleanup() {
+        configuration.setBatchSize(defaultBatchSize);
+    }
+
+    @Test(description = "Tests whether operations older than the retention period are moved to the archival tables")
+    public void testArchiveTransactionalRecords() throws Exception {
+        new ArchivalServiceImpl().archiveTransactionalRecords();
+        for (int operationId : oldOperationIds) {
+            Assert.assertEquals(this.count("DM_OPERATION", "ID", operationId), 0,
+                    "Operation " + operationId + " is not removed from the transactional table");
+            Assert.assertEquals(this.count("DM_COMMAND_OPERATION", "OPERATION_ID", operationId), 0);
+            Assert.assertEquals(this.count("DM_OPERATION_ARCH", "ID", operationId), 1,
+                    "Operation " + operationId + " is not archived");
+            Assert.assertEquals(this.count("DM_COMMAND_OPERATION_ARCH", "OPERATION_ID", operationId), 1);
+        }
+        Assert.assertEquals(this.count("DM_OPERATION", "ID", recentOperationId), 1,
+                "Operation within the retention period is archived");
+        Assert.assertEquals(this.count("DM_OPERATION_ARCH", "ID", recentOperationId), 0);
+    }
+
+    @Test(description = "Tests whether a second run does not archive anything again",
+            dependsOnMethods = "testArchiveTransactionalRecords")
+    public void testArchiveTransactionalRecordsWithNothingToArchive() throws Exception {
+        new ArchivalServiceImpl().archiveTransactionalRecords();
+        Assert.assertEquals(this.count("DM_OPERATION", "ID", recentOperationId), 1);
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM DM_ARCHIVED_OPERATIONS")) {
+            Assert.assertTrue(rs.next());
+            Assert.assertEquals(rs.getInt(1), 0, "Claimed operations are left behind after archival");
+        }
+    }
+
+    private int addCommandOperation(Timestamp createdAt) throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            int operationId;
+            try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO DM_OPERATION (TYPE, CREATED_TIMESTAMP, " +
+                    "OPERATION_CODE) VALUES ('COMMAND', ?, 'ARCHIVAL_TEST')", new String[]{"id"})) {
+                stmt.setTimestamp(1, createdAt);
+                stmt.executeUpdate();
+                try (ResultSet rs = stmt.getGeneratedKeys()) {
+                    Assert.assertTrue(rs.next());
+                    operationId = rs.getInt(1);
+                }
+            }
+            try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO DM_COMMAND_OPERATION (OPERATION_ID, " +
+                    "ENABLED) VALUES (?, ?)")) {
+                stmt.setInt(1, operationId);
+                stmt.setBoolean(2, true);
+                stmt.executeUpdate();
+            }
+            return operationId;
+        }
+    }
+
+    private int count(String table, String keyColumn, int id) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM " + table + " WHERE " + keyColumn +
+                     " = ?")) {
+            stmt.setInt(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                Assert.assertTrue(rs.next());
+                return rs.getInt(1);
+            }
+        }
+    }
+
+}
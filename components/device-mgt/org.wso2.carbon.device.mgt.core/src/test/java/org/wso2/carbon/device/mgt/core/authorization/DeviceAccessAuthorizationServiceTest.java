@@ -339,6 +339,24 @@ public class DeviceAccessAuthorizationServiceTest {
                 "Non admin user try authentication without permission failed");
     }
 
+    @Test(description = "Check authorization of owned and not owned devices without giving permissions",
+            dependsOnMethods = "nonAdminDeviceOwner")
+    public void userAuthOwnedDevicesWithoutPermissions() throws DeviceAccessAuthorizationException {
+        DeviceIdentifier ownedDeviceIdentifier = new DeviceIdentifier("1234", DEVICE_TYPE);
+        List<DeviceIdentifier> tempList = new ArrayList<>(deviceIds);
+        tempList.add(ownedDeviceIdentifier);
+
+        PrivilegedCarbonContext.getThreadLocalCarbonContext().setUsername(NON_ADMIN_ALLOWED_USER);
+        DeviceAuthorizationResult deviceAuthorizationResult = deviceAccessAuthorizationService.
+                isUserAuthorized(tempList, NON_ADMIN_ALLOWED_USER, null);
+        Assert.assertEquals(deviceAuthorizationResult.getAuthorizedDevices().size(), 1,
+                "Non admin device owner failed to access owned device");
+        Assert.assertEquals(deviceAuthorizationResult.getAuthorizedDevices().get(0).getId(),
+                ownedDeviceIdentifier.getId(), "Non admin device owner authorized to access a wrong device");
+        Assert.assertEquals(deviceAuthorizationResult.getUnauthorizedDevices().size(), 5,
+                "Non admin user authorized to access not owned devices without permission");
+    }
+
     //check Exception cases
     @Test(description = "check a null username in isUserAuthorized method")
     public void callUserAuthWithoutUsername() throws DeviceAccessAuthorizationException {
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.device.mgt.core.cache;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.carbon.device.mgt.common.Device;
+import org.wso2.carbon.device.mgt.common.EnrolmentInfo;
+import org.wso2.carbon.device.mgt.common.Feature;
+import org.wso2.carbon.device.mgt.common.app.mgt.Application;
+import org.wso2.carbon.device.mgt.common.device.details.DeviceInfo;
+import org.wso2.carbon.device.mgt.common.device.details.DeviceLocation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * This class contains unit tests to test {@link LocalDeviceCache} class.
+ */
+public class LocalDeviceCacheTest {
+
+    private static final String DEVICE_TYPE = "TEST_TYPE";
+    private static final String OTHER_DEVICE_TYPE = "OTHER_TYPE";
+    private static final int TENANT_ID = -1234;
+
+    @Test(description = "Tests whether devices are copied when added to and fetched from the cache")
+    public void testGetAndPut() {
+        LocalDeviceCache cache = new LocalDeviceCache(100, 60000);
+        DeviceCacheKey key = new DeviceCacheKey("device-1", DEVICE_TYPE, TENANT_ID);
+        Assert.assertNull(cache.get(key));
+
+        Device device = this.getDevice("device-1", DEVICE_TYPE);
+        cache.put(key, device);
+        device.setName("modified");
+        device.getEnrolmentInfo().setStatus(EnrolmentInfo.Status.REMOVED);
+
+        Device cached = cache.get(key);
+        Assert.assertNotNull(cached);
+        Assert.assertEquals(cached.getName(), "device-1");
+        Assert.assertEquals(cached.getEnrolmentInfo().getStatus(), EnrolmentInfo.Status.ACTIVE);
+        cached.setName("modified");
+        Assert.assertEquals(cache.get(key).getName(), "device-1");
+        Assert.assertEquals(cache.get(new DeviceCacheKey("device-1", DEVICE_TYPE, TENANT_ID)).getId(),
+                device.getId());
+
+        Assert.assertEquals(cache.getMissCount(), 1);
+        Assert.assertEquals(cache.getHitCount(), 3);
+        cache.resetStatistics();
+        Assert.assertEquals(cache.getHitCount(), 0);
+    }
+
+    @Test(description = "Tests whether the mutable parts of cached devices are not shared with the callers")
+    public void testDeepCopy() {
+        LocalDeviceCache cache = new LocalDeviceCache(100, 60000);
+        DeviceCacheKey key = new DeviceCacheKey("device-1", DEVICE_TYPE, TENANT_ID);
+        Device device = this.getDevice("device-1", DEVICE_TYPE);
+        Device.Property property = new Device.Property();
+        property.setName("IMEI");
+        property.setValue("351756051523999");
+        List<Device.Property> properties = new ArrayList<>();
+        properties.add(property);
+        device.setProperties(properties);
+        Feature feature = new Feature();
+        feature.setCode("DEVICE_LOCK");
+        List<Feature> features = new ArrayList<>();
+        features.add(feature);
+        device.setFeatures(features);
+        Application application = new Application();
+        application.setName("app");
+        application.setAppProperties(new Properties());
+        List<Application> applications = new ArrayList<>();
+        applications.add(application);
+        device.setApplications(applications);
+        DeviceInfo deviceInfo = new DeviceInfo();
+        deviceInfo.setOsVersion("8.0");
+        deviceInfo.getDeviceDetailsMap().put("key", "value");
+        DeviceLocation location = new DeviceLocation();
+        location.setLatitude(6.9);
+        deviceInfo.setLocation(location);
+        device.setDeviceInfo(deviceInfo);
+        cache.put(key, device);
+
+        Device cached = cache.get(key);
+        cached.getProperties().get(0).setValue("modified");
+        cached.getFeatures().get(0).setCode("modified");
+        cached.getApplications().get(0).setName("modified");
+        cached.getApplications().get(0).getAppProperties().setProperty("key", "modified");
+        cached.getDeviceInfo().setOsVersion("modified");
+        cached.getDeviceInfo().getDeviceDetailsMap().put("key", "modified");
+        cached.getDeviceInfo().getLocation().setLatitude(0.0);
+        cached.getDeviceInfo().getUpdatedTime().setTime(0);
+
+        Device fetched = cache.get(key);
+        Assert.assertEquals(fetched.getProperties().get(0).getValue(), "351756051523999");
+        Assert.assertEquals(fetched.getFeatures().get(0).getCode(), "DEVICE_LOCK");
+        Assert.assertEquals(fetched.getApplications().get(0).getName(), "app");
+        Assert.assertNull(fetched.getApplications().get(0).getAppProperties().getProperty("key"));
+        Assert.assertEquals(fetched.getDeviceInfo().getOsVersion(), "8.0");
+        Assert.assertEquals(fetched.getDeviceInfo().getDeviceDetailsMap().get("key"), "value");
+        Assert.assertEquals(fetched.getDeviceInfo().getLocation().getLatitude(), 6.9);
+        Assert.assertNotEquals(fetched.getDeviceInfo().getUpdatedTime().getTime(), 0L);
+
+        property.setValue("modified");
+        deviceInfo.setOsVersion("modified");
+        Assert.assertEquals(cache.get(key).getProperties().get(0).getValue(), "351756051523999");
+        Assert.assertEquals(cache.get(key).getDeviceInfo().getOsVersion(), "8.0");
+    }
+
+    @Test(description = "Tests whether the least recently used devices are evicted once the capacity is reached")
+    public void testEviction() {
+        LocalDeviceCache cache = new LocalDeviceCache(32, 60000);
+        for (int i = 0; i < 320; i++) {
+            cache.put(new DeviceCacheKey("device-" + i, DEVICE_TYPE, TENANT_ID),
+                    this.getDevice("device-" + i, DEVICE_TYPE));
+        }
+        Assert.assertTrue(cache.getSize() <= 32, "Cache has grown beyond its capacity");
+        Assert.assertEquals(cache.getEvictionCount(), 320 - cache.getSize());
+    }
+
+    @Test(description = "Tests whether devices expire after the expiry time")
+    public void testExpiry() throws InterruptedException {
+        LocalDeviceCache cache = new LocalDeviceCache(100, 10);
+        DeviceCacheKey key = new DeviceCacheKey("device-1", DEVICE_TYPE, TENANT_ID);
+        cache.put(key, this.getDevice("device-1", DEVICE_TYPE));
+        Thread.sleep(50);
+        Assert.assertNull(cache.get(key));
+        Assert.assertEquals(cache.getExpirationCount(), 1);
+    }
+
+    @Test(description = "Tests whether devices are removed in bulk by tenant and device type")
+    public void testRemoveAll() {
+        LocalDeviceCache cache = new LocalDeviceCache(100, 60000);
+        DeviceCacheKey key = new DeviceCacheKey("device-1", DEVICE_TYPE, TENANT_ID);
+        DeviceCacheKey otherTypeKey = new DeviceCacheKey("device-2", OTHER_DEVICE_TYPE, TENANT_ID);
+        DeviceCacheKey otherTenantKey = new DeviceCacheKey("device-1", DEVICE_TYPE, 1);
+        cache.put(key, this.getDevice("device-1", DEVICE_TYPE));
+        cache.put(otherTypeKey, this.getDevice("device-2", OTHER_DEVICE_TYPE));
+        cache.put(otherTenantKey, this.getDevice("device-1", DEVICE_TYPE));
+
+        cache.removeAll(DEVICE_TYPE, TENANT_ID);
+        Assert.assertNull(cache.get(key));
+        Assert.assertNotNull(cache.get(otherTypeKey));
+        Assert.assertNotNull(cache.get(otherTenantKey));
+
+        cache.removeAll(null, TENANT_ID);
+        Assert.assertNull(cache.get(otherTypeKey));
+        Assert.assertNotNull(cache.get(otherTenantKey));
+    }
+
+    private Device getDevice(String deviceId, String deviceType) {
+        EnrolmentInfo enrolmentInfo = new EnrolmentInfo("admin", EnrolmentInfo.OwnerShip.BYOD,
+                EnrolmentInfo.Status.ACTIVE);
+        enrolmentInfo.setId(deviceId.hashCode());
+        Device device = new Device(deviceId, deviceType, "Test device", deviceId, enrolmentInfo, null, null);
+        device.setId(deviceId.hashCode());
+        return device;
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.device.mgt.core.cache;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.device.mgt.common.DeviceManagementException;
+import org.wso2.carbon.device.mgt.core.cache.impl.PendingOperationCacheManagerImpl;
+import org.wso2.carbon.device.mgt.core.common.BaseDeviceManagementTest;
+import org.wso2.carbon.device.mgt.core.config.DeviceConfigurationManager;
+import org.wso2.carbon.device.mgt.core.config.cache.PendingOperationCacheConfiguration;
+import org.wso2.carbon.device.mgt.core.util.DeviceManagerUtil;
+import org.wso2.carbon.utils.multitenancy.MultitenantConstants;
+
+import java.io.File;
+import java.util.Collections;
+
+/**
+ * This class contains unit tests to test {@link PendingOperationCacheManagerImpl} class.
+ */
+public class PendingOperationCacheManagerImplTest extends BaseDeviceManagementTest {
+
+    private static final int ENROLMENT_ID = 1001;
+    private static final int TENANT_ID = MultitenantConstants.SUPER_TENANT_ID;
+    private PendingOperationCacheManager cacheManager;
+
+    @BeforeClass
+    public void init() throws DeviceManagementException {
+        DeviceConfigurationManager.getInstance().initConfig();
+        PendingOperationCacheConfiguration configuration = new PendingOperationCacheConfiguration();
+        configuration.setEnabled(true);
+        DeviceConfigurationManager.getInstance().getDeviceManagementConfig()
+                .setPendingOperationCacheConfiguration(configuration);
+        if (System.getProperty("carbon.home") == null) {
+            File file = new File("src/test/resources");
+            if (file.exists()) {
+                System.setProperty("carbon.home", file.getAbsolutePath());
+            }
+        }
+        PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantDomain(
+                org.wso2.carbon.base.MultitenantConstants.SUPER_TENANT_DOMAIN_NAME);
+        PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantId(
+                org.wso2.carbon.base.MultitenantConstants.SUPER_TENANT_ID);
+        cacheManager = PendingOperationCacheManagerImpl.getInstance();
+    }
+
+    @AfterClass
+    public void cleanup() {
+        DeviceConfigurationManager.getInstance().getDeviceManagementConfig()
+                .getPendingOperationCacheConfiguration().setEnabled(false);
+    }
+
+    @Test(description = "Tests whether an empty inbox is recorded when nothing was cached before")
+    public void testMarkEmpty() {
+        Assert.assertNull(cacheManager.getEntry(ENROLMENT_ID, TENANT_ID));
+        cacheManager.markEmpty(ENROLMENT_ID, TENANT_ID, null, false);
+        Assert.assertNull(cacheManager.getEntry(ENROLMENT_ID, TENANT_ID), "Inbox is recorded as empty without " +
+                "an entry read before");
+        PendingOperationCacheEntry observed = cacheManager.getOrAddEntry(ENROLMENT_ID, TENANT_ID);
+        Assert.assertNotNull(observed);
+        Assert.assertFalse(observed.isEmpty(false), "Inbox of a new entry is recorded as empty");
+        cacheManager.markEmpty(ENROLMENT_ID, TENANT_ID, observed, false);
+        PendingOperationCacheEntry entry = cacheManager.getEntry(ENROLMENT_ID, TENANT_ID);
+        Assert.assertNotNull(entry);
+        Assert.assertTrue(entry.isEmpty(false), "Inbox is not recorded as empty");
+        Assert.assertFalse(entry.isEmpty(true), "Inbox is recorded as empty although NOTNOW operations were not " +
+                "checked");
+    }
+
+    @Test(description = "Tests whether invalidation clears an empty inbox", dependsOnMethods = "testMarkEmpty")
+    public void testInvalidate() {
+        cacheManager.invalidate(Collections.singletonList(ENROLMENT_ID), TENANT_ID);
+        PendingOperationCacheEntry entry = cacheManager.getEntry(ENROLMENT_ID, TENANT_ID);
+        Assert.assertNotNull(entry);
+        Assert.assertFalse(entry.isEmpty(false), "Inbox is still recorded as empty after invalidation");
+    }
+
+    @Test(description = "Tests whether an empty result read before an invalidation is discarded",
+            dependsOnMethods = "testInvalidate")
+    public void testStaleMarkEmpty() {
+        PendingOperationCacheEntry observed = cacheManager.getEntry(ENROLMENT_ID, TENANT_ID);
+        cacheManager.invalidate(Collections.singletonList(ENROLMENT_ID), TENANT_ID);
+        cacheManager.markEmpty(ENROLMENT_ID, TENANT_ID, observed, true);
+        Assert.assertFalse(cacheManager.getEntry(ENROLMENT_ID, TENANT_ID).isEmpty(false),
+                "Stale empty result has been recorded");
+
+        observed = cacheManager.getEntry(ENROLMENT_ID, TENANT_ID);
+        cacheManager.markEmpty(ENROLMENT_ID, TENANT_ID, observed, true);
+        Assert.assertTrue(cacheManager.getEntry(ENROLMENT_ID, TENANT_ID).isEmpty(true),
+                "Inbox is not recorded as empty");
+    }
+
+    @Test(description = "Tests whether an empty result is discarded when the entry read before has been removed",
+            dependsOnMethods = "testStaleMarkEmpty")
+    public void testMarkEmptyAfterRemoval() {
+        cacheManager.invalidate(Collections.singletonList(ENROLMENT_ID), TENANT_ID);
+        PendingOperationCacheEntry observed = cacheManager.getEntry(ENROLMENT_ID, TENANT_ID);
+        DeviceManagerUtil.getPendingOperationCache().remove(new PendingOperationCacheKey(ENROLMENT_ID, TENANT_ID));
+        cacheManager.markEmpty(ENROLMENT_ID, TENANT_ID, observed, true);
+        Assert.assertNull(cacheManager.getEntry(ENROLMENT_ID, TENANT_ID), "Empty result has been recorded after " +
+                "the entry was removed");
+    }
+}
@@ -34,6 +34,7 @@ import org.wso2.carbon.device.mgt.core.common.TestDataHolder;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 public class GroupPersistTests extends BaseDeviceManagementTest {
 
@@ -235,6 +236,61 @@ public class GroupPersistTests extends BaseDeviceManagementTest {
         }
     }
 
+    @Test(dependsOnMethods = {"addGroupTest"})
+    public void getGroupsOfDevicesTest() {
+        Device initialTestDevice = TestDataHolder.initialTestDevice;
+        DeviceGroup deviceGroup = TestDataHolder.generateDummyGroupData();
+        deviceGroup.setName("Test groups of devices");
+        List<Integer> deviceIds = new ArrayList<>();
+        deviceIds.add(initialTestDevice.getId());
+        try {
+            // The device is added to a group of its own, so that the other tests can remove it from the shared group
+            GroupManagementDAOFactory.beginTransaction();
+            int devicesGroupId = groupDAO.addGroup(deviceGroup, TestDataHolder.SUPER_TENANT_ID);
+            groupDAO.addDevice(devicesGroupId, initialTestDevice.getId(), TestDataHolder.SUPER_TENANT_ID);
+            GroupManagementDAOFactory.commitTransaction();
+            GroupManagementDAOFactory.closeConnection();
+
+            GroupManagementDAOFactory.openConnection();
+            Map<Integer, List<DeviceGroup>> groupsOfDevices =
+                    groupDAO.getGroupsOfDevices(deviceIds, TestDataHolder.SUPER_TENANT_ID);
+            GroupManagementDAOFactory.closeConnection();
+            if (!isMock()) {
+                List<DeviceGroup> groups = groupsOfDevices.get(initialTestDevice.getId());
+                Assert.assertNotNull(groups, "Groups of the device are not found");
+                boolean isGroupFound = false;
+                for (DeviceGroup group : groups) {
+                    if (group.getGroupId() == devicesGroupId) {
+                        isGroupFound = true;
+                    }
+                }
+                Assert.assertTrue(isGroupFound, "Group of the device is not found");
+            }
+
+            GroupManagementDAOFactory.beginTransaction();
+            groupDAO.removeDevice(devicesGroupId, initialTestDevice.getId(), TestDataHolder.SUPER_TENANT_ID);
+            groupDAO.deleteGroup(devicesGroupId, TestDataHolder.SUPER_TENANT_ID);
+            GroupManagementDAOFactory.commitTransaction();
+            GroupManagementDAOFactory.closeConnection();
+        } catch (GroupManagementDAOException e) {
+            GroupManagementDAOFactory.rollbackTransaction();
+            GroupManagementDAOFactory.closeConnection();
+            String msg = "Error occurred while retrieving groups of devices.";
+            log.error(msg, e);
+            Assert.fail(msg, e);
+        } catch (TransactionManagementException e) {
+            GroupManagementDAOFactory.closeConnection();
+            String msg = "Error occurred while initiating transaction.";
+            log.error(msg, e);
+            Assert.fail(msg, e);
+        } catch (SQLException e) {
+            GroupManagementDAOFactory.closeConnection();
+            String msg = "Error occurred while opening a connection to the data source.";
+            log.error(msg, e);
+            Assert.fail(msg, e);
+        }
+    }
+
     @Test(dependsOnMethods = {"addDeviceToGroupTest"})
     public void removeDeviceFromGroupTest() {
         Device initialTestDevice = TestDataHolder.initialTestDevice;
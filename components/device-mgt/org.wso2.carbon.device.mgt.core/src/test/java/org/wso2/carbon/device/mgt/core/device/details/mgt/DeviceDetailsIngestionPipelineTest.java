@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.device.details.mgt;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.device.mgt.common.Device;
+import org.wso2.carbon.device.mgt.common.EnrolmentInfo;
+import org.wso2.carbon.device.mgt.common.device.details.DeviceInfo;
+import org.wso2.carbon.device.mgt.common.device.details.DeviceLocation;
+import org.wso2.carbon.device.mgt.core.common.BaseDeviceManagementTest;
+import org.wso2.carbon.device.mgt.core.common.TestDataHolder;
+import org.wso2.carbon.device.mgt.core.config.details.DeviceDetailsIngestionConfiguration;
+import org.wso2.carbon.device.mgt.core.dao.DeviceDAO;
+import org.wso2.carbon.device.mgt.core.dao.DeviceManagementDAOFactory;
+import org.wso2.carbon.device.mgt.core.dao.DeviceTypeDAO;
+import org.wso2.carbon.device.mgt.core.device.details.mgt.dao.DeviceDetailsDAO;
+import org.wso2.carbon.device.mgt.core.dto.DeviceType;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * This class contains unit tests to test {@link DeviceDetailsIngestionPipeline} class.
+ */
+public class DeviceDetailsIngestionPipelineTest extends BaseDeviceManagementTest {
+
+    private static final String DEVICE_TYPE = "DETAILS_INGESTION_TYPE";
+    private static final int DEVICE_COUNT = 3;
+    private static final int BATCH_SIZE = 2;
+
+    private DeviceDetailsIngestionPipeline pipeline;
+    private List<Device> devices = new ArrayList<>();
+
+    @BeforeClass
+    @Override
+    public void init() throws Exception {
+        DeviceTypeDAO deviceTypeDAO = DeviceManagementDAOFactory.getDeviceTypeDAO();
+        DeviceDAO deviceDAO = DeviceManagementDAOFactory.getDeviceDAO();
+        try {
+            DeviceManagementDAOFactory.beginTransaction();
+            DeviceType deviceType = TestDataHolder.generateDeviceTypeData(DEVICE_TYPE);
+            deviceTypeDAO.addDeviceType(deviceType, TestDataHolder.SUPER_TENANT_ID, true);
+            int deviceTypeId = deviceTypeDAO.getDeviceType(DEVICE_TYPE, TestDataHolder.SUPER_TENANT_ID).getId();
+            for (int i = 0; i < DEVICE_COUNT; i++) {
+                EnrolmentInfo enrolmentInfo = TestDataHolder.generateEnrollmentInfo(new Date().getTime(),
+                        new Date().getTime(), TestDataHolder.OWNER, EnrolmentInfo.OwnerShip.BYOD,
+                        EnrolmentInfo.Status.ACTIVE);
+                Device device = TestDataHolder.generateDummyDeviceData("ingestion-" + i, DEVICE_TYPE,
+                        enrolmentInfo);
+                device.setId(deviceDAO.addDevice(deviceTypeId, device, TestDataHolder.SUPER_TENANT_ID));
+                enrolmentInfo.setId(deviceDAO.addEnrollment(device, TestDataHolder.SUPER_TENANT_ID));
+                devices.add(device);
+            }
+            DeviceManagementDAOFactory.commitTransaction();
+        } catch (Exception e) {
+            DeviceManagementDAOFactory.rollbackTransaction();
+            throw e;
+        } finally {
+            DeviceManagementDAOFactory.closeConnection();
+        }
+        DeviceDetailsIngestionConfiguration config = new DeviceDetailsIngestionConfiguration();
+        config.setFlushIntervalMills(60000);
+        config.setBatchSize(BATCH_SIZE);
+        pipeline = new DeviceDetailsIngestionPipeline(config);
+    }
+
+    @Test(description = "Tests whether the latest update of each enrolment is written by a flush")
+    public void testFlushCoalescedUpdates() throws Exception {
+        Device device = devices.get(0);
+        pipeline.submitDeviceInfo(device, this.getDeviceInfo("FIRST_MODEL"), TestDataHolder.SUPER_TENANT_ID);
+        pipeline.submitDeviceInfo(device, this.getDeviceInfo("LATEST_MODEL"), TestDataHolder.SUPER_TENANT_ID);
+        pipeline.submitDeviceLocation(device, this.getLocation(device, 6.9), TestDataHolder.SUPER_TENANT_ID);
+        Assert.assertEquals(pipeline.getPendingCount(), 1);
+        Assert.assertEquals(pipeline.getCoalescedCount(), 1);
+
+        pipeline.flush();
+        Assert.assertEquals(pipeline.getPendingCount(), 0);
+        Assert.assertEquals(pipeline.getWrittenCount(), 1);
+        Assert.assertEquals(pipeline.getFailedCount(), 0);
+
+        DeviceDetailsDAO deviceDetailsDAO = DeviceManagementDAOFactory.getDeviceDetailsDAO();
+        try {
+            DeviceManagementDAOFactory.openConnection();
+            DeviceInfo deviceInfo = deviceDetailsDAO.getDeviceInformation(device.getId(),
+                    device.getEnrolmentInfo().getId());
+            Assert.assertNotNull(deviceInfo, "Device information is not written");
+            Assert.assertEquals(deviceInfo.getDeviceModel(), "LATEST_MODEL");
+            Assert.assertEquals(deviceDetailsDAO.getDeviceProperties(device.getId(),
+                    device.getEnrolmentInfo().getId()).get("IMEI"), "LATEST_MODEL-IMEI");
+            DeviceLocation location = deviceDetailsDAO.getDeviceLocation(device.getId(),
+                    device.getEnrolmentInfo().getId());
+            Assert.assertNotNull(location, "Device location is not written");
+            Assert.assertEquals(location.getLatitude(), 6.9);
+        } finally {
+            DeviceManagementDAOFactory.closeConnection();
+        }
+    }
+
+    @Test(description = "Tests whether updates of many enrolments are written in batches and replace the " +
+            "previously written updates", dependsOnMethods = "testFlushCoalescedUpdates")
+    public void testFlushInBatches() throws Exception {
+        for (Device device : devices) {
+            pipeline.submitDeviceLocation(device, this.getLocation(device, 7.2), TestDataHolder.SUPER_TENANT_ID);
+        }
+        pipeline.flush();
+        Assert.assertEquals(pipeline.getPendingCount(), 0);
+        Assert.assertEquals(pipeline.getWrittenCount(), 1 + DEVICE_COUNT);
+
+        DeviceDetailsDAO deviceDetailsDAO = DeviceManagementDAOFactory.getDeviceDetailsDAO();
+        try {
+            DeviceManagementDAOFactory.openConnection();
+            for (Device device : devices) {
+                DeviceLocation location = deviceDetailsDAO.getDeviceLocation(device.getId(),
+                        device.getEnrolmentInfo().getId());
+                Assert.assertNotNull(location, "Location of device " + device.getDeviceIdentifier() +
+                        " is not written");
+                Assert.assertEquals(location.getLatitude(), 7.2);
+            }
+            Assert.assertNotNull(deviceDetailsDAO.getDeviceInformation(devices.get(0).getId(),
+                    devices.get(0).getEnrolmentInfo().getId()), "Device information is removed by a location update");
+        } finally {
+            DeviceManagementDAOFactory.closeConnection();
+        }
+    }
+
+    @Test(description = "Tests whether updates of further enrolments are handed back to the caller once too many " +
+            "enrolments have pending updates", dependsOnMethods = "testFlushInBatches")
+    public void testMaxPendingEnrolments() throws JMException {
+        DeviceDetailsIngestionConfiguration config = new DeviceDetailsIngestionConfiguration();
+        config.setFlushIntervalMills(60000);
+        config.setBatchSize(DEVICE_COUNT);
+        config.setMaxPendingEnrolments(1);
+        DeviceDetailsIngestionPipeline boundedPipeline = new DeviceDetailsIngestionPipeline(config);
+        try {
+            Assert.assertTrue(boundedPipeline.submitDeviceInfo(devices.get(0), this.getDeviceInfo("QUEUED_MODEL"),
+                    TestDataHolder.SUPER_TENANT_ID));
+            Assert.assertFalse(boundedPipeline.submitDeviceInfo(devices.get(1), this.getDeviceInfo("OVERFLOW_MODEL"),
+                    TestDataHolder.SUPER_TENANT_ID), "Update is queued beyond the maximum pending enrolments");
+            Assert.assertTrue(boundedPipeline.submitDeviceLocation(devices.get(0),
+                    this.getLocation(devices.get(0), 8.1), TestDataHolder.SUPER_TENANT_ID),
+                    "Update of an enrolment which already has pending updates is not coalesced");
+            Assert.assertEquals(boundedPipeline.getPendingCount(), 1);
+            Assert.assertEquals(boundedPipeline.getOverflowCount(), 1);
+
+            ObjectName objectName = new ObjectName("org.wso2.carbon.device.mgt:type=DeviceDetailsIngestionPipeline");
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            Assert.assertEquals(mBeanServer.getAttribute(objectName, "OverflowCount"), 1L,
+                    "Handed back updates are not exposed through JMX");
+            Assert.assertEquals(mBeanServer.getAttribute(objectName, "PendingCount"), 1);
+            Assert.assertEquals(mBeanServer.getAttribute(objectName, "PublishDroppedCount"), 0L);
+            Assert.assertNotNull(mBeanServer.getAttribute(objectName, "PublisherQueueDepth"));
+        } finally {
+            boundedPipeline.shutdown();
+        }
+        Assert.assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(
+                new ObjectName("org.wso2.carbon.device.mgt:type=DeviceDetailsIngestionPipeline")));
+    }
+
+    @Test(description = "Tests whether updates are written synchronously by the caller after the shutdown",
+            dependsOnMethods = "testFlushInBatches")
+    public void testShutdown() {
+        Device device = devices.get(1);
+        pipeline.submitDeviceInfo(device, this.getDeviceInfo("SHUTDOWN_MODEL"), TestDataHolder.SUPER_TENANT_ID);
+        pipeline.shutdown();
+        Assert.assertEquals(pipeline.getPendingCount(), 0, "Pending updates are not written on shutdown");
+        Assert.assertFalse(pipeline.submitDeviceInfo(device, this.getDeviceInfo("REJECTED_MODEL"),
+                TestDataHolder.SUPER_TENANT_ID));
+    }
+
+    @AfterClass
+    public void cleanup() {
+        pipeline.shutdown();
+    }
+
+    private DeviceInfo getDeviceInfo(String model) {
+        DeviceInfo deviceInfo = TestDataHolder.generateDummyDeviceInfo();
+        deviceInfo.setDeviceModel(model);
+        deviceInfo.getDeviceDetailsMap().put("IMEI", model + "-IMEI");
+        return deviceInfo;
+    }
+
+    private DeviceLocation getLocation(Device device, double latitude) {
+        DeviceLocation location = new DeviceLocation();
+        location.setDeviceId(device.getId());
+        location.setLatitude(latitude);
+        location.setLongitude(79.8);
+        location.setCity("Colombo");
+        location.setCountry("Sri Lanka");
+        return location;
+    }
+}
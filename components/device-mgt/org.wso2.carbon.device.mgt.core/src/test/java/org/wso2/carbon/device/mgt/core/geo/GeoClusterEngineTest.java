@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.geo;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.device.mgt.core.common.BaseDeviceManagementTest;
+import org.wso2.carbon.device.mgt.core.common.TestDataHolder;
+import org.wso2.carbon.device.mgt.core.config.geo.cluster.GeoClusterConfiguration;
+import org.wso2.carbon.device.mgt.core.geo.cluster.DeviceGeoPoint;
+import org.wso2.carbon.device.mgt.core.geo.cluster.GeoClusterEngine;
+import org.wso2.carbon.device.mgt.core.geo.geoHash.GeoCoordinate;
+import org.wso2.carbon.device.mgt.core.geo.geoHash.GeoHashGenerator;
+
+import java.util.List;
+
+/**
+ * This class contains unit tests to test {@link GeoClusterEngine} class.
+ */
+public class GeoClusterEngineTest extends BaseDeviceManagementTest {
+
+    // Tenant without devices in the test database, so that only the locations added by the tests are clustered
+    private static final int TENANT_ID = TestDataHolder.SUPER_TENANT_ID + 100;
+    private static final long BUILD_TIMEOUT_MILLS = 10000;
+    private static final GeoCoordinate SOUTH_WEST = new GeoCoordinate(-90, -180);
+    private static final GeoCoordinate NORTH_EAST = new GeoCoordinate(90, 180);
+
+    private GeoClusterEngine engine;
+
+    @BeforeClass
+    @Override
+    public void init() throws Exception {
+        engine = new GeoClusterEngine(new GeoClusterConfiguration());
+        long deadline = System.currentTimeMillis() + BUILD_TIMEOUT_MILLS;
+        while (!engine.isReady() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        Assert.assertTrue(engine.isReady(), "Geo cluster engine is not built in time.");
+        engine.update(this.getPoint(1, "android", 6.9271, 79.8612));
+        engine.update(this.getPoint(2, "android", 6.9319, 79.8478));
+        engine.update(this.getPoint(3, "ios", 7.2906, 80.6337));
+        engine.update(this.getPoint(4, "ios", 51.5074, -0.1278));
+    }
+
+    @AfterClass
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test(description = "Cluster the locations of all devices and of a device type.")
+    public void testGetGeoClusters() {
+        List<GeoCluster> geoClusters = engine.getGeoClusters(TENANT_ID, null, SOUTH_WEST, NORTH_EAST, 1);
+        Assert.assertEquals(geoClusters.size(), 2);
+        Assert.assertEquals(this.getTotalCount(geoClusters), 4);
+        geoClusters = engine.getGeoClusters(TENANT_ID, "android", SOUTH_WEST, NORTH_EAST, 4);
+        Assert.assertEquals(geoClusters.size(), 1);
+        Assert.assertEquals(geoClusters.get(0).getCount(), 2);
+        Assert.assertEquals(geoClusters.get(0).getDeviceIdentification(), "device-1");
+        Assert.assertEquals(geoClusters.get(0).getSouthWestBound().getLatitude(), 6.9271);
+        Assert.assertEquals(geoClusters.get(0).getNorthEastBound().getLongitude(), 79.8612);
+        Assert.assertNull(engine.getGeoClusters(TENANT_ID, null, SOUTH_WEST, NORTH_EAST, 0));
+    }
+
+    @Test(description = "Cluster only the locations within the boundaries of the map.")
+    public void testGetGeoClustersWithinBounds() {
+        List<GeoCluster> geoClusters = engine.getGeoClusters(TENANT_ID, null, new GeoCoordinate(6.9, 79.85),
+                new GeoCoordinate(7.5, 81), 1);
+        Assert.assertEquals(geoClusters.size(), 1);
+        Assert.assertEquals(geoClusters.get(0).getCount(), 2);
+        Assert.assertEquals(geoClusters.get(0).getSouthWestBound().getLongitude(), 79.8612);
+        Assert.assertTrue(engine.getGeoClusters(TENANT_ID, null, new GeoCoordinate(0, 0), new GeoCoordinate(1, 1), 9)
+                .isEmpty());
+    }
+
+    @Test(description = "Reflect the locations of devices which have moved.",
+            dependsOnMethods = {"testGetGeoClusters", "testGetGeoClustersWithinBounds"})
+    public void testUpdate() {
+        // Read the clusters first, so that the cached tiles have to be invalidated
+        Assert.assertEquals(engine.getGeoClusters(TENANT_ID, "ios", SOUTH_WEST, NORTH_EAST, 2).size(), 2);
+        engine.update(this.getPoint(4, "ios", 7.2955, 80.6356));
+        List<GeoCluster> geoClusters = engine.getGeoClusters(TENANT_ID, "ios", SOUTH_WEST, NORTH_EAST, 2);
+        Assert.assertEquals(geoClusters.size(), 1);
+        Assert.assertEquals(geoClusters.get(0).getCount(), 2);
+        Assert.assertEquals(geoClusters.get(0).getNorthEastBound().getLatitude(), 7.2955);
+        Assert.assertEquals(this.getTotalCount(engine.getGeoClusters(TENANT_ID, null, SOUTH_WEST, NORTH_EAST, 1)), 4);
+    }
+
+    private DeviceGeoPoint getPoint(int deviceId, String deviceType, double latitude, double longitude) {
+        return new DeviceGeoPoint(deviceId, TENANT_ID, "device-" + deviceId, deviceType, latitude, longitude,
+                GeoHashGenerator.encodeGeohash(latitude, longitude), System.currentTimeMillis());
+    }
+
+    private long getTotalCount(List<GeoCluster> geoClusters) {
+        long count = 0;
+        for (GeoCluster geoCluster : geoClusters) {
+            count += geoCluster.getCount();
+        }
+        return count;
+    }
+}
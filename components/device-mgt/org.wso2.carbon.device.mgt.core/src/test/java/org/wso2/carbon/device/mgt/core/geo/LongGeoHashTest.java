@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.geo;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.carbon.device.mgt.core.geo.geoHash.GeoHashGenerator;
+import org.wso2.carbon.device.mgt.core.geo.geoHash.LongGeoHash;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * This class contains unit tests to test {@link LongGeoHash} class.
+ */
+public class LongGeoHashTest {
+
+    @Test(description = "Encode locations to the prefixes of the geohashes generated by GeoHashGenerator.")
+    public void testEncode() {
+        Random random = new Random(1);
+        for (int i = 0; i < 1000; i++) {
+            double latitude = random.nextDouble() * 180.0 - 90.0;
+            double longitude = random.nextDouble() * 360.0 - 180.0;
+            String geohash = GeoHashGenerator.encodeGeohash(latitude, longitude);
+            int length = random.nextInt(LongGeoHash.MAX_LENGTH + 1);
+            long hash = LongGeoHash.encode(latitude, longitude, length);
+            Assert.assertEquals(LongGeoHash.toString(hash, length), geohash.substring(0, length));
+            Assert.assertEquals(LongGeoHash.fromString(geohash.substring(0, length)), hash);
+        }
+        Assert.assertEquals(GeoHashGenerator.encodeGeohash(57.64911, 10.40744), "u4pruydqqvj8pr9y");
+    }
+
+    @Test(description = "Decode the bounds and the center of a geohash cell.")
+    public void testDecode() {
+        long hash = LongGeoHash.fromString("u4pruydqqvj8");
+        Assert.assertTrue(LongGeoHash.getSouthLatitude(hash, 12) <= 57.64911);
+        Assert.assertTrue(LongGeoHash.getNorthLatitude(hash, 12) >= 57.64911);
+        Assert.assertTrue(LongGeoHash.getWestLongitude(hash, 12) <= 10.40744);
+        Assert.assertTrue(LongGeoHash.getEastLongitude(hash, 12) >= 10.40744);
+        Assert.assertEquals(LongGeoHash.decodeLatitude(hash, 12),
+                GeoHashGenerator.decodeGeohash("u4pruydqqvj8").getLatitude());
+        Assert.assertEquals(LongGeoHash.decodeLongitude(hash, 12),
+                GeoHashGenerator.decodeGeohash("u4pruydqqvj8").getLongitude());
+    }
+
+    @Test(description = "Find the neighbors of geohash cells, wrapping around the antimeridian.")
+    public void testNeighbors() {
+        long[] neighbors = new long[8];
+        Assert.assertEquals(LongGeoHash.getNeighbors(LongGeoHash.fromString("u4pru"), 5, neighbors), 8);
+        Assert.assertEquals(this.toStrings(neighbors, 8, 5),
+                new String[]{"u4r2h", "u4r2j", "u4prv", "u4prt", "u4prs", "u4pre", "u4prg", "u4r25"});
+        Assert.assertEquals(LongGeoHash.toString(LongGeoHash.getNeighbor(LongGeoHash.fromString("0"), 1, 0, -1), 1),
+                "p");
+        // Cells of the northernmost row have no neighbors to the north
+        Assert.assertEquals(LongGeoHash.getNeighbors(LongGeoHash.fromString("u"), 1, neighbors), 5);
+        Assert.assertEquals(LongGeoHash.getNeighbor(LongGeoHash.fromString("u"), 1, 1, 0), -1);
+    }
+
+    @Test(description = "Cover bounding boxes with geohash prefixes and merge them into ranges.")
+    public void testCover() {
+        int length = LongGeoHash.getCoverLength(6.8, 79.8, 7.0, 80.0, 16);
+        long[] cells = LongGeoHash.cover(6.8, 79.8, 7.0, 80.0, length);
+        Assert.assertTrue(cells.length <= 16);
+        Assert.assertTrue(LongGeoHash.getCoverSize(6.8, 79.8, 7.0, 80.0, length + 1) > 16);
+        for (double latitude = 6.8; latitude <= 7.0; latitude += 0.01) {
+            for (double longitude = 79.8; longitude <= 80.0; longitude += 0.01) {
+                Assert.assertTrue(Arrays.binarySearch(cells, LongGeoHash.encode(latitude, longitude, length)) >= 0);
+            }
+        }
+        // The 32 cells of a prefix are a single range
+        long[] ranges = LongGeoHash.toRanges(LongGeoHash.cover(-90.0, -180.0, 90.0, 180.0, 1));
+        Assert.assertEquals(ranges, new long[]{0, 32});
+        Assert.assertEquals(LongGeoHash.cover(1.0, 1.0, 0.0, 0.0, 3).length, 0);
+    }
+
+    private String[] toStrings(long[] hashes, int count, int length) {
+        String[] geohashes = new String[count];
+        for (int i = 0; i < count; i++) {
+            geohashes[i] = LongGeoHash.toString(hashes[i], length);
+        }
+        return geohashes;
+    }
+}
@@ -0,0 +1,419 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.operation.mgt.dao;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
+import org.wso2.carbon.device.mgt.common.EnrolmentInfo;
+import org.wso2.carbon.device.mgt.common.TransactionManagementException;
+import org.wso2.carbon.device.mgt.core.common.BaseDeviceManagementTest;
+import org.wso2.carbon.device.mgt.core.common.TestDataHolder;
+import org.wso2.carbon.device.mgt.core.dao.util.DeviceManagementDAOUtil;
+import org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation;
+import org.wso2.carbon.device.mgt.core.operation.mgt.OperationMapping;
+import org.wso2.carbon.device.mgt.core.task.partition.TaskPartitions;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This class contains unit tests for the set based methods of {@link OperationMappingDAO} and {@link OperationDAO}.
+ * The test devices outnumber the IN clause chunk size, so that every set query is split into more than one chunk.
+ * It also covers claiming scheduled push notifications, which has to hold when the scheduler tasks of several nodes
+ * claim the same mappings.
+ */
+public class OperationMappingDAOTest extends BaseDeviceManagementTest {
+
+    private static final String DEVICE_TYPE = "operation-mapping-test-type";
+    private static final String OPERATION_CODE = "OPERATION_MAPPING_TEST";
+    private static final int DEVICE_COUNT = DeviceManagementDAOUtil.MAX_IN_CLAUSE_SIZE + 150;
+    private static final int CLAIMED_MAPPING_COUNT = 200;
+
+    private OperationMappingDAO operationMappingDAO;
+    private OperationDAO operationDAO;
+    private Map<String, Integer> enrolmentIds = new HashMap<>();
+
+    @BeforeClass
+    @Override
+    public void init() throws Exception {
+        this.initDataSource();
+        operationMappingDAO = OperationManagementDAOFactory.getOperationMappingDAO();
+        operationDAO = OperationManagementDAOFactory.getOperationDAO();
+        if (!isMock()) {
+            this.addTestEnrolments();
+        }
+    }
+
+    @Test(description = "Tests resolving the enrolments of devices spanning more than one IN clause chunk")
+    public void testGetEnrolmentIds() throws OperationManagementDAOException, SQLException {
+        if (isMock()) {
+            return;
+        }
+        List<String> deviceIdentifiers = new ArrayList<>(enrolmentIds.keySet());
+        deviceIdentifiers.add("unknown-device");
+        Map<String, Integer> resolvedEnrolmentIds;
+        try {
+            OperationManagementDAOFactory.openConnection();
+            resolvedEnrolmentIds = operationMappingDAO.getEnrolmentIds(DEVICE_TYPE, deviceIdentifiers,
+                    TestDataHolder.SUPER_TENANT_ID);
+        } finally {
+            OperationManagementDAOFactory.closeConnection();
+        }
+        Assert.assertEquals(resolvedEnrolmentIds, enrolmentIds, "Enrolments of the devices are not resolved");
+    }
+
+    @Test(description = "Tests mapping an operation to enrolments spanning more than one IN clause chunk",
+            dependsOnMethods = "testGetEnrolmentIds")
+    public void testAddOperationMappingsAndGetExistingOperationIDs()
+            throws OperationManagementDAOException, TransactionManagementException, SQLException {
+        if (isMock()) {
+            return;
+        }
+        int operationId = this.addTestOperation(OPERATION_CODE);
+        List<Integer> enrolmentIdList = new ArrayList<>(enrolmentIds.values());
+        try {
+            OperationManagementDAOFactory.beginTransaction();
+            operationMappingDAO.addOperationMappings(operationId, enrolmentIdList, false, 400);
+            OperationManagementDAOFactory.commitTransaction();
+        } finally {
+            OperationManagementDAOFactory.closeConnection();
+        }
+
+        List<Integer> queriedEnrolmentIds = new ArrayList<>(enrolmentIdList);
+        queriedEnrolmentIds.add(Integer.MAX_VALUE);
+        Map<Integer, Integer> existingOperationIds;
+        try {
+            OperationManagementDAOFactory.openConnection();
+            existingOperationIds = operationDAO.getExistingOperationIDs(queriedEnrolmentIds, OPERATION_CODE);
+        } finally {
+            OperationManagementDAOFactory.closeConnection();
+        }
+        Assert.assertEquals(existingOperationIds.size(), DEVICE_COUNT, "Pending operations of some enrolments " +
+                "are not found");
+        for (Integer enrolmentId : enrolmentIdList) {
+            Assert.assertEquals(existingOperationIds.get(enrolmentId), Integer.valueOf(operationId),
+                    "Pending operation of enrolment '" + enrolmentId + "' is not found");
+        }
+    }
+
+    @Test(description = "Tests retrieving the enrolments to be monitored in some partitions only")
+    public void testGetMonitoringEnrolmentsOfPartitions() throws OperationManagementDAOException, SQLException {
+        if (isMock()) {
+            return;
+        }
+        int partitionCount = 4;
+        Set<Integer> partitionIds = new HashSet<>(Arrays.asList(1, 3));
+        Map<Integer, DeviceIdentifier> allEnrolments;
+        Map<Integer, DeviceIdentifier> partitionEnrolments;
+        try {
+            OperationManagementDAOFactory.openConnection();
+            allEnrolments = operationMappingDAO.getMonitoringEnrolments(DEVICE_TYPE, TestDataHolder.SUPER_TENANT_ID,
+                    0, null);
+            partitionEnrolments = operationMappingDAO.getMonitoringEnrolments(DEVICE_TYPE,
+                    TestDataHolder.SUPER_TENANT_ID, partitionCount, partitionIds);
+        } finally {
+            OperationManagementDAOFactory.closeConnection();
+        }
+        Assert.assertEquals(allEnrolments.keySet(), new HashSet<>(enrolmentIds.values()));
+        Set<Integer> expectedEnrolmentIds = new HashSet<>();
+        for (Integer enrolmentId : enrolmentIds.values()) {
+            if (partitionIds.contains(TaskPartitions.getPartitionId(enrolmentId, partitionCount))) {
+                expectedEnrolmentIds.add(enrolmentId);
+            }
+        }
+        Assert.assertEquals(partitionEnrolments.keySet(), expectedEnrolmentIds, "Enrolments are not filtered by " +
+                "partition");
+    }
+
+    @Test(description = "Tests whether two callers claiming the same scheduled mappings never both claim a mapping")
+    public void testConcurrentClaims() throws Exception {
+        if (isMock()) {
+            return;
+        }
+        int operationId = this.addTestOperation(OPERATION_CODE + "_CLAIM");
+        final List<OperationMapping> operationMappings = this.addScheduledOperationMappings(operationId,
+                System.currentTimeMillis() / 1000);
+        final CountDownLatch startSignal = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        List<Future<List<OperationMapping>>> claims = new ArrayList<>();
+        try {
+            for (int i = 0; i < 2; i++) {
+                claims.add(executor.submit(new Callable<List<OperationMapping>>() {
+                    @Override
+                    public List<OperationMapping> call() throws Exception {
+                        startSignal.await();
+                        return claim(copy(operationMappings));
+                    }
+                }));
+            }
+            startSignal.countDown();
+            Set<Integer> claimedEnrolmentIds = new HashSet<>();
+            for (Future<List<OperationMapping>> claim : claims) {
+                for (OperationMapping operationMapping : claim.get()) {
+                    Assert.assertTrue(claimedEnrolmentIds.add(operationMapping.getEnrollmentId()), "Mapping of " +
+                            "enrolment '" + operationMapping.getEnrollmentId() + "' is claimed more than once");
+                }
+            }
+            Assert.assertEquals(claimedEnrolmentIds.size(), CLAIMED_MAPPING_COUNT, "Some mappings are not claimed");
+        } finally {
+            executor.shutdownNow();
+        }
+        for (String status : this.getPushNotificationStatuses(operationId).values()) {
+            Assert.assertEquals(status, Operation.PushNotificationStatus.IN_PROGRESS.toString());
+        }
+        Assert.assertTrue(this.claim(copy(operationMappings)).isEmpty(), "Claimed mappings are claimed again");
+    }
+
+    @Test(description = "Tests whether claims which are not completed in time are released to be claimed again")
+    public void testUpdateStaleOperationMappings() throws Exception {
+        if (isMock()) {
+            return;
+        }
+        long now = System.currentTimeMillis() / 1000;
+        int staleOperationId = this.addTestOperation(OPERATION_CODE + "_STALE");
+        int activeOperationId = this.addTestOperation(OPERATION_CODE + "_ACTIVE");
+        this.claim(this.addScheduledOperationMappings(staleOperationId, now));
+        this.claim(this.addScheduledOperationMappings(activeOperationId, now));
+        this.setUpdatedTimestamp(staleOperationId, now - 3600);
+
+        int released;
+        try {
+            OperationManagementDAOFactory.beginTransaction();
+            released = operationMappingDAO.updateStaleOperationMappings(Operation.PushNotificationStatus.IN_PROGRESS,
+                    Operation.PushNotificationStatus.SCHEDULED, now - 60);
+            OperationManagementDAOFactory.commitTransaction();
+        } finally {
+            OperationManagementDAOFactory.closeConnection();
+        }
+        Assert.assertTrue(released >= CLAIMED_MAPPING_COUNT, "Stale claims are not released");
+        for (String status : this.getPushNotificationStatuses(staleOperationId).values()) {
+            Assert.assertEquals(status, Operation.PushNotificationStatus.SCHEDULED.toString());
+        }
+        for (String status : this.getPushNotificationStatuses(activeOperationId).values()) {
+            Assert.assertEquals(status, Operation.PushNotificationStatus.IN_PROGRESS.toString());
+        }
+    }
+
+    @Test(description = "Tests reading the last activity of enrolments spanning more than one IN clause chunk")
+    public void testGetLastActivityTimes() throws Exception {
+        if (isMock()) {
+            return;
+        }
+        long now = System.currentTimeMillis() / 1000;
+        int operationId = this.addTestOperation(OPERATION_CODE + "_ACTIVITY");
+        this.addScheduledOperationMappings(operationId, now - 100);
+        List<Integer> enrolmentIdList = new ArrayList<>(enrolmentIds.values());
+        List<Integer> activeEnrolmentIds = new ArrayList<>(enrolmentIdList.subList(0, CLAIMED_MAPPING_COUNT / 2));
+        try (Connection conn = getDataSource().getConnection();
+             PreparedStatement stmt = conn.prepareStatement("UPDATE DM_ENROLMENT_OP_MAPPING SET STATUS = ?, " +
+                     "UPDATED_TIMESTAMP = ? WHERE OPERATION_ID = ? AND ENROLMENT_ID = ?")) {
+            for (Integer enrolmentId : activeEnrolmentIds) {
+                stmt.setString(1, Operation.Status.COMPLETED.toString());
+                stmt.setLong(2, now - 10);
+                stmt.setInt(3, operationId);
+                stmt.setInt(4, enrolmentId);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+
+        Map<Integer, Long> lastActivityTimes;
+        try {
+            OperationManagementDAOFactory.openConnection();
+            lastActivityTimes = operationMappingDAO.getLastActivityTimes(enrolmentIdList);
+        } finally {
+            OperationManagementDAOFactory.closeConnection();
+        }
+        Assert.assertEquals(lastActivityTimes.keySet(), new HashSet<>(activeEnrolmentIds), "Pending operations are " +
+                "taken as activity of the devices");
+        for (Long lastActivityTime : lastActivityTimes.values()) {
+            Assert.assertEquals(lastActivityTime, Long.valueOf(now - 10));
+        }
+    }
+
+    private List<OperationMapping> claim(List<OperationMapping> operationMappings)
+            throws OperationManagementDAOException, TransactionManagementException {
+        try {
+            OperationManagementDAOFactory.beginTransaction();
+            List<OperationMapping> claimedOperationMappings = operationMappingDAO.claimOperationMappings(
+                    operationMappings, Operation.PushNotificationStatus.SCHEDULED,
+                    Operation.PushNotificationStatus.IN_PROGRESS);
+            OperationManagementDAOFactory.commitTransaction();
+            return claimedOperationMappings;
+        } finally {
+            OperationManagementDAOFactory.closeConnection();
+        }
+    }
+
+    private static List<OperationMapping> copy(List<OperationMapping> operationMappings) {
+        List<OperationMapping> copies = new ArrayList<>();
+        for (OperationMapping operationMapping : operationMappings) {
+            OperationMapping copy = new OperationMapping();
+            copy.setEnrollmentId(operationMapping.getEnrollmentId());
+            copy.setOperationId(operationMapping.getOperationId());
+            copy.setTenantId(operationMapping.getTenantId());
+            copies.add(copy);
+        }
+        return copies;
+    }
+
+    /**
+     * Maps the given operation to some of the test enrolments with a SCHEDULED push notification.
+     */
+    private List<OperationMapping> addScheduledOperationMappings(int operationId, long timestamp)
+            throws SQLException {
+        List<OperationMapping> operationMappings = new ArrayList<>();
+        try (Connection conn = getDataSource().getConnection();
+             PreparedStatement stmt = conn.prepareStatement("INSERT INTO DM_ENROLMENT_OP_MAPPING (ENROLMENT_ID, " +
+                     "OPERATION_ID, STATUS, PUSH_NOTIFICATION_STATUS, CREATED_TIMESTAMP, UPDATED_TIMESTAMP) " +
+                     "VALUES (?, ?, ?, ?, ?, ?)")) {
+            for (Integer enrolmentId : new ArrayList<>(enrolmentIds.values()).subList(0, CLAIMED_MAPPING_COUNT)) {
+                stmt.setInt(1, enrolmentId);
+                stmt.setInt(2, operationId);
+                stmt.setString(3, Operation.Status.PENDING.toString());
+                stmt.setString(4, Operation.PushNotificationStatus.SCHEDULED.toString());
+                stmt.setLong(5, timestamp);
+                stmt.setLong(6, timestamp);
+                stmt.addBatch();
+                OperationMapping operationMapping = new OperationMapping();
+                operationMapping.setEnrollmentId(enrolmentId);
+                operationMapping.setOperationId(operationId);
+                operationMapping.setTenantId(TestDataHolder.SUPER_TENANT_ID);
+                operationMappings.add(operationMapping);
+            }
+            stmt.executeBatch();
+        }
+        return operationMappings;
+    }
+
+    private void setUpdatedTimestamp(int operationId, long timestamp) throws SQLException {
+        try (Connection conn = getDataSource().getConnection();
+             PreparedStatement stmt = conn.prepareStatement("UPDATE DM_ENROLMENT_OP_MAPPING SET UPDATED_TIMESTAMP " +
+                     "= ? WHERE OPERATION_ID = ?")) {
+            stmt.setLong(1, timestamp);
+            stmt.setInt(2, operationId);
+            stmt.executeUpdate();
+        }
+    }
+
+    private Map<Integer, String> getPushNotificationStatuses(int operationId) throws SQLException {
+        Map<Integer, String> statuses = new HashMap<>();
+        try (Connection conn = getDataSource().getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT ENROLMENT_ID, PUSH_NOTIFICATION_STATUS FROM " +
+                     "DM_ENROLMENT_OP_MAPPING WHERE OPERATION_ID = ?")) {
+            stmt.setInt(1, operationId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    statuses.put(rs.getInt("ENROLMENT_ID"), rs.getString("PUSH_NOTIFICATION_STATUS"));
+                }
+            }
+        }
+        Assert.assertEquals(statuses.size(), CLAIMED_MAPPING_COUNT);
+        return statuses;
+    }
+
+    /**
+     * Adds an operation with the given code directly to the operation table.
+     *
+     * @return id of the added operation
+     */
+    private int addTestOperation(String operationCode) throws SQLException {
+        try (Connection conn = getDataSource().getConnection();
+             PreparedStatement stmt = conn.prepareStatement("INSERT INTO DM_OPERATION (TYPE, CREATED_TIMESTAMP, " +
+                     "OPERATION_CODE) VALUES (?, ?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setString(1, Operation.Type.COMMAND.toString());
+            stmt.setTimestamp(2, new Timestamp(System.currentTimeMillis()));
+            stmt.setString(3, operationCode);
+            stmt.executeUpdate();
+            try (ResultSet rs = stmt.getGeneratedKeys()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    private void addTestEnrolments() throws SQLException {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        try (Connection conn = getDataSource().getConnection()) {
+            int deviceTypeId;
+            try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO DM_DEVICE_TYPE (NAME, " +
+                    "LAST_UPDATED_TIMESTAMP, PROVIDER_TENANT_ID) VALUES (?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                stmt.setString(1, DEVICE_TYPE);
+                stmt.setTimestamp(2, now);
+                stmt.setInt(3, TestDataHolder.SUPER_TENANT_ID);
+                stmt.executeUpdate();
+                try (ResultSet rs = stmt.getGeneratedKeys()) {
+                    rs.next();
+                    deviceTypeId = rs.getInt(1);
+                }
+            }
+            try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO DM_DEVICE (NAME, DEVICE_TYPE_ID, " +
+                    "DEVICE_IDENTIFICATION, LAST_UPDATED_TIMESTAMP, TENANT_ID) VALUES (?, ?, ?, ?, ?)")) {
+                for (int i = 0; i < DEVICE_COUNT; i++) {
+                    stmt.setString(1, "mapping-test-device-" + i);
+                    stmt.setInt(2, deviceTypeId);
+                    stmt.setString(3, "mapping-test-device-" + i);
+                    stmt.setTimestamp(4, now);
+                    stmt.setInt(5, TestDataHolder.SUPER_TENANT_ID);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+            try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO DM_ENROLMENT (DEVICE_ID, OWNER, " +
+                    "OWNERSHIP, STATUS, DATE_OF_ENROLMENT, DATE_OF_LAST_UPDATE, TENANT_ID) SELECT ID, ?, ?, ?, ?, ?, " +
+                    "TENANT_ID FROM DM_DEVICE WHERE DEVICE_TYPE_ID = ?")) {
+                stmt.setString(1, "admin");
+                stmt.setString(2, EnrolmentInfo.OwnerShip.BYOD.toString());
+                stmt.setString(3, EnrolmentInfo.Status.ACTIVE.toString());
+                stmt.setTimestamp(4, now);
+                stmt.setTimestamp(5, now);
+                stmt.setInt(6, deviceTypeId);
+                stmt.executeUpdate();
+            }
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT d.DEVICE_IDENTIFICATION, e.ID FROM " +
+                    "DM_DEVICE d INNER JOIN DM_ENROLMENT e ON e.DEVICE_ID = d.ID WHERE d.DEVICE_TYPE_ID = ?")) {
+                stmt.setInt(1, deviceTypeId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        enrolmentIds.put(rs.getString("DEVICE_IDENTIFICATION"), rs.getInt("ID"));
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * you may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.device.mgt.core.operation.mgt.dao.util;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.carbon.device.mgt.core.config.operation.OperationConfiguration;
+import org.wso2.carbon.device.mgt.core.dto.operation.mgt.CommandOperation;
+import org.wso2.carbon.device.mgt.core.dto.operation.mgt.ConfigOperation;
+import org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation;
+import org.wso2.carbon.device.mgt.core.dto.operation.mgt.PolicyOperation;
+import org.wso2.carbon.device.mgt.core.dto.operation.mgt.ProfileOperation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * This class contains unit tests to test {@link CompactOperationPayloadCodec} and the payload helpers of
+ * {@link OperationDAOUtil}.
+ */
+public class CompactOperationPayloadCodecTest {
+
+    private final CompactOperationPayloadCodec codec = new CompactOperationPayloadCodec();
+
+    @Test(description = "Tests whether string payloads survive a round trip")
+    public void testStringRoundTrip() throws Exception {
+        String payload = "{\"wifi\":{\"ssid\":\"office\",\"password\":\"été\"}}";
+        byte[] content = codec.encode(payload);
+        Assert.assertTrue(CompactOperationPayloadCodec.isEncoded(content));
+        Assert.assertEquals(codec.decode(content), payload);
+        Assert.assertNull(codec.decode(codec.encode(null)));
+    }
+
+    @Test(description = "Tests whether large payloads are compressed and restored")
+    public void testCompressedRoundTrip() throws Exception {
+        StringBuilder payload = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            payload.append("{\"key\":\"value-").append(i % 10).append("\"},");
+        }
+        byte[] content = codec.encode(payload.toString());
+        Assert.assertTrue(content.length < payload.length(), "Large payload has not been compressed");
+        Assert.assertEquals(codec.decode(content), payload.toString());
+    }
+
+    @Test(description = "Tests whether policy operations with profile operations survive a round trip")
+    public void testPolicyOperationRoundTrip() throws Exception {
+        PolicyOperation policyOperation = new PolicyOperation();
+        this.populate(policyOperation, "POLICY_BUNDLE");
+        List<ProfileOperation> profileOperations = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ProfileOperation profileOperation = new ProfileOperation();
+            this.populate(profileOperation, "PROFILE_" + i);
+            profileOperations.add(profileOperation);
+        }
+        policyOperation.setProfileOperations(profileOperations);
+
+        PolicyOperation decoded = (PolicyOperation) codec.decode(codec.encode(policyOperation));
+        this.assertOperation(decoded, policyOperation);
+        Assert.assertEquals(decoded.getProfileOperations().size(), profileOperations.size());
+        for (int i = 0; i < profileOperations.size(); i++) {
+            this.assertOperation(decoded.getProfileOperations().get(i), profileOperations.get(i));
+        }
+    }
+
+    @Test(description = "Tests whether command and config operations keep their types")
+    public void testOperationKinds() throws Exception {
+        CommandOperation commandOperation = new CommandOperation();
+        this.populate(commandOperation, "DEVICE_LOCK");
+        Operation decoded = (Operation) codec.decode(codec.encode(commandOperation));
+        Assert.assertTrue(decoded instanceof CommandOperation);
+        this.assertOperation(decoded, commandOperation);
+
+        ConfigOperation configOperation = new ConfigOperation();
+        this.populate(configOperation, "CONFIG");
+        decoded = (Operation) codec.decode(codec.encode(configOperation));
+        Assert.assertTrue(decoded instanceof ConfigOperation);
+        this.assertOperation(decoded, configOperation);
+    }
+
+    @Test(description = "Tests whether operations which cannot be represented as JSON fall back to serialization")
+    public void testSerializedFallback() throws Exception {
+        ProfileOperation profileOperation = new ProfileOperation();
+        this.populate(profileOperation, "PROFILE");
+        HashMap<String, Integer> payload = new HashMap<>();
+        payload.put("timeout", 30);
+        profileOperation.setPayLoad(payload);
+        ProfileOperation decoded = (ProfileOperation) codec.decode(codec.encode(profileOperation));
+        Assert.assertEquals(decoded.getPayLoad(), payload);
+        Assert.assertEquals(decoded.getCode(), profileOperation.getCode());
+    }
+
+    @Test(description = "Tests whether content written by Java serialization is still readable")
+    public void testLegacyContent() throws Exception {
+        ProfileOperation profileOperation = new ProfileOperation();
+        this.populate(profileOperation, "PROFILE");
+        Operation decoded = (Operation) OperationDAOUtil.decodePayload(this.serialize(profileOperation));
+        this.assertOperation(decoded, profileOperation);
+        Assert.assertEquals(OperationDAOUtil.decodePayload(this.serialize("response")), "response");
+        Assert.assertNull(OperationDAOUtil.decodePayload(null));
+    }
+
+    @Test(description = "Tests whether encoded operations are smaller than serialized ones")
+    public void testEncodedSize() throws Exception {
+        PolicyOperation policyOperation = new PolicyOperation();
+        this.populate(policyOperation, "POLICY_BUNDLE");
+        List<ProfileOperation> profileOperations = new ArrayList<>();
+        ProfileOperation profileOperation = new ProfileOperation();
+        this.populate(profileOperation, "CAMERA");
+        profileOperations.add(profileOperation);
+        policyOperation.setProfileOperations(profileOperations);
+        Assert.assertTrue(codec.encode(policyOperation).length < this.serialize(policyOperation).length);
+    }
+
+    @Test(description = "Tests whether a negative compression threshold disables compression")
+    public void testCompressionDisabled() throws Exception {
+        StringBuilder payload = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            payload.append("{\"key\":\"value-").append(i % 10).append("\"},");
+        }
+        CompactOperationPayloadCodec uncompressedCodec = new CompactOperationPayloadCodec(-1);
+        byte[] content = uncompressedCodec.encode(payload.toString());
+        Assert.assertEquals(content.length, CompactOperationPayloadCodec.HEADER_LENGTH + payload.length());
+        Assert.assertEquals(uncompressedCodec.decode(content), payload.toString());
+    }
+
+    @Test(description = "Tests whether only an unset compression threshold is replaced by the default")
+    public void testCompressionThresholdConfiguration() {
+        OperationConfiguration operationConfiguration = new OperationConfiguration();
+        Assert.assertEquals(operationConfiguration.getPayloadCompressionThreshold().intValue(), 1024);
+        operationConfiguration.setPayloadCompressionThreshold(-1);
+        Assert.assertEquals(operationConfiguration.getPayloadCompressionThreshold().intValue(), -1);
+        operationConfiguration.setPayloadCompressionThreshold(0);
+        Assert.assertEquals(operationConfiguration.getPayloadCompressionThreshold().intValue(), 0);
+    }
+
+    @Test(description = "Tests whether the default codec writes content readable by earlier versions")
+    public void testSerializedCodec() throws Exception {
+        SerializedOperationPayloadCodec serializedCodec = new SerializedOperationPayloadCodec();
+        ProfileOperation profileOperation = new ProfileOperation();
+        this.populate(profileOperation, "PROFILE");
+        byte[] content = serializedCodec.encode(profileOperation);
+        Assert.assertTrue(Arrays.equals(content, this.serialize(profileOperation)));
+        this.assertOperation((Operation) serializedCodec.decode(content), profileOperation);
+        this.assertOperation((Operation) OperationDAOUtil.decodePayload(content), profileOperation);
+    }
+
+    @Test(description = "Tests whether compact content stays readable whichever codec is configured")
+    public void testCompactContentWithAnyCodec() throws Exception {
+        CommandOperation commandOperation = new CommandOperation();
+        this.populate(commandOperation, "DEVICE_LOCK");
+        this.assertOperation((Operation) OperationDAOUtil.decodePayload(codec.encode(commandOperation)),
+                commandOperation);
+    }
+
+    @Test(description = "Tests whether content in an unknown format is rejected", expectedExceptions = IOException.class)
+    public void testUnknownContent() throws Exception {
+        codec.decode(new byte[]{1, 2, 3, 4, 5});
+    }
+
+    private void populate(Operation operation, String code) {
+        operation.setCode(code);
+        operation.setId(10);
+        operation.setType(operation.getType() == null ? Operation.Type.POLICY : operation.getType());
+        operation.setStatus(Operation.Status.PENDING);
+        operation.setControl(Operation.Control.REPEAT);
+        operation.setCreatedTimeStamp("2018-01-01 00:00:00.0");
+        operation.setEnabled(true);
+        operation.setPayLoad("{\"enabled\":true}");
+        operation.setActivityId("ACTIVITY_10");
+        operation.setInitiatedBy("admin");
+        Properties properties = new Properties();
+        properties.setProperty("key", "value");
+        operation.setProperties(properties);
+    }
+
+    private void assertOperation(Operation actual, Operation expected) {
+        Assert.assertEquals(actual.getClass(), expected.getClass());
+        Assert.assertEquals(actual.getCode(), expected.getCode());
+        Assert.assertEquals(actual.getId(), expected.getId());
+        Assert.assertEquals(actual.getType(), expected.getType());
+        Assert.assertEquals(actual.getStatus(), expected.getStatus());
+        Assert.assertEquals(actual.getCreatedTimeStamp(), expected.getCreatedTimeStamp());
+        Assert.assertEquals(actual.isEnabled(), expected.isEnabled());
+        Assert.assertEquals(actual.getPayLoad(), expected.getPayLoad());
+        Assert.assertEquals(actual.getActivityId(), expected.getActivityId());
+        Assert.assertEquals(actual.getInitiatedBy(), expected.getInitiatedBy());
+        Assert.assertEquals(actual.getProperties(), expected.getProperties());
+    }
+
+    private byte[] serialize(Object payload) throws IOException {
+        ByteArrayOutputStream bao = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(bao);
+        oos.writeObject(payload);
+        oos.close();
+        return bao.toByteArray();
+    }
+}
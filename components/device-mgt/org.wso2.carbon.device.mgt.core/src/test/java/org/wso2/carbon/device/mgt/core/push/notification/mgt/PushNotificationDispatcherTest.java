@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * you may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.device.mgt.core.push.notification.mgt;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
+import org.wso2.carbon.device.mgt.common.operation.mgt.Operation;
+import org.wso2.carbon.device.mgt.common.push.notification.NotificationContext;
+import org.wso2.carbon.device.mgt.core.common.BaseDeviceManagementTest;
+import org.wso2.carbon.device.mgt.core.config.push.notification.DispatcherConfiguration;
+import org.wso2.carbon.device.mgt.core.operation.TestNotificationStrategy;
+import org.wso2.carbon.utils.multitenancy.MultitenantConstants;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * This class contains unit tests to test {@link PushNotificationDispatcher} class.
+ */
+public class PushNotificationDispatcherTest extends BaseDeviceManagementTest {
+
+    private static final String DEVICE_TYPE = "dispatcher-test-type";
+    private static final long WAIT_TIMEOUT_MILLS = 5000;
+    private PushNotificationDispatcher dispatcher;
+
+    @BeforeClass
+    public void init() {
+        DispatcherConfiguration config = new DispatcherConfiguration();
+        config.setQueueCapacity(1);
+        config.setWorkerPoolSize(1);
+        config.setMaxRetries(2);
+        config.setRetryInitialDelayMills(10);
+        config.setRescheduleIntervalMills(60000);
+        this.dispatcher = new PushNotificationDispatcher(config);
+    }
+
+    @Test(description = "Tests whether a notification is sent by the worker pool of the device type")
+    public void testDispatch() throws InterruptedException {
+        Assert.assertTrue(dispatcher.dispatch(new TestNotificationStrategy(), this.getContext("1"), 1,
+                MultitenantConstants.SUPER_TENANT_ID));
+        this.waitUntil(new Condition() {
+            @Override
+            public boolean isMet() {
+                return dispatcher.getSentCount() == 1;
+            }
+        });
+        Assert.assertEquals(dispatcher.getQueueDepth(DEVICE_TYPE), 0);
+        Assert.assertEquals(dispatcher.getFailedCount(), 0);
+        Assert.assertTrue(dispatcher.getMaxDispatchLatencyMills() >= dispatcher.getAverageDispatchLatencyMills());
+    }
+
+    @Test(description = "Tests whether the dispatcher metrics are exposed through JMX")
+    public void testMBeanRegistration() throws JMException {
+        ObjectName objectName = new ObjectName("org.wso2.carbon.device.mgt:type=PushNotificationDispatcher");
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        Assert.assertTrue(mBeanServer.isRegistered(objectName));
+        Assert.assertNotNull(mBeanServer.getAttribute(objectName, "TotalQueueDepth"));
+        Assert.assertNotNull(mBeanServer.getAttribute(objectName, "MaxDispatchLatencyMills"));
+    }
+
+    @Test(description = "Tests whether a failing notification is retried and then rescheduled",
+            dependsOnMethods = "testDispatch")
+    public void testDispatchWithRetries() throws InterruptedException {
+        dispatcher.dispatch(new TestNotificationStrategy(true), this.getContext("2"), 2,
+                MultitenantConstants.SUPER_TENANT_ID);
+        this.waitUntil(new Condition() {
+            @Override
+            public boolean isMet() {
+                return dispatcher.getFailedCount() == 1;
+            }
+        });
+        Assert.assertEquals(dispatcher.getRetryCount(), 2);
+        Assert.assertEquals(dispatcher.getPendingRescheduleCount(), 1);
+        dispatcher.flushRescheduledMappings();
+        Assert.assertEquals(dispatcher.getPendingRescheduleCount(), 0);
+        Assert.assertEquals(dispatcher.getRescheduledCount(), 1);
+    }
+
+    @AfterClass
+    public void cleanup() throws JMException {
+        dispatcher.shutdown();
+        Assert.assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(
+                new ObjectName("org.wso2.carbon.device.mgt:type=PushNotificationDispatcher")));
+    }
+
+    private NotificationContext getContext(String deviceId) {
+        Operation operation = new Operation();
+        operation.setId(1);
+        return new NotificationContext(new DeviceIdentifier(deviceId, DEVICE_TYPE), operation);
+    }
+
+    private void waitUntil(Condition condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT_TIMEOUT_MILLS;
+        while (!condition.isMet() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(condition.isMet(), "Dispatcher did not reach the expected state in time.");
+    }
+
+    private interface Condition {
+        boolean isMet();
+    }
+}
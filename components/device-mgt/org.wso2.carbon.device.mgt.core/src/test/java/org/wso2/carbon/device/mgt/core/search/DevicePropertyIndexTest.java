@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.search;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.device.mgt.core.common.BaseDeviceManagementTest;
+import org.wso2.carbon.device.mgt.core.common.TestDataHolder;
+import org.wso2.carbon.device.mgt.core.config.search.DevicePropertyIndexConfiguration;
+import org.wso2.carbon.device.mgt.core.search.mgt.index.DevicePropertyIndex;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class contains unit tests to test {@link DevicePropertyIndex} class.
+ */
+public class DevicePropertyIndexTest extends BaseDeviceManagementTest {
+
+    private static final int TENANT_ID = TestDataHolder.SUPER_TENANT_ID;
+    private static final int OTHER_TENANT_ID = TENANT_ID + 1;
+    private static final long BUILD_TIMEOUT_MILLS = 10000;
+
+    private DevicePropertyIndex index;
+
+    @BeforeClass
+    @Override
+    public void init() throws Exception {
+        index = new DevicePropertyIndex(new DevicePropertyIndexConfiguration());
+        long deadline = System.currentTimeMillis() + BUILD_TIMEOUT_MILLS;
+        while (!index.isReady() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        Assert.assertTrue(index.isReady(), "Device property index is not built in time.");
+        index.update(TENANT_ID, 1001, this.getProperties("IMEI", "100", "operator", "Dialog"));
+        index.update(TENANT_ID, 1002, this.getProperties("IMEI", "200", "operator", "Mobitel"));
+        index.update(TENANT_ID, 1003, this.getProperties("IMEI", "300", "operator", "Dialog Axiata"));
+        index.update(OTHER_TENANT_ID, 1004, this.getProperties("IMEI", "100", "operator", "Dialog"));
+    }
+
+    @AfterClass
+    public void tearDown() {
+        index.shutdown();
+    }
+
+    @Test(description = "Evaluate the conditions supported by the index.")
+    public void testGetEnrolments() {
+        Assert.assertEquals(index.getEnrolments(TENANT_ID, "IMEI", "=", "100"), this.getEnrolments(1001));
+        Assert.assertEquals(index.getEnrolments(TENANT_ID, "IMEI", ">", "100"), this.getEnrolments(1002, 1003));
+        Assert.assertEquals(index.getEnrolments(TENANT_ID, "IMEI", "<=", "200"), this.getEnrolments(1001, 1002));
+        Assert.assertEquals(index.getEnrolments(TENANT_ID, "IMEI", "!=", "200"), this.getEnrolments(1001, 1003));
+        Assert.assertEquals(index.getEnrolments(TENANT_ID, "operator", "%", "Dialog"), this.getEnrolments(1001, 1003));
+        Assert.assertTrue(index.getEnrolments(TENANT_ID, "unknown", "=", "100").isEmpty());
+        Assert.assertNull(index.getEnrolments(TENANT_ID, "operator", "%", "Dia_og"));
+    }
+
+    @Test(description = "Evaluate conditions case insensitively, the same way the search queries do.")
+    public void testGetEnrolmentsIgnoringCase() {
+        Assert.assertEquals(index.getEnrolments(TENANT_ID, "imei", "=", "200"), this.getEnrolments(1002));
+        Assert.assertEquals(index.getEnrolments(TENANT_ID, "OPERATOR", "=", "mobitel"), this.getEnrolments(1002));
+        Assert.assertEquals(index.getEnrolments(TENANT_ID, "operator", "%", "AXIATA"), this.getEnrolments(1003));
+    }
+
+    @Test(description = "Replace the properties of an enrolment.",
+            dependsOnMethods = {"testGetEnrolments", "testGetEnrolmentsIgnoringCase"})
+    public void testUpdate() {
+        index.update(TENANT_ID, 1001, this.getProperties("IMEI", "400", "operator", "Airtel"));
+        Assert.assertTrue(index.getEnrolments(TENANT_ID, "IMEI", "=", "100").isEmpty());
+        Assert.assertEquals(index.getEnrolments(TENANT_ID, "IMEI", "=", "400"), this.getEnrolments(1001));
+        Assert.assertEquals(index.getEnrolments(TENANT_ID, "operator", "%", "Dialog"), this.getEnrolments(1003));
+        Assert.assertEquals(index.getEnrolments(OTHER_TENANT_ID, "IMEI", "=", "100"), this.getEnrolments(1004));
+    }
+
+    private Map<String, String> getProperties(String... keyValues) {
+        Map<String, String> properties = new HashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            properties.put(keyValues[i], keyValues[i + 1]);
+        }
+        return properties;
+    }
+
+    private BitSet getEnrolments(int... enrolmentIds) {
+        BitSet enrolments = new BitSet();
+        for (int enrolmentId : enrolmentIds) {
+            enrolments.set(enrolmentId);
+        }
+        return enrolments;
+    }
+}
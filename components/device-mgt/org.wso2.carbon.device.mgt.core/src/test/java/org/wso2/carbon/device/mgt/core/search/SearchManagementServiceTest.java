@@ -23,6 +23,7 @@ import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 import org.wso2.carbon.device.mgt.common.Device;
+import org.wso2.carbon.device.mgt.common.PaginationResult;
 import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
 import org.wso2.carbon.device.mgt.common.DeviceManagementException;
 import org.wso2.carbon.device.mgt.common.device.details.DeviceInfo;
@@ -200,6 +201,27 @@ public class SearchManagementServiceTest extends BaseDeviceManagementTest {
         Assert.assertTrue(devices != null);
     }
 
+    @Test(description = "Search a page of the devices matching the conditions.")
+    public void testPaginatedSearch() throws Exception {
+        SearchContext context = new SearchContext();
+        List<Condition> conditions = new ArrayList<>();
+        Condition cond = new Condition();
+        cond.setKey("deviceModel");
+        cond.setOperator("%");
+        cond.setValue("SM");
+        cond.setState(Condition.State.AND);
+        conditions.add(cond);
+        context.setConditions(conditions);
+        SearchManagerService service = new SearchManagerServiceImpl();
+        List<Device> devices = service.search(context);
+        PaginationResult result = service.search(context, 1, 2);
+        Assert.assertEquals(result.getRecordsTotal(), devices.size());
+        Assert.assertEquals(result.getData().size(), Math.min(2, Math.max(0, devices.size() - 1)));
+        for (int i = 0; i < result.getData().size(); i++) {
+            Assert.assertEquals(((Device) result.getData().get(i)).getId(), devices.get(i + 1).getId());
+        }
+    }
+
     @Test(description = "Test for search updated devices in given time.")
     public void testGetUpdatedDevices() throws SearchMgtException {
         SearchManagerService service = new SearchManagerServiceImpl();
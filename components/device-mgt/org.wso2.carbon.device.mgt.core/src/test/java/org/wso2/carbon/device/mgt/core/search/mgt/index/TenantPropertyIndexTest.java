@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.device.mgt.core.search.mgt.index;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class contains unit tests to test {@link TenantPropertyIndex} class.
+ */
+public class TenantPropertyIndexTest {
+
+    private static final int ENROLMENT_COUNT = 2000;
+
+    @Test(description = "Stop indexing a property of which every enrolment has a different value.")
+    public void testUniqueValuedPropertyIsNotIndexed() {
+        TenantPropertyIndex index = new TenantPropertyIndex();
+        for (int enrolmentId = 1; enrolmentId <= ENROLMENT_COUNT; enrolmentId++) {
+            index.load(enrolmentId, this.getProperties("SERIAL", "SN-" + enrolmentId, "operator",
+                    enrolmentId % 2 == 0 ? "Dialog" : "Mobitel"));
+        }
+        Assert.assertEquals(index.getEnrolmentCount(), ENROLMENT_COUNT);
+        Assert.assertFalse(index.isIndexed("serial"));
+        Assert.assertTrue(index.isIndexed("operator"));
+        Assert.assertNull(index.getEnrolments("SERIAL", "=", "SN-10"));
+        Assert.assertEquals(index.getPostingCount(), ENROLMENT_COUNT, "Postings are held for the unique values.");
+        Assert.assertEquals(index.getEnrolments("operator", "=", "Dialog").cardinality(), ENROLMENT_COUNT / 2);
+
+        index.update(10, this.getProperties("SERIAL", "SN-10", "operator", "Airtel"));
+        Assert.assertNull(index.getEnrolments("SERIAL", "=", "SN-10"));
+        Assert.assertEquals(index.getPostingCount(), ENROLMENT_COUNT);
+        Assert.assertEquals(index.getEnrolments("operator", "=", "Airtel"), this.getEnrolments(10));
+    }
+
+    @Test(description = "Keep indexing properties shared by many enrolments.")
+    public void testLowCardinalityPropertyIsIndexed() {
+        TenantPropertyIndex index = new TenantPropertyIndex();
+        for (int enrolmentId = 1; enrolmentId <= ENROLMENT_COUNT; enrolmentId++) {
+            index.load(enrolmentId, this.getProperties("OS_VERSION", "8." + enrolmentId % 10));
+        }
+        Assert.assertTrue(index.isIndexed("OS_VERSION"));
+        Assert.assertEquals(index.getPostingCount(), ENROLMENT_COUNT);
+        Assert.assertEquals(index.getEnrolments("os_version", ">=", "8.9").cardinality(), ENROLMENT_COUNT / 10);
+    }
+
+    @Test(description = "Compare property names and values case insensitively.")
+    public void testCaseInsensitiveConditions() {
+        TenantPropertyIndex index = new TenantPropertyIndex();
+        index.update(1, this.getProperties("Operator", "Dialog Axiata"));
+        index.update(2, this.getProperties("operator", "MOBITEL"));
+        Assert.assertEquals(index.getEnrolments("OPERATOR", "=", "dialog axiata"), this.getEnrolments(1));
+        Assert.assertEquals(index.getEnrolments("operator", "%", "AXIATA"), this.getEnrolments(1));
+        Assert.assertEquals(index.getEnrolments("operator", "=", "Mobitel"), this.getEnrolments(2));
+        Assert.assertEquals(index.getEnrolments("operator", "!=", "mobitel"), this.getEnrolments(1));
+    }
+
+    @Test(description = "Remove an enrolment from the postings of its previous values.")
+    public void testReplaceProperties() {
+        TenantPropertyIndex index = new TenantPropertyIndex();
+        index.update(5, this.getProperties("IMEI", "100"));
+        Assert.assertFalse(index.load(5, this.getProperties("IMEI", "200")));
+        index.update(5, this.getProperties("IMEI", "300"));
+        Assert.assertTrue(index.getEnrolments("IMEI", "=", "100").isEmpty());
+        Assert.assertEquals(index.getEnrolments("IMEI", "=", "300"), this.getEnrolments(5));
+        Assert.assertEquals(index.getPostingCount(), 1);
+    }
+
+    private Map<String, String> getProperties(String... keyValues) {
+        Map<String, String> properties = new HashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            properties.put(keyValues[i], keyValues[i + 1]);
+        }
+        return properties;
+    }
+
+    private BitSet getEnrolments(int... enrolmentIds) {
+        BitSet enrolments = new BitSet();
+        for (int enrolmentId : enrolmentIds) {
+            enrolments.set(enrolmentId);
+        }
+        return enrolments;
+    }
+}
@@ -30,6 +30,8 @@ import org.wso2.carbon.device.mgt.common.PaginationRequest;
 import org.wso2.carbon.device.mgt.common.PaginationResult;
 import org.wso2.carbon.device.mgt.common.TransactionManagementException;
 import org.wso2.carbon.device.mgt.common.configuration.mgt.ConfigurationManagementException;
+import org.wso2.carbon.device.mgt.common.device.details.DeviceInfo;
+import org.wso2.carbon.device.mgt.common.device.details.DeviceLocation;
 import org.wso2.carbon.device.mgt.common.license.mgt.License;
 import org.wso2.carbon.device.mgt.core.TestDeviceManagementService;
 import org.wso2.carbon.device.mgt.core.authorization.DeviceAccessAuthorizationServiceImpl;
@@ -37,8 +39,11 @@ import org.wso2.carbon.device.mgt.core.common.BaseDeviceManagementTest;
 import org.wso2.carbon.device.mgt.core.common.TestDataHolder;
 import org.wso2.carbon.device.mgt.core.config.DeviceConfigurationManager;
 import org.wso2.carbon.device.mgt.core.dao.DeviceManagementDAOFactory;
+import org.wso2.carbon.device.mgt.core.device.details.mgt.DeviceDetailsMgtException;
+import org.wso2.carbon.device.mgt.core.device.details.mgt.DeviceInformationManager;
 import org.wso2.carbon.device.mgt.core.device.details.mgt.dao.DeviceDetailsDAO;
 import org.wso2.carbon.device.mgt.core.device.details.mgt.dao.DeviceDetailsMgtDAOException;
+import org.wso2.carbon.device.mgt.core.device.details.mgt.impl.DeviceInformationManagerImpl;
 import org.wso2.carbon.device.mgt.core.dto.DeviceType;
 import org.wso2.carbon.device.mgt.core.internal.DeviceManagementDataHolder;
 import org.wso2.carbon.device.mgt.core.internal.DeviceManagementServiceComponent;
@@ -58,6 +63,7 @@ import org.wso2.carbon.utils.multitenancy.MultitenantConstants;
 import java.io.InputStream;
 import java.lang.reflect.Field;
 import java.sql.Timestamp;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
@@ -847,6 +853,36 @@ public class DeviceManagementProviderServiceTest extends BaseDeviceManagementTes
         Assert.assertTrue(true);
     }
 
+    @Test(dependsOnMethods = {"testSuccessfulDeviceEnrollment"})
+    public void testGetDevicesInfoAndLocations() throws DeviceDetailsMgtException {
+        if (!isMock()) {
+            DeviceInformationManager deviceInformationManager = new DeviceInformationManagerImpl();
+            DeviceIdentifier deviceIdentifier = new DeviceIdentifier(DEVICE_ID, DEVICE_TYPE);
+            DeviceInfo deviceInfo = TestDataHolder.generateDummyDeviceInfo();
+            deviceInfo.getDeviceDetailsMap().put("BATTERY_VOLTAGE", "40");
+            deviceInformationManager.addDeviceInfo(deviceIdentifier, deviceInfo);
+            DeviceLocation location = new DeviceLocation();
+            location.setDeviceIdentifier(deviceIdentifier);
+            location.setLatitude(6.9271);
+            location.setLongitude(79.8612);
+            location.setCity("Colombo");
+            deviceInformationManager.addDeviceLocation(location);
+
+            List<DeviceIdentifier> deviceIdentifiers = Arrays.asList(deviceIdentifier,
+                    new DeviceIdentifier(ALTERNATE_DEVICE_ID + "-unknown", DEVICE_TYPE),
+                    new DeviceIdentifier(DEVICE_ID, "UNKNOWN_DEVICE_TYPE"));
+            List<DeviceInfo> deviceInfos = deviceInformationManager.getDevicesInfo(deviceIdentifiers);
+            Assert.assertEquals(deviceInfos.size(), 1);
+            Assert.assertEquals(deviceInfos.get(0).getDeviceModel(), "DUMMY_MODEL");
+            Assert.assertEquals(deviceInfos.get(0).getDeviceDetailsMap().get("BATTERY_VOLTAGE"), "40");
+
+            List<DeviceLocation> locations = deviceInformationManager.getDeviceLocations(deviceIdentifiers);
+            Assert.assertEquals(locations.size(), 1);
+            Assert.assertEquals(locations.get(0).getDeviceIdentifier().getId(), DEVICE_ID);
+            Assert.assertEquals(locations.get(0).getCity(), "Colombo");
+        }
+    }
+
     private Date yesterday() {
         final Calendar cal = Calendar.getInstance();
         cal.add(Calendar.DATE, -1);
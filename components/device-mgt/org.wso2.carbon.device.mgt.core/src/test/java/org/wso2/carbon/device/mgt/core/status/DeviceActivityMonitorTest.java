@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.device.mgt.core.status;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
+import org.wso2.carbon.device.mgt.common.EnrolmentInfo;
+import org.wso2.carbon.device.mgt.core.operation.mgt.OperationEnrolmentMapping;
+import org.wso2.carbon.device.mgt.core.status.task.impl.DeviceActivityMonitor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class contains unit tests to test {@link DeviceActivityMonitor} class.
+ */
+public class DeviceActivityMonitorTest {
+
+    private static final String DEVICE_TYPE = "TEST_TYPE";
+    private static final String OTHER_DEVICE_TYPE = "OTHER_TYPE";
+    private static final int TENANT_ID = -1234;
+
+    @Test(description = "Tests whether the activities of device types which have not been synchronized are ignored")
+    public void testUntrackedDeviceType() {
+        DeviceActivityMonitor monitor = new DeviceActivityMonitor();
+        Assert.assertTrue(monitor.isResyncDue(OTHER_DEVICE_TYPE, 3600));
+        monitor.operationsAdded(this.getEnrolments(OTHER_DEVICE_TYPE, 1, 2), TENANT_ID);
+        Assert.assertEquals(monitor.getTrackedEnrolmentCount(OTHER_DEVICE_TYPE), 0);
+        Assert.assertTrue(monitor.expire(OTHER_DEVICE_TYPE, 0, 0).isEmpty());
+    }
+
+    @Test(description = "Tests whether the enrolments read from the database move to their next status once idle")
+    public void testResyncAndExpire() {
+        DeviceActivityMonitor monitor = new DeviceActivityMonitor();
+        long now = System.currentTimeMillis() / 1000;
+        long resyncTime = monitor.beginResync(DEVICE_TYPE);
+        List<OperationEnrolmentMapping> mappings = new ArrayList<>();
+        mappings.add(this.getMapping(1, now - 100, EnrolmentInfo.Status.ACTIVE));
+        mappings.add(this.getMapping(2, now - 20, EnrolmentInfo.Status.ACTIVE));
+        mappings.add(this.getMapping(3, now - 100, EnrolmentInfo.Status.ACTIVE));
+        mappings.add(this.getMapping(4, now - 100, EnrolmentInfo.Status.UNREACHABLE));
+        Map<Integer, Long> lastActivities = new HashMap<>();
+        lastActivities.put(3, now - 50);
+        monitor.completeResync(DEVICE_TYPE, resyncTime, mappings, lastActivities);
+        Assert.assertFalse(monitor.isResyncDue(DEVICE_TYPE, 3600));
+        Assert.assertEquals(monitor.getTrackedEnrolmentCount(DEVICE_TYPE), 3);
+
+        List<OperationEnrolmentMapping> expired = monitor.expire(DEVICE_TYPE, 60, 1000);
+        Assert.assertEquals(expired.size(), 1);
+        Assert.assertEquals(expired.get(0).getEnrolmentId(), 1);
+        Assert.assertEquals(expired.get(0).getDeviceStatus(), EnrolmentInfo.Status.UNREACHABLE);
+        Assert.assertEquals(expired.get(0).getDeviceType(), DEVICE_TYPE);
+        Assert.assertEquals(expired.get(0).getDeviceId(), "device-1");
+        Assert.assertTrue(monitor.expire(DEVICE_TYPE, 60, 1000).isEmpty());
+
+        expired = monitor.expire(DEVICE_TYPE, 10, 90);
+        Assert.assertEquals(this.getStatuses(expired).get(1), EnrolmentInfo.Status.INACTIVE);
+        Assert.assertEquals(this.getStatuses(expired).get(4), EnrolmentInfo.Status.INACTIVE);
+        Assert.assertEquals(this.getStatuses(expired).get(2), EnrolmentInfo.Status.UNREACHABLE);
+        Assert.assertEquals(expired.size(), 3);
+        Assert.assertEquals(monitor.getTrackedEnrolmentCount(DEVICE_TYPE), 1);
+    }
+
+    @Test(description = "Tests whether the pending operations of devices seen afterwards are no longer considered")
+    public void testOperationsAddedAndDeviceSeen() {
+        DeviceActivityMonitor monitor = new DeviceActivityMonitor();
+        monitor.completeResync(DEVICE_TYPE, monitor.beginResync(DEVICE_TYPE),
+                Collections.<OperationEnrolmentMapping>emptyList(), null);
+        monitor.operationsAdded(this.getEnrolments(DEVICE_TYPE, 1, 2, 3), TENANT_ID);
+        monitor.operationsAdded(this.getEnrolments(DEVICE_TYPE, 1), TENANT_ID);
+        Assert.assertEquals(monitor.getTrackedEnrolmentCount(DEVICE_TYPE), 3);
+        monitor.deviceSeen(new DeviceIdentifier("device-2", DEVICE_TYPE), 2);
+
+        Map<Integer, EnrolmentInfo.Status> statuses = this.getStatuses(monitor.expire(DEVICE_TYPE, 0, 1000));
+        Assert.assertEquals(statuses.size(), 2);
+        Assert.assertEquals(statuses.get(1), EnrolmentInfo.Status.UNREACHABLE);
+        Assert.assertEquals(statuses.get(3), EnrolmentInfo.Status.UNREACHABLE);
+
+        monitor.deviceSeen(new DeviceIdentifier("device-3", DEVICE_TYPE), 3);
+        statuses = this.getStatuses(monitor.expire(DEVICE_TYPE, 0, 0));
+        Assert.assertEquals(statuses.size(), 1);
+        Assert.assertEquals(statuses.get(1), EnrolmentInfo.Status.INACTIVE);
+        Assert.assertEquals(monitor.getTrackedEnrolmentCount(DEVICE_TYPE), 0);
+        Assert.assertEquals(monitor.getExpiredEnrolmentCount(), 3);
+    }
+
+    @Test(description = "Tests whether a resync keeps local operations and skips devices seen while it is running")
+    public void testResyncMerge() {
+        DeviceActivityMonitor monitor = new DeviceActivityMonitor();
+        long now = System.currentTimeMillis() / 1000;
+        monitor.completeResync(DEVICE_TYPE, monitor.beginResync(DEVICE_TYPE),
+                Collections.<OperationEnrolmentMapping>emptyList(), null);
+        monitor.operationsAdded(this.getEnrolments(DEVICE_TYPE, 1), TENANT_ID);
+        monitor.deviceSeen(new DeviceIdentifier("device-1", DEVICE_TYPE), 1);
+
+        long resyncTime = monitor.beginResync(DEVICE_TYPE);
+        monitor.operationsAdded(this.getEnrolments(DEVICE_TYPE, 2), TENANT_ID);
+        monitor.deviceSeen(new DeviceIdentifier("device-3", DEVICE_TYPE), 3);
+        List<OperationEnrolmentMapping> mappings = new ArrayList<>();
+        mappings.add(this.getMapping(3, now - 100, EnrolmentInfo.Status.ACTIVE));
+        mappings.add(this.getMapping(4, now - 100, EnrolmentInfo.Status.ACTIVE));
+        monitor.completeResync(DEVICE_TYPE, resyncTime, mappings, null);
+
+        Map<Integer, EnrolmentInfo.Status> statuses = this.getStatuses(monitor.expire(DEVICE_TYPE, 0, 1000));
+        Assert.assertEquals(statuses.size(), 2);
+        Assert.assertTrue(statuses.containsKey(2));
+        Assert.assertTrue(statuses.containsKey(4));
+        Assert.assertEquals(monitor.getResyncCount(), 2);
+        monitor.remove(DEVICE_TYPE);
+        Assert.assertTrue(monitor.isResyncDue(DEVICE_TYPE, 3600));
+    }
+
+    @Test(description = "Tests whether expired enrolments of devices seen by other nodes are left unchanged")
+    public void testDeviceSeenElsewhere() {
+        DeviceActivityMonitor monitor = new DeviceActivityMonitor();
+        long now = System.currentTimeMillis() / 1000;
+        List<OperationEnrolmentMapping> mappings = new ArrayList<>();
+        mappings.add(this.getMapping(1, now - 100, EnrolmentInfo.Status.ACTIVE));
+        mappings.add(this.getMapping(2, now - 100, EnrolmentInfo.Status.ACTIVE));
+        mappings.add(this.getMapping(3, now - 100, EnrolmentInfo.Status.ACTIVE));
+        monitor.completeResync(DEVICE_TYPE, monitor.beginResync(DEVICE_TYPE), mappings, null);
+
+        // Device 2 polled another node after its operation was added, device 3 acted before it was added
+        Map<Integer, Long> lastActivities = new HashMap<>();
+        lastActivities.put(2, now - 30);
+        lastActivities.put(3, now - 200);
+        List<OperationEnrolmentMapping> expired = monitor.excludeSeenEnrolments(DEVICE_TYPE,
+                monitor.expire(DEVICE_TYPE, 60, 1000), lastActivities);
+        Map<Integer, EnrolmentInfo.Status> statuses = this.getStatuses(expired);
+        Assert.assertEquals(statuses.size(), 2);
+        Assert.assertEquals(statuses.get(1), EnrolmentInfo.Status.UNREACHABLE);
+        Assert.assertEquals(statuses.get(3), EnrolmentInfo.Status.UNREACHABLE);
+        Assert.assertEquals(monitor.getTrackedEnrolmentCount(DEVICE_TYPE), 2);
+        Assert.assertEquals(monitor.getExpiredEnrolmentCount(), 2);
+
+        // Device 2 is no longer tracked, so it is not marked as inactive either
+        statuses = this.getStatuses(monitor.excludeSeenEnrolments(DEVICE_TYPE, monitor.expire(DEVICE_TYPE, 0, 0),
+                Collections.<Integer, Long>emptyMap()));
+        Assert.assertEquals(statuses.size(), 2);
+        Assert.assertEquals(statuses.get(1), EnrolmentInfo.Status.INACTIVE);
+        Assert.assertEquals(statuses.get(3), EnrolmentInfo.Status.INACTIVE);
+        Assert.assertEquals(monitor.getTrackedEnrolmentCount(DEVICE_TYPE), 0);
+    }
+
+    private Map<Integer, DeviceIdentifier> getEnrolments(String deviceType, int... enrolmentIds) {
+        Map<Integer, DeviceIdentifier> enrolments = new HashMap<>();
+        for (int enrolmentId : enrolmentIds) {
+            enrolments.put(enrolmentId, new DeviceIdentifier("device-" + enrolmentId, deviceType));
+        }
+        return enrolments;
+    }
+
+    private OperationEnrolmentMapping getMapping(int enrolmentId, long createdTime, EnrolmentInfo.Status status) {
+        OperationEnrolmentMapping mapping = new OperationEnrolmentMapping();
+        mapping.setEnrolmentId(enrolmentId);
+        mapping.setDeviceId("device-" + enrolmentId);
+        mapping.setTenantId(TENANT_ID);
+        mapping.setCreatedTime(createdTime);
+        mapping.setDeviceStatus(status.name());
+        return mapping;
+    }
+
+    private Map<Integer, EnrolmentInfo.Status> getStatuses(List<OperationEnrolmentMapping> mappings) {
+        Map<Integer, EnrolmentInfo.Status> statuses = new HashMap<>();
+        for (OperationEnrolmentMapping mapping : mappings) {
+            statuses.put(mapping.getEnrolmentId(), mapping.getDeviceStatus());
+        }
+        return statuses;
+    }
+}
@@ -42,6 +42,7 @@ import org.wso2.carbon.device.mgt.core.common.TestDataHolder;
 import org.wso2.carbon.device.mgt.core.internal.DeviceManagementDataHolder;
 import org.wso2.carbon.device.mgt.core.internal.DeviceManagementServiceComponent;
 import org.wso2.carbon.device.mgt.core.operation.TestNotificationStrategy;
+import org.wso2.carbon.device.mgt.core.operation.mgt.CommandOperation;
 import org.wso2.carbon.device.mgt.core.operation.mgt.OperationManagerImpl;
 import org.wso2.carbon.device.mgt.core.service.DeviceManagementProviderService;
 import org.wso2.carbon.device.mgt.core.service.DeviceManagementProviderServiceImpl;
@@ -129,6 +130,21 @@ public class DeviceTaskManagerTest extends BaseDeviceManagementTest {
         log.info("Successfully added operations for devices.");
     }
 
+    @Test(groups = "Device Task Manager Test Group", dependsOnMethods = "testAddOperation",
+            description = "Testing that monitoring operations are not added again to devices which have them pending")
+    public void testAddMonitoringOperationWithPendingOperations() throws OperationManagementException {
+        CommandOperation operation = new CommandOperation();
+        operation.setEnabled(true);
+        operation.setType(Operation.Type.COMMAND);
+        operation.setCode(TestDataHolder.OPERATION_CONFIG + "0");
+        int deviceCount = this.deviceMgtProviderService.addMonitoringOperation(TestDataHolder.TEST_DEVICE_TYPE,
+                operation, deviceIds, 0);
+        Assert.assertEquals(deviceCount, 0, "Monitoring operation is added to devices which have it pending");
+        for (DeviceIdentifier deviceId : deviceIds) {
+            Assert.assertEquals(this.operationManager.getOperations(deviceId).size(), 3);
+        }
+    }
+
     @Test(groups = "Device Task Manager Test Group",
             description = "Testing adding operations when no devices are available")
     public void testAddOperationsWithoutDevices() throws DeviceManagementException, DeviceMgtTaskException {
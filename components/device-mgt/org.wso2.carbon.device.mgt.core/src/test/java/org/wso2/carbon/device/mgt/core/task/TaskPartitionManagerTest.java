@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.task;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.device.mgt.core.common.BaseDeviceManagementTest;
+import org.wso2.carbon.device.mgt.core.config.task.TaskPartitionConfiguration;
+import org.wso2.carbon.device.mgt.core.task.partition.TaskPartitionManager;
+import org.wso2.carbon.device.mgt.core.task.partition.TaskPartitions;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * This is a test class to test the leasing of the partitions of the sharded tasks in {@link TaskPartitionManager}.
+ */
+public class TaskPartitionManagerTest extends BaseDeviceManagementTest {
+
+    private static final String TASK_NAME = "TEST_PARTITIONED_TASK";
+    private static final int PARTITION_COUNT = 16;
+    private static final long TASK_INTERVAL = 60000;
+
+    private TaskPartitionManager firstNode;
+    private TaskPartitionManager secondNode;
+
+    @BeforeClass
+    @Override
+    public void init() throws Exception {
+        TaskPartitionConfiguration config = new TaskPartitionConfiguration();
+        config.setEnabled(true);
+        config.setPartitionCount(PARTITION_COUNT);
+        this.firstNode = new TaskPartitionManager(config, "node-1");
+        this.secondNode = new TaskPartitionManager(config, "node-2");
+    }
+
+    @Test(description = "Single node of a task holds all its partitions")
+    public void testAcquireAllPartitions() {
+        TaskPartitions partitions = firstNode.acquirePartitions(TASK_NAME, TASK_INTERVAL);
+        Assert.assertEquals(partitions.getPartitionIds().size(), PARTITION_COUNT);
+        for (int enrolmentId = 0; enrolmentId < 100; enrolmentId++) {
+            Assert.assertTrue(partitions.contains(enrolmentId));
+        }
+    }
+
+    @Test(description = "Partitions are rebalanced when a node joins", dependsOnMethods = "testAcquireAllPartitions")
+    public void testRebalanceOnJoin() {
+        Assert.assertTrue(secondNode.acquirePartitions(TASK_NAME, TASK_INTERVAL).isEmpty(),
+                "Partitions held by a live node are not taken over");
+        TaskPartitions firstPartitions = firstNode.acquirePartitions(TASK_NAME, TASK_INTERVAL);
+        TaskPartitions secondPartitions = secondNode.acquirePartitions(TASK_NAME, TASK_INTERVAL);
+        Assert.assertEquals(firstPartitions.getPartitionIds().size(), PARTITION_COUNT / 2);
+        Assert.assertEquals(secondPartitions.getPartitionIds().size(), PARTITION_COUNT / 2);
+        Set<Integer> partitionIds = new HashSet<>(firstPartitions.getPartitionIds());
+        partitionIds.addAll(secondPartitions.getPartitionIds());
+        Assert.assertEquals(partitionIds.size(), PARTITION_COUNT);
+        for (int enrolmentId = 0; enrolmentId < 100; enrolmentId++) {
+            Assert.assertTrue(firstPartitions.contains(enrolmentId) ^ secondPartitions.contains(enrolmentId),
+                    "Enrolment " + enrolmentId + " is handled by exactly one node");
+        }
+    }
+
+    @Test(description = "Partitions of a node which left are taken over", dependsOnMethods = "testRebalanceOnJoin")
+    public void testTakeOverOnLeave() {
+        secondNode.shutdown();
+        TaskPartitions partitions = firstNode.acquirePartitions(TASK_NAME, TASK_INTERVAL);
+        Assert.assertEquals(partitions.getPartitionIds().size(), PARTITION_COUNT);
+    }
+
+    @Test(description = "Partitions are renewed during a run only while their leases are held",
+            dependsOnMethods = "testTakeOverOnLeave")
+    public void testRenewPartitions() {
+        TaskPartitions partitions = firstNode.acquirePartitions(TASK_NAME, TASK_INTERVAL);
+        Assert.assertEquals(firstNode.renewPartitions(partitions, TASK_INTERVAL).getPartitionIds(),
+                partitions.getPartitionIds());
+        firstNode.shutdown();
+        Assert.assertTrue(firstNode.renewPartitions(partitions, TASK_INTERVAL).isEmpty(),
+                "Released partitions are renewed");
+    }
+}
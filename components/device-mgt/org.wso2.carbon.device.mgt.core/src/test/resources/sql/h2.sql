@@ -567,3 +567,102 @@ DM_DEVICE.ID = DM_DEVICE_DETAIL.DEVICE_ID
 ORDER BY TENANT_ID, DEVICE_ID;
 
 -- END OF DASHBOARD RELATED VIEWS --
+
+-- TEMP TABLE REQUIRED FOR DATA ARCHIVAL JOB
+CREATE TABLE IF NOT EXISTS DM_ARCHIVED_OPERATIONS (
+    ID INTEGER NOT NULL,
+    CREATED_TIMESTAMP TIMESTAMP NOT NULL,
+    PRIMARY KEY (ID)
+);
+
+-- PARTITION LEASES OF THE SHARDED DEVICE TASKS
+CREATE TABLE IF NOT EXISTS DM_TASK_PARTITION_LEASE (
+    TASK_NAME VARCHAR(150) NOT NULL,
+    PARTITION_ID INTEGER NOT NULL,
+    OWNER_ID VARCHAR(100) NULL,
+    LEASE_EXPIRY BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (TASK_NAME, PARTITION_ID)
+);
+
+CREATE TABLE IF NOT EXISTS DM_TASK_MEMBER (
+    TASK_NAME VARCHAR(150) NOT NULL,
+    NODE_ID VARCHAR(100) NOT NULL,
+    LAST_SEEN BIGINT NOT NULL,
+    PRIMARY KEY (TASK_NAME, NODE_ID)
+);
+
+-- ARCHIVAL TABLES --
+CREATE TABLE IF NOT EXISTS DM_OPERATION_ARCH (
+    ID INTEGER NOT NULL,
+    TYPE VARCHAR(50) NOT NULL,
+    CREATED_TIMESTAMP TIMESTAMP NOT NULL,
+    RECEIVED_TIMESTAMP TIMESTAMP NULL,
+    OPERATION_CODE VARCHAR(1000) NOT NULL,
+    ARCHIVED_AT TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (ID)
+);
+
+CREATE TABLE IF NOT EXISTS DM_ENROLMENT_OP_MAPPING_ARCH (
+    ID INTEGER NOT NULL,
+    ENROLMENT_ID INTEGER NOT NULL,
+    OPERATION_ID INTEGER NOT NULL,
+    STATUS VARCHAR(50) NULL,
+    PUSH_NOTIFICATION_STATUS VARCHAR(50) NULL,
+    CREATED_TIMESTAMP BIGINT NOT NULL,
+    UPDATED_TIMESTAMP BIGINT NOT NULL,
+    ARCHIVED_AT TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (ID)
+);
+
+CREATE TABLE IF NOT EXISTS DM_DEVICE_OPERATION_RESPONSE_ARCH (
+    ID INTEGER NOT NULL,
+    ENROLMENT_ID INTEGER NOT NULL,
+    OPERATION_ID INTEGER NOT NULL,
+    EN_OP_MAP_ID INTEGER NOT NULL,
+    OPERATION_RESPONSE BLOB DEFAULT NULL,
+    RECEIVED_TIMESTAMP TIMESTAMP NULL,
+    ARCHIVED_AT TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (ID)
+);
+
+CREATE TABLE IF NOT EXISTS DM_NOTIFICATION_ARCH (
+    NOTIFICATION_ID INTEGER NOT NULL,
+    DEVICE_ID INTEGER NOT NULL,
+    OPERATION_ID INTEGER NOT NULL,
+    TENANT_ID INTEGER NOT NULL,
+    STATUS VARCHAR(10) NULL,
+    DESCRIPTION VARCHAR(1000) NULL,
+    ARCHIVED_AT TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (NOTIFICATION_ID)
+);
+
+CREATE TABLE IF NOT EXISTS DM_COMMAND_OPERATION_ARCH (
+    OPERATION_ID INTEGER NOT NULL,
+    ENABLED BOOLEAN NOT NULL DEFAULT FALSE,
+    ARCHIVED_AT TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (OPERATION_ID)
+);
+
+CREATE TABLE IF NOT EXISTS DM_CONFIG_OPERATION_ARCH (
+    OPERATION_ID INTEGER NOT NULL,
+    OPERATION_CONFIG BLOB DEFAULT NULL,
+    ENABLED BOOLEAN NOT NULL DEFAULT FALSE,
+    ARCHIVED_AT TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (OPERATION_ID)
+);
+
+CREATE TABLE IF NOT EXISTS DM_PROFILE_OPERATION_ARCH (
+    OPERATION_ID INTEGER NOT NULL,
+    ENABLED INTEGER NOT NULL DEFAULT 0,
+    OPERATION_DETAILS BLOB DEFAULT NULL,
+    ARCHIVED_AT TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (OPERATION_ID)
+);
+
+CREATE TABLE IF NOT EXISTS DM_POLICY_OPERATION_ARCH (
+    OPERATION_ID INTEGER NOT NULL,
+    ENABLED INTEGER NOT NULL DEFAULT 0,
+    OPERATION_DETAILS BLOB DEFAULT NULL,
+    ARCHIVED_AT TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (OPERATION_ID)
+);
@@ -55,7 +55,21 @@ public class MergedEvaluationPoint implements PolicyEvaluationPoint {
 
     @Override
     public Policy getEffectivePolicy(DeviceIdentifier deviceIdentifier) throws PolicyEvaluationException {
-        PIPDevice pipDevice;
+        policyManagerService = getPolicyManagerService();
+        if (policyManagerService == null) {
+            return null;
+        }
+        try {
+            return this.getEffectivePolicy(policyManagerService.getPIP().getDeviceData(deviceIdentifier));
+        } catch (PolicyManagementException e) {
+            String msg = "Error occurred when retrieving the policy related data from policy management service.";
+            log.error(msg, e);
+            throw new PolicyEvaluationException(msg, e);
+        }
+    }
+
+    @Override
+    public Policy getEffectivePolicy(PIPDevice pipDevice) throws PolicyEvaluationException {
         List<Policy> policyList;
         Policy policy;
         try {
@@ -64,7 +78,6 @@ public class MergedEvaluationPoint implements PolicyEvaluationPoint {
                 return null;
             }
             PolicyInformationPoint policyInformationPoint = policyManagerService.getPIP();
-            pipDevice = policyInformationPoint.getDeviceData(deviceIdentifier);
             policyList = policyInformationPoint.getRelatedPolicies(pipDevice);
 
             if (policyList.size() == 0) {
@@ -79,7 +92,7 @@ public class MergedEvaluationPoint implements PolicyEvaluationPoint {
             Timestamp currentTimestamp = new Timestamp(Calendar.getInstance().getTime().getTime());
             profile.setCreatedDate(currentTimestamp);
             profile.setUpdatedDate(currentTimestamp);
-            profile.setDeviceType(deviceIdentifier.getType());
+            profile.setDeviceType(pipDevice.getDeviceIdentifier().getType());
             profile.setTenantId(PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId());
             // Set effective policy name
             policy.setPolicyName(effectivePolicyName);
@@ -20,6 +20,7 @@ package org.wso2.carbon.policy.decision.point.simple;
 
 import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
 import org.wso2.carbon.device.mgt.common.policy.mgt.Policy;
+import org.wso2.carbon.policy.mgt.common.PIPDevice;
 import org.wso2.carbon.policy.mgt.common.PolicyEvaluationException;
 import org.wso2.carbon.policy.mgt.common.PolicyEvaluationPoint;
 import org.wso2.carbon.device.mgt.common.policy.mgt.ProfileFeature;
@@ -40,6 +41,11 @@ public class PolicyEvaluationServiceImpl implements PolicyEvaluationPoint {
         return evaluation.getEffectivePolicy(deviceIdentifier);
     }
 
+    @Override
+    public Policy getEffectivePolicy(PIPDevice pipDevice) throws PolicyEvaluationException {
+        return evaluation.getEffectivePolicy(pipDevice);
+    }
+
     @Override
     public List<ProfileFeature> getEffectiveFeatures(DeviceIdentifier deviceIdentifier)
             throws PolicyEvaluationException {
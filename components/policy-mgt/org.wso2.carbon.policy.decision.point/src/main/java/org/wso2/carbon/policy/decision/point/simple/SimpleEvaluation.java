@@ -21,6 +21,7 @@ package org.wso2.carbon.policy.decision.point.simple;
 
 import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
 import org.wso2.carbon.device.mgt.common.policy.mgt.Policy;
+import org.wso2.carbon.policy.mgt.common.PIPDevice;
 import org.wso2.carbon.policy.mgt.common.PolicyEvaluationException;
 
 public interface SimpleEvaluation  {
@@ -29,4 +30,6 @@ public interface SimpleEvaluation  {
 
     Policy getEffectivePolicy(DeviceIdentifier deviceIdentifier)  throws PolicyEvaluationException;
 
+    Policy getEffectivePolicy(PIPDevice pipDevice) throws PolicyEvaluationException;
+
 }
@@ -38,8 +38,29 @@ public class SimpleEvaluationImpl implements SimpleEvaluation {
 
     @Override
     public Policy getEffectivePolicy(DeviceIdentifier deviceIdentifier) throws PolicyEvaluationException {
+        policyManagerService = getPolicyManagerService();
+        if (policyManagerService == null) {
+            return new Policy();
+        }
+        try {
+            Policy policy = this.getEffectivePolicy(policyManagerService.getPIP().getDeviceData(deviceIdentifier));
+            PolicyAdministratorPoint policyAdministratorPoint = policyManagerService.getPAP();
+            if (policy == null) {
+                policyAdministratorPoint.removePolicyUsed(deviceIdentifier);
+            } else {
+                policyAdministratorPoint.setPolicyUsed(deviceIdentifier, policy);
+            }
+            return policy;
+        } catch (PolicyManagementException e) {
+            String msg = "Error occurred when retrieving the policy related data from policy management service.";
+            log.error(msg, e);
+            throw new PolicyEvaluationException(msg, e);
+        }
+    }
+
+    @Override
+    public Policy getEffectivePolicy(PIPDevice pipDevice) throws PolicyEvaluationException {
         Policy policy = new Policy();
-        PolicyAdministratorPoint policyAdministratorPoint;
         PolicyInformationPoint policyInformationPoint;
         policyManagerService = getPolicyManagerService();
 
@@ -47,18 +68,15 @@ public class SimpleEvaluationImpl implements SimpleEvaluation {
             if (policyManagerService != null) {
 
                 policyInformationPoint = policyManagerService.getPIP();
-                PIPDevice pipDevice = policyInformationPoint.getDeviceData(deviceIdentifier);
                 policyList = policyInformationPoint.getRelatedPolicies(pipDevice);
-                policyAdministratorPoint = policyManagerService.getPAP();
                 sortPolicies();
+                // The applied policy is recorded only when a single device is evaluated by its identifier, since the
+                // enforcement delegator records the applied policies of the devices it evaluates in batches.
                 if(!policyList.isEmpty()) {
                     policy = policyList.get(0);
                 } else {
-                    policyAdministratorPoint.removePolicyUsed(deviceIdentifier);
                     return null;
                 }
-                //TODO : UNCOMMENT THE FOLLOWING CASE
-                policyAdministratorPoint.setPolicyUsed(deviceIdentifier, policy);
 
             }
 
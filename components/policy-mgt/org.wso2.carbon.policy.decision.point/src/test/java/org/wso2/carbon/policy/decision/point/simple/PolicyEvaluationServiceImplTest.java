@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.policy.decision.point.simple;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
+import org.wso2.carbon.device.mgt.common.policy.mgt.Policy;
+import org.wso2.carbon.device.mgt.common.policy.mgt.Profile;
+import org.wso2.carbon.device.mgt.common.policy.mgt.ProfileFeature;
+import org.wso2.carbon.policy.decision.point.internal.PolicyDecisionPointDataHolder;
+import org.wso2.carbon.policy.mgt.common.PIPDevice;
+import org.wso2.carbon.policy.mgt.common.PolicyAdministratorPoint;
+import org.wso2.carbon.policy.mgt.common.PolicyInformationPoint;
+import org.wso2.carbon.policy.mgt.core.PolicyManagerService;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * This class contains unit tests to test {@link PolicyEvaluationServiceImpl} class, and whether the applied policy of a
+ * device is recorded when it is evaluated by its identifier.
+ */
+public class PolicyEvaluationServiceImplTest {
+
+    private static final DeviceIdentifier DEVICE_IDENTIFIER = new DeviceIdentifier("device1", "android");
+
+    private PolicyManagerService policyManagerService;
+    private PolicyInformationPoint policyInformationPoint;
+    private PolicyAdministratorPoint policyAdministratorPoint;
+    private PIPDevice pipDevice;
+
+    @BeforeMethod
+    public void init() throws Exception {
+        policyManagerService = mock(PolicyManagerService.class);
+        policyInformationPoint = mock(PolicyInformationPoint.class);
+        policyAdministratorPoint = mock(PolicyAdministratorPoint.class);
+        when(policyManagerService.getPIP()).thenReturn(policyInformationPoint);
+        when(policyManagerService.getPAP()).thenReturn(policyAdministratorPoint);
+        pipDevice = new PIPDevice();
+        pipDevice.setDeviceIdentifier(DEVICE_IDENTIFIER);
+        when(policyInformationPoint.getDeviceData(DEVICE_IDENTIFIER)).thenReturn(pipDevice);
+        PolicyDecisionPointDataHolder.getInstance().setPolicyManagerService(policyManagerService);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        PolicyDecisionPointDataHolder.getInstance().setPolicyManagerService(null);
+    }
+
+    @Test(description = "Tests whether the applied policy is recorded when the effective features are evaluated")
+    public void testGetEffectiveFeatures() throws Exception {
+        Policy lowPriorityPolicy = this.getPolicy(1, 2, "CAMERA");
+        Policy highPriorityPolicy = this.getPolicy(2, 1, "WIFI");
+        List<Policy> policies = new ArrayList<>();
+        policies.add(lowPriorityPolicy);
+        policies.add(highPriorityPolicy);
+        when(policyInformationPoint.getRelatedPolicies(pipDevice)).thenReturn(policies);
+
+        List<ProfileFeature> features = new PolicyEvaluationServiceImpl().getEffectiveFeatures(DEVICE_IDENTIFIER);
+        Assert.assertEquals(features.size(), 1);
+        Assert.assertEquals(features.get(0).getFeatureCode(), "WIFI");
+        verify(policyAdministratorPoint).setPolicyUsed(DEVICE_IDENTIFIER, highPriorityPolicy);
+        verify(policyAdministratorPoint, never()).removePolicyUsed(any(DeviceIdentifier.class));
+    }
+
+    @Test(description = "Tests whether the applied policy is removed when no policy applies to the device")
+    public void testGetEffectivePolicyWithoutPolicies() throws Exception {
+        when(policyInformationPoint.getRelatedPolicies(pipDevice)).thenReturn(new ArrayList<Policy>());
+
+        Assert.assertNull(new PolicyEvaluationServiceImpl().getEffectivePolicy(DEVICE_IDENTIFIER));
+        verify(policyAdministratorPoint).removePolicyUsed(DEVICE_IDENTIFIER);
+        verify(policyAdministratorPoint, never()).setPolicyUsed(any(DeviceIdentifier.class), any(Policy.class));
+    }
+
+    @Test(description = "Tests whether devices evaluated with loaded policy data are left to be recorded in batches")
+    public void testGetEffectivePolicyOfLoadedDevice() throws Exception {
+        Policy policy = this.getPolicy(1, 1, "CAMERA");
+        when(policyInformationPoint.getRelatedPolicies(pipDevice)).thenReturn(
+                new ArrayList<>(Collections.singletonList(policy)));
+
+        Assert.assertSame(new PolicyEvaluationServiceImpl().getEffectivePolicy(pipDevice), policy);
+        verify(policyManagerService, never()).getPAP();
+    }
+
+    private Policy getPolicy(int id, int priorityId, String featureCode) {
+        ProfileFeature feature = new ProfileFeature();
+        feature.setFeatureCode(featureCode);
+        Profile profile = new Profile();
+        profile.setProfileFeaturesList(Collections.singletonList(feature));
+        Policy policy = new Policy();
+        policy.setId(id);
+        policy.setPriorityId(priorityId);
+        policy.setProfile(profile);
+        return policy;
+    }
+}
@@ -38,6 +38,16 @@ public interface PolicyEvaluationPoint {
      */
     Policy getEffectivePolicy(DeviceIdentifier deviceIdentifier) throws PolicyEvaluationException;
 
+    /**
+     * This method returns the effective policy of a device of which the policy information has already been loaded,
+     * which lets the callers evaluating many devices load their information in bulk.
+     * @param pipDevice  policy information of the device.
+     * @return returns the effective policy.
+     */
+    default Policy getEffectivePolicy(PIPDevice pipDevice) throws PolicyEvaluationException {
+        return this.getEffectivePolicy(pipDevice.getDeviceIdentifier());
+    }
+
 
     /**
      * This class will return the effective feature set from the list.
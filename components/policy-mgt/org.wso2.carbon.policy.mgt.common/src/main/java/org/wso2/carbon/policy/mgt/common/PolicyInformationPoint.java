@@ -38,6 +38,14 @@ public interface PolicyInformationPoint {
      */
     PIPDevice getDeviceData(DeviceIdentifier deviceIdentifier) throws PolicyManagementException;
 
+    /**
+     * This method will return the data related to a set of devices, loading the devices, their groups and the roles
+     * of their owners in bulk. Devices which do not exist are left out of the returned list.
+     * @param deviceIdentifiers identifiers of the devices.
+     * @return PIPDevices in the order of the given identifiers.
+     */
+    List<PIPDevice> getDeviceData(List<DeviceIdentifier> deviceIdentifiers) throws PolicyManagementException;
+
     /**
      * This method will retrieve the policies related given device Data.
      * @param pipDevice
@@ -49,6 +49,14 @@ public interface PolicyCacheManager {
      */
     List<Policy> getAllPolicies() throws PolicyManagementException;
 
+    /**
+     * This method will return the indexed snapshot of the policies of the current tenant. If the policies are not
+     * available in the cache, they will be loaded from the policy manager.
+     * @return - Immutable snapshot of the policies
+     * @throws PolicyManagementException
+     */
+    PolicySnapshot getPolicySnapshot() throws PolicyManagementException;
+
     /**
      * This method will repopulate the cache, this will be called when there is a change of the policies.
      * @throws PolicyManagementException
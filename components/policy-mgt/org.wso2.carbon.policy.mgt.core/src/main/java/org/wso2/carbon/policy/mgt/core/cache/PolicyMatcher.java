@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.policy.mgt.core.cache;
+
+import org.wso2.carbon.device.mgt.common.policy.mgt.DeviceGroupWrapper;
+import org.wso2.carbon.device.mgt.common.policy.mgt.Policy;
+import org.wso2.carbon.policy.mgt.core.util.PolicyManagementConstants;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled form of a set of policies which selects the policies applicable to a device. Each policy is given the bit
+ * of its position in priority order, and the policies with each device type, role, user, ownership type and group are
+ * kept as bit sets. Matching a device intersects the bit sets of its attributes, so it does not scan the policies.
+ * <p>
+ * A policy is applicable to a device when it is active, is of the device type of the device and each of its roles,
+ * users, ownership type and groups is either unrestricted or matches the device, which is the selection made by
+ * {@link org.wso2.carbon.policy.mgt.core.impl.PolicyFilterImpl}. A matcher is immutable once built.
+ */
+public class PolicyMatcher {
+
+    private final Policy[] policies;
+    private final BitSet activePolicies;
+    private final Map<String, BitSet> deviceTypePolicies = new HashMap<>();
+    private final Map<String, BitSet> rolePolicies = new HashMap<>();
+    private final Map<String, BitSet> userPolicies = new HashMap<>();
+    private final Map<String, BitSet> ownershipTypePolicies = new HashMap<>();
+    private final Map<Integer, BitSet> groupPolicies = new HashMap<>();
+    private final BitSet anyRolePolicies;
+    private final BitSet anyUserPolicies;
+    private final BitSet anyOwnershipTypePolicies;
+    private final BitSet anyGroupPolicies;
+
+    /**
+     * @param policies policies in priority order
+     */
+    public PolicyMatcher(List<Policy> policies) {
+        this.policies = policies.toArray(new Policy[policies.size()]);
+        int size = this.policies.length;
+        activePolicies = new BitSet(size);
+        anyRolePolicies = new BitSet(size);
+        anyUserPolicies = new BitSet(size);
+        anyOwnershipTypePolicies = new BitSet(size);
+        anyGroupPolicies = new BitSet(size);
+
+        for (int i = 0; i < size; i++) {
+            Policy policy = this.policies[i];
+            if (policy.isActive()) {
+                activePolicies.set(i);
+            }
+            if (policy.getProfile() != null && policy.getProfile().getDeviceType() != null) {
+                getBits(deviceTypePolicies, toKey(policy.getProfile().getDeviceType()), size).set(i);
+            }
+
+            List<String> roles = policy.getRoles();
+            if (roles == null || roles.isEmpty() || PolicyManagementConstants.ANY.equalsIgnoreCase(roles.get(0))) {
+                anyRolePolicies.set(i);
+            } else {
+                for (String role : roles) {
+                    getBits(rolePolicies, toKey(role), size).set(i);
+                }
+            }
+
+            List<String> users = policy.getUsers();
+            if (users == null || users.isEmpty() || users.contains(PolicyManagementConstants.ANY)) {
+                anyUserPolicies.set(i);
+            } else {
+                for (String user : users) {
+                    getBits(userPolicies, toKey(user), size).set(i);
+                }
+            }
+
+            String ownershipType = policy.getOwnershipType();
+            if (ownershipType == null || PolicyManagementConstants.ANY.equalsIgnoreCase(ownershipType)) {
+                anyOwnershipTypePolicies.set(i);
+            } else {
+                getBits(ownershipTypePolicies, toKey(ownershipType), size).set(i);
+            }
+
+            List<DeviceGroupWrapper> groups = policy.getDeviceGroups();
+            if (groups == null || groups.isEmpty() ||
+                    PolicyManagementConstants.ANY.equalsIgnoreCase(groups.get(0).getName())) {
+                anyGroupPolicies.set(i);
+            } else {
+                for (DeviceGroupWrapper group : groups) {
+                    getBits(groupPolicies, group.getId(), size).set(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Selects the policies applicable to a device. An attribute which is null or empty does not restrict the
+     * selection.
+     *
+     * @param deviceType    device type of the device
+     * @param ownershipType ownership type of the device
+     * @param roles         roles of the owner of the device
+     * @param username      owner of the device
+     * @param groupIds      ids of the groups the device belongs to
+     * @return applicable policies in priority order
+     */
+    public List<Policy> match(String deviceType, String ownershipType, String[] roles, String username,
+                              Iterable<Integer> groupIds) {
+        BitSet result = (BitSet) activePolicies.clone();
+        if (deviceType != null) {
+            and(result, null, deviceTypePolicies.get(toKey(deviceType)));
+        }
+        if (ownershipType != null && !ownershipType.isEmpty()) {
+            and(result, anyOwnershipTypePolicies, ownershipTypePolicies.get(toKey(ownershipType)));
+        }
+        if (roles != null && !result.isEmpty()) {
+            BitSet matched = (BitSet) anyRolePolicies.clone();
+            for (String role : roles) {
+                BitSet bits = rolePolicies.get(toKey(role));
+                if (bits != null) {
+                    matched.or(bits);
+                }
+            }
+            result.and(matched);
+        }
+        if (username != null && !username.isEmpty()) {
+            and(result, anyUserPolicies, userPolicies.get(toKey(username)));
+        }
+        if (groupIds != null && groupIds.iterator().hasNext() && !result.isEmpty()) {
+            BitSet matched = (BitSet) anyGroupPolicies.clone();
+            for (Integer groupId : groupIds) {
+                BitSet bits = groupPolicies.get(groupId);
+                if (bits != null) {
+                    matched.or(bits);
+                }
+            }
+            result.and(matched);
+        }
+
+        List<Policy> matches = new ArrayList<>(result.cardinality());
+        for (int i = result.nextSetBit(0); i >= 0; i = result.nextSetBit(i + 1)) {
+            matches.add(policies[i]);
+        }
+        return matches;
+    }
+
+    /**
+     * Restricts the result to the policies which are either unrestricted or match the attribute of the device.
+     */
+    private static void and(BitSet result, BitSet unrestricted, BitSet matched) {
+        if (unrestricted == null) {
+            if (matched == null) {
+                result.clear();
+            } else {
+                result.and(matched);
+            }
+        } else if (matched == null) {
+            result.and(unrestricted);
+        } else {
+            BitSet allowed = (BitSet) unrestricted.clone();
+            allowed.or(matched);
+            result.and(allowed);
+        }
+    }
+
+    private static <K> BitSet getBits(Map<K, BitSet> index, K key, int size) {
+        BitSet bits = index.get(key);
+        if (bits == null) {
+            bits = new BitSet(size);
+            index.put(key, bits);
+        }
+        return bits;
+    }
+
+    private static String toKey(String value) {
+        return value == null ? null : value.toLowerCase();
+    }
+}
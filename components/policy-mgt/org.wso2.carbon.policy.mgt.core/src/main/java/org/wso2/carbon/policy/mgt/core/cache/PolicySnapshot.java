@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.policy.mgt.core.cache;
+
+import org.wso2.carbon.device.mgt.common.policy.mgt.DeviceGroupWrapper;
+import org.wso2.carbon.device.mgt.common.policy.mgt.Policy;
+import org.wso2.carbon.policy.mgt.core.util.PolicyManagementConstants;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable view of the policies of a tenant, indexed by the attributes used to select the policies of a device.
+ * A snapshot is never modified after it is built; changes to the policies produce a new snapshot with the next
+ * version, which replaces the previous one in the cache. Readers can therefore evaluate against a snapshot without
+ * holding any lock.
+ * <p>
+ * Role, user, ownership type and group lookups include the policies which are not restricted by that attribute, that
+ * is, the policies which have no value or {@link PolicyManagementConstants#ANY} for it. Lookups of string attributes
+ * are case insensitive, in line with {@link org.wso2.carbon.policy.mgt.core.impl.PolicyFilterImpl}.
+ */
+public class PolicySnapshot implements Serializable {
+
+    private static final long serialVersionUID = 3516427307392786210L;
+
+    private final int tenantId;
+    private final long version;
+    private final List<Policy> policies;
+    private final Map<Integer, Policy> policiesById;
+    private final Map<String, List<Policy>> policiesByDeviceType;
+    private final Map<String, List<Policy>> policiesByRole;
+    private final Map<String, List<Policy>> policiesByUser;
+    private final Map<String, List<Policy>> policiesByOwnershipType;
+    private final Map<Integer, List<Policy>> policiesByGroup;
+    private final List<Policy> anyRolePolicies;
+    private final List<Policy> anyUserPolicies;
+    private final List<Policy> anyOwnershipTypePolicies;
+    private final List<Policy> anyGroupPolicies;
+    private transient volatile PolicyMatcher matcher;
+
+    /**
+     * @param tenantId owning tenant of the policies
+     * @param version  version of the snapshot, which is incremented whenever the policies change
+     * @param policies policies of the tenant in priority order; the list is copied
+     */
+    public PolicySnapshot(int tenantId, long version, List<Policy> policies) {
+        this.tenantId = tenantId;
+        this.version = version;
+        this.policies = Collections.unmodifiableList(new ArrayList<>(policies));
+
+        Map<Integer, Policy> byId = new HashMap<>();
+        Map<String, List<Policy>> byDeviceType = new HashMap<>();
+        Map<String, List<Policy>> byRole = new HashMap<>();
+        Map<String, List<Policy>> byUser = new HashMap<>();
+        Map<String, List<Policy>> byOwnershipType = new HashMap<>();
+        Map<Integer, List<Policy>> byGroup = new HashMap<>();
+        List<Policy> anyRole = new ArrayList<>();
+        List<Policy> anyUser = new ArrayList<>();
+        List<Policy> anyOwnershipType = new ArrayList<>();
+        List<Policy> anyGroup = new ArrayList<>();
+
+        for (Policy policy : this.policies) {
+            byId.put(policy.getId(), policy);
+            if (policy.getProfile() != null && policy.getProfile().getDeviceType() != null) {
+                addToIndex(byDeviceType, toKey(policy.getProfile().getDeviceType()), policy);
+            }
+
+            List<String> roles = policy.getRoles();
+            if (roles == null || roles.isEmpty() || PolicyManagementConstants.ANY.equalsIgnoreCase(roles.get(0))) {
+                anyRole.add(policy);
+            } else {
+                for (String role : roles) {
+                    addToIndex(byRole, toKey(role), policy);
+                }
+            }
+
+            List<String> users = policy.getUsers();
+            if (users == null || users.isEmpty() || users.contains(PolicyManagementConstants.ANY)) {
+                anyUser.add(policy);
+            } else {
+                for (String user : users) {
+                    addToIndex(byUser, toKey(user), policy);
+                }
+            }
+
+            String ownershipType = policy.getOwnershipType();
+            if (ownershipType == null || PolicyManagementConstants.ANY.equalsIgnoreCase(ownershipType)) {
+                anyOwnershipType.add(policy);
+            } else {
+                addToIndex(byOwnershipType, toKey(ownershipType), policy);
+            }
+
+            List<DeviceGroupWrapper> groups = policy.getDeviceGroups();
+            if (groups == null || groups.isEmpty() ||
+                    PolicyManagementConstants.ANY.equalsIgnoreCase(groups.get(0).getName())) {
+                anyGroup.add(policy);
+            } else {
+                for (DeviceGroupWrapper group : groups) {
+                    addToIndex(byGroup, group.getId(), policy);
+                }
+            }
+        }
+
+        this.policiesById = Collections.unmodifiableMap(byId);
+        this.policiesByDeviceType = freeze(byDeviceType);
+        this.policiesByRole = freeze(byRole);
+        this.policiesByUser = freeze(byUser);
+        this.policiesByOwnershipType = freeze(byOwnershipType);
+        this.policiesByGroup = freeze(byGroup);
+        this.anyRolePolicies = Collections.unmodifiableList(anyRole);
+        this.anyUserPolicies = Collections.unmodifiableList(anyUser);
+        this.anyOwnershipTypePolicies = Collections.unmodifiableList(anyOwnershipType);
+        this.anyGroupPolicies = Collections.unmodifiableList(anyGroup);
+    }
+
+    public int getTenantId() {
+        return tenantId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return all the policies of the tenant in priority order
+     */
+    public List<Policy> getPolicies() {
+        return policies;
+    }
+
+    /**
+     * @return policy with the given id, or null if there is no such policy
+     */
+    public Policy getPolicy(int policyId) {
+        return policiesById.get(policyId);
+    }
+
+    /**
+     * @return policies of the given device type in priority order
+     */
+    public List<Policy> getPoliciesOfDeviceType(String deviceType) {
+        if (deviceType == null) {
+            return Collections.emptyList();
+        }
+        return get(policiesByDeviceType, toKey(deviceType));
+    }
+
+    /**
+     * @return policies applicable to a device owned by a user with any of the given roles
+     */
+    public List<Policy> getPoliciesOfRoles(String[] roles) {
+        List<List<Policy>> matches = new ArrayList<>();
+        matches.add(anyRolePolicies);
+        if (roles != null) {
+            for (String role : roles) {
+                matches.add(get(policiesByRole, toKey(role)));
+            }
+        }
+        return merge(matches);
+    }
+
+    /**
+     * @return policies applicable to a device owned by the given user
+     */
+    public List<Policy> getPoliciesOfUser(String username) {
+        List<List<Policy>> matches = new ArrayList<>();
+        matches.add(anyUserPolicies);
+        if (username != null) {
+            matches.add(get(policiesByUser, toKey(username)));
+        }
+        return merge(matches);
+    }
+
+    /**
+     * @return policies applicable to a device of the given ownership type
+     */
+    public List<Policy> getPoliciesOfOwnershipType(String ownershipType) {
+        if (ownershipType == null) {
+            return policies;
+        }
+        List<List<Policy>> matches = new ArrayList<>();
+        matches.add(anyOwnershipTypePolicies);
+        matches.add(get(policiesByOwnershipType, toKey(ownershipType)));
+        return merge(matches);
+    }
+
+    /**
+     * @return policies applicable to a device which belongs to any of the given groups
+     */
+    public List<Policy> getPoliciesOfGroups(Iterable<Integer> groupIds) {
+        List<List<Policy>> matches = new ArrayList<>();
+        matches.add(anyGroupPolicies);
+        if (groupIds != null) {
+            for (Integer groupId : groupIds) {
+                matches.add(get(policiesByGroup, groupId));
+            }
+        }
+        return merge(matches);
+    }
+
+    /**
+     * @return matcher compiled from the policies of this snapshot, which is built on first use and shared by all the
+     * evaluations against this snapshot
+     */
+    public PolicyMatcher getMatcher() {
+        PolicyMatcher policyMatcher = matcher;
+        if (policyMatcher == null) {
+            policyMatcher = new PolicyMatcher(policies);
+            matcher = policyMatcher;
+        }
+        return policyMatcher;
+    }
+
+    /**
+     * Merges policy lists into a single list without duplicates, in the priority order of the snapshot.
+     */
+    private List<Policy> merge(List<List<Policy>> lists) {
+        List<Policy> nonEmpty = null;
+        int nonEmptyCount = 0;
+        for (List<Policy> list : lists) {
+            if (!list.isEmpty()) {
+                nonEmpty = list;
+                nonEmptyCount++;
+            }
+        }
+        if (nonEmptyCount == 0) {
+            return Collections.emptyList();
+        }
+        if (nonEmptyCount == 1) {
+            return nonEmpty;
+        }
+        Map<Integer, Policy> merged = new HashMap<>();
+        for (List<Policy> list : lists) {
+            for (Policy policy : list) {
+                merged.put(policy.getId(), policy);
+            }
+        }
+        List<Policy> result = new ArrayList<>(merged.size());
+        for (Policy policy : policies) {
+            if (merged.containsKey(policy.getId())) {
+                result.add(policy);
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    private static <K> void addToIndex(Map<K, List<Policy>> index, K key, Policy policy) {
+        List<Policy> list = index.get(key);
+        if (list == null) {
+            list = new ArrayList<>();
+            index.put(key, list);
+        }
+        // Policies are indexed one after the other, so a duplicate value of a policy can only follow itself.
+        if (list.isEmpty() || list.get(list.size() - 1) != policy) {
+            list.add(policy);
+        }
+    }
+
+    private static <K> Map<K, List<Policy>> freeze(Map<K, List<Policy>> index) {
+        Map<K, List<Policy>> frozen = new LinkedHashMap<>();
+        for (Map.Entry<K, List<Policy>> entry : index.entrySet()) {
+            frozen.put(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
+        }
+        return Collections.unmodifiableMap(frozen);
+    }
+
+    private static <K> List<Policy> get(Map<K, List<Policy>> index, K key) {
+        List<Policy> list = index.get(key);
+        if (list == null) {
+            return Collections.emptyList();
+        }
+        return list;
+    }
+
+    private static String toKey(String value) {
+        return value == null ? null : value.toLowerCase();
+    }
+}
@@ -21,26 +21,37 @@ package org.wso2.carbon.policy.mgt.core.cache.impl;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.device.mgt.common.policy.mgt.Policy;
 import org.wso2.carbon.policy.mgt.common.PolicyManagementException;
 import org.wso2.carbon.policy.mgt.core.cache.PolicyCacheManager;
+import org.wso2.carbon.policy.mgt.core.cache.PolicySnapshot;
 import org.wso2.carbon.policy.mgt.core.mgt.PolicyManager;
 import org.wso2.carbon.policy.mgt.core.mgt.impl.PolicyManagerImpl;
 import org.wso2.carbon.policy.mgt.core.util.PolicyManagementConstants;
 import org.wso2.carbon.policy.mgt.core.util.PolicyManagerUtil;
 
 import javax.cache.Cache;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
+/**
+ * Policy cache which holds the policies of each tenant as an immutable {@link PolicySnapshot}. The cache is scoped to
+ * the tenant of the carbon context, so each tenant has its own snapshot. Changes to the policies never modify the
+ * cached snapshot; a new snapshot is built from a copy of the policies and put in place of the previous one, so
+ * concurrent evaluations keep working on a consistent set of policies.
+ */
 public class PolicyCacheManagerImpl implements PolicyCacheManager {
 
     private static final Log log = LogFactory.getLog(PolicyCacheManagerImpl.class);
+    private static final int SNAPSHOT_KEY = 1;
 
     private static PolicyCacheManagerImpl policyCacheManager;
 
-    private static Cache<Integer, List<Policy>> getPolicyListCache() {
-        return PolicyManagerUtil.getPolicyListCache(PolicyManagementConstants.DM_CACHE_LIST);
+    private static Cache<Integer, PolicySnapshot> getPolicySnapshotCache() {
+        return PolicyManagerUtil.getPolicySnapshotCache(PolicyManagementConstants.DM_CACHE_SNAPSHOT);
     }
 
     private PolicyCacheManagerImpl() {
@@ -59,29 +70,19 @@ public class PolicyCacheManagerImpl implements PolicyCacheManager {
 
     @Override
     public void addAllPolicies(List<Policy> policies) {
-
-        Cache<Integer, List<Policy>> lCache = getPolicyListCache();
-        lCache.put(1, policies);
+        this.publish(new ArrayList<>(policies));
     }
 
     @Override
     public void updateAllPolicies(List<Policy> policies) {
-
-        Cache<Integer, List<Policy>> lCache = getPolicyListCache();
-        lCache.removeAll();
-        lCache.put(1, policies);
+        this.publish(new ArrayList<>(policies));
     }
 
     @Override
     public List<Policy> getAllPolicies() throws PolicyManagementException {
 
-        Cache<Integer, List<Policy>> lCache = getPolicyListCache();
-        if (!lCache.containsKey(1)) {
-            PolicyManager policyManager = new PolicyManagerImpl();
-            this.addAllPolicies(policyManager.getPolicies());
-        }
+        List<Policy> cachedPolicy = this.getPolicySnapshot().getPolicies();
         if (log.isDebugEnabled()) {
-            List<Policy> cachedPolicy = lCache.get(1);
             for (Policy policy : cachedPolicy) {
                 log.debug("Policy id in cache .. : " + policy.getId() + " policy name : " + policy.
                         getPolicyName() + " Activated : " + policy.isActive());
@@ -97,66 +98,65 @@ public class PolicyCacheManagerImpl implements PolicyCacheManager {
             }
 
         }
-        return lCache.get(1);
+        return cachedPolicy;
+    }
 
+    @Override
+    public PolicySnapshot getPolicySnapshot() throws PolicyManagementException {
+
+        PolicySnapshot snapshot = getPolicySnapshotCache().get(SNAPSHOT_KEY);
+        if (snapshot == null) {
+            PolicyManager policyManager = new PolicyManagerImpl();
+            snapshot = this.publish(policyManager.getPolicies());
+        }
+        return snapshot;
     }
 
     @Override
     public void rePopulateCache() throws PolicyManagementException {
 
-        this.removeAllPolicies();
-        this.getAllPolicies();
+        // The current snapshot is served until the policies are reloaded, instead of clearing the cache first.
+        PolicyManager policyManager = new PolicyManagerImpl();
+        this.publish(policyManager.getPolicies());
     }
 
     @Override
     public void removeAllPolicies() {
 
-        Cache<Integer, List<Policy>> lCache = getPolicyListCache();
+        Cache<Integer, PolicySnapshot> lCache = getPolicySnapshotCache();
         lCache.removeAll();
     }
 
     @Override
-    public void addPolicy(Policy policy) {
-
-        Cache<Integer, List<Policy>> lCache = getPolicyListCache();
-        if (lCache.containsKey(1)) {
-            List<Policy> cachedPolicy = lCache.get(1);
-
-            for (Policy pol : cachedPolicy) {
-                if (pol.getId() == policy.getId()) {
-                    return;
-                }
-            }
-            cachedPolicy.add(policy);
+    public synchronized void addPolicy(Policy policy) {
+
+        PolicySnapshot snapshot = getPolicySnapshotCache().get(SNAPSHOT_KEY);
+        if (snapshot != null && snapshot.getPolicy(policy.getId()) == null) {
+            List<Policy> policies = new ArrayList<>(snapshot.getPolicies());
+            policies.add(policy);
+            Collections.sort(policies);
+            this.publish(policies);
         }
-
     }
 
     @Override
-    public void updatePolicy(Policy policy) {
-
-        Cache<Integer, List<Policy>> lCache = getPolicyListCache();
-        if (lCache.containsKey(1)) {
-            List<Policy> cachedPolicy = lCache.get(1);
-            Iterator iterator = cachedPolicy.iterator();
-            while (iterator.hasNext()) {
-                Policy pol = (Policy) iterator.next();
-                if (pol.getId() == policy.getId()) {
-                    iterator.remove();
-                    break;
-                }
-            }
-            cachedPolicy.add(policy);
-            lCache.replace(1, cachedPolicy);
+    public synchronized void updatePolicy(Policy policy) {
+
+        PolicySnapshot snapshot = getPolicySnapshotCache().get(SNAPSHOT_KEY);
+        if (snapshot != null) {
+            List<Policy> policies = new ArrayList<>(snapshot.getPolicies());
+            removeFromList(policies, policy.getId());
+            policies.add(policy);
+            Collections.sort(policies);
+            this.publish(policies);
         }
-
     }
 
     @Override
     public void updatePolicy(int policyId) throws PolicyManagementException {
 
-        Cache<Integer, List<Policy>> lCache = getPolicyListCache();
-        if (lCache.containsKey(1)) {
+        Cache<Integer, PolicySnapshot> lCache = getPolicySnapshotCache();
+        if (lCache.containsKey(SNAPSHOT_KEY)) {
             PolicyManager policyManager = new PolicyManagerImpl();
             Policy policy = policyManager.getPolicy(policyId);
             this.updatePolicy(policy);
@@ -165,42 +165,19 @@ public class PolicyCacheManagerImpl implements PolicyCacheManager {
     }
 
     @Override
-    public void removePolicy(int policyId) {
-
-        Cache<Integer, List<Policy>> lCache = getPolicyListCache();
-        if (lCache.containsKey(1)) {
-            List<Policy> cachedPolicy = lCache.get(1);
-            Iterator iterator = cachedPolicy.iterator();
-            while (iterator.hasNext()) {
-                Policy pol = (Policy) iterator.next();
-                if (pol.getId() == policyId) {
-                    iterator.remove();
-                    break;
-                }
-            }
-            lCache.replace(1, cachedPolicy);
+    public synchronized void removePolicy(int policyId) {
+
+        PolicySnapshot snapshot = getPolicySnapshotCache().get(SNAPSHOT_KEY);
+        if (snapshot != null && snapshot.getPolicy(policyId) != null) {
+            List<Policy> policies = new ArrayList<>(snapshot.getPolicies());
+            removeFromList(policies, policyId);
+            this.publish(policies);
         }
     }
 
     @Override
     public Policy getPolicy(int policyId) throws PolicyManagementException {
-
-        Cache<Integer, List<Policy>> lCache = getPolicyListCache();
-        if (!lCache.containsKey(1)) {
-            this.removeAllPolicies();
-            this.getAllPolicies();
-        }
-
-        Policy policy = null;
-        List<Policy> cachedPolicy = lCache.get(1);
-        Iterator iterator = cachedPolicy.iterator();
-        while (iterator.hasNext()) {
-            Policy pol = (Policy) iterator.next();
-            if (pol.getId() == policyId) {
-                policy = pol;
-            }
-        }
-        return policy;
+        return this.getPolicySnapshot().getPolicy(policyId);
     }
 
     @Override
@@ -218,4 +195,31 @@ public class PolicyCacheManagerImpl implements PolicyCacheManager {
         return 0;
     }
 
+    /**
+     * Builds a snapshot of the given policies and puts it in place of the current snapshot of the tenant.
+     */
+    private synchronized PolicySnapshot publish(List<Policy> policies) {
+        Cache<Integer, PolicySnapshot> lCache = getPolicySnapshotCache();
+        PolicySnapshot current = lCache.get(SNAPSHOT_KEY);
+        long version = current == null ? 1 : current.getVersion() + 1;
+        int tenantId = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId();
+        PolicySnapshot snapshot = new PolicySnapshot(tenantId, version, policies);
+        lCache.put(SNAPSHOT_KEY, snapshot);
+        if (log.isDebugEnabled()) {
+            log.debug("Policy snapshot " + version + " with " + policies.size() + " policies published for tenant "
+                    + tenantId);
+        }
+        return snapshot;
+    }
+
+    private static void removeFromList(List<Policy> policies, int policyId) {
+        Iterator<Policy> iterator = policies.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getId() == policyId) {
+                iterator.remove();
+                break;
+            }
+        }
+    }
+
 }
@@ -22,6 +22,7 @@ package org.wso2.carbon.policy.mgt.core.dao;
 import org.wso2.carbon.device.mgt.common.policy.mgt.monitor.NonComplianceData;
 import org.wso2.carbon.device.mgt.common.policy.mgt.monitor.ComplianceFeature;
 import org.wso2.carbon.policy.mgt.common.monitor.PolicyDeviceWrapper;
+import org.wso2.carbon.policy.mgt.core.dao.dto.MonitoringEnrolmentDTO;
 
 import java.util.List;
 import java.util.Map;
@@ -63,4 +64,17 @@ public interface MonitoringDAO {
 
     void updateAttempts(List<Integer> deviceId, boolean reset) throws MonitoringDAOException;
 
+    /**
+     * Reads a page of the enrolments of a device type which are due for the monitoring operation. These are the
+     * enrolments which have a policy applied or have been monitored before, and are not blocked, removed, unclaimed,
+     * suspended or requested to be disenrolled.
+     * @param deviceType device type of the enrolments.
+     * @param lastEnrolmentId id of the last enrolment of the previous page, or 0 for the first page.
+     * @param limit maximum number of enrolments to be read.
+     * @return enrolments in the order of their ids.
+     * @throws MonitoringDAOException
+     */
+    List<MonitoringEnrolmentDTO> getMonitoringEnrolments(String deviceType, int lastEnrolmentId, int limit)
+            throws MonitoringDAOException;
+
 }
\ No newline at end of file
@@ -139,6 +139,24 @@ public interface PolicyDAO {
 
     void deleteEffectivePolicyToDevice(int deviceId, int enrolmentId) throws PolicyManagerDAOException;
 
+    /**
+     * Adds the same effective policy to a set of devices in batches.
+     *
+     * @param devices devices, with their current enrolments, which do not have an effective policy yet
+     * @param policy  effective policy of the devices
+     */
+    void addEffectivePolicyToDevices(List<Device> devices, Policy policy) throws PolicyManagerDAOException;
+
+    /**
+     * Replaces the effective policy of a set of devices with the same policy in batches.
+     *
+     * @param devices devices, with their current enrolments, which already have an effective policy
+     * @param policy  new effective policy of the devices
+     */
+    void updateEffectivePolicyToDevices(List<Device> devices, Policy policy) throws PolicyManagerDAOException;
+
+    void deleteEffectivePolicyToDevices(List<Device> devices) throws PolicyManagerDAOException;
+
     boolean checkPolicyAvailable(int deviceId, int enrollmentId) throws PolicyManagerDAOException;
 
     int getPolicyCount() throws PolicyManagerDAOException;
@@ -150,4 +168,12 @@ public interface PolicyDAO {
     HashMap<Integer, Integer> getAppliedPolicyIds() throws PolicyManagerDAOException;
 
     HashMap<Integer, Integer> getAppliedPolicyIdsDeviceIds() throws PolicyManagerDAOException;
+
+    /**
+     * @param enrolmentIds ids of the enrolments of the tenant, queried in chunks of IN clause size
+     * @return ids of the policies applied to the given enrolments, keyed by the enrolment id. Enrolments without an
+     * applied policy are not included.
+     */
+    HashMap<Integer, Integer> getAppliedPolicyIdsEnrolmentIds(List<Integer> enrolmentIds)
+            throws PolicyManagerDAOException;
 }
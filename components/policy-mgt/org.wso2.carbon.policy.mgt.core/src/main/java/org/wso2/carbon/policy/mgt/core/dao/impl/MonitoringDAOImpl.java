@@ -22,12 +22,14 @@ package org.wso2.carbon.policy.mgt.core.dao.impl;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.device.mgt.common.EnrolmentInfo;
 import org.wso2.carbon.device.mgt.common.policy.mgt.monitor.NonComplianceData;
 import org.wso2.carbon.device.mgt.common.policy.mgt.monitor.ComplianceFeature;
 import org.wso2.carbon.policy.mgt.common.monitor.PolicyDeviceWrapper;
 import org.wso2.carbon.policy.mgt.core.dao.MonitoringDAO;
 import org.wso2.carbon.policy.mgt.core.dao.MonitoringDAOException;
 import org.wso2.carbon.policy.mgt.core.dao.PolicyManagementDAOFactory;
+import org.wso2.carbon.policy.mgt.core.dao.dto.MonitoringEnrolmentDTO;
 import org.wso2.carbon.policy.mgt.core.dao.util.PolicyManagementDAOUtil;
 import org.wso2.carbon.policy.mgt.core.util.PolicyManagerUtil;
 
@@ -461,6 +463,64 @@ public class MonitoringDAOImpl implements MonitoringDAO {
         }
     }
 
+    @Override
+    public List<MonitoringEnrolmentDTO> getMonitoringEnrolments(String deviceType, int lastEnrolmentId, int limit)
+            throws MonitoringDAOException {
+        Connection conn;
+        PreparedStatement stmt = null;
+        ResultSet resultSet = null;
+        List<MonitoringEnrolmentDTO> enrolments = new ArrayList<>();
+        int tenantId = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId();
+        try {
+            conn = this.getConnection();
+            String query = "SELECT e.ID AS ENROLMENT_ID, d.ID AS DEVICE_ID, d.DEVICE_IDENTIFICATION, " +
+                    "pa.POLICY_ID, cs.ID AS COMPLIANCE_STATUS_ID, cs.ATTEMPTS FROM DM_ENROLMENT e " +
+                    "INNER JOIN DM_DEVICE d ON d.ID = e.DEVICE_ID " +
+                    "INNER JOIN DM_DEVICE_TYPE t ON t.ID = d.DEVICE_TYPE_ID " +
+                    "LEFT JOIN DM_DEVICE_POLICY_APPLIED pa ON pa.ENROLMENT_ID = e.ID AND pa.TENANT_ID = ? " +
+                    "LEFT JOIN DM_POLICY_COMPLIANCE_STATUS cs ON cs.ENROLMENT_ID = e.ID AND cs.DEVICE_ID = d.ID " +
+                    "AND cs.TENANT_ID = ? WHERE t.NAME = ? AND e.TENANT_ID = ? AND e.ID > ? " +
+                    "AND e.STATUS NOT IN (?, ?, ?, ?, ?) AND (pa.ID IS NOT NULL OR cs.ID IS NOT NULL) ORDER BY e.ID";
+            stmt = conn.prepareStatement(query);
+            stmt.setInt(1, tenantId);
+            stmt.setInt(2, tenantId);
+            stmt.setString(3, deviceType);
+            stmt.setInt(4, tenantId);
+            stmt.setInt(5, lastEnrolmentId);
+            stmt.setString(6, EnrolmentInfo.Status.BLOCKED.toString());
+            stmt.setString(7, EnrolmentInfo.Status.REMOVED.toString());
+            stmt.setString(8, EnrolmentInfo.Status.UNCLAIMED.toString());
+            stmt.setString(9, EnrolmentInfo.Status.DISENROLLMENT_REQUESTED.toString());
+            stmt.setString(10, EnrolmentInfo.Status.SUSPENDED.toString());
+            stmt.setMaxRows(limit);
+            resultSet = stmt.executeQuery();
+
+            MonitoringEnrolmentDTO previous = null;
+            while (resultSet.next()) {
+                int enrolmentId = resultSet.getInt("ENROLMENT_ID");
+                if (previous != null && previous.getEnrolmentId() == enrolmentId) {
+                    // Only the first of the applied policy and compliance status records of an enrolment is used.
+                    continue;
+                }
+                MonitoringEnrolmentDTO enrolment = new MonitoringEnrolmentDTO();
+                enrolment.setEnrolmentId(enrolmentId);
+                enrolment.setDeviceId(resultSet.getInt("DEVICE_ID"));
+                enrolment.setDeviceIdentification(resultSet.getString("DEVICE_IDENTIFICATION"));
+                enrolment.setAppliedPolicyId(resultSet.getInt("POLICY_ID"));
+                enrolment.setComplianceStatusId(resultSet.getInt("COMPLIANCE_STATUS_ID"));
+                enrolment.setAttempts(resultSet.getInt("ATTEMPTS"));
+                enrolments.add(enrolment);
+                previous = enrolment;
+            }
+            return enrolments;
+        } catch (SQLException e) {
+            throw new MonitoringDAOException("Unable to retrieve the enrolments of '" + deviceType +
+                    "' devices due for monitoring from database.", e);
+        } finally {
+            PolicyManagementDAOUtil.cleanupResources(stmt, resultSet);
+        }
+    }
+
     private Connection getConnection() throws MonitoringDAOException {
         return PolicyManagementDAOFactory.getConnection();
     }
@@ -22,6 +22,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.device.mgt.common.Device;
+import org.wso2.carbon.device.mgt.core.dao.util.DeviceManagementDAOUtil;
 import org.wso2.carbon.policy.mgt.common.Criterion;
 import org.wso2.carbon.device.mgt.common.policy.mgt.DeviceGroupWrapper;
 import org.wso2.carbon.device.mgt.common.policy.mgt.Policy;
@@ -42,6 +43,7 @@ import java.util.*;
 public class PolicyDAOImpl implements PolicyDAO {
 
     private static final Log log = LogFactory.getLog(PolicyDAOImpl.class);
+    private static final int EFFECTIVE_POLICY_BATCH_SIZE = 1000;
 
     @Override
     public Policy addPolicy(Policy policy) throws PolicyManagerDAOException {
@@ -1187,6 +1189,110 @@ public class PolicyDAOImpl implements PolicyDAO {
         }
     }
 
+    @Override
+    public void addEffectivePolicyToDevices(List<Device> devices, Policy policy) throws PolicyManagerDAOException {
+        Connection conn;
+        PreparedStatement stmt = null;
+        Timestamp currentTimestamp = new Timestamp(Calendar.getInstance().getTime().getTime());
+        int tenantId = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId();
+        try {
+            conn = this.getConnection();
+            String query = "INSERT INTO DM_DEVICE_POLICY_APPLIED (DEVICE_ID, POLICY_ID, POLICY_CONTENT, " +
+                    "CREATED_TIME, UPDATED_TIME, TENANT_ID, ENROLMENT_ID) VALUES (?, ?, ?, ?, ?, ?, ?)";
+            stmt = conn.prepareStatement(query);
+            byte[] policyContent = PolicyManagerUtil.getBytes(policy);
+            int batchCount = 0;
+            for (Device device : devices) {
+                stmt.setInt(1, device.getId());
+                stmt.setInt(2, policy.getId());
+                stmt.setBytes(3, policyContent);
+                stmt.setTimestamp(4, currentTimestamp);
+                stmt.setTimestamp(5, currentTimestamp);
+                stmt.setInt(6, tenantId);
+                stmt.setInt(7, device.getEnrolmentInfo().getId());
+                stmt.addBatch();
+                if (++batchCount % EFFECTIVE_POLICY_BATCH_SIZE == 0) {
+                    stmt.executeBatch();
+                }
+            }
+            if (batchCount % EFFECTIVE_POLICY_BATCH_SIZE != 0) {
+                stmt.executeBatch();
+            }
+        } catch (SQLException | IOException e) {
+            throw new PolicyManagerDAOException("Error occurred while adding the evaluated feature list to devices", e);
+        } finally {
+            PolicyManagementDAOUtil.cleanupResources(stmt, null);
+        }
+    }
+
+    @Override
+    public void updateEffectivePolicyToDevices(List<Device> devices, Policy policy) throws PolicyManagerDAOException {
+        Connection conn;
+        PreparedStatement stmt = null;
+        Timestamp currentTimestamp = new Timestamp(Calendar.getInstance().getTime().getTime());
+        int tenantId = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId();
+        try {
+            conn = this.getConnection();
+            String query = "UPDATE DM_DEVICE_POLICY_APPLIED SET POLICY_ID = ?, POLICY_CONTENT = ?, UPDATED_TIME = ?, " +
+                    "APPLIED = ? WHERE DEVICE_ID = ? AND TENANT_ID = ? AND ENROLMENT_ID = ?";
+            stmt = conn.prepareStatement(query);
+            byte[] policyContent = PolicyManagerUtil.getBytes(policy);
+            int batchCount = 0;
+            for (Device device : devices) {
+                stmt.setInt(1, policy.getId());
+                stmt.setBytes(2, policyContent);
+                stmt.setTimestamp(3, currentTimestamp);
+                stmt.setBoolean(4, false);
+                stmt.setInt(5, device.getId());
+                stmt.setInt(6, tenantId);
+                stmt.setInt(7, device.getEnrolmentInfo().getId());
+                stmt.addBatch();
+                if (++batchCount % EFFECTIVE_POLICY_BATCH_SIZE == 0) {
+                    stmt.executeBatch();
+                }
+            }
+            if (batchCount % EFFECTIVE_POLICY_BATCH_SIZE != 0) {
+                stmt.executeBatch();
+            }
+        } catch (SQLException | IOException e) {
+            throw new PolicyManagerDAOException("Error occurred while updating the evaluated feature list " +
+                    "to devices", e);
+        } finally {
+            PolicyManagementDAOUtil.cleanupResources(stmt, null);
+        }
+    }
+
+    @Override
+    public void deleteEffectivePolicyToDevices(List<Device> devices) throws PolicyManagerDAOException {
+        Connection conn;
+        PreparedStatement stmt = null;
+        int tenantId = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId();
+        try {
+            conn = this.getConnection();
+            String query = "DELETE FROM DM_DEVICE_POLICY_APPLIED WHERE DEVICE_ID = ? AND TENANT_ID = ? " +
+                           "AND ENROLMENT_ID = ?";
+            stmt = conn.prepareStatement(query);
+            int batchCount = 0;
+            for (Device device : devices) {
+                stmt.setInt(1, device.getId());
+                stmt.setInt(2, tenantId);
+                stmt.setInt(3, device.getEnrolmentInfo().getId());
+                stmt.addBatch();
+                if (++batchCount % EFFECTIVE_POLICY_BATCH_SIZE == 0) {
+                    stmt.executeBatch();
+                }
+            }
+            if (batchCount % EFFECTIVE_POLICY_BATCH_SIZE != 0) {
+                stmt.executeBatch();
+            }
+        } catch (SQLException e) {
+            throw new PolicyManagerDAOException("Error occurred while deleting the effective policy " +
+                                                "to devices", e);
+        } finally {
+            PolicyManagementDAOUtil.cleanupResources(stmt, null);
+        }
+    }
+
     @Override
     public boolean checkPolicyAvailable(int deviceId, int enrollmentId) throws PolicyManagerDAOException {
         Connection conn;
@@ -1704,4 +1810,42 @@ public class PolicyDAOImpl implements PolicyDAO {
         return devicePolicyIds;
     }
 
+    @Override
+    public HashMap<Integer, Integer> getAppliedPolicyIdsEnrolmentIds(List<Integer> enrolmentIds)
+            throws PolicyManagerDAOException {
+        Connection conn;
+        PreparedStatement stmt = null;
+        ResultSet resultSet = null;
+        HashMap<Integer, Integer> enrolmentPolicyIds = new HashMap<>();
+        if (enrolmentIds.isEmpty()) {
+            return enrolmentPolicyIds;
+        }
+        int tenantId = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId();
+
+        try {
+            conn = this.getConnection();
+            for (List<Integer> chunk : DeviceManagementDAOUtil.partition(enrolmentIds,
+                    DeviceManagementDAOUtil.MAX_IN_CLAUSE_SIZE)) {
+                String query = "SELECT ENROLMENT_ID, POLICY_ID FROM DM_DEVICE_POLICY_APPLIED WHERE TENANT_ID = ? " +
+                        "AND ENROLMENT_ID IN (" + DeviceManagementDAOUtil.getInClausePlaceholders(chunk.size()) + ")";
+                stmt = conn.prepareStatement(query);
+                int paramIndex = 1;
+                stmt.setInt(paramIndex++, tenantId);
+                for (Integer enrolmentId : chunk) {
+                    stmt.setInt(paramIndex++, enrolmentId);
+                }
+                resultSet = stmt.executeQuery();
+                while (resultSet.next()) {
+                    enrolmentPolicyIds.put(resultSet.getInt("ENROLMENT_ID"), resultSet.getInt("POLICY_ID"));
+                }
+                PolicyManagementDAOUtil.cleanupResources(stmt, resultSet);
+            }
+        } catch (SQLException e) {
+            throw new PolicyManagerDAOException("Error occurred while getting the applied policy ids", e);
+        } finally {
+            PolicyManagementDAOUtil.cleanupResources(stmt, resultSet);
+        }
+        return enrolmentPolicyIds;
+    }
+
 }
@@ -28,16 +28,26 @@ import org.wso2.carbon.device.mgt.common.operation.mgt.OperationManagementExcept
 import org.wso2.carbon.device.mgt.core.operation.mgt.CommandOperation;
 import org.wso2.carbon.device.mgt.core.operation.mgt.OperationMgtConstants;
 import org.wso2.carbon.device.mgt.common.policy.mgt.Policy;
+import org.wso2.carbon.device.mgt.common.policy.mgt.ProfileFeature;
+import org.wso2.carbon.policy.mgt.common.PIPDevice;
 import org.wso2.carbon.policy.mgt.common.PolicyAdministratorPoint;
 import org.wso2.carbon.policy.mgt.common.PolicyEvaluationException;
+import org.wso2.carbon.policy.mgt.common.PolicyEvaluationPoint;
 import org.wso2.carbon.policy.mgt.common.PolicyManagementException;
 import org.wso2.carbon.policy.mgt.core.PolicyManagerService;
 import org.wso2.carbon.policy.mgt.core.PolicyManagerServiceImpl;
 import org.wso2.carbon.policy.mgt.core.internal.PolicyManagementDataHolder;
+import org.wso2.carbon.policy.mgt.core.mgt.PolicyManager;
+import org.wso2.carbon.policy.mgt.core.mgt.impl.PolicyManagerImpl;
 import org.wso2.carbon.policy.mgt.core.util.PolicyManagerUtil;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class PolicyEnforcementDelegatorImpl implements PolicyEnforcementDelegator{
 
@@ -63,32 +73,64 @@ public class PolicyEnforcementDelegatorImpl implements PolicyEnforcementDelegato
 
     @Override
     public void delegate() throws PolicyDelegationException {
+        Map<Integer, Integer> appliedPolicyIds = this.getAppliedPolicyIds();
+        Map<String, PolicyGroup> policyGroups = new LinkedHashMap<>();
+        List<Device> devicesWithoutPolicy = new ArrayList<>();
+        PolicyManagerService policyManagerService = new PolicyManagerServiceImpl();
+        PolicyEvaluationPoint policyEvaluationPoint = this.getPolicyEvaluationPoint(policyManagerService);
+        Map<String, PIPDevice> pipDevices = this.getDeviceData(policyManagerService);
         for (Device device : devices) {
             DeviceIdentifier identifier = new DeviceIdentifier();
             identifier.setId(device.getDeviceIdentifier());
             identifier.setType(device.getType());
 
-            Policy devicePolicy = this.getAppliedPolicyToDevice(identifier);
-            Policy policy = this.getEffectivePolicy(identifier);
-            List<DeviceIdentifier> deviceIdentifiers = new ArrayList<>();
-            deviceIdentifiers.add(identifier);
+            Integer appliedPolicyId = appliedPolicyIds.get(device.getEnrolmentInfo().getId());
+            Policy policy = this.evaluatePolicy(policyManagerService, policyEvaluationPoint, identifier,
+                    pipDevices.get(getDeviceKey(identifier.getType(), identifier.getId())));
             if (policy != null) {
+                String groupKey = getPolicyGroupKey(policy);
+                PolicyGroup policyGroup = policyGroups.get(groupKey);
+                if (policyGroup == null) {
+                    policyGroup = new PolicyGroup(policy);
+                    policyGroups.put(groupKey, policyGroup);
+                }
+                policyGroup.devices.add(device);
                  /*
                 We add policy operation for the device if,
                     1) Device does not have any policy or
                     2) New Policy or
                     3) Device existing policy has changed
                  */
-                if (devicePolicy == null || devicePolicy.getId() != policy.getId() || updatedPolicyIds.contains
+                if (appliedPolicyId == null || appliedPolicyId != policy.getId() || updatedPolicyIds.contains
                         (policy.getId())) {
-                    this.addPolicyRevokeOperation(deviceIdentifiers);
-                    this.addPolicyOperation(deviceIdentifiers, policy);
+                    policyGroup.deviceIdentifiers.add(identifier);
                 }
             } else {
                 //This means all the applicable policies have been removed from device. Hence calling a policy revoke.
-                this.addPolicyRevokeOperation(deviceIdentifiers);
+                devicesWithoutPolicy.add(device);
+            }
+        }
+
+        this.setPolicyUsed(policyGroups.values(), appliedPolicyIds);
+        this.removePolicyUsed(devicesWithoutPolicy, appliedPolicyIds);
+
+        for (PolicyGroup policyGroup : policyGroups.values()) {
+            if (!policyGroup.deviceIdentifiers.isEmpty()) {
+                this.addPolicyRevokeOperation(policyGroup.deviceIdentifiers);
+                this.addPolicyOperation(policyGroup.deviceIdentifiers, policyGroup.policy);
             }
         }
+        if (!devicesWithoutPolicy.isEmpty()) {
+            List<DeviceIdentifier> deviceIdentifiers = new ArrayList<>();
+            for (Device device : devicesWithoutPolicy) {
+                deviceIdentifiers.add(new DeviceIdentifier(device.getDeviceIdentifier(), device.getType()));
+            }
+            this.addPolicyRevokeOperation(deviceIdentifiers);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Policies re-enforced for " + devices.size() + " devices with " + policyGroups.size() +
+                    " effective policies, " + devicesWithoutPolicy.size() + " devices are left without a policy.");
+        }
     }
 
     @Override
@@ -159,6 +201,138 @@ public class PolicyEnforcementDelegatorImpl implements PolicyEnforcementDelegato
         }
     }
 
+    /**
+     * Evaluates the effective policy of a device without recording it, so that the effective policies of all the
+     * devices can be recorded in batches. Policy data of the devices which could not be loaded in bulk is loaded one
+     * by one.
+     */
+    private Policy evaluatePolicy(PolicyManagerService policyManagerService,
+                                  PolicyEvaluationPoint policyEvaluationPoint, DeviceIdentifier identifier,
+                                  PIPDevice pipDevice) throws PolicyDelegationException {
+        try {
+            if (pipDevice == null) {
+                pipDevice = policyManagerService.getPIP().getDeviceData(identifier);
+            }
+            return policyEvaluationPoint.getEffectivePolicy(pipDevice);
+        } catch (PolicyEvaluationException e) {
+            String msg = "Error occurred while retrieving the effective policy for devices.";
+            log.error(msg, e);
+            throw new PolicyDelegationException(msg, e);
+        } catch (PolicyManagementException e) {
+            String msg = "Error occurred while retrieving the policy data of device '" + identifier.getId() + "'";
+            log.error(msg, e);
+            throw new PolicyDelegationException(msg, e);
+        }
+    }
+
+    private PolicyEvaluationPoint getPolicyEvaluationPoint(PolicyManagerService policyManagerService)
+            throws PolicyDelegationException {
+        try {
+            return policyManagerService.getPEP();
+        } catch (PolicyManagementException e) {
+            String msg = "Error occurred while retrieving the policy evaluation point.";
+            log.error(msg, e);
+            throw new PolicyDelegationException(msg, e);
+        }
+    }
+
+    /**
+     * Loads the policy data of all the devices at once, keyed by the type and the identifier of the device.
+     */
+    private Map<String, PIPDevice> getDeviceData(PolicyManagerService policyManagerService)
+            throws PolicyDelegationException {
+        List<DeviceIdentifier> deviceIdentifiers = new ArrayList<>();
+        for (Device device : devices) {
+            deviceIdentifiers.add(new DeviceIdentifier(device.getDeviceIdentifier(), device.getType()));
+        }
+        Map<String, PIPDevice> pipDevices = new HashMap<>();
+        try {
+            for (PIPDevice pipDevice : policyManagerService.getPIP().getDeviceData(deviceIdentifiers)) {
+                DeviceIdentifier identifier = pipDevice.getDeviceIdentifier();
+                pipDevices.put(getDeviceKey(identifier.getType(), identifier.getId()), pipDevice);
+            }
+        } catch (PolicyManagementException e) {
+            String msg = "Error occurred while retrieving the policy data of devices.";
+            log.error(msg, e);
+            throw new PolicyDelegationException(msg, e);
+        }
+        return pipDevices;
+    }
+
+    private static String getDeviceKey(String deviceType, String deviceId) {
+        return deviceType + "|" + deviceId;
+    }
+
+    private Map<Integer, Integer> getAppliedPolicyIds() throws PolicyDelegationException {
+        List<Integer> enrolmentIds = new ArrayList<>();
+        for (Device device : devices) {
+            enrolmentIds.add(device.getEnrolmentInfo().getId());
+        }
+        try {
+            return new PolicyManagerImpl().getAppliedPolicyIdsEnrolmentIds(enrolmentIds);
+        } catch (PolicyManagementException e) {
+            String msg = "Error occurred while retrieving the applied policies of devices.";
+            log.error(msg, e);
+            throw new PolicyDelegationException(msg, e);
+        }
+    }
+
+    private void setPolicyUsed(Collection<PolicyGroup> policyGroups, Map<Integer, Integer> appliedPolicyIds)
+            throws PolicyDelegationException {
+        PolicyManager policyManager = new PolicyManagerImpl();
+        for (PolicyGroup policyGroup : policyGroups) {
+            try {
+                policyManager.addAppliedPolicyToDevices(policyGroup.devices, policyGroup.policy, appliedPolicyIds);
+            } catch (PolicyManagementException e) {
+                String msg = "Error occurred while adding the effective policy to devices.";
+                log.error(msg, e);
+                throw new PolicyDelegationException(msg, e);
+            }
+        }
+    }
+
+    private void removePolicyUsed(List<Device> devices, Map<Integer, Integer> appliedPolicyIds)
+            throws PolicyDelegationException {
+        List<Device> devicesWithPolicy = new ArrayList<>();
+        for (Device device : devices) {
+            if (appliedPolicyIds.containsKey(device.getEnrolmentInfo().getId())) {
+                devicesWithPolicy.add(device);
+            }
+        }
+        if (devicesWithPolicy.isEmpty()) {
+            return;
+        }
+        try {
+            new PolicyManagerImpl().removeAppliedPolicyToDevices(devicesWithPolicy);
+        } catch (PolicyManagementException e) {
+            String msg = "Error occurred while removing the applied policy of devices.";
+            log.error(msg, e);
+            throw new PolicyDelegationException(msg, e);
+        }
+    }
+
+    /**
+     * Devices share an effective policy when the evaluation point returns the same policy for them. Merged effective
+     * policies are created for each device, so they are compared by their content.
+     */
+    private static String getPolicyGroupKey(Policy policy) {
+        if (policy.getId() > 0) {
+            return String.valueOf(policy.getId());
+        }
+        StringBuilder key = new StringBuilder();
+        key.append(policy.getId()).append('|').append(policy.getOwnershipType()).append('|')
+                .append(policy.getCompliance()).append('|').append(policy.getDescription());
+        if (policy.getProfile() != null && policy.getProfile().getProfileFeaturesList() != null) {
+            List<Integer> featureIds = new ArrayList<>();
+            for (ProfileFeature feature : policy.getProfile().getProfileFeaturesList()) {
+                featureIds.add(feature.getId());
+            }
+            Collections.sort(featureIds);
+            key.append('|').append(featureIds);
+        }
+        return key.toString();
+    }
+
     private Operation getPolicyRevokeOperation() {
         CommandOperation policyRevokeOperation = new CommandOperation();
         policyRevokeOperation.setEnabled(true);
@@ -184,4 +358,19 @@ public class PolicyEnforcementDelegatorImpl implements PolicyEnforcementDelegato
             throw new PolicyDelegationException(msg, e);
         }
     }
+
+    /**
+     * Devices which share an effective policy, and the identifiers of the devices among them which need the policy
+     * to be enforced again.
+     */
+    private static class PolicyGroup {
+
+        private final Policy policy;
+        private final List<Device> devices = new ArrayList<>();
+        private final List<DeviceIdentifier> deviceIdentifiers = new ArrayList<>();
+
+        private PolicyGroup(Policy policy) {
+            this.policy = policy;
+        }
+    }
 }
@@ -27,6 +27,8 @@ import org.wso2.carbon.device.mgt.common.DeviceManagementException;
 import org.wso2.carbon.device.mgt.common.group.mgt.DeviceGroup;
 import org.wso2.carbon.device.mgt.common.group.mgt.GroupManagementException;
 import org.wso2.carbon.device.mgt.common.policy.mgt.Policy;
+import org.wso2.carbon.device.mgt.core.config.DeviceConfigurationManager;
+import org.wso2.carbon.device.mgt.core.config.policy.PolicyConfiguration;
 import org.wso2.carbon.device.mgt.core.dto.DeviceType;
 import org.wso2.carbon.device.mgt.core.service.DeviceManagementProviderService;
 import org.wso2.carbon.device.mgt.common.Feature;
@@ -34,6 +36,8 @@ import org.wso2.carbon.device.mgt.core.service.DeviceManagementProviderServiceIm
 import org.wso2.carbon.device.mgt.core.service.GroupManagementProviderService;
 import org.wso2.carbon.device.mgt.core.service.GroupManagementProviderServiceImpl;
 import org.wso2.carbon.policy.mgt.common.*;
+import org.wso2.carbon.policy.mgt.core.cache.PolicySnapshot;
+import org.wso2.carbon.policy.mgt.core.cache.impl.PolicyCacheManagerImpl;
 import org.wso2.carbon.policy.mgt.core.internal.PolicyManagementDataHolder;
 import org.wso2.carbon.policy.mgt.core.mgt.FeatureManager;
 import org.wso2.carbon.policy.mgt.core.mgt.PolicyManager;
@@ -54,12 +58,20 @@ public class PolicyInformationPointImpl implements PolicyInformationPoint {
     PolicyManager policyManager;
     FeatureManager featureManager;
     DeviceManagementProviderService deviceManagementService;
+    private GroupManagementProviderService groupManagementProviderService;
+    private PolicyConfiguration policyConfiguration;
 
     public PolicyInformationPointImpl() {
         deviceManagementService =
                 PolicyManagementDataHolder.getInstance().getDeviceManagementService();
+        if (deviceManagementService == null) {
+            deviceManagementService = new DeviceManagementProviderServiceImpl();
+        }
+        groupManagementProviderService = new GroupManagementProviderServiceImpl();
         policyManager = new PolicyManagerImpl();
         featureManager = new FeatureManagerImpl();
+        policyConfiguration =
+                DeviceConfigurationManager.getInstance().getDeviceManagementConfig().getPolicyConfiguration();
     }
 
     @Override
@@ -68,8 +80,6 @@ public class PolicyInformationPointImpl implements PolicyInformationPoint {
         Device device;
         DeviceType deviceType = new DeviceType();
         deviceType.setName(deviceIdentifier.getType());
-        DeviceManagementProviderService deviceManagementService = new DeviceManagementProviderServiceImpl();
-        GroupManagementProviderService groupManagementProviderService = new GroupManagementProviderServiceImpl();
 
         try {
             device = deviceManagementService.getDevice(deviceIdentifier, false);
@@ -98,9 +108,66 @@ public class PolicyInformationPointImpl implements PolicyInformationPoint {
         return pipDevice;
     }
 
+    @Override
+    public List<PIPDevice> getDeviceData(List<DeviceIdentifier> deviceIdentifiers) throws PolicyManagementException {
+        List<PIPDevice> pipDevices = new ArrayList<>();
+        if (deviceIdentifiers == null || deviceIdentifiers.isEmpty()) {
+            return pipDevices;
+        }
+        try {
+            Map<String, Device> devices = new HashMap<>();
+            List<Integer> deviceIds = new ArrayList<>();
+            for (Device device : deviceManagementService.getDevices(deviceIdentifiers)) {
+                devices.put(getDeviceKey(device.getType(), device.getDeviceIdentifier()), device);
+                deviceIds.add(device.getId());
+            }
+            Map<Integer, List<DeviceGroup>> deviceGroups = groupManagementProviderService.getGroupsOfDevices(deviceIds);
+            Map<String, String[]> ownerRoles = new HashMap<>();
+            for (DeviceIdentifier deviceIdentifier : deviceIdentifiers) {
+                Device device = devices.get(getDeviceKey(deviceIdentifier.getType(), deviceIdentifier.getId()));
+                if (device == null) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("Device '" + deviceIdentifier.getId() + "' of type '" + deviceIdentifier.getType() +
+                                "' is not found, hence not loading the policy data of the device.");
+                    }
+                    continue;
+                }
+                String owner = device.getEnrolmentInfo().getOwner();
+                if (!ownerRoles.containsKey(owner)) {
+                    ownerRoles.put(owner, getRoleOfDevice(device));
+                }
+                DeviceType deviceType = new DeviceType();
+                deviceType.setName(deviceIdentifier.getType());
+                List<DeviceGroup> groups = deviceGroups.get(device.getId());
+
+                PIPDevice pipDevice = new PIPDevice();
+                pipDevice.setDevice(device);
+                pipDevice.setRoles(ownerRoles.get(owner));
+                pipDevice.setDeviceType(deviceType);
+                pipDevice.setDeviceIdentifier(deviceIdentifier);
+                pipDevice.setUserId(owner);
+                pipDevice.setOwnershipType(device.getEnrolmentInfo().getOwnership().toString());
+                pipDevice.setDeviceGroups(groups != null ? groups : new ArrayList<DeviceGroup>());
+                pipDevices.add(pipDevice);
+            }
+        } catch (DeviceManagementException e) {
+            String msg = "Error occurred when retrieving the data related to devices from the database.";
+            log.error(msg, e);
+            throw new PolicyManagementException(msg, e);
+        } catch (GroupManagementException e) {
+            String msg = "Error occurred when retrieving the data related to device groups from the database.";
+            log.error(msg, e);
+            throw new PolicyManagementException(msg, e);
+        }
+        return pipDevices;
+    }
+
     @Override
     public List<Policy> getRelatedPolicies(PIPDevice pipDevice) throws PolicyManagementException {
 
+        if (policyConfiguration.getCacheEnable()) {
+            return this.getMatchingPolicies(pipDevice);
+        }
         List<Policy> policies = policyManager.getPoliciesOfDeviceType(pipDevice.getDeviceType().getName());
         PolicyFilter policyFilter = new PolicyFilterImpl();
 
@@ -147,6 +214,32 @@ public class PolicyInformationPointImpl implements PolicyInformationPoint {
         return policies;
     }
 
+    /**
+     * Selects the related policies of a device with the matcher compiled for the cached policies of the tenant.
+     */
+    private List<Policy> getMatchingPolicies(PIPDevice pipDevice) throws PolicyManagementException {
+
+        String deviceType = pipDevice.getDeviceType() != null ? pipDevice.getDeviceType().getName() : null;
+        List<Integer> groupIds = new ArrayList<>();
+        if (pipDevice.getDeviceGroups() != null) {
+            for (DeviceGroup group : pipDevice.getDeviceGroups()) {
+                groupIds.add(group.getGroupId());
+            }
+        }
+        PolicySnapshot snapshot = PolicyCacheManagerImpl.getInstance().getPolicySnapshot();
+        List<Policy> policies = snapshot.getMatcher().match(deviceType, pipDevice.getOwnershipType(),
+                pipDevice.getRoles(), pipDevice.getUserId(), groupIds);
+
+        if (log.isDebugEnabled()) {
+            log.debug("No of policies selected for the device type : " + deviceType + " from policy snapshot " +
+                    snapshot.getVersion() + " : " + policies.size());
+            for (Policy policy : policies) {
+                log.debug("Names of selected policy  for above device type : " + policy.getPolicyName());
+            }
+        }
+        return policies;
+    }
+
     @Override
     public List<Feature> getRelatedFeatures(String deviceType) throws FeatureManagementException {
         return featureManager.getAllFeatures(deviceType);
@@ -154,10 +247,20 @@ public class PolicyInformationPointImpl implements PolicyInformationPoint {
     }
 
     private String[] getRoleOfDevice(Device device) throws PolicyManagementException {
+        String owner = device.getEnrolmentInfo().getOwner();
+        int tenantId = CarbonContext.getThreadLocalCarbonContext().getTenantId();
+        String[] roles = UserRoleCache.getInstance().get(tenantId, owner);
+        if (roles != null) {
+            return roles;
+        }
         try {
             UserRealm userRealm = CarbonContext.getThreadLocalCarbonContext().getUserRealm();
             if (userRealm != null) {
-                return userRealm.getUserStoreManager().getRoleListOfUser(device.getEnrolmentInfo().getOwner());
+                roles = userRealm.getUserStoreManager().getRoleListOfUser(owner);
+                if (roles != null) {
+                    UserRoleCache.getInstance().put(tenantId, owner, roles);
+                }
+                return roles;
             } else {
                 return null;
             }
@@ -166,6 +269,10 @@ public class PolicyInformationPointImpl implements PolicyInformationPoint {
         }
     }
 
+    private static String getDeviceKey(String deviceType, String deviceId) {
+        return deviceType + "|" + deviceId;
+    }
+
 
     private List<Policy> removeDuplicatePolicies(List<List<Policy>> policies) {
 
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.policy.mgt.core.impl;
+
+import java.time.Clock;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Short lived cache of the role lists of device owners. Policy evaluation needs the roles of the owner of every
+ * evaluated device, and a tenant typically has many devices per owner, so caching the role lists for a short time
+ * saves a user store lookup for most of the devices evaluated in bulk, while role changes still reach the policy
+ * evaluation within the expiry time.
+ */
+class UserRoleCache {
+
+    private static final int CAPACITY = 10000;
+    private static final long EXPIRY_TIME_MILLIS = 30000;
+
+    private static final UserRoleCache instance = new UserRoleCache();
+
+    private final long expiryTimeMillis;
+    private final Clock clock;
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+
+        private static final long serialVersionUID = 4470853911395386154L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > CAPACITY;
+        }
+    };
+
+    private UserRoleCache() {
+        this(EXPIRY_TIME_MILLIS, Clock.systemUTC());
+    }
+
+    /**
+     * @param expiryTimeMillis time in milliseconds for which the roles of a user are cached
+     * @param clock            clock the expiry of the cached roles is measured with
+     */
+    UserRoleCache(long expiryTimeMillis, Clock clock) {
+        this.expiryTimeMillis = expiryTimeMillis;
+        this.clock = clock;
+    }
+
+    static UserRoleCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * @return cached roles of the user, or null if the roles of the user are not cached or have expired
+     */
+    String[] get(int tenantId, String username) {
+        String key = getKey(tenantId, username);
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiryTime <= clock.millis()) {
+                entries.remove(key);
+                return null;
+            }
+            return entry.roles;
+        }
+    }
+
+    void put(int tenantId, String username, String[] roles) {
+        Entry entry = new Entry(roles, clock.millis() + expiryTimeMillis);
+        synchronized (entries) {
+            entries.put(getKey(tenantId, username), entry);
+        }
+    }
+
+    private static String getKey(int tenantId, String username) {
+        return tenantId + "/" + username;
+    }
+
+    private static class Entry {
+
+        private final String[] roles;
+        private final long expiryTime;
+
+        private Entry(String[] roles, long expiryTime) {
+            this.roles = roles;
+            this.expiryTime = expiryTime;
+        }
+    }
+}
@@ -39,6 +39,17 @@ public interface MonitoringManager {
 
     void addMonitoringOperation(List<Device> devices) throws PolicyComplianceException;
 
+    /**
+     * Adds the monitoring operation to the enrolments of a device type of the current tenant which are due for
+     * monitoring. Enrolments are read and given the operation in batches, so the devices of the type are not loaded
+     * at once.
+     *
+     * @param deviceType device type of the enrolments.
+     * @return number of enrolments whose monitoring attempts were recorded.
+     * @throws PolicyComplianceException
+     */
+    int addMonitoringOperation(String deviceType) throws PolicyComplianceException;
+
     List<String> getDeviceTypes() throws PolicyComplianceException;
 
 }
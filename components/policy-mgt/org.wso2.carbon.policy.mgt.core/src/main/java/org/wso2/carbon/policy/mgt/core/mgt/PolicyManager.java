@@ -25,6 +25,7 @@ import org.wso2.carbon.policy.mgt.core.mgt.bean.UpdatedPolicyDeviceListBean;
 
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public interface PolicyManager {
 
@@ -74,6 +75,19 @@ public interface PolicyManager {
 
     void removeAppliedPolicyToDevice(DeviceIdentifier deviceIdentifier) throws PolicyManagementException;
 
+    /**
+     * Records the same effective policy for a set of devices in a single transaction.
+     *
+     * @param devices          devices with their current enrolments
+     * @param policy           effective policy of the devices
+     * @param appliedPolicyIds ids of the policies currently applied, keyed by the enrolment id, which decide whether
+     *                         the effective policy of a device is added or updated
+     */
+    void addAppliedPolicyToDevices(List<Device> devices, Policy policy, Map<Integer, Integer> appliedPolicyIds)
+            throws PolicyManagementException;
+
+    void removeAppliedPolicyToDevices(List<Device> devices) throws PolicyManagementException;
+
     boolean checkPolicyAvailable(DeviceIdentifier deviceIdentifier) throws PolicyManagementException;
 
     boolean setPolicyApplied(DeviceIdentifier deviceIdentifier) throws PolicyManagementException;
@@ -83,4 +97,11 @@ public interface PolicyManager {
     Policy getAppliedPolicyToDevice(DeviceIdentifier deviceIdentifier) throws PolicyManagementException;
 
     HashMap<Integer, Integer> getAppliedPolicyIdsDeviceIds() throws PolicyManagementException;
+
+    /**
+     * @param enrolmentIds ids of the enrolments of the tenant
+     * @return ids of the policies applied to the given enrolments, keyed by the enrolment id
+     */
+    HashMap<Integer, Integer> getAppliedPolicyIdsEnrolmentIds(List<Integer> enrolmentIds)
+            throws PolicyManagementException;
 }
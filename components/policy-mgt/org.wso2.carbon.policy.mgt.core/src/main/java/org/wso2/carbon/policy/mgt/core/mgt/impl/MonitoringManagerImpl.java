@@ -40,6 +40,7 @@ import org.wso2.carbon.policy.mgt.common.PolicyManagementException;
 import org.wso2.carbon.device.mgt.common.policy.mgt.ProfileFeature;
 import org.wso2.carbon.policy.mgt.common.monitor.*;
 import org.wso2.carbon.policy.mgt.core.dao.*;
+import org.wso2.carbon.policy.mgt.core.dao.dto.MonitoringEnrolmentDTO;
 import org.wso2.carbon.policy.mgt.core.impl.ComplianceDecisionPointImpl;
 import org.wso2.carbon.policy.mgt.core.internal.PolicyManagementDataHolder;
 import org.wso2.carbon.policy.mgt.core.mgt.MonitoringManager;
@@ -356,6 +357,37 @@ public class MonitoringManagerImpl implements MonitoringManager {
         }
     }
 
+    @Override
+    public int addMonitoringOperation(String deviceType) throws PolicyComplianceException {
+        int batchSize = policyConfiguration.getMonitoringBatchSize();
+        int lastEnrolmentId = 0;
+        int monitoredCount = 0;
+        List<MonitoringEnrolmentDTO> enrolments;
+        do {
+            try {
+                PolicyManagementDAOFactory.openConnection();
+                enrolments = monitoringDAO.getMonitoringEnrolments(deviceType, lastEnrolmentId, batchSize);
+            } catch (SQLException e) {
+                throw new PolicyComplianceException("Error occurred while opening a connection to the data source", e);
+            } catch (MonitoringDAOException e) {
+                throw new PolicyComplianceException("Error occurred while reading the enrolments of '" + deviceType +
+                        "' devices due for monitoring.", e);
+            } finally {
+                PolicyManagementDAOFactory.closeConnection();
+            }
+            if (!enrolments.isEmpty()) {
+                lastEnrolmentId = enrolments.get(enrolments.size() - 1).getEnrolmentId();
+                this.addMonitoringOperation(deviceType, enrolments);
+                monitoredCount += enrolments.size();
+            }
+        } while (!enrolments.isEmpty());
+        if (log.isDebugEnabled()) {
+            log.debug("Monitoring attempts recorded for " + monitoredCount + " enrolments of device type : " +
+                    deviceType);
+        }
+        return monitoredCount;
+    }
+
     @Override
     public List<String> getDeviceTypes() throws PolicyComplianceException {
 
@@ -372,6 +404,56 @@ public class MonitoringManagerImpl implements MonitoringManager {
         return deviceTypes;
     }
 
+    private void addMonitoringOperation(String deviceType, List<MonitoringEnrolmentDTO> enrolments)
+            throws PolicyComplianceException {
+        List<Integer> deviceIds = new ArrayList<>();
+        List<PolicyDeviceWrapper> firstTimeDevices = new ArrayList<>();
+        List<DeviceIdentifier> deviceIdentifiersToAddOperation = new ArrayList<>();
+        for (MonitoringEnrolmentDTO enrolment : enrolments) {
+            deviceIds.add(enrolment.getDeviceId());
+            if (enrolment.getComplianceStatusId() == 0) {
+                PolicyDeviceWrapper policyDeviceWrapper = new PolicyDeviceWrapper();
+                policyDeviceWrapper.setDeviceId(enrolment.getDeviceId());
+                policyDeviceWrapper.setEnrolmentId(enrolment.getEnrolmentId());
+                policyDeviceWrapper.setPolicyId(enrolment.getAppliedPolicyId());
+                firstTimeDevices.add(policyDeviceWrapper);
+            } else if (enrolment.getAttempts() != 0) {
+                continue;
+            }
+            deviceIdentifiersToAddOperation.add(new DeviceIdentifier(enrolment.getDeviceIdentification(),
+                    deviceType));
+        }
+
+        try {
+            PolicyManagementDAOFactory.beginTransaction();
+        } catch (PolicyManagerDAOException e) {
+            throw new PolicyComplianceException("Error occurred while starting a transaction to record the " +
+                    "monitoring attempts.", e);
+        }
+        try {
+            if (!firstTimeDevices.isEmpty()) {
+                monitoringDAO.addComplianceDetails(firstTimeDevices);
+            }
+            monitoringDAO.updateAttempts(deviceIds, false);
+            PolicyManagementDAOFactory.commitTransaction();
+        } catch (MonitoringDAOException e) {
+            PolicyManagementDAOFactory.rollbackTransaction();
+            throw new PolicyComplianceException("Error occurred from monitoring dao.", e);
+        } finally {
+            PolicyManagementDAOFactory.closeConnection();
+        }
+
+        if (!deviceIdentifiersToAddOperation.isEmpty()) {
+            try {
+                this.addMonitoringOperationsToDatabase(deviceType, deviceIdentifiersToAddOperation);
+            } catch (InvalidDeviceException e) {
+                throw new PolicyComplianceException("Invalid Device Identifiers found.", e);
+            } catch (OperationManagementException e) {
+                throw new PolicyComplianceException("Error occurred while adding monitoring operation to devices", e);
+            }
+        }
+    }
+
     private void addMonitoringOperationsToDatabase(List<Device> devices)
             throws PolicyComplianceException, OperationManagementException, InvalidDeviceException {
 
@@ -400,6 +482,16 @@ public class MonitoringManagerImpl implements MonitoringManager {
         //	    service.addOperation(appListOperation, deviceIdentifiers);
     }
 
+    private void addMonitoringOperationsToDatabase(String deviceType, List<DeviceIdentifier> deviceIdentifiers)
+            throws OperationManagementException, InvalidDeviceException {
+        CommandOperation monitoringOperation = new CommandOperation();
+        monitoringOperation.setEnabled(true);
+        monitoringOperation.setType(Operation.Type.COMMAND);
+        monitoringOperation.setCode(OPERATION_MONITOR);
+        DeviceManagementProviderService service = PolicyManagementDataHolder.getInstance().getDeviceManagementService();
+        service.addOperation(deviceType, monitoringOperation, deviceIdentifiers);
+    }
+
     private List<DeviceIdentifier> getDeviceIdentifiersFromDevices(List<Device> devices) {
         List<DeviceIdentifier> deviceIdentifiers = new ArrayList<>();
         for (Device device : devices) {
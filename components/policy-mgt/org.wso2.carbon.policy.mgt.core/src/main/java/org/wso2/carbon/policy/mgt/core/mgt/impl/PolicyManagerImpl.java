@@ -714,12 +714,13 @@ public class PolicyManagerImpl implements PolicyManager {
 //        try {
         // List<Profile> profileList = profileManager.getProfilesOfDeviceType(deviceTypeName);
 //            List<Policy> allPolicies = this.getPolicies();
-        List<Policy> allPolicies;
         if (policyConfiguration.getCacheEnable()) {
-            allPolicies = PolicyCacheManagerImpl.getInstance().getAllPolicies();
-        } else {
-            allPolicies = this.getPolicies();
+            // Cached policies are indexed by device type, and are already in priority order.
+            policies.addAll(PolicyCacheManagerImpl.getInstance().getPolicySnapshot()
+                    .getPoliciesOfDeviceType(deviceTypeName));
+            return policies;
         }
+        List<Policy> allPolicies = this.getPolicies();
 
         for (Policy policy : allPolicies) {
             if (policy.getProfile().getDeviceType().equalsIgnoreCase(deviceTypeName)) {
@@ -990,6 +991,52 @@ public class PolicyManagerImpl implements PolicyManager {
         }
     }
 
+    @Override
+    public void addAppliedPolicyToDevices(List<Device> devices, Policy policy, Map<Integer, Integer> appliedPolicyIds)
+            throws PolicyManagementException {
+
+        List<Device> devicesToAdd = new ArrayList<>();
+        List<Device> devicesToUpdate = new ArrayList<>();
+        for (Device device : devices) {
+            if (appliedPolicyIds.containsKey(device.getEnrolmentInfo().getId())) {
+                devicesToUpdate.add(device);
+            } else {
+                devicesToAdd.add(device);
+            }
+        }
+        try {
+            PolicyManagementDAOFactory.beginTransaction();
+            if (!devicesToUpdate.isEmpty()) {
+                policyDAO.updateEffectivePolicyToDevices(devicesToUpdate, policy);
+            }
+            if (!devicesToAdd.isEmpty()) {
+                policyDAO.addEffectivePolicyToDevices(devicesToAdd, policy);
+            }
+            PolicyManagementDAOFactory.commitTransaction();
+        } catch (PolicyManagerDAOException e) {
+            PolicyManagementDAOFactory.rollbackTransaction();
+            throw new PolicyManagementException("Error occurred while adding the evaluated policy (" + policy.getId()
+                    + ") to " + devices.size() + " devices", e);
+        } finally {
+            PolicyManagementDAOFactory.closeConnection();
+        }
+    }
+
+    @Override
+    public void removeAppliedPolicyToDevices(List<Device> devices) throws PolicyManagementException {
+        try {
+            PolicyManagementDAOFactory.beginTransaction();
+            policyDAO.deleteEffectivePolicyToDevices(devices);
+            PolicyManagementDAOFactory.commitTransaction();
+        } catch (PolicyManagerDAOException e) {
+            PolicyManagementDAOFactory.rollbackTransaction();
+            throw new PolicyManagementException("Error occurred while removing the applied policy of " +
+                    devices.size() + " devices", e);
+        } finally {
+            PolicyManagementDAOFactory.closeConnection();
+        }
+    }
+
     @Override
     public boolean checkPolicyAvailable(DeviceIdentifier deviceIdentifier) throws PolicyManagementException {
 
@@ -1094,6 +1141,21 @@ public class PolicyManagerImpl implements PolicyManager {
         }
     }
 
+    @Override
+    public HashMap<Integer, Integer> getAppliedPolicyIdsEnrolmentIds(List<Integer> enrolmentIds)
+            throws PolicyManagementException {
+        try {
+            PolicyManagementDAOFactory.openConnection();
+            return policyDAO.getAppliedPolicyIdsEnrolmentIds(enrolmentIds);
+        } catch (PolicyManagerDAOException e) {
+            throw new PolicyManagementException("Error occurred while reading the policy applied database.", e);
+        } catch (SQLException e) {
+            throw new PolicyManagementException("Error occurred while reading the policy applied database.", e);
+        } finally {
+            PolicyManagementDAOFactory.closeConnection();
+        }
+    }
+
     private List<DeviceGroupWrapper> getDeviceGroupNames(List<DeviceGroupWrapper> groupWrappers) throws GroupManagementException {
         GroupManagementProviderService groupManagementProviderService = new GroupManagementProviderServiceImpl();
         for (DeviceGroupWrapper wrapper : groupWrappers) {
@@ -15,18 +15,15 @@
  * specific language governing permissions and limitations
  * under the License.
  */
-
-
 package org.wso2.carbon.policy.mgt.core.task;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.context.PrivilegedCarbonContext;
-import org.wso2.carbon.device.mgt.common.Device;
 import org.wso2.carbon.device.mgt.common.DeviceManagementException;
-import org.wso2.carbon.device.mgt.common.EnrolmentInfo;
 import org.wso2.carbon.device.mgt.common.policy.mgt.PolicyMonitoringManager;
 import org.wso2.carbon.device.mgt.common.policy.mgt.monitor.PolicyComplianceException;
+import org.wso2.carbon.device.mgt.core.config.DeviceConfigurationManager;
 import org.wso2.carbon.device.mgt.core.service.DeviceManagementProviderService;
 import org.wso2.carbon.device.mgt.core.service.DeviceManagementProviderServiceImpl;
 import org.wso2.carbon.ntask.core.Task;
@@ -37,7 +34,20 @@ import org.wso2.carbon.user.api.UserStoreException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Adds the policy monitoring operation to the devices due for monitoring. Each device type of each tenant is
+ * processed as a separate job, and the jobs run in parallel on a bounded pool of threads. A job reads the enrolments
+ * due for monitoring in batches and gives each batch the monitoring operation, so the devices of a type are never
+ * loaded at once.
+ */
 public class MonitoringTask implements Task {
 
     private static Log log = LogFactory.getLog(MonitoringTask.class);
@@ -68,7 +78,8 @@ public class MonitoringTask implements Task {
         if(executeForTenants) {
             this.executeforAllTenants();
         } else {
-            this.executeTask();
+            PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
+            this.executeJobs(this.getMonitoringJobs(carbonContext.getTenantId(), carbonContext.getTenantDomain()));
         }
     }
 
@@ -97,6 +108,7 @@ public class MonitoringTask implements Task {
         try {
             DeviceManagementProviderService deviceManagementService = new DeviceManagementProviderServiceImpl();
             List<Integer> tenants = deviceManagementService.getDeviceEnrolledTenants();
+            List<MonitoringJob> jobs = new ArrayList<>();
             for (Integer tenant : tenants) {
                 String tenantDomain = PolicyManagementDataHolder.getInstance().
                         getRealmService().getTenantManager().getDomain(tenant);
@@ -104,11 +116,12 @@ public class MonitoringTask implements Task {
                     PrivilegedCarbonContext.startTenantFlow();
                     PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantDomain(tenantDomain);
                     PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantId(tenant);
-                    this.executeTask();
+                    jobs.addAll(this.getMonitoringJobs(tenant, tenantDomain));
                 } finally {
                     PrivilegedCarbonContext.endTenantFlow();
                 }
             }
+            this.executeJobs(jobs);
         } catch (UserStoreException e) {
             log.error("Error occurred while trying to get the available tenants", e);
         } catch (DeviceManagementException e) {
@@ -116,71 +129,99 @@ public class MonitoringTask implements Task {
         }
     }
 
-    private void executeTask(){
-
+    /**
+     * @return jobs for the device types of the tenant in the current carbon context which have monitoring enabled
+     */
+    private List<MonitoringJob> getMonitoringJobs(int tenantId, String tenantDomain) {
         MonitoringManager monitoringManager = PolicyManagementDataHolder.getInstance().getMonitoringManager();
-        List<String> deviceTypes = new ArrayList<>();
-        List<String> configDeviceTypes = new ArrayList<>();
+        List<MonitoringJob> jobs = new ArrayList<>();
         try {
-            deviceTypes = monitoringManager.getDeviceTypes();
-            for (String deviceType : deviceTypes) {
+            for (String deviceType : monitoringManager.getDeviceTypes()) {
                 if (isPlatformExist(deviceType)) {
-                    configDeviceTypes.add(deviceType);
+                    jobs.add(new MonitoringJob(tenantId, tenantDomain, deviceType));
                 }
             }
         } catch (PolicyComplianceException e) {
-            log.error("Error occurred while getting the device types.");
+            log.error("Error occurred while getting the device types of tenant '" + tenantDomain + "'.", e);
         }
-        if (!deviceTypes.isEmpty()) {
-            try {
-                DeviceManagementProviderService deviceManagementProviderService =
-                        PolicyManagementDataHolder.getInstance().getDeviceManagementService();
-                for (String deviceType : configDeviceTypes) {
+        if (jobs.isEmpty() && log.isDebugEnabled()) {
+            log.debug("No device types registered currently for tenant '" + tenantDomain +
+                    "'. So did not run the monitoring task for the tenant.");
+        }
+        return jobs;
+    }
+
+    private void executeJobs(List<MonitoringJob> jobs) {
+        if (jobs.isEmpty()) {
+            return;
+        }
+        int poolSize = Math.min(jobs.size(), DeviceConfigurationManager.getInstance().getDeviceManagementConfig()
+                .getPolicyConfiguration().getMonitoringThreadPoolSize());
+        ExecutorService executor = Executors.newFixedThreadPool(poolSize, new ThreadFactory() {
+            private final AtomicInteger threadCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "PolicyMonitoringTask-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            List<Future<Integer>> results = executor.invokeAll(jobs);
+            for (int i = 0; i < jobs.size(); i++) {
+                MonitoringJob job = jobs.get(i);
+                try {
+                    int monitoredCount = results.get(i).get();
                     if (log.isDebugEnabled()) {
-                        log.debug("Running task for device type : " + deviceType);
-                    }
-                    PolicyMonitoringManager monitoringService =
-                            PolicyManagementDataHolder.getInstance().getDeviceManagementService()
-                                    .getPolicyMonitoringManager(deviceType);
-                    List<Device> devices = deviceManagementProviderService.getAllDevices(deviceType, false);
-                    if (monitoringService != null && !devices.isEmpty()) {
-                        List<Device> notifiableDevices = new ArrayList<>();
-                        if (log.isDebugEnabled()) {
-                            log.debug("Removing inactive and blocked devices from the list for the device type : " +
-                                    deviceType);
-                        }
-                        for (Device device : devices) {
-
-                            EnrolmentInfo.Status status = device.getEnrolmentInfo().getStatus();
-                            if (status.equals(EnrolmentInfo.Status.BLOCKED) ||
-                                    status.equals(EnrolmentInfo.Status.REMOVED) ||
-                                    status.equals(EnrolmentInfo.Status.UNCLAIMED) ||
-                                    status.equals(EnrolmentInfo.Status.DISENROLLMENT_REQUESTED) ||
-                                    status.equals(EnrolmentInfo.Status.SUSPENDED)) {
-                                continue;
-                            } else {
-                                notifiableDevices.add(device);
-                            }
-                        }
-                        if (log.isDebugEnabled()) {
-                            log.debug("Following devices selected to send the notification for " + deviceType);
-                            for (Device device : notifiableDevices) {
-                                log.debug(device.getDeviceIdentifier());
-                            }
-                        }
-                        if (!notifiableDevices.isEmpty()) {
-                            monitoringManager.addMonitoringOperation(notifiableDevices);
-                        }
+                        log.debug("Monitoring task completed for " + monitoredCount + " devices of type '" +
+                                job.deviceType + "' of tenant '" + job.tenantDomain + "'.");
                     }
+                } catch (ExecutionException e) {
+                    log.error("Error occurred while trying to run the monitoring task for device type '" +
+                            job.deviceType + "' of tenant '" + job.tenantDomain + "'.", e.getCause());
                 }
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Monitoring task running completed.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Monitoring task was interrupted before completing.", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Adds the monitoring operation to the devices of a device type of a tenant.
+     */
+    private static class MonitoringJob implements Callable<Integer> {
+
+        private final int tenantId;
+        private final String tenantDomain;
+        private final String deviceType;
+
+        private MonitoringJob(int tenantId, String tenantDomain, String deviceType) {
+            this.tenantId = tenantId;
+            this.tenantDomain = tenantDomain;
+            this.deviceType = deviceType;
+        }
+
+        @Override
+        public Integer call() throws Exception {
+            try {
+                PrivilegedCarbonContext.startTenantFlow();
+                PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantDomain(tenantDomain);
+                PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantId(tenantId);
                 if (log.isDebugEnabled()) {
-                    log.debug("Monitoring task running completed.");
+                    log.debug("Running task for device type : " + deviceType + " of tenant : " + tenantDomain);
                 }
-            } catch (Exception e) {
-                log.error("Error occurred while trying to run a task.", e);
+                return PolicyManagementDataHolder.getInstance().getMonitoringManager()
+                        .addMonitoringOperation(deviceType);
+            } finally {
+                PrivilegedCarbonContext.endTenantFlow();
             }
-        } else {
-            log.info("No device types registered currently. So did not run the monitoring task.");
         }
     }
 }
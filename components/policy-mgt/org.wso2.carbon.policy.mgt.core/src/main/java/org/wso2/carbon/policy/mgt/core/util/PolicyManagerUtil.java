@@ -36,6 +36,7 @@ import org.wso2.carbon.device.mgt.core.operation.mgt.ProfileOperation;
 import org.wso2.carbon.device.mgt.common.policy.mgt.Policy;
 import org.wso2.carbon.policy.mgt.common.PolicyManagementException;
 import org.wso2.carbon.device.mgt.common.policy.mgt.ProfileFeature;
+import org.wso2.carbon.policy.mgt.core.cache.PolicySnapshot;
 import org.wso2.carbon.policy.mgt.core.config.datasource.DataSourceConfig;
 import org.wso2.carbon.policy.mgt.core.config.datasource.JNDILookupDefinition;
 import org.wso2.carbon.policy.mgt.core.dao.util.PolicyManagementDAOUtil;
@@ -177,6 +178,12 @@ public class PolicyManagerUtil {
                 Caching.getCacheManager().<Integer, List<Policy>>getCache(name);
     }
 
+    public static Cache<Integer, PolicySnapshot> getPolicySnapshotCache(String name) {
+        CacheManager manager = getCacheManager();
+        return (manager != null) ? manager.<Integer, PolicySnapshot>getCache(name) :
+                Caching.getCacheManager().<Integer, PolicySnapshot>getCache(name);
+    }
+
     private static CacheManager getCacheManager() {
         return Caching.getCacheManagerFactory().getCacheManager(
                 PolicyManagementConstants.DM_CACHE_MANAGER);
@@ -32,9 +32,11 @@ import org.wso2.carbon.device.mgt.core.service.DeviceManagementProviderService;
 import org.wso2.carbon.device.mgt.core.service.DeviceManagementProviderServiceImpl;
 import org.wso2.carbon.ntask.common.TaskException;
 import org.wso2.carbon.policy.mgt.common.*;
+import org.wso2.carbon.policy.mgt.core.impl.PolicyInformationPointImpl;
 import org.wso2.carbon.policy.mgt.core.internal.PolicyManagementDataHolder;
 import org.wso2.carbon.policy.mgt.core.services.SimplePolicyEvaluationTest;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -112,6 +114,35 @@ public class PolicyEvaluationTestCase extends BasePolicyManagementDAOTest {
     }
 
 
+    @Test(dependsOnMethods = ("activatePolicies"))
+    public void getDeviceDataOfDevices() throws DeviceManagementException, PolicyManagementException {
+
+        DeviceManagementProviderService service = new DeviceManagementProviderServiceImpl();
+        List<Device> devices = service.getAllDevices(ANDROID, false);
+        Assert.assertFalse("No devices found to load the policy data of.", devices.isEmpty());
+
+        List<DeviceIdentifier> identifiers = new ArrayList<>();
+        for (Device device : devices) {
+            identifiers.add(new DeviceIdentifier(device.getDeviceIdentifier(), device.getType()));
+        }
+        identifiers.add(new DeviceIdentifier("non-existing-device", ANDROID));
+
+        PolicyInformationPoint policyInformationPoint = new PolicyInformationPointImpl();
+        List<PIPDevice> pipDevices = policyInformationPoint.getDeviceData(identifiers);
+        Assert.assertEquals("Policy data of the non existing device should be skipped.", devices.size(),
+                pipDevices.size());
+        for (int i = 0; i < pipDevices.size(); i++) {
+            PIPDevice pipDevice = pipDevices.get(i);
+            PIPDevice expected = policyInformationPoint.getDeviceData(identifiers.get(i));
+            Assert.assertSame(identifiers.get(i), pipDevice.getDeviceIdentifier());
+            Assert.assertEquals(expected.getDevice().getId(), pipDevice.getDevice().getId());
+            Assert.assertEquals(expected.getUserId(), pipDevice.getUserId());
+            Assert.assertEquals(expected.getOwnershipType(), pipDevice.getOwnershipType());
+            Assert.assertEquals(expected.getDeviceType().getName(), pipDevice.getDeviceType().getName());
+            Assert.assertEquals(expected.getDeviceGroups().size(), pipDevice.getDeviceGroups().size());
+        }
+    }
+
     @Test(dependsOnMethods = ("getEffectivePolicy"))
     public void updatePriorities() throws PolicyManagementException, TaskException {
 
@@ -311,6 +311,8 @@ public class  PolicyManagerServiceImplTest extends BasePolicyManagementDAOTest {
     public void inactivatePolicy() throws PolicyManagementException {
         policyManagerService.getPAP().inactivatePolicy(policy1.getId());
         new DelegationTask().execute();
+        Assert.assertNull(policyManagerService.getAppliedPolicyToDevice(new DeviceIdentifier(DEVICE1, DEVICE_TYPE_A)),
+                POLICY1 + " (after inactivation) is still recorded as applied for " + DEVICE1);
         Policy effectivePolicy = policyManagerService.getEffectivePolicy(new DeviceIdentifier(DEVICE1, DEVICE_TYPE_A));
         Assert.assertNull(effectivePolicy, POLICY1 + " (after inactivation) is still applied for " + DEVICE1);
     }
@@ -331,10 +333,17 @@ public class  PolicyManagerServiceImplTest extends BasePolicyManagementDAOTest {
 
     @Test(dependsOnMethods = "applyPolicy")
     public void getEffectiveFeatures() throws Exception {
+        policyManagerService.getPAP().removePolicyUsed(new DeviceIdentifier(DEVICE1, DEVICE_TYPE_A));
+        Assert.assertNull(policyManagerService.getAppliedPolicyToDevice(new DeviceIdentifier(DEVICE1, DEVICE_TYPE_A)));
         List<ProfileFeature> effectiveFeatures = policyManagerService.
                 getEffectiveFeatures(new DeviceIdentifier(DEVICE1, DEVICE_TYPE_A));
         Assert.assertNotNull(effectiveFeatures);
         Assert.assertEquals(POLICY1_FEATURE1_CODE, effectiveFeatures.get(0).getFeatureCode());
+        Policy appliedPolicy = policyManagerService.getAppliedPolicyToDevice(new DeviceIdentifier(DEVICE1,
+                DEVICE_TYPE_A));
+        Assert.assertNotNull(appliedPolicy, "Applied policy is not recorded for " + DEVICE1);
+        Assert.assertEquals(appliedPolicy.getId(), policy1.getId(), POLICY1 + " is not recorded as applied for " +
+                DEVICE1);
     }
 
     @Test(description = "Get active policy but there is no EvaluationPoint define for device yet should be return FeatureManagement exception" +
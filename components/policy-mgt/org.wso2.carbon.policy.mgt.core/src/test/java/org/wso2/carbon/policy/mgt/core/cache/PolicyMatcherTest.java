@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.policy.mgt.core.cache;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.device.mgt.common.group.mgt.DeviceGroup;
+import org.wso2.carbon.device.mgt.common.policy.mgt.DeviceGroupWrapper;
+import org.wso2.carbon.device.mgt.common.policy.mgt.Policy;
+import org.wso2.carbon.device.mgt.common.policy.mgt.Profile;
+import org.wso2.carbon.policy.mgt.common.PolicyFilter;
+import org.wso2.carbon.policy.mgt.core.impl.PolicyFilterImpl;
+import org.wso2.carbon.policy.mgt.core.util.PolicyManagementConstants;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class PolicyMatcherTest {
+
+    private static final String[] DEVICE_TYPES = {"android", "ios"};
+    private static final String[] ROLES = {"Role_01", "Role_02", "Role_03", PolicyManagementConstants.ANY};
+    private static final String[] USERS = {"admin", "user1", "user2", PolicyManagementConstants.ANY};
+    private static final String[] OWNERSHIP_TYPES = {"BYOD", "COPE", PolicyManagementConstants.ANY, null};
+    private static final int[] GROUP_IDS = {1, 2, 3};
+
+    private List<Policy> policies;
+    private PolicyMatcher matcher;
+
+    @BeforeClass
+    public void init() {
+        Random random = new Random(42);
+        policies = new ArrayList<>();
+        for (int i = 1; i <= 200; i++) {
+            Policy policy = new Policy();
+            policy.setId(i);
+            policy.setPriorityId(i);
+            policy.setPolicyName("Policy_" + i);
+            policy.setActive(random.nextInt(5) != 0);
+            Profile profile = new Profile();
+            profile.setDeviceType(DEVICE_TYPES[random.nextInt(DEVICE_TYPES.length)]);
+            policy.setProfile(profile);
+            policy.setRoles(pick(random, ROLES));
+            policy.setUsers(pick(random, USERS));
+            policy.setOwnershipType(OWNERSHIP_TYPES[random.nextInt(OWNERSHIP_TYPES.length)]);
+            List<DeviceGroupWrapper> groups = new ArrayList<>();
+            for (int groupId : GROUP_IDS) {
+                if (random.nextInt(4) == 0) {
+                    DeviceGroupWrapper group = new DeviceGroupWrapper();
+                    group.setId(groupId);
+                    group.setName("Group_" + groupId);
+                    groups.add(group);
+                }
+            }
+            policy.setDeviceGroups(groups);
+            policies.add(policy);
+        }
+        matcher = new PolicyMatcher(policies);
+    }
+
+    @Test
+    public void testMatchSelectsSamePoliciesAsFilters() {
+        String[][] roleSets = {null, {}, {"role_01"}, {"Role_02", "Role_03"}};
+        String[] users = {null, "admin", "USER1", "user3"};
+        String[] ownershipTypes = {null, "BYOD", "cope"};
+        List<List<Integer>> groupSets = Arrays.asList(Collections.<Integer>emptyList(), Collections.singletonList(2),
+                Arrays.asList(1, 3));
+        for (String deviceType : DEVICE_TYPES) {
+            for (String[] roles : roleSets) {
+                for (String user : users) {
+                    for (String ownershipType : ownershipTypes) {
+                        for (List<Integer> groupIds : groupSets) {
+                            List<Policy> expected = filter(deviceType, ownershipType, roles, user, groupIds);
+                            List<Policy> actual = matcher.match(deviceType, ownershipType, roles, user, groupIds);
+                            Assert.assertEquals(actual, expected, "Policies selected for " + deviceType + ", " +
+                                    ownershipType + ", " + Arrays.toString(roles) + ", " + user + ", " + groupIds +
+                                    " do not match the policies selected by the policy filters.");
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMatchUnknownDeviceType() {
+        Assert.assertTrue(matcher.match("windows", null, null, null, null).isEmpty(),
+                "Policies were selected for a device type without policies.");
+    }
+
+    private List<Policy> filter(String deviceType, String ownershipType, String[] roles, String user,
+                                List<Integer> groupIds) {
+        PolicyFilter policyFilter = new PolicyFilterImpl();
+        List<Policy> filtered = policyFilter.filterActivePolicies(policies);
+        filtered = policyFilter.filterDeviceTypeBasedPolicies(deviceType, filtered);
+        filtered = policyFilter.filterOwnershipTypeBasedPolicies(ownershipType, filtered);
+        if (roles != null) {
+            filtered = policyFilter.filterRolesBasedPolicies(roles, filtered);
+        }
+        if (user != null) {
+            filtered = policyFilter.filterUserBasedPolicies(user, filtered);
+        }
+        if (!groupIds.isEmpty()) {
+            Map<Integer, DeviceGroup> groupMap = new HashMap<>();
+            for (Integer groupId : groupIds) {
+                groupMap.put(groupId, new DeviceGroup());
+            }
+            filtered = policyFilter.filterDeviceGroupsPolicies(groupMap, filtered);
+        }
+        // The role filter selects a policy once for every matching role.
+        return new ArrayList<>(new LinkedHashSet<>(filtered));
+    }
+
+    private static List<String> pick(Random random, String[] values) {
+        List<String> picked = new ArrayList<>();
+        for (String value : values) {
+            if (random.nextInt(3) == 0) {
+                picked.add(value);
+            }
+        }
+        return picked;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.policy.mgt.core.cache;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.device.mgt.common.policy.mgt.DeviceGroupWrapper;
+import org.wso2.carbon.device.mgt.common.policy.mgt.Policy;
+import org.wso2.carbon.device.mgt.common.policy.mgt.Profile;
+import org.wso2.carbon.policy.mgt.core.util.PolicyManagementConstants;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class PolicySnapshotTest {
+
+    private static final String DEVICE_TYPE_A = "typeA";
+    private static final String DEVICE_TYPE_B = "typeB";
+
+    private PolicySnapshot snapshot;
+
+    @BeforeClass
+    public void init() {
+        List<Policy> policies = new ArrayList<>();
+        policies.add(createPolicy(1, 1, DEVICE_TYPE_A, Arrays.asList("Role_01", "Role_02"), null, "COPE", null));
+        policies.add(createPolicy(2, 2, DEVICE_TYPE_A, null, Arrays.asList("user1"), null, 10));
+        policies.add(createPolicy(3, 3, DEVICE_TYPE_B, Collections.singletonList(PolicyManagementConstants.ANY),
+                Collections.singletonList(PolicyManagementConstants.ANY), PolicyManagementConstants.ANY, null));
+        snapshot = new PolicySnapshot(-1234, 1, policies);
+    }
+
+    @Test
+    public void testGetPolicy() {
+        Assert.assertEquals(snapshot.getPolicies().size(), 3);
+        Assert.assertEquals(snapshot.getPolicy(2).getId(), 2);
+        Assert.assertNull(snapshot.getPolicy(4), "Unknown policy id was found in the snapshot.");
+    }
+
+    @Test
+    public void testGetPoliciesOfDeviceType() {
+        Assert.assertEquals(getIds(snapshot.getPoliciesOfDeviceType("TYPEA")), Arrays.asList(1, 2));
+        Assert.assertEquals(getIds(snapshot.getPoliciesOfDeviceType(DEVICE_TYPE_B)), Collections.singletonList(3));
+        Assert.assertTrue(snapshot.getPoliciesOfDeviceType("typeC").isEmpty());
+    }
+
+    @Test
+    public void testGetPoliciesOfAttributes() {
+        Assert.assertEquals(getIds(snapshot.getPoliciesOfRoles(new String[]{"role_02", "Role_01"})),
+                Arrays.asList(1, 2, 3));
+        Assert.assertEquals(getIds(snapshot.getPoliciesOfRoles(new String[]{"Role_03"})), Arrays.asList(2, 3));
+        Assert.assertEquals(getIds(snapshot.getPoliciesOfUser("user2")), Arrays.asList(1, 3));
+        Assert.assertEquals(getIds(snapshot.getPoliciesOfOwnershipType("BYOD")), Arrays.asList(2, 3));
+        Assert.assertEquals(getIds(snapshot.getPoliciesOfGroups(Collections.singletonList(10))),
+                Arrays.asList(1, 2, 3));
+        Assert.assertEquals(getIds(snapshot.getPoliciesOfGroups(Collections.singletonList(11))), Arrays.asList(1, 3));
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void testSnapshotIsImmutable() {
+        snapshot.getPoliciesOfDeviceType(DEVICE_TYPE_A).clear();
+    }
+
+    private static Policy createPolicy(int id, int priority, String deviceType, List<String> roles,
+                                       List<String> users, String ownershipType, Integer groupId) {
+        Policy policy = new Policy();
+        policy.setId(id);
+        policy.setPriorityId(priority);
+        policy.setPolicyName("Policy_" + id);
+        Profile profile = new Profile();
+        profile.setDeviceType(deviceType);
+        policy.setProfile(profile);
+        policy.setRoles(roles == null ? new ArrayList<String>() : roles);
+        policy.setUsers(users == null ? new ArrayList<String>() : users);
+        policy.setOwnershipType(ownershipType);
+        List<DeviceGroupWrapper> groups = new ArrayList<>();
+        if (groupId != null) {
+            DeviceGroupWrapper group = new DeviceGroupWrapper();
+            group.setId(groupId);
+            group.setName("Group_" + groupId);
+            groups.add(group);
+        }
+        policy.setDeviceGroups(groups);
+        return policy;
+    }
+
+    private static List<Integer> getIds(List<Policy> policies) {
+        List<Integer> ids = new ArrayList<>();
+        for (Policy policy : policies) {
+            ids.add(policy.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.policy.mgt.core.impl;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+public class UserRoleCacheTest {
+
+    private static final int TENANT_ID = -1234;
+    private static final String USERNAME = "admin";
+    private static final String[] ROLES = {"admin", "Internal/everyone"};
+
+    @Test
+    public void testGetCachedRoles() {
+        UserRoleCache cache = new UserRoleCache(60000, new ManualClock());
+        Assert.assertNull(cache.get(TENANT_ID, USERNAME));
+        cache.put(TENANT_ID, USERNAME, ROLES);
+        Assert.assertEquals(cache.get(TENANT_ID, USERNAME), ROLES);
+        Assert.assertNull(cache.get(1, USERNAME), "Roles of the user in another tenant must not be returned.");
+    }
+
+    @Test
+    public void testRolesExpire() {
+        ManualClock clock = new ManualClock();
+        UserRoleCache cache = new UserRoleCache(100, clock);
+        cache.put(TENANT_ID, USERNAME, ROLES);
+        clock.advance(99);
+        Assert.assertEquals(cache.get(TENANT_ID, USERNAME), ROLES);
+        clock.advance(1);
+        Assert.assertNull(cache.get(TENANT_ID, USERNAME), "Expired roles must not be returned.");
+    }
+
+    /**
+     * Clock which only moves when it is advanced by the test.
+     */
+    private static class ManualClock extends Clock {
+
+        private long millis = 1000000;
+
+        private void advance(long duration) {
+            millis += duration;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -13,6 +13,7 @@ import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.device.mgt.common.Device;
 import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
 import org.wso2.carbon.device.mgt.common.DeviceManagementException;
+import org.wso2.carbon.device.mgt.common.EnrolmentInfo;
 import org.wso2.carbon.device.mgt.common.IllegalTransactionStateException;
 import org.wso2.carbon.device.mgt.common.group.mgt.DeviceGroup;
 import org.wso2.carbon.device.mgt.common.operation.mgt.OperationManager;
@@ -28,6 +29,7 @@ import org.wso2.carbon.device.mgt.core.service.DeviceManagementProviderService;
 import org.wso2.carbon.policy.mgt.core.BasePolicyManagementDAOTest;
 import org.wso2.carbon.policy.mgt.core.PolicyManagerService;
 import org.wso2.carbon.policy.mgt.core.PolicyManagerServiceImpl;
+import org.wso2.carbon.policy.mgt.core.TestUtils;
 import org.wso2.carbon.policy.mgt.core.dao.MonitoringDAO;
 import org.wso2.carbon.policy.mgt.core.dao.MonitoringDAOException;
 import org.wso2.carbon.policy.mgt.core.dao.PolicyManagementDAOFactory;
@@ -43,7 +45,10 @@ import org.wso2.carbon.policy.mgt.core.util.PolicyManagementConstants;
 import javax.sql.DataSource;
 import java.lang.reflect.Field;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.List;
@@ -63,6 +68,8 @@ public class MonitoringManagerImplTest extends BasePolicyManagementDAOTest{
 
     private static final String PROFILE5 = "profile5";
     private static final String DEVICE5 = "device5";
+    private static final String DEVICE6 = "device6";
+    private static final String DEVICE7 = "device7";
     private static final String POLICY5 = "policy5";
     private static final String GROUP5 = "group5";
     private static final String DEVICE_TYPE_E = "deviceTypeE";
@@ -319,9 +326,86 @@ public class MonitoringManagerImplTest extends BasePolicyManagementDAOTest{
         monitoringManager.addMonitoringOperation(deviceMgtService.getAllDevices());
     }
 
+    @Test(description = "This test case tests adding the monitoring operation to the devices of a device type")
+    public void testAddMonitoringOperationOfDeviceType() throws Exception {
+        enrollDevice(DEVICE6, DEVICE_TYPE_E);
+        enrollDevice(DEVICE7, DEVICE_TYPE_E);
+        DeviceIdentifier blockedDevice = new DeviceIdentifier(DEVICE6, DEVICE_TYPE_E);
+        DeviceIdentifier removedDevice = new DeviceIdentifier(DEVICE7, DEVICE_TYPE_E);
+        policyManager.addAppliedPolicyToDevice(blockedDevice, policy5);
+        policyManager.addAppliedPolicyToDevice(removedDevice, policy5);
+        deviceMgtService.setStatus(blockedDevice, ADMIN_USER, EnrolmentInfo.Status.BLOCKED);
+        deviceMgtService.setStatus(removedDevice, ADMIN_USER, EnrolmentInfo.Status.REMOVED);
+
+        executeUpdate("DELETE FROM DM_POLICY_COMPLIANCE_STATUS WHERE DEVICE_ID IN " +
+                "(SELECT ID FROM DM_DEVICE WHERE DEVICE_IDENTIFICATION = '" + DEVICE5 + "')");
+        int monitorOperations = getMonitorOperationCount(DEVICE5);
+
+        int monitoredCount = monitoringManager.addMonitoringOperation(DEVICE_TYPE_E);
+        Assert.assertEquals(monitoredCount, 1, "Device with the applied policy is not monitored");
+        int attempts = getComplianceAttempts(DEVICE5);
+        Assert.assertTrue(attempts > 0, "Compliance status of the monitored device is not recorded");
+        Assert.assertEquals(getMonitorOperationCount(DEVICE5), monitorOperations + 1,
+                "Monitoring operation is not added to the device monitored for the first time");
+
+        monitoredCount = monitoringManager.addMonitoringOperation(DEVICE_TYPE_E);
+        Assert.assertEquals(monitoredCount, 1, "Device with the applied policy is not monitored");
+        Assert.assertEquals(getComplianceAttempts(DEVICE5), attempts + 1, "Monitoring attempt is not recorded");
+        Assert.assertEquals(getMonitorOperationCount(DEVICE5), monitorOperations + 1,
+                "Monitoring operation is added again to a device which has not responded");
+
+        for (String deviceIdentification : new String[]{DEVICE6, DEVICE7}) {
+            Assert.assertEquals(getComplianceAttempts(deviceIdentification), -1,
+                    "Compliance status is recorded for the inactive device " + deviceIdentification);
+            Assert.assertEquals(getMonitorOperationCount(deviceIdentification), 0,
+                    "Monitoring operation is added to the inactive device " + deviceIdentification);
+        }
+    }
+
     @Test
     public void testGetDeviceTypes() throws Exception {
         monitoringManager.getDeviceTypes();
     }
 
+    private void executeUpdate(String query) throws SQLException {
+        Connection conn = null;
+        Statement stmt = null;
+        try {
+            conn = getDataSource().getConnection();
+            stmt = conn.createStatement();
+            stmt.executeUpdate(query);
+        } finally {
+            TestUtils.cleanupResources(conn, stmt, null);
+        }
+    }
+
+    private int getComplianceAttempts(String deviceIdentification) throws SQLException {
+        return getInt("SELECT cs.ATTEMPTS FROM DM_POLICY_COMPLIANCE_STATUS cs " +
+                "INNER JOIN DM_DEVICE d ON d.ID = cs.DEVICE_ID WHERE d.DEVICE_IDENTIFICATION = ?",
+                deviceIdentification, -1);
+    }
+
+    private int getMonitorOperationCount(String deviceIdentification) throws SQLException {
+        return getInt("SELECT COUNT(*) FROM DM_ENROLMENT_OP_MAPPING m " +
+                "INNER JOIN DM_OPERATION o ON o.ID = m.OPERATION_ID " +
+                "INNER JOIN DM_ENROLMENT e ON e.ID = m.ENROLMENT_ID " +
+                "INNER JOIN DM_DEVICE d ON d.ID = e.DEVICE_ID " +
+                "WHERE d.DEVICE_IDENTIFICATION = ? AND o.OPERATION_CODE = 'MONITOR'", deviceIdentification, 0);
+    }
+
+    private int getInt(String query, String deviceIdentification, int defaultValue) throws SQLException {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            conn = getDataSource().getConnection();
+            stmt = conn.prepareStatement(query);
+            stmt.setString(1, deviceIdentification);
+            rs = stmt.executeQuery();
+            return rs.next() ? rs.getInt(1) : defaultValue;
+        } finally {
+            TestUtils.cleanupResources(conn, stmt, rs);
+        }
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,82 @@
+IF NOT  EXISTS (SELECT * FROM SYS.OBJECTS WHERE OBJECT_ID = OBJECT_ID(N'[DBO].[DM_OPERATION_ARCH]') AND TYPE IN (N'U'))
+CREATE TABLE DM_OPERATION_ARCH (
+    ID INTEGER NOT NULL,
+    TYPE VARCHAR(50) NOT NULL,
+    CREATED_TIMESTAMP DATETIME2 NOT NULL,
+    RECEIVED_TIMESTAMP DATETIME2 NULL,
+    OPERATION_CODE VARCHAR(1000) NOT NULL,
+    ARCHIVED_AT DATETIME2 DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (ID)
+);
+
+IF NOT  EXISTS (SELECT * FROM SYS.OBJECTS WHERE OBJECT_ID = OBJECT_ID(N'[DBO].[DM_ENROLMENT_OP_MAPPING_ARCH]') AND TYPE IN (N'U'))
+CREATE TABLE DM_ENROLMENT_OP_MAPPING_ARCH (
+    ID INTEGER NOT NULL,
+    ENROLMENT_ID INTEGER NOT NULL,
+    OPERATION_ID INTEGER NOT NULL,
+    STATUS VARCHAR(50) NULL,
+    PUSH_NOTIFICATION_STATUS VARCHAR(50) NULL,
+    CREATED_TIMESTAMP BIGINT NOT NULL,
+    UPDATED_TIMESTAMP BIGINT NOT NULL,
+    ARCHIVED_AT DATETIME2 DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (ID)
+);
+
+IF NOT  EXISTS (SELECT * FROM SYS.OBJECTS WHERE OBJECT_ID = OBJECT_ID(N'[DBO].[DM_DEVICE_OPERATION_RESPONSE_ARCH]') AND TYPE IN (N'U'))
+CREATE TABLE DM_DEVICE_OPERATION_RESPONSE_ARCH (
+    ID INTEGER NOT NULL,
+    ENROLMENT_ID INTEGER NOT NULL,
+    OPERATION_ID INTEGER NOT NULL,
+    EN_OP_MAP_ID INTEGER NOT NULL,
+    OPERATION_RESPONSE VARBINARY(MAX) DEFAULT NULL,
+    RECEIVED_TIMESTAMP DATETIME2 NULL,
+    ARCHIVED_AT DATETIME2 DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (ID)
+);
+
+IF NOT  EXISTS (SELECT * FROM SYS.OBJECTS WHERE OBJECT_ID = OBJECT_ID(N'[DBO].[DM_NOTIFICATION_ARCH]') AND TYPE IN (N'U'))
+CREATE TABLE DM_NOTIFICATION_ARCH (
+    NOTIFICATION_ID INTEGER NOT NULL,
+    DEVICE_ID INTEGER NOT NULL,
+    OPERATION_ID INTEGER NOT NULL,
+    TENANT_ID INTEGER NOT NULL,
+    STATUS VARCHAR(10) NULL,
+    DESCRIPTION VARCHAR(1000) NULL,
+    ARCHIVED_AT DATETIME2 DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (NOTIFICATION_ID)
+);
+
+IF NOT  EXISTS (SELECT * FROM SYS.OBJECTS WHERE OBJECT_ID = OBJECT_ID(N'[DBO].[DM_COMMAND_OPERATION_ARCH]') AND TYPE IN (N'U'))
+CREATE TABLE DM_COMMAND_OPERATION_ARCH (
+    OPERATION_ID INTEGER NOT NULL,
+    ENABLED BIT NOT NULL DEFAULT 0,
+    ARCHIVED_AT DATETIME2 DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (OPERATION_ID)
+);
+
+IF NOT  EXISTS (SELECT * FROM SYS.OBJECTS WHERE OBJECT_ID = OBJECT_ID(N'[DBO].[DM_CONFIG_OPERATION_ARCH]') AND TYPE IN (N'U'))
+CREATE TABLE DM_CONFIG_OPERATION_ARCH (
+    OPERATION_ID INTEGER NOT NULL,
+    OPERATION_CONFIG VARBINARY(MAX) DEFAULT NULL,
+    ENABLED BIT NOT NULL DEFAULT 0,
+    ARCHIVED_AT DATETIME2 DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (OPERATION_ID)
+);
+
+IF NOT  EXISTS (SELECT * FROM SYS.OBJECTS WHERE OBJECT_ID = OBJECT_ID(N'[DBO].[DM_PROFILE_OPERATION_ARCH]') AND TYPE IN (N'U'))
+CREATE TABLE DM_PROFILE_OPERATION_ARCH (
+    OPERATION_ID INTEGER NOT NULL,
+    ENABLED INTEGER NOT NULL DEFAULT 0,
+    OPERATION_DETAILS VARBINARY(MAX) DEFAULT NULL,
+    ARCHIVED_AT DATETIME2 DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (OPERATION_ID)
+);
+
+IF NOT  EXISTS (SELECT * FROM SYS.OBJECTS WHERE OBJECT_ID = OBJECT_ID(N'[DBO].[DM_POLICY_OPERATION_ARCH]') AND TYPE IN (N'U'))
+CREATE TABLE DM_POLICY_OPERATION_ARCH (
+    OPERATION_ID INTEGER NOT NULL,
+    ENABLED INTEGER NOT NULL DEFAULT 0,
+    OPERATION_DETAILS VARBINARY(MAX) DEFAULT NULL,
+    ARCHIVED_AT DATETIME2 DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (OPERATION_ID)
+);
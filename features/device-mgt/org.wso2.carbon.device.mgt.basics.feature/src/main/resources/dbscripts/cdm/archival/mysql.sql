@@ -67,3 +67,11 @@ CREATE TABLE IF NOT EXISTS DM_PROFILE_OPERATION_ARCH (
     ARCHIVED_AT TIMESTAMP DEFAULT NOW(),
     PRIMARY KEY (OPERATION_ID)
 )ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS DM_POLICY_OPERATION_ARCH (
+    OPERATION_ID INTEGER NOT NULL,
+    ENABLED INTEGER NOT NULL DEFAULT 0,
+    OPERATION_DETAILS BLOB DEFAULT NULL,
+    ARCHIVED_AT TIMESTAMP DEFAULT NOW(),
+    PRIMARY KEY (OPERATION_ID)
+)ENGINE = InnoDB;
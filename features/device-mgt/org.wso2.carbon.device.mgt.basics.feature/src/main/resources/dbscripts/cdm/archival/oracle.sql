@@ -0,0 +1,82 @@
+CREATE TABLE DM_OPERATION_ARCH (
+  ID NUMBER(10) NOT NULL,
+  TYPE VARCHAR2(50) NOT NULL,
+  CREATED_TIMESTAMP TIMESTAMP(0) NOT NULL,
+  RECEIVED_TIMESTAMP TIMESTAMP(0) NULL,
+  OPERATION_CODE VARCHAR2(1000) NOT NULL,
+  ARCHIVED_AT TIMESTAMP(0) DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (ID)
+)
+/
+
+CREATE TABLE DM_ENROLMENT_OP_MAPPING_ARCH (
+  ID NUMBER(10) NOT NULL,
+  ENROLMENT_ID NUMBER(10) NOT NULL,
+  OPERATION_ID NUMBER(10) NOT NULL,
+  STATUS VARCHAR2(50) NULL,
+  PUSH_NOTIFICATION_STATUS VARCHAR2(50) NULL,
+  CREATED_TIMESTAMP NUMBER(14) NOT NULL,
+  UPDATED_TIMESTAMP NUMBER(14) NOT NULL,
+  ARCHIVED_AT TIMESTAMP(0) DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (ID)
+)
+/
+
+CREATE TABLE DM_DEVICE_OPERATION_RESPONSE_ARCH (
+  ID NUMBER(10) NOT NULL,
+  ENROLMENT_ID NUMBER(10) NOT NULL,
+  OPERATION_ID NUMBER(10) NOT NULL,
+  EN_OP_MAP_ID NUMBER(10) NOT NULL,
+  OPERATION_RESPONSE BLOB DEFAULT NULL,
+  RECEIVED_TIMESTAMP TIMESTAMP(0) NULL,
+  ARCHIVED_AT TIMESTAMP(0) DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (ID)
+)
+/
+
+CREATE TABLE DM_NOTIFICATION_ARCH (
+  NOTIFICATION_ID NUMBER(10) NOT NULL,
+  DEVICE_ID NUMBER(10) NOT NULL,
+  OPERATION_ID NUMBER(10) NOT NULL,
+  TENANT_ID NUMBER(10) NOT NULL,
+  STATUS VARCHAR2(10) NULL,
+  DESCRIPTION VARCHAR2(1000) NULL,
+  ARCHIVED_AT TIMESTAMP(0) DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (NOTIFICATION_ID)
+)
+/
+
+CREATE TABLE DM_COMMAND_OPERATION_ARCH (
+  OPERATION_ID NUMBER(10) NOT NULL,
+  ENABLED NUMBER(10) DEFAULT 0 NOT NULL,
+  ARCHIVED_AT TIMESTAMP(0) DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (OPERATION_ID)
+)
+/
+
+CREATE TABLE DM_CONFIG_OPERATION_ARCH (
+  OPERATION_ID NUMBER(10) NOT NULL,
+  OPERATION_CONFIG BLOB DEFAULT NULL,
+  ENABLED NUMBER(10) DEFAULT 0 NOT NULL,
+  ARCHIVED_AT TIMESTAMP(0) DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (OPERATION_ID)
+)
+/
+
+CREATE TABLE DM_PROFILE_OPERATION_ARCH (
+  OPERATION_ID NUMBER(10) NOT NULL,
+  ENABLED NUMBER(10) DEFAULT 0 NOT NULL,
+  OPERATION_DETAILS BLOB DEFAULT NULL,
+  ARCHIVED_AT TIMESTAMP(0) DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (OPERATION_ID)
+)
+/
+
+CREATE TABLE DM_POLICY_OPERATION_ARCH (
+  OPERATION_ID NUMBER(10) NOT NULL,
+  ENABLED NUMBER(10) DEFAULT 0 NOT NULL,
+  OPERATION_DETAILS BLOB DEFAULT NULL,
+  ARCHIVED_AT TIMESTAMP(0) DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (OPERATION_ID)
+)
+/
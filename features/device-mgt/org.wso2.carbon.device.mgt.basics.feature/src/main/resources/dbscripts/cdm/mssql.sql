@@ -603,3 +603,29 @@ DM_DEVICE.ID = DM_DEVICE_DETAIL.DEVICE_ID
 ORDER BY TENANT_ID, DEVICE_ID');
 
 -- END OF DASHBOARD RELATED VIEWS --
+
+-- TEMP TABLE REQUIRED FOR DATA ARCHIVAL JOB
+IF NOT  EXISTS (SELECT * FROM SYS.OBJECTS WHERE OBJECT_ID = OBJECT_ID(N'[DBO].[DM_ARCHIVED_OPERATIONS]') AND TYPE IN (N'U'))
+CREATE TABLE DM_ARCHIVED_OPERATIONS (
+    ID INTEGER NOT NULL,
+    CREATED_TIMESTAMP DATETIME2 NOT NULL,
+    PRIMARY KEY (ID)
+);
+
+-- PARTITION LEASES OF THE SHARDED DEVICE TASKS
+IF NOT  EXISTS (SELECT * FROM SYS.OBJECTS WHERE OBJECT_ID = OBJECT_ID(N'[DBO].[DM_TASK_PARTITION_LEASE]') AND TYPE IN (N'U'))
+CREATE TABLE DM_TASK_PARTITION_LEASE (
+    TASK_NAME VARCHAR(150) NOT NULL,
+    PARTITION_ID INTEGER NOT NULL,
+    OWNER_ID VARCHAR(100) NULL,
+    LEASE_EXPIRY BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (TASK_NAME, PARTITION_ID)
+);
+
+IF NOT  EXISTS (SELECT * FROM SYS.OBJECTS WHERE OBJECT_ID = OBJECT_ID(N'[DBO].[DM_TASK_MEMBER]') AND TYPE IN (N'U'))
+CREATE TABLE DM_TASK_MEMBER (
+    TASK_NAME VARCHAR(150) NOT NULL,
+    NODE_ID VARCHAR(100) NOT NULL,
+    LAST_SEEN BIGINT NOT NULL,
+    PRIMARY KEY (TASK_NAME, NODE_ID)
+);
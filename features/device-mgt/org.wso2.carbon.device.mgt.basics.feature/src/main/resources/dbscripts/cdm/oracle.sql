@@ -948,3 +948,29 @@ DM_DEVICE.ID = DM_DEVICE_DETAIL.DEVICE_ID
 /
 
 -- END OF DASHBOARD RELATED VIEWS --
+
+-- TEMP TABLE REQUIRED FOR DATA ARCHIVAL JOB
+CREATE TABLE DM_ARCHIVED_OPERATIONS (
+  ID NUMBER(10) NOT NULL,
+  CREATED_TIMESTAMP TIMESTAMP(0) NOT NULL,
+  PRIMARY KEY (ID)
+)
+/
+
+-- PARTITION LEASES OF THE SHARDED DEVICE TASKS
+CREATE TABLE DM_TASK_PARTITION_LEASE (
+  TASK_NAME VARCHAR2(150) NOT NULL,
+  PARTITION_ID NUMBER(10) NOT NULL,
+  OWNER_ID VARCHAR2(100) NULL,
+  LEASE_EXPIRY NUMBER(19) DEFAULT 0 NOT NULL,
+  PRIMARY KEY (TASK_NAME, PARTITION_ID)
+)
+/
+
+CREATE TABLE DM_TASK_MEMBER (
+  TASK_NAME VARCHAR2(150) NOT NULL,
+  NODE_ID VARCHAR2(100) NOT NULL,
+  LAST_SEEN NUMBER(19) NOT NULL,
+  PRIMARY KEY (TASK_NAME, NODE_ID)
+)
+/
@@ -548,3 +548,26 @@ DM_DEVICE.ID = DM_DEVICE_DETAIL.DEVICE_ID
 ORDER BY TENANT_ID, DEVICE_ID;
 
 -- END OF DASHBOARD RELATED VIEWS --
+
+-- TEMP TABLE REQUIRED FOR DATA ARCHIVAL JOB
+CREATE TABLE IF NOT EXISTS DM_ARCHIVED_OPERATIONS (
+  ID INTEGER NOT NULL,
+  CREATED_TIMESTAMP TIMESTAMP NOT NULL,
+  PRIMARY KEY (ID)
+);
+
+-- PARTITION LEASES OF THE SHARDED DEVICE TASKS
+CREATE TABLE IF NOT EXISTS DM_TASK_PARTITION_LEASE (
+    TASK_NAME VARCHAR(150) NOT NULL,
+    PARTITION_ID INTEGER NOT NULL,
+    OWNER_ID VARCHAR(100) NULL,
+    LEASE_EXPIRY BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (TASK_NAME, PARTITION_ID)
+);
+
+CREATE TABLE IF NOT EXISTS DM_TASK_MEMBER (
+    TASK_NAME VARCHAR(150) NOT NULL,
+    NODE_ID VARCHAR(100) NOT NULL,
+    LAST_SEEN BIGINT NOT NULL,
+    PRIMARY KEY (TASK_NAME, NODE_ID)
+);